@@ -0,0 +1,64 @@
+package org.infinispan.client.hotrod;
+
+import java.net.SocketAddress;
+import java.util.Map;
+
+import org.infinispan.commons.util.Histogram;
+
+/**
+ * Statistics about the behaviour of a {@link RemoteCacheManager} and of the remote caches it manages, as seen from
+ * the client, as opposed to the {@link ServerStatistics} reported by the servers. They are only collected if enabled
+ * through {@link org.infinispan.client.hotrod.configuration.ConfigurationBuilder#statistics()}.
+ * <p/>
+ * All the durations are in nanoseconds.
+ *
+ * @since 7.0
+ */
+public interface ClientStatistics {
+
+   /**
+    * @return whether statistics are collected
+    */
+   boolean isEnabled();
+
+   /**
+    * Returns the latency of the operations that completed successfully, keyed by operation name, e.g. <tt>Get</tt> or
+    * <tt>PutIfAbsent</tt>. The latency of an operation includes its retries.
+    */
+   Map<String, Histogram> getOperationLatencies();
+
+   /**
+    * Returns the time each server took to respond to the requests it received, keyed by the server address.
+    */
+   Map<SocketAddress, Histogram> getServerLatencies();
+
+   /**
+    * @return the number of times an operation was retried, for whatever reason
+    */
+   long getRetries();
+
+   /**
+    * @return the number of times an operation was retried on another server, after its connection to a server failed
+    */
+   long getFailovers();
+
+   /**
+    * @return the time spent waiting to borrow a connection from the pool
+    */
+   Histogram getConnectionPoolBorrowWait();
+
+   /**
+    * @return the number of pooled connections currently handed over to an operation
+    */
+   int getConnectionPoolActive();
+
+   /**
+    * @return the number of pooled connections currently idle
+    */
+   int getConnectionPoolIdle();
+
+   /**
+    * Resets all the statistics but the connection pool counts.
+    */
+   void reset();
+}
@@ -0,0 +1,41 @@
+package org.infinispan.client.hotrod;
+
+import java.util.Map;
+
+/**
+ * The view of the {@link ClientStatistics} registered with JMX, when enabled through
+ * {@link org.infinispan.client.hotrod.configuration.StatisticsConfigurationBuilder#jmxEnable()}. Latency maps are
+ * keyed by operation name or by server address.
+ * <p/>
+ * All the durations are in nanoseconds.
+ *
+ * @since 7.0
+ */
+public interface ClientStatisticsMXBean {
+
+   long getRetries();
+
+   long getFailovers();
+
+   Map<String, Long> getOperationCounts();
+
+   Map<String, Double> getAverageOperationLatencies();
+
+   Map<String, Long> getOperationLatency99thPercentiles();
+
+   Map<String, Long> getMaxOperationLatencies();
+
+   Map<String, Long> getServerRequestCounts();
+
+   Map<String, Double> getAverageServerLatencies();
+
+   double getAverageConnectionPoolBorrowWait();
+
+   long getMaxConnectionPoolBorrowWait();
+
+   int getConnectionPoolActive();
+
+   int getConnectionPoolIdle();
+
+   void reset();
+}
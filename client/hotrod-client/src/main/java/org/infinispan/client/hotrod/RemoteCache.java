@@ -7,6 +7,7 @@
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.util.CloseableIterator;
 import org.infinispan.commons.util.concurrent.NotifyingFuture;
 
 /**
@@ -24,10 +25,10 @@
  * is returned instead. E.g. {@link java.util.Map#put(Object, Object)} returns the previous value associated to the
  * supplied key. In case of RemoteCache, this returns null.
  * <p/>
- * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. all
- * the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple individual puts. This means that the
- * these operations are not atomic and that they are costly, e.g. as the number of network round-trips is not one, but
- * the size of the added map. All these synthetic operations are documented as such.
+ * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g.
+ * {@link java.util.Map#putAll(java.util.Map)} is implemented through one put all request per server owning some of
+ * the keys (or, with a protocol version older than 2.0, through multiple individual puts). This means that these
+ * operations are not atomic. All these synthetic operations are documented as such.
  * <p/>
  * <b>changing default behavior through {@link org.infinispan.client.hotrod.Flag}s</b>: it is possible to change the
  * default cache behaviour by using flags on an per invocation basis. E.g.
@@ -256,6 +257,15 @@
     */
    RemoteCacheManager getRemoteCacheManager();
 
+   /**
+    * Retrieves the values of the given keys. The keys are grouped by the server owning them, and each group is read
+    * with a single request, all the requests being sent in parallel. With a protocol version older than 2.0, each key
+    * is read with its own request instead.
+    *
+    * @return the entries of the keys that exist in the cache. The returned Map is unmodifiable.
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
    /**
     * Bulk get operations, returns all the entries within the remote cache.
     *
@@ -271,6 +281,63 @@
     */
    Map<K, V> getBulk(int size);
 
+   /**
+    * Iterates over all the entries of the remote cache, fetching them from the servers in batches of the given size.
+    * Unlike {@link #getBulk()}, neither the servers nor the client ever hold more than a batch at a time, so it's
+    * suitable for scanning caches of any size.
+    * <p/>
+    * The segments of a distributed cache are split by owner, and each owner is iterated in turn through a server side
+    * cursor. Entries written while iterating, or moved between servers, may or may not be returned. The iterator must
+    * be closed if it's not exhausted, to release the cursor. With a protocol version older than 2.0, this falls back to
+    * iterating over {@link #getBulk()}.
+    *
+    * @param batchSize the number of entries fetched by each request
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize);
+
+   /**
+    * Same as {@link #retrieveEntries(int)}, but only iterates over the entries that map to the given segments of a
+    * distributed cache. Scanning a cache with several iterators over disjoint sets of segments allows processing it in
+    * parallel, or resuming a scan from the segments that weren't processed yet.
+    *
+    * @param segments the segments to iterate over, or {@code null} for all of them. Ignored if the cache isn't
+    *                 distributed.
+    * @param batchSize the number of entries fetched by each request
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize);
+
+   /**
+    * Adds a {@link org.infinispan.client.hotrod.annotation.ClientListener} on one of the servers, which then pushes
+    * the events of the whole cache to this client, wherever the entries are owned. Requires protocol version 2.0 or
+    * later.
+    *
+    * @throws IllegalArgumentException if the listener isn't annotated with
+    *                                  {@link org.infinispan.client.hotrod.annotation.ClientListener}, or one of its
+    *                                  annotated methods has an incorrect signature
+    */
+   void addClientListener(Object listener);
+
+   /**
+    * Same as {@link #addClientListener(Object)}, passing parameters to the server side filter and converter factories
+    * named by the listener's {@link org.infinispan.client.hotrod.annotation.ClientListener} annotation. The parameters
+    * are marshalled with the client's marshaller, and handed to the factories as byte arrays.
+    *
+    * @param filterFactoryParams    the parameters of the filter factory, or null
+    * @param converterFactoryParams the parameters of the converter factory, or null
+    */
+   void addClientListener(Object listener, Object[] filterFactoryParams, Object[] converterFactoryParams);
+
+   /**
+    * Removes a listener added with {@link #addClientListener(Object)}. No more events are delivered to it once this
+    * method returns.
+    */
+   void removeClientListener(Object listener);
+
+   /**
+    * Returns the listeners added with {@link #addClientListener(Object)}.
+    */
+   Set<Object> getClientListeners();
+
 
    /**
     * Returns the HotRod protocol version supported by this RemoteCache implementation
@@ -2,6 +2,7 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -10,10 +11,18 @@
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.infinispan.client.hotrod.configuration.CompressionConfiguration;
 import org.infinispan.client.hotrod.configuration.Configuration;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheConfiguration;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
 import org.infinispan.client.hotrod.configuration.ServerConfiguration;
+import org.infinispan.client.hotrod.configuration.StatisticsConfiguration;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.ClientStatisticsImpl;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
@@ -21,6 +30,7 @@
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.protocol.CodecFactory;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 import org.infinispan.commons.api.BasicCacheContainer;
@@ -60,7 +70,7 @@
  * <li><tt>infinispan.client.hotrod.force_return_values</tt>, default = false.  Whether or not to implicitly {@link org.infinispan.client.hotrod.Flag#FORCE_RETURN_VALUE} for all calls.</li>
  * <li><tt>infinispan.client.hotrod.tcp_no_delay</tt>, default = true.  Affects TCP NODELAY on the TCP stack.</li>
  * <li><tt>infinispan.client.hotrod.ping_on_startup</tt>, default = true.  If true, a ping request is sent to a back end server in order to fetch cluster's topology.</li>
- * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use.  Currently only the TcpTransport is supported.</li>
+ * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use. The TcpTransportFactory pools one connection per in-flight request, while org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory pipelines concurrent requests over a few connections per server, and executes the async operations without blocking a thread per request.</li>
  * <li><tt>infinispan.client.hotrod.marshaller</tt>, default = org.infinispan.marshall.jboss.GenericJBossMarshaller.  Allows you to specify a custom {@link org.infinispan.marshall.Marshaller} implementation to serialize and deserialize user objects. For portable serialization payloads, you should configure the marshaller to be {@link org.infinispan.client.hotrod.marshall.ApacheAvroMarshaller}</li>
  * <li><tt>infinispan.client.hotrod.async_executor_factory</tt>, default = org.infinispan.client.hotrod.impl.async.DefaultAsyncExecutorFactory.  Allows you to specify a custom asynchroous executor for async calls.</li>
  * <li><tt>infinispan.client.hotrod.default_executor_factory.pool_size</tt>, default = 10.  If the default executor is used, this configures the number of threads to initialize the executor with.</li>
@@ -72,6 +82,10 @@
  * <li><tt>infinispan.client.hotrod.protocol_version</tt>, default = 1.1 .This property defines the protocol version that this client should use. Other valid values include 1.0.</li>
  * <li><tt>infinispan.client.hotrod.connect_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket connect timeout before giving up connecting to the server.</li>
  * <li><tt>infinispan.client.hotrod.max_retries</tt>, default = 10.  This property defines the maximum number of retries in case of a recoverable error. A valid value should be greater or equals to 0 (zero). Zero mean no retry.</li>
+ * <li><tt>infinispan.client.hotrod.max_pending_requests</tt>, default = 1024.  The maximum number of async operations waiting for their response at the same time, when the transport factory executes them without blocking a thread. Further async invocations block until a pending one completes. Zero or a negative value means unlimited.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.mode</tt>, default = DISABLED.  Set to INVALIDATED for remote caches to keep the entries they read in a near cache, which the servers invalidate by pushing an event whenever an entry is written. Requires protocol version 2.0.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_entries</tt>, default = 1024.  The maximum number of entries held by the near cache of each remote cache.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.eviction</tt>, default = LRU.  Which entry the near cache evicts when full: LRU evicts the least recently read one, LFU the least frequently read one.</li>
  * </ul>
  * <br/>
  * <i>The following properties are related to connection pooling</i>:
@@ -146,6 +160,8 @@ public class RemoteCacheManager implements BasicCacheContainer {
    private Marshaller marshaller;
    private TransportFactory transportFactory;
    private ExecutorService asyncExecutorService;
+   private volatile ClientStatisticsImpl statistics;
+   private ObjectName statisticsObjectName;
 
    /**
     *
@@ -316,6 +332,10 @@ public Properties getProperties() {
       properties.setProperty(ConfigurationProperties.TRANSPORT_FACTORY, configuration.transportFactory().getName());
       properties.setProperty(ConfigurationProperties.VALUE_SIZE_ESTIMATE, Integer.toString(configuration.valueSizeEstimate()));
       properties.setProperty(ConfigurationProperties.MAX_RETRIES, Integer.toString(configuration.maxRetries()));
+      properties.setProperty(ConfigurationProperties.MAX_PENDING_REQUESTS, Integer.toString(configuration.maxPendingRequests()));
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_MODE, configuration.nearCache().mode().name());
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, Integer.toString(configuration.nearCache().maxEntries()));
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_EVICTION, configuration.nearCache().eviction().name());
 
       properties.setProperty("exhaustedAction", Integer.toString(configuration.connectionPool().exhaustedAction().ordinal()));
       properties.setProperty("maxActive", Integer.toString(configuration.connectionPool().maxActive()));
@@ -547,10 +567,21 @@ public void start() {
       SecurityActions.setProperty("sun.nio.ch.bugLevel", "\"\"");
 
       codec = CodecFactory.getCodec(configuration.protocolVersion());
+      if (configuration.compression().enabled()) {
+         if (CodecFactory.supportsCompressedValues(configuration.protocolVersion()))
+            codec = CodecFactory.getCompressedValuesCodec(configuration.protocolVersion());
+         else
+            log.compressionUnsupported(configuration.protocolVersion());
+      }
 
       transportFactory = Util.getInstance(configuration.transportFactory());
+      statistics = new ClientStatisticsImpl(configuration.statistics().enabled());
+      if (statistics.isEnabled() && transportFactory instanceof TcpTransportFactory)
+         ((TcpTransportFactory) transportFactory).setStatistics(statistics);
 
       transportFactory.start(codec, configuration, topologyId);
+      if (configuration.statistics().jmxEnabled())
+         registerStatisticsMBean(configuration.statistics());
       if (marshaller == null) {
          marshaller = configuration.marshaller();
          if (marshaller == null) {
@@ -581,12 +612,53 @@ public void start() {
    @Override
    public void stop() {
       if (isStarted()) {
+         synchronized (cacheName2RemoteCache) {
+            for (RemoteCacheHolder rcc : cacheName2RemoteCache.values()) {
+               // removes the near cache listeners while the connections are still open
+               rcc.remoteCache.stop();
+            }
+         }
          transportFactory.destroy();
          asyncExecutorService.shutdownNow();
+         unregisterStatisticsMBean();
       }
       started = false;
    }
 
+   /**
+    * Returns the statistics collected by this remote cache manager since it was started, which are only recorded if
+    * enabled with {@link org.infinispan.client.hotrod.configuration.StatisticsConfigurationBuilder#enable()}.
+    */
+   public ClientStatistics getClientStatistics() {
+      return statistics;
+   }
+
+   private void registerStatisticsMBean(StatisticsConfiguration statisticsConfiguration) {
+      String name = statisticsConfiguration.jmxDomain() + ":type=RemoteCacheManager,name="
+            + ObjectName.quote(statisticsConfiguration.jmxName()) + ",component=ClientStatistics";
+      try {
+         ObjectName objectName = new ObjectName(name);
+         ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, objectName);
+         statisticsObjectName = objectName;
+      } catch (Exception e) {
+         log.unableToRegisterStatisticsMBean(name, e);
+      }
+   }
+
+   private void unregisterStatisticsMBean() {
+      if (statisticsObjectName == null)
+         return;
+      try {
+         MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+         if (mBeanServer.isRegistered(statisticsObjectName))
+            mBeanServer.unregisterMBean(statisticsObjectName);
+      } catch (Exception e) {
+         log.unableToUnregisterStatisticsMBean(statisticsObjectName.toString(), e);
+      } finally {
+         statisticsObjectName = null;
+      }
+   }
+
    public boolean isStarted() {
       return started;
    }
@@ -637,7 +709,18 @@ private void startRemoteCache(RemoteCacheHolder remoteCacheHolder) {
       RemoteCacheImpl<?, ?> remoteCache = remoteCacheHolder.remoteCache;
       OperationsFactory operationsFactory = new OperationsFactory(
             transportFactory, remoteCache.getName(), topologyId, remoteCacheHolder.forceReturnValue, codec);
-      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate());
+      NearCacheConfiguration nearCache = null;
+      if (configuration.nearCache().mode() != NearCacheMode.DISABLED) {
+         if (operationsFactory.supportsClientListeners())
+            nearCache = configuration.nearCache();
+         else
+            log.nearCacheUnsupported(configuration.protocolVersion());
+      }
+      CompressionConfiguration compression = null;
+      if (configuration.compression().enabled() && CodecFactory.supportsCompressedValues(configuration.protocolVersion()))
+         compression = configuration.compression();
+      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate(),
+            nearCache, compression);
    }
 
    public Marshaller getMarshaller() {
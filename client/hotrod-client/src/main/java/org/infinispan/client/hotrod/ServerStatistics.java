@@ -59,6 +59,27 @@ public interface ServerStatistics {
     */
    String REMOVE_MISSES = "removeMisses";
 
+   /**
+    * Number of values stored by clients that sent them compressed.
+    */
+   String COMPRESSED_STORES = "compressedStores";
+
+   /**
+    * Ratio between the uncompressed size of the values clients sent framed and their size as sent.
+    */
+   String COMPRESSION_RATIO = "compressionRatio";
+
+   /**
+    * Number of values the server decompressed, either to store them or to return them to clients that don't compress
+    * values.
+    */
+   String DECOMPRESSIONS = "decompressions";
+
+   /**
+    * Total time, in nanoseconds, the server spent decompressing values.
+    */
+   String DECOMPRESSION_TIME = "decompressionTime";
+
    Map<String, String> getStatsMap();
 
    String getStatistic(String statsName);
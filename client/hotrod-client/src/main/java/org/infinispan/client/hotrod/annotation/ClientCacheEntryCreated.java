@@ -0,0 +1,20 @@
+package org.infinispan.client.hotrod.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the methods of a {@link ClientListener} to invoke when an entry of the remote cache is created.
+ * <p/>
+ * Methods annotated with this annotation must be public and take a single parameter, a
+ * {@link org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent}, or a
+ * {@link org.infinispan.client.hotrod.event.ClientCacheEntryCustomEvent} if the listener has a converter.
+ *
+ * @since 7.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ClientCacheEntryCreated {
+}
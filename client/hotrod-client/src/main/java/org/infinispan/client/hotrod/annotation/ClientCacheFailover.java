@@ -0,0 +1,21 @@
+package org.infinispan.client.hotrod.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the methods of a {@link ClientListener} to invoke once the listener has been added again on another server,
+ * after the connection its events were pushed on failed. Events may have been missed in between, so this is the
+ * place to resynchronize any state derived from them.
+ * <p/>
+ * Methods annotated with this annotation must be public and take a single parameter, a
+ * {@link org.infinispan.client.hotrod.event.ClientCacheFailoverEvent}.
+ *
+ * @since 7.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ClientCacheFailover {
+}
@@ -0,0 +1,38 @@
+package org.infinispan.client.hotrod.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class as a listener of the events of a remote cache, to be registered with
+ * {@link org.infinispan.client.hotrod.RemoteCache#addClientListener(Object)}. Its public methods annotated with
+ * {@link ClientCacheEntryCreated}, {@link ClientCacheEntryModified}, {@link ClientCacheEntryRemoved} or
+ * {@link ClientCacheFailover} are invoked for the corresponding events.
+ * <p/>
+ * One of the servers adds a clustered listener on the cache on behalf of the client, and pushes the events to the
+ * client, wherever the entries are owned. The events can be filtered, and their payload trimmed, on the server, by
+ * naming a filter factory and a converter factory registered with the servers. With a converter, the listener methods
+ * receive {@link org.infinispan.client.hotrod.event.ClientCacheEntryCustomEvent}s carrying the converted event data
+ * instead of the key.
+ * <p/>
+ * Listener methods are invoked by the thread reading from the connection the events are pushed on, so they should
+ * return quickly.
+ *
+ * @since 7.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ClientListener {
+
+   /**
+    * The name of the server side key/value filter factory, if events should be filtered.
+    */
+   String filterFactoryName() default "";
+
+   /**
+    * The name of the server side converter factory, if events should carry converted event data instead of the key.
+    */
+   String converterFactoryName() default "";
+}
@@ -0,0 +1,6 @@
+/**
+ * Annotations of the listeners of remote cache events.
+ *
+ * @public
+ */
+package org.infinispan.client.hotrod.annotation;
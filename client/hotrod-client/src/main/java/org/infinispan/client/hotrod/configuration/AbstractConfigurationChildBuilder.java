@@ -100,6 +100,21 @@ public ConfigurationBuilder pingOnStartup(boolean pingOnStartup) {
       return builder.pingOnStartup(pingOnStartup);
    }
 
+   @Override
+   public NearCacheConfigurationBuilder nearCache() {
+      return builder.nearCache();
+   }
+
+   @Override
+   public CompressionConfigurationBuilder compression() {
+      return builder.compression();
+   }
+
+   @Override
+   public StatisticsConfigurationBuilder statistics() {
+      return builder.statistics();
+   }
+
    @Override
    public ConfigurationBuilder protocolVersion(String protocolVersion) {
       return builder.protocolVersion(protocolVersion);
@@ -140,6 +155,11 @@ public ConfigurationBuilder maxRetries(int retriesPerServer) {
       return builder.maxRetries(retriesPerServer);
    }
 
+   @Override
+   public ConfigurationBuilder maxPendingRequests(int maxPendingRequests) {
+      return builder.maxPendingRequests(maxPendingRequests);
+   }
+
    @Override
    public ConfigurationBuilder withProperties(Properties properties) {
       return builder.withProperties(properties);
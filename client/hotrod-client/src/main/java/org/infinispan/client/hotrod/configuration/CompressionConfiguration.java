@@ -0,0 +1,35 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * CompressionConfiguration.
+ *
+ * @since 7.0
+ */
+public class CompressionConfiguration {
+   private final boolean enabled;
+   private final int threshold;
+   private final int level;
+
+   CompressionConfiguration(boolean enabled, int threshold, int level) {
+      this.enabled = enabled;
+      this.threshold = threshold;
+      this.level = level;
+   }
+
+   public boolean enabled() {
+      return enabled;
+   }
+
+   public int threshold() {
+      return threshold;
+   }
+
+   public int level() {
+      return level;
+   }
+
+   @Override
+   public String toString() {
+      return "CompressionConfiguration [enabled=" + enabled + ", threshold=" + threshold + ", level=" + level + "]";
+   }
+}
@@ -0,0 +1,101 @@
+package org.infinispan.client.hotrod.configuration;
+
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.TypedProperties;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * CompressionConfigurationBuilder.
+ *
+ * @since 7.0
+ */
+public class CompressionConfigurationBuilder extends AbstractConfigurationChildBuilder implements Builder<CompressionConfiguration> {
+   private static final Log log = LogFactory.getLog(CompressionConfigurationBuilder.class, Log.class);
+   private boolean enabled = false;
+   private int threshold = ConfigurationProperties.DEFAULT_COMPRESSION_THRESHOLD;
+   private int level = Deflater.BEST_SPEED;
+
+   protected CompressionConfigurationBuilder(ConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   /**
+    * Enables compression of the values sent to the servers. Requires protocol version 2.0. Defaults to false
+    */
+   public CompressionConfigurationBuilder enable() {
+      this.enabled = true;
+      return this;
+   }
+
+   /**
+    * Disables compression of the values sent to the servers
+    */
+   public CompressionConfigurationBuilder disable() {
+      this.enabled = false;
+      return this;
+   }
+
+   /**
+    * Enables or disables compression of the values sent to the servers
+    */
+   public CompressionConfigurationBuilder enabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+   }
+
+   /**
+    * Specifies the size in bytes a marshalled value must reach before it's compressed. Defaults to 1024
+    */
+   public CompressionConfigurationBuilder threshold(int threshold) {
+      this.threshold = threshold;
+      return this;
+   }
+
+   /**
+    * Specifies the deflate compression level, from 1 (fastest) to 9 (smallest). Defaults to 1
+    */
+   public CompressionConfigurationBuilder level(int level) {
+      this.level = level;
+      return this;
+   }
+
+   /**
+    * Configures compression from the <tt>infinispan.client.hotrod.compression.*</tt> properties
+    */
+   public CompressionConfigurationBuilder withCompressionProperties(Properties properties) {
+      TypedProperties typed = TypedProperties.toTypedProperties(properties);
+      enabled(typed.getBooleanProperty(ConfigurationProperties.COMPRESSION_ENABLED, enabled));
+      threshold(typed.getIntProperty(ConfigurationProperties.COMPRESSION_THRESHOLD, threshold));
+      level(typed.getIntProperty(ConfigurationProperties.COMPRESSION_LEVEL, level));
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      if (enabled && threshold < 0) {
+         throw log.invalidCompressionThreshold(threshold);
+      }
+      if (enabled && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+         throw log.invalidCompressionLevel(level);
+      }
+   }
+
+   @Override
+   public CompressionConfiguration create() {
+      return new CompressionConfiguration(enabled, threshold, level);
+   }
+
+   @Override
+   public CompressionConfigurationBuilder read(CompressionConfiguration template) {
+      this.enabled = template.enabled();
+      this.threshold = template.threshold();
+      this.level = template.level();
+      return this;
+   }
+
+}
@@ -39,14 +39,23 @@ public class Configuration {
    private final Class<? extends TransportFactory> transportFactory;
    private final int valueSizeEstimate;
    private final int maxRetries;
+   private final int maxPendingRequests;
+   private final NearCacheConfiguration nearCache;
+   private final CompressionConfiguration compression;
+   private final StatisticsConfiguration statistics;
 
    Configuration(ExecutorFactoryConfiguration asyncExecutorFactory, Class<? extends RequestBalancingStrategy> balancingStrategy, ClassLoader classLoader,
          ConnectionPoolConfiguration connectionPool, int connectionTimeout, Class<? extends ConsistentHash>[] consistentHashImpl, boolean forceReturnValues, int keySizeEstimate, Class<? extends Marshaller> marshallerClass,
          boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, SslConfiguration ssl, boolean tcpNoDelay,
-         Class<? extends TransportFactory> transportFactory, int valueSizeEstimate, int maxRetries) {
+         Class<? extends TransportFactory> transportFactory, int valueSizeEstimate, int maxRetries, int maxPendingRequests,
+         NearCacheConfiguration nearCache, CompressionConfiguration compression, StatisticsConfiguration statistics) {
       this.asyncExecutorFactory = asyncExecutorFactory;
       this.balancingStrategy = balancingStrategy;
       this.maxRetries = maxRetries;
+      this.maxPendingRequests = maxPendingRequests;
+      this.nearCache = nearCache;
+      this.compression = compression;
+      this.statistics = statistics;
       this.classLoader = new WeakReference<ClassLoader>(classLoader);
       this.connectionPool = connectionPool;
       this.connectionTimeout = connectionTimeout;
@@ -68,10 +77,15 @@ public class Configuration {
    Configuration(ExecutorFactoryConfiguration asyncExecutorFactory, Class<? extends RequestBalancingStrategy> balancingStrategy, ClassLoader classLoader,
          ConnectionPoolConfiguration connectionPool, int connectionTimeout, Class<? extends ConsistentHash>[] consistentHashImpl, boolean forceReturnValues, int keySizeEstimate, Marshaller marshaller,
          boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, SslConfiguration ssl, boolean tcpNoDelay,
-         Class<? extends TransportFactory> transportFactory, int valueSizeEstimate, int maxRetries) {
+         Class<? extends TransportFactory> transportFactory, int valueSizeEstimate, int maxRetries, int maxPendingRequests,
+         NearCacheConfiguration nearCache, CompressionConfiguration compression, StatisticsConfiguration statistics) {
       this.asyncExecutorFactory = asyncExecutorFactory;
       this.balancingStrategy = balancingStrategy;
       this.maxRetries = maxRetries;
+      this.maxPendingRequests = maxPendingRequests;
+      this.nearCache = nearCache;
+      this.compression = compression;
+      this.statistics = statistics;
       this.classLoader = new WeakReference<ClassLoader>(classLoader);
       this.connectionPool = connectionPool;
       this.connectionTimeout = connectionTimeout;
@@ -170,12 +184,30 @@ public int maxRetries() {
       return maxRetries;
    }
 
+   public int maxPendingRequests() {
+      return maxPendingRequests;
+   }
+
+   public NearCacheConfiguration nearCache() {
+      return nearCache;
+   }
+
+   public CompressionConfiguration compression() {
+      return compression;
+   }
+
+   public StatisticsConfiguration statistics() {
+      return statistics;
+   }
+
    @Override
    public String toString() {
       return "Configuration [asyncExecutorFactory=" + asyncExecutorFactory + ", balancingStrategy=" + balancingStrategy + ", classLoader=" + classLoader + ", connectionPool="
             + connectionPool + ", connectionTimeout=" + connectionTimeout + ", consistentHashImpl=" + Arrays.toString(consistentHashImpl) + ", forceReturnValues="
             + forceReturnValues + ", keySizeEstimate=" + keySizeEstimate + ", marshallerClass=" + marshallerClass + ", marshaller=" + marshaller + ", pingOnStartup="
             + pingOnStartup + ", protocolVersion=" + protocolVersion + ", servers=" + servers + ", socketTimeout=" + socketTimeout + ", ssl=" + ssl + ", tcpNoDelay=" + tcpNoDelay
-            + ", transportFactory=" + transportFactory + ", valueSizeEstimate=" + valueSizeEstimate + ", maxRetries=" + maxRetries + "]";
+            + ", transportFactory=" + transportFactory + ", valueSizeEstimate=" + valueSizeEstimate + ", maxRetries=" + maxRetries
+            + ", maxPendingRequests=" + maxPendingRequests + ", nearCache=" + nearCache + ", compression=" + compression
+            + ", statistics=" + statistics + "]";
    }
 }
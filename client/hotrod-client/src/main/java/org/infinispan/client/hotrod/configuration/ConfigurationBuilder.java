@@ -43,6 +43,7 @@ public class ConfigurationBuilder implements ConfigurationChildBuilder, Builder<
    private WeakReference<ClassLoader> classLoader;
    private final ExecutorFactoryConfigurationBuilder asyncExecutorFactory;
    private Class<? extends RequestBalancingStrategy> balancingStrategy = RoundRobinBalancingStrategy.class;
+   private final CompressionConfigurationBuilder compression;
    private final ConnectionPoolConfigurationBuilder connectionPool;
    private int connectionTimeout = ConfigurationProperties.DEFAULT_CONNECT_TIMEOUT;
    @SuppressWarnings("unchecked")
@@ -53,15 +54,18 @@ public class ConfigurationBuilder implements ConfigurationChildBuilder, Builder<
    private int keySizeEstimate = ConfigurationProperties.DEFAULT_KEY_SIZE;
    private Class<? extends Marshaller> marshallerClass = GenericJBossMarshaller.class;
    private Marshaller marshaller;
+   private final NearCacheConfigurationBuilder nearCache;
    private boolean pingOnStartup = true;
    private String protocolVersion = ConfigurationProperties.DEFAULT_PROTOCOL_VERSION;
    private List<ServerConfigurationBuilder> servers = new ArrayList<ServerConfigurationBuilder>();
    private int socketTimeout = ConfigurationProperties.DEFAULT_SO_TIMEOUT;
    private final SslConfigurationBuilder ssl;
+   private final StatisticsConfigurationBuilder statistics;
    private boolean tcpNoDelay = true;
    private Class<? extends TransportFactory> transportFactory = TcpTransportFactory.class;
    private int valueSizeEstimate = ConfigurationProperties.DEFAULT_VALUE_SIZE;
    private int maxRetries = ConfigurationProperties.DEFAULT_MAX_RETRIES;
+   private int maxPendingRequests = ConfigurationProperties.DEFAULT_MAX_PENDING_REQUESTS;
 
 
    public ConfigurationBuilder() {
@@ -69,6 +73,9 @@ public ConfigurationBuilder() {
       this.connectionPool = new ConnectionPoolConfigurationBuilder(this);
       this.asyncExecutorFactory = new ExecutorFactoryConfigurationBuilder(this);
       this.ssl = new SslConfigurationBuilder(this);
+      this.nearCache = new NearCacheConfigurationBuilder(this);
+      this.compression = new CompressionConfigurationBuilder(this);
+      this.statistics = new StatisticsConfigurationBuilder(this);
    }
 
    @Override
@@ -179,6 +186,21 @@ public ConfigurationBuilder marshaller(Marshaller marshaller) {
       return this;
    }
 
+   @Override
+   public NearCacheConfigurationBuilder nearCache() {
+      return nearCache;
+   }
+
+   @Override
+   public CompressionConfigurationBuilder compression() {
+      return compression;
+   }
+
+   @Override
+   public StatisticsConfigurationBuilder statistics() {
+      return statistics;
+   }
+
    @Override
    public ConfigurationBuilder pingOnStartup(boolean pingOnStartup) {
       this.pingOnStartup = pingOnStartup;
@@ -232,6 +254,12 @@ public ConfigurationBuilder maxRetries(int maxRetries) {
       return this;
    }
 
+   @Override
+   public ConfigurationBuilder maxPendingRequests(int maxPendingRequests) {
+      this.maxPendingRequests = maxPendingRequests;
+      return this;
+   }
+
    @Override
    public ConfigurationBuilder withProperties(Properties properties) {
       TypedProperties typed = TypedProperties.toTypedProperties(properties);
@@ -251,6 +279,9 @@ public ConfigurationBuilder withProperties(Properties properties) {
       if (typed.containsKey(ConfigurationProperties.MARSHALLER)) {
          this.marshaller(typed.getProperty(ConfigurationProperties.MARSHALLER));
       }
+      this.nearCache.withNearCacheProperties(typed);
+      this.compression.withCompressionProperties(typed);
+      this.statistics.withStatisticsProperties(typed);
       this.pingOnStartup(typed.getBooleanProperty(ConfigurationProperties.PING_ON_STARTUP, pingOnStartup));
       this.protocolVersion(typed.getProperty(ConfigurationProperties.PROTOCOL_VERSION, protocolVersion));
       this.servers.clear();
@@ -262,6 +293,7 @@ public ConfigurationBuilder withProperties(Properties properties) {
       }
       this.valueSizeEstimate(typed.getIntProperty(ConfigurationProperties.VALUE_SIZE_ESTIMATE, valueSizeEstimate));
       this.maxRetries(typed.getIntProperty(ConfigurationProperties.MAX_RETRIES, maxRetries));
+      this.maxPendingRequests(typed.getIntProperty(ConfigurationProperties.MAX_PENDING_REQUESTS, maxPendingRequests));
       return this;
    }
 
@@ -270,6 +302,9 @@ public void validate() {
       connectionPool.validate();
       asyncExecutorFactory.validate();
       ssl.validate();
+      nearCache.validate();
+      compression.validate();
+      statistics.validate();
       if (maxRetries < 0) {
          throw log.invalidMaxRetries(maxRetries);
       }
@@ -288,11 +323,13 @@ public Configuration create() {
       if (marshaller == null) {
          return new Configuration(asyncExecutorFactory.create(), balancingStrategy, classLoader == null ? null : classLoader.get(), connectionPool.create(), connectionTimeout,
                consistentHashImpl, forceReturnValues, keySizeEstimate, marshallerClass, pingOnStartup, protocolVersion, servers, socketTimeout, ssl.create(), tcpNoDelay, transportFactory,
-               valueSizeEstimate, maxRetries);
+               valueSizeEstimate, maxRetries, maxPendingRequests, nearCache.create(), compression.create(),
+               statistics.create());
       } else {
          return new Configuration(asyncExecutorFactory.create(), balancingStrategy, classLoader == null ? null : classLoader.get(), connectionPool.create(), connectionTimeout,
                consistentHashImpl, forceReturnValues, keySizeEstimate, marshaller, pingOnStartup, protocolVersion, servers, socketTimeout, ssl.create(), tcpNoDelay, transportFactory,
-               valueSizeEstimate, maxRetries);
+               valueSizeEstimate, maxRetries, maxPendingRequests, nearCache.create(), compression.create(),
+               statistics.create());
       }
    }
 
@@ -322,6 +359,9 @@ public ConfigurationBuilder read(Configuration template) {
       this.keySizeEstimate = template.keySizeEstimate();
       this.marshaller = template.marshaller();
       this.marshallerClass = template.marshallerClass();
+      this.nearCache.read(template.nearCache());
+      this.compression.read(template.compression());
+      this.statistics.read(template.statistics());
       this.pingOnStartup = template.pingOnStartup();
       this.protocolVersion = template.protocolVersion();
       this.servers.clear();
@@ -334,6 +374,7 @@ public ConfigurationBuilder read(Configuration template) {
       this.transportFactory = template.transportFactory();
       this.valueSizeEstimate = template.valueSizeEstimate();
       this.maxRetries = template.maxRetries();
+      this.maxPendingRequests = template.maxPendingRequests();
       return this;
    }
 }
@@ -107,6 +107,21 @@ public interface ConfigurationChildBuilder {
     */
    ConfigurationBuilder pingOnStartup(boolean pingOnStartup);
 
+   /**
+    * Near cache configuration
+    */
+   NearCacheConfigurationBuilder nearCache();
+
+   /**
+    * Value compression configuration
+    */
+   CompressionConfigurationBuilder compression();
+
+   /**
+    * Client side statistics configuration
+    */
+   StatisticsConfigurationBuilder statistics();
+
    /**
     * This property defines the protocol version that this client should use. Defaults to 1.1. Other
     * valid values include 1.0.
@@ -151,6 +166,15 @@ public interface ConfigurationChildBuilder {
     */
    ConfigurationBuilder maxRetries(int maxRetries);
 
+   /**
+    * Sets the maximum number of asynchronous requests that can wait for their response at the same time, when the
+    * transport factory executes them without blocking a thread, as
+    * {@link org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory} does. Further asynchronous
+    * invocations block the caller until a pending request completes. Zero or a negative value means unlimited. It
+    * defaults to 1024.
+    */
+   ConfigurationBuilder maxPendingRequests(int maxPendingRequests);
+
    /**
     * Configures this builder using the specified properties
     */
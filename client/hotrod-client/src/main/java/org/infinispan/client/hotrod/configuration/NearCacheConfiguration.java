@@ -0,0 +1,35 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * NearCacheConfiguration.
+ *
+ * @since 7.0
+ */
+public class NearCacheConfiguration {
+   private final NearCacheMode mode;
+   private final int maxEntries;
+   private final NearCacheEviction eviction;
+
+   NearCacheConfiguration(NearCacheMode mode, int maxEntries, NearCacheEviction eviction) {
+      this.mode = mode;
+      this.maxEntries = maxEntries;
+      this.eviction = eviction;
+   }
+
+   public NearCacheMode mode() {
+      return mode;
+   }
+
+   public int maxEntries() {
+      return maxEntries;
+   }
+
+   public NearCacheEviction eviction() {
+      return eviction;
+   }
+
+   @Override
+   public String toString() {
+      return "NearCacheConfiguration [mode=" + mode + ", maxEntries=" + maxEntries + ", eviction=" + eviction + "]";
+   }
+}
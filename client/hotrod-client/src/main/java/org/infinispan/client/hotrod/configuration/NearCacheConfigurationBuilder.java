@@ -0,0 +1,82 @@
+package org.infinispan.client.hotrod.configuration;
+
+import java.util.Properties;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.TypedProperties;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * NearCacheConfigurationBuilder.
+ *
+ * @since 7.0
+ */
+public class NearCacheConfigurationBuilder extends AbstractConfigurationChildBuilder implements Builder<NearCacheConfiguration> {
+   private static final Log log = LogFactory.getLog(NearCacheConfigurationBuilder.class, Log.class);
+   private NearCacheMode mode = NearCacheMode.DISABLED;
+   private int maxEntries = ConfigurationProperties.DEFAULT_NEAR_CACHE_MAX_ENTRIES;
+   private NearCacheEviction eviction = NearCacheEviction.LRU;
+
+   protected NearCacheConfigurationBuilder(ConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   /**
+    * Specifies whether remote caches keep a near cache of the entries they read. Defaults to
+    * {@link NearCacheMode#DISABLED}
+    */
+   public NearCacheConfigurationBuilder mode(NearCacheMode mode) {
+      this.mode = mode;
+      return this;
+   }
+
+   /**
+    * Specifies the maximum number of entries the near cache of each remote cache holds. Defaults to 1024
+    */
+   public NearCacheConfigurationBuilder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+   }
+
+   /**
+    * Specifies which entry is evicted when the near cache is full. Defaults to {@link NearCacheEviction#LRU}
+    */
+   public NearCacheConfigurationBuilder eviction(NearCacheEviction eviction) {
+      this.eviction = eviction;
+      return this;
+   }
+
+   /**
+    * Configures the near cache from the <tt>infinispan.client.hotrod.near_cache.*</tt> properties
+    */
+   public NearCacheConfigurationBuilder withNearCacheProperties(Properties properties) {
+      TypedProperties typed = TypedProperties.toTypedProperties(properties);
+      mode(NearCacheMode.valueOf(typed.getProperty(ConfigurationProperties.NEAR_CACHE_MODE, mode.name()).toUpperCase()));
+      maxEntries(typed.getIntProperty(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, maxEntries));
+      eviction(NearCacheEviction.valueOf(typed.getProperty(ConfigurationProperties.NEAR_CACHE_EVICTION, eviction.name()).toUpperCase()));
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      if (mode != NearCacheMode.DISABLED && maxEntries <= 0) {
+         throw log.invalidNearCacheMaxEntries(maxEntries);
+      }
+   }
+
+   @Override
+   public NearCacheConfiguration create() {
+      return new NearCacheConfiguration(mode, maxEntries, eviction);
+   }
+
+   @Override
+   public NearCacheConfigurationBuilder read(NearCacheConfiguration template) {
+      this.mode = template.mode();
+      this.maxEntries = template.maxEntries();
+      this.eviction = template.eviction();
+      return this;
+   }
+
+}
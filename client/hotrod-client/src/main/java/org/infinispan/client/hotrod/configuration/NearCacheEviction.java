@@ -0,0 +1,17 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * How the near cache picks the entry to evict when it holds {@link NearCacheConfiguration#maxEntries()} entries.
+ *
+ * @since 7.0
+ */
+public enum NearCacheEviction {
+   /**
+    * Evicts the least recently read entry.
+    */
+   LRU,
+   /**
+    * Evicts the least frequently read entry, the least recently cached one among equals.
+    */
+   LFU
+}
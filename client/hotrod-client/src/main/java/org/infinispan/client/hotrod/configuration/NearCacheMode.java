@@ -0,0 +1,18 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * Whether remote caches keep a near cache of the entries they read.
+ *
+ * @since 7.0
+ */
+public enum NearCacheMode {
+   /**
+    * Every read goes to the server.
+    */
+   DISABLED,
+   /**
+    * Entries read are kept in a bounded near cache, which the servers keep up to date by pushing an invalidation
+    * event whenever an entry is written.
+    */
+   INVALIDATED
+}
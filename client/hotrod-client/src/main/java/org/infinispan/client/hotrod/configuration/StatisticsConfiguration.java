@@ -0,0 +1,42 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * StatisticsConfiguration.
+ *
+ * @since 7.0
+ */
+public class StatisticsConfiguration {
+   private final boolean enabled;
+   private final boolean jmxEnabled;
+   private final String jmxDomain;
+   private final String jmxName;
+
+   StatisticsConfiguration(boolean enabled, boolean jmxEnabled, String jmxDomain, String jmxName) {
+      this.enabled = enabled;
+      this.jmxEnabled = jmxEnabled;
+      this.jmxDomain = jmxDomain;
+      this.jmxName = jmxName;
+   }
+
+   public boolean enabled() {
+      return enabled;
+   }
+
+   public boolean jmxEnabled() {
+      return jmxEnabled;
+   }
+
+   public String jmxDomain() {
+      return jmxDomain;
+   }
+
+   public String jmxName() {
+      return jmxName;
+   }
+
+   @Override
+   public String toString() {
+      return "StatisticsConfiguration [enabled=" + enabled + ", jmxEnabled=" + jmxEnabled + ", jmxDomain=" + jmxDomain
+            + ", jmxName=" + jmxName + "]";
+   }
+}
@@ -0,0 +1,114 @@
+package org.infinispan.client.hotrod.configuration;
+
+import java.util.Properties;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.TypedProperties;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * StatisticsConfigurationBuilder.
+ *
+ * @since 7.0
+ */
+public class StatisticsConfigurationBuilder extends AbstractConfigurationChildBuilder implements Builder<StatisticsConfiguration> {
+   private boolean enabled = false;
+   private boolean jmxEnabled = false;
+   private String jmxDomain = ConfigurationProperties.DEFAULT_STATISTICS_JMX_DOMAIN;
+   private String jmxName = ConfigurationProperties.DEFAULT_STATISTICS_JMX_NAME;
+
+   protected StatisticsConfigurationBuilder(ConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   /**
+    * Enables the collection of client side statistics. Defaults to false
+    */
+   public StatisticsConfigurationBuilder enable() {
+      this.enabled = true;
+      return this;
+   }
+
+   /**
+    * Disables the collection of client side statistics
+    */
+   public StatisticsConfigurationBuilder disable() {
+      this.enabled = false;
+      return this;
+   }
+
+   /**
+    * Enables or disables the collection of client side statistics
+    */
+   public StatisticsConfigurationBuilder enabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+   }
+
+   /**
+    * Exposes the statistics as an MBean registered with the platform MBean server. Implies {@link #enable()}.
+    * Defaults to false
+    */
+   public StatisticsConfigurationBuilder jmxEnable() {
+      this.enabled = true;
+      this.jmxEnabled = true;
+      return this;
+   }
+
+   /**
+    * Enables or disables the registration of the statistics MBean
+    */
+   public StatisticsConfigurationBuilder jmxEnabled(boolean jmxEnabled) {
+      this.jmxEnabled = jmxEnabled;
+      return this;
+   }
+
+   /**
+    * Specifies the JMX domain the statistics MBean is registered in. Defaults to org.infinispan
+    */
+   public StatisticsConfigurationBuilder jmxDomain(String jmxDomain) {
+      this.jmxDomain = jmxDomain;
+      return this;
+   }
+
+   /**
+    * Specifies the name identifying this remote cache manager in the name of the statistics MBean, which has to be
+    * unique within the JVM. Defaults to Default
+    */
+   public StatisticsConfigurationBuilder jmxName(String jmxName) {
+      this.jmxName = jmxName;
+      return this;
+   }
+
+   /**
+    * Configures statistics from the <tt>infinispan.client.hotrod.statistics*</tt> properties
+    */
+   public StatisticsConfigurationBuilder withStatisticsProperties(Properties properties) {
+      TypedProperties typed = TypedProperties.toTypedProperties(properties);
+      enabled(typed.getBooleanProperty(ConfigurationProperties.STATISTICS, enabled));
+      jmxEnabled(typed.getBooleanProperty(ConfigurationProperties.STATISTICS_JMX, jmxEnabled));
+      jmxDomain(typed.getProperty(ConfigurationProperties.STATISTICS_JMX_DOMAIN, jmxDomain));
+      jmxName(typed.getProperty(ConfigurationProperties.STATISTICS_JMX_NAME, jmxName));
+      return this;
+   }
+
+   @Override
+   public void validate() {
+   }
+
+   @Override
+   public StatisticsConfiguration create() {
+      // Nothing to expose through JMX unless statistics are collected
+      return new StatisticsConfiguration(enabled, enabled && jmxEnabled, jmxDomain, jmxName);
+   }
+
+   @Override
+   public StatisticsConfigurationBuilder read(StatisticsConfiguration template) {
+      this.enabled = template.enabled();
+      this.jmxEnabled = template.jmxEnabled();
+      this.jmxDomain = template.jmxDomain();
+      this.jmxName = template.jmxName();
+      return this;
+   }
+
+}
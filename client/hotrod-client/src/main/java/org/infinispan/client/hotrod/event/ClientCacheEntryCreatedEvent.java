@@ -0,0 +1,11 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * An entry of the remote cache has been created. Its type is {@link Type#CLIENT_CACHE_ENTRY_CREATED}.
+ *
+ * @since 7.0
+ */
+public interface ClientCacheEntryCreatedEvent<K> extends ClientEvent {
+
+   K getKey();
+}
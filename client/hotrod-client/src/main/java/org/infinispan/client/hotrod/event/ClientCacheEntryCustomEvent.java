@@ -0,0 +1,15 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * An entry of the remote cache has been created, modified or removed, as told by its type, and the server side
+ * converter of the listener turned the event into custom event data.
+ *
+ * @since 7.0
+ */
+public interface ClientCacheEntryCustomEvent<T> extends ClientEvent {
+
+   /**
+    * The converted event data, unmarshalled by the client's marshaller.
+    */
+   T getEventData();
+}
@@ -0,0 +1,11 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * An entry of the remote cache has been modified. Its type is {@link Type#CLIENT_CACHE_ENTRY_MODIFIED}.
+ *
+ * @since 7.0
+ */
+public interface ClientCacheEntryModifiedEvent<K> extends ClientEvent {
+
+   K getKey();
+}
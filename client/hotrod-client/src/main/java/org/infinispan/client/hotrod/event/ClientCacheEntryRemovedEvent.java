@@ -0,0 +1,11 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * An entry of the remote cache has been removed. Its type is {@link Type#CLIENT_CACHE_ENTRY_REMOVED}.
+ *
+ * @since 7.0
+ */
+public interface ClientCacheEntryRemovedEvent<K> extends ClientEvent {
+
+   K getKey();
+}
@@ -0,0 +1,10 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * A listener has been added again on another server, after the connection its events were pushed on failed. Its type
+ * is {@link Type#CLIENT_CACHE_FAILOVER}.
+ *
+ * @since 7.0
+ */
+public interface ClientCacheFailoverEvent extends ClientEvent {
+}
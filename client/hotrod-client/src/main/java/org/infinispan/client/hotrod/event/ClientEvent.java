@@ -0,0 +1,18 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * An event of a remote cache, delivered to a {@link org.infinispan.client.hotrod.annotation.ClientListener}.
+ *
+ * @since 7.0
+ */
+public interface ClientEvent {
+
+   enum Type {
+      CLIENT_CACHE_ENTRY_CREATED,
+      CLIENT_CACHE_ENTRY_MODIFIED,
+      CLIENT_CACHE_ENTRY_REMOVED,
+      CLIENT_CACHE_FAILOVER
+   }
+
+   Type getType();
+}
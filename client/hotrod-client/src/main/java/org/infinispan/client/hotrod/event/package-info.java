@@ -0,0 +1,6 @@
+/**
+ * Events of remote caches, delivered to client listeners.
+ *
+ * @public
+ */
+package org.infinispan.client.hotrod.event;
@@ -0,0 +1,212 @@
+package org.infinispan.client.hotrod.impl;
+
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.infinispan.client.hotrod.ClientStatistics;
+import org.infinispan.client.hotrod.ClientStatisticsMXBean;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransport;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.Histogram;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+
+/**
+ * Collects the {@link ClientStatistics} of a remote cache manager. Recording is lock free, histograms are created the
+ * first time an operation type or a server is recorded.
+ *
+ * @since 7.0
+ */
+public class ClientStatisticsImpl implements ClientStatistics, ClientStatisticsMXBean {
+
+   private static final String OPERATION_SUFFIX = "Operation";
+
+   private final boolean enabled;
+   // keyed by class rather than by name, so that recording doesn't need to compute the name
+   private final ConcurrentMap<Class<?>, Histogram> operationLatencies = CollectionFactory.makeConcurrentMap();
+   private final ConcurrentMap<SocketAddress, Histogram> serverLatencies = CollectionFactory.makeConcurrentMap();
+   private final AtomicLong retries = new AtomicLong();
+   private final AtomicLong failovers = new AtomicLong();
+   private final Histogram borrowWait = new Histogram();
+   private volatile TcpTransportFactory transportFactory;
+
+   public ClientStatisticsImpl(boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   /**
+    * Sets the transport factory whose connection pool is reported on.
+    */
+   public void setTransportFactory(TcpTransportFactory transportFactory) {
+      this.transportFactory = transportFactory;
+   }
+
+   public void recordOperationLatency(Class<?> operationClass, long nanos) {
+      histogram(operationLatencies, operationClass).record(nanos);
+   }
+
+   public void recordServerLatency(SocketAddress server, long nanos) {
+      if (server != null)
+         histogram(serverLatencies, server).record(nanos);
+   }
+
+   public void recordRetry() {
+      retries.incrementAndGet();
+   }
+
+   public void recordFailover() {
+      retries.incrementAndGet();
+      failovers.incrementAndGet();
+   }
+
+   public void recordBorrowWait(long nanos) {
+      borrowWait.record(nanos);
+   }
+
+   @Override
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   @Override
+   public Map<String, Histogram> getOperationLatencies() {
+      Map<String, Histogram> latencies = new HashMap<String, Histogram>();
+      for (Map.Entry<Class<?>, Histogram> e : operationLatencies.entrySet())
+         latencies.put(operationName(e.getKey()), e.getValue());
+      return latencies;
+   }
+
+   @Override
+   public Map<SocketAddress, Histogram> getServerLatencies() {
+      return new HashMap<SocketAddress, Histogram>(serverLatencies);
+   }
+
+   @Override
+   public long getRetries() {
+      return retries.get();
+   }
+
+   @Override
+   public long getFailovers() {
+      return failovers.get();
+   }
+
+   @Override
+   public Histogram getConnectionPoolBorrowWait() {
+      return borrowWait;
+   }
+
+   @Override
+   public int getConnectionPoolActive() {
+      GenericKeyedObjectPool<SocketAddress, TcpTransport> pool = connectionPool();
+      return pool == null ? 0 : pool.getNumActive();
+   }
+
+   @Override
+   public int getConnectionPoolIdle() {
+      GenericKeyedObjectPool<SocketAddress, TcpTransport> pool = connectionPool();
+      return pool == null ? 0 : pool.getNumIdle();
+   }
+
+   @Override
+   public Map<String, Long> getOperationCounts() {
+      Map<String, Long> counts = new HashMap<String, Long>();
+      for (Map.Entry<String, Histogram> e : getOperationLatencies().entrySet())
+         counts.put(e.getKey(), e.getValue().getCount());
+      return counts;
+   }
+
+   @Override
+   public Map<String, Double> getAverageOperationLatencies() {
+      Map<String, Double> averages = new HashMap<String, Double>();
+      for (Map.Entry<String, Histogram> e : getOperationLatencies().entrySet())
+         averages.put(e.getKey(), e.getValue().getMean());
+      return averages;
+   }
+
+   @Override
+   public Map<String, Long> getOperationLatency99thPercentiles() {
+      Map<String, Long> percentiles = new HashMap<String, Long>();
+      for (Map.Entry<String, Histogram> e : getOperationLatencies().entrySet())
+         percentiles.put(e.getKey(), e.getValue().getPercentile(99));
+      return percentiles;
+   }
+
+   @Override
+   public Map<String, Long> getMaxOperationLatencies() {
+      Map<String, Long> maxima = new HashMap<String, Long>();
+      for (Map.Entry<String, Histogram> e : getOperationLatencies().entrySet())
+         maxima.put(e.getKey(), e.getValue().getMax());
+      return maxima;
+   }
+
+   @Override
+   public Map<String, Long> getServerRequestCounts() {
+      Map<String, Long> counts = new HashMap<String, Long>();
+      for (Map.Entry<SocketAddress, Histogram> e : serverLatencies.entrySet())
+         counts.put(e.getKey().toString(), e.getValue().getCount());
+      return counts;
+   }
+
+   @Override
+   public Map<String, Double> getAverageServerLatencies() {
+      Map<String, Double> averages = new HashMap<String, Double>();
+      for (Map.Entry<SocketAddress, Histogram> e : serverLatencies.entrySet())
+         averages.put(e.getKey().toString(), e.getValue().getMean());
+      return averages;
+   }
+
+   @Override
+   public double getAverageConnectionPoolBorrowWait() {
+      return borrowWait.getMean();
+   }
+
+   @Override
+   public long getMaxConnectionPoolBorrowWait() {
+      return borrowWait.getMax();
+   }
+
+   @Override
+   public void reset() {
+      operationLatencies.clear();
+      serverLatencies.clear();
+      retries.set(0);
+      failovers.set(0);
+      borrowWait.reset();
+   }
+
+   private GenericKeyedObjectPool<SocketAddress, TcpTransport> connectionPool() {
+      TcpTransportFactory factory = transportFactory;
+      return factory == null ? null : factory.getConnectionPool();
+   }
+
+   private static <K> Histogram histogram(ConcurrentMap<K, Histogram> histograms, K key) {
+      Histogram histogram = histograms.get(key);
+      if (histogram == null) {
+         Histogram newHistogram = new Histogram();
+         histogram = histograms.putIfAbsent(key, newHistogram);
+         if (histogram == null)
+            histogram = newHistogram;
+      }
+      return histogram;
+   }
+
+   private static String operationName(Class<?> operationClass) {
+      String name = operationClass.getSimpleName();
+      return name.endsWith(OPERATION_SUFFIX) ? name.substring(0, name.length() - OPERATION_SUFFIX.length()) : name;
+   }
+
+   @Override
+   public String toString() {
+      return "ClientStatistics{" +
+            "operationLatencies=" + getOperationLatencies() +
+            ", serverLatencies=" + serverLatencies +
+            ", retries=" + retries +
+            ", failovers=" + failovers +
+            ", borrowWait=" + borrowWait +
+            '}';
+   }
+}
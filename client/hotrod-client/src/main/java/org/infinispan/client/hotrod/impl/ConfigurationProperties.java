@@ -6,6 +6,7 @@
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.Deflater;
 
 import org.infinispan.client.hotrod.impl.async.DefaultAsyncExecutorFactory;
 import org.infinispan.client.hotrod.impl.transport.tcp.RoundRobinBalancingStrategy;
@@ -41,6 +42,17 @@ public class ConfigurationProperties {
    public static final String TRUST_STORE_FILE_NAME = "infinispan.client.hotrod.trust_store_file_name";
    public static final String TRUST_STORE_PASSWORD = "infinispan.client.hotrod.trust_store_password";
    public static final String MAX_RETRIES = "infinispan.client.hotrod.max_retries";
+   public static final String MAX_PENDING_REQUESTS = "infinispan.client.hotrod.max_pending_requests";
+   public static final String NEAR_CACHE_MODE = "infinispan.client.hotrod.near_cache.mode";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_EVICTION = "infinispan.client.hotrod.near_cache.eviction";
+   public static final String COMPRESSION_ENABLED = "infinispan.client.hotrod.compression.enabled";
+   public static final String COMPRESSION_THRESHOLD = "infinispan.client.hotrod.compression.threshold";
+   public static final String COMPRESSION_LEVEL = "infinispan.client.hotrod.compression.level";
+   public static final String STATISTICS = "infinispan.client.hotrod.statistics";
+   public static final String STATISTICS_JMX = "infinispan.client.hotrod.statistics.jmx";
+   public static final String STATISTICS_JMX_DOMAIN = "infinispan.client.hotrod.statistics.jmx_domain";
+   public static final String STATISTICS_JMX_NAME = "infinispan.client.hotrod.statistics.jmx_name";
 
    // defaults
 
@@ -50,6 +62,11 @@ public class ConfigurationProperties {
    public static final int DEFAULT_SO_TIMEOUT = 60000;
    public static final int DEFAULT_CONNECT_TIMEOUT = 60000;
    public static final int DEFAULT_MAX_RETRIES = 10;
+   public static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+   public static final int DEFAULT_NEAR_CACHE_MAX_ENTRIES = 1024;
+   public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+   public static final String DEFAULT_STATISTICS_JMX_DOMAIN = "org.infinispan";
+   public static final String DEFAULT_STATISTICS_JMX_NAME = "Default";
    public static final String PROTOCOL_VERSION_20 = "2.0";
    public static final String PROTOCOL_VERSION_13 = "1.3";
    public static final String PROTOCOL_VERSION_12 = "1.2";
@@ -173,4 +190,48 @@ public int getMaxRetries() {
       return props.getIntProperty(MAX_RETRIES, DEFAULT_MAX_RETRIES);
    }
 
+   public int getMaxPendingRequests() {
+      return props.getIntProperty(MAX_PENDING_REQUESTS, DEFAULT_MAX_PENDING_REQUESTS);
+   }
+
+   public String getNearCacheMode() {
+      return props.getProperty(NEAR_CACHE_MODE, "DISABLED");
+   }
+
+   public int getNearCacheMaxEntries() {
+      return props.getIntProperty(NEAR_CACHE_MAX_ENTRIES, DEFAULT_NEAR_CACHE_MAX_ENTRIES);
+   }
+
+   public String getNearCacheEviction() {
+      return props.getProperty(NEAR_CACHE_EVICTION, "LRU");
+   }
+
+   public boolean getCompressionEnabled() {
+      return props.getBooleanProperty(COMPRESSION_ENABLED, false);
+   }
+
+   public int getCompressionThreshold() {
+      return props.getIntProperty(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD);
+   }
+
+   public int getCompressionLevel() {
+      return props.getIntProperty(COMPRESSION_LEVEL, Deflater.BEST_SPEED);
+   }
+
+   public boolean getStatistics() {
+      return props.getBooleanProperty(STATISTICS, false);
+   }
+
+   public boolean getStatisticsJmx() {
+      return props.getBooleanProperty(STATISTICS_JMX, false);
+   }
+
+   public String getStatisticsJmxDomain() {
+      return props.getProperty(STATISTICS_JMX_DOMAIN, DEFAULT_STATISTICS_JMX_DOMAIN);
+   }
+
+   public String getStatisticsJmxName() {
+      return props.getProperty(STATISTICS_JMX_NAME, DEFAULT_STATISTICS_JMX_NAME);
+   }
+
 }
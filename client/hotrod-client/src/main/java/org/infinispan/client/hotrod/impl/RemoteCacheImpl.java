@@ -3,15 +3,20 @@
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.MetadataValue;
@@ -21,11 +26,19 @@
 import org.infinispan.client.hotrod.Version;
 import org.infinispan.client.hotrod.VersionedValue;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.configuration.CompressionConfiguration;
+import org.infinispan.client.hotrod.configuration.NearCacheConfiguration;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
+import org.infinispan.client.hotrod.impl.async.OperationFuture;
+import org.infinispan.client.hotrod.impl.event.ClientListenerNotifier;
+import org.infinispan.client.hotrod.impl.near.InvalidatedNearCache;
 import org.infinispan.client.hotrod.impl.operations.*;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.io.CompressedValues;
 import org.infinispan.commons.marshall.Marshaller;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.commons.util.concurrent.FutureListener;
 import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.commons.util.concurrent.NotifyingFutureImpl;
 
@@ -44,6 +57,9 @@
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
+   private volatile InvalidatedNearCache<K, V> nearCache;
+   private volatile ClientListenerNotifier listenerNotifier;
+   private CompressionConfiguration compression;
 
 
    public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
@@ -54,12 +70,23 @@ public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
       this.remoteCacheManager = rcm;
    }
 
-   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+   /**
+    * @param nearCacheConfiguration the configuration of the near cache, or {@code null} if reads always go to the
+    *                               servers
+    * @param compressionConfiguration the configuration of value compression, or {@code null} if values are sent and
+    *                                 received as marshalled
+    */
+   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize,
+                    NearCacheConfiguration nearCacheConfiguration, CompressionConfiguration compressionConfiguration) {
       this.marshaller = marshaller;
       this.executorService = executorService;
       this.operationsFactory = operationsFactory;
       this.estimateKeySize = estimateKeySize;
       this.estimateValueSize = estimateValueSize;
+      this.compression = compressionConfiguration;
+      this.nearCache = nearCacheConfiguration == null ? null
+            : new InvalidatedNearCache<K, V>(name, nearCacheConfiguration, operationsFactory, marshaller);
+      this.listenerNotifier = new ClientListenerNotifier(operationsFactory, marshaller, executorService);
    }
 
    public OperationsFactory getOperationsFactory() {
@@ -75,13 +102,21 @@ public RemoteCacheManager getRemoteCacheManager() {
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
       RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
-      VersionedOperationResponse response = op.execute();
-      return response.getCode().isUpdated();
+      try {
+         VersionedOperationResponse response = op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidateNearCache(key);
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return updatedFuture(operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version).executeAsync());
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -112,13 +147,21 @@ public Boolean call() throws Exception {
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
       ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
-      VersionedOperationResponse response = op.execute();
-      return response.getCode().isUpdated();
+      try {
+         VersionedOperationResponse response = op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidateNearCache(key);
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return updatedFuture(operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version).executeAsync());
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -164,14 +207,37 @@ public MetadataValue<V> getWithMetadata(K key) {
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsBulkOperations()) {
+         try {
+            executeInParallel(newPutAllOperations(map, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit));
+         } finally {
+            invalidateNearCache(map.keySet());
+         }
+         return;
+      }
       for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
          put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
       }
    }
 
+   private List<PutAllOperation> newPutAllOperations(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
+      applyDefaultExpirationFlags(lifespan, maxIdleTime);
+      Map<byte[], byte[]> entries = new HashMap<byte[], byte[]>(map.size());
+      for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
+      }
+      return operationsFactory.newPutAllOperations(entries, lifespanSecs, maxIdleSecs);
+   }
+
    @Override
    public NotifyingFuture<Void> putAllAsync(final Map<? extends K, ? extends V> data, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(data.keySet());
+         return putAllFuture(data, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future<Void> future = executorService.submit(new Callable<Void>() {
          @Override
@@ -227,15 +293,23 @@ public ServerStatistics stats() {
    @SuppressWarnings("unchecked")
    public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      PutOperation op = newPutOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] result = op.execute();
+         return (V) bytes2value(result);
+      } finally {
+         invalidateNearCache(key);
+      }
+   }
+
+   private PutOperation newPutOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
       if (log.isTraceEnabled()) {
          log.tracef("About to add (K,V): (%s, %s) lifespanSecs:%d, maxIdleSecs:%d", key, value, lifespanSecs, maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] result = op.execute();
-      return (V) bytes2obj(result);
+      return operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
 
@@ -243,29 +317,49 @@ public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleT
    @SuppressWarnings("unchecked")
    public V putIfAbsent(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      PutIfAbsentOperation op = newPutIfAbsentOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] bytes = op.execute();
+         return (V) bytes2value(bytes);
+      } finally {
+         invalidateNearCache(key);
+      }
+   }
+
+   private PutIfAbsentOperation newPutIfAbsentOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = op.execute();
-      return (V) bytes2obj(bytes);
+      return operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
    @Override
    @SuppressWarnings("unchecked")
    public V replace(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      ReplaceOperation op = newReplaceOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] bytes = op.execute();
+         return (V) bytes2value(bytes);
+      } finally {
+         invalidateNearCache(key);
+      }
+   }
+
+   private ReplaceOperation newReplaceOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = op.execute();
-      return (V) bytes2obj(bytes);
+      return operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return valueFuture(newPutOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit).executeAsync());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -295,6 +389,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<Void> clearAsync() {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         clearNearCache();
+         return userFuture(operationsFactory.newClearOperation().executeAsync());
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future<Void> future = executorService.submit(new Callable<Void>() {
          @Override
@@ -324,6 +422,10 @@ public Void call() throws Exception {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return valueFuture(newPutIfAbsentOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit).executeAsync());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -353,6 +455,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return valueFuture(operationsFactory.newRemoveOperation(obj2bytes(key, true)).executeAsync());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -382,6 +488,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         invalidateNearCache(key);
+         return valueFuture(newReplaceOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit).executeAsync());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -419,16 +529,52 @@ public boolean containsKey(Object key) {
    @SuppressWarnings("unchecked")
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
+      InvalidatedNearCache<K, V> near = nearCache;
+      // flagged reads must reach the server, which also consumes the flags
+      if (near != null && !operationsFactory.hasFlags()) {
+         V cached = near.get((K) key);
+         if (cached != null)
+            return cached;
+         long stamp = near.startRead();
+         MetadataValue<V> value = getWithMetadata((K) key);
+         near.putIfUnchanged((K) key, value, stamp);
+         return value == null ? null : value.getValue();
+      }
       byte[] keyBytes = obj2bytes(key, true);
       GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
       byte[] bytes = gco.execute();
-      V result = (V) bytes2obj(bytes);
+      V result = (V) bytes2value(bytes);
       if (log.isTraceEnabled()) {
          log.tracef("For key(%s) returning %s", key, result);
       }
       return result;
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> toReturn = new HashMap<K, V>();
+      if (!operationsFactory.supportsBulkOperations()) {
+         for (K key : keys) {
+            V value = get(key);
+            if (value != null)
+               toReturn.put(key, value);
+         }
+         return Collections.unmodifiableMap(toReturn);
+      }
+      Set<byte[]> keyBytes = new HashSet<byte[]>();
+      for (K key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      for (Map<byte[], byte[]> result : executeInParallel(operationsFactory.newGetAllOperations(keyBytes))) {
+         for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+            toReturn.put((K) bytes2obj(entry.getKey()), (V) bytes2value(entry.getValue()));
+         }
+      }
+      return Collections.unmodifiableMap(toReturn);
+   }
+
    @Override
    public Map<K, V> getBulk() {
       return getBulk(0);
@@ -442,29 +588,95 @@ public Map<K, V> getBulk(int size) {
       Map<byte[], byte[]> result = op.execute();
       Map<K,V> toReturn = new HashMap<K,V>();
       for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
-         V value = (V) bytes2obj(entry.getValue());
+         V value = (V) bytes2value(entry.getValue());
          K key = (K) bytes2obj(entry.getKey());
          toReturn.put(key, value);
       }
       return Collections.unmodifiableMap(toReturn);
    }
 
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize) {
+      return retrieveEntries(null, batchSize);
+   }
+
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize) {
+      assertRemoteCacheManagerIsStarted();
+      if (batchSize <= 0)
+         throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+      if (!operationsFactory.supportsIteration()) {
+         final Iterator<Map.Entry<K, V>> entries = getBulk().entrySet().iterator();
+         return new CloseableIterator<Map.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+               return entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+               return entries.next();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+               // nothing to release
+            }
+         };
+      }
+      return new RemoteCloseableIterator<K, V>(operationsFactory, marshaller, compression != null,
+            operationsFactory.newIterationStartOperations(segments, batchSize));
+   }
+
+   @Override
+   public void addClientListener(Object listener, Object[] filterFactoryParams, Object[] converterFactoryParams) {
+      assertRemoteCacheManagerIsStarted();
+      if (!operationsFactory.supportsClientListeners())
+         throw log.clientListenersUnsupported();
+      listenerNotifier.addClientListener(listener, filterFactoryParams, converterFactoryParams);
+   }
+
+   @Override
+   public void removeClientListener(Object listener) {
+      assertRemoteCacheManagerIsStarted();
+      listenerNotifier.removeClientListener(listener);
+   }
+
+   @Override
+   public Set<Object> getClientListeners() {
+      ClientListenerNotifier notifier = listenerNotifier;
+      return notifier == null ? Collections.emptySet() : notifier.getListeners();
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
       RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
-      byte[] existingValue = removeOperation.execute();
-      // TODO: It sucks that you need the prev value to see if it works...
-      // We need to find a better API for RemoteCache...
-      return (V) bytes2obj(existingValue);
+      try {
+         byte[] existingValue = removeOperation.execute();
+         // TODO: It sucks that you need the prev value to see if it works...
+         // We need to find a better API for RemoteCache...
+         return (V) bytes2value(existingValue);
+      } finally {
+         invalidateNearCache(key);
+      }
    }
 
    @Override
    public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
-      op.execute();
+      try {
+         op.execute();
+      } finally {
+         clearNearCache();
+      }
    }
 
    @Override
@@ -476,7 +688,16 @@ public void start() {
 
    @Override
    public void stop() {
-      if (log.isDebugEnabled()) {
+      ClientListenerNotifier notifier = listenerNotifier;
+      if (notifier != null)
+         notifier.stop();
+      InvalidatedNearCache<K, V> near = nearCache;
+      if (near != null) {
+         if (log.isDebugEnabled()) {
+            log.debugf("Stopping the near cache of %s", getName());
+         }
+         near.stop();
+      } else if (log.isDebugEnabled()) {
          log.debugf("Stop called, nothing to do here(%s)", getName());
       }
    }
@@ -505,6 +726,9 @@ public RemoteCache<K, V> withFlags(Flag... flags) {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.supportsAsyncOperations()) {
+         return valueFuture(operationsFactory.newGetKeyOperation(obj2bytes(key, true)).executeAsync());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -531,13 +755,43 @@ public V call() throws Exception {
       return result;
    }
 
+   /**
+    * Removes a key written by this client from the near cache. Synchronous writes do it once the write completed, so
+    * that a read following the write never returns the previous value. Asynchronous writes do it when sending the
+    * write, and rely on the event pushed by the server for reads racing with the write.
+    */
+   @SuppressWarnings("unchecked")
+   private void invalidateNearCache(Object key) {
+      InvalidatedNearCache<K, V> near = nearCache;
+      if (near != null)
+         near.invalidate((K) key);
+   }
+
+   private void invalidateNearCache(Set<? extends K> keys) {
+      InvalidatedNearCache<K, V> near = nearCache;
+      if (near != null) {
+         for (K key : keys)
+            near.invalidate(key);
+      }
+   }
+
+   private void clearNearCache() {
+      InvalidatedNearCache<K, V> near = nearCache;
+      if (near != null)
+         near.clear();
+   }
+
    public PingOperation.PingResult ping() {
       return operationsFactory.newFaultTolerantPingOperation().execute();
    }
 
    private byte[] obj2bytes(Object o, boolean isKey) {
       try {
-         return marshaller.objectToByteBuffer(o, isKey ? estimateKeySize : estimateValueSize);
+         byte[] bytes = marshaller.objectToByteBuffer(o, isKey ? estimateKeySize : estimateValueSize);
+         // Keys are never compressed, as servers hash and compare them
+         if (!isKey && compression != null)
+            return CompressedValues.compress(bytes, compression.threshold(), compression.level());
+         return bytes;
       } catch (IOException ioe) {
          throw new HotRodClientException(
                "Unable to marshall object of type [" + o.getClass().getName() + "]", ioe);
@@ -547,6 +801,148 @@ private byte[] obj2bytes(Object o, boolean isKey) {
       }
    }
 
+   /**
+    * Returns a future completed with the unmarshalled value once the operation's future completes, so that no thread
+    * waits for the response.
+    */
+   private NotifyingFuture<V> valueFuture(OperationFuture<byte[]> bytesFuture) {
+      final OperationFuture<V> result = new OperationFuture<V>(executorService);
+      bytesFuture.attachListener(new ConvertingListener<byte[], V>(result) {
+         @Override
+         @SuppressWarnings("unchecked")
+         V convert(byte[] bytes) {
+            return (V) bytes2value(bytes);
+         }
+      });
+      return result;
+   }
+
+   /**
+    * Returns a future completed by the async executor once the operation's future completes, so that the user's
+    * listeners don't run in the thread reading the responses.
+    */
+   private <T> NotifyingFuture<T> userFuture(OperationFuture<T> operationFuture) {
+      final OperationFuture<T> result = new OperationFuture<T>(executorService);
+      operationFuture.attachListener(new ConvertingListener<T, T>(result) {
+         @Override
+         T convert(T value) {
+            return value;
+         }
+      });
+      return result;
+   }
+
+   /**
+    * Returns a future completed with whether a versioned operation updated the entry, once the operation's future
+    * completes.
+    */
+   private NotifyingFuture<Boolean> updatedFuture(OperationFuture<VersionedOperationResponse> responseFuture) {
+      final OperationFuture<Boolean> result = new OperationFuture<Boolean>(executorService);
+      responseFuture.attachListener(new ConvertingListener<VersionedOperationResponse, Boolean>(result) {
+         @Override
+         Boolean convert(VersionedOperationResponse response) {
+            return response.getCode().isUpdated();
+         }
+      });
+      return result;
+   }
+
+   /**
+    * Sends a put all to each owner, or a put for each entry if the protocol doesn't support the former, without
+    * waiting for any response.
+    */
+   private NotifyingFuture<Void> putAllFuture(Map<? extends K, ? extends V> data, long lifespan, TimeUnit lifespanUnit, long maxIdle, TimeUnit maxIdleUnit) {
+      if (operationsFactory.supportsBulkOperations()) {
+         return allCompleted(newPutAllOperations(data, lifespan, lifespanUnit, maxIdle, maxIdleUnit));
+      }
+      List<PutOperation> operations = new ArrayList<PutOperation>(data.size());
+      for (Entry<? extends K, ? extends V> entry : data.entrySet()) {
+         operations.add(newPutOperation(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdle, maxIdleUnit));
+      }
+      return allCompleted(operations);
+   }
+
+   /**
+    * Executes the operations without waiting for any response, and returns a future completed once all of them have
+    * completed, or as soon as one of them fails.
+    */
+   private NotifyingFuture<Void> allCompleted(List<? extends AsyncRetryOnFailureOperation<?>> operations) {
+      OperationFuture<Void> result = new OperationFuture<Void>(executorService);
+      if (operations.isEmpty()) {
+         result.complete(null);
+         return result;
+      }
+      AtomicInteger remaining = new AtomicInteger(operations.size());
+      try {
+         for (AsyncRetryOnFailureOperation<?> operation : operations) {
+            countDownOnCompletion(operation.executeAsync(), result, remaining);
+         }
+      } catch (RuntimeException e) {
+         // the operations already sent still complete, but the caller is told about the failure straight away
+         result.completeExceptionally(e);
+      }
+      return result;
+   }
+
+   private <T> void countDownOnCompletion(OperationFuture<T> future, final OperationFuture<Void> result, final AtomicInteger remaining) {
+      future.attachListener(new FutureListener<T>() {
+         @Override
+         public void futureDone(Future<T> future) {
+            try {
+               future.get();
+            } catch (ExecutionException e) {
+               result.completeExceptionally(e.getCause());
+            } catch (Throwable t) {
+               result.completeExceptionally(t);
+            }
+            if (remaining.decrementAndGet() == 0)
+               result.complete(null);
+         }
+      });
+   }
+
+   /**
+    * Executes operations targeting different servers in parallel, and waits for all of them. The calling thread
+    * executes the last operation itself, while the others are either sent without waiting for their response, if the
+    * transport allows it, or handed to the async executor.
+    */
+   private <T> List<T> executeInParallel(List<? extends AsyncRetryOnFailureOperation<T>> operations) {
+      List<T> results = new ArrayList<T>(operations.size());
+      if (operations.isEmpty())
+         return results;
+      int last = operations.size() - 1;
+      List<Future<T>> futures = new ArrayList<Future<T>>(last);
+      for (int i = 0; i < last; i++) {
+         final AsyncRetryOnFailureOperation<T> operation = operations.get(i);
+         if (operationsFactory.supportsAsyncOperations()) {
+            futures.add(operation.executeAsync());
+         } else {
+            futures.add(executorService.submit(new Callable<T>() {
+               @Override
+               public T call() {
+                  return operation.execute();
+               }
+            }));
+         }
+      }
+      T lastResult = operations.get(last).execute();
+      try {
+         for (Future<T> future : futures) {
+            results.add(future.get());
+         }
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         throw new HotRodClientException(cause);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new HotRodClientException(e);
+      }
+      results.add(lastResult);
+      return results;
+   }
+
    private Object bytes2obj(byte[] bytes) {
       if (bytes == null) return null;
       try {
@@ -557,11 +953,17 @@ private Object bytes2obj(byte[] bytes) {
       }
    }
 
+   private Object bytes2value(byte[] bytes) {
+      if (bytes != null && compression != null)
+         return bytes2obj(CompressedValues.unframe(bytes));
+      return bytes2obj(bytes);
+   }
+
    @SuppressWarnings("unchecked")
    private VersionedValue<V> binary2VersionedValue(VersionedValue<byte[]> value) {
       if (value == null)
          return null;
-      V valueObj = (V) bytes2obj(value.getValue());
+      V valueObj = (V) bytes2value(value.getValue());
       return new VersionedValueImpl<V>(value.getVersion(), valueObj);
    }
 
@@ -569,7 +971,7 @@ private VersionedValue<V> binary2VersionedValue(VersionedValue<byte[]> value) {
    private MetadataValue<V> binary2MetadataValue(MetadataValue<byte[]> value) {
       if (value == null)
          return null;
-      V valueObj = (V) bytes2obj(value.getValue());
+      V valueObj = (V) bytes2value(value.getValue());
       return new MetadataValueImpl<V>(value.getCreated(), value.getLifespan(), value.getLastUsed(), value.getMaxIdle(), value.getVersion(), valueObj);
    }
 
@@ -617,4 +1019,29 @@ public Set<K> keySet() {
        }
        return Collections.unmodifiableSet(toReturn);
    }
+
+   /**
+    * Completes a future with the converted result of the future it listens to, on the thread that completed the
+    * latter.
+    */
+   private abstract static class ConvertingListener<S, R> implements FutureListener<S> {
+      private final OperationFuture<R> result;
+
+      ConvertingListener(OperationFuture<R> result) {
+         this.result = result;
+      }
+
+      abstract R convert(S source);
+
+      @Override
+      public void futureDone(Future<S> future) {
+         try {
+            result.complete(convert(future.get()));
+         } catch (ExecutionException e) {
+            result.completeExceptionally(e.getCause());
+         } catch (Throwable t) {
+            result.completeExceptionally(t);
+         }
+      }
+   }
 }
@@ -29,6 +29,11 @@ protected RemoteCacheSupport(long defaultLifespan, long defaultMaxIdleTime) {
       this.defaultMaxIdleTime = defaultMaxIdleTime;
    }
 
+   @Override
+   public void addClientListener(Object listener) {
+      addClientListener(listener, null, null);
+   }
+
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit unit) {
       putAll(map, lifespan, unit, defaultMaxIdleTime, MILLISECONDS);
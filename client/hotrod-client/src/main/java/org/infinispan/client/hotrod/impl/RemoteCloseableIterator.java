@@ -0,0 +1,110 @@
+package org.infinispan.client.hotrod.impl;
+
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.operations.IterationStartOperation;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.io.CompressedValues;
+import org.infinispan.commons.marshall.Marshaller;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.commons.util.SimpleImmutableEntry;
+
+/**
+ * Iterates over the entries of a remote cache through server side cursors, one server after the other. Only the
+ * current batch of entries is held in memory, and only the cursor of the server being iterated is open.
+ * <p/>
+ * Not thread safe.
+ *
+ * @since 7.0
+ */
+public class RemoteCloseableIterator<K, V> implements CloseableIterator<Map.Entry<K, V>> {
+
+   private static final Log log = LogFactory.getLog(RemoteCloseableIterator.class, Log.class);
+
+   private final OperationsFactory operationsFactory;
+   private final Marshaller marshaller;
+   private final boolean compressedValues;
+   private final LinkedList<IterationStartOperation> pendingServers;
+   private SocketAddress currentServer;
+   private String currentIterationId;
+   private Iterator<Map.Entry<byte[], byte[]>> batch = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+   private boolean closed;
+
+   public RemoteCloseableIterator(OperationsFactory operationsFactory, Marshaller marshaller, boolean compressedValues,
+                                  List<IterationStartOperation> startOperations) {
+      this.operationsFactory = operationsFactory;
+      this.marshaller = marshaller;
+      this.compressedValues = compressedValues;
+      this.pendingServers = new LinkedList<IterationStartOperation>(startOperations);
+   }
+
+   @Override
+   public boolean hasNext() {
+      while (!closed && !batch.hasNext()) {
+         if (currentIterationId == null) {
+            if (pendingServers.isEmpty()) {
+               closed = true;
+               break;
+            }
+            IterationStartOperation start = pendingServers.removeFirst();
+            currentServer = start.getServer();
+            currentIterationId = start.execute();
+            if (log.isTraceEnabled())
+               log.tracef("Started iteration %s on %s", currentIterationId, currentServer);
+         }
+         List<Map.Entry<byte[], byte[]>> entries =
+               operationsFactory.newIterationNextOperation(currentServer, currentIterationId).execute();
+         if (entries.isEmpty()) {
+            // the server discards exhausted iterations on its own
+            currentIterationId = null;
+         }
+         batch = entries.iterator();
+      }
+      return !closed;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map.Entry<K, V> next() {
+      if (!hasNext())
+         throw new NoSuchElementException();
+      Map.Entry<byte[], byte[]> entry = batch.next();
+      return new SimpleImmutableEntry<K, V>((K) bytes2obj(entry.getKey()), (V) bytes2obj(compressedValues ? CompressedValues.unframe(entry.getValue()) : entry.getValue()));
+   }
+
+   @Override
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void close() {
+      if (closed)
+         return;
+      closed = true;
+      pendingServers.clear();
+      batch = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+      if (currentIterationId != null) {
+         String iterationId = currentIterationId;
+         currentIterationId = null;
+         operationsFactory.newIterationEndOperation(currentServer, iterationId).execute();
+      }
+   }
+
+   private Object bytes2obj(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new HotRodClientException("Unable to unmarshall byte stream", e);
+      }
+   }
+}
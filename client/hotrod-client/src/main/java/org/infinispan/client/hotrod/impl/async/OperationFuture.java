@@ -0,0 +1,127 @@
+package org.infinispan.client.hotrod.impl.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.util.concurrent.BaseNotifyingFuture;
+
+/**
+ * A {@link org.infinispan.commons.util.concurrent.NotifyingFuture} completed explicitly, typically by the thread that
+ * reads the operation's response, instead of by a thread blocked waiting for it. Cancelling is not supported, as the
+ * request has already been sent.
+ * <p/>
+ * The listeners run in the thread completing the future, unless an executor is given: a future completed by a
+ * connection's reader thread and returned to the user must be given one, so that a listener waiting for another
+ * operation doesn't prevent the reader thread from reading its response.
+ *
+ * @since 7.0
+ */
+public class OperationFuture<T> extends BaseNotifyingFuture<T> {
+
+   private static final Log log = LogFactory.getLog(OperationFuture.class, Log.class);
+
+   private final Executor listenerExecutor;
+   private final CountDownLatch latch = new CountDownLatch(1);
+   private final AtomicBoolean completed = new AtomicBoolean();
+   private volatile T result;
+   private volatile Throwable exception;
+
+   public OperationFuture() {
+      this(null);
+   }
+
+   /**
+    * @param listenerExecutor the executor running the listeners, or {@code null} to run them in the thread completing
+    *                         the future
+    */
+   public OperationFuture(Executor listenerExecutor) {
+      this.listenerExecutor = listenerExecutor;
+   }
+
+   /**
+    * Completes the future with the given result, unless it was already completed.
+    *
+    * @return {@code true} if this call completed the future
+    */
+   public boolean complete(T result) {
+      if (!completed.compareAndSet(false, true))
+         return false;
+      this.result = result;
+      latch.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   /**
+    * Completes the future with the given exception, unless it was already completed.
+    *
+    * @return {@code true} if this call completed the future
+    */
+   public boolean completeExceptionally(Throwable exception) {
+      if (!completed.compareAndSet(false, true))
+         return false;
+      this.exception = exception;
+      latch.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   private void notifyListeners() {
+      if (listenerExecutor != null) {
+         try {
+            listenerExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  fireListeners();
+               }
+            });
+            return;
+         } catch (RejectedExecutionException e) {
+            // the executor is shut down along with the cache manager, so the listeners can't wait for anything anyway
+            log.trace("Async executor rejected the notification, notifying the listeners in the completing thread", e);
+         }
+      }
+      fireListeners();
+   }
+
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return false;
+   }
+
+   @Override
+   public boolean isDone() {
+      return latch.getCount() == 0;
+   }
+
+   @Override
+   public T get() throws InterruptedException, ExecutionException {
+      latch.await();
+      return getResult();
+   }
+
+   @Override
+   public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!latch.await(timeout, unit))
+         throw new TimeoutException();
+      return getResult();
+   }
+
+   private T getResult() throws ExecutionException {
+      if (exception != null)
+         throw new ExecutionException(exception);
+      return result;
+   }
+}
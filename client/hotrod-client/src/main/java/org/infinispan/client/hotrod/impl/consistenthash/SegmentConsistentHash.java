@@ -5,6 +5,8 @@
 import org.infinispan.commons.util.Util;
 
 import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,6 +35,29 @@ public SocketAddress getServer(byte[] key) {
       return segmentOwners[segmentId][0];
    }
 
+   /**
+    * Groups the given segments, or all of them if {@code null}, by their primary owner.
+    */
+   public Map<SocketAddress, Set<Integer>> groupSegmentsByServer(Set<Integer> segments) {
+      Map<SocketAddress, Set<Integer>> segmentsByServer = new HashMap<SocketAddress, Set<Integer>>();
+      for (int segmentId = 0; segmentId < segmentOwners.length; segmentId++) {
+         if (segments != null && !segments.contains(segmentId))
+            continue;
+         SocketAddress server = segmentOwners[segmentId][0];
+         Set<Integer> serverSegments = segmentsByServer.get(server);
+         if (serverSegments == null) {
+            serverSegments = new HashSet<Integer>();
+            segmentsByServer.put(server, serverSegments);
+         }
+         serverSegments.add(segmentId);
+      }
+      return segmentsByServer;
+   }
+
+   public int getNumSegments() {
+      return segmentOwners.length;
+   }
+
    private int getSegment(Object key) {
       // The result must always be positive, so we make sure the dividend is positive first
       return getNormalizedHash(key) / segmentSize;
@@ -0,0 +1,34 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+
+/**
+ * Receives the events pushed by the server to a listener added with an
+ * {@link org.infinispan.client.hotrod.impl.operations.AddClientListenerOperation}. Both methods are invoked by the
+ * reader thread of the listener's connection, so they must return quickly.
+ *
+ * @since 7.0
+ */
+public interface ClientEventCallback {
+
+   /**
+    * Invoked for every event, with its operation code, one of
+    * {@link org.infinispan.client.hotrod.impl.protocol.HotRodConstants#CACHE_ENTRY_CREATED_EVENT},
+    * {@link org.infinispan.client.hotrod.impl.protocol.HotRodConstants#CACHE_ENTRY_MODIFIED_EVENT} or
+    * {@link org.infinispan.client.hotrod.impl.protocol.HotRodConstants#CACHE_ENTRY_REMOVED_EVENT}, and the key it is
+    * about.
+    */
+   void onEvent(short eventType, byte[] key);
+
+   /**
+    * Invoked instead of {@link #onEvent(short, byte[])} if the listener was added with a converter, with the event
+    * data produced by the converter, marshalled by the server. An empty array stands for {@code null}.
+    */
+   void onCustomEvent(short eventType, byte[] eventData);
+
+   /**
+    * Invoked, at most once, if the connection the listener was added on fails. The server has then removed the
+    * listener, and events may have been missed.
+    */
+   void onFailure(TransportException e);
+}
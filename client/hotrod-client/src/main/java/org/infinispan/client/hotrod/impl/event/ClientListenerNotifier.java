@@ -0,0 +1,483 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCustomEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+import org.infinispan.client.hotrod.event.ClientEvent;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.marshall.Marshaller;
+
+/**
+ * Keeps the {@link ClientListener}s of a remote cache, each added on one of the servers, and invokes their annotated
+ * methods with the events the servers push.
+ * <p/>
+ * The events are handed over by the reader thread of the connection, so they are unmarshalled and the listener methods
+ * invoked by the asynchronous executor of the cache instead: a listener may then use the cache, and a slow listener
+ * doesn't hold up the other responses read from the connection. The events of a listener are delivered one at a time,
+ * in the order they were received.
+ * <p/>
+ * If the connection a listener was added on fails, the listener is added again, on another server if need be, by the
+ * asynchronous executor of the cache, and its {@link ClientCacheFailover} methods are invoked once that's done. Failed
+ * attempts are retried with an exponential backoff, and after the last one the listener is removed, so that it can
+ * be added again.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class ClientListenerNotifier {
+
+   private static final Log log = LogFactory.getLog(ClientListenerNotifier.class, Log.class);
+   private static final byte[][] NO_PARAMS = new byte[0][];
+   private static final int FAILOVER_ATTEMPTS = 10;
+   private static final long FAILOVER_INITIAL_BACKOFF_MILLIS = 100;
+   private static final long FAILOVER_MAX_BACKOFF_MILLIS = 10000;
+
+   private final OperationsFactory operationsFactory;
+   private final Marshaller marshaller;
+   private final ExecutorService executorService;
+   // guarded by itself, keyed by identity as listeners may override equals
+   private final Map<Object, ListenerHolder> listeners = new IdentityHashMap<Object, ListenerHolder>();
+
+   public ClientListenerNotifier(OperationsFactory operationsFactory, Marshaller marshaller,
+                                 ExecutorService executorService) {
+      this.operationsFactory = operationsFactory;
+      this.marshaller = marshaller;
+      this.executorService = executorService;
+   }
+
+   /**
+    * Adds the listener on one of the servers, unless it was already added.
+    *
+    * @param filterParams    the parameters of the filter factory, or null
+    * @param converterParams the parameters of the converter factory, or null
+    */
+   public void addClientListener(Object listener, Object[] filterParams, Object[] converterParams) {
+      ClientListener annotation = listener.getClass().getAnnotation(ClientListener.class);
+      if (annotation == null)
+         throw log.missingClientListenerAnnotation(listener.getClass().getName());
+      boolean custom = !annotation.converterFactoryName().isEmpty();
+      ListenerHolder holder = new ListenerHolder(listener, annotation, findMethods(listener, custom),
+            marshallParams(filterParams), marshallParams(converterParams));
+      synchronized (listeners) {
+         if (listeners.containsKey(listener))
+            return;
+         holder.register();
+         listeners.put(listener, holder);
+      }
+   }
+
+   public void removeClientListener(Object listener) {
+      ListenerHolder holder;
+      synchronized (listeners) {
+         holder = listeners.remove(listener);
+      }
+      if (holder != null)
+         holder.unregister();
+   }
+
+   public Set<Object> getListeners() {
+      synchronized (listeners) {
+         Set<Object> result = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+         result.addAll(listeners.keySet());
+         return Collections.unmodifiableSet(result);
+      }
+   }
+
+   /**
+    * Removes all the listeners from the servers.
+    */
+   public void stop() {
+      List<ListenerHolder> holders;
+      synchronized (listeners) {
+         holders = new ArrayList<ListenerHolder>(listeners.values());
+         listeners.clear();
+      }
+      for (ListenerHolder holder : holders) {
+         holder.unregister();
+      }
+   }
+
+   private Map<ClientEvent.Type, List<Method>> findMethods(Object listener, boolean custom) {
+      Map<ClientEvent.Type, List<Method>> methods = new EnumMap<ClientEvent.Type, List<Method>>(ClientEvent.Type.class);
+      for (Method m : listener.getClass().getMethods()) {
+         addMethod(methods, m, ClientCacheEntryCreated.class, ClientEvent.Type.CLIENT_CACHE_ENTRY_CREATED,
+               custom ? ClientCacheEntryCustomEvent.class : ClientCacheEntryCreatedEvent.class);
+         addMethod(methods, m, ClientCacheEntryModified.class, ClientEvent.Type.CLIENT_CACHE_ENTRY_MODIFIED,
+               custom ? ClientCacheEntryCustomEvent.class : ClientCacheEntryModifiedEvent.class);
+         addMethod(methods, m, ClientCacheEntryRemoved.class, ClientEvent.Type.CLIENT_CACHE_ENTRY_REMOVED,
+               custom ? ClientCacheEntryCustomEvent.class : ClientCacheEntryRemovedEvent.class);
+         addMethod(methods, m, ClientCacheFailover.class, ClientEvent.Type.CLIENT_CACHE_FAILOVER,
+               ClientCacheFailoverEvent.class);
+      }
+      return methods;
+   }
+
+   private void addMethod(Map<ClientEvent.Type, List<Method>> methods, Method m,
+                          Class<? extends Annotation> annotation, ClientEvent.Type type, Class<?> eventClass) {
+      if (!m.isAnnotationPresent(annotation))
+         return;
+      Class<?>[] params = m.getParameterTypes();
+      if (params.length != 1 || !params[0].isAssignableFrom(eventClass))
+         throw log.incorrectClientListenerMethod(m.toString(), annotation.getSimpleName(), eventClass.getName());
+      try {
+         // the listener class itself may not be public
+         m.setAccessible(true);
+      } catch (SecurityException e) {
+         log.tracef(e, "Unable to make %s accessible", m);
+      }
+      List<Method> list = methods.get(type);
+      if (list == null) {
+         list = new ArrayList<Method>(1);
+         methods.put(type, list);
+      }
+      list.add(m);
+   }
+
+   private byte[][] marshallParams(Object[] params) {
+      if (params == null || params.length == 0)
+         return NO_PARAMS;
+      byte[][] bytes = new byte[params.length][];
+      for (int i = 0; i < params.length; i++) {
+         try {
+            bytes[i] = marshaller.objectToByteBuffer(params[i]);
+         } catch (Exception e) {
+            throw new HotRodClientException("Unable to marshall listener parameter " + params[i], e);
+         }
+      }
+      return bytes;
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      if (bytes == null || bytes.length == 0)
+         return null;
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new HotRodClientException("Unable to unmarshall byte stream", e);
+      }
+   }
+
+   private static ClientEvent.Type toType(short eventType) {
+      switch (eventType) {
+         case HotRodConstants.CACHE_ENTRY_CREATED_EVENT:
+            return ClientEvent.Type.CLIENT_CACHE_ENTRY_CREATED;
+         case HotRodConstants.CACHE_ENTRY_MODIFIED_EVENT:
+            return ClientEvent.Type.CLIENT_CACHE_ENTRY_MODIFIED;
+         case HotRodConstants.CACHE_ENTRY_REMOVED_EVENT:
+            return ClientEvent.Type.CLIENT_CACHE_ENTRY_REMOVED;
+         default:
+            throw new HotRodClientException("Unknown event type " + eventType);
+      }
+   }
+
+   /**
+    * A listener, along with its registration on a server.
+    */
+   private final class ListenerHolder implements ClientEventCallback {
+      private final Object listener;
+      private final ClientListener annotation;
+      private final Map<ClientEvent.Type, List<Method>> methods;
+      private final byte[][] filterParams;
+      private final byte[][] converterParams;
+      private final Queue<Runnable> pendingEvents = new ConcurrentLinkedQueue<Runnable>();
+      // set while a task of the executor delivers the pending events
+      private final AtomicBoolean dispatching = new AtomicBoolean();
+      private final Runnable dispatcher = new Runnable() {
+         @Override
+         public void run() {
+            for (Runnable event; (event = pendingEvents.poll()) != null; ) {
+               try {
+                  event.run();
+               } catch (RuntimeException e) {
+                  log.tracef(e, "Error dispatching event to client listener %s", listener);
+               }
+            }
+            dispatching.set(false);
+            // an event may have been queued after the last poll, but before the flag was reset
+            if (!pendingEvents.isEmpty())
+               scheduleDispatch();
+         }
+      };
+      // guarded by this
+      private ClientListenerRegistration registration;
+      private boolean removed;
+
+      ListenerHolder(Object listener, ClientListener annotation, Map<ClientEvent.Type, List<Method>> methods,
+                     byte[][] filterParams, byte[][] converterParams) {
+         this.listener = listener;
+         this.annotation = annotation;
+         this.methods = methods;
+         this.filterParams = filterParams;
+         this.converterParams = converterParams;
+      }
+
+      synchronized void register() {
+         if (removed)
+            return;
+         byte[] listenerId = UUID.randomUUID().toString().getBytes();
+         registration = operationsFactory.newAddClientListenerOperation(listenerId, this,
+               annotation.filterFactoryName(), filterParams, annotation.converterFactoryName(), converterParams)
+               .execute();
+         if (log.isTraceEnabled())
+            log.tracef("Added client listener %s on %s", listener, registration.getServer());
+      }
+
+      void unregister() {
+         ClientListenerRegistration current;
+         synchronized (this) {
+            removed = true;
+            current = registration;
+            registration = null;
+         }
+         if (current == null)
+            return;
+         try {
+            operationsFactory.newRemoveClientListenerOperation(current).execute();
+         } catch (HotRodClientException e) {
+            log.tracef(e, "Could not remove client listener %s", listener);
+         } finally {
+            current.unregister();
+         }
+      }
+
+      @Override
+      public void onEvent(short eventType, final byte[] key) {
+         final ClientEvent.Type type = toType(eventType);
+         dispatch(new Runnable() {
+            @Override
+            public void run() {
+               invoke(type, newEvent(type, unmarshall(key)));
+            }
+         });
+      }
+
+      @Override
+      public void onCustomEvent(short eventType, final byte[] eventData) {
+         final ClientEvent.Type type = toType(eventType);
+         dispatch(new Runnable() {
+            @Override
+            public void run() {
+               final Object data = unmarshall(eventData);
+               invoke(type, new ClientCacheEntryCustomEvent<Object>() {
+                  @Override
+                  public Object getEventData() {
+                     return data;
+                  }
+
+                  @Override
+                  public Type getType() {
+                     return type;
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "ClientCacheEntryCustomEvent{type=" + type + ", eventData=" + data + "}";
+                  }
+               });
+            }
+         });
+      }
+
+      private ClientEvent newEvent(ClientEvent.Type type, final Object k) {
+         switch (type) {
+            case CLIENT_CACHE_ENTRY_CREATED:
+               return new ClientCacheEntryCreatedEvent<Object>() {
+                  @Override
+                  public Object getKey() {
+                     return k;
+                  }
+
+                  @Override
+                  public Type getType() {
+                     return Type.CLIENT_CACHE_ENTRY_CREATED;
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "ClientCacheEntryCreatedEvent{key=" + k + "}";
+                  }
+               };
+            case CLIENT_CACHE_ENTRY_MODIFIED:
+               return new ClientCacheEntryModifiedEvent<Object>() {
+                  @Override
+                  public Object getKey() {
+                     return k;
+                  }
+
+                  @Override
+                  public Type getType() {
+                     return Type.CLIENT_CACHE_ENTRY_MODIFIED;
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "ClientCacheEntryModifiedEvent{key=" + k + "}";
+                  }
+               };
+            default:
+               return new ClientCacheEntryRemovedEvent<Object>() {
+                  @Override
+                  public Object getKey() {
+                     return k;
+                  }
+
+                  @Override
+                  public Type getType() {
+                     return Type.CLIENT_CACHE_ENTRY_REMOVED;
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "ClientCacheEntryRemovedEvent{key=" + k + "}";
+                  }
+               };
+         }
+      }
+
+      /**
+       * Queues an event for the asynchronous executor, which delivers the events of the listener in order.
+       */
+      private void dispatch(Runnable event) {
+         pendingEvents.add(event);
+         scheduleDispatch();
+      }
+
+      private void scheduleDispatch() {
+         if (!dispatching.compareAndSet(false, true))
+            return;
+         try {
+            executorService.execute(dispatcher);
+         } catch (RejectedExecutionException e) {
+            dispatching.set(false);
+            pendingEvents.clear();
+            log.tracef(e, "Cache stopped, discarding the events of client listener %s", listener);
+         }
+      }
+
+      @Override
+      public void onFailure(TransportException e) {
+         synchronized (this) {
+            if (removed)
+               return;
+            registration = null;
+         }
+         log.failingOverClientListener(listener, e);
+         try {
+            // the reader thread of the failed connection must not block on adding the listener again
+            executorService.submit(new Runnable() {
+               @Override
+               public void run() {
+                  failOver();
+               }
+            });
+         } catch (RejectedExecutionException ree) {
+            log.tracef(ree, "Cache stopped, not adding client listener %s again", listener);
+         }
+      }
+
+      private void failOver() {
+         long backoff = FAILOVER_INITIAL_BACKOFF_MILLIS;
+         for (int attempt = 1; ; attempt++) {
+            try {
+               // each attempt picks the next server from the balancer, skipping the ones that failed
+               register();
+               break;
+            } catch (HotRodClientException e) {
+               if (attempt == FAILOVER_ATTEMPTS) {
+                  giveUp(e);
+                  return;
+               }
+               log.tracef(e, "Unable to add client listener %s again, retrying in %d ms", listener, backoff);
+            }
+            try {
+               Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+               // the executor is shutting down
+               Thread.currentThread().interrupt();
+               return;
+            }
+            backoff = Math.min(backoff * 2, FAILOVER_MAX_BACKOFF_MILLIS);
+         }
+         synchronized (this) {
+            if (removed)
+               return;
+         }
+         dispatch(new Runnable() {
+            @Override
+            public void run() {
+               invoke(ClientEvent.Type.CLIENT_CACHE_FAILOVER, new ClientCacheFailoverEvent() {
+                  @Override
+                  public Type getType() {
+                     return Type.CLIENT_CACHE_FAILOVER;
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "ClientCacheFailoverEvent";
+                  }
+               });
+            }
+         });
+      }
+
+      /**
+       * Forgets the listener after failing to add it again, so that the application can add it once more.
+       */
+      private void giveUp(HotRodClientException e) {
+         synchronized (this) {
+            removed = true;
+         }
+         synchronized (listeners) {
+            if (listeners.get(listener) == this)
+               listeners.remove(listener);
+         }
+         log.unableToFailOverClientListener(listener, FAILOVER_ATTEMPTS, e);
+      }
+
+      private void invoke(ClientEvent.Type type, ClientEvent event) {
+         List<Method> targets = methods.get(type);
+         if (targets == null)
+            return;
+         for (Method m : targets) {
+            try {
+               m.invoke(listener, event);
+            } catch (InvocationTargetException e) {
+               log.clientListenerMethodFailed(m.toString(), e.getCause());
+            } catch (IllegalAccessException e) {
+               log.clientListenerMethodFailed(m.toString(), e);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,38 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import java.net.SocketAddress;
+
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransport;
+
+/**
+ * A listener added on a server, along with the connection its events are pushed on.
+ *
+ * @since 7.0
+ */
+public class ClientListenerRegistration {
+
+   private final byte[] listenerId;
+   private final MultiplexedTransport transport;
+   private final long messageId;
+
+   public ClientListenerRegistration(byte[] listenerId, MultiplexedTransport transport, long messageId) {
+      this.listenerId = listenerId;
+      this.transport = transport;
+      this.messageId = messageId;
+   }
+
+   public byte[] getListenerId() {
+      return listenerId;
+   }
+
+   public SocketAddress getServer() {
+      return transport.getServerAddress();
+   }
+
+   /**
+    * Stops routing the listener's events, once the server has acknowledged its removal.
+    */
+   public void unregister() {
+      transport.removeListener(messageId);
+   }
+}
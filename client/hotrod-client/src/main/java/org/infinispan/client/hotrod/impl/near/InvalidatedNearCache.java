@@ -0,0 +1,171 @@
+package org.infinispan.client.hotrod.impl.near;
+
+import java.util.UUID;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.configuration.NearCacheConfiguration;
+import org.infinispan.client.hotrod.configuration.NearCacheEviction;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.event.ClientEventCallback;
+import org.infinispan.client.hotrod.impl.event.ClientListenerRegistration;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.marshall.Marshaller;
+
+/**
+ * The near cache of a remote cache, kept up to date by a listener on one of the servers, which pushes an event
+ * whenever an entry of the cache is written, wherever it is owned. Each event removes the entry from the near cache.
+ * <p/>
+ * The near cache is only used while the listener is in place: if its connection fails, events may have been missed,
+ * so the near cache is cleared and bypassed until the listener has been added again, which is attempted on the next
+ * read.
+ * <p/>
+ * A value read from the server is only cached if no invalidation happened while it was being read, as the
+ * invalidation could be about that very entry, and only if the entry never expires, as expirations raise no event.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class InvalidatedNearCache<K, V> implements ClientEventCallback {
+
+   private static final Log log = LogFactory.getLog(InvalidatedNearCache.class, Log.class);
+
+   private final String cacheName;
+   private final NearCache<K, V> entries;
+   private final OperationsFactory operationsFactory;
+   private final Marshaller marshaller;
+   private final Object registrationLock = new Object();
+   private volatile ClientListenerRegistration registration;
+   // guarded by this, bumped by every invalidation
+   private long invalidations;
+
+   public InvalidatedNearCache(String cacheName, NearCacheConfiguration configuration,
+                               OperationsFactory operationsFactory, Marshaller marshaller) {
+      this.cacheName = cacheName;
+      this.entries = configuration.eviction() == NearCacheEviction.LFU
+            ? new LfuNearCache<K, V>(configuration.maxEntries())
+            : new LruNearCache<K, V>(configuration.maxEntries());
+      this.operationsFactory = operationsFactory;
+      this.marshaller = marshaller;
+   }
+
+   /**
+    * Returns the cached value, or {@code null} if the caller must read it from the server.
+    */
+   public V get(K key) {
+      if (!ensureListening())
+         return null;
+      return entries.get(key);
+   }
+
+   /**
+    * Returns a stamp to pass to {@link #putIfUnchanged(Object, MetadataValue, long)} along with the value about to be
+    * read from the server.
+    */
+   public synchronized long startRead() {
+      return invalidations;
+   }
+
+   /**
+    * Caches a value read from the server, unless an invalidation happened since {@link #startRead()} returned the
+    * given stamp, or the entry expires.
+    */
+   public void putIfUnchanged(K key, MetadataValue<V> value, long stamp) {
+      if (value == null || value.getLifespan() >= 0 || value.getMaxIdle() >= 0 || registration == null)
+         return;
+      synchronized (this) {
+         if (invalidations == stamp)
+            entries.put(key, value.getValue());
+      }
+   }
+
+   /**
+    * Removes the key, after a write by this client or one pushed by the server.
+    */
+   public synchronized void invalidate(K key) {
+      invalidations++;
+      entries.remove(key);
+   }
+
+   public synchronized void clear() {
+      invalidations++;
+      entries.clear();
+   }
+
+   public int size() {
+      return entries.size();
+   }
+
+   /**
+    * Removes the listener from the server, and empties the near cache.
+    */
+   public void stop() {
+      ClientListenerRegistration current;
+      synchronized (registrationLock) {
+         current = registration;
+         registration = null;
+      }
+      clear();
+      if (current == null)
+         return;
+      try {
+         operationsFactory.newRemoveClientListenerOperation(current).execute();
+      } catch (HotRodClientException e) {
+         log.tracef(e, "Could not remove the near cache listener of cache %s", cacheName);
+      } finally {
+         current.unregister();
+      }
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void onEvent(short eventType, byte[] key) {
+      try {
+         invalidate((K) marshaller.objectFromByteBuffer(key));
+      } catch (Exception e) {
+         // can't tell which entry is stale
+         log.tracef(e, "Could not unmarshall invalidated key, clearing the near cache of cache %s", cacheName);
+         clear();
+      }
+   }
+
+   @Override
+   public void onCustomEvent(short eventType, byte[] eventData) {
+      // the listener has no converter, so this can't happen, but whatever changed is unknown
+      clear();
+   }
+
+   @Override
+   public void onFailure(TransportException e) {
+      synchronized (registrationLock) {
+         registration = null;
+      }
+      log.nearCacheInvalidationLost(cacheName, e);
+      clear();
+   }
+
+   private boolean ensureListening() {
+      if (registration != null)
+         return true;
+      synchronized (registrationLock) {
+         if (registration != null)
+            return true;
+         // anything cached without a listener in place may be stale
+         clear();
+         byte[] listenerId = UUID.randomUUID().toString().getBytes();
+         try {
+            registration = operationsFactory.newAddClientListenerOperation(listenerId, this).execute();
+            if (log.isTraceEnabled())
+               log.tracef("Added near cache listener of cache %s on %s", cacheName, registration.getServer());
+            return true;
+         } catch (HotRodClientException e) {
+            log.tracef(e, "Could not add the near cache listener of cache %s, bypassing the near cache", cacheName);
+            return false;
+         }
+      }
+   }
+}
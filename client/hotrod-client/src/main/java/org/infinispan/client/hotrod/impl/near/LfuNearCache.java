@@ -0,0 +1,113 @@
+package org.infinispan.client.hotrod.impl.near;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A {@link NearCache} evicting the least frequently read entry, and among those read as often, the one cached first.
+ * Keys are kept in one insertion ordered set per read count, so that reads and evictions take constant time.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class LfuNearCache<K, V> implements NearCache<K, V> {
+
+   private final int maxEntries;
+   private final Map<K, CountedValue<V>> entries = new HashMap<K, CountedValue<V>>();
+   private final Map<Integer, LinkedHashSet<K>> keysByCount = new HashMap<Integer, LinkedHashSet<K>>();
+   // never greater than the lowest count, so that eviction only needs to look upwards from it
+   private int minCount;
+
+   public LfuNearCache(int maxEntries) {
+      this.maxEntries = maxEntries;
+   }
+
+   @Override
+   public synchronized V get(K key) {
+      CountedValue<V> counted = entries.get(key);
+      if (counted == null)
+         return null;
+      if (counted.count < Integer.MAX_VALUE) {
+         removeKey(key, counted.count);
+         counted.count++;
+         addKey(key, counted.count);
+      }
+      return counted.value;
+   }
+
+   @Override
+   public synchronized void put(K key, V value) {
+      CountedValue<V> counted = entries.get(key);
+      if (counted != null) {
+         counted.value = value;
+         return;
+      }
+      if (entries.size() >= maxEntries)
+         evict();
+      entries.put(key, new CountedValue<V>(value));
+      addKey(key, 0);
+      minCount = 0;
+   }
+
+   @Override
+   public synchronized void remove(K key) {
+      CountedValue<V> counted = entries.remove(key);
+      if (counted != null)
+         removeKey(key, counted.count);
+   }
+
+   @Override
+   public synchronized void clear() {
+      entries.clear();
+      keysByCount.clear();
+      minCount = 0;
+   }
+
+   @Override
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   private void evict() {
+      LinkedHashSet<K> keys = keysByCount.get(minCount);
+      while (keys == null) {
+         minCount++;
+         keys = keysByCount.get(minCount);
+      }
+      Iterator<K> it = keys.iterator();
+      K evicted = it.next();
+      it.remove();
+      if (keys.isEmpty())
+         keysByCount.remove(minCount);
+      entries.remove(evicted);
+   }
+
+   private void addKey(K key, int count) {
+      LinkedHashSet<K> keys = keysByCount.get(count);
+      if (keys == null) {
+         keys = new LinkedHashSet<K>();
+         keysByCount.put(count, keys);
+      }
+      keys.add(key);
+   }
+
+   private void removeKey(K key, int count) {
+      LinkedHashSet<K> keys = keysByCount.get(count);
+      keys.remove(key);
+      if (keys.isEmpty())
+         keysByCount.remove(count);
+   }
+
+   private static final class CountedValue<V> {
+      V value;
+      int count;
+
+      CountedValue(V value) {
+         this.value = value;
+      }
+   }
+}
@@ -0,0 +1,51 @@
+package org.infinispan.client.hotrod.impl.near;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A {@link NearCache} evicting the least recently read entry.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class LruNearCache<K, V> implements NearCache<K, V> {
+
+   private final Map<K, V> entries;
+
+   public LruNearCache(final int maxEntries) {
+      this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+         }
+      };
+   }
+
+   @Override
+   public synchronized V get(K key) {
+      return entries.get(key);
+   }
+
+   @Override
+   public synchronized void put(K key, V value) {
+      entries.put(key, value);
+   }
+
+   @Override
+   public synchronized void remove(K key) {
+      entries.remove(key);
+   }
+
+   @Override
+   public synchronized void clear() {
+      entries.clear();
+   }
+
+   @Override
+   public synchronized int size() {
+      return entries.size();
+   }
+}
@@ -0,0 +1,26 @@
+package org.infinispan.client.hotrod.impl.near;
+
+/**
+ * A bounded, thread safe store of the entries held by a remote cache's near cache. Implementations decide which entry
+ * to evict when full.
+ *
+ * @since 7.0
+ */
+public interface NearCache<K, V> {
+
+   /**
+    * Returns the value cached for the key, or {@code null} if it isn't cached, counting as an access to the entry.
+    */
+   V get(K key);
+
+   /**
+    * Caches the value for the key, evicting another entry if the near cache is full.
+    */
+   void put(K key, V value);
+
+   void remove(K key);
+
+   void clear();
+
+   int size();
+}
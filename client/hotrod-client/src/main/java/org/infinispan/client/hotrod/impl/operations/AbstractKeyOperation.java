@@ -22,7 +22,7 @@
  * @since 4.1
  */
 @Immutable
-public abstract class AbstractKeyOperation<T> extends RetryOnFailureOperation<T> {
+public abstract class AbstractKeyOperation<T> extends AsyncRetryOnFailureOperation<T> {
 
    private static final BasicLogger log = BasicLogFactory.getLog(AbstractKeyOperation.class);
 
@@ -45,14 +45,22 @@ protected Transport getTransport(int retryCount, Set<SocketAddress> failedServer
 
    protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
       // 1) write [header][key length][key]
-      HeaderParams params = writeHeader(transport, opCode);
-      transport.writeArray(key);
+      HeaderParams params = writeKeyRequest(transport, opCode);
       transport.flush();
 
       // 2) now read the header
       return readHeaderAndValidate(transport, params);
    }
 
+   /**
+    * Writes [header][key length][key], without flushing.
+    */
+   protected HeaderParams writeKeyRequest(Transport transport, byte opCode) {
+      HeaderParams params = writeHeader(transport, opCode);
+      transport.writeArray(key);
+      return params;
+   }
+
    protected byte[] returnPossiblePrevValue(Transport transport) {
       if (hasForceReturn(flags)) {
          byte[] bytes = transport.readArray();
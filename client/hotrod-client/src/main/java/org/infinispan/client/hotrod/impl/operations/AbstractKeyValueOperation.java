@@ -34,19 +34,25 @@ protected AbstractKeyValueOperation(Codec codec, TransportFactory transportFacto
 
    //[header][key length][key][lifespan][max idle][value length][value]
    protected short sendPutOperation(Transport transport, short opCode, byte opRespCode) {
-      // 1) write header
-      HeaderParams params = writeHeader(transport, opCode);
-
-      // 2) write key and value
-      transport.writeArray(key);
-      transport.writeVInt(lifespan);
-      transport.writeVInt(maxIdle);
-      transport.writeArray(value);
+      // 1) write header, key and value
+      HeaderParams params = writePutRequest(transport, opCode);
       transport.flush();
 
-      // 3) now read header
+      // 2) now read header
 
       //return status (not error status for sure)
       return readHeaderAndValidate(transport, params);
    }
+
+   /**
+    * Writes [header][key length][key][lifespan][max idle][value length][value], without flushing.
+    */
+   protected HeaderParams writePutRequest(Transport transport, short opCode) {
+      HeaderParams params = writeHeader(transport, opCode);
+      transport.writeArray(key);
+      transport.writeVInt(lifespan);
+      transport.writeVInt(maxIdle);
+      transport.writeArray(value);
+      return params;
+   }
 }
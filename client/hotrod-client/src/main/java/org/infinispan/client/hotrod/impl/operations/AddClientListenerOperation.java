@@ -0,0 +1,172 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.event.ClientEventCallback;
+import org.infinispan.client.hotrod.impl.event.ClientListenerRegistration;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.Codec20;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds a listener on one of the servers, which then pushes an event over the same connection whenever a key of the
+ * cache is created, modified or removed, wherever the key is owned. The events are handed to the
+ * {@link ClientEventCallback} by the connection's reader thread, so the callback must not block.
+ * <p/>
+ * The listener may name a filter factory and a converter factory registered with the servers, along with marshalled
+ * parameters for each. An empty name stands for none.
+ *
+ * @since 7.0
+ */
+@Immutable
+public class AddClientListenerOperation extends RetryOnFailureOperation<ClientListenerRegistration> {
+
+   private static final Log log = LogFactory.getLog(AddClientListenerOperation.class, Log.class);
+
+   private static final byte[][] NO_PARAMS = new byte[0][];
+
+   private final byte[] listenerId;
+   private final ClientEventCallback callback;
+   private final String filterFactoryName;
+   private final byte[][] filterParams;
+   private final String converterFactoryName;
+   private final byte[][] converterParams;
+
+   public AddClientListenerOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                     AtomicInteger topologyId, Flag[] flags, byte[] listenerId,
+                                     ClientEventCallback callback) {
+      this(codec, transportFactory, cacheName, topologyId, flags, listenerId, callback, "", NO_PARAMS, "", NO_PARAMS);
+   }
+
+   public AddClientListenerOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                     AtomicInteger topologyId, Flag[] flags, byte[] listenerId,
+                                     ClientEventCallback callback, String filterFactoryName, byte[][] filterParams,
+                                     String converterFactoryName, byte[][] converterParams) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.listenerId = listenerId;
+      this.callback = callback;
+      this.filterFactoryName = filterFactoryName;
+      this.filterParams = filterParams;
+      this.converterFactoryName = converterFactoryName;
+      this.converterParams = converterParams;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount, Set<SocketAddress> failedServers) {
+      return ((TcpTransportFactory) transportFactory).getListenerTransport(failedServers);
+   }
+
+   @Override
+   protected ClientListenerRegistration executeOperation(Transport transport) {
+      MultiplexedTransport listenerTransport = (MultiplexedTransport) transport;
+      HeaderParams params = writeHeader(transport, ADD_CLIENT_LISTENER_REQUEST);
+      transport.writeArray(listenerId);
+      transport.writeString(filterFactoryName);
+      writeParams(transport, filterParams);
+      transport.writeString(converterFactoryName);
+      writeParams(transport, converterParams);
+      EventHandler handler = new EventHandler(params);
+      listenerTransport.flushListener(handler);
+      handler.awaitResponse(listenerTransport);
+      return new ClientListenerRegistration(listenerId, listenerTransport, params.messageId());
+   }
+
+   private static void writeParams(Transport transport, byte[][] params) {
+      transport.writeVInt(params.length);
+      for (byte[] param : params) {
+         transport.writeArray(param);
+      }
+   }
+
+   /**
+    * Reads the response to the request, and then the events that follow it.
+    */
+   private final class EventHandler implements ResponseHandler {
+      private final HeaderParams params;
+      private final CountDownLatch responded = new CountDownLatch(1);
+      private volatile HotRodClientException failure;
+      private volatile boolean added;
+
+      EventHandler(HeaderParams params) {
+         this.params = params;
+      }
+
+      @Override
+      public void responseReceived(Transport transport) {
+         if (added) {
+            short eventType = ((Codec20) codec).readEventHeader(transport, params);
+            transport.readArray(); // listener id
+            boolean custom = transport.readByte() == 1;
+            byte[] data = transport.readArray();
+            try {
+               if (custom)
+                  callback.onCustomEvent(eventType, data);
+               else
+                  callback.onEvent(eventType, data);
+            } catch (Throwable t) {
+               log.trace("Error dispatching event", t);
+            }
+            return;
+         }
+         try {
+            readHeaderAndValidate(transport, params);
+            added = true;
+         } catch (TransportException e) {
+            throw e;
+         } catch (HotRodClientException e) {
+            failure = e;
+         } finally {
+            responded.countDown();
+         }
+      }
+
+      @Override
+      public void failed(TransportException e) {
+         if (added) {
+            try {
+               callback.onFailure(e);
+            } catch (Throwable t) {
+               log.trace("Error notifying listener failure", t);
+            }
+         } else {
+            failure = e;
+            responded.countDown();
+         }
+      }
+
+      void awaitResponse(MultiplexedTransport transport) {
+         int soTimeout = transportFactory.getSoTimeout();
+         try {
+            boolean done = true;
+            if (soTimeout > 0)
+               done = responded.await(soTimeout, TimeUnit.MILLISECONDS);
+            else
+               responded.await();
+            if (!done)
+               throw new TransportException("Timed out waiting for the listener to be added", transport.getServerAddress());
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e, transport.getServerAddress());
+         }
+         if (failure != null) {
+            transport.removeListener(params.messageId());
+            throw failure;
+         }
+      }
+   }
+}
@@ -0,0 +1,153 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.RemoteNodeSuspectException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.async.OperationFuture;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory;
+import org.infinispan.commons.util.concurrent.FutureListener;
+
+import java.net.SocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for the operations whose request and response are handled separately, so that they can be executed
+ * without waiting for the response with {@link #executeAsync()}.
+ *
+ * @since 7.0
+ * @param T the return type of this operation
+ */
+@Immutable
+public abstract class AsyncRetryOnFailureOperation<T> extends RetryOnFailureOperation<T> {
+
+   protected AsyncRetryOnFailureOperation(Codec codec, TransportFactory transportFactory,
+            byte[] cacheName, AtomicInteger topologyId, Flag[] flags) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+   }
+
+   /**
+    * Executes the operation without waiting for the response, which is read by the transport's reader thread. Only
+    * supported with a {@link MultiplexedTransportFactory}.
+    * <p/>
+    * If the maximum number of pending requests has been reached, it waits for one of them to complete first.
+    * <p/>
+    * The returned future is completed by the reader thread, which also runs its listeners: these must not block, and
+    * in particular must not wait for another operation, since the response to it may have to be read by the same
+    * thread. Futures handed to the user are completed by the async executor instead.
+    */
+   public OperationFuture<T> executeAsync() {
+      final MultiplexedTransportFactory factory = (MultiplexedTransportFactory) transportFactory;
+      factory.acquirePendingRequest();
+      OperationFuture<T> future = new OperationFuture<T>();
+      future.attachListener(new FutureListener<T>() {
+         @Override
+         public void futureDone(Future<T> future) {
+            factory.releasePendingRequest();
+         }
+      });
+      executeAsync(future, 0, null, statistics != null ? System.nanoTime() : 0);
+      return future;
+   }
+
+   private void executeAsync(final OperationFuture<T> future, final int retryCount, final Set<SocketAddress> failedServers,
+                             final long start) {
+      if (!shouldRetry(retryCount)) {
+         future.completeExceptionally(new IllegalStateException("We should not reach here!"));
+         return;
+      }
+      Transport transport = null;
+      try {
+         transport = getTransport(retryCount, failedServers);
+         final HeaderParams params = writeRequest(transport);
+         final long requestStart = statistics != null ? System.nanoTime() : 0;
+         ((MultiplexedTransport) transport).flush(new ResponseHandler() {
+            @Override
+            public void responseReceived(Transport responseTransport) {
+               T result;
+               try {
+                  result = readResponse(responseTransport, params);
+               } catch (TransportException e) {
+                  // the connection is closed, and the operation retried by failed()
+                  throw e;
+               } catch (RemoteNodeSuspectException e) {
+                  retryAsync(future, retryCount, failedServers, start, e);
+                  return;
+               } catch (Throwable t) {
+                  future.completeExceptionally(t);
+                  return;
+               }
+               if (statistics != null) {
+                  long end = System.nanoTime();
+                  statistics.recordServerLatency(responseTransport.getRemoteSocketAddress(), end - requestStart);
+                  statistics.recordOperationLatency(AsyncRetryOnFailureOperation.this.getClass(), end - start);
+               }
+               future.complete(result);
+            }
+
+            @Override
+            public void failed(TransportException e) {
+               retryAsync(future, retryCount, failedServers, start, e);
+            }
+         });
+      } catch (TransportException te) {
+         if (transport != null)
+            transportFactory.invalidateTransport(te.getServerAddress(), transport);
+         retryAsync(future, retryCount, failedServers, start, te);
+      } catch (Throwable t) {
+         future.completeExceptionally(t);
+      } finally {
+         releaseTransport(transport);
+      }
+   }
+
+   private void retryAsync(OperationFuture<T> future, int retryCount, Set<SocketAddress> failedServers, long start,
+                           HotRodClientException e) {
+      if (e instanceof TransportException) {
+         if (failedServers == null) {
+            failedServers = new HashSet<SocketAddress>();
+         }
+         failedServers.add(((TransportException) e).getServerAddress());
+      }
+      try {
+         logErrorAndThrowExceptionIfNeeded(retryCount, e);
+      } catch (HotRodClientException noRetriesLeft) {
+         future.completeExceptionally(noRetriesLeft);
+         return;
+      }
+      if (statistics != null) {
+         if (e instanceof TransportException)
+            statistics.recordFailover();
+         else
+            statistics.recordRetry();
+      }
+      executeAsync(future, retryCount + 1, failedServers, start);
+   }
+
+   @Override
+   protected final T executeOperation(Transport transport) {
+      HeaderParams params = writeRequest(transport);
+      transport.flush();
+      return readResponse(transport, params);
+   }
+
+   /**
+    * Writes the request, without flushing it.
+    */
+   protected abstract HeaderParams writeRequest(Transport transport);
+
+   /**
+    * Reads the response to a request written by {@link #writeRequest(Transport)}, header included.
+    */
+   protected abstract T readResponse(Transport transport, HeaderParams params);
+}
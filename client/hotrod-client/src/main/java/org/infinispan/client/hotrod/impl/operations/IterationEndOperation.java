@@ -0,0 +1,51 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Discards the server side cursor of an iteration that wasn't exhausted. Returns whether the server still knew about
+ * the iteration.
+ *
+ * @since 7.0
+ */
+@Immutable
+public class IterationEndOperation extends AsyncRetryOnFailureOperation<Boolean> {
+
+   private final SocketAddress server;
+   private final String iterationId;
+
+   public IterationEndOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                AtomicInteger topologyId, Flag[] flags, SocketAddress server, String iterationId) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+      this.iterationId = iterationId;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount, Set<SocketAddress> failedServers) {
+      return ((TcpTransportFactory) transportFactory).getAddressTransport(server);
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, ITERATION_END_REQUEST);
+      transport.writeString(iterationId);
+      return params;
+   }
+
+   @Override
+   protected Boolean readResponse(Transport transport, HeaderParams params) {
+      short status = readHeaderAndValidate(transport, params);
+      return status == NO_ERROR_STATUS;
+   }
+}
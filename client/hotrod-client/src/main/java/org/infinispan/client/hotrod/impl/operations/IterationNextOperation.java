@@ -0,0 +1,77 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.util.SimpleImmutableEntry;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the next batch of entries of an iteration started by an {@link IterationStartOperation}. An empty batch
+ * means the iteration is exhausted, and the server has already discarded its cursor.
+ *
+ * @since 7.0
+ */
+@Immutable
+public class IterationNextOperation extends AsyncRetryOnFailureOperation<List<Map.Entry<byte[], byte[]>>> {
+
+   private static final Log log = LogFactory.getLog(IterationNextOperation.class, Log.class);
+
+   private final SocketAddress server;
+   private final String iterationId;
+
+   public IterationNextOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                 AtomicInteger topologyId, Flag[] flags, SocketAddress server, String iterationId) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+      this.iterationId = iterationId;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount, Set<SocketAddress> failedServers) {
+      return ((TcpTransportFactory) transportFactory).getAddressTransport(server);
+   }
+
+   /**
+    * The server may have moved its cursor past a batch that never made it back, so retrying could skip entries.
+    */
+   @Override
+   protected void logErrorAndThrowExceptionIfNeeded(int i, HotRodClientException e) {
+      throw e;
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, ITERATION_NEXT_REQUEST);
+      transport.writeString(iterationId);
+      return params;
+   }
+
+   @Override
+   protected List<Map.Entry<byte[], byte[]>> readResponse(Transport transport, HeaderParams params) {
+      short status = readHeaderAndValidate(transport, params);
+      if (status == KEY_DOES_NOT_EXIST_STATUS)
+         throw log.unknownIteration(iterationId, server);
+      int size = transport.readVInt();
+      List<Map.Entry<byte[], byte[]>> entries = new ArrayList<Map.Entry<byte[], byte[]>>(size);
+      for (int i = 0; i < size; i++) {
+         byte[] key = transport.readArray();
+         byte[] value = transport.readArray();
+         entries.add(new SimpleImmutableEntry<byte[], byte[]>(key, value));
+      }
+      return entries;
+   }
+}
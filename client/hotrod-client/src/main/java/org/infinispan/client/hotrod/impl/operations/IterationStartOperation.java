@@ -0,0 +1,66 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts an iteration over the entries a server holds for some segments, or all of them, and returns the id of the
+ * server side cursor. The batches are then fetched with {@link IterationNextOperation}s sent to the same server.
+ *
+ * @since 7.0
+ */
+@Immutable
+public class IterationStartOperation extends AsyncRetryOnFailureOperation<String> {
+
+   private final SocketAddress server;
+   private final Set<Integer> segments;
+   private final int batchSize;
+
+   public IterationStartOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                  AtomicInteger topologyId, Flag[] flags, SocketAddress server,
+                                  Set<Integer> segments, int batchSize) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+      this.segments = segments;
+      this.batchSize = batchSize;
+   }
+
+   public SocketAddress getServer() {
+      return server;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount, Set<SocketAddress> failedServers) {
+      return ((TcpTransportFactory) transportFactory).getAddressTransport(server);
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, ITERATION_START_REQUEST);
+      if (segments == null) {
+         transport.writeVInt(0);
+      } else {
+         transport.writeVInt(segments.size());
+         for (int segment : segments) {
+            transport.writeVInt(segment);
+         }
+      }
+      transport.writeVInt(batchSize);
+      return params;
+   }
+
+   @Override
+   protected String readResponse(Transport transport, HeaderParams params) {
+      readHeaderAndValidate(transport, params);
+      return transport.readString();
+   }
+}
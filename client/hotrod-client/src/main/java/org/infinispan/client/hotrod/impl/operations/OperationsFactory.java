@@ -4,14 +4,25 @@
 
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.impl.event.ClientEventCallback;
+import org.infinispan.client.hotrod.impl.event.ClientListenerRegistration;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.Codec20;
 import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
 import org.infinispan.client.hotrod.impl.query.RemoteQuery;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 
+import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -147,6 +158,87 @@ public FaultTolerantPingOperation newFaultTolerantPingOperation() {
             codec, transportFactory, cacheNameBytes, topologyId, flags());
    }
 
+   /**
+    * Creates one operation per server owning some of the keys, so that each request goes straight to the owner.
+    */
+   public List<GetAllOperation> newGetAllOperations(Set<byte[]> keys) {
+      Flag[] flags = flags();
+      List<GetAllOperation> operations = new ArrayList<GetAllOperation>();
+      for (Set<byte[]> serverKeys : groupKeysByServer(keys)) {
+         operations.add(new GetAllOperation(
+               codec, transportFactory, serverKeys, cacheNameBytes, topologyId, flags));
+      }
+      return operations;
+   }
+
+   /**
+    * Creates one operation per server owning some of the entries, so that each request goes straight to the owner.
+    */
+   public List<PutAllOperation> newPutAllOperations(Map<byte[], byte[]> entries, int lifespanSeconds, int maxIdleTimeSeconds) {
+      Flag[] flags = flags();
+      List<PutAllOperation> operations = new ArrayList<PutAllOperation>();
+      for (Set<byte[]> serverKeys : groupKeysByServer(entries.keySet())) {
+         Map<byte[], byte[]> serverEntries = new HashMap<byte[], byte[]>(serverKeys.size());
+         for (byte[] key : serverKeys) {
+            serverEntries.put(key, entries.get(key));
+         }
+         operations.add(new PutAllOperation(
+               codec, transportFactory, serverEntries, cacheNameBytes, topologyId, flags,
+               lifespanSeconds, maxIdleTimeSeconds));
+      }
+      return operations;
+   }
+
+   private Collection<Set<byte[]>> groupKeysByServer(Set<byte[]> keys) {
+      if (transportFactory instanceof TcpTransportFactory)
+         return ((TcpTransportFactory) transportFactory).groupKeysByServer(keys);
+      return keys.isEmpty() ? Collections.<Set<byte[]>>emptyList() : Collections.singletonList(keys);
+   }
+
+   /**
+    * Creates one operation per server owning some of the segments, or all of them if {@code segments} is
+    * {@code null}. Each operation starts an iteration over the entries its server holds for its segments.
+    */
+   public List<IterationStartOperation> newIterationStartOperations(Set<Integer> segments, int batchSize) {
+      Flag[] flags = flags();
+      List<IterationStartOperation> operations = new ArrayList<IterationStartOperation>();
+      Map<SocketAddress, Set<Integer>> segmentsByServer =
+            ((TcpTransportFactory) transportFactory).groupSegmentsByServer(segments);
+      for (Map.Entry<SocketAddress, Set<Integer>> entry : segmentsByServer.entrySet()) {
+         operations.add(new IterationStartOperation(
+               codec, transportFactory, cacheNameBytes, topologyId, flags, entry.getKey(), entry.getValue(), batchSize));
+      }
+      return operations;
+   }
+
+   public IterationNextOperation newIterationNextOperation(SocketAddress server, String iterationId) {
+      return new IterationNextOperation(
+            codec, transportFactory, cacheNameBytes, topologyId, null, server, iterationId);
+   }
+
+   public IterationEndOperation newIterationEndOperation(SocketAddress server, String iterationId) {
+      return new IterationEndOperation(
+            codec, transportFactory, cacheNameBytes, topologyId, null, server, iterationId);
+   }
+
+   public AddClientListenerOperation newAddClientListenerOperation(byte[] listenerId, ClientEventCallback callback) {
+      return new AddClientListenerOperation(
+            codec, transportFactory, cacheNameBytes, topologyId, null, listenerId, callback);
+   }
+
+   public AddClientListenerOperation newAddClientListenerOperation(byte[] listenerId, ClientEventCallback callback,
+                                                                   String filterFactoryName, byte[][] filterParams,
+                                                                   String converterFactoryName, byte[][] converterParams) {
+      return new AddClientListenerOperation(
+            codec, transportFactory, cacheNameBytes, topologyId, null, listenerId, callback,
+            filterFactoryName, filterParams, converterFactoryName, converterParams);
+   }
+
+   public RemoveClientListenerOperation newRemoveClientListenerOperation(ClientListenerRegistration registration) {
+      return new RemoveClientListenerOperation(
+            codec, transportFactory, cacheNameBytes, topologyId, null, registration);
+   }
+
    public QueryOperation newQueryOperation(RemoteQuery remoteQuery) {
       return new QueryOperation(
             codec, transportFactory, cacheNameBytes, topologyId, flags(), remoteQuery);
@@ -165,6 +257,36 @@ private Flag[] flags() {
       return flags != null ? flags.toArray(new Flag[0]) : null;
    }
 
+   /**
+    * @return whether the operations can be executed without waiting for their response, i.e. whether the transport
+    *         multiplexes requests over shared connections
+    */
+   public boolean supportsAsyncOperations() {
+      return transportFactory instanceof MultiplexedTransportFactory;
+   }
+
+   /**
+    * Whether the protocol version in use has the GET_ALL and PUT_ALL operations, which were added in version 2.0.
+    */
+   public boolean supportsBulkOperations() {
+      return codec instanceof Codec20;
+   }
+
+   /**
+    * Iterations keep a cursor on a particular server, so they need a transport factory that can reach a given server.
+    */
+   public boolean supportsIteration() {
+      return supportsBulkOperations() && transportFactory instanceof TcpTransportFactory;
+   }
+
+   /**
+    * Listeners were added in version 2.0 of the protocol, and their events need a connection that isn't handed over
+    * to a single request at a time.
+    */
+   public boolean supportsClientListeners() {
+      return supportsBulkOperations() && transportFactory instanceof TcpTransportFactory;
+   }
+
    public void setFlags(Flag[] flags) {
       List<Flag> list = new ArrayList<Flag>();
       for(Flag flag : flags)
@@ -182,4 +304,11 @@ public void addFlags(Flag... flags) {
          list.add(flag);
 
    }
+
+   /**
+    * Returns whether flags have been set for the next operation of the calling thread.
+    */
+   public boolean hasFlags() {
+      return flagsMap.get() != null;
+   }
 }
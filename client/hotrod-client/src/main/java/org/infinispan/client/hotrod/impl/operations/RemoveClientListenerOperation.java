@@ -0,0 +1,53 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.event.ClientListenerRegistration;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes a listener added by an {@link AddClientListenerOperation} from the server it was added on. Returns whether
+ * the server still knew about the listener. The caller stops routing the listener's events with
+ * {@link ClientListenerRegistration#unregister()} afterwards, as events sent before the removal may still be on
+ * their way.
+ *
+ * @since 7.0
+ */
+@Immutable
+public class RemoveClientListenerOperation extends AsyncRetryOnFailureOperation<Boolean> {
+
+   private final ClientListenerRegistration registration;
+
+   public RemoveClientListenerOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                                        AtomicInteger topologyId, Flag[] flags,
+                                        ClientListenerRegistration registration) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.registration = registration;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount, Set<SocketAddress> failedServers) {
+      return ((TcpTransportFactory) transportFactory).getListenerTransport(registration.getServer());
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, REMOVE_CLIENT_LISTENER_REQUEST);
+      transport.writeArray(registration.getListenerId());
+      return params;
+   }
+
+   @Override
+   protected Boolean readResponse(Transport transport, HeaderParams params) {
+      short status = readHeaderAndValidate(transport, params);
+      return status == NO_ERROR_STATUS;
+   }
+}
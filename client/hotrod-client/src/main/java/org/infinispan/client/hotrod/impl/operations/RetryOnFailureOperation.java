@@ -5,9 +5,11 @@
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteNodeSuspectException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.ClientStatisticsImpl;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 
@@ -30,23 +32,36 @@
    private static final Log log = LogFactory.getLog(RetryOnFailureOperation.class, Log.class);
 
    protected final TransportFactory transportFactory;
+   // null unless statistics are enabled
+   protected final ClientStatisticsImpl statistics;
 
    protected RetryOnFailureOperation(Codec codec, TransportFactory transportFactory,
             byte[] cacheName, AtomicInteger topologyId, Flag[] flags) {
       super(codec, flags, cacheName, topologyId);
       this.transportFactory = transportFactory;
+      this.statistics = transportFactory instanceof TcpTransportFactory ?
+            ((TcpTransportFactory) transportFactory).getStatistics() : null;
    }
 
    @Override
    public T execute() {
       int retryCount = 0;
       Set<SocketAddress> failedServers = null;
+      long start = statistics != null ? System.nanoTime() : 0;
       while (shouldRetry(retryCount)) {
          Transport transport = null;
          try {
             // Transport retrieval should be retried
             transport = getTransport(retryCount, failedServers);
-            return executeOperation(transport);
+            if (statistics == null)
+               return executeOperation(transport);
+
+            long requestStart = System.nanoTime();
+            T result = executeOperation(transport);
+            long end = System.nanoTime();
+            statistics.recordServerLatency(transport.getRemoteSocketAddress(), end - requestStart);
+            statistics.recordOperationLatency(getClass(), end - start);
+            return result;
          } catch (TransportException te) {
             if (failedServers == null) {
                failedServers = new HashSet<SocketAddress>();
@@ -59,12 +74,16 @@ public T execute() {
                      te.getServerAddress(), transport);
             }
             logErrorAndThrowExceptionIfNeeded(retryCount, te);
+            if (statistics != null)
+               statistics.recordFailover();
          } catch (RemoteNodeSuspectException e) {
             // Do not invalidate transport because this exception is caused
             // as a result of a server finding out that another node has
             // been suspected, so there's nothing really wrong with the server
             // from which this node was received.
             logErrorAndThrowExceptionIfNeeded(retryCount, e);
+            if (statistics != null)
+               statistics.recordRetry();
          } finally {
             releaseTransport(transport);
          }
@@ -31,6 +31,20 @@ public class Codec20 implements Codec {
 
    final boolean trace = getLog().isTraceEnabled();
 
+   private final boolean compressedValues;
+
+   public Codec20() {
+      this(false);
+   }
+
+   /**
+    * @param compressedValues whether the values sent and received are framed by
+    *                         {@link org.infinispan.commons.io.CompressedValues}, and hence may be compressed
+    */
+   public Codec20(boolean compressedValues) {
+      this.compressedValues = compressedValues;
+   }
+
    @Override
    public HeaderParams writeHeader(Transport transport, HeaderParams params) {
       return writeHeader(transport, params, HotRodConstants.VERSION_20);
@@ -44,6 +58,8 @@ protected HeaderParams writeHeader(
       transport.writeByte(params.opCode);
       transport.writeArray(params.cacheName);
       int joinedFlags = HeaderParams.joinFlags(params.flags);
+      if (compressedValues)
+         joinedFlags |= HotRodConstants.COMPRESSED_VALUES_FLAG;
       transport.writeVInt(joinedFlags);
       transport.writeByte(params.clientIntel);
       transport.writeVInt(params.topologyId.get());
@@ -106,6 +122,31 @@ public short readHeader(Transport transport, HeaderParams params) {
       return status;
    }
 
+   /**
+    * Reads the header of an event pushed by the server to the listener added by the request with the given header,
+    * and returns the event's operation code. Events never carry topology updates.
+    */
+   public short readEventHeader(Transport transport, HeaderParams params) {
+      short magic = transport.readByte();
+      if (magic != HotRodConstants.RESPONSE_MAGIC) {
+         getLog().invalidMagicNumber(HotRodConstants.RESPONSE_MAGIC, magic);
+         throw new InvalidResponseException(String.format(
+               "Invalid magic number. Expected %#x and received %#x", HotRodConstants.RESPONSE_MAGIC, magic));
+      }
+      long receivedMessageId = transport.readVLong();
+      if (receivedMessageId != params.messageId) {
+         getLog().invalidMessageId(params.messageId, receivedMessageId);
+         throw new InvalidResponseException(String.format(
+               "Invalid message id. Expected %d and received %d", params.messageId, receivedMessageId));
+      }
+      short eventType = transport.readByte();
+      transport.readByte(); // status
+      transport.readByte(); // topology change marker
+      if (trace)
+         getLog().tracef("Received event %#04x for listener added by message id: %d", eventType, receivedMessageId);
+      return eventType;
+   }
+
    @Override
    public Log getLog() {
       return log;
@@ -36,4 +36,21 @@ public static Codec getCodec(String version) {
          throw new IllegalArgumentException("Invalid Hot Rod protocol version");
    }
 
+   /**
+    * @return whether the given protocol version lets clients send compressed values
+    */
+   public static boolean supportsCompressedValues(String version) {
+      return getCodec(version) instanceof Codec20;
+   }
+
+   /**
+    * @return a codec that flags every request as carrying compressed values
+    */
+   public static Codec getCompressedValuesCodec(String version) {
+      if (supportsCompressedValues(version))
+         return new Codec20(true);
+      else
+         throw new IllegalArgumentException("Hot Rod protocol version " + version + " does not support compressed values");
+   }
+
 }
@@ -57,6 +57,10 @@ public HeaderParams messageId(long messageId) {
       return this;
    }
 
+   public long messageId() {
+      return messageId;
+   }
+
    private short toOpRespCode(short opCode) {
       switch (opCode) {
          case HotRodConstants.PUT_REQUEST:
@@ -91,6 +95,20 @@ private short toOpRespCode(short opCode) {
             return HotRodConstants.BULK_GET_KEYS_RESPONSE;
          case HotRodConstants.QUERY_REQUEST:
             return HotRodConstants.QUERY_RESPONSE;
+         case HotRodConstants.GET_ALL_REQUEST:
+            return HotRodConstants.GET_ALL_RESPONSE;
+         case HotRodConstants.PUT_ALL_REQUEST:
+            return HotRodConstants.PUT_ALL_RESPONSE;
+         case HotRodConstants.ADD_CLIENT_LISTENER_REQUEST:
+            return HotRodConstants.ADD_CLIENT_LISTENER_RESPONSE;
+         case HotRodConstants.REMOVE_CLIENT_LISTENER_REQUEST:
+            return HotRodConstants.REMOVE_CLIENT_LISTENER_RESPONSE;
+         case HotRodConstants.ITERATION_START_REQUEST:
+            return HotRodConstants.ITERATION_START_RESPONSE;
+         case HotRodConstants.ITERATION_NEXT_REQUEST:
+            return HotRodConstants.ITERATION_NEXT_RESPONSE;
+         case HotRodConstants.ITERATION_END_REQUEST:
+            return HotRodConstants.ITERATION_END_RESPONSE;
          default:
             throw new IllegalStateException("Unknown operation code: " + opCode);
       }
@@ -36,6 +36,13 @@ public interface HotRodConstants {
    static final byte GET_WITH_METADATA = 0x1B;
    static final byte BULK_GET_KEYS_REQUEST = 0x1D;
    static final byte QUERY_REQUEST = 0x1F;
+   static final byte GET_ALL_REQUEST = 0x21;
+   static final byte PUT_ALL_REQUEST = 0x23;
+   static final byte ADD_CLIENT_LISTENER_REQUEST = 0x25;
+   static final byte REMOVE_CLIENT_LISTENER_REQUEST = 0x27;
+   static final byte ITERATION_START_REQUEST = 0x31;
+   static final byte ITERATION_NEXT_REQUEST = 0x33;
+   static final byte ITERATION_END_REQUEST = 0x35;
 
 
    //responses
@@ -55,8 +62,20 @@ public interface HotRodConstants {
    static final byte GET_WITH_METADATA_RESPONSE = 0x1C;
    static final byte BULK_GET_KEYS_RESPONSE = 0x1E;
    static final byte QUERY_RESPONSE = 0x20;
+   static final byte GET_ALL_RESPONSE = 0x22;
+   static final byte PUT_ALL_RESPONSE = 0x24;
+   static final byte ADD_CLIENT_LISTENER_RESPONSE = 0x26;
+   static final byte REMOVE_CLIENT_LISTENER_RESPONSE = 0x28;
+   static final byte ITERATION_START_RESPONSE = 0x32;
+   static final byte ITERATION_NEXT_RESPONSE = 0x34;
+   static final byte ITERATION_END_RESPONSE = 0x36;
    static final byte ERROR_RESPONSE = 0x50;
 
+   //events
+   static final byte CACHE_ENTRY_CREATED_EVENT = 0x60;
+   static final byte CACHE_ENTRY_MODIFIED_EVENT = 0x61;
+   static final byte CACHE_ENTRY_REMOVED_EVENT = 0x62;
+
    //response status
    static final byte NO_ERROR_STATUS = 0x00;
    static final int INVALID_MAGIC_OR_MESSAGE_ID_STATUS = 0x81;
@@ -78,4 +97,7 @@ public interface HotRodConstants {
 
    static final byte INFINITE_LIFESPAN = 0x01;
    static final byte INFINITE_MAXIDLE = 0x02;
+
+   // header flag, set by the protocol rather than by users, stating that the values are framed and maybe compressed
+   static final int COMPRESSED_VALUES_FLAG = 0x08;
 }
@@ -0,0 +1,25 @@
+package org.infinispan.client.hotrod.impl.transport;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+
+/**
+ * Callback invoked by a multiplexing transport when the response to a request arrives, or when the connection the
+ * request was sent on fails before the response could be read.
+ *
+ * @since 7.0
+ */
+public interface ResponseHandler {
+
+   /**
+    * Invoked when the response is at the head of the connection's input. The implementation must read the whole
+    * response, header included, from the given transport before returning, as the next response follows it on the
+    * same connection. Throwing a {@link TransportException} means the response could not be read completely: the
+    * connection is then closed, and {@link #failed(TransportException)} invoked with the exception.
+    */
+   void responseReceived(Transport transport);
+
+   /**
+    * Invoked, at most once, if the response can't be received or read.
+    */
+   void failed(TransportException e);
+}
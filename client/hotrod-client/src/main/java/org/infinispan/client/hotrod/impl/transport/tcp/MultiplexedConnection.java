@@ -0,0 +1,251 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.io.UnsignedNumeric;
+import org.infinispan.commons.util.Util;
+
+/**
+ * A connection to a server shared by any number of concurrent requests. Requests are written whole, one after the
+ * other, and the {@link ResponseHandler} of each request is registered under the message id of its header.
+ * <p/>
+ * A single reader thread per connection peeks at the magic and message id of each incoming response, and invokes the
+ * handler registered for it, which reads the response from the connection's input. Handlers of synchronous requests
+ * hand the input over to the thread waiting for the response, so only that thread ever decodes the response.
+ * <p/>
+ * Listener requests are answered by any number of messages with the message id of the request: the response, and
+ * then the events pushed by the server. Their handlers stay registered until the listener is removed, and are
+ * invoked for every message.
+ * <p/>
+ * Any error reading from or writing to the connection closes it, failing all its pending requests and listeners.
+ *
+ * @since 7.0
+ */
+final class MultiplexedConnection implements Runnable {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   // magic byte plus the longest vlong message id
+   private static final int HEADER_PEEK_LIMIT = 1 + 10;
+
+   private final SocketAddress serverAddress;
+   private final TcpTransportFactory transportFactory;
+   private final Socket socket;
+   private final SocketChannel socketChannel;
+   private final InputStream input;
+   private final OutputStream output;
+   private final Object writeLock = new Object();
+   private final ConcurrentMap<Long, ResponseHandler> pending = new ConcurrentHashMap<Long, ResponseHandler>();
+   private final ConcurrentMap<Long, ResponseHandler> listeners = new ConcurrentHashMap<Long, ResponseHandler>();
+   private final Thread reader;
+   private volatile boolean closed;
+
+   MultiplexedConnection(SocketAddress serverAddress, TcpTransportFactory transportFactory) {
+      this.serverAddress = serverAddress;
+      this.transportFactory = transportFactory;
+      try {
+         if (transportFactory.getSSLContext() != null) {
+            socketChannel = null; // We don't use a SocketChannel in the SSL case
+            socket = transportFactory.getSSLContext().getSocketFactory().createSocket();
+         } else {
+            socketChannel = SocketChannel.open();
+            socket = socketChannel.socket();
+         }
+         socket.connect(serverAddress, transportFactory.getConnectTimeout());
+         socket.setTcpNoDelay(transportFactory.isTcpNoDelay());
+         socket.setSoTimeout(transportFactory.getSoTimeout());
+         input = new BufferedInputStream(socket.getInputStream(), socket.getReceiveBufferSize());
+         output = new BufferedOutputStream(socket.getOutputStream(), socket.getSendBufferSize());
+      } catch (Exception e) {
+         Util.close(socketChannel);
+         String message = String.format("Could not connect to server: %s", serverAddress);
+         log.tracef(e, "Could not connect to server: %s", serverAddress);
+         throw new TransportException(message, e, serverAddress);
+      }
+      reader = new Thread(this, "HotRod-client-reader-" + serverAddress);
+      reader.setDaemon(true);
+      reader.start();
+   }
+
+   /**
+    * Registers the handler for the response to the given request and writes the request.
+    */
+   void send(long messageId, byte[] request, int length, ResponseHandler handler) {
+      send(messageId, request, length, handler, pending);
+   }
+
+   /**
+    * Registers the handler for all the messages answering the given listener request, until
+    * {@link #removeListener(long)} is called, and writes the request.
+    */
+   void sendListener(long messageId, byte[] request, int length, ResponseHandler handler) {
+      send(messageId, request, length, handler, listeners);
+   }
+
+   private void send(long messageId, byte[] request, int length, ResponseHandler handler,
+                     ConcurrentMap<Long, ResponseHandler> handlers) {
+      if (closed)
+         throw new TransportException("Connection closed", serverAddress);
+      handlers.put(messageId, handler);
+      // the connection may have been closed without seeing the handler
+      if (closed && handlers.remove(messageId) != null)
+         throw new TransportException("Connection closed", serverAddress);
+      try {
+         synchronized (writeLock) {
+            output.write(request, 0, length);
+            output.flush();
+         }
+         if (trace)
+            log.tracef("Wrote request %d (%d bytes) to %s", messageId, length, serverAddress);
+      } catch (IOException e) {
+         TransportException te = new TransportException(e, serverAddress);
+         boolean registered = handlers.remove(messageId) != null;
+         close(te);
+         if (registered)
+            throw te;
+      }
+   }
+
+   /**
+    * Unregisters the handler of a listener request. Messages for it received afterwards close the connection, so the
+    * server must have acknowledged the removal of the listener first.
+    */
+   void removeListener(long messageId) {
+      if (listeners.remove(messageId) != null)
+         transportFactory.listenerRemoved(this);
+   }
+
+   InputStream input() {
+      return input;
+   }
+
+   SocketAddress getServerAddress() {
+      return serverAddress;
+   }
+
+   SocketAddress getRemoteSocketAddress() {
+      return socket.getRemoteSocketAddress();
+   }
+
+   int getPendingCount() {
+      return pending.size();
+   }
+
+   int getListenerCount() {
+      return listeners.size();
+   }
+
+   boolean isClosed() {
+      return closed;
+   }
+
+   @Override
+   public void run() {
+      MultiplexedTransport transport = new MultiplexedTransport(this, transportFactory);
+      try {
+         while (!closed) {
+            input.mark(HEADER_PEEK_LIMIT);
+            int magic;
+            try {
+               magic = input.read();
+            } catch (SocketTimeoutException e) {
+               // an idle connection is fine, a server that doesn't answer isn't
+               if (pending.isEmpty())
+                  continue;
+               throw e;
+            }
+            if (magic == -1)
+               throw new TransportException("End of stream reached!", serverAddress);
+            long messageId = UnsignedNumeric.readUnsignedLong(input);
+            input.reset();
+
+            ResponseHandler handler = null;
+            if (magic == HotRodConstants.RESPONSE_MAGIC) {
+               handler = pending.remove(messageId);
+               if (handler == null)
+                  handler = listeners.get(messageId);
+            }
+            if (handler == null) {
+               // without a handler, nothing knows where the response ends
+               log.unexpectedResponse(messageId, serverAddress);
+               throw new TransportException("Unexpected response with message id " + messageId, serverAddress);
+            }
+            if (trace)
+               log.tracef("Received response %d from %s", messageId, serverAddress);
+            try {
+               handler.responseReceived(transport);
+            } catch (TransportException e) {
+               // so that closing the connection doesn't fail a listener's handler twice
+               listeners.remove(messageId, handler);
+               handler.failed(e);
+               throw e;
+            }
+            if (!transport.isValid())
+               throw new TransportException("Response " + messageId + " was not read correctly", serverAddress);
+         }
+      } catch (TransportException e) {
+         close(e);
+      } catch (IOException e) {
+         close(new TransportException(e, serverAddress));
+      } catch (RuntimeException e) {
+         close(new TransportException(e, serverAddress));
+      }
+   }
+
+   /**
+    * Closes the connection and fails the pending requests with the given exception.
+    */
+   void close(TransportException cause) {
+      synchronized (this) {
+         if (closed)
+            return;
+         closed = true;
+      }
+      transportFactory.connectionClosed(this);
+      List<ResponseHandler> failed = new ArrayList<ResponseHandler>(pending.values());
+      pending.clear();
+      failed.addAll(listeners.values());
+      listeners.clear();
+      if (!failed.isEmpty())
+         log.closingMultiplexedConnection(serverAddress, failed.size(), cause);
+      else if (trace)
+         log.tracef(cause, "Closing connection to %s", serverAddress);
+      Util.close(input, output, socketChannel);
+      Util.close(socket);
+      for (ResponseHandler handler : failed) {
+         try {
+            handler.failed(cause);
+         } catch (Throwable t) {
+            log.trace("Error failing pending request", t);
+         }
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{" +
+            "serverAddress=" + serverAddress +
+            ", pending=" + pending.size() +
+            ", listeners=" + listeners.size() +
+            ", closed=" + closed +
+            '}';
+   }
+}
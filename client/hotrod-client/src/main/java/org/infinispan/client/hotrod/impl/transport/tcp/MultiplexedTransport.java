@@ -0,0 +1,305 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedInt;
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedLong;
+import static org.infinispan.commons.io.UnsignedNumeric.writeUnsignedInt;
+import static org.infinispan.commons.io.UnsignedNumeric.writeUnsignedLong;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.io.ExposedByteArrayOutputStream;
+import org.infinispan.commons.io.UnsignedNumeric;
+
+/**
+ * A lightweight, single request {@link Transport} over a {@link MultiplexedConnection}. The request is buffered until
+ * it is flushed, and then written to the connection in one go, so that requests from concurrent callers don't
+ * interleave.
+ * <p/>
+ * After a plain {@link #flush()}, reading blocks until the response to the request reaches the head of the
+ * connection's input, and {@link #release()} gives the input back to the connection. After
+ * {@link #flush(ResponseHandler)}, the caller doesn't wait at all: the handler is invoked by the connection's reader
+ * thread.
+ *
+ * @since 7.0
+ */
+public class MultiplexedTransport extends AbstractTransport {
+
+   private static final Log log = LogFactory.getLog(MultiplexedTransport.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private final MultiplexedConnection connection;
+   private final ExposedByteArrayOutputStream request = new ExposedByteArrayOutputStream(128);
+   private SyncResponse response;
+   private volatile boolean invalid;
+
+   MultiplexedTransport(MultiplexedConnection connection, TcpTransportFactory transportFactory) {
+      super(transportFactory);
+      this.connection = connection;
+   }
+
+   @Override
+   public void writeVInt(int vInt) {
+      try {
+         writeUnsignedInt(request, vInt);
+      } catch (IOException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      try {
+         writeUnsignedLong(request, l);
+      } catch (IOException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      request.write(toAppend, 0, toAppend.length);
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      request.write(toWrite);
+   }
+
+   /**
+    * Sends the request, the response is then read from this transport by the calling thread.
+    */
+   @Override
+   public void flush() {
+      response = new SyncResponse();
+      flush(response);
+   }
+
+   /**
+    * Sends the request, and returns without waiting for the response: the handler is invoked by the connection's
+    * reader thread once it arrives.
+    */
+   public void flush(ResponseHandler handler) {
+      byte[] bytes = request.getRawBuffer();
+      connection.send(messageId(bytes), bytes, request.size(), handler);
+      request.reset();
+   }
+
+   /**
+    * Sends a listener request. The handler is invoked by the connection's reader thread for the response and for
+    * every event that follows, until {@link #removeListener(long)} is called with the request's message id.
+    */
+   public void flushListener(ResponseHandler handler) {
+      byte[] bytes = request.getRawBuffer();
+      connection.sendListener(messageId(bytes), bytes, request.size(), handler);
+      request.reset();
+   }
+
+   /**
+    * Stops routing the messages answering the given listener request.
+    */
+   public void removeListener(long messageId) {
+      connection.removeListener(messageId);
+   }
+
+   private static long messageId(byte[] header) {
+      // the message id follows the magic byte of the header
+      return UnsignedNumeric.readUnsignedLong(header, 1);
+   }
+
+   private InputStream input() {
+      if (response != null)
+         response.awaitTurn();
+      return connection.input();
+   }
+
+   @Override
+   public long readVLong() {
+      try {
+         return readUnsignedLong(input());
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   public int readVInt() {
+      try {
+         return readUnsignedInt(input());
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   public short readByte() {
+      int resultInt;
+      try {
+         resultInt = input().read();
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+      if (resultInt == -1) {
+         invalid = true;
+         throw new TransportException("End of stream reached!", getServerAddress());
+      }
+      return (short) resultInt;
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      byte[] result = new byte[size];
+      InputStream in = input();
+      int offset = 0;
+      while (offset < size) {
+         int read;
+         try {
+            read = in.read(result, offset, size - offset);
+         } catch (IOException e) {
+            invalid = true;
+            throw new TransportException(e, getServerAddress());
+         }
+         if (read == -1) {
+            invalid = true;
+            throw new TransportException("End of stream reached!", getServerAddress());
+         }
+         offset += read;
+      }
+      if (trace) {
+         log.tracef("Successfully read array with size: %d", size);
+      }
+      return result;
+   }
+
+   /**
+    * Gives the connection's input back to the reader thread, if this transport was reading a response.
+    */
+   @Override
+   public void release() {
+      if (response != null) {
+         response.release();
+         response = null;
+      }
+   }
+
+   /**
+    * The connection's input is shared with the other requests, so it can't be dumped.
+    */
+   @Override
+   public byte[] dumpStream() {
+      invalid = true;
+      return new byte[0];
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return connection.getRemoteSocketAddress();
+   }
+
+   public SocketAddress getServerAddress() {
+      return connection.getServerAddress();
+   }
+
+   MultiplexedConnection getConnection() {
+      return connection;
+   }
+
+   @Override
+   public void invalidate() {
+      invalid = true;
+   }
+
+   public boolean isValid() {
+      return !invalid && !connection.isClosed();
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedTransport{" +
+            "connection=" + connection +
+            "} ";
+   }
+
+   /**
+    * Hands the connection's input over from the reader thread to the thread waiting for the response, and back.
+    */
+   private final class SyncResponse implements ResponseHandler {
+      private final CountDownLatch received = new CountDownLatch(1);
+      private final CountDownLatch consumed = new CountDownLatch(1);
+      private volatile TransportException failure;
+      private volatile boolean reading;
+
+      @Override
+      public void responseReceived(Transport transport) {
+         received.countDown();
+         boolean interrupted = false;
+         try {
+            while (!connection.isClosed()) {
+               try {
+                  if (await(consumed))
+                     break;
+               } catch (InterruptedException e) {
+                  interrupted = true;
+               }
+            }
+         } finally {
+            if (interrupted)
+               Thread.currentThread().interrupt();
+         }
+         if (!reading || invalid)
+            throw new TransportException("Response was not read completely", getServerAddress());
+      }
+
+      @Override
+      public void failed(TransportException e) {
+         failure = e;
+         received.countDown();
+      }
+
+      void awaitTurn() {
+         if (reading)
+            return;
+         try {
+            if (!await(received)) {
+               TransportException e = new TransportException("Timed out waiting for the response", getServerAddress());
+               connection.close(e);
+               throw e;
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            invalid = true;
+            throw new TransportException(e, getServerAddress());
+         }
+         if (failure != null)
+            throw failure;
+         reading = true;
+      }
+
+      void release() {
+         consumed.countDown();
+      }
+
+      /**
+       * Waits for the latch for at most the socket timeout, if there is one.
+       */
+      private boolean await(CountDownLatch latch) throws InterruptedException {
+         int soTimeout = getTransportFactory().getSoTimeout();
+         if (soTimeout > 0)
+            return latch.await(soTimeout, TimeUnit.MILLISECONDS);
+         latch.await();
+         return true;
+      }
+   }
+}
@@ -0,0 +1,240 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.configuration.Configuration;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.operations.PingOperation;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * A {@link TcpTransportFactory} that, instead of pooling one connection per in-flight request, pipelines any number of
+ * concurrent requests over a few {@link MultiplexedConnection}s per server. Responses are matched to requests by the
+ * message id of their header.
+ * <p/>
+ * The number of connections opened to each server is the connection pool's
+ * {@link org.infinispan.client.hotrod.configuration.ConnectionPoolConfiguration#maxActive() maxActive}, or a single
+ * connection if it's unlimited. Connections are opened lazily and requests are spread over them round robin. A
+ * connection that fails is replaced on the next request.
+ * <p/>
+ * The transports handed out by this factory are {@link MultiplexedTransport}s, which can also send a request without
+ * waiting for its response. At most {@link Configuration#maxPendingRequests()} such asynchronous requests can be
+ * pending at the same time.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class MultiplexedTransportFactory extends TcpTransportFactory {
+
+   private static final Log log = LogFactory.getLog(MultiplexedTransportFactory.class, Log.class);
+
+   private final ConcurrentMap<SocketAddress, ServerConnections> connections =
+         new ConcurrentHashMap<SocketAddress, ServerConnections>();
+   private volatile int connectionsPerServer;
+   private volatile Codec codec;
+   private volatile AtomicInteger topologyId;
+   private volatile int maxPendingRequests;
+   private volatile Semaphore pendingRequests;
+
+   @Override
+   protected void createConnections(Codec codec, Configuration configuration, AtomicInteger topologyId) {
+      this.codec = codec;
+      this.topologyId = topologyId;
+      int maxActive = configuration.connectionPool().maxActive();
+      connectionsPerServer = maxActive > 0 ? maxActive : 1;
+      maxPendingRequests = configuration.maxPendingRequests();
+      pendingRequests = maxPendingRequests > 0 ? new Semaphore(maxPendingRequests) : null;
+   }
+
+   @Override
+   protected void pingServers() {
+      for (SocketAddress server : getServers()) {
+         Transport transport = null;
+         try {
+            // Force a connection to be established and a ping message to be sent,
+            // to retrieve a potentially newer version of the cluster topology
+            transport = borrowTransport(server);
+            new PingOperation(codec, topologyId, transport).execute();
+         } catch (Exception e) {
+            if (log.isTraceEnabled())
+               log.tracef(e, "Ignoring exception pinging configured server %s to establish a connection", server);
+         } finally {
+            if (transport != null)
+               releaseTransport(transport);
+         }
+      }
+   }
+
+   @Override
+   protected Transport borrowTransport(SocketAddress server) {
+      ServerConnections serverConnections = connections.get(server);
+      if (serverConnections == null) {
+         serverConnections = new ServerConnections(server, connectionsPerServer);
+         ServerConnections existing = connections.putIfAbsent(server, serverConnections);
+         if (existing != null)
+            serverConnections = existing;
+      }
+      return new MultiplexedTransport(serverConnections.next(), this);
+   }
+
+   @Override
+   public void releaseTransport(Transport transport) {
+      transport.release();
+   }
+
+   @Override
+   public void invalidateTransport(SocketAddress serverAddress, Transport transport) {
+      if (transport != null) {
+         ((MultiplexedTransport) transport).getConnection().close(
+               new TransportException("Transport invalidated", serverAddress));
+      } else {
+         ServerConnections serverConnections = connections.get(serverAddress);
+         if (serverConnections != null)
+            serverConnections.close();
+      }
+   }
+
+   @Override
+   protected void addServerConnections(SocketAddress server) {
+      // connections are opened on the first request
+   }
+
+   @Override
+   protected void removeServerConnections(SocketAddress server) {
+      ServerConnections serverConnections = connections.remove(server);
+      if (serverConnections != null)
+         serverConnections.close();
+   }
+
+   @Override
+   protected void closeConnections() {
+      for (SocketAddress server : new ArrayList<SocketAddress>(connections.keySet()))
+         removeServerConnections(server);
+   }
+
+   /**
+    * Listeners share the connections of the other requests, as each message is routed to its handler.
+    */
+   @Override
+   public MultiplexedTransport getListenerTransport(SocketAddress server) {
+      return (MultiplexedTransport) borrowTransport(server);
+   }
+
+   /**
+    * Invoked by a connection when it is closed, so that it is replaced on the next request.
+    */
+   @Override
+   void connectionClosed(MultiplexedConnection connection) {
+      ServerConnections serverConnections = connections.get(connection.getServerAddress());
+      if (serverConnections != null)
+         serverConnections.remove(connection);
+   }
+
+   /**
+    * Reserves one of the {@link Configuration#maxPendingRequests()} slots for an asynchronous request, waiting for at
+    * most the socket timeout for one to be released by {@link #releasePendingRequest()}. This throttles callers that
+    * issue asynchronous requests faster than the servers answer them.
+    *
+    * @throws HotRodClientException if no slot was released in time
+    */
+   public void acquirePendingRequest() {
+      Semaphore permits = pendingRequests;
+      if (permits == null)
+         return;
+      int soTimeout = getSoTimeout();
+      try {
+         if (soTimeout > 0) {
+            if (!permits.tryAcquire(soTimeout, TimeUnit.MILLISECONDS))
+               throw log.pendingRequestsTimeout(soTimeout, maxPendingRequests);
+         } else {
+            permits.acquire();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new HotRodClientException(e);
+      }
+   }
+
+   /**
+    * Releases a slot reserved by {@link #acquirePendingRequest()}, once the request has completed.
+    */
+   public void releasePendingRequest() {
+      Semaphore permits = pendingRequests;
+      if (permits != null)
+         permits.release();
+   }
+
+   /**
+    * @return the number of requests sent to the given server whose response hasn't been read yet
+    */
+   public int getPendingRequests(SocketAddress server) {
+      ServerConnections serverConnections = connections.get(server);
+      return serverConnections == null ? 0 : serverConnections.getPendingCount();
+   }
+
+   private final class ServerConnections {
+      private final SocketAddress server;
+      private final AtomicReferenceArray<MultiplexedConnection> slots;
+      private final AtomicInteger counter = new AtomicInteger();
+
+      ServerConnections(SocketAddress server, int size) {
+         this.server = server;
+         this.slots = new AtomicReferenceArray<MultiplexedConnection>(size);
+      }
+
+      MultiplexedConnection next() {
+         int slot = (counter.getAndIncrement() & Integer.MAX_VALUE) % slots.length();
+         MultiplexedConnection connection = slots.get(slot);
+         if (connection != null && !connection.isClosed())
+            return connection;
+         synchronized (this) {
+            connection = slots.get(slot);
+            if (connection == null || connection.isClosed()) {
+               connection = new MultiplexedConnection(server, MultiplexedTransportFactory.this);
+               slots.set(slot, connection);
+            }
+            return connection;
+         }
+      }
+
+      void remove(MultiplexedConnection connection) {
+         for (int i = 0; i < slots.length(); i++)
+            slots.compareAndSet(i, connection, null);
+      }
+
+      int getPendingCount() {
+         int pending = 0;
+         for (int i = 0; i < slots.length(); i++) {
+            MultiplexedConnection connection = slots.get(i);
+            if (connection != null)
+               pending += connection.getPendingCount();
+         }
+         return pending;
+      }
+
+      void close() {
+         List<MultiplexedConnection> toClose = new ArrayList<MultiplexedConnection>();
+         for (int i = 0; i < slots.length(); i++) {
+            MultiplexedConnection connection = slots.getAndSet(i, null);
+            if (connection != null)
+               toClose.add(connection);
+         }
+         for (MultiplexedConnection connection : toClose)
+            connection.close(new TransportException("Server connections closed", server));
+      }
+   }
+}
@@ -5,7 +5,9 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -20,6 +22,7 @@
 import org.infinispan.client.hotrod.configuration.ServerConfiguration;
 import org.infinispan.client.hotrod.configuration.SslConfiguration;
 import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.ClientStatisticsImpl;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
 import org.infinispan.client.hotrod.impl.consistenthash.SegmentConsistentHash;
@@ -51,6 +54,8 @@ public class TcpTransportFactory implements TransportFactory {
    private Collection<SocketAddress> servers;
    private ConsistentHash consistentHash;
    private final ConsistentHashFactory hashFactory = new ConsistentHashFactory();
+   // pooled connections are handed over to a single request at a time, so listeners get their own connections
+   private final Map<SocketAddress, MultiplexedConnection> listenerConnections = new HashMap<SocketAddress, MultiplexedConnection>();
 
    // the primitive fields are often accessed separately from the rest so it makes sense not to require synchronization for them
    private volatile boolean tcpNoDelay;
@@ -58,12 +63,12 @@ public class TcpTransportFactory implements TransportFactory {
    private volatile int connectTimeout;
    private volatile int maxRetries;
    private volatile SSLContext sslContext;
+   private volatile ClientStatisticsImpl statistics;
 
    @Override
    public void start(Codec codec, Configuration configuration, AtomicInteger topologyId) {
       synchronized (lock) {
          hashFactory.init(configuration);
-         boolean pingOnStartup = configuration.pingOnStartup();
          servers = new ArrayList<SocketAddress>();
          for(ServerConfiguration server : configuration.servers()) {
             servers.add(new InetSocketAddress(server.host(), server.port()));
@@ -90,11 +95,7 @@ public void start(Codec codec, Configuration configuration, AtomicInteger topolo
             log.debugf("Tcp no delay = %b; client socket timeout = %d ms; connect timeout = %d ms",
                        tcpNoDelay, soTimeout, connectTimeout);
          }
-         PropsKeyedObjectPoolFactory<SocketAddress, TcpTransport> poolFactory =
-               new PropsKeyedObjectPoolFactory<SocketAddress, TcpTransport>(
-                     new TransportObjectFactory(codec, this, topologyId, pingOnStartup),
-                     configuration.connectionPool());
-         createAndPreparePool(poolFactory);
+         createConnections(codec, configuration, topologyId);
          balancer.setServers(servers);
       }
 
@@ -102,7 +103,19 @@ public void start(Codec codec, Configuration configuration, AtomicInteger topolo
          pingServers();
    }
 
-   private void pingServers() {
+   /**
+    * Sets up the connections to the statically configured servers. Called with the factory lock held, once the
+    * configuration has been read.
+    */
+   protected void createConnections(Codec codec, Configuration configuration, AtomicInteger topologyId) {
+      PropsKeyedObjectPoolFactory<SocketAddress, TcpTransport> poolFactory =
+            new PropsKeyedObjectPoolFactory<SocketAddress, TcpTransport>(
+                  new TransportObjectFactory(codec, this, topologyId, configuration.pingOnStartup()),
+                  configuration.connectionPool());
+      createAndPreparePool(poolFactory);
+   }
+
+   protected void pingServers() {
       GenericKeyedObjectPool<SocketAddress, TcpTransport> pool = getConnectionPool();
       for (SocketAddress addr : servers) {
          try {
@@ -134,13 +147,25 @@ private void createAndPreparePool(PropsKeyedObjectPoolFactory<SocketAddress, Tcp
 
    @Override
    public void destroy() {
+      List<MultiplexedConnection> toClose;
       synchronized (lock) {
-         connectionPool.clear();
-         try {
-            connectionPool.close();
-         } catch (Exception e) {
-            log.warn("Exception while shutting down the connection pool.", e);
-         }
+         closeConnections();
+         toClose = new ArrayList<MultiplexedConnection>(listenerConnections.values());
+         listenerConnections.clear();
+      }
+      for (MultiplexedConnection connection : toClose)
+         connection.close(new TransportException("Transport factory destroyed", connection.getServerAddress()));
+   }
+
+   /**
+    * Closes the connections to all the servers. Called with the factory lock held.
+    */
+   protected void closeConnections() {
+      connectionPool.clear();
+      try {
+         connectionPool.close();
+      } catch (Exception e) {
+         log.warn("Exception while shutting down the connection pool.", e);
       }
    }
 
@@ -176,7 +201,7 @@ public Transport getTransport(Set<SocketAddress> failedServers) {
       synchronized (lock) {
          server = balancer.nextServer(failedServers);
       }
-      return borrowTransportFromPool(server);
+      return borrowTransport(server);
    }
 
    @Override
@@ -195,11 +220,16 @@ public Transport getTransport(byte[] key, Set<SocketAddress> failedServers) {
             }
          }
       }
-      return borrowTransportFromPool(server);
+      return borrowTransport(server);
    }
 
    @Override
    public void releaseTransport(Transport transport) {
+      if (transport instanceof MultiplexedTransport) {
+         // a listener transport, its connection is kept open by the listeners
+         transport.release();
+         return;
+      }
       // The invalidateObject()/returnObject() calls could take a long time, so we hold the lock only until we get the connection pool reference
       KeyedObjectPool<SocketAddress, TcpTransport> pool = getConnectionPool();
       TcpTransport tcpTransport = (TcpTransport) transport;
@@ -225,6 +255,11 @@ public void releaseTransport(Transport transport) {
 
    @Override
    public void invalidateTransport(SocketAddress serverAddress, Transport transport) {
+      if (transport instanceof MultiplexedTransport) {
+         ((MultiplexedTransport) transport).getConnection().close(
+               new TransportException("Transport invalidated", serverAddress));
+         return;
+      }
       KeyedObjectPool<SocketAddress, TcpTransport> pool = getConnectionPool();
       try {
          // Transport could be null, in which case all connections
@@ -256,11 +291,7 @@ public void updateServers(Collection<SocketAddress> newServers) {
          //1. first add new servers. For servers that went down, the returned transport will fail for now
          for (SocketAddress server : addedServers) {
             log.newServerAdded(server);
-            try {
-               connectionPool.addObject(server);
-            } catch (Exception e) {
-               log.failedAddingNewServer(server, e);
-            }
+            addServerConnections(server);
          }
 
          //2. now set the server list to the active list of servers. All the active servers (potentially together with some
@@ -272,13 +303,31 @@ public void updateServers(Collection<SocketAddress> newServers) {
          //3. Now just remove failed servers
          for (SocketAddress server : failedServers) {
             log.removingServer(server);
-            connectionPool.clear(server);
+            removeServerConnections(server);
          }
 
          servers = Collections.unmodifiableList(new ArrayList(newServers));
       }
    }
 
+   /**
+    * Opens connections to a server that joined the cluster. Called with the factory lock held.
+    */
+   protected void addServerConnections(SocketAddress server) {
+      try {
+         connectionPool.addObject(server);
+      } catch (Exception e) {
+         log.failedAddingNewServer(server, e);
+      }
+   }
+
+   /**
+    * Closes the connections to a server that left the cluster. Called with the factory lock held.
+    */
+   protected void removeServerConnections(SocketAddress server) {
+      connectionPool.clear(server);
+   }
+
    public Collection<SocketAddress> getServers() {
       synchronized (lock) {
          return servers;
@@ -293,9 +342,11 @@ private void logConnectionInfo(SocketAddress server) {
       }
    }
 
-   private Transport borrowTransportFromPool(SocketAddress server) {
+   protected Transport borrowTransport(SocketAddress server) {
       // The borrowObject() call could take a long time, so we hold the lock only until we get the connection pool reference
       KeyedObjectPool<SocketAddress, TcpTransport> pool = getConnectionPool();
+      ClientStatisticsImpl statistics = this.statistics;
+      long start = statistics != null ? System.nanoTime() : 0;
       try {
          return pool.borrowObject(server);
       } catch (Exception e) {
@@ -303,10 +354,107 @@ private Transport borrowTransportFromPool(SocketAddress server) {
          log.debug(message, e);
          throw new TransportException(message, e, server);
       } finally {
+         if (statistics != null)
+            statistics.recordBorrowWait(System.nanoTime() - start);
          logConnectionInfo(server);
       }
    }
 
+   /**
+    * Groups the keys by the server owning them according to the current consistent hash, so that each group can be
+    * sent to its owner in a single request. Without a consistent hash, all the keys end up in the same group.
+    */
+   public Collection<Set<byte[]>> groupKeysByServer(Set<byte[]> keys) {
+      if (keys.isEmpty())
+         return Collections.emptyList();
+      synchronized (lock) {
+         if (consistentHash == null)
+            return Collections.singletonList(keys);
+         Map<SocketAddress, Set<byte[]>> keysByServer = new HashMap<SocketAddress, Set<byte[]>>();
+         for (byte[] key : keys) {
+            SocketAddress server = consistentHash.getServer(key);
+            Set<byte[]> serverKeys = keysByServer.get(server);
+            if (serverKeys == null) {
+               serverKeys = new HashSet<byte[]>();
+               keysByServer.put(server, serverKeys);
+            }
+            serverKeys.add(key);
+         }
+         return keysByServer.values();
+      }
+   }
+
+   /**
+    * Groups the given segments, or all of them if {@code null}, by the server owning them according to the current
+    * consistent hash. Without a segment based consistent hash, every server is assumed to hold all the entries, so a
+    * single server is picked for all the segments.
+    */
+   public Map<SocketAddress, Set<Integer>> groupSegmentsByServer(Set<Integer> segments) {
+      synchronized (lock) {
+         if (consistentHash instanceof SegmentConsistentHash)
+            return ((SegmentConsistentHash) consistentHash).groupSegmentsByServer(segments);
+         return Collections.singletonMap(balancer.nextServer(null), segments);
+      }
+   }
+
+   /**
+    * Returns a transport to the given server, for requests that must reach the same server as a previous one.
+    */
+   public Transport getAddressTransport(SocketAddress server) {
+      return borrowTransport(server);
+   }
+
+   /**
+    * Returns a transport for adding a listener, over a connection able to carry the events pushed by the server
+    * without getting in the way of other requests. The server is picked by the balancer.
+    */
+   public MultiplexedTransport getListenerTransport(Set<SocketAddress> failedServers) {
+      SocketAddress server;
+      synchronized (lock) {
+         server = balancer.nextServer(failedServers);
+      }
+      return getListenerTransport(server);
+   }
+
+   /**
+    * Returns a transport for adding or removing a listener on the given server. Listeners of all the caches share a
+    * single connection per server, opened on demand and closed along with its last listener.
+    */
+   public MultiplexedTransport getListenerTransport(SocketAddress server) {
+      synchronized (listenerConnections) {
+         MultiplexedConnection connection = listenerConnections.get(server);
+         if (connection == null || connection.isClosed()) {
+            connection = new MultiplexedConnection(server, this);
+            listenerConnections.put(server, connection);
+         }
+         return new MultiplexedTransport(connection, this);
+      }
+   }
+
+   /**
+    * Invoked by a multiplexed connection when it is closed.
+    */
+   void connectionClosed(MultiplexedConnection connection) {
+      synchronized (listenerConnections) {
+         if (listenerConnections.get(connection.getServerAddress()) == connection)
+            listenerConnections.remove(connection.getServerAddress());
+      }
+   }
+
+   /**
+    * Invoked by a multiplexed connection when one of its listeners is removed. A dedicated listener connection is
+    * closed along with its last listener; a listener being added concurrently is then retried on a new connection.
+    */
+   void listenerRemoved(MultiplexedConnection connection) {
+      synchronized (listenerConnections) {
+         if (listenerConnections.get(connection.getServerAddress()) != connection
+               || connection.getListenerCount() > 0 || connection.getPendingCount() > 0)
+            return;
+         listenerConnections.remove(connection.getServerAddress());
+      }
+      connection.close(new TransportException("No listeners left", connection.getServerAddress()));
+   }
+
    /**
     * Note that the returned <code>ConsistentHash</code> may not be thread-safe.
     */
@@ -358,6 +506,18 @@ public RequestBalancingStrategy getBalancer() {
       }
    }
 
+   /**
+    * @return the statistics recorded by the operations using this factory, or null if statistics aren't enabled
+    */
+   public ClientStatisticsImpl getStatistics() {
+      return statistics;
+   }
+
+   public void setStatistics(ClientStatisticsImpl statistics) {
+      this.statistics = statistics;
+      statistics.setTransportFactory(this);
+   }
+
    public GenericKeyedObjectPool<SocketAddress, TcpTransport> getConnectionPool() {
       synchronized (lock) {
          return connectionPool;
@@ -127,4 +127,68 @@ public interface Log extends BasicLogger {
 
    @Message(value = "Invalid max_retries (value=%s). Value should be greater or equal than zero.", id = 4029)
    CacheConfigurationException invalidMaxRetries(int retriesPerServer);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Closing connection to %s, %d pending requests will be failed or retried", id = 4030)
+   void closingMultiplexedConnection(SocketAddress server, int pendingRequests, @Cause Throwable cause);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Received response with message id %d from %s, which matches no pending request", id = 4031)
+   void unexpectedResponse(long messageId, SocketAddress server);
+
+   @Message(value = "Timed out after %d ms waiting for one of the %d pending requests to complete", id = 4032)
+   HotRodClientException pendingRequestsTimeout(int timeout, int maxPendingRequests);
+
+   @Message(value = "Iteration %s is unknown to server %s, it may have been idle for too long", id = 4033)
+   HotRodClientException unknownIteration(String iterationId, SocketAddress server);
+
+   @Message(value = "Invalid near cache max entries (value=%s). Value should be greater than zero.", id = 4034)
+   CacheConfigurationException invalidNearCacheMaxEntries(int maxEntries);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Near cache disabled, as protocol version %s doesn't support the events needed to invalidate it", id = 4035)
+   void nearCacheUnsupported(String protocolVersion);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Lost the invalidation events of the near cache of cache '%s', clearing it", id = 4036)
+   void nearCacheInvalidationLost(String cacheName, @Cause Throwable cause);
+
+   @Message(value = "Client listener %s must be annotated with @ClientListener", id = 4037)
+   IllegalArgumentException missingClientListenerAnnotation(String listenerClass);
+
+   @Message(value = "Method %s annotated with @%s must be public and take a single parameter of type %s or a supertype", id = 4038)
+   IllegalArgumentException incorrectClientListenerMethod(String method, String annotation, String eventType);
+
+   @Message(value = "Client listeners require protocol version 2.0 or later, over TCP", id = 4039)
+   UnsupportedOperationException clientListenersUnsupported();
+
+   @LogMessage(level = WARN)
+   @Message(value = "Lost the connection of client listener %s, adding it again on another server", id = 4040)
+   void failingOverClientListener(Object listener, @Cause Throwable cause);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to add client listener %s again after %d attempts, it has been removed and won't receive any more events unless it is added again", id = 4041)
+   void unableToFailOverClientListener(Object listener, int attempts, @Cause Throwable cause);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Client listener method %s threw an exception", id = 4042)
+   void clientListenerMethodFailed(String method, @Cause Throwable cause);
+
+   @Message(value = "Invalid compression threshold (value=%s). Value should not be negative.", id = 4043)
+   CacheConfigurationException invalidCompressionThreshold(int threshold);
+
+   @Message(value = "Invalid compression level (value=%s). Value should be between 1 and 9.", id = 4044)
+   CacheConfigurationException invalidCompressionLevel(int level);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Value compression requires protocol version 2.0 or later, so it's disabled for protocol version %s", id = 4045)
+   void compressionUnsupported(String protocolVersion);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to register the client statistics MBean %s", id = 4046)
+   void unableToRegisterStatisticsMBean(String objectName, @Cause Throwable cause);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to unregister the client statistics MBean %s", id = 4047)
+   void unableToUnregisterStatisticsMBean(String objectName, @Cause Throwable cause);
 }
@@ -0,0 +1,247 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCustomEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientEvent;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.notifications.Converter;
+import org.infinispan.notifications.ConverterFactory;
+import org.infinispan.notifications.KeyValueFilter;
+import org.infinispan.notifications.KeyValueFilterFactory;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the listeners Hot Rod clients add on the servers, with and without server side filters and converters.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.ClientListenerTest")
+public class ClientListenerTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_SERVERS = 2;
+
+   private HotRodServer[] hotRodServers;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<String, String> remoteCache;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createCluster(hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false)), NUM_SERVERS);
+      hotRodServers = new HotRodServer[NUM_SERVERS];
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         hotRodServers[i] = TestHelper.startHotRodServer(manager(i));
+         hotRodServers[i].addKeyValueFilterFactory("single-key", new SingleKeyFilterFactory());
+         hotRodServers[i].addConverterFactory("value", new ValueConverterFactory());
+      }
+      remoteCacheManager = new RemoteCacheManager(TestHelper.getServersString(hotRodServers));
+      remoteCache = remoteCacheManager.getCache();
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotRodServers);
+   }
+
+   public void testEntryEvents() throws InterruptedException {
+      EventCollector listener = new EventCollector();
+      remoteCache.addClientListener(listener);
+      try {
+         assertTrue(remoteCache.getClientListeners().contains(listener));
+         remoteCache.put("k1", "v1");
+         remoteCache.put("k1", "v2");
+         remoteCache.remove("k1");
+
+         assertEvent(listener.events.poll(10, TimeUnit.SECONDS), ClientEvent.Type.CLIENT_CACHE_ENTRY_CREATED, "k1");
+         assertEvent(listener.events.poll(10, TimeUnit.SECONDS), ClientEvent.Type.CLIENT_CACHE_ENTRY_MODIFIED, "k1");
+         assertEvent(listener.events.poll(10, TimeUnit.SECONDS), ClientEvent.Type.CLIENT_CACHE_ENTRY_REMOVED, "k1");
+      } finally {
+         remoteCache.removeClientListener(listener);
+      }
+
+      remoteCache.put("k2", "v1");
+      assertNull(listener.events.poll(500, TimeUnit.MILLISECONDS));
+      assertTrue(remoteCache.getClientListeners().isEmpty());
+   }
+
+   public void testFilteredEvents() throws InterruptedException {
+      FilteredEventCollector listener = new FilteredEventCollector();
+      remoteCache.addClientListener(listener, new Object[]{"wanted"}, null);
+      try {
+         remoteCache.put("unwanted", "v1");
+         remoteCache.put("wanted", "v1");
+
+         assertEvent(listener.events.poll(10, TimeUnit.SECONDS), ClientEvent.Type.CLIENT_CACHE_ENTRY_CREATED, "wanted");
+         assertNull(listener.events.poll(500, TimeUnit.MILLISECONDS));
+      } finally {
+         remoteCache.removeClientListener(listener);
+      }
+   }
+
+   public void testConvertedEvents() throws InterruptedException {
+      ConvertedEventCollector listener = new ConvertedEventCollector();
+      remoteCache.addClientListener(listener);
+      try {
+         remoteCache.put("converted", "v1");
+         remoteCache.put("converted", "v2");
+
+         ClientCacheEntryCustomEvent<?> created = listener.events.poll(10, TimeUnit.SECONDS);
+         assertEquals(ClientEvent.Type.CLIENT_CACHE_ENTRY_CREATED, created.getType());
+         assertEquals("v1", created.getEventData());
+         ClientCacheEntryCustomEvent<?> modified = listener.events.poll(10, TimeUnit.SECONDS);
+         assertEquals(ClientEvent.Type.CLIENT_CACHE_ENTRY_MODIFIED, modified.getType());
+         assertEquals("v2", modified.getEventData());
+      } finally {
+         remoteCache.removeClientListener(listener);
+      }
+   }
+
+   public void testListenerUsingTheCache() throws InterruptedException {
+      CacheReadingListener listener = new CacheReadingListener();
+      remoteCache.addClientListener(listener);
+      try {
+         for (int i = 0; i < 10; i++) {
+            remoteCache.put("read" + i, "v" + i);
+         }
+         // the events are delivered in order, and reading the cache doesn't block the connection they came from
+         for (int i = 0; i < 10; i++) {
+            assertEquals("v" + i, listener.values.poll(10, TimeUnit.SECONDS));
+         }
+      } finally {
+         remoteCache.removeClientListener(listener);
+      }
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testListenerWithoutAnnotation() {
+      remoteCache.addClientListener(new Object());
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testListenerWithIncorrectMethod() {
+      remoteCache.addClientListener(new IncorrectListener());
+   }
+
+   private void assertEvent(ClientEvent event, ClientEvent.Type type, String key) {
+      assertEquals(type, event.getType());
+      switch (type) {
+         case CLIENT_CACHE_ENTRY_CREATED:
+            assertEquals(key, ((ClientCacheEntryCreatedEvent<?>) event).getKey());
+            break;
+         case CLIENT_CACHE_ENTRY_MODIFIED:
+            assertEquals(key, ((ClientCacheEntryModifiedEvent<?>) event).getKey());
+            break;
+         default:
+            assertEquals(key, ((ClientCacheEntryRemovedEvent<?>) event).getKey());
+      }
+   }
+
+   @ClientListener
+   public static class EventCollector {
+      final BlockingQueue<ClientEvent> events = new LinkedBlockingQueue<ClientEvent>();
+
+      @ClientCacheEntryCreated
+      @ClientCacheEntryModified
+      @ClientCacheEntryRemoved
+      public void onEvent(ClientEvent event) {
+         events.add(event);
+      }
+   }
+
+   @ClientListener(filterFactoryName = "single-key")
+   public static class FilteredEventCollector extends EventCollector {
+   }
+
+   @ClientListener(converterFactoryName = "value")
+   public static class ConvertedEventCollector {
+      final BlockingQueue<ClientCacheEntryCustomEvent<?>> events = new LinkedBlockingQueue<ClientCacheEntryCustomEvent<?>>();
+
+      @ClientCacheEntryCreated
+      @ClientCacheEntryModified
+      public void onEvent(ClientCacheEntryCustomEvent<?> event) {
+         events.add(event);
+      }
+   }
+
+   @ClientListener
+   public class CacheReadingListener {
+      final BlockingQueue<String> values = new LinkedBlockingQueue<String>();
+
+      @ClientCacheEntryCreated
+      public void onCreated(ClientCacheEntryCreatedEvent<String> event) {
+         values.add(remoteCache.get(event.getKey()));
+      }
+   }
+
+   @ClientListener
+   public static class IncorrectListener {
+      @ClientCacheEntryCreated
+      public void onCreated(String notAnEvent) {
+      }
+   }
+
+   /**
+    * The parameter is the wanted key, marshalled by the client just like the keys it stores.
+    */
+   static class SingleKeyFilterFactory implements KeyValueFilterFactory {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K, V> KeyValueFilter<K, V> getKeyValueFilter(Object[] params) {
+         return (KeyValueFilter<K, V>) new SingleKeyFilter((byte[]) params[0]);
+      }
+   }
+
+   static class SingleKeyFilter implements KeyValueFilter<byte[], byte[]>, Serializable {
+      private final byte[] key;
+
+      SingleKeyFilter(byte[] key) {
+         this.key = key;
+      }
+
+      @Override
+      public boolean accept(byte[] key, byte[] value, Metadata metadata) {
+         return Arrays.equals(this.key, key);
+      }
+   }
+
+   static class ValueConverterFactory implements ConverterFactory {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K, V, C> Converter<K, V, C> getConverter(Object[] params) {
+         return (Converter<K, V, C>) new ValueConverter();
+      }
+   }
+
+   /**
+    * Pushes the value, still marshalled by the client, instead of the key.
+    */
+   static class ValueConverter implements Converter<byte[], byte[], byte[]>, Serializable {
+      @Override
+      public byte[] convert(byte[] key, byte[] value, Metadata metadata) {
+         return value;
+      }
+   }
+}
@@ -0,0 +1,117 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.commons.util.Histogram;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the statistics collected by the client and their exposure through JMX.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.ClientStatisticsTest")
+public class ClientStatisticsTest extends SingleCacheManagerTest {
+
+   private static final String JMX_DOMAIN = ClientStatisticsTest.class.getSimpleName();
+
+   private HotRodServer hotRodServer;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<String, String> remoteCache;
+   private ClientStatistics statistics;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cacheManager = TestCacheManagerFactory.createCacheManager(hotRodCacheConfiguration());
+      hotRodServer = TestHelper.startHotRodServer(cacheManager);
+
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.addServers(TestHelper.getServersString(hotRodServer))
+            .statistics().jmxEnable().jmxDomain(JMX_DOMAIN);
+      remoteCacheManager = new RemoteCacheManager(builder.build());
+      remoteCache = remoteCacheManager.getCache();
+      statistics = remoteCacheManager.getClientStatistics();
+      return cacheManager;
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotRodServer);
+   }
+
+   @BeforeMethod
+   public void resetStatistics() {
+      statistics.reset();
+   }
+
+   public void testOperationLatencies() {
+      remoteCache.put("k1", "v1");
+      remoteCache.put("k2", "v2");
+      remoteCache.get("k1");
+
+      assertTrue(statistics.isEnabled());
+      Map<String, Histogram> latencies = statistics.getOperationLatencies();
+      assertEquals(2, latencies.get("Put").getCount());
+      assertEquals(1, latencies.get("Get").getCount());
+      assertTrue(latencies.get("Get").getMax() > 0);
+
+      Map<?, Histogram> serverLatencies = statistics.getServerLatencies();
+      assertEquals(1, serverLatencies.size());
+      assertEquals(3, serverLatencies.values().iterator().next().getCount());
+      assertEquals(0, statistics.getRetries());
+      assertEquals(0, statistics.getFailovers());
+   }
+
+   public void testConnectionPool() {
+      remoteCache.put("k1", "v1");
+
+      assertTrue(statistics.getConnectionPoolBorrowWait().getCount() > 0);
+      assertEquals(0, statistics.getConnectionPoolActive());
+      assertTrue(statistics.getConnectionPoolIdle() > 0);
+   }
+
+   public void testReset() {
+      remoteCache.put("k1", "v1");
+      statistics.reset();
+
+      assertTrue(statistics.getOperationLatencies().isEmpty());
+      assertTrue(statistics.getServerLatencies().isEmpty());
+      assertEquals(0, statistics.getConnectionPoolBorrowWait().getCount());
+   }
+
+   public void testMBean() throws Exception {
+      remoteCache.put("k1", "v1");
+
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(JMX_DOMAIN + ":type=RemoteCacheManager,name=" + ObjectName.quote("Default")
+            + ",component=ClientStatistics");
+      assertTrue(mBeanServer.isRegistered(name));
+      assertEquals(0L, mBeanServer.getAttribute(name, "Retries"));
+      assertTrue((Integer) mBeanServer.getAttribute(name, "ConnectionPoolIdle") > 0);
+      // MXBeans expose maps as tabular data
+      assertFalse(((TabularData) mBeanServer.getAttribute(name, "OperationCounts")).isEmpty());
+
+      mBeanServer.invoke(name, "reset", new Object[0], new String[0]);
+      assertTrue(statistics.getOperationLatencies().isEmpty());
+   }
+}
@@ -0,0 +1,126 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManagers;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.commons.io.CompressedValues;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that values compressed by some clients can be read by every client, when the server stores them compressed.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.CompressionTest")
+public class CompressionTest extends SingleCacheManagerTest {
+
+   private HotRodServer hotRodServer;
+   private RemoteCacheManager compressingCacheManager;
+   private RemoteCacheManager plainCacheManager;
+   private RemoteCache<String, String> compressing;
+   private RemoteCache<String, String> plain;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cacheManager = TestCacheManagerFactory.createCacheManager(hotRodCacheConfiguration());
+      hotRodServer = TestHelper.startHotRodServer(cacheManager, new HotRodServerConfigurationBuilder().storeCompressedValues(true));
+
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.addServers(TestHelper.getServersString(hotRodServer))
+            .compression().enable().threshold(64);
+      compressingCacheManager = new RemoteCacheManager(builder.build());
+      compressing = compressingCacheManager.getCache();
+
+      plainCacheManager = new RemoteCacheManager(TestHelper.getServersString(hotRodServer));
+      plain = plainCacheManager.getCache();
+      return cacheManager;
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManagers(compressingCacheManager, plainCacheManager);
+      killServers(hotRodServer);
+   }
+
+   public void testCompressedValueReadByAllClients() throws Exception {
+      String value = largeValue('a');
+      compressing.put("compressed", value);
+
+      byte[] stored = (byte[]) cache.get(key("compressed"));
+      assertTrue(CompressedValues.isCompressed(stored));
+      assertTrue(stored.length < value.length());
+
+      assertEquals(value, compressing.get("compressed"));
+      assertEquals(value, plain.get("compressed"));
+      assertEquals(value, plain.getVersioned("compressed").getValue());
+      assertEquals(value, plain.getWithMetadata("compressed").getValue());
+   }
+
+   public void testSmallValueNotCompressed() throws Exception {
+      compressing.put("small", "v");
+
+      byte[] stored = (byte[]) cache.get(key("small"));
+      assertFalse(CompressedValues.isCompressed(stored));
+      assertEquals("v", compressing.get("small"));
+      assertEquals("v", plain.get("small"));
+   }
+
+   public void testPlainValueReadByCompressingClient() throws Exception {
+      String value = largeValue('b');
+      plain.put("plain", value);
+
+      // Values from clients that don't compress are stored framed too
+      byte[] stored = (byte[]) cache.get(key("plain"));
+      assertFalse(CompressedValues.isCompressed(stored));
+      assertEquals(value, compressing.get("plain"));
+      assertEquals(value, compressing.put("plain", largeValue('c')));
+      assertEquals(largeValue('c'), plain.get("plain"));
+   }
+
+   public void testBulkReads() {
+      String value = largeValue('d');
+      compressing.putAll(Collections.singletonMap("bulk", value));
+
+      Map<String, String> all = plain.getAll(new HashSet<String>(Arrays.asList("bulk")));
+      assertEquals(value, all.get("bulk"));
+      assertEquals(value, compressing.getBulk().get("bulk"));
+      assertEquals(value, plain.getBulk().get("bulk"));
+   }
+
+   public void testStatistics() {
+      compressing.put("stats", largeValue('e'));
+      plain.get("stats");
+
+      ServerStatistics stats = plain.stats();
+      assertTrue(Long.parseLong(stats.getStatistic(ServerStatistics.COMPRESSED_STORES)) > 0);
+      assertTrue(Double.parseDouble(stats.getStatistic(ServerStatistics.COMPRESSION_RATIO)) > 1);
+      assertTrue(Long.parseLong(stats.getStatistic(ServerStatistics.DECOMPRESSIONS)) > 0);
+      assertTrue(Long.parseLong(stats.getStatistic(ServerStatistics.DECOMPRESSION_TIME)) > 0);
+   }
+
+   private String largeValue(char c) {
+      char[] chars = new char[4096];
+      Arrays.fill(chars, c);
+      return new String(chars);
+   }
+
+   private byte[] key(String key) throws Exception {
+      return plainCacheManager.getMarshaller().objectToByteBuffer(key);
+   }
+}
@@ -0,0 +1,107 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the GET_ALL and PUT_ALL operations against a distributed cluster, where the keys are spread over several
+ * servers.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.GetAllPutAllDistTest")
+public class GetAllPutAllDistTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_SERVERS = 3;
+
+   private HotRodServer[] hotRodServers;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<String, String> remoteCache;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createCluster(hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false)), NUM_SERVERS);
+      hotRodServers = new HotRodServer[NUM_SERVERS];
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         EmbeddedCacheManager cm = cacheManagers.get(i);
+         hotRodServers[i] = TestHelper.startHotRodServer(cm);
+      }
+      remoteCacheManager = new RemoteCacheManager(TestHelper.getServersString(hotRodServers));
+      remoteCache = remoteCacheManager.getCache();
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotRodServers);
+   }
+
+   public void testPutAllAndGetAll() {
+      Map<String, String> data = entries("k", 100);
+      remoteCache.putAll(data);
+
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         assertTrue(cache(i).size() < 100);
+      }
+      for (Map.Entry<String, String> entry : data.entrySet()) {
+         assertEquals(entry.getValue(), remoteCache.get(entry.getKey()));
+      }
+
+      Set<String> keys = new HashSet<String>(data.keySet());
+      keys.add("missing");
+      Map<String, String> result = remoteCache.getAll(keys);
+      assertEquals(data, result);
+   }
+
+   public void testPutAllAsync() throws Exception {
+      Map<String, String> data = entries("async", 50);
+      remoteCache.putAllAsync(data).get();
+      assertEquals(data, remoteCache.getAll(data.keySet()));
+   }
+
+   public void testEmptyGetAllAndPutAll() {
+      remoteCache.putAll(new HashMap<String, String>());
+      assertTrue(remoteCache.getAll(new HashSet<String>()).isEmpty());
+   }
+
+   public void testOlderProtocolVersion() {
+      RemoteCacheManager oldRemoteCacheManager = new RemoteCacheManager(
+            new ConfigurationBuilder()
+                  .addServers(TestHelper.getServersString(hotRodServers))
+                  .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13)
+                  .build());
+      try {
+         RemoteCache<String, String> oldRemoteCache = oldRemoteCacheManager.getCache();
+         Map<String, String> data = entries("old", 20);
+         oldRemoteCache.putAll(data);
+         assertEquals(data, oldRemoteCache.getAll(data.keySet()));
+      } finally {
+         killRemoteCacheManager(oldRemoteCacheManager);
+      }
+   }
+
+   private static Map<String, String> entries(String prefix, int count) {
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < count; i++) {
+         data.put(prefix + i, "v" + i);
+      }
+      return data;
+   }
+}
@@ -0,0 +1,21 @@
+package org.infinispan.client.hotrod;
+
+import java.util.Properties;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the async API tests with requests multiplexed over shared connections.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.MultiplexedRemoteAsyncAPITest")
+public class MultiplexedRemoteAsyncAPITest extends RemoteAsyncAPITest {
+
+   @Override
+   protected void configureClient(Properties props) {
+      props.put(ConfigurationProperties.TRANSPORT_FACTORY, MultiplexedTransportFactory.class.getName());
+   }
+}
@@ -0,0 +1,149 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that many concurrent requests share a couple of multiplexed connections.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.MultiplexedTransportTest")
+public class MultiplexedTransportTest extends SingleCacheManagerTest {
+
+   private static final int THREADS = 20;
+   private static final int KEYS_PER_THREAD = 50;
+
+   private HotRodServer hotRodServer;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<String, String> remoteCache;
+   private MultiplexedTransportFactory transportFactory;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      cacheManager = TestCacheManagerFactory.createCacheManager(hotRodCacheConfiguration());
+      hotRodServer = TestHelper.startHotRodServer(cacheManager);
+
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.addServer().host("localhost").port(hotRodServer.getPort())
+            .transportFactory(MultiplexedTransportFactory.class)
+            .connectionPool().maxActive(2);
+      remoteCacheManager = new RemoteCacheManager(builder.build());
+      remoteCache = remoteCacheManager.getCache();
+      transportFactory = (MultiplexedTransportFactory) TestingUtil.extractField(remoteCacheManager, "transportFactory");
+      return cacheManager;
+   }
+
+   @AfterClass
+   @Override
+   protected void destroyAfterClass() {
+      super.destroyAfterClass();
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotRodServer);
+   }
+
+   public void testConcurrentSyncAndAsyncOperations() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  List<Future<String>> puts = new ArrayList<Future<String>>();
+                  for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                     puts.add(remoteCache.putAsync(key(thread, i), "v" + i));
+                  }
+                  for (Future<String> put : puts) {
+                     assertNull(put.get());
+                  }
+                  for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                     if (i % 2 == 0)
+                        assertEquals("v" + i, remoteCache.get(key(thread, i)));
+                     else
+                        assertEquals("v" + i, remoteCache.getAsync(key(thread, i)).get());
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures)
+            future.get();
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertEquals(THREADS * KEYS_PER_THREAD, cache.size());
+      assertEquals(0, transportFactory.getPendingRequests(new InetSocketAddress("localhost", hotRodServer.getPort())));
+   }
+
+   public void testRemoveAndReplaceAsync() throws Exception {
+      remoteCache.put("k", "v1");
+      assertEquals("v1", remoteCache.withFlags(Flag.FORCE_RETURN_VALUE).replaceAsync("k", "v2").get());
+      assertEquals("v2", remoteCache.withFlags(Flag.FORCE_RETURN_VALUE).removeAsync("k").get());
+      assertNull(remoteCache.getAsync("k").get());
+   }
+
+   public void testPendingRequestsLimit() throws Exception {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.addServer().host("localhost").port(hotRodServer.getPort())
+            .transportFactory(MultiplexedTransportFactory.class)
+            .maxPendingRequests(4);
+      RemoteCacheManager limitedCacheManager = new RemoteCacheManager(builder.build());
+      try {
+         RemoteCache<String, String> limitedCache = limitedCacheManager.getCache();
+         MultiplexedTransportFactory limitedTransportFactory =
+               (MultiplexedTransportFactory) TestingUtil.extractField(limitedCacheManager, "transportFactory");
+         InetSocketAddress server = new InetSocketAddress("localhost", hotRodServer.getPort());
+
+         List<Future<String>> puts = new ArrayList<Future<String>>();
+         for (int i = 0; i < 200; i++) {
+            puts.add(limitedCache.putAsync("limited" + i, "v" + i));
+            assertTrue(limitedTransportFactory.getPendingRequests(server) <= 4);
+         }
+         for (Future<String> put : puts) {
+            assertNull(put.get());
+         }
+
+         Map<String, String> data = new HashMap<String, String>();
+         for (int i = 0; i < 100; i++) {
+            data.put("limitedAll" + i, "v" + i);
+         }
+         limitedCache.putAllAsync(data).get();
+         for (int i = 0; i < 100; i++) {
+            assertEquals("v" + i, limitedCache.get("limitedAll" + i));
+         }
+      } finally {
+         killRemoteCacheManager(limitedCacheManager);
+      }
+   }
+
+   private static String key(int thread, int i) {
+      return "k" + thread + "-" + i;
+   }
+}
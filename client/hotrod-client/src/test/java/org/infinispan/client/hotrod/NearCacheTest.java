@@ -0,0 +1,143 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManagers;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
+import org.infinispan.client.hotrod.impl.near.LfuNearCache;
+import org.infinispan.client.hotrod.impl.near.LruNearCache;
+import org.infinispan.client.hotrod.impl.near.NearCache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.context.Flag;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the near cache of a remote cache, which is invalidated by the events the servers push to the client.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.NearCacheTest")
+public class NearCacheTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_SERVERS = 2;
+
+   private HotRodServer[] hotRodServers;
+   private RemoteCacheManager nearCacheManager;
+   private RemoteCacheManager writerCacheManager;
+   private RemoteCache<String, String> nearCache;
+   private RemoteCache<String, String> writer;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createCluster(hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false)), NUM_SERVERS);
+      hotRodServers = new HotRodServer[NUM_SERVERS];
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         hotRodServers[i] = TestHelper.startHotRodServer(manager(i));
+      }
+
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.addServers(TestHelper.getServersString(hotRodServers))
+            .nearCache().mode(NearCacheMode.INVALIDATED).maxEntries(100);
+      nearCacheManager = new RemoteCacheManager(builder.build());
+      nearCache = nearCacheManager.getCache();
+
+      writerCacheManager = new RemoteCacheManager(TestHelper.getServersString(hotRodServers));
+      writer = writerCacheManager.getCache();
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManagers(nearCacheManager, writerCacheManager);
+      killServers(hotRodServers);
+   }
+
+   public void testReadHitsNearCache() throws Exception {
+      writer.put("hit", "v1");
+      assertEquals("v1", nearCache.get("hit"));
+
+      // a write the servers don't notify the client about is only seen once the entry leaves the near cache
+      cache(0).getAdvancedCache().withFlags(Flag.SKIP_LISTENER_NOTIFICATION).put(key("hit"), value("v2"));
+      assertEquals("v1", nearCache.get("hit"));
+   }
+
+   public void testRemoteWriteInvalidates() {
+      writer.put("remote", "v1");
+      assertEquals("v1", nearCache.get("remote"));
+
+      writer.put("remote", "v2");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "v2".equals(nearCache.get("remote"));
+         }
+      });
+
+      writer.remove("remote");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return nearCache.get("remote") == null;
+         }
+      });
+   }
+
+   public void testOwnWriteInvalidates() {
+      nearCache.put("own", "v1");
+      assertEquals("v1", nearCache.get("own"));
+      nearCache.put("own", "v2");
+      assertEquals("v2", nearCache.get("own"));
+      nearCache.remove("own");
+      assertNull(nearCache.get("own"));
+   }
+
+   public void testExpiringEntriesNotCached() throws Exception {
+      writer.put("expiring", "v1", 10, TimeUnit.MINUTES);
+      assertEquals("v1", nearCache.get("expiring"));
+
+      cache(0).getAdvancedCache().withFlags(Flag.SKIP_LISTENER_NOTIFICATION).put(key("expiring"), value("v2"));
+      assertEquals("v2", nearCache.get("expiring"));
+   }
+
+   public void testLruEviction() {
+      NearCache<String, String> lru = new LruNearCache<String, String>(2);
+      lru.put("a", "1");
+      lru.put("b", "2");
+      lru.get("a");
+      lru.put("c", "3");
+      assertEquals(2, lru.size());
+      assertEquals("1", lru.get("a"));
+      assertNull(lru.get("b"));
+      assertEquals("3", lru.get("c"));
+   }
+
+   public void testLfuEviction() {
+      NearCache<String, String> lfu = new LfuNearCache<String, String>(2);
+      lfu.put("a", "1");
+      lfu.put("b", "2");
+      lfu.get("a");
+      lfu.get("a");
+      lfu.get("b");
+      lfu.put("c", "3");
+      assertEquals(2, lfu.size());
+      assertEquals("1", lfu.get("a"));
+      assertNull(lfu.get("b"));
+      assertEquals("3", lfu.get("c"));
+   }
+
+   private byte[] key(String key) throws Exception {
+      return nearCacheManager.getMarshaller().objectToByteBuffer(key);
+   }
+
+   private byte[] value(String value) throws Exception {
+      return nearCacheManager.getMarshaller().objectToByteBuffer(value);
+   }
+}
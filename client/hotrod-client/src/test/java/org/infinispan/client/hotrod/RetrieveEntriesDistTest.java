@@ -0,0 +1,119 @@
+package org.infinispan.client.hotrod;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests iterating over the entries of a distributed cache in batches, through server side cursors.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.RetrieveEntriesDistTest")
+public class RetrieveEntriesDistTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_SERVERS = 3;
+   private static final int NUM_ENTRIES = 500;
+
+   private HotRodServer[] hotRodServers;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<String, String> remoteCache;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createCluster(hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false)), NUM_SERVERS);
+      hotRodServers = new HotRodServer[NUM_SERVERS];
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         EmbeddedCacheManager cm = cacheManagers.get(i);
+         hotRodServers[i] = TestHelper.startHotRodServer(cm);
+      }
+      remoteCacheManager = new RemoteCacheManager(TestHelper.getServersString(hotRodServers));
+      remoteCache = remoteCacheManager.getCache();
+
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+         data.put("k" + i, "v" + i);
+      }
+      remoteCache.putAll(data);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotRodServers);
+   }
+
+   public void testRetrieveAllEntries() {
+      Map<String, String> entries = drain(remoteCache.retrieveEntries(7));
+      assertEquals(NUM_ENTRIES, entries.size());
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+         assertEquals("v" + i, entries.get("k" + i));
+      }
+      assertNoActiveIterations();
+   }
+
+   public void testRetrieveEntriesBySegment() {
+      int numSegments = cache(0).getCacheConfiguration().clustering().hash().numSegments();
+      Set<Integer> firstHalf = new HashSet<Integer>();
+      Set<Integer> secondHalf = new HashSet<Integer>();
+      for (int i = 0; i < numSegments; i++) {
+         (i < numSegments / 2 ? firstHalf : secondHalf).add(i);
+      }
+
+      Map<String, String> first = drain(remoteCache.retrieveEntries(firstHalf, 10));
+      Map<String, String> second = drain(remoteCache.retrieveEntries(secondHalf, 10));
+      assertTrue(first.size() > 0);
+      assertTrue(second.size() > 0);
+      for (String key : first.keySet()) {
+         assertFalse(second.containsKey(key));
+      }
+      assertEquals(NUM_ENTRIES, first.size() + second.size());
+      assertNoActiveIterations();
+   }
+
+   public void testCloseBeforeExhausted() {
+      CloseableIterator<Map.Entry<String, String>> iterator = remoteCache.retrieveEntries(5);
+      for (int i = 0; i < 3; i++) {
+         assertTrue(iterator.hasNext());
+         iterator.next();
+      }
+      iterator.close();
+      assertFalse(iterator.hasNext());
+      assertNoActiveIterations();
+   }
+
+   private static Map<String, String> drain(CloseableIterator<Map.Entry<String, String>> iterator) {
+      Map<String, String> entries = new HashMap<String, String>();
+      try {
+         while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            assertTrue(entries.put(entry.getKey(), entry.getValue()) == null);
+         }
+      } finally {
+         iterator.close();
+      }
+      return entries;
+   }
+
+   private void assertNoActiveIterations() {
+      for (HotRodServer server : hotRodServers) {
+         assertEquals(0, server.getIterationManager().activeIterations());
+      }
+   }
+}
@@ -3,6 +3,7 @@
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
 import org.infinispan.server.hotrod.test.HotRodTestingUtil;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -25,6 +26,13 @@ public class TestHelper {
    private static final AtomicInteger uniquePort = new AtomicInteger(15232);
 
    public static HotRodServer startHotRodServer(EmbeddedCacheManager cacheManager) {
+      return startHotRodServer(cacheManager, null);
+   }
+
+   /**
+    * @param builder the configuration of the server, or null for the default one. Its host and port are overridden.
+    */
+   public static HotRodServer startHotRodServer(EmbeddedCacheManager cacheManager, HotRodServerConfigurationBuilder builder) {
       // TODO: This is very rudimentary!! HotRodTestingUtil needs a more robust solution where ports are generated randomly and retries if already bound
       HotRodServer server = null;
       int maxTries = 10;
@@ -32,7 +40,9 @@ public static HotRodServer startHotRodServer(EmbeddedCacheManager cacheManager)
       ChannelException lastException = null;
       while (server == null && currentTries < maxTries) {
          try {
-            server = HotRodTestingUtil.startHotRodServer(cacheManager, uniquePort.incrementAndGet());
+            int port = uniquePort.incrementAndGet();
+            server = builder == null ? HotRodTestingUtil.startHotRodServer(cacheManager, port)
+                  : HotRodTestingUtil.startHotRodServer(cacheManager, port, builder);
          } catch (ChannelException e) {
             if (!(e.getCause() instanceof BindException)) {
                throw e;
@@ -48,6 +48,19 @@ public void testConfiguration() {
          .keySizeEstimate(128)
          .valueSizeEstimate(1024)
          .maxRetries(0)
+         .maxPendingRequests(16)
+         .nearCache()
+            .mode(NearCacheMode.INVALIDATED)
+            .maxEntries(512)
+            .eviction(NearCacheEviction.LFU)
+         .compression()
+            .enable()
+            .threshold(2048)
+            .level(6)
+         .statistics()
+            .jmxEnable()
+            .jmxDomain("org.example")
+            .jmxName("test")
          .transportFactory(SomeTransportfactory.class);
 
       Configuration configuration = builder.build();
@@ -85,6 +98,40 @@ public void testNegativeRetriesPerServer() {
       builder.build();
    }
 
+   @Test(expectedExceptions = CacheConfigurationException.class,
+         expectedExceptionsMessageRegExp = "ISPN(\\d)*: Invalid near cache max entries \\(value=0\\). " +
+               "Value should be greater than zero.")
+   public void testInvalidNearCacheMaxEntries() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.nearCache().mode(NearCacheMode.INVALIDATED).maxEntries(0);
+      builder.build();
+   }
+
+   public void testNearCacheDisabledByDefault() {
+      Configuration configuration = new ConfigurationBuilder().build();
+      assertEquals(NearCacheMode.DISABLED, configuration.nearCache().mode());
+   }
+
+   @Test(expectedExceptions = CacheConfigurationException.class,
+         expectedExceptionsMessageRegExp = "ISPN(\\d)*: Invalid compression level \\(value=10\\). " +
+               "Value should be between 1 and 9.")
+   public void testInvalidCompressionLevel() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.compression().enable().level(10);
+      builder.build();
+   }
+
+   public void testCompressionDisabledByDefault() {
+      Configuration configuration = new ConfigurationBuilder().build();
+      assertFalse(configuration.compression().enabled());
+   }
+
+   public void testStatisticsDisabledByDefault() {
+      Configuration configuration = new ConfigurationBuilder().build();
+      assertFalse(configuration.statistics().enabled());
+      assertFalse(configuration.statistics().jmxEnabled());
+   }
+
    private void assertServer(String host, int port, ServerConfiguration serverCfg) {
       assertEquals(host, serverCfg.host());
       assertEquals(port, serverCfg.port());
@@ -115,5 +162,16 @@ private void validateConfiguration(Configuration configuration) {
       assertEquals(128, configuration.keySizeEstimate());
       assertEquals(1024, configuration.valueSizeEstimate());
       assertEquals(0, configuration.maxRetries());
+      assertEquals(16, configuration.maxPendingRequests());
+      assertEquals(NearCacheMode.INVALIDATED, configuration.nearCache().mode());
+      assertEquals(512, configuration.nearCache().maxEntries());
+      assertEquals(NearCacheEviction.LFU, configuration.nearCache().eviction());
+      assertTrue(configuration.compression().enabled());
+      assertEquals(2048, configuration.compression().threshold());
+      assertEquals(6, configuration.compression().level());
+      assertTrue(configuration.statistics().enabled());
+      assertTrue(configuration.statistics().jmxEnabled());
+      assertEquals("org.example", configuration.statistics().jmxDomain());
+      assertEquals("test", configuration.statistics().jmxName());
    }
 }
@@ -0,0 +1,149 @@
+package org.infinispan.commons.io;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.infinispan.commons.CacheException;
+
+/**
+ * Frames values so that readers can tell whether they were compressed. A frame starts with a byte identifying how the
+ * payload is encoded: {@link #RAW} frames carry the value as is, whereas {@link #DEFLATE} frames carry the length of
+ * the uncompressed value as a variable length int followed by the deflated value.
+ *
+ * @since 7.0
+ */
+public final class CompressedValues {
+
+   public static final byte RAW = 0;
+   public static final byte DEFLATE = 1;
+
+   private CompressedValues() {
+   }
+
+   /**
+    * Frames the value, deflating it if it's at least <tt>threshold</tt> bytes long and deflating actually makes it
+    * smaller.
+    *
+    * @param level the {@link Deflater} compression level
+    */
+   public static byte[] compress(byte[] value, int threshold, int level) {
+      if (value.length < threshold)
+         return frame(value);
+
+      int headerLength = 1 + unsignedIntLength(value.length);
+      // Anything that doesn't fit in the original length isn't worth decompressing later
+      int limit = value.length;
+      if (limit <= headerLength)
+         return frame(value);
+
+      byte[] buf = new byte[limit];
+      Deflater deflater = new Deflater(level);
+      try {
+         deflater.setInput(value);
+         deflater.finish();
+         int offset = headerLength;
+         while (!deflater.finished() && offset < limit) {
+            offset += deflater.deflate(buf, offset, limit - offset);
+         }
+         if (!deflater.finished())
+            return frame(value);
+
+         buf[0] = DEFLATE;
+         writeUnsignedInt(buf, 1, value.length);
+         return Arrays.copyOf(buf, offset);
+      } finally {
+         deflater.end();
+      }
+   }
+
+   /**
+    * Frames the value without compressing it.
+    */
+   public static byte[] frame(byte[] value) {
+      byte[] framed = new byte[value.length + 1];
+      framed[0] = RAW;
+      System.arraycopy(value, 0, framed, 1, value.length);
+      return framed;
+   }
+
+   /**
+    * @return the value that was framed, inflating it if necessary
+    */
+   public static byte[] unframe(byte[] framed) {
+      switch (framed[0]) {
+         case RAW:
+            return Arrays.copyOfRange(framed, 1, framed.length);
+         case DEFLATE:
+            return inflate(framed);
+         default:
+            throw new CacheException("Unknown value encoding: " + framed[0]);
+      }
+   }
+
+   /**
+    * @return whether the value in the frame was compressed
+    */
+   public static boolean isCompressed(byte[] framed) {
+      return framed[0] == DEFLATE;
+   }
+
+   /**
+    * @return the length of the value in the frame once it's uncompressed
+    */
+   public static int uncompressedLength(byte[] framed) {
+      return isCompressed(framed) ? readUnsignedInt(framed, 1) : framed.length - 1;
+   }
+
+   private static byte[] inflate(byte[] framed) {
+      int length = readUnsignedInt(framed, 1);
+      int offset = 1 + unsignedIntLength(length);
+      byte[] value = new byte[length];
+      Inflater inflater = new Inflater();
+      try {
+         inflater.setInput(framed, offset, framed.length - offset);
+         int read = 0;
+         while (!inflater.finished() && read < length) {
+            int n = inflater.inflate(value, read, length - read);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+               break;
+            read += n;
+         }
+         if (read != length || !inflater.finished())
+            throw new CacheException("Compressed value is truncated, expected " + length + " bytes but got " + read);
+         return value;
+      } catch (DataFormatException e) {
+         throw new CacheException("Unable to inflate value", e);
+      } finally {
+         inflater.end();
+      }
+   }
+
+   private static int unsignedIntLength(int i) {
+      int length = 1;
+      while ((i & ~0x7F) != 0) {
+         i >>>= 7;
+         length++;
+      }
+      return length;
+   }
+
+   private static void writeUnsignedInt(byte[] buf, int offset, int i) {
+      while ((i & ~0x7F) != 0) {
+         buf[offset++] = (byte) ((i & 0x7f) | 0x80);
+         i >>>= 7;
+      }
+      buf[offset] = (byte) i;
+   }
+
+   private static int readUnsignedInt(byte[] buf, int offset) {
+      byte b = buf[offset++];
+      int i = b & 0x7F;
+      for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+         b = buf[offset++];
+         i |= (b & 0x7F) << shift;
+      }
+      return i;
+   }
+}
@@ -0,0 +1,17 @@
+package org.infinispan.commons.util;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} that holds resources, such as a server side cursor, until it is exhausted or {@link #close()}d.
+ * Callers that stop iterating early must close it.
+ *
+ * @since 7.0
+ */
+public interface CloseableIterator<E> extends Iterator<E> {
+
+   /**
+    * Releases the resources held by this iterator. Calling it more than once has no effect.
+    */
+   void close();
+}
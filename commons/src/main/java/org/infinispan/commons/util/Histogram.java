@@ -0,0 +1,122 @@
+package org.infinispan.commons.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative {@code long} values, e.g. latencies or batch sizes.
+ * <p/>
+ * Values are counted in buckets whose bounds are powers of two: bucket {@code 0} counts the value {@code 0} and bucket
+ * {@code i} the values between {@code 2^(i-1)} and {@code 2^i - 1}. Recording a value is therefore cheap and doesn't
+ * allocate, at the cost of percentiles only being accurate within a factor of two. The exact count, total and maximum
+ * of the recorded values are tracked as well.
+ *
+ * @since 7.0
+ */
+public class Histogram {
+
+   private static final int BUCKETS = 65;
+
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong total = new AtomicLong();
+   private final AtomicLong max = new AtomicLong();
+
+   /**
+    * Records a value, negative values are recorded as {@code 0}.
+    */
+   public void record(long value) {
+      if (value < 0)
+         value = 0;
+      buckets.incrementAndGet(bucket(value));
+      count.incrementAndGet();
+      total.addAndGet(value);
+      for (;;) {
+         long current = max.get();
+         if (value <= current || max.compareAndSet(current, value))
+            break;
+      }
+   }
+
+   public long getCount() {
+      return count.get();
+   }
+
+   public long getTotal() {
+      return total.get();
+   }
+
+   public long getMax() {
+      return max.get();
+   }
+
+   public double getMean() {
+      long n = count.get();
+      return n == 0 ? 0 : (double) total.get() / n;
+   }
+
+   /**
+    * Returns an upper bound of the given percentile of the recorded values, i.e. the upper bound of the bucket
+    * containing it, or {@code 0} if no value was recorded.
+    *
+    * @param percentile a percentile between 0 and 100
+    */
+   public long getPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100)
+         throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+      long[] counts = getBucketCounts();
+      long n = 0;
+      for (long c : counts)
+         n += c;
+      if (n == 0)
+         return 0;
+      long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += counts[i];
+         if (seen >= rank)
+            return Math.min(upperBound(i), max.get());
+      }
+      return max.get();
+   }
+
+   /**
+    * @return the number of values recorded in each bucket
+    */
+   public long[] getBucketCounts() {
+      long[] counts = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++)
+         counts[i] = buckets.get(i);
+      return counts;
+   }
+
+   /**
+    * @return the largest value counted in the given bucket
+    */
+   public static long upperBound(int bucket) {
+      return bucket == 0 ? 0 : bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+   }
+
+   public void reset() {
+      for (int i = 0; i < BUCKETS; i++)
+         buckets.set(i, 0);
+      count.set(0);
+      total.set(0);
+      max.set(0);
+   }
+
+   private static int bucket(long value) {
+      return 64 - Long.numberOfLeadingZeros(value);
+   }
+
+   @Override
+   public String toString() {
+      return "Histogram{" +
+            "count=" + getCount() +
+            ", mean=" + getMean() +
+            ", p50=" + getPercentile(50) +
+            ", p99=" + getPercentile(99) +
+            ", max=" + getMax() +
+            '}';
+   }
+}
@@ -275,6 +275,13 @@ public interface CommandsFactory {
     */
    StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type subtype, Address sender, int viewId, Set<Integer> segments);
 
+   /**
+    * Builds a StateRequestCommand used for requesting the entries of segments the requester already holds a part of,
+    * identified by the digests of the buckets of these segments.
+    */
+   StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type subtype, Address sender, int viewId, Set<Integer> segments,
+                                                Map<Integer, long[]> segmentDigests);
+
    /**
     * Builds a StateResponseCommand used for pushing cache entries to another node in response to a StateRequestCommand.
     */
@@ -61,6 +61,7 @@
 import org.infinispan.statetransfer.StateChunk;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.transport.Address;
+import org.infinispan.remoting.responses.ResponseGenerator;
 import org.infinispan.statetransfer.StateTransferManager;
 import org.infinispan.transaction.impl.RemoteTransaction;
 import org.infinispan.transaction.impl.TransactionTable;
@@ -129,6 +130,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
    private XSiteStateProvider xSiteStateProvider;
    private XSiteStateConsumer xSiteStateConsumer;
    private XSiteStateTransferManager xSiteStateTransferManager;
+   private ResponseGenerator responseGenerator;
 
    private Map<Byte, ModuleCommandInitializer> moduleCommandInitializers;
 
@@ -141,7 +143,8 @@ public void setupDependencies(DataContainer container, CacheNotifier notifier, C
                                  LockManager lockManager, InternalEntryFactory entryFactory, MapReduceManager mapReduceManager, 
                                  StateTransferManager stm, BackupSender backupSender, CancellationService cancellationService,
                                  TimeService timeService, XSiteStateProvider xSiteStateProvider, XSiteStateConsumer xSiteStateConsumer,
-                                 XSiteStateTransferManager xSiteStateTransferManager) {
+                                 XSiteStateTransferManager xSiteStateTransferManager,
+                                 ResponseGenerator responseGenerator) {
       this.dataContainer = container;
       this.notifier = notifier;
       this.cache = cache;
@@ -164,6 +167,7 @@ public void setupDependencies(DataContainer container, CacheNotifier notifier, C
       this.xSiteStateConsumer = xSiteStateConsumer;
       this.xSiteStateProvider = xSiteStateProvider;
       this.xSiteStateTransferManager = xSiteStateTransferManager;
+      this.responseGenerator = responseGenerator;
    }
 
    @Start(priority = 1)
@@ -310,7 +314,7 @@ public void initializeReplicableCommand(ReplicableCommand c, boolean isRemote) {
             break;
          case MultipleRpcCommand.COMMAND_ID:
             MultipleRpcCommand rc = (MultipleRpcCommand) c;
-            rc.init(interceptorChain, icf);
+            rc.init(interceptorChain, icf, responseGenerator);
             if (rc.getCommands() != null)
                for (ReplicableCommand nested : rc.getCommands()) {
                   initializeReplicableCommand(nested, false);
@@ -478,6 +482,12 @@ public StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type sub
       return new StateRequestCommand(cacheName, subtype, sender, viewId, segments);
    }
 
+   @Override
+   public StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type subtype, Address sender, int viewId, Set<Integer> segments,
+                                                       Map<Integer, long[]> segmentDigests) {
+      return new StateRequestCommand(cacheName, subtype, sender, viewId, segments, segmentDigests);
+   }
+
    @Override
    public StateResponseCommand buildStateResponseCommand(Address sender, int viewId, Collection<StateChunk> stateChunks) {
       return new StateResponseCommand(cacheName, sender, viewId, stateChunks);
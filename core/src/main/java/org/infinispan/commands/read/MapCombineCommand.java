@@ -34,6 +34,7 @@
    private UUID uuid;
    private String intermediateCacheName;
    private int maxCollectorSize;
+   private long shuffleMemoryBudget = -1;
 
    public MapCombineCommand() {
       super(null); // For command id uniqueness test
@@ -68,7 +69,9 @@ public void init(MapReduceManager mrManager) {
     */
    @Override
    public Object perform(InvocationContext context) throws Throwable {
-      if (isReducePhaseDistributed())
+      if (isStreamingShuffle())
+         return mrManager.mapAndCombineWithStreamingShuffle(this);
+      else if (isReducePhaseDistributed())
          return mrManager.mapAndCombineForDistributedReduction(this);
       else
          return mrManager.mapAndCombineForLocalReduction(this);
@@ -118,6 +121,24 @@ public int getMaxCollectorSize() {
       return maxCollectorSize;
    }
 
+   /**
+    * Sets the number of bytes of combined intermediate key/values kept in memory before they're spilled to disk, when
+    * using a streaming shuffle. A negative budget disables the streaming shuffle.
+    *
+    * @see org.infinispan.distexec.mapreduce.MapReduceTask#usingStreamingShuffle(long)
+    */
+   public void setShuffleMemoryBudget(long shuffleMemoryBudget) {
+      this.shuffleMemoryBudget = shuffleMemoryBudget;
+   }
+
+   public long getShuffleMemoryBudget() {
+      return shuffleMemoryBudget;
+   }
+
+   public boolean isStreamingShuffle() {
+      return shuffleMemoryBudget >= 0;
+   }
+
    public Set<KIn> getKeys() {
       return keys;
    }
@@ -155,7 +176,7 @@ public UUID getUUID() {
    @Override
    public Object[] getParameters() {
       return new Object[] { taskId, keys, mapper, combiner, reducePhaseDistributed,
-               emitCompositeIntermediateKeys, uuid, intermediateCacheName, maxCollectorSize};
+               emitCompositeIntermediateKeys, uuid, intermediateCacheName, maxCollectorSize, shuffleMemoryBudget};
    }
 
    @SuppressWarnings("unchecked")
@@ -173,6 +194,7 @@ public void setParameters(int commandId, Object[] args) {
       uuid = (UUID) args[i++];
       intermediateCacheName = (String) args[i++]; 
       maxCollectorSize = (Integer) args[i++];
+      shuffleMemoryBudget = (Long) args[i++];
    }
 
    @Override
@@ -3,7 +3,13 @@
 import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.tx.TransactionBoundaryCommand;
+import org.infinispan.commons.CacheException;
 import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextFactory;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.remoting.responses.ExceptionResponse;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.ResponseGenerator;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -16,6 +22,11 @@
  * This is not a {@link VisitableCommand} and hence not passed up the {@link org.infinispan.interceptors.base.CommandInterceptor}
  * chain.
  * <p/>
+ * When it bundles synchronous commands, each command's response is returned separately, in an array of
+ * {@link Response}s in the same order as the commands, and an exception thrown by a command doesn't prevent the
+ * following ones from being executed. Unless the commands must be executed in order, the recipient executes them
+ * concurrently, see {@link #performCommand(int)}.
+ * <p/>
  *
  * @author Mircea.Markus@jboss.com
  * @since 4.0
@@ -28,6 +39,8 @@ public class MultipleRpcCommand extends BaseRpcInvokingCommand {
    private static final boolean trace = log.isTraceEnabled();
 
    private ReplicableCommand[] commands;
+   private boolean returnResponses;
+   private ResponseGenerator responseGenerator;
 
    private MultipleRpcCommand() {
       super(null); // For command id uniqueness test
@@ -38,16 +51,33 @@ public MultipleRpcCommand(List<ReplicableCommand> modifications, String cacheNam
       commands = modifications.toArray(new ReplicableCommand[modifications.size()]);
    }
 
+   /**
+    * @param returnResponses whether the response of each command should be returned
+    */
+   public MultipleRpcCommand(List<ReplicableCommand> modifications, String cacheName, boolean returnResponses) {
+      this(modifications, cacheName);
+      this.returnResponses = returnResponses;
+   }
+
    public MultipleRpcCommand(String cacheName) {
       super(cacheName);
    }
 
+   public void init(InterceptorChain interceptorChain, InvocationContextFactory icf,
+                    ResponseGenerator responseGenerator) {
+      init(interceptorChain, icf);
+      this.responseGenerator = responseGenerator;
+   }
+
    /**
     * Executes commands replicated to the current cache instance by other cache instances.
     */
    @Override
    public Object perform(InvocationContext ctx) throws Throwable {
       if (trace) log.tracef("Executing remotely originated commands: %d", commands.length);
+      if (returnResponses) {
+         return performAndCollectResponses();
+      }
       for (ReplicableCommand command : commands) {
          if (command instanceof TransactionBoundaryCommand) {
             command.perform(null);
@@ -58,6 +88,32 @@ public Object perform(InvocationContext ctx) throws Throwable {
       return null;
    }
 
+   private Response[] performAndCollectResponses() {
+      Response[] responses = new Response[commands.length];
+      for (int i = 0; i < commands.length; i++) {
+         responses[i] = performCommand(i);
+      }
+      return responses;
+   }
+
+   /**
+    * Executes one of the bundled commands on its own, so that the commands of a bundle can be executed concurrently
+    * and a command waiting for a lock doesn't hold up the others.
+    *
+    * @return the response the command would have got if it had been sent on its own
+    */
+   public Response performCommand(int index) {
+      ReplicableCommand command = commands[index];
+      try {
+         Object retval = processVisitableCommand(command);
+         return responseGenerator.getResponse(new SingleRpcCommand(cacheName, command), retval);
+      } catch (Throwable t) {
+         if (trace) log.tracef(t, "Exception executing bundled command %s", command);
+         return new ExceptionResponse(t instanceof Exception ? (Exception) t :
+                                            new CacheException("Problems invoking command.", t));
+      }
+   }
+
    @Override
    public byte getCommandId() {
       return COMMAND_ID;
@@ -67,11 +123,22 @@ public ReplicableCommand[] getCommands() {
       return commands;
    }
 
+   /**
+    * @return whether the response of each command is returned, instead of none
+    */
+   public boolean isReturnResponses() {
+      return returnResponses;
+   }
+
    @Override
    public Object[] getParameters() {
       int numCommands = commands.length;
-      Object[] retval = new Object[numCommands];
+      // the flag is only appended to bundles, the other commands are marshalled as before
+      Object[] retval = new Object[returnResponses ? numCommands + 1 : numCommands];
       System.arraycopy(commands, 0, retval, 0, numCommands);
+      if (returnResponses) {
+         retval[numCommands] = Boolean.TRUE;
+      }
       return retval;
    }
 
@@ -79,6 +146,10 @@ public Object[] getParameters() {
    @SuppressWarnings("unchecked")
    public void setParameters(int commandId, Object[] args) {
       int numCommands = args.length;
+      returnResponses = numCommands > 0 && args[numCommands - 1] instanceof Boolean;
+      if (returnResponses) {
+         numCommands--;
+      }
       commands = new ReplicableCommand[numCommands];
       System.arraycopy(args, 0, commands, 0, numCommands);
    }
@@ -91,6 +162,7 @@ public boolean equals(Object o) {
       MultipleRpcCommand that = (MultipleRpcCommand) o;
 
       if (cacheName != null ? !cacheName.equals(that.cacheName) : that.cacheName != null) return false;
+      if (returnResponses != that.returnResponses) return false;
       if (!Arrays.equals(commands, that.commands)) return false;
       if (interceptorChain != null ? !interceptorChain.equals(that.interceptorChain) : that.interceptorChain != null)
          return false;
@@ -111,12 +183,13 @@ public String toString() {
       return "MultipleRpcCommand{" +
             "commands=" + (commands == null ? null : Arrays.asList(commands)) +
             ", cacheName='" + cacheName + '\'' +
+            ", returnResponses=" + returnResponses +
             '}';
    }
 
    @Override
    public boolean isReturnValueExpected() {
-      return false;
+      return returnResponses;
    }
 
    @Override
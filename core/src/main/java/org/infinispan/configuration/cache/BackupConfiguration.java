@@ -14,10 +14,12 @@ public class BackupConfiguration {
    private final boolean useTwoPhaseCommit;
    private final TakeOfflineConfiguration takeOfflineConfiguration;
    private final XSiteStateTransferConfiguration stateTransferConfiguration;
+   private final XSiteAsyncQueueConfiguration asyncQueueConfiguration;
    private final boolean enabled;
 
    public BackupConfiguration(String site, BackupStrategy strategy, long timeout, BackupFailurePolicy backupFailurePolicy,
-                              String failurePolicyClass, boolean useTwoPhaseCommit, TakeOfflineConfiguration takeOfflineConfiguration, XSiteStateTransferConfiguration stateTransferConfiguration, boolean enabled) {
+                              String failurePolicyClass, boolean useTwoPhaseCommit, TakeOfflineConfiguration takeOfflineConfiguration, XSiteStateTransferConfiguration stateTransferConfiguration,
+                              XSiteAsyncQueueConfiguration asyncQueueConfiguration, boolean enabled) {
       this.site = site;
       this.strategy = strategy;
       this.timeout = timeout;
@@ -26,6 +28,7 @@ public BackupConfiguration(String site, BackupStrategy strategy, long timeout, B
       this.useTwoPhaseCommit = useTwoPhaseCommit;
       this.takeOfflineConfiguration = takeOfflineConfiguration;
       this.stateTransferConfiguration = stateTransferConfiguration;
+      this.asyncQueueConfiguration = asyncQueueConfiguration;
       this.enabled = enabled;
    }
 
@@ -86,6 +89,10 @@ public XSiteStateTransferConfiguration stateTransfer() {
       return stateTransferConfiguration;
    }
 
+   public XSiteAsyncQueueConfiguration asyncQueue() {
+      return asyncQueueConfiguration;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -105,6 +112,10 @@ public boolean equals(Object o) {
             !stateTransferConfiguration.equals(that.stateTransferConfiguration) :
             that.stateTransferConfiguration != null)
          return false;
+      if (asyncQueueConfiguration != null ?
+            !asyncQueueConfiguration.equals(that.asyncQueueConfiguration) :
+            that.asyncQueueConfiguration != null)
+         return false;
 
       return true;
    }
@@ -117,6 +128,7 @@ public int hashCode() {
       result = 31 * result + (backupFailurePolicy != null ? backupFailurePolicy.hashCode() : 0);
       result = 31 * result + (failurePolicyClass != null ? failurePolicyClass.hashCode() : 0);
       result = 31 * result + (stateTransferConfiguration != null ? stateTransferConfiguration.hashCode() : 0);
+      result = 31 * result + (asyncQueueConfiguration != null ? asyncQueueConfiguration.hashCode() : 0);
       result = 31 * result + (useTwoPhaseCommit ? 1 : 0);
       return result;
    }
@@ -131,6 +143,7 @@ public String toString() {
             ", backupFailurePolicy=" + backupFailurePolicy +
             ", failurePolicyClass='" + failurePolicyClass + '\'' +
             ", stateTransferConfiguration=" + stateTransferConfiguration +
+            ", asyncQueueConfiguration=" + asyncQueueConfiguration +
             ", enabled='" + enabled + '\'' +
             '}';
    }
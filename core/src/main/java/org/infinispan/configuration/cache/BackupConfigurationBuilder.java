@@ -27,10 +27,13 @@ public class BackupConfigurationBuilder extends AbstractConfigurationChildBuilde
 
    private XSiteStateTransferConfigurationBuilder stateTransferBuilder;
 
+   private XSiteAsyncQueueConfigurationBuilder asyncQueueBuilder;
+
    public BackupConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
       takeOfflineBuilder = new TakeOfflineConfigurationBuilder(builder, this);
       this.stateTransferBuilder = new XSiteStateTransferConfigurationBuilder(builder, this);
+      this.asyncQueueBuilder = new XSiteAsyncQueueConfigurationBuilder(builder, this);
    }
 
    /**
@@ -137,10 +140,15 @@ public XSiteStateTransferConfigurationBuilder stateTransfer() {
       return this.stateTransferBuilder;
    }
 
+   public XSiteAsyncQueueConfigurationBuilder asyncQueue() {
+      return this.asyncQueueBuilder;
+   }
+
    @Override
    public void validate() {
       takeOfflineBuilder.validate();
       stateTransferBuilder.validate();
+      asyncQueueBuilder.validate();
       if (site == null)
          throw new CacheConfigurationException("The 'site' must be specified!");
       if (backupFailurePolicy == BackupFailurePolicy.CUSTOM && (failurePolicyClass == null)) {
@@ -152,13 +160,15 @@ public void validate() {
    @Override
    public BackupConfiguration create() {
       return new BackupConfiguration(site, strategy, replicationTimeout, backupFailurePolicy, failurePolicyClass,
-                                     useTwoPhaseCommit, takeOfflineBuilder.create(), stateTransferBuilder.create(), enabled);
+                                     useTwoPhaseCommit, takeOfflineBuilder.create(), stateTransferBuilder.create(),
+                                     asyncQueueBuilder.create(), enabled);
    }
 
    @Override
    public Builder read(BackupConfiguration template) {
       this.takeOfflineBuilder.read(template.takeOffline());
       this.stateTransferBuilder.read(template.stateTransfer());
+      this.asyncQueueBuilder.read(template.asyncQueue());
       this.site = template.site();
       this.strategy = template.strategy();
       this.backupFailurePolicy = template.backupFailurePolicy();
@@ -190,6 +200,10 @@ public boolean equals(Object o) {
             !stateTransferBuilder.equals(that.stateTransferBuilder) :
             that.stateTransferBuilder != null)
          return false;
+      if (asyncQueueBuilder != null ?
+            !asyncQueueBuilder.equals(that.asyncQueueBuilder) :
+            that.asyncQueueBuilder != null)
+         return false;
 
       return true;
    }
@@ -203,6 +217,7 @@ public int hashCode() {
       result = 31 * result + (failurePolicyClass != null ? failurePolicyClass.hashCode() : 0);
       result = 31 * result + (takeOfflineBuilder != null ? takeOfflineBuilder.hashCode() : 0);
       result = 31 * result + (stateTransferBuilder != null ? stateTransferBuilder.hashCode() : 0);
+      result = 31 * result + (asyncQueueBuilder != null ? asyncQueueBuilder.hashCode() : 0);
       result = 31 * result + (useTwoPhaseCommit ? 1 : 0);
       return result;
    }
@@ -218,6 +233,7 @@ public String toString() {
             ", failurePolicyClass='" + failurePolicyClass + '\'' +
             ", takeOfflineBuilder=" + takeOfflineBuilder +
             ", stateTransferBuilder=" + stateTransferBuilder +
+            ", asyncQueueBuilder=" + asyncQueueBuilder +
             ", enabled=" + enabled +
             '}';
    }
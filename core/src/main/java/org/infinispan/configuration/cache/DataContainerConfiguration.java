@@ -16,14 +16,18 @@ public class DataContainerConfiguration extends AbstractTypedPropertiesConfigura
    private final DataContainer dataContainer;
    private final Equivalence keyEquivalence;
    private final Equivalence valueEquivalence;
+   private final boolean offHeap;
+   private final boolean segmented;
 
    DataContainerConfiguration(DataContainer dataContainer,
          TypedProperties properties, Equivalence keyEquivalence,
-         Equivalence valueEquivalence) {
+         Equivalence valueEquivalence, boolean offHeap, boolean segmented) {
       super(properties);
       this.dataContainer = dataContainer;
       this.keyEquivalence = keyEquivalence;
       this.valueEquivalence = valueEquivalence;
+      this.offHeap = offHeap;
+      this.segmented = segmented;
    }
    
    /**
@@ -44,12 +48,30 @@ public <V> Equivalence<V> valueEquivalence() {
       return valueEquivalence;
    }
 
+   /**
+    * Whether entries are stored outside of the Java heap, using an
+    * {@link org.infinispan.container.offheap.OffHeapDataContainer}
+    */
+   public boolean offHeap() {
+      return offHeap;
+   }
+
+   /**
+    * Whether entries are kept in one map per consistent hash segment, using a
+    * {@link org.infinispan.container.SegmentedDataContainer}
+    */
+   public boolean segmented() {
+      return segmented;
+   }
+
    @Override
    public String toString() {
       return "DataContainerConfiguration{" +
             "dataContainer=" + dataContainer +
             ", keyEquivalence=" + keyEquivalence +
             ", valueEquivalence=" + valueEquivalence +
+            ", offHeap=" + offHeap +
+            ", segmented=" + segmented +
             '}';
    }
 
@@ -61,6 +83,8 @@ public boolean equals(Object o) {
 
       DataContainerConfiguration that = (DataContainerConfiguration) o;
 
+      if (offHeap != that.offHeap) return false;
+      if (segmented != that.segmented) return false;
       if (dataContainer != null ? !dataContainer.equals(that.dataContainer) : that.dataContainer != null)
          return false;
       if (keyEquivalence != null ? !keyEquivalence.equals(that.keyEquivalence) : that.keyEquivalence != null)
@@ -77,6 +101,8 @@ public int hashCode() {
       result = 31 * result + (dataContainer != null ? dataContainer.hashCode() : 0);
       result = 31 * result + (keyEquivalence != null ? keyEquivalence.hashCode() : 0);
       result = 31 * result + (valueEquivalence != null ? valueEquivalence.hashCode() : 0);
+      result = 31 * result + (offHeap ? 1 : 0);
+      result = 31 * result + (segmented ? 1 : 0);
       return result;
    }
 
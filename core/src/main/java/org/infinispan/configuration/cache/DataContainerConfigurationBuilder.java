@@ -2,6 +2,7 @@
 
 import java.util.Properties;
 
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.commons.configuration.Builder;
 import org.infinispan.commons.equivalence.AnyEquivalence;
 import org.infinispan.commons.equivalence.Equivalence;
@@ -20,6 +21,8 @@ public class DataContainerConfigurationBuilder extends AbstractConfigurationChil
    private DataContainer dataContainer;
    private Equivalence keyEquivalence = AnyEquivalence.getInstance();
    private Equivalence valueEquivalence = AnyEquivalence.getInstance();
+   private boolean offHeap = false;
+   private boolean segmented = false;
    // TODO: What are properties used for? Is it just legacy?
    private Properties properties = new Properties();
 
@@ -37,6 +40,33 @@ public DataContainerConfigurationBuilder dataContainer(DataContainer dataContain
       return this;
    }
 
+   /**
+    * Store entries outside of the Java heap. Keys, values and metadata are marshalled using the cache marshaller and
+    * kept in native memory, so that the heap used by the data container grows with the number of entries rather than
+    * with the size of the data. Not compatible with eviction or with a custom {@link #dataContainer(DataContainer)}.
+    *
+    * @param offHeap whether entries should be stored off-heap
+    * @return this configuration builder
+    */
+   public DataContainerConfigurationBuilder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+   }
+
+   /**
+    * Keep the entries of each consistent hash segment in a map of their own, so that state transfer only visits the
+    * entries of the segments it moves or drops instead of every entry in the container. Only available to
+    * distributed caches, and not compatible with eviction, off-heap storage or a custom
+    * {@link #dataContainer(DataContainer)}.
+    *
+    * @param segmented whether entries should be partitioned by segment
+    * @return this configuration builder
+    */
+   public DataContainerConfigurationBuilder segmented(boolean segmented) {
+      this.segmented = segmented;
+      return this;
+   }
+
    /**
     * Add key/value property pair to this data container configuration
     *
@@ -92,13 +122,27 @@ public <V> DataContainerConfigurationBuilder valueEquivalence(Equivalence<V> val
 
    @Override
    public void validate() {
+      if (offHeap && dataContainer != null)
+         throw new CacheConfigurationException("A custom data container cannot be used when storing entries off-heap");
+      if (segmented && dataContainer != null)
+         throw new CacheConfigurationException("A custom data container cannot be partitioned by segment");
+      if (segmented && offHeap)
+         throw new CacheConfigurationException("Entries stored off-heap cannot be partitioned by segment");
+      // validated before eviction, which enables a strategy whenever a bound is set
+      boolean evictionEnabled = eviction().maxEntries() > 0 || eviction().maxMemory() > 0;
+      if (offHeap && evictionEnabled)
+         throw new CacheConfigurationException("Eviction is not supported when storing entries off-heap");
+      if (segmented && !clustering().cacheMode().isDistributed())
+         throw new CacheConfigurationException("Only distributed caches can partition their data container by segment");
+      if (segmented && evictionEnabled)
+         throw new CacheConfigurationException("Eviction is not supported when partitioning the data container by segment");
    }
 
    @Override
    public DataContainerConfiguration create() {
       return new DataContainerConfiguration(dataContainer,
             TypedProperties.toTypedProperties(properties), keyEquivalence,
-            valueEquivalence);
+            valueEquivalence, offHeap, segmented);
    }
 
    @Override
@@ -107,6 +151,8 @@ public DataContainerConfigurationBuilder read(DataContainerConfiguration templat
       this.properties = template.properties();
       this.keyEquivalence = template.keyEquivalence();
       this.valueEquivalence = template.valueEquivalence();
+      this.offHeap = template.offHeap();
+      this.segmented = template.segmented();
 
       return this;
    }
@@ -118,6 +164,8 @@ public String toString() {
             ", properties=" + properties +
             ", keyEquivalence=" + keyEquivalence +
             ", valueEquivalence=" + valueEquivalence +
+            ", offHeap=" + offHeap +
+            ", segmented=" + segmented +
             '}';
    }
 
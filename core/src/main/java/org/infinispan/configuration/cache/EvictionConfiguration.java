@@ -1,5 +1,6 @@
 package org.infinispan.configuration.cache;
 
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 
@@ -11,11 +12,16 @@ public class EvictionConfiguration {
    private final int maxEntries;
    private final EvictionStrategy strategy;
    private final EvictionThreadPolicy threadPolicy;
+   private final long maxMemory;
+   private final EntrySizeCalculator<?, ?> sizeCalculator;
    
-   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
+   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy,
+                         long maxMemory, EntrySizeCalculator<?, ?> sizeCalculator) {
       this.maxEntries = maxEntries;
       this.strategy = strategy;
       this.threadPolicy = threadPolicy;
+      this.maxMemory = maxMemory;
+      this.sizeCalculator = sizeCalculator;
    }
    
    /**
@@ -42,12 +48,38 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   /**
+    * Maximum estimated amount of memory, in bytes, used by the entries of a cache instance. When positive, eviction is
+    * driven by the estimated size of the entries rather than by their number.
+    */
+   public long maxMemory() {
+      return maxMemory;
+   }
+
+   /**
+    * Whether eviction is bounded by the estimated memory used by entries rather than by their number
+    */
+   public boolean isMemoryBounded() {
+      return maxMemory > 0;
+   }
+
+   /**
+    * Calculator used to estimate the memory used by each entry when eviction is bounded by memory. If null, the size of
+    * the marshalled key and value is used.
+    */
+   @SuppressWarnings("unchecked")
+   public <K, V> EntrySizeCalculator<K, V> sizeCalculator() {
+      return (EntrySizeCalculator<K, V>) sizeCalculator;
+   }
+
    @Override
    public String toString() {
       return "EvictionConfiguration{" +
             "maxEntries=" + maxEntries +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
+            ", maxMemory=" + maxMemory +
+            ", sizeCalculator=" + sizeCalculator +
             '}';
    }
 
@@ -61,6 +93,9 @@ public boolean equals(Object o) {
       if (maxEntries != that.maxEntries) return false;
       if (strategy != that.strategy) return false;
       if (threadPolicy != that.threadPolicy) return false;
+      if (maxMemory != that.maxMemory) return false;
+      if (sizeCalculator != null ? !sizeCalculator.equals(that.sizeCalculator) : that.sizeCalculator != null)
+         return false;
 
       return true;
    }
@@ -70,6 +105,8 @@ public int hashCode() {
       int result = maxEntries;
       result = 31 * result + (strategy != null ? strategy.hashCode() : 0);
       result = 31 * result + (threadPolicy != null ? threadPolicy.hashCode() : 0);
+      result = 31 * result + (int) (maxMemory ^ (maxMemory >>> 32));
+      result = 31 * result + (sizeCalculator != null ? sizeCalculator.hashCode() : 0);
       return result;
    }
 
@@ -2,6 +2,7 @@
 
 import org.infinispan.commons.configuration.Builder;
 import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.util.logging.Log;
@@ -17,6 +18,8 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
    private int maxEntries = -1;
    private EvictionStrategy strategy = EvictionStrategy.NONE;
    private EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
+   private long maxMemory = -1;
+   private EntrySizeCalculator<?, ?> sizeCalculator;
 
    EvictionConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -38,6 +41,14 @@ EvictionStrategy strategy() {
       return strategy;
    }
 
+   int maxEntries() {
+      return maxEntries;
+   }
+
+   long maxMemory() {
+      return maxMemory;
+   }
+
    /**
     * Threading policy for eviction.
     *
@@ -60,12 +71,49 @@ public EvictionConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * Maximum estimated amount of memory, in bytes, used by the entries of a cache instance. When set, eviction is
+    * driven by the estimated size of each entry instead of by the number of entries, which makes it possible to bound
+    * caches whose values vary greatly in size. Only the LRU strategy supports memory based eviction, and it is used
+    * if no strategy has been configured.
+    *
+    * @param maxMemory the maximum estimated memory used by entries, in bytes
+    * @see #sizeCalculator(EntrySizeCalculator)
+    */
+   public EvictionConfigurationBuilder maxMemory(long maxMemory) {
+      this.maxMemory = maxMemory;
+      return this;
+   }
+
+   /**
+    * Calculator used to estimate the memory used by each entry when eviction is bounded by memory. By default, the size
+    * of an entry is the length of its marshalled key plus the length of its marshalled value.
+    *
+    * @param sizeCalculator the calculator to use
+    * @see #maxMemory(long)
+    */
+   public EvictionConfigurationBuilder sizeCalculator(EntrySizeCalculator<?, ?> sizeCalculator) {
+      this.sizeCalculator = sizeCalculator;
+      return this;
+   }
+
    @Override
    public void validate() {
       if (!strategy.isEnabled() && getBuilder().persistence().passivation())
          log.passivationWithoutEviction();
       if(strategy == EvictionStrategy.FIFO)
          log.warnFifoStrategyIsDeprecated();
+      if (maxMemory > 0) {
+         if (maxEntries > 0)
+            throw new CacheConfigurationException("Eviction maxEntries and maxMemory cannot be both configured");
+         if (strategy == EvictionStrategy.LIRS || strategy == EvictionStrategy.TINY_LFU)
+            throw new CacheConfigurationException("Memory based eviction is not supported by the " + strategy + " eviction strategy");
+         if (!strategy.isEnabled()) {
+            strategy = EvictionStrategy.LRU;
+            log.debugf("Max memory configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxMemory, strategy);
+         }
+         return;
+      }
       if (strategy.isEnabled() && maxEntries <= 0)
          throw new CacheConfigurationException("Eviction maxEntries value cannot be less than or equal to zero if eviction is enabled");
       if (maxEntries > 0 && !strategy.isEnabled()) {
@@ -76,7 +124,7 @@ public void validate() {
 
    @Override
    public EvictionConfiguration create() {
-      return new EvictionConfiguration(maxEntries, strategy, threadPolicy);
+      return new EvictionConfiguration(maxEntries, strategy, threadPolicy, maxMemory, sizeCalculator);
    }
 
    @Override
@@ -84,6 +132,8 @@ public EvictionConfigurationBuilder read(EvictionConfiguration template) {
       this.maxEntries = template.maxEntries();
       this.strategy = template.strategy();
       this.threadPolicy = template.threadPolicy();
+      this.maxMemory = template.maxMemory();
+      this.sizeCalculator = template.sizeCalculator();
 
       return this;
    }
@@ -94,6 +144,8 @@ public String toString() {
             "maxEntries=" + maxEntries +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
+            ", maxMemory=" + maxMemory +
+            ", sizeCalculator=" + sizeCalculator +
             '}';
    }
 
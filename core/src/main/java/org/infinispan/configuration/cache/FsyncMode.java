@@ -0,0 +1,24 @@
+package org.infinispan.configuration.cache;
+
+/**
+ * Defines when a file based store forces its writes to the storage device.
+ *
+ * @since 7.0
+ */
+public enum FsyncMode {
+   /**
+    * Writes are never forced explicitly, flushing them is left to the operating system. Modifications may be lost on a
+    * power failure.
+    */
+   DEFAULT,
+   /**
+    * Each modification is forced to the storage device before it completes.
+    */
+   PER_WRITE,
+   /**
+    * Each modification is forced to the storage device before it completes, but the modifications of concurrent
+    * callers are coalesced so that a single force covers all of them. The first caller waits up to the configured
+    * interval, or until the configured number of modifications is reached, before forcing.
+    */
+   GROUP_COMMIT
+}
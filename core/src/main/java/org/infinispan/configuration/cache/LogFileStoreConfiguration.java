@@ -0,0 +1,82 @@
+package org.infinispan.configuration.cache;
+
+import org.infinispan.commons.configuration.BuiltBy;
+import org.infinispan.commons.configuration.ConfigurationFor;
+import org.infinispan.persistence.file.LogFileStore;
+
+import java.util.Properties;
+
+/**
+ * Defines the configuration for the log structured file cache store.
+ *
+ * @since 7.0
+ */
+@BuiltBy(LogFileStoreConfigurationBuilder.class)
+@ConfigurationFor(LogFileStore.class)
+public class LogFileStoreConfiguration extends AbstractStoreConfiguration {
+
+   private final String location;
+
+   private final long maxSegmentSize;
+
+   private final double compactionThreshold;
+
+   public LogFileStoreConfiguration(boolean purgeOnStartup, boolean fetchPersistentState,
+                                    boolean ignoreModifications, AsyncStoreConfiguration async,
+                                    SingletonStoreConfiguration singletonStore, boolean preload, boolean shared,
+                                    Properties properties, String location, long maxSegmentSize,
+                                    double compactionThreshold) {
+      super(purgeOnStartup, fetchPersistentState, ignoreModifications, async, singletonStore, preload, shared, properties);
+      this.location = location;
+      this.maxSegmentSize = maxSegmentSize;
+      this.compactionThreshold = compactionThreshold;
+   }
+
+   public String location() {
+      return location;
+   }
+
+   public long maxSegmentSize() {
+      return maxSegmentSize;
+   }
+
+   public double compactionThreshold() {
+      return compactionThreshold;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      if (!super.equals(o)) return false;
+
+      LogFileStoreConfiguration that = (LogFileStoreConfiguration) o;
+
+      if (maxSegmentSize != that.maxSegmentSize) return false;
+      if (Double.compare(that.compactionThreshold, compactionThreshold) != 0) return false;
+      if (location != null ? !location.equals(that.location) : that.location != null)
+         return false;
+
+      return true;
+   }
+
+   @Override
+   public int hashCode() {
+      int result = super.hashCode();
+      result = 31 * result + (location != null ? location.hashCode() : 0);
+      result = 31 * result + (int) (maxSegmentSize ^ (maxSegmentSize >>> 32));
+      long temp = Double.doubleToLongBits(compactionThreshold);
+      result = 31 * result + (int) (temp ^ (temp >>> 32));
+      return result;
+   }
+
+   @Override
+   public String toString() {
+      return "LogFileStoreConfiguration{" +
+            "location='" + location + '\'' +
+            ", maxSegmentSize=" + maxSegmentSize +
+            ", compactionThreshold=" + compactionThreshold +
+            '}';
+   }
+
+}
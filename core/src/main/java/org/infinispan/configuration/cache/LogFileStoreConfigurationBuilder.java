@@ -0,0 +1,84 @@
+package org.infinispan.configuration.cache;
+
+import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * Log structured file cache store configuration builder.
+ *
+ * @since 7.0
+ */
+public class LogFileStoreConfigurationBuilder
+      extends AbstractStoreConfigurationBuilder<LogFileStoreConfiguration, LogFileStoreConfigurationBuilder> {
+
+   private String location = "Infinispan-LogFileStore";
+
+   private long maxSegmentSize = 16 * 1024 * 1024;
+
+   private double compactionThreshold = 0.5;
+
+   public LogFileStoreConfigurationBuilder(PersistenceConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   @Override
+   public LogFileStoreConfigurationBuilder self() {
+      return this;
+   }
+
+   /**
+    * Sets a location on disk where the store can write. Each cache gets its own directory of log segments in it.
+    */
+   public LogFileStoreConfigurationBuilder location(String location) {
+      this.location = location;
+      return this;
+   }
+
+   /**
+    * The size, in bytes, after which the store stops appending to the current log segment and starts a new one.
+    * Only segments that are no longer appended to are compacted, so smaller segments allow reclaiming space sooner at
+    * the cost of more files.
+    */
+   public LogFileStoreConfigurationBuilder maxSegmentSize(long maxSegmentSize) {
+      this.maxSegmentSize = maxSegmentSize;
+      return this;
+   }
+
+   /**
+    * The ratio of live data, between 0 and 1, below which a log segment is rewritten by the background compactor.
+    * Live entries are copied to the end of the log, after which the segment is deleted.
+    */
+   public LogFileStoreConfigurationBuilder compactionThreshold(double compactionThreshold) {
+      this.compactionThreshold = compactionThreshold;
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      super.validate();
+      if (maxSegmentSize <= 0)
+         throw new CacheConfigurationException("The maximum segment size of the log file store must be positive");
+      if (compactionThreshold < 0 || compactionThreshold > 1)
+         throw new CacheConfigurationException("The compaction threshold of the log file store must be between 0 and 1");
+   }
+
+   @Override
+   public LogFileStoreConfiguration create() {
+      return new LogFileStoreConfiguration(purgeOnStartup, fetchPersistentState, ignoreModifications,
+                                           async.create(), singletonStore.create(), preload,
+                                           shared, properties, location, maxSegmentSize, compactionThreshold);
+   }
+
+   @Override
+   public Builder<?> read(LogFileStoreConfiguration template) {
+      super.read(template);
+
+      // LogFileStore-specific configuration
+      location = template.location();
+      maxSegmentSize = template.maxSegmentSize();
+      compactionThreshold = template.compactionThreshold();
+
+      return this;
+   }
+
+}
@@ -83,6 +83,15 @@ public SingleFileStoreConfigurationBuilder addSingleFileStore() {
       return builder;
    }
 
+   /**
+    * Adds a log structured file cache store
+    */
+   public LogFileStoreConfigurationBuilder addLogFileStore() {
+      LogFileStoreConfigurationBuilder builder = new LogFileStoreConfigurationBuilder(this);
+      this.stores.add(builder);
+      return builder;
+   }
+
    /**
     * Removes any configured stores from this builder.
     */
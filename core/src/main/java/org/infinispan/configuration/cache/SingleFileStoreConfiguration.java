@@ -20,13 +20,34 @@ public class SingleFileStoreConfiguration extends AbstractStoreConfiguration {
 
    private final int maxEntries;
 
+   private final boolean mappedIndex;
+
+   private final FsyncMode fsyncMode;
+
+   private final long fsyncInterval;
+
+   private final int fsyncMaxBatchSize;
+
    public SingleFileStoreConfiguration(boolean purgeOnStartup, boolean fetchPersistentState,
                                        boolean ignoreModifications, AsyncStoreConfiguration async,
                                        SingletonStoreConfiguration singletonStore, boolean preload, boolean shared,
                                        Properties properties, String location, int maxEntries) {
+      this(purgeOnStartup, fetchPersistentState, ignoreModifications, async, singletonStore, preload, shared,
+           properties, location, maxEntries, false, FsyncMode.DEFAULT, 0, 1);
+   }
+
+   public SingleFileStoreConfiguration(boolean purgeOnStartup, boolean fetchPersistentState,
+                                       boolean ignoreModifications, AsyncStoreConfiguration async,
+                                       SingletonStoreConfiguration singletonStore, boolean preload, boolean shared,
+                                       Properties properties, String location, int maxEntries, boolean mappedIndex,
+                                       FsyncMode fsyncMode, long fsyncInterval, int fsyncMaxBatchSize) {
       super(purgeOnStartup, fetchPersistentState, ignoreModifications, async, singletonStore, preload, shared, properties);
       this.location = location;
       this.maxEntries = maxEntries;
+      this.mappedIndex = mappedIndex;
+      this.fsyncMode = fsyncMode;
+      this.fsyncInterval = fsyncInterval;
+      this.fsyncMaxBatchSize = fsyncMaxBatchSize;
    }
 
    public String location() {
@@ -37,6 +58,28 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   public boolean mappedIndex() {
+      return mappedIndex;
+   }
+
+   public FsyncMode fsyncMode() {
+      return fsyncMode;
+   }
+
+   /**
+    * @return the maximum time, in milliseconds, a group commit waits for more modifications before forcing them
+    */
+   public long fsyncInterval() {
+      return fsyncInterval;
+   }
+
+   /**
+    * @return the number of modifications after which a group commit forces them without waiting any longer
+    */
+   public int fsyncMaxBatchSize() {
+      return fsyncMaxBatchSize;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -46,6 +89,10 @@ public boolean equals(Object o) {
       SingleFileStoreConfiguration that = (SingleFileStoreConfiguration) o;
 
       if (maxEntries != that.maxEntries) return false;
+      if (mappedIndex != that.mappedIndex) return false;
+      if (fsyncInterval != that.fsyncInterval) return false;
+      if (fsyncMaxBatchSize != that.fsyncMaxBatchSize) return false;
+      if (fsyncMode != that.fsyncMode) return false;
       if (location != null ? !location.equals(that.location) : that.location != null)
          return false;
 
@@ -57,6 +104,10 @@ public int hashCode() {
       int result = super.hashCode();
       result = 31 * result + (location != null ? location.hashCode() : 0);
       result = 31 * result + maxEntries;
+      result = 31 * result + (mappedIndex ? 1 : 0);
+      result = 31 * result + (fsyncMode != null ? fsyncMode.hashCode() : 0);
+      result = 31 * result + (int) (fsyncInterval ^ (fsyncInterval >>> 32));
+      result = 31 * result + fsyncMaxBatchSize;
       return result;
    }
 
@@ -65,6 +116,10 @@ public String toString() {
       return "SingleFileStoreConfiguration{" +
             "location='" + location + '\'' +
             ", maxEntries=" + maxEntries +
+            ", mappedIndex=" + mappedIndex +
+            ", fsyncMode=" + fsyncMode +
+            ", fsyncInterval=" + fsyncInterval +
+            ", fsyncMaxBatchSize=" + fsyncMaxBatchSize +
             '}';
    }
 
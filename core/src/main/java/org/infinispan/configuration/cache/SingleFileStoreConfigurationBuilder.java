@@ -1,5 +1,6 @@
 package org.infinispan.configuration.cache;
 
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.commons.configuration.Builder;
 
 /**
@@ -15,6 +16,14 @@
 
    private int maxEntries = -1;
 
+   private boolean mappedIndex = false;
+
+   private FsyncMode fsyncMode = FsyncMode.DEFAULT;
+
+   private long fsyncInterval = 1;
+
+   private int fsyncMaxBatchSize = 64;
+
    public SingleFileStoreConfigurationBuilder(PersistenceConfigurationBuilder builder) {
       super(builder);
    }
@@ -53,11 +62,67 @@ public SingleFileStoreConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * By default the index of keys and file positions is kept on the heap and
+    * rebuilt by scanning the whole file when the store starts. When enabled,
+    * the index is instead kept in a memory-mapped hash table stored next to
+    * the data file, which only holds the hash, position and lengths of each
+    * entry, and which is reused on restart if the store was stopped cleanly.
+    *
+    * The mapped index can't be combined with {@link #maxEntries(int)}, as it
+    * doesn't keep track of the order in which the entries were used.
+    */
+   public SingleFileStoreConfigurationBuilder mappedIndex(boolean mappedIndex) {
+      this.mappedIndex = mappedIndex;
+      return this;
+   }
+
+   /**
+    * Defines when writes are forced to the storage device, see {@link FsyncMode}. Defaults to
+    * {@link FsyncMode#DEFAULT}, which leaves flushing the writes to the operating system.
+    */
+   public SingleFileStoreConfigurationBuilder fsyncMode(FsyncMode fsyncMode) {
+      this.fsyncMode = fsyncMode;
+      return this;
+   }
+
+   /**
+    * With {@link FsyncMode#GROUP_COMMIT}, the maximum time in milliseconds to wait for concurrent modifications to
+    * join a force. Defaults to 1 millisecond.
+    */
+   public SingleFileStoreConfigurationBuilder fsyncInterval(long fsyncInterval) {
+      this.fsyncInterval = fsyncInterval;
+      return this;
+   }
+
+   /**
+    * With {@link FsyncMode#GROUP_COMMIT}, the number of modifications that triggers a force without waiting for the
+    * rest of the {@link #fsyncInterval(long) interval}. Defaults to 64.
+    */
+   public SingleFileStoreConfigurationBuilder fsyncMaxBatchSize(int fsyncMaxBatchSize) {
+      this.fsyncMaxBatchSize = fsyncMaxBatchSize;
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      super.validate();
+      if (mappedIndex && maxEntries > 0)
+         throw new CacheConfigurationException("The mapped index of the single file store can't be used with maxEntries");
+      if (fsyncMode == null)
+         throw new CacheConfigurationException("The fsync mode of the single file store can't be null");
+      if (fsyncInterval < 0)
+         throw new CacheConfigurationException("The fsync interval of the single file store can't be negative");
+      if (fsyncMaxBatchSize <= 0)
+         throw new CacheConfigurationException("The fsync maximum batch size of the single file store must be positive");
+   }
+
    @Override
    public SingleFileStoreConfiguration create() {
       return new SingleFileStoreConfiguration(purgeOnStartup, fetchPersistentState,ignoreModifications,
                                                     async.create(), singletonStore.create(), preload,
-                                                    shared, properties, location, maxEntries);
+                                                    shared, properties, location, maxEntries, mappedIndex,
+                                                    fsyncMode, fsyncInterval, fsyncMaxBatchSize);
    }
 
    @Override
@@ -67,6 +132,10 @@ public Builder<?> read(SingleFileStoreConfiguration template) {
       // SingleFileStore-specific configuration
       location = template.location();
       maxEntries = template.maxEntries();
+      mappedIndex = template.mappedIndex();
+      fsyncMode = template.fsyncMode();
+      fsyncInterval = template.fsyncInterval();
+      fsyncMaxBatchSize = template.fsyncMaxBatchSize();
 
       return this;
    }
@@ -14,15 +14,24 @@ public class StateTransferConfiguration {
    private int chunkSize;
    private boolean awaitInitialTransfer;
    private Boolean originalAwaitInitialTransfer;
+   private long chunkSizeBytes;
+   private int maxInFlightChunks;
+   private long maxBytesPerSecond;
+   private boolean deltaTransfer;
 
    StateTransferConfiguration(boolean fetchInMemoryState, Boolean originalFetchInMemoryState, long timeout, int chunkSize,
-                              boolean awaitInitialTransfer, Boolean originalAwaitInitialTransfer) {
+                              boolean awaitInitialTransfer, Boolean originalAwaitInitialTransfer, long chunkSizeBytes,
+                              int maxInFlightChunks, long maxBytesPerSecond, boolean deltaTransfer) {
       this.fetchInMemoryState = fetchInMemoryState;
       this.originalFetchInMemoryState = originalFetchInMemoryState;
       this.timeout = timeout;
       this.chunkSize = chunkSize;
       this.awaitInitialTransfer = awaitInitialTransfer;
       this.originalAwaitInitialTransfer = originalAwaitInitialTransfer;
+      this.chunkSizeBytes = chunkSizeBytes;
+      this.maxInFlightChunks = maxInFlightChunks;
+      this.maxBytesPerSecond = maxBytesPerSecond;
+      this.deltaTransfer = deltaTransfer;
    }
 
    /**
@@ -69,6 +78,42 @@ public int chunkSize() {
       return chunkSize;
    }
 
+   /**
+    * If &gt; 0, a batch of cache entries is also sent as soon as the estimated size of its entries reaches
+    * {@code chunkSizeBytes} bytes, even if it holds less than {@link #chunkSize()} entries. If &lt;= 0, only the
+    * number of entries is taken into account.
+    */
+   public long chunkSizeBytes() {
+      return chunkSizeBytes;
+   }
+
+   /**
+    * The maximum number of batches of cache entries a node sends to another node without having received the
+    * acknowledgement of the receiver that the previous batches have been applied. A value of 1 means that each batch
+    * is only sent once the previous one has been applied.
+    */
+   public int maxInFlightChunks() {
+      return maxInFlightChunks;
+   }
+
+   /**
+    * If &gt; 0, the rate at which a node sends state to the other nodes, for all its outbound transfers, is limited to
+    * {@code maxBytesPerSecond} bytes per second, as estimated from the size of the cache entries. If &lt;= 0, the rate
+    * is not limited.
+    */
+   public long maxBytesPerSecond() {
+      return maxBytesPerSecond;
+   }
+
+   /**
+    * If {@code true}, a node that already holds entries of the segments it requests, e.g. because it restarted with a
+    * persistent cache store, sends a digest of these entries along with its request and only receives the entries that
+    * differ from the ones held by the sender. The entries it holds that no longer exist on the sender are removed.
+    */
+   public boolean deltaTransfer() {
+      return deltaTransfer;
+   }
+
    /**
     * If {@code true}, this will cause the first call to method {@code CacheManager.getCache()} on the joiner node to
     * block and wait until the joining is complete and the cache has finished receiving state from neighboring caches
@@ -97,6 +142,10 @@ public String toString() {
             ", timeout=" + timeout +
             ", awaitInitialTransfer=" + awaitInitialTransfer +
             ", originalAwaitInitialTransfer=" + originalAwaitInitialTransfer +
+            ", chunkSizeBytes=" + chunkSizeBytes +
+            ", maxInFlightChunks=" + maxInFlightChunks +
+            ", maxBytesPerSecond=" + maxBytesPerSecond +
+            ", deltaTransfer=" + deltaTransfer +
             '}';
    }
 
@@ -115,6 +164,10 @@ public boolean equals(Object o) {
       if (awaitInitialTransfer != that.awaitInitialTransfer) return false;
       if (originalAwaitInitialTransfer != null ? !originalAwaitInitialTransfer.equals(that.originalAwaitInitialTransfer) : that.originalAwaitInitialTransfer != null)
          return false;
+      if (chunkSizeBytes != that.chunkSizeBytes) return false;
+      if (maxInFlightChunks != that.maxInFlightChunks) return false;
+      if (maxBytesPerSecond != that.maxBytesPerSecond) return false;
+      if (deltaTransfer != that.deltaTransfer) return false;
 
       return true;
    }
@@ -127,6 +180,10 @@ public int hashCode() {
       result = 31 * result + chunkSize;
       result = 31 * result + (awaitInitialTransfer ? 1 : 0);
       result = 31 * result + (originalAwaitInitialTransfer != null ? originalAwaitInitialTransfer.hashCode() : 0);
+      result = 31 * result + (int) (chunkSizeBytes ^ (chunkSizeBytes >>> 32));
+      result = 31 * result + maxInFlightChunks;
+      result = 31 * result + (int) (maxBytesPerSecond ^ (maxBytesPerSecond >>> 32));
+      result = 31 * result + (deltaTransfer ? 1 : 0);
       return result;
    }
 
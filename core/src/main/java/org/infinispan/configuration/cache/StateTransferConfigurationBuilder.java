@@ -22,6 +22,10 @@ public class StateTransferConfigurationBuilder extends
    private Boolean awaitInitialTransfer = null;
    private int chunkSize = 10000;
    private long timeout = TimeUnit.MINUTES.toMillis(4);
+   private long chunkSizeBytes = 0;
+   private int maxInFlightChunks = 1;
+   private long maxBytesPerSecond = 0;
+   private boolean deltaTransfer = false;
 
    StateTransferConfigurationBuilder(ClusteringConfigurationBuilder builder) {
       super(builder);
@@ -62,6 +66,51 @@ public StateTransferConfigurationBuilder chunkSize(int i) {
       return this;
    }
 
+   /**
+    * If &gt; 0, a batch of cache entries is also sent as soon as the estimated size of its entries reaches
+    * {@code chunkSizeBytes} bytes, even if it holds less than {@link #chunkSize(int)} entries. This keeps the size of
+    * the batches bounded when the values are large. If &lt;= 0 (the default), only the number of entries is taken into
+    * account.
+    */
+   public StateTransferConfigurationBuilder chunkSizeBytes(long bytes) {
+      this.chunkSizeBytes = bytes;
+      return this;
+   }
+
+   /**
+    * The maximum number of batches of cache entries a node sends to another node without having received the
+    * acknowledgement of the receiver that the previous batches have been applied. Each acknowledgement allows one more
+    * batch to be sent, so a receiver that applies state slowly slows down the sender. The batches are sent by the
+    * threads of the transport thread pool. Defaults to 1, i.e. each batch is only sent once the previous one has been
+    * applied.
+    */
+   public StateTransferConfigurationBuilder maxInFlightChunks(int chunks) {
+      this.maxInFlightChunks = chunks;
+      return this;
+   }
+
+   /**
+    * If &gt; 0, the rate at which a node sends state to the other nodes, for all its outbound transfers, is limited to
+    * {@code maxBytesPerSecond} bytes per second, as estimated from the size of the cache entries. If &lt;= 0 (the
+    * default), the rate is not limited.
+    */
+   public StateTransferConfigurationBuilder maxBytesPerSecond(long bytesPerSecond) {
+      this.maxBytesPerSecond = bytesPerSecond;
+      return this;
+   }
+
+   /**
+    * If {@code true}, a node that already holds entries of the segments it requests, e.g. because it restarted with a
+    * persistent cache store, sends a digest of these entries along with its request and only receives the entries that
+    * differ from the ones held by the sender. The entries it holds that no longer exist on the sender are removed.
+    * Computing the digests requires both nodes to read all their entries, including the ones in the cache store, and
+    * to marshall the values of the entries that aren't versioned. Defaults to {@code false}.
+    */
+   public StateTransferConfigurationBuilder deltaTransfer(boolean b) {
+      this.deltaTransfer = b;
+      return this;
+   }
+
    /**
     * This is the maximum amount of time - in milliseconds - to wait for state from neighboring
     * caches, before throwing an exception and aborting startup.
@@ -89,6 +138,12 @@ public void validate() {
             && !getClusteringBuilder().cacheMode().isReplicated() && !getClusteringBuilder().cacheMode().isDistributed())
          throw new CacheConfigurationException(
                "awaitInitialTransfer can be enabled only if cache mode is distributed or replicated.");
+      if (maxInFlightChunks < 1)
+         throw new CacheConfigurationException("maxInFlightChunks must be greater than 0");
+      if (deltaTransfer && !getClusteringBuilder().cacheMode().isReplicated()
+            && !getClusteringBuilder().cacheMode().isDistributed())
+         throw new CacheConfigurationException(
+               "deltaTransfer can be enabled only if cache mode is distributed or replicated.");
    }
 
    @Override
@@ -118,7 +173,8 @@ public  StateTransferConfiguration create() {
          _awaitInitialTransfer = false;
       }
       return new StateTransferConfiguration(_fetchInMemoryState, fetchInMemoryState,
-            timeout, chunkSize, _awaitInitialTransfer, awaitInitialTransfer);
+            timeout, chunkSize, _awaitInitialTransfer, awaitInitialTransfer, chunkSizeBytes, maxInFlightChunks,
+            maxBytesPerSecond, deltaTransfer);
    }
 
    @Override
@@ -127,6 +183,10 @@ public StateTransferConfigurationBuilder read(StateTransferConfiguration templat
       this.awaitInitialTransfer = template.originalAwaitInitialTransfer();
       this.timeout = template.timeout();
       this.chunkSize = template.chunkSize();
+      this.chunkSizeBytes = template.chunkSizeBytes();
+      this.maxInFlightChunks = template.maxInFlightChunks();
+      this.maxBytesPerSecond = template.maxBytesPerSecond();
+      this.deltaTransfer = template.deltaTransfer();
       return this;
    }
 
@@ -137,6 +197,10 @@ public String toString() {
             ", fetchInMemoryState=" + fetchInMemoryState +
             ", awaitInitialTransfer=" + awaitInitialTransfer +
             ", timeout=" + timeout +
+            ", chunkSizeBytes=" + chunkSizeBytes +
+            ", maxInFlightChunks=" + maxInFlightChunks +
+            ", maxBytesPerSecond=" + maxBytesPerSecond +
+            ", deltaTransfer=" + deltaTransfer +
             '}';
    }
 
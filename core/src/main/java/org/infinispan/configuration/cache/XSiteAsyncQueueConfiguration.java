@@ -0,0 +1,109 @@
+package org.infinispan.configuration.cache;
+
+/**
+ * Configuration of the queue through which the writes are replicated to an asynchronous backup site.
+ *
+ * @since 7.0
+ */
+public class XSiteAsyncQueueConfiguration {
+
+   private final boolean enabled;
+   private final int batchSize;
+   private final long flushInterval;
+   private final int maxQueueSize;
+   private final String backlogLocation;
+   private final long maxBacklogSize;
+
+   public XSiteAsyncQueueConfiguration(boolean enabled, int batchSize, long flushInterval, int maxQueueSize,
+                                       String backlogLocation, long maxBacklogSize) {
+      this.enabled = enabled;
+      this.batchSize = batchSize;
+      this.flushInterval = flushInterval;
+      this.maxQueueSize = maxQueueSize;
+      this.backlogLocation = backlogLocation;
+      this.maxBacklogSize = maxBacklogSize;
+   }
+
+   /**
+    * If {@code true}, the writes are queued and sent to the backup site in batches, instead of one message per write.
+    * Only applies to asynchronous backups.
+    */
+   public boolean enabled() {
+      return enabled;
+   }
+
+   /**
+    * The maximum number of writes sent to the backup site in one batch.
+    */
+   public int batchSize() {
+      return batchSize;
+   }
+
+   /**
+    * The maximum time, in milliseconds, a write waits in the queue for a batch to fill up before it is sent.
+    */
+   public long flushInterval() {
+      return flushInterval;
+   }
+
+   /**
+    * The maximum number of keys whose writes are held in memory. The writes that don't fit are appended to the
+    * backlog, or block until the queue has room if there is no backlog.
+    */
+   public int maxQueueSize() {
+      return maxQueueSize;
+   }
+
+   /**
+    * The directory holding the backlog of the writes that didn't fit in memory or were made while the site was
+    * offline, or null if there is no backlog.
+    */
+   public String backlogLocation() {
+      return backlogLocation;
+   }
+
+   /**
+    * The maximum size, in bytes, of the backlog of each site.
+    */
+   public long maxBacklogSize() {
+      return maxBacklogSize;
+   }
+
+   @Override
+   public String toString() {
+      return "XSiteAsyncQueueConfiguration{" +
+            "enabled=" + enabled +
+            ", batchSize=" + batchSize +
+            ", flushInterval=" + flushInterval +
+            ", maxQueueSize=" + maxQueueSize +
+            ", backlogLocation='" + backlogLocation + '\'' +
+            ", maxBacklogSize=" + maxBacklogSize +
+            '}';
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      XSiteAsyncQueueConfiguration that = (XSiteAsyncQueueConfiguration) o;
+
+      return enabled == that.enabled &&
+            batchSize == that.batchSize &&
+            flushInterval == that.flushInterval &&
+            maxQueueSize == that.maxQueueSize &&
+            maxBacklogSize == that.maxBacklogSize &&
+            (backlogLocation != null ? backlogLocation.equals(that.backlogLocation) : that.backlogLocation == null);
+   }
+
+   @Override
+   public int hashCode() {
+      int result = (enabled ? 1 : 0);
+      result = 31 * result + batchSize;
+      result = 31 * result + (int) (flushInterval ^ (flushInterval >>> 32));
+      result = 31 * result + maxQueueSize;
+      result = 31 * result + (backlogLocation != null ? backlogLocation.hashCode() : 0);
+      result = 31 * result + (int) (maxBacklogSize ^ (maxBacklogSize >>> 32));
+      return result;
+   }
+}
@@ -0,0 +1,168 @@
+package org.infinispan.configuration.cache;
+
+import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * Configuration Builder to configure the queue through which the writes are replicated to an asynchronous backup
+ * site.
+ *
+ * @since 7.0
+ */
+public class XSiteAsyncQueueConfigurationBuilder extends AbstractConfigurationChildBuilder
+      implements Builder<XSiteAsyncQueueConfiguration> {
+
+   public static final int DEFAULT_BATCH_SIZE = 512;
+   public static final long DEFAULT_FLUSH_INTERVAL = 100;
+   public static final int DEFAULT_MAX_QUEUE_SIZE = 65536;
+   public static final long DEFAULT_MAX_BACKLOG_SIZE = 1024L * 1024 * 1024;
+   private boolean enabled = false;
+   private int batchSize = DEFAULT_BATCH_SIZE;
+   private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+   private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+   private String backlogLocation = null;
+   private long maxBacklogSize = DEFAULT_MAX_BACKLOG_SIZE;
+   private final BackupConfigurationBuilder backupConfigurationBuilder;
+
+   public XSiteAsyncQueueConfigurationBuilder(ConfigurationBuilder builder,
+                                              BackupConfigurationBuilder backupConfigurationBuilder) {
+      super(builder);
+      this.backupConfigurationBuilder = backupConfigurationBuilder;
+   }
+
+   @Override
+   public void validate() {
+      if (!enabled) {
+         return;
+      }
+      if (backupConfigurationBuilder.strategy() != BackupConfiguration.BackupStrategy.ASYNC) {
+         throw new CacheConfigurationException("The asynchronous replication queue can only be used with the ASYNC backup strategy.");
+      }
+      if (batchSize <= 0) {
+         throw new CacheConfigurationException("The batch size must be greater than 0.");
+      }
+      if (flushInterval <= 0) {
+         throw new CacheConfigurationException("The flush interval must be greater than 0.");
+      }
+      if (maxQueueSize <= 0) {
+         throw new CacheConfigurationException("The maximum queue size must be greater than 0.");
+      }
+      if (backlogLocation != null && maxBacklogSize <= 0) {
+         throw new CacheConfigurationException("The maximum backlog size must be greater than 0.");
+      }
+   }
+
+   /**
+    * If {@code true}, the writes are queued and sent to the backup site in batches, instead of one message per write.
+    * The writes to the same key waiting in the queue are coalesced, only the last one being sent. Only applies to
+    * asynchronous backups. Defaults to {@code false}.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder enabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+   }
+
+   /**
+    * The maximum number of writes sent to the backup site in one batch. Defaults to 512.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder batchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+   }
+
+   /**
+    * The maximum time, in milliseconds, a write waits in the queue for a batch to fill up before it is sent. Defaults
+    * to 100.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder flushInterval(long flushInterval) {
+      this.flushInterval = flushInterval;
+      return this;
+   }
+
+   /**
+    * The maximum number of keys whose writes are held in memory. The writes that don't fit are appended to the
+    * backlog, or block until the queue has room if there is no backlog. Defaults to 65536.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder maxQueueSize(int maxQueueSize) {
+      this.maxQueueSize = maxQueueSize;
+      return this;
+   }
+
+   /**
+    * The directory holding the backlog of the writes that didn't fit in memory or were made while the site was
+    * offline. The backlog survives restarts, and is sent first when the site comes back online. If not set (the
+    * default), there is no backlog and the writes made while the site is offline are not replicated.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder backlogLocation(String backlogLocation) {
+      this.backlogLocation = backlogLocation;
+      return this;
+   }
+
+   /**
+    * The maximum size, in bytes, of the backlog of each site. Once it is reached, the backlog is discarded and the
+    * state must be pushed to the site again. Defaults to 1 GB.
+    */
+   public final XSiteAsyncQueueConfigurationBuilder maxBacklogSize(long maxBacklogSize) {
+      this.maxBacklogSize = maxBacklogSize;
+      return this;
+   }
+
+   public final BackupConfigurationBuilder backup() {
+      return backupConfigurationBuilder;
+   }
+
+   @Override
+   public XSiteAsyncQueueConfiguration create() {
+      return new XSiteAsyncQueueConfiguration(enabled, batchSize, flushInterval, maxQueueSize, backlogLocation,
+                                              maxBacklogSize);
+   }
+
+   @Override
+   public Builder<XSiteAsyncQueueConfiguration> read(XSiteAsyncQueueConfiguration template) {
+      this.enabled = template.enabled();
+      this.batchSize = template.batchSize();
+      this.flushInterval = template.flushInterval();
+      this.maxQueueSize = template.maxQueueSize();
+      this.backlogLocation = template.backlogLocation();
+      this.maxBacklogSize = template.maxBacklogSize();
+      return this;
+   }
+
+   @Override
+   public String toString() {
+      return "XSiteAsyncQueueConfigurationBuilder{" +
+            "enabled=" + enabled +
+            ", batchSize=" + batchSize +
+            ", flushInterval=" + flushInterval +
+            ", maxQueueSize=" + maxQueueSize +
+            ", backlogLocation='" + backlogLocation + '\'' +
+            ", maxBacklogSize=" + maxBacklogSize +
+            '}';
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      XSiteAsyncQueueConfigurationBuilder that = (XSiteAsyncQueueConfigurationBuilder) o;
+
+      return enabled == that.enabled &&
+            batchSize == that.batchSize &&
+            flushInterval == that.flushInterval &&
+            maxQueueSize == that.maxQueueSize &&
+            maxBacklogSize == that.maxBacklogSize &&
+            (backlogLocation != null ? backlogLocation.equals(that.backlogLocation) : that.backlogLocation == null);
+   }
+
+   @Override
+   public int hashCode() {
+      int result = (enabled ? 1 : 0);
+      result = 31 * result + batchSize;
+      result = 31 * result + (int) (flushInterval ^ (flushInterval >>> 32));
+      result = 31 * result + maxQueueSize;
+      result = 31 * result + (backlogLocation != null ? backlogLocation.hashCode() : 0);
+      result = 31 * result + (int) (maxBacklogSize ^ (maxBacklogSize >>> 32));
+      return result;
+   }
+}
@@ -10,10 +10,14 @@ public class XSiteStateTransferConfiguration {
 
    private final int chunkSize;
    private final long timeout;
+   private final int parallelism;
+   private final int maxInFlightChunks;
 
-   public XSiteStateTransferConfiguration(int chunkSize, long timeout) {
+   public XSiteStateTransferConfiguration(int chunkSize, long timeout, int parallelism, int maxInFlightChunks) {
       this.chunkSize = chunkSize;
       this.timeout = timeout;
+      this.parallelism = parallelism;
+      this.maxInFlightChunks = maxInFlightChunks;
    }
 
    public int chunkSize() {
@@ -24,11 +28,27 @@ public long timeout() {
       return timeout;
    }
 
+   /**
+    * The number of threads each node uses to push its state to the remote site.
+    */
+   public int parallelism() {
+      return parallelism;
+   }
+
+   /**
+    * The maximum number of chunks each thread sends to the remote site without having received their acknowledgement.
+    */
+   public int maxInFlightChunks() {
+      return maxInFlightChunks;
+   }
+
    @Override
    public String toString() {
       return "XSiteStateTransferConfiguration{" +
             "chunkSize=" + chunkSize +
             ", timeout=" + timeout +
+            ", parallelism=" + parallelism +
+            ", maxInFlightChunks=" + maxInFlightChunks +
             '}';
    }
 
@@ -40,7 +60,9 @@ public boolean equals(Object o) {
       XSiteStateTransferConfiguration that = (XSiteStateTransferConfiguration) o;
 
       return chunkSize == that.chunkSize &&
-            timeout == that.timeout;
+            timeout == that.timeout &&
+            parallelism == that.parallelism &&
+            maxInFlightChunks == that.maxInFlightChunks;
 
    }
 
@@ -48,6 +70,8 @@ public boolean equals(Object o) {
    public int hashCode() {
       int result = chunkSize;
       result = 31 * result + (int) (timeout ^ (timeout >>> 32));
+      result = 31 * result + parallelism;
+      result = 31 * result + maxInFlightChunks;
       return result;
    }
 }
@@ -18,6 +18,10 @@ public class XSiteStateTransferConfigurationBuilder extends AbstractConfiguratio
    private int chunkSize = DEFAULT_CHUNK_SIZE;
    public static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(20);
    private long timeout = DEFAULT_TIMEOUT;
+   public static final int DEFAULT_PARALLELISM = 1;
+   private int parallelism = DEFAULT_PARALLELISM;
+   public static final int DEFAULT_MAX_IN_FLIGHT_CHUNKS = 8;
+   private int maxInFlightChunks = DEFAULT_MAX_IN_FLIGHT_CHUNKS;
    private final BackupConfigurationBuilder backupConfigurationBuilder;
 
    public XSiteStateTransferConfigurationBuilder(ConfigurationBuilder builder,
@@ -31,6 +35,12 @@ public void validate() {
       if (timeout <= 0) {
          throw new CacheConfigurationException("Timeout must be higher or equals than 1 (one).");
       }
+      if (parallelism <= 0) {
+         throw new CacheConfigurationException("Parallelism must be higher or equals than 1 (one).");
+      }
+      if (maxInFlightChunks <= 0) {
+         throw new CacheConfigurationException("Max in-flight chunks must be higher or equals than 1 (one).");
+      }
    }
 
    /**
@@ -51,19 +61,42 @@ public final XSiteStateTransferConfigurationBuilder timeout(long timeout) {
       return this;
    }
 
+   /**
+    * The number of threads each node uses to push its state to the remote site. The segments owned by the node are
+    * split among the threads, which requires a data container partitioned by segment, see
+    * {@link DataContainerConfigurationBuilder#segmented(boolean)}. With the other data containers, the entries in
+    * memory are pushed by a single thread, and only the iteration of the cache store runs in parallel with it.
+    * Defaults to 1.
+    */
+   public final XSiteStateTransferConfigurationBuilder parallelism(int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+   }
+
+   /**
+    * The maximum number of chunks each thread sends to the remote site without having received the acknowledgement
+    * that the previous chunks were applied. Defaults to 8.
+    */
+   public final XSiteStateTransferConfigurationBuilder maxInFlightChunks(int maxInFlightChunks) {
+      this.maxInFlightChunks = maxInFlightChunks;
+      return this;
+   }
+
    public final BackupConfigurationBuilder backup() {
       return backupConfigurationBuilder;
    }
 
    @Override
    public XSiteStateTransferConfiguration create() {
-      return new XSiteStateTransferConfiguration(chunkSize, timeout);
+      return new XSiteStateTransferConfiguration(chunkSize, timeout, parallelism, maxInFlightChunks);
    }
 
    @Override
    public Builder<XSiteStateTransferConfiguration> read(XSiteStateTransferConfiguration template) {
       this.chunkSize = template.chunkSize();
       this.timeout = template.timeout();
+      this.parallelism = template.parallelism();
+      this.maxInFlightChunks = template.maxInFlightChunks();
       return this;
    }
 
@@ -72,6 +105,8 @@ public String toString() {
       return "XSiteStateTransferConfigurationBuilder{" +
             "chunkSize=" + chunkSize +
             ", timeout=" + timeout +
+            ", parallelism=" + parallelism +
+            ", maxInFlightChunks=" + maxInFlightChunks +
             '}';
    }
 
@@ -83,7 +118,9 @@ public boolean equals(Object o) {
       XSiteStateTransferConfigurationBuilder that = (XSiteStateTransferConfigurationBuilder) o;
 
       return chunkSize == that.chunkSize &&
-            timeout == that.timeout;
+            timeout == that.timeout &&
+            parallelism == that.parallelism &&
+            maxInFlightChunks == that.maxInFlightChunks;
 
    }
 
@@ -91,6 +128,8 @@ public boolean equals(Object o) {
    public int hashCode() {
       int result = chunkSize;
       result = 31 * result + (int) (timeout ^ (timeout >>> 32));
+      result = 31 * result + parallelism;
+      result = 31 * result + maxInFlightChunks;
       return result;
    }
 }
@@ -5,16 +5,26 @@
 import org.infinispan.commons.equivalence.Equivalence;
 import org.infinispan.commons.logging.Log;
 import org.infinispan.commons.logging.LogFactory;
+import org.infinispan.commons.marshall.StreamingMarshaller;
 import org.infinispan.commons.util.CollectionFactory;
 import org.infinispan.commons.util.concurrent.ParallelIterableMap;
+import org.infinispan.commons.util.concurrent.jdk8backported.LongAdder;
 import org.infinispan.commons.util.concurrent.jdk8backported.EquivalentConcurrentHashMapV8;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionManager;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.eviction.PassivationManager;
+import org.infinispan.eviction.impl.MarshalledEntrySizeCalculator;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.jmx.annotations.DisplayType;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.MeasurementType;
+import org.infinispan.jmx.annotations.Units;
 import org.infinispan.metadata.Metadata;
 import org.infinispan.persistence.manager.PersistenceManager;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
@@ -32,6 +42,9 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * DefaultDataContainer is both eviction and non-eviction based data container.
@@ -45,6 +58,7 @@
  * @since 4.0
  */
 @ThreadSafe
+@MBean(objectName = "DataContainer", description = "Component that stores the entries of the cache in memory")
 public class DefaultDataContainer<K, V> implements DataContainer<K, V> {
 
    private static final Log log = LogFactory.getLog(DefaultDataContainer.class);
@@ -53,6 +67,11 @@
    private final ConcurrentMap<K, InternalCacheEntry<K, V>> entries;
    private final DefaultEvictionListener evictionListener;
    private final ExtendedMap<K, V> extendedMap;
+   private final InternalEntrySizeCalculator<K, V> sizeCalculator;
+   private final ExpirationIndex<K> expirationIndex;
+   private final LongAdder purgedEntries = new LongAdder();
+   private volatile long lastPurgeDuration;
+   private volatile long lastPurgeRemovedEntries;
    protected InternalEntryFactory entryFactory;
    private EvictionManager evictionManager;
    private PassivationManager passivator;
@@ -65,6 +84,8 @@ public DefaultDataContainer(int concurrencyLevel) {
       entries = CollectionFactory.makeConcurrentParallelMap(128, concurrencyLevel);
       evictionListener = null;
       extendedMap = new EquivalentConcurrentExtendedMap();
+      sizeCalculator = null;
+      expirationIndex = new ExpirationIndex<K>(AnyEquivalence.getInstance());
    }
 
    public DefaultDataContainer(int concurrencyLevel,
@@ -73,6 +94,8 @@ public DefaultDataContainer(int concurrencyLevel,
       entries = CollectionFactory.makeConcurrentParallelMap(128, concurrencyLevel, keyEq, AnyEquivalence.getInstance());
       evictionListener = null;
       extendedMap = new EquivalentConcurrentExtendedMap();
+      sizeCalculator = null;
+      expirationIndex = new ExpirationIndex<K>(keyEq);
    }
 
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
@@ -98,6 +121,9 @@ protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
          case LIRS:
             eviction = Eviction.LIRS;
             break;
+         case TINY_LFU:
+            eviction = Eviction.TINY_LFU;
+            break;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
@@ -105,6 +131,28 @@ protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
       entries = new BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>>(maxEntries, concurrencyLevel, eviction, evictionListener,
                                                                           keyEquivalence, AnyEquivalence.getInstance());
       extendedMap = new BoundedConcurrentExtendedMap();
+      sizeCalculator = null;
+      expirationIndex = new ExpirationIndex<K>(keyEquivalence);
+   }
+
+   protected DefaultDataContainer(int concurrencyLevel, long maxMemory,
+         EntrySizeCalculator<? super K, ? super V> calculator, EvictionThreadPolicy policy,
+         Equivalence<? super K> keyEquivalence) {
+      switch (policy) {
+         case PIGGYBACK:
+         case DEFAULT:
+            evictionListener = new DefaultEvictionListener();
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
+      }
+
+      // if no calculator is configured, the marshaller based one is installed on injection
+      sizeCalculator = new InternalEntrySizeCalculator<K, V>(calculator);
+      entries = new BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>>(maxMemory, concurrencyLevel, sizeCalculator,
+                                                                          evictionListener, keyEquivalence, AnyEquivalence.getInstance());
+      extendedMap = new BoundedConcurrentExtendedMap();
+      expirationIndex = new ExpirationIndex<K>(keyEquivalence);
    }
 
    @Inject
@@ -118,6 +166,13 @@ public void initialize(EvictionManager evictionManager, PassivationManager passi
       this.timeService = timeService;
    }
 
+   @Inject
+   public void injectMarshaller(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      if (sizeCalculator != null && sizeCalculator.calculator == null) {
+         sizeCalculator.calculator = new MarshalledEntrySizeCalculator(marshaller);
+      }
+   }
+
    public static <K, V> DataContainer<K, V> boundedDataContainer(int concurrencyLevel, int maxEntries,
             EvictionStrategy strategy, EvictionThreadPolicy policy,
             Equivalence<? super K> keyEquivalence) {
@@ -125,6 +180,12 @@ public static <K, V> DataContainer<K, V> boundedDataContainer(int concurrencyLev
             policy, keyEquivalence);
    }
 
+   public static <K, V> DataContainer<K, V> memoryBoundedDataContainer(int concurrencyLevel, long maxMemory,
+            EntrySizeCalculator<? super K, ? super V> sizeCalculator, EvictionThreadPolicy policy,
+            Equivalence<? super K> keyEquivalence) {
+      return new DefaultDataContainer<K, V>(concurrencyLevel, maxMemory, sizeCalculator, policy, keyEquivalence);
+   }
+
    public static <K, V> DataContainer<K, V> unBoundedDataContainer(int concurrencyLevel,
          Equivalence<? super K> keyEquivalence) {
       return new DefaultDataContainer(concurrencyLevel, keyEquivalence);
@@ -145,7 +206,7 @@ public InternalCacheEntry<K, V> get(Object k) {
       if (e != null && e.canExpire()) {
          long currentTimeMillis = timeService.wallClockTime();
          if (e.isExpired(currentTimeMillis)) {
-            entries.remove(k);
+            removeEntry(k);
             e = null;
          } else {
             e.touch(currentTimeMillis);
@@ -178,7 +239,7 @@ public void put(K k, V v, Metadata metadata) {
    public boolean containsKey(Object k) {
       InternalCacheEntry<K, V> ice = peek(k);
       if (ice != null && ice.canExpire() && ice.isExpired(timeService.wallClockTime())) {
-         entries.remove(k);
+         removeEntry(k);
          ice = null;
       }
       return ice != null;
@@ -186,10 +247,18 @@ public boolean containsKey(Object k) {
 
    @Override
    public InternalCacheEntry<K, V> remove(Object k) {
-      InternalCacheEntry<K, V> e = entries.remove(k);
+      InternalCacheEntry<K, V> e = removeEntry(k);
       return e == null || (e.canExpire() && e.isExpired(timeService.wallClockTime())) ? null : e;
    }
 
+   @SuppressWarnings("unchecked")
+   private InternalCacheEntry<K, V> removeEntry(Object k) {
+      InternalCacheEntry<K, V> e = entries.remove(k);
+      if (e != null)
+         extendedMap.reindex((K) k);
+      return e;
+   }
+
    @Override
    public int size() {
       return entries.size();
@@ -197,6 +266,8 @@ public int size() {
 
    @Override
    public void clear() {
+      // a key indexed by a concurrent put is at worst left in the index after its entry is cleared, never the opposite
+      expirationIndex.clear();
       entries.clear();
    }
 
@@ -217,13 +288,21 @@ public Set<InternalCacheEntry<K, V>> entrySet() {
 
    @Override
    public void purgeExpired() {
+      long start = timeService.time();
       long currentTimeMillis = timeService.wallClockTime();
-      for (Iterator<InternalCacheEntry<K, V>> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
-         InternalCacheEntry e = purgeCandidates.next();
-         if (e.isExpired(currentTimeMillis)) {
-            purgeCandidates.remove();
+      long removed = 0;
+      // only the keys indexed with an expiration time that is due need to be checked
+      for (Set<K> keys : expirationIndex.drainDue(currentTimeMillis)) {
+         for (K key : keys) {
+            if (extendedMap.purge(key, currentTimeMillis))
+               removed++;
          }
       }
+      lastPurgeDuration = timeService.timeDuration(start, TimeUnit.MILLISECONDS);
+      lastPurgeRemovedEntries = removed;
+      purgedEntries.add(removed);
+      if (trace)
+         log.tracef("Purged %d expired entries in %d milliseconds", removed, lastPurgeDuration);
    }
 
    @Override
@@ -236,6 +315,46 @@ public void compute(K key, ComputeAction<K, V> action) {
       extendedMap.compute(key, action);
    }
 
+   @ManagedAttribute(
+         description = "Estimated amount of memory used by the entries, in bytes, or -1 if eviction is not memory based",
+         displayName = "Estimated memory used by entries",
+         displayType = DisplayType.SUMMARY
+   )
+   public long getMemoryUsed() {
+      if (sizeCalculator == null)
+         return -1;
+      return ((BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>>) entries).memoryUsed();
+   }
+
+   @ManagedAttribute(
+         description = "Duration of the last purge of expired entries",
+         displayName = "Last purge duration",
+         units = Units.MILLISECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   public long getLastPurgeDuration() {
+      return lastPurgeDuration;
+   }
+
+   @ManagedAttribute(
+         description = "Number of expired entries removed by the last purge",
+         displayName = "Entries removed by the last purge",
+         displayType = DisplayType.SUMMARY
+   )
+   public long getLastPurgeRemovedEntries() {
+      return lastPurgeRemovedEntries;
+   }
+
+   @ManagedAttribute(
+         description = "Number of expired entries removed by all the purges",
+         displayName = "Number of purged entries",
+         measurementType = MeasurementType.TRENDSUP,
+         displayType = DisplayType.SUMMARY
+   )
+   public long getPurgedEntries() {
+      return purgedEntries.sum();
+   }
+
    @Override
    public Iterator<InternalCacheEntry<K, V>> iterator() {
       return new EntryIterator(entries.values().iterator());
@@ -245,6 +364,9 @@ private final class DefaultEvictionListener implements EvictionListener<K, Inter
 
       @Override
       public void onEntryEviction(Map<K, InternalCacheEntry<K, V>> evicted) {
+         for (K key : evicted.keySet()) {
+            extendedMap.reindex(key);
+         }
          evictionManager.onEntryEviction(evicted);
       }
 
@@ -265,6 +387,22 @@ public void onEntryRemoved(Object key) {
       }
    }
 
+   /**
+    * Adapts the configured {@link EntrySizeCalculator}, which sizes keys and values, to the entries stored in the map.
+    */
+   private static final class InternalEntrySizeCalculator<K, V> implements EntrySizeCalculator<K, InternalCacheEntry<K, V>> {
+      volatile EntrySizeCalculator<? super K, ? super V> calculator;
+
+      InternalEntrySizeCalculator(EntrySizeCalculator<? super K, ? super V> calculator) {
+         this.calculator = calculator;
+      }
+
+      @Override
+      public long calculateSize(K key, InternalCacheEntry<K, V> entry) {
+         return calculator.calculateSize(key, entry.getValue());
+      }
+   }
+
    private static class ImmutableEntryIterator<K, V> extends EntryIterator<K, V> {
       ImmutableEntryIterator(Iterator<InternalCacheEntry<K, V>> it){
          super(it);
@@ -398,7 +536,8 @@ public void apply(K key, InternalCacheEntry<K, V> value) {
    }
 
    /**
-    * Atomic logic to activate/passivate entries. This is dependent of the {@code ConcurrentMap} implementation.
+    * Atomic logic to activate/passivate entries and to keep the expiration index in sync with them. This is dependent
+    * of the {@code ConcurrentMap} implementation.
     */
    private static interface ExtendedMap<K, V> {
       void evict(K key);
@@ -406,6 +545,19 @@ public void apply(K key, InternalCacheEntry<K, V> value) {
       void compute(K key, ComputeAction<K, V> action);
 
       void putAndActivate(InternalCacheEntry<K, V> newEntry);
+
+      /**
+       * Updates the expiration index of a key from its current entry, after it was removed or evicted.
+       */
+      void reindex(K key);
+
+      /**
+       * Removes the entry of a key taken from a due bucket of the expiration index if it expired, or re-indexes it
+       * otherwise, without recording an access to the entry.
+       *
+       * @return {@code true} if the entry was removed
+       */
+      boolean purge(K key, long currentTimeMillis);
    }
 
    private class EquivalentConcurrentExtendedMap implements ExtendedMap<K, V> {
@@ -416,6 +568,7 @@ public void evict(K key) {
                   @Override
                   public InternalCacheEntry<K, V> apply(K o, InternalCacheEntry<K, V> entry) {
                      passivator.passivate(entry);
+                     expirationIndex.remove(o);
                      return null;
                   }
                });
@@ -431,6 +584,7 @@ public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> oldEntry)
                      if (newEntry == oldEntry) {
                         return oldEntry;
                      } else if (newEntry == null) {
+                        expirationIndex.remove(key);
                         return null;
                      }
                      if (oldEntry == null) {
@@ -439,6 +593,7 @@ public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> oldEntry)
                      }
                      if (trace)
                         log.tracef("Store %s in container", newEntry);
+                     expirationIndex.update(key, newEntry);
                      return newEntry;
                   }
                });
@@ -454,17 +609,49 @@ public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
                         //entry does not exists before. we need to activate it.
                         activator.activate(key);
                      }
-
+                     expirationIndex.update(key, newEntry);
                      return newEntry;
                   }
                });
       }
+
+      @Override
+      public void reindex(K key) {
+         ((EquivalentConcurrentHashMapV8<K, InternalCacheEntry<K, V>>) entries)
+               .compute(key, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+                  @Override
+                  public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
+                     expirationIndex.update(key, entry);
+                     return entry;
+                  }
+               });
+      }
+
+      @Override
+      public boolean purge(K key, final long currentTimeMillis) {
+         final boolean[] removed = new boolean[1];
+         ((EquivalentConcurrentHashMapV8<K, InternalCacheEntry<K, V>>) entries)
+               .compute(key, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+                  @Override
+                  public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
+                     if (entry != null && entry.canExpire() && entry.isExpired(currentTimeMillis)) {
+                        removed[0] = true;
+                        entry = null;
+                     }
+                     // touched or updated since it was indexed, or removed or made immortal
+                     expirationIndex.update(key, entry);
+                     return entry;
+                  }
+               });
+         return removed[0];
+      }
    }
 
    private class BoundedConcurrentExtendedMap implements ExtendedMap<K, V> {
       @Override
       public void evict(K key) {
          ((BoundedConcurrentHashMap<Object, InternalCacheEntry<K, V>>) entries).evict(key);
+         reindex(key);
       }
 
       @Override
@@ -479,12 +666,14 @@ public void compute(K key, final ComputeAction<K, V> action) {
                return;
             } else if (newEntry == null) {
                boundedMap.remove(key);
+               expirationIndex.remove(key);
                return;
             }
             if (trace)
                log.tracef("Store %s in container", newEntry);
             //put already activate the entry if it is new.
             boundedMap.put(key, newEntry);
+            expirationIndex.update(key, newEntry);
          } finally {
             boundedMap.unlock(key);
          }
@@ -494,6 +683,44 @@ public void compute(K key, final ComputeAction<K, V> action) {
       public void putAndActivate(InternalCacheEntry<K, V> newEntry) {
          //put already activate the entry if it is new.
          entries.put(newEntry.getKey(), newEntry);
+         // not under the segment lock, so that the evicted entries aren't notified while holding it
+         reindex(newEntry.getKey());
+      }
+
+      /**
+       * Every write is followed by a re-index of its key under the segment lock, from the entry current at that time,
+       * so the last one always leaves the index matching the container.
+       */
+      @Override
+      public void reindex(K key) {
+         BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>> boundedMap =
+               ((BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>>) entries);
+         boundedMap.lock(key);
+         try {
+            expirationIndex.update(key, boundedMap.peek(key));
+         } finally {
+            boundedMap.unlock(key);
+         }
+      }
+
+      @Override
+      public boolean purge(K key, long currentTimeMillis) {
+         BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>> boundedMap =
+               ((BoundedConcurrentHashMap<K, InternalCacheEntry<K, V>>) entries);
+         boundedMap.lock(key);
+         try {
+            // peek doesn't count as an access, so the eviction order doesn't change
+            InternalCacheEntry<K, V> e = boundedMap.peek(key);
+            boolean expired = e != null && e.canExpire() && e.isExpired(currentTimeMillis);
+            if (expired) {
+               boundedMap.remove(key);
+               e = null;
+            }
+            expirationIndex.update(key, e);
+            return expired;
+         } finally {
+            boundedMap.unlock(key);
+         }
       }
    }
 }
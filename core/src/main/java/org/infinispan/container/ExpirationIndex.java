@@ -0,0 +1,144 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.container.entries.InternalCacheEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the keys of the container's mortal and transient entries, grouped in buckets by their expiration time, so
+ * that purging expired entries only needs to look at the keys whose buckets are due instead of scanning every entry.
+ * <p/>
+ * A key is indexed in one bucket at most: indexing it again moves it to the bucket of its new expiration time. The
+ * container must update the index of a key while holding the lock it uses to update the key's entry, so that the
+ * index and the entries can't diverge under concurrent writes. Transient entries are not re-indexed when they are
+ * touched: the keys of due buckets are checked against the container, and the entries whose expiration time moved
+ * forward are {@link #add(Object, long) re-indexed} then.
+ *
+ * @since 7.0
+ */
+final class ExpirationIndex<K> {
+
+   /**
+    * Width of the time buckets, in milliseconds
+    */
+   static final long DEFAULT_RESOLUTION = 1000;
+
+   private final ConcurrentSkipListMap<Long, Set<K>> buckets = new ConcurrentSkipListMap<Long, Set<K>>();
+   private final ConcurrentMap<K, Long> bucketOfKey;
+   private final Equivalence<? super K> keyEquivalence;
+   private final long resolution;
+
+   ExpirationIndex(Equivalence<? super K> keyEquivalence) {
+      this(keyEquivalence, DEFAULT_RESOLUTION);
+   }
+
+   ExpirationIndex(Equivalence<? super K> keyEquivalence, long resolution) {
+      this.keyEquivalence = keyEquivalence;
+      this.resolution = resolution;
+      this.bucketOfKey = CollectionFactory.makeConcurrentMap(keyEquivalence, AnyEquivalence.<Long>getInstance());
+   }
+
+   /**
+    * Indexes a key whose entry expires at the given time, removing it from the bucket it was indexed in before, if
+    * any. Must be called while holding the container's lock for the key.
+    */
+   void add(K key, long expiryTime) {
+      Long bucket = bucketFor(expiryTime);
+      Long previous = bucketOfKey.put(key, bucket);
+      if (previous != null && !previous.equals(bucket))
+         removeFromBucket(previous, key);
+      for (;;) {
+         Set<K> keys = buckets.get(bucket);
+         if (keys == null) {
+            Set<K> newKeys = newBucket();
+            keys = buckets.putIfAbsent(bucket, newKeys);
+            if (keys == null)
+               keys = newKeys;
+         }
+         keys.add(key);
+         // if the bucket was drained concurrently, the key has to go into a new one
+         if (buckets.get(bucket) == keys)
+            return;
+      }
+   }
+
+   /**
+    * Updates the index after the entry of a key was replaced, removed or evicted. Must be called while holding the
+    * container's lock for the key.
+    *
+    * @param entry the entry now stored for the key, or {@code null} if there is none
+    */
+   void update(K key, InternalCacheEntry<?, ?> entry) {
+      if (entry != null && entry.canExpire())
+         add(key, entry.getExpiryTime());
+      else
+         remove(key);
+   }
+
+   /**
+    * Removes a key from the index. Must be called while holding the container's lock for the key.
+    */
+   void remove(Object key) {
+      Long bucket = bucketOfKey.remove(key);
+      if (bucket != null)
+         removeFromBucket(bucket, key);
+   }
+
+   /**
+    * Removes from the index, and returns, the buckets of keys that may have expired at the given time. The drained
+    * keys stay associated with their bucket until the container either {@link #remove(Object) removes} or
+    * {@link #add(Object, long) re-indexes} them.
+    */
+   List<Set<K>> drainDue(long currentTimeMillis) {
+      ConcurrentNavigableMap<Long, Set<K>> due = buckets.headMap(bucketFor(currentTimeMillis), true);
+      List<Set<K>> drained = new ArrayList<Set<K>>();
+      for (Map.Entry<Long, Set<K>> bucket; (bucket = due.pollFirstEntry()) != null; ) {
+         drained.add(bucket.getValue());
+      }
+      return drained;
+   }
+
+   void clear() {
+      buckets.clear();
+      bucketOfKey.clear();
+   }
+
+   /**
+    * @return the number of time buckets currently holding keys
+    */
+   int bucketCount() {
+      return buckets.size();
+   }
+
+   /**
+    * @return the number of keys currently indexed
+    */
+   int size() {
+      return bucketOfKey.size();
+   }
+
+   private void removeFromBucket(Long bucket, Object key) {
+      Set<K> keys = buckets.get(bucket);
+      if (keys != null)
+         keys.remove(key);
+   }
+
+   private Long bucketFor(long time) {
+      return time / resolution;
+   }
+
+   private Set<K> newBucket() {
+      return Collections.newSetFromMap(CollectionFactory.<K, Boolean>makeConcurrentMap(
+            keyEquivalence, AnyEquivalence.<Boolean>getInstance()));
+   }
+}
@@ -0,0 +1,477 @@
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.commons.logging.Log;
+import org.infinispan.commons.logging.LogFactory;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.Util;
+import org.infinispan.commons.util.concurrent.ParallelIterableMap;
+import org.infinispan.commons.util.concurrent.jdk8backported.ConcurrentParallelHashMapV8;
+import org.infinispan.commons.util.concurrent.jdk8backported.EquivalentConcurrentHashMapV8;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.group.GroupManager;
+import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.util.CoreImmutables;
+import org.infinispan.util.TimeService;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link DataContainer} keeping the entries of each consistent hash segment in a map of their own, so that the
+ * entries of a set of segments can be iterated, counted or collected at a cost proportional to the number of entries in
+ * these segments only, e.g. when pushing segments to another node during state transfer, or when dropping the
+ * segments a node no longer owns.
+ * <p/>
+ * Keys are mapped to segments the same way as the consistent hashes of distributed caches do, using the configured
+ * hash function and number of segments, so the container doesn't depend on the current topology. When grouping is
+ * enabled, a key belongs to the segment of its group. Eviction is not supported.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class SegmentedDataContainer<K, V> implements DataContainer<K, V> {
+
+   private static final Log log = LogFactory.getLog(SegmentedDataContainer.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final int SEGMENT_INITIAL_CAPACITY = 16;
+
+   private final ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>>[] segments;
+   private final Hash hashFunction;
+   private final int segmentSize;
+   private final ExpirationIndex<K> expirationIndex;
+   protected InternalEntryFactory entryFactory;
+   private PassivationManager passivator;
+   private ActivationManager activator;
+   private TimeService timeService;
+   private GroupManager groupManager;   // optional
+
+   @SuppressWarnings("unchecked")
+   public SegmentedDataContainer(int concurrencyLevel, Equivalence<? super K> keyEquivalence, Hash hashFunction,
+                                 int numSegments) {
+      if (numSegments < 1)
+         throw new IllegalArgumentException("The number of segments must be strictly positive");
+      this.hashFunction = hashFunction;
+      this.segmentSize = Util.getSegmentSize(numSegments);
+      this.segments = new ConcurrentParallelHashMapV8[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+         segments[i] = (ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>>) CollectionFactory.<K, InternalCacheEntry<K, V>>makeConcurrentParallelMap(
+               SEGMENT_INITIAL_CAPACITY, concurrencyLevel, keyEquivalence, AnyEquivalence.getInstance());
+      }
+      this.expirationIndex = new ExpirationIndex<K>(keyEquivalence);
+   }
+
+   @Inject
+   public void initialize(PassivationManager passivator, InternalEntryFactory entryFactory,
+                          ActivationManager activator, TimeService timeService, GroupManager groupManager) {
+      this.passivator = passivator;
+      this.entryFactory = entryFactory;
+      this.activator = activator;
+      this.timeService = timeService;
+      this.groupManager = groupManager;
+   }
+
+   /**
+    * @return the segment of the key, as computed by the consistent hash of a distributed cache
+    */
+   public int getSegment(Object key) {
+      return (hashFunction.hash(getGroupKey(key)) & Integer.MAX_VALUE) / segmentSize;
+   }
+
+   private Object getGroupKey(Object key) {
+      if (groupManager != null) {
+         String group = groupManager.getGroup(key);
+         if (group != null) {
+            return group;
+         }
+      }
+      return key;
+   }
+
+   public int getNumSegments() {
+      return segments.length;
+   }
+
+   /**
+    * @return the number of entries of the segment, including the expired entries not purged yet
+    */
+   public int size(int segment) {
+      return segments[segment].size();
+   }
+
+   /**
+    * Iterates over the entries of a segment only. As with {@link #iterator()}, the expired entries not purged yet are
+    * included, and removing entries through the iterator isn't supported.
+    */
+   public Iterator<InternalCacheEntry<K, V>> iterator(int segment) {
+      return new DefaultDataContainer.EntryIterator<K, V>(segments[segment].values().iterator());
+   }
+
+   private ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>> segmentFor(Object key) {
+      return segments[getSegment(key)];
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> peek(Object key) {
+      return segmentFor(key).get(key);
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> get(Object k) {
+      InternalCacheEntry<K, V> e = peek(k);
+      if (e != null && e.canExpire()) {
+         long currentTimeMillis = timeService.wallClockTime();
+         if (e.isExpired(currentTimeMillis)) {
+            removeEntry(k);
+            e = null;
+         } else {
+            e.touch(currentTimeMillis);
+         }
+      }
+      return e;
+   }
+
+   @Override
+   public void put(K k, V v, Metadata metadata) {
+      InternalCacheEntry<K, V> e = peek(k);
+
+      if (trace) {
+         log.tracef("Creating new ICE for writing. Existing=%s, metadata=%s, new value=%s", e, metadata, v);
+      }
+      if (e != null) {
+         e = entryFactory.update(e, v, metadata);
+      } else {
+         // this is a brand-new entry
+         e = entryFactory.create(k, v, metadata);
+      }
+
+      if (trace)
+         log.tracef("Store %s in container", e);
+
+      final InternalCacheEntry<K, V> newEntry = e;
+      segmentFor(k).compute(k, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+         @Override
+         public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
+            if (entry == null) {
+               //entry does not exists before. we need to activate it.
+               activator.activate(key);
+            }
+            expirationIndex.update(key, newEntry);
+            return newEntry;
+         }
+      });
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      InternalCacheEntry<K, V> ice = peek(k);
+      if (ice != null && ice.canExpire() && ice.isExpired(timeService.wallClockTime())) {
+         removeEntry(k);
+         ice = null;
+      }
+      return ice != null;
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> remove(Object k) {
+      InternalCacheEntry<K, V> e = removeEntry(k);
+      return e == null || (e.canExpire() && e.isExpired(timeService.wallClockTime())) ? null : e;
+   }
+
+   @SuppressWarnings("unchecked")
+   private InternalCacheEntry<K, V> removeEntry(Object k) {
+      final Object[] removed = new Object[1];
+      segmentFor(k).computeIfPresent((K) k, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+         @Override
+         public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
+            removed[0] = entry;
+            expirationIndex.remove(key);
+            return null;
+         }
+      });
+      return (InternalCacheEntry<K, V>) removed[0];
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (Map<K, InternalCacheEntry<K, V>> segment : segments) {
+         size += segment.size();
+      }
+      return size;
+   }
+
+   @Override
+   public void clear() {
+      // a key indexed by a concurrent put is at worst left in the index after its entry is cleared, never the opposite
+      expirationIndex.clear();
+      for (Map<K, InternalCacheEntry<K, V>> segment : segments) {
+         segment.clear();
+      }
+   }
+
+   @Override
+   public Set<K> keySet() {
+      return new KeySet();
+   }
+
+   @Override
+   public Collection<V> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry<K, V>> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      final long currentTimeMillis = timeService.wallClockTime();
+      EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>> purge =
+            new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+         @Override
+         public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> entry) {
+            if (entry != null && entry.canExpire() && entry.isExpired(currentTimeMillis)) {
+               entry = null;
+            }
+            // touched or updated since it was indexed, or removed or made immortal
+            expirationIndex.update(key, entry);
+            return entry;
+         }
+      };
+      // only the keys indexed with an expiration time that is due need to be checked
+      for (Set<K> keys : expirationIndex.drainDue(currentTimeMillis)) {
+         for (K key : keys) {
+            segmentFor(key).compute(key, purge);
+         }
+      }
+   }
+
+   @Override
+   public void evict(K key) {
+      segmentFor(key).computeIfPresent(key, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+         @Override
+         public InternalCacheEntry<K, V> apply(K o, InternalCacheEntry<K, V> entry) {
+            passivator.passivate(entry);
+            expirationIndex.remove(o);
+            return null;
+         }
+      });
+   }
+
+   @Override
+   public void compute(K key, final ComputeAction<K, V> action) {
+      segmentFor(key).compute(key, new EquivalentConcurrentHashMapV8.BiFun<K, InternalCacheEntry<K, V>, InternalCacheEntry<K, V>>() {
+         @Override
+         public InternalCacheEntry<K, V> apply(K key, InternalCacheEntry<K, V> oldEntry) {
+            InternalCacheEntry<K, V> newEntry = action.compute(key, oldEntry, entryFactory);
+            if (newEntry == oldEntry) {
+               return oldEntry;
+            } else if (newEntry == null) {
+               expirationIndex.remove(key);
+               return null;
+            }
+            if (oldEntry == null) {
+               //new entry. need to activate the key.
+               activator.activate(key);
+            }
+            if (trace)
+               log.tracef("Store %s in container", newEntry);
+            expirationIndex.update(key, newEntry);
+            return newEntry;
+         }
+      });
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry<K, V>> iterator() {
+      return new SegmentsIterator<K, V>(segments);
+   }
+
+   @Override
+   public void executeTask(final AdvancedCacheLoader.KeyFilter<? super K> filter,
+                           final ParallelIterableMap.KeyValueAction<? super K, InternalCacheEntry<? super K, ? super V>> action) throws InterruptedException {
+      if (filter == null)
+         throw new IllegalArgumentException("No filter specified");
+      if (action == null)
+         throw new IllegalArgumentException("No action specified");
+
+      ParallelIterableMap.KeyValueAction<K, InternalCacheEntry<K, V>> filteredAction =
+            new ParallelIterableMap.KeyValueAction<K, InternalCacheEntry<K, V>>() {
+               @Override
+               public void apply(K key, InternalCacheEntry<K, V> value) {
+                  if (filter.shouldLoadKey(key)) {
+                     action.apply(key, value);
+                  }
+               }
+            };
+      for (ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>> segment : segments) {
+         segment.forEach(512, filteredAction);
+         if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+         }
+      }
+   }
+
+   /**
+    * Iterates over the entries of all the segments, one segment after the other.
+    */
+   private static class SegmentsIterator<K, V> implements Iterator<InternalCacheEntry<K, V>> {
+      private final ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>>[] segments;
+      private int nextSegment;
+      private Iterator<InternalCacheEntry<K, V>> current;
+
+      SegmentsIterator(ConcurrentParallelHashMapV8<K, InternalCacheEntry<K, V>>[] segments) {
+         this.segments = segments;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (current == null || !current.hasNext()) {
+            if (nextSegment == segments.length)
+               return false;
+            current = segments[nextSegment++].values().iterator();
+         }
+         return true;
+      }
+
+      @Override
+      public InternalCacheEntry<K, V> next() {
+         if (!hasNext())
+            throw new NoSuchElementException();
+         return current.next();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class KeySet extends AbstractSet<K> {
+      @Override
+      public Iterator<K> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new SegmentsIterator<K, V>(segments);
+         return new Iterator<K>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public K next() {
+               return it.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return segmentFor(o).containsKey(o);
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry<K, V>> {
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry<K, V>> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new SegmentsIterator<K, V>(segments);
+         return new Iterator<InternalCacheEntry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry<K, V> next() {
+               return CoreImmutables.immutableInternalCacheEntry(it.next());
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    */
+   private class Values extends AbstractCollection<V> {
+      @Override
+      public Iterator<V> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new SegmentsIterator<K, V>(segments);
+         return new Iterator<V>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public V next() {
+               return it.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+}
@@ -0,0 +1,778 @@
+package org.infinispan.container.offheap;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.commons.logging.Log;
+import org.infinispan.commons.logging.LogFactory;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.commons.util.concurrent.ParallelIterableMap;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.util.CoreImmutables;
+import org.infinispan.util.TimeService;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A {@link DataContainer} which keeps its entries outside of the Java heap.
+ * <p/>
+ * Keys and {@link InternalCacheValue}s (value, metadata and timestamps) are marshalled with the cache marshaller and
+ * copied into native memory blocks, one block per entry. The blocks are chained together in a segmented hash index
+ * whose buckets only hold native addresses, so the heap footprint of the container is a function of the number of
+ * buckets rather than of the amount of data stored.
+ * <p/>
+ * Each native record has the following layout:
+ * <pre>
+ *    next (8) | hash (4) | key length (4) | value length (4) | expiry time (8) | stamp (8) | key | value
+ * </pre>
+ * The expiry time is kept in the record header so that {@link #purgeExpired()} and {@link #containsKey(Object)} do
+ * not need to unmarshall entries. The stamp uniquely identifies a version of a record and is used to detect
+ * concurrent updates when an entry read without holding the write lock needs to be written back (e.g. to update the
+ * last used time of a transient entry).
+ * <p/>
+ * Because keys are compared using their marshalled form, two keys are considered equal only if they marshall to the
+ * same bytes. The configured key {@link org.infinispan.commons.equivalence.Equivalence} is therefore not used.
+ * <p/>
+ * Entries returned by this container are copies of the stored data, so modifying an entry has no effect on the
+ * container until it is stored again via {@link #put(Object, Object, Metadata)} or
+ * {@link #compute(Object, ComputeAction)}.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public class OffHeapDataContainer<K, V> implements DataContainer<K, V> {
+
+   private static final Log log = LogFactory.getLog(OffHeapDataContainer.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final int NEXT_OFFSET = 0;
+   private static final int HASH_OFFSET = 8;
+   private static final int KEY_LENGTH_OFFSET = 12;
+   private static final int VALUE_LENGTH_OFFSET = 16;
+   private static final int EXPIRY_OFFSET = 20;
+   private static final int STAMP_OFFSET = 28;
+   private static final int HEADER_SIZE = 36;
+
+   private static final int MIN_SEGMENT_CAPACITY = 16;
+   private static final float LOAD_FACTOR = 0.75f;
+
+   private final OffHeapMemory memory = new OffHeapMemory();
+   private final Hash hash = new MurmurHash3();
+   private final AtomicLong stamps = new AtomicLong();
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final int segmentMask;
+
+   private StreamingMarshaller marshaller;
+   private InternalEntryFactory entryFactory;
+   private PassivationManager passivator;
+   private ActivationManager activator;
+   private TimeService timeService;
+
+   public OffHeapDataContainer(int concurrencyLevel) {
+      this(concurrencyLevel, 128);
+   }
+
+   public OffHeapDataContainer(int concurrencyLevel, int initialCapacity) {
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+
+      int capacity = MIN_SEGMENT_CAPACITY;
+      while (capacity * ssize < initialCapacity)
+         capacity <<= 1;
+
+      segments = new Segment[ssize];
+      for (int i = 0; i < segments.length; i++)
+         segments[i] = new Segment(capacity);
+   }
+
+   @Inject
+   public void initialize(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller,
+                          InternalEntryFactory entryFactory, PassivationManager passivator,
+                          ActivationManager activator, TimeService timeService) {
+      this.marshaller = marshaller;
+      this.entryFactory = entryFactory;
+      this.passivator = passivator;
+      this.activator = activator;
+      this.timeService = timeService;
+   }
+
+   /**
+    * @return the number of bytes of native memory currently used by the stored entries
+    */
+   public long offHeapSize() {
+      return memory.allocatedBytes();
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> peek(Object k) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      segment.lock.readLock().lock();
+      try {
+         long address = segment.find(h, key);
+         return address == 0 ? null : toEntry(k, segment.readValue(address));
+      } finally {
+         segment.lock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> get(Object k) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      byte[] value;
+      long stamp;
+      segment.lock.readLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address == 0)
+            return null;
+         value = segment.readValue(address);
+         stamp = memory.getLong(address + STAMP_OFFSET);
+      } finally {
+         segment.lock.readLock().unlock();
+      }
+
+      InternalCacheEntry<K, V> e = toEntry(k, value);
+      if (e.canExpire()) {
+         long currentTimeMillis = timeService.wallClockTime();
+         if (e.isExpired(currentTimeMillis)) {
+            removeIfUnchanged(segment, h, key, stamp);
+            e = null;
+         } else if (e.getMaxIdle() > -1) {
+            e.touch(currentTimeMillis);
+            replaceIfUnchanged(segment, h, key, stamp, marshall(e.toInternalCacheValue()), e.getExpiryTime());
+         }
+      }
+      return e;
+   }
+
+   @Override
+   public void put(K k, V v, Metadata metadata) {
+      // Entries are never shared with callers, so there is nothing to update in place: always create a new one
+      InternalCacheEntry<K, V> e = entryFactory.create(k, v, metadata);
+      if (trace)
+         log.tracef("Store %s in container", e);
+
+      byte[] key = marshall(k);
+      byte[] value = marshall(e.toInternalCacheValue());
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      segment.lock.writeLock().lock();
+      try {
+         if (segment.store(h, key, value, e.getExpiryTime())) {
+            //entry does not exists before. we need to activate it.
+            activator.activate(k);
+         }
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      long expiryTime;
+      long stamp;
+      segment.lock.readLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address == 0)
+            return false;
+         expiryTime = memory.getLong(address + EXPIRY_OFFSET);
+         stamp = memory.getLong(address + STAMP_OFFSET);
+      } finally {
+         segment.lock.readLock().unlock();
+      }
+
+      if (isExpired(expiryTime, timeService.wallClockTime())) {
+         removeIfUnchanged(segment, h, key, stamp);
+         return false;
+      }
+      return true;
+   }
+
+   @Override
+   public InternalCacheEntry<K, V> remove(Object k) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      byte[] value;
+      long expiryTime;
+      segment.lock.writeLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address == 0)
+            return null;
+         value = segment.readValue(address);
+         expiryTime = memory.getLong(address + EXPIRY_OFFSET);
+         segment.remove(h, address);
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+      return isExpired(expiryTime, timeService.wallClockTime()) ? null : toEntry(k, value);
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (Segment segment : segments)
+         size += segment.count;
+      return size;
+   }
+
+   @Override
+   public void clear() {
+      for (Segment segment : segments) {
+         segment.lock.writeLock().lock();
+         try {
+            segment.clear();
+         } finally {
+            segment.lock.writeLock().unlock();
+         }
+      }
+   }
+
+   @Override
+   public Set<K> keySet() {
+      return new KeySet();
+   }
+
+   @Override
+   public Collection<V> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry<K, V>> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      long currentTimeMillis = timeService.wallClockTime();
+      for (Segment segment : segments) {
+         segment.lock.writeLock().lock();
+         try {
+            segment.purgeExpired(currentTimeMillis);
+         } finally {
+            segment.lock.writeLock().unlock();
+         }
+      }
+   }
+
+   @Override
+   public void evict(K k) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      segment.lock.writeLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address != 0) {
+            passivator.passivate(toEntry(k, segment.readValue(address)));
+            segment.remove(h, address);
+         }
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public void compute(K k, ComputeAction<K, V> action) {
+      byte[] key = marshall(k);
+      int h = hash(key);
+      Segment segment = segmentFor(h);
+      segment.lock.writeLock().lock();
+      try {
+         long address = segment.find(h, key);
+         InternalCacheEntry<K, V> oldEntry = address == 0 ? null : toEntry(k, segment.readValue(address));
+         InternalCacheEntry<K, V> newEntry = action.compute(k, oldEntry, entryFactory);
+         if (newEntry == oldEntry) {
+            return;
+         } else if (newEntry == null) {
+            if (address != 0)
+               segment.remove(h, address);
+            return;
+         }
+         if (trace)
+            log.tracef("Store %s in container", newEntry);
+         segment.store(h, key, marshall(newEntry.toInternalCacheValue()), newEntry.getExpiryTime());
+         if (oldEntry == null) {
+            //new entry. need to activate the key.
+            activator.activate(k);
+         }
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry<K, V>> iterator() {
+      return new EntryIterator();
+   }
+
+   @Override
+   public void executeTask(AdvancedCacheLoader.KeyFilter<? super K> filter,
+                           ParallelIterableMap.KeyValueAction<? super K, InternalCacheEntry<? super K, ? super V>> action) throws InterruptedException {
+      if (filter == null)
+         throw new IllegalArgumentException("No filter specified");
+      if (action == null)
+         throw new IllegalArgumentException("No action specified");
+
+      for (Iterator<InternalCacheEntry<K, V>> it = iterator(); it.hasNext(); ) {
+         InternalCacheEntry<K, V> entry = it.next();
+         if (filter.shouldLoadKey(entry.getKey())) {
+            action.apply(entry.getKey(), entry);
+         }
+         if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+         }
+      }
+   }
+
+   private void removeIfUnchanged(Segment segment, int h, byte[] key, long stamp) {
+      segment.lock.writeLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address != 0 && memory.getLong(address + STAMP_OFFSET) == stamp)
+            segment.remove(h, address);
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+   }
+
+   private void replaceIfUnchanged(Segment segment, int h, byte[] key, long stamp, byte[] value, long expiryTime) {
+      segment.lock.writeLock().lock();
+      try {
+         long address = segment.find(h, key);
+         if (address != 0 && memory.getLong(address + STAMP_OFFSET) == stamp)
+            segment.store(h, key, value, expiryTime);
+      } finally {
+         segment.lock.writeLock().unlock();
+      }
+   }
+
+   private static boolean isExpired(long expiryTime, long currentTimeMillis) {
+      return expiryTime > -1 && currentTimeMillis > expiryTime;
+   }
+
+   private Segment segmentFor(int h) {
+      return segments[(h >>> segmentShift) & segmentMask];
+   }
+
+   private int hash(byte[] key) {
+      return hash.hash(key);
+   }
+
+   private byte[] marshall(Object o) {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheException("Unable to marshall " + o + " for off-heap storage", e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException(e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (IOException e) {
+         throw new CacheException("Unable to unmarshall off-heap entry", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheException("Unable to unmarshall off-heap entry", e);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private InternalCacheEntry<K, V> toEntry(Object key, byte[] value) {
+      InternalCacheValue<V> icv = (InternalCacheValue<V>) unmarshall(value);
+      return icv.toInternalCacheEntry((K) key);
+   }
+
+   /**
+    * A portion of the hash index, guarded by its own read/write lock. Unless stated otherwise, callers must hold the
+    * appropriate lock when invoking any of the methods of a segment.
+    */
+   private final class Segment {
+      final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+      final int initialCapacity;
+      long[] table;
+      int threshold;
+      volatile int count;
+
+      Segment(int initialCapacity) {
+         this.initialCapacity = initialCapacity;
+         setTable(new long[initialCapacity]);
+      }
+
+      long find(int h, byte[] key) {
+         long address = table[h & (table.length - 1)];
+         while (address != 0 && !matches(address, h, key))
+            address = next(address);
+         return address;
+      }
+
+      /**
+       * Stores a new record for the key, releasing the previous one if any.
+       *
+       * @return true if the key was not present in the segment before
+       */
+      boolean store(int h, byte[] key, byte[] value, long expiryTime) {
+         int index = h & (table.length - 1);
+         long previous = 0;
+         long address = table[index];
+         while (address != 0 && !matches(address, h, key)) {
+            previous = address;
+            address = next(address);
+         }
+
+         long record = allocate(h, key, value, expiryTime);
+         if (address != 0) {
+            memory.putLong(record + NEXT_OFFSET, next(address));
+            link(index, previous, record);
+            release(address);
+            return false;
+         }
+
+         memory.putLong(record + NEXT_OFFSET, table[index]);
+         table[index] = record;
+         if (++count > threshold)
+            rehash();
+         return true;
+      }
+
+      void remove(int h, long address) {
+         int index = h & (table.length - 1);
+         long previous = 0;
+         long current = table[index];
+         while (current != address) {
+            previous = current;
+            current = next(current);
+         }
+         link(index, previous, next(address));
+         release(address);
+         count--;
+      }
+
+      void purgeExpired(long currentTimeMillis) {
+         for (int i = 0; i < table.length; i++) {
+            long previous = 0;
+            long address = table[i];
+            while (address != 0) {
+               long next = next(address);
+               if (isExpired(memory.getLong(address + EXPIRY_OFFSET), currentTimeMillis)) {
+                  link(i, previous, next);
+                  release(address);
+                  count--;
+               } else {
+                  previous = address;
+               }
+               address = next;
+            }
+         }
+      }
+
+      void clear() {
+         for (long address : table) {
+            while (address != 0) {
+               long next = next(address);
+               release(address);
+               address = next;
+            }
+         }
+         setTable(new long[initialCapacity]);
+         count = 0;
+      }
+
+      byte[] readValue(long address) {
+         int keyLength = memory.getInt(address + KEY_LENGTH_OFFSET);
+         int valueLength = memory.getInt(address + VALUE_LENGTH_OFFSET);
+         return memory.getBytes(address + HEADER_SIZE + keyLength, valueLength);
+      }
+
+      /**
+       * Takes a snapshot of the marshalled keys in this segment. Acquires the read lock.
+       */
+      List<byte[]> keys() {
+         lock.readLock().lock();
+         try {
+            List<byte[]> keys = new ArrayList<byte[]>(count);
+            for (long address : table) {
+               while (address != 0) {
+                  keys.add(memory.getBytes(address + HEADER_SIZE, memory.getInt(address + KEY_LENGTH_OFFSET)));
+                  address = next(address);
+               }
+            }
+            return keys;
+         } finally {
+            lock.readLock().unlock();
+         }
+      }
+
+      private boolean matches(long address, int h, byte[] key) {
+         return memory.getInt(address + HASH_OFFSET) == h
+               && memory.getInt(address + KEY_LENGTH_OFFSET) == key.length
+               && memory.equalBytes(address + HEADER_SIZE, key, key.length);
+      }
+
+      private long next(long address) {
+         return memory.getLong(address + NEXT_OFFSET);
+      }
+
+      private void link(int index, long previous, long next) {
+         if (previous == 0)
+            table[index] = next;
+         else
+            memory.putLong(previous + NEXT_OFFSET, next);
+      }
+
+      private long allocate(int h, byte[] key, byte[] value, long expiryTime) {
+         long address = memory.allocate(HEADER_SIZE + key.length + value.length);
+         memory.putInt(address + HASH_OFFSET, h);
+         memory.putInt(address + KEY_LENGTH_OFFSET, key.length);
+         memory.putInt(address + VALUE_LENGTH_OFFSET, value.length);
+         memory.putLong(address + EXPIRY_OFFSET, expiryTime);
+         memory.putLong(address + STAMP_OFFSET, stamps.incrementAndGet());
+         memory.putBytes(address + HEADER_SIZE, key, 0, key.length);
+         memory.putBytes(address + HEADER_SIZE + key.length, value, 0, value.length);
+         return address;
+      }
+
+      private void release(long address) {
+         int size = HEADER_SIZE + memory.getInt(address + KEY_LENGTH_OFFSET) + memory.getInt(address + VALUE_LENGTH_OFFSET);
+         memory.free(address, size);
+      }
+
+      private void rehash() {
+         long[] oldTable = table;
+         long[] newTable = new long[oldTable.length << 1];
+         int mask = newTable.length - 1;
+         for (long address : oldTable) {
+            while (address != 0) {
+               long next = next(address);
+               int index = memory.getInt(address + HASH_OFFSET) & mask;
+               memory.putLong(address + NEXT_OFFSET, newTable[index]);
+               newTable[index] = address;
+               address = next;
+            }
+         }
+         setTable(newTable);
+      }
+
+      private void setTable(long[] newTable) {
+         table = newTable;
+         threshold = (int) (newTable.length * LOAD_FACTOR);
+      }
+   }
+
+   /**
+    * Iterates over the entries one segment at a time. The marshalled keys of a segment are copied when the iterator
+    * moves to it, and each entry is then looked up individually, so that native memory is never accessed without
+    * holding the segment lock. Entries removed after the snapshot has been taken are skipped.
+    */
+   private class EntryIterator implements Iterator<InternalCacheEntry<K, V>> {
+      private int nextSegment;
+      private Iterator<byte[]> keys = Collections.<byte[]>emptyList().iterator();
+      private InternalCacheEntry<K, V> next;
+
+      EntryIterator() {
+         advance();
+      }
+
+      private void advance() {
+         next = null;
+         while (next == null) {
+            if (keys.hasNext()) {
+               byte[] key = keys.next();
+               int h = hash(key);
+               Segment segment = segmentFor(h);
+               byte[] value = null;
+               segment.lock.readLock().lock();
+               try {
+                  long address = segment.find(h, key);
+                  if (address != 0)
+                     value = segment.readValue(address);
+               } finally {
+                  segment.lock.readLock().unlock();
+               }
+               if (value != null)
+                  next = toEntry(unmarshall(key), value);
+            } else if (nextSegment < segments.length) {
+               keys = segments[nextSegment++].keys().iterator();
+            } else {
+               return;
+            }
+         }
+      }
+
+      @Override
+      public boolean hasNext() {
+         return next != null;
+      }
+
+      @Override
+      public InternalCacheEntry<K, V> next() {
+         if (next == null)
+            throw new NoSuchElementException();
+         InternalCacheEntry<K, V> entry = next;
+         advance();
+         return entry;
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class KeySet extends AbstractSet<K> {
+      @Override
+      public Iterator<K> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new EntryIterator();
+         return new Iterator<K>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public K next() {
+               return it.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return peek(o) != null;
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    */
+   private class Values extends AbstractCollection<V> {
+      @Override
+      public Iterator<V> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new EntryIterator();
+         return new Iterator<V>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public V next() {
+               return it.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry<K, V>> {
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry<K, V>> iterator() {
+         final Iterator<InternalCacheEntry<K, V>> it = new EntryIterator();
+         return new Iterator<InternalCacheEntry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry<K, V> next() {
+               return CoreImmutables.immutableInternalCacheEntry(it.next());
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
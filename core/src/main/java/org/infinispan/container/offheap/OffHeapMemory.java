@@ -0,0 +1,116 @@
+package org.infinispan.container.offheap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thin wrapper around {@link sun.misc.Unsafe} used to allocate, access and release native memory outside of the Java
+ * heap. Every allocation is accounted for, so that the amount of native memory in use can be queried at any time.
+ * <p/>
+ * None of the methods perform bounds checking: callers are responsible for only touching memory that they have
+ * allocated and not yet released.
+ *
+ * @since 7.0
+ */
+public final class OffHeapMemory {
+
+   private static final sun.misc.Unsafe UNSAFE = getUnsafe();
+   private static final long BYTE_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
+   private final AtomicLong allocated = new AtomicLong();
+
+   /**
+    * Allocates a block of native memory. The contents of the block are not initialized.
+    *
+    * @param size number of bytes to allocate
+    * @return the address of the allocated block
+    */
+   public long allocate(long size) {
+      long address = UNSAFE.allocateMemory(size);
+      allocated.addAndGet(size);
+      return address;
+   }
+
+   /**
+    * Releases a block of native memory previously obtained via {@link #allocate(long)}.
+    *
+    * @param address address of the block
+    * @param size size of the block, as passed to {@link #allocate(long)}
+    */
+   public void free(long address, long size) {
+      UNSAFE.freeMemory(address);
+      allocated.addAndGet(-size);
+   }
+
+   /**
+    * @return the number of bytes of native memory currently allocated through this instance
+    */
+   public long allocatedBytes() {
+      return allocated.get();
+   }
+
+   public long getLong(long address) {
+      return UNSAFE.getLong(address);
+   }
+
+   public void putLong(long address, long value) {
+      UNSAFE.putLong(address, value);
+   }
+
+   public int getInt(long address) {
+      return UNSAFE.getInt(address);
+   }
+
+   public void putInt(long address, int value) {
+      UNSAFE.putInt(address, value);
+   }
+
+   /**
+    * Copies {@code length} bytes of {@code src}, starting at {@code offset}, into native memory.
+    */
+   public void putBytes(long address, byte[] src, int offset, int length) {
+      UNSAFE.copyMemory(src, BYTE_ARRAY_BASE_OFFSET + offset, null, address, length);
+   }
+
+   /**
+    * Copies {@code length} bytes of native memory into a newly created byte array.
+    */
+   public byte[] getBytes(long address, int length) {
+      byte[] dst = new byte[length];
+      UNSAFE.copyMemory(null, address, dst, BYTE_ARRAY_BASE_OFFSET, length);
+      return dst;
+   }
+
+   /**
+    * Compares {@code length} bytes of native memory with the contents of {@code other}.
+    */
+   public boolean equalBytes(long address, byte[] other, int length) {
+      for (int i = 0; i < length; i++) {
+         if (UNSAFE.getByte(address + i) != other[i])
+            return false;
+      }
+      return true;
+   }
+
+   private static sun.misc.Unsafe getUnsafe() {
+      try {
+         return sun.misc.Unsafe.getUnsafe();
+      } catch (SecurityException tryReflectionInstead) {}
+      try {
+         return java.security.AccessController.doPrivileged
+               (new java.security.PrivilegedExceptionAction<sun.misc.Unsafe>() {
+                  @Override
+                  public sun.misc.Unsafe run() throws Exception {
+                     Class<sun.misc.Unsafe> k = sun.misc.Unsafe.class;
+                     for (java.lang.reflect.Field f : k.getDeclaredFields()) {
+                        f.setAccessible(true);
+                        Object x = f.get(null);
+                        if (k.isInstance(x))
+                           return k.cast(x);
+                     }
+                     throw new NoSuchFieldError("the Unsafe");
+                  }});
+      } catch (java.security.PrivilegedActionException e) {
+         throw new RuntimeException("Could not initialize intrinsics", e.getCause());
+      }
+   }
+}
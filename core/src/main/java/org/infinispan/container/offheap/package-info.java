@@ -0,0 +1,4 @@
+/**
+ * Data container storing cache entries in native memory, outside of the Java heap.
+ */
+package org.infinispan.container.offheap;
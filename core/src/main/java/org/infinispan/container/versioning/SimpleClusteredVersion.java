@@ -52,6 +52,26 @@ public InequalVersionComparisonResult compareTo(EntryVersion other) {
       }
    }
 
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      SimpleClusteredVersion that = (SimpleClusteredVersion) o;
+
+      if (topologyId != that.topologyId) return false;
+      if (version != that.version) return false;
+
+      return true;
+   }
+
+   @Override
+   public int hashCode() {
+      int result = topologyId;
+      result = 31 * result + (int) (version ^ (version >>> 32));
+      return result;
+   }
+
    @Override
    public String toString() {
       return "SimpleClusteredVersion{" +
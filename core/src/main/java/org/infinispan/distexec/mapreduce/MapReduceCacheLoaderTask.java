@@ -1,5 +1,7 @@
 package org.infinispan.distexec.mapreduce;
 
+import java.util.Set;
+
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
 import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledValue;
@@ -12,14 +14,27 @@ public class MapReduceCacheLoaderTask implements AdvancedCacheLoader.CacheLoader
 
    final Mapper mapper;
    final Collector collector;
+   final Set<Object> visitedKeys;
 
    public MapReduceCacheLoaderTask(Mapper mapper, Collector collector) {
+      this(mapper, collector, null);
+   }
+
+   /**
+    * @param visitedKeys if not null, the keys of the entries mapped are added to it, and the entries whose key is
+    *                    already in it are skipped
+    */
+   public MapReduceCacheLoaderTask(Mapper mapper, Collector collector, Set<Object> visitedKeys) {
       this.mapper = mapper;
       this.collector = collector;
+      this.visitedKeys = visitedKeys;
    }
 
    @Override
    public void processEntry(MarshalledEntry marshalledEntry, AdvancedCacheLoader.TaskContext taskContext) {
+      if (visitedKeys != null && !visitedKeys.add(marshalledEntry.getKey())) {
+         return;
+      }
       mapper.map(marshalledEntry.getKey(), getValue(marshalledEntry), collector);
    }
 
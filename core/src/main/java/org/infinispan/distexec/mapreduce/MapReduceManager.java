@@ -49,6 +49,20 @@ <KIn, VIn, KOut, VOut> Set<KOut> mapAndCombineForDistributedReduction(
    <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> mapAndCombineForLocalReduction(
             MapCombineCommand<KIn, VIn, KOut, VOut> mcc) throws InterruptedException;
 
+   /**
+    * Invoked when MapCombineCommand using a streaming shuffle arrives to a target Infinispan node.
+    * Combined intermediate key/values are buffered, within the memory budget of the command and
+    * spilled to disk beyond it, until the map phase completes. They are then either streamed to
+    * the intermediate cache in bounded batches, if the reduce phase is distributed, or merged into
+    * the map to reduce at master Infinispan node.
+    *
+    * @param mcc MapCombineCommand sent from MapReduceTask
+    * @return a ShuffleResult wrapping either the set of intermediate keys to be reduced
+    *         distributively or the map Map<KOut, List<VOut>> to be reduced at master Infinispan node
+    */
+   <KIn, VIn, KOut, VOut> ShuffleResult mapAndCombineWithStreamingShuffle(
+            MapCombineCommand<KIn, VIn, KOut, VOut> mcc) throws InterruptedException;
+
    /**
     * Invoked when ReduceCommand arrives to a target Infinispan node. Implementations should return
     * a map of reduced output keys and values to be returned to invoker of MapReduceTask
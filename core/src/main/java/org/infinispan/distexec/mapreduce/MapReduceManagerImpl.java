@@ -1,14 +1,18 @@
 package org.infinispan.distexec.mapreduce;
 
+import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
 import org.infinispan.atomic.Delta;
 import org.infinispan.atomic.DeltaAware;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commons.CacheException;
+import org.infinispan.commons.marshall.StreamingMarshaller;
 import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.commons.util.concurrent.ParallelIterableMap;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.context.Flag;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distexec.mapreduce.spi.MapReduceTaskLifecycleService;
@@ -16,10 +20,10 @@
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.interceptors.locking.ClusteringDependentLogic;
-import org.infinispan.persistence.CollectionKeyFilter;
 import org.infinispan.persistence.CompositeFilter;
+import org.infinispan.persistence.DataContainerKeyFilter;
 import org.infinispan.persistence.manager.PersistenceManager;
-import org.infinispan.persistence.PrimaryOwnerFilter;
+import org.infinispan.persistence.PrimaryOwnedSegmentsFilter;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
 import org.infinispan.persistence.spi.AdvancedCacheLoader.TaskContext;
 import org.infinispan.manager.EmbeddedCacheManager;
@@ -42,11 +46,13 @@
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * Default implementation of {@link MapReduceManager}.
@@ -65,6 +71,7 @@ public class MapReduceManagerImpl implements MapReduceManager {
    private PersistenceManager persistenceManager;
    private ExecutorService executorService;
    private TimeService timeService;
+   private StreamingMarshaller marshaller;
    private int chunkSize;
 
    MapReduceManagerImpl() {
@@ -73,12 +80,14 @@ public class MapReduceManagerImpl implements MapReduceManager {
    @Inject
    public void init(EmbeddedCacheManager cacheManager, PersistenceManager persistenceManager,
             @ComponentName(ASYNC_TRANSPORT_EXECUTOR) ExecutorService asyncTransportExecutor,
-            ClusteringDependentLogic cdl, TimeService timeService, Configuration configuration) {
+            ClusteringDependentLogic cdl, TimeService timeService, Configuration configuration,
+            @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
       this.cacheManager = cacheManager;
       this.persistenceManager = persistenceManager;
       this.cdl = cdl;
       this.executorService = asyncTransportExecutor;
       this.timeService = timeService;
+      this.marshaller = marshaller;
       int size = configuration.clustering().stateTransfer().chunkSize();
       this.chunkSize = size > 0 ? size : 512;
    }
@@ -106,6 +115,36 @@ public <KIn, VIn, KOut, VOut> Set<KOut> mapAndCombineForDistributedReduction(
       }
    }
 
+   @Override
+   public <KIn, VIn, KOut, VOut> ShuffleResult mapAndCombineWithStreamingShuffle(
+            MapCombineCommand<KIn, VIn, KOut, VOut> mcc) throws InterruptedException {
+      ShuffleBuffer<KOut, VOut> buffer = new ShuffleBuffer<KOut, VOut>(marshaller, mcc.getShuffleMemoryBudget(),
+            mcc.getTaskId());
+      try {
+         mapAndCombine(mcc, new ShuffleBufferSink<KOut, VOut>(buffer));
+         long start = timeService.time();
+         Object value;
+         if (mcc.isReducePhaseDistributed()) {
+            value = streamIntermediateKeysAndValues(mcc, buffer);
+         } else {
+            value = mergeBatches(mcc, buffer);
+         }
+         long shuffleNanos = timeService.timeDuration(start, TimeUnit.NANOSECONDS);
+         log.tracef("For m/r task %s shuffled %s bytes, of which %s spilled to disk, in %s milliseconds",
+               mcc.getTaskId(), buffer.getShuffledBytes(), buffer.getSpilledBytes(),
+               TimeUnit.NANOSECONDS.toMillis(shuffleNanos));
+         return new ShuffleResult(value, shuffleNanos, buffer.getShuffledBytes(), buffer.getSpilledBytes());
+      } catch (InterruptedException e) {
+         throw e;
+      } catch (CacheException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheException(e);
+      } finally {
+         buffer.close();
+      }
+   }
+
    @Override
    public <KOut, VOut> Map<KOut, VOut> reduce(ReduceCommand<KOut, VOut> reduceCommand) throws InterruptedException {
       final Map<KOut, VOut> result = CollectionFactory.makeConcurrentMap(256);
@@ -203,8 +242,9 @@ protected <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> map(
                mapper.map(key, value, collector);
             }
          } else {
+            AdvancedCacheLoader.KeyFilter<?> ownerFilter = primaryOwnerFilter(cache);
             // here we have to iterate all entries in memory, do it in parallel
-            dc.executeTask(new PrimaryOwnerFilter(cdl), new DataContainerTask<KIn, VIn>() {
+            dc.executeTask(ownerFilter, new DataContainerTask<KIn, VIn>() {
                @Override
                public void apply(Object key , InternalCacheEntry v) {
                   VIn value = getValue(v);
@@ -213,12 +253,14 @@ public void apply(Object key , InternalCacheEntry v) {
                   }
                }
             });
-         }
-         // in case we have stores, we have to process key/values from there as well
-         if (persistenceManager != null && !inputKeysSpecified) {
-               AdvancedCacheLoader.KeyFilter<?> keyFilter = new CompositeFilter(new PrimaryOwnerFilter(cdl), new CollectionKeyFilter(dc.keySet()));
-               persistenceManager.processOnAllStores(keyFilter, new MapReduceCacheLoaderTask(mapper, collector),
-                     true, false);
+            // in case we have stores, we have to process key/values from there as well
+            int numStores = numStores();
+            if (numStores > 0) {
+               AdvancedCacheLoader.KeyFilter<?> keyFilter = new CompositeFilter(ownerFilter,
+                     new DataContainerKeyFilter(dc));
+               persistenceManager.processOnAllStores(keyFilter,
+                     new MapReduceCacheLoaderTask(mapper, collector, storeVisitedKeys(numStores)), true, false);
+            }
          }
       } finally {
          if (log.isTraceEnabled()) {
@@ -230,9 +272,20 @@ public void apply(Object key , InternalCacheEntry v) {
       return collector;
    }
 
-   @SuppressWarnings("unchecked")
    protected <KIn, VIn, KOut, VOut> Set<KOut> mapAndCombine(final MapCombineCommand<KIn, VIn, KOut, VOut> mcc)
          throws Exception {
+      MigratingSink<KIn, VIn, KOut, VOut> sink = new MigratingSink<KIn, VIn, KOut, VOut>(mcc);
+      mapAndCombine(mcc, sink);
+      return sink.getIntermediateKeys();
+   }
+
+   /**
+    * Maps the input entries and combines the collected values in batches, handing each combined batch to the sink
+    * while the map phase is in progress.
+    */
+   @SuppressWarnings("unchecked")
+   private <KIn, VIn, KOut, VOut> void mapAndCombine(final MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+         CombinedBatchSink<KOut, VOut> sink) throws Exception {
 
       final Cache<KIn, VIn> cache = cacheManager.getCache(mcc.getCacheName());
       Set<KIn> keys = mcc.getKeys();
@@ -245,42 +298,31 @@ protected <KIn, VIn, KOut, VOut> Set<KOut> mapAndCombine(final MapCombineCommand
       DataContainer dc = cache.getAdvancedCache().getDataContainer();
       log.tracef("For m/r task %s invoking %s with input keys %s", mcc.getTaskId(), mcc, mcc.getKeys());
       long start = log.isTraceEnabled() ? timeService.time() : 0;
-      final Set<KOut> intermediateKeys = Collections.synchronizedSet(new HashSet<KOut>());
       try {
          taskLifecycleService.onPreExecute(mapper, cache);
          if (inputKeysSpecified) {
+            MapCombineTask<KIn, VIn, KOut, VOut> task = new MapCombineTask<KIn, VIn, KOut, VOut>(c, mcc, maxCSize,
+                  sink, null);
             for (KIn key : keys) {
                VIn value = cache.get(key);
                mapper.map(key, value, c);
+               task.combineAndMigrate();
             }
-            Map<KOut, List<VOut>> combinedValues = combine(mcc, c.removeCollectedValues());
-            Set<KOut> s = migrateIntermediateKeysAndValues(mcc, combinedValues);
-            intermediateKeys.addAll(s);
+            //the remaining last chunk from collector
+            sink.accept(combine(mcc, c.removeCollectedValues()));
          } else {
-            MapCombineTask<KIn, VIn, KOut, VOut> task = new MapCombineTask<KIn, VIn, KOut, VOut>(c, mcc, maxCSize);
-            dc.executeTask(new PrimaryOwnerFilter(cdl), task);
-            intermediateKeys.addAll(task.getIntermediateKeys());
-
+            AdvancedCacheLoader.KeyFilter<?> ownerFilter = primaryOwnerFilter(cache);
+            MapCombineTask<KIn, VIn, KOut, VOut> task = new MapCombineTask<KIn, VIn, KOut, VOut>(c, mcc, maxCSize,
+                  sink, null);
+            dc.executeTask(ownerFilter, task);
             //the remaining last chunk from collector
-            Map<KOut, List<VOut>> combinedValues = combine(mcc, c.removeCollectedValues());
-            Set<KOut> lastOne = migrateIntermediateKeysAndValues(mcc, combinedValues);
-            intermediateKeys.addAll(lastOne);
-         }
-
-         // in case we have stores, we have to process key/values from there as well
-         if (persistenceManager != null && !inputKeysSpecified) {
-            final DefaultCollector<KOut, VOut> pmc = new DefaultCollector<KOut, VOut>(maxCSize, true);
-            AdvancedCacheLoader.KeyFilter<?> keyFilter = new CompositeFilter(new PrimaryOwnerFilter(cdl),
-                  new CollectionKeyFilter(dc.keySet()));
-
-            MapCombineTask<KIn, VIn, KOut, VOut> task = new MapCombineTask<KIn, VIn, KOut, VOut>(pmc, mcc, maxCSize);
-            persistenceManager.processOnAllStores(keyFilter, task, true, false);
-            intermediateKeys.addAll(task.getIntermediateKeys());
+            sink.accept(combine(mcc, c.removeCollectedValues()));
 
-            //the remaining last chunk from store collector
-            Map<KOut, List<VOut>> combinedValues = combine(mcc, pmc.removeCollectedValues());
-            Set<KOut> lastOne = migrateIntermediateKeysAndValues(mcc, combinedValues);
-            intermediateKeys.addAll(lastOne);
+            // in case we have stores, we have to process key/values from there as well
+            int numStores = numStores();
+            if (numStores > 0) {
+               mapAndCombineStores(mcc, ownerFilter, dc, storeVisitedKeys(numStores), sink);
+            }
          }
       } finally {
          if (log.isTraceEnabled()) {
@@ -289,7 +331,49 @@ protected <KIn, VIn, KOut, VOut> Set<KOut> mapAndCombine(final MapCombineCommand
          }
          taskLifecycleService.onPostExecute(mapper);
       }
-      return intermediateKeys;
+   }
+
+   /**
+    * Maps and combines the entries of the stores that aren't in the data container, handing combined batches to the
+    * sink.
+    */
+   private <KIn, VIn, KOut, VOut> void mapAndCombineStores(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+         AdvancedCacheLoader.KeyFilter<?> ownerFilter, DataContainer dc, Set<Object> visitedKeys,
+         CombinedBatchSink<KOut, VOut> sink) {
+      int maxCSize = mcc.getMaxCollectorSize();
+      final DefaultCollector<KOut, VOut> pmc = new DefaultCollector<KOut, VOut>(maxCSize, true);
+      AdvancedCacheLoader.KeyFilter<?> keyFilter = new CompositeFilter(ownerFilter, new DataContainerKeyFilter(dc));
+
+      MapCombineTask<KIn, VIn, KOut, VOut> task = new MapCombineTask<KIn, VIn, KOut, VOut>(pmc, mcc, maxCSize, sink,
+            visitedKeys);
+      persistenceManager.processOnAllStores(keyFilter, task, true, false);
+
+      //the remaining last chunk from store collector
+      sink.accept(combine(mcc, pmc.removeCollectedValues()));
+   }
+
+   private int numStores() {
+      return persistenceManager == null ? 0 : persistenceManager.getStores(AdvancedCacheLoader.class).size();
+   }
+
+   /**
+    * @return the set tracking the keys of the store entries mapped so far, so that an entry present in several stores
+    *         is only mapped once, or null if there is a single store and no such tracking is needed
+    */
+   private static Set<Object> storeVisitedKeys(int numStores) {
+      return numStores > 1 ? Collections.newSetFromMap(CollectionFactory.<Object, Boolean>makeConcurrentMap()) : null;
+   }
+
+   /**
+    * @return a filter accepting the keys the local node is the primary owner of, resolved against the topology at
+    *         the time the map phase starts
+    */
+   private AdvancedCacheLoader.KeyFilter<?> primaryOwnerFilter(Cache<?, ?> cache) {
+      DistributionManager dm = cache.getAdvancedCache().getDistributionManager();
+      if (dm == null) {
+         return AdvancedCacheLoader.KeyFilter.LOAD_ALL_FILTER;
+      }
+      return new PrimaryOwnedSegmentsFilter(dm.getConsistentHash(), cdl.getAddress());
    }
 
    protected <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combine(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
@@ -379,6 +463,86 @@ private <KIn, VIn, KOut, VOut> Set<KOut> migrateIntermediateKeysAndValues(
       return mapPhaseKeys;
    }
 
+   /**
+    * Merges the batches of the shuffle buffer into the map to reduce at the master node, combining the values of keys
+    * found in several batches once more.
+    */
+   private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> mergeBatches(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+         ShuffleBuffer<KOut, VOut> buffer) {
+      Map<KOut, List<VOut>> merged = new HashMap<KOut, List<VOut>>();
+      Map<KOut, List<VOut>> batch;
+      while ((batch = buffer.poll()) != null) {
+         for (Entry<KOut, List<VOut>> e : batch.entrySet()) {
+            List<VOut> values = merged.get(e.getKey());
+            if (values == null) {
+               merged.put(e.getKey(), new ArrayList<VOut>(e.getValue()));
+            } else {
+               values.addAll(e.getValue());
+            }
+         }
+      }
+      return combine(mcc, merged);
+   }
+
+   /**
+    * Streams the batches of the shuffle buffer to the intermediate cache. Unlike
+    * {@link #migrateIntermediateKeysAndValues(MapCombineCommand, Map)}, it doesn't wait for each put to complete, but
+    * it never has more than chunkSize puts in flight, and it only holds one batch in memory at a time.
+    */
+   private <KIn, VIn, KOut, VOut> Set<KOut> streamIntermediateKeysAndValues(
+         MapCombineCommand<KIn, VIn, KOut, VOut> mcc, ShuffleBuffer<KOut, VOut> buffer) throws InterruptedException {
+
+      String taskId = mcc.getTaskId();
+      String tmpCacheName = mcc.getIntermediateCacheName();
+      Cache<Object, DeltaAwareList<VOut>> tmpCache = cacheManager.getCache(tmpCacheName);
+      if (tmpCache == null) {
+         throw new IllegalStateException("Temporary cache for MapReduceTask " + taskId
+                  + " named " + tmpCacheName + " not found on " + cdl.getAddress());
+      }
+      // the intermediate values are merged by the owners, nothing needs to be returned
+      AdvancedCache<Object, DeltaAwareList<VOut>> intermediateCache = tmpCache.getAdvancedCache()
+            .withFlags(Flag.IGNORE_RETURN_VALUES);
+      boolean emitCompositeIntermediateKeys = mcc.isEmitCompositeIntermediateKeys();
+
+      Set<KOut> mapPhaseKeys = new HashSet<KOut>();
+      List<NotifyingFuture<DeltaAwareList<VOut>>> inFlight = new ArrayList<NotifyingFuture<DeltaAwareList<VOut>>>(chunkSize);
+      Map<KOut, List<VOut>> batch;
+      while ((batch = buffer.poll()) != null) {
+         log.tracef("For m/r task %s streaming intermediate keys %s", taskId, batch.keySet());
+         for (Entry<KOut, List<VOut>> e : batch.entrySet()) {
+            KOut key = e.getKey();
+            List<VOut> values = e.getValue();
+            for (int i = 0; i < values.size(); i += chunkSize) {
+               List<VOut> chunk = values.subList(i, Math.min(values.size(), i + chunkSize));
+               DeltaAwareList<VOut> delta = new DeltaAwareList<VOut>(chunk);
+               if (emitCompositeIntermediateKeys) {
+                  inFlight.add(intermediateCache.putAsync(new IntermediateCompositeKey<KOut>(taskId, key), delta));
+               } else {
+                  inFlight.add(intermediateCache.putAsync(key, delta));
+               }
+               if (inFlight.size() >= chunkSize) {
+                  awaitPuts(taskId, inFlight);
+               }
+            }
+            mapPhaseKeys.add(key);
+         }
+      }
+      awaitPuts(taskId, inFlight);
+      return mapPhaseKeys;
+   }
+
+   private <V> void awaitPuts(String taskId, List<NotifyingFuture<V>> inFlight) throws InterruptedException {
+      try {
+         for (NotifyingFuture<V> future : inFlight) {
+            future.get();
+         }
+      } catch (ExecutionException e) {
+         throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e.getCause());
+      } finally {
+         inFlight.clear();
+      }
+   }
+
    @Override
    public <T> Map<Address, List<T>> mapKeysToNodes(DistributionManager dm, String taskId,
             Collection<T> keysToMap, boolean useIntermediateCompositeKey) {
@@ -444,20 +608,24 @@ V getValue(InternalCacheEntry entry){
 
       DefaultCollector<KOut, VOut> collector;
       MapCombineCommand<K, V, KOut, VOut> mcc;
-      Set<KOut> intermediateKeys;
       int maxCollectorSize;
-
+      CombinedBatchSink<KOut, VOut> sink;
+      Set<Object> visitedKeys;
+
+      /**
+       * @param sink receives the combined batches
+       * @param visitedKeys if not null, the keys of the store entries mapped are added to it, and the store entries
+       *                    already in it are skipped
+       */
       public MapCombineTask(DefaultCollector<KOut, VOut> collector,
-            MapCombineCommand<K, V, KOut, VOut> mcc, int maxCollectorSize) {
+            MapCombineCommand<K, V, KOut, VOut> mcc, int maxCollectorSize, CombinedBatchSink<KOut, VOut> sink,
+            Set<Object> visitedKeys) {
          super();
          this.collector = collector;
          this.mcc = mcc;
-         this.intermediateKeys = Collections.synchronizedSet(new HashSet<KOut>());
          this.maxCollectorSize = maxCollectorSize;
-      }
-
-      public Set<KOut> getIntermediateKeys() {
-         return intermediateKeys;
+         this.sink = sink;
+         this.visitedKeys = visitedKeys;
       }
 
       V getValue(InternalCacheEntry entry){
@@ -485,15 +653,17 @@ protected void combineAndMigrate() throws CacheException {
          if (collector.size() > maxCollectorSize) {
             final Map<KOut, List<VOut>> batch = collector.removeCollectedValues();
             if (!batch.isEmpty()) {
-               Map<KOut, List<VOut>> combinedValues = combine(mcc, batch);
-               Set<KOut> migratedKeys = migrateIntermediateKeysAndValues(mcc, combinedValues);
-               intermediateKeys.addAll(migratedKeys);
+               sink.accept(combine(mcc, batch));
             }
          }
       }
 
       @Override
       public void processEntry(MarshalledEntry marshalledEntry, TaskContext taskContext) throws InterruptedException {
+         // the entry may be in several stores
+         if (visitedKeys != null && !visitedKeys.add(marshalledEntry.getKey())) {
+            return;
+         }
          mcc.getMapper().map((K)marshalledEntry.getKey(), (V)getValue(marshalledEntry), collector);
          combineAndMigrate();
       }
@@ -508,6 +678,50 @@ private Object getValue(MarshalledEntry marshalledEntry) {
       }
    }
 
+   /**
+    * Receives the batches combined during the map phase.
+    */
+   private interface CombinedBatchSink<KOut, VOut> {
+      void accept(Map<KOut, List<VOut>> combinedValues) throws CacheException;
+   }
+
+   /**
+    * Migrates each batch to the intermediate cache straight away, keeping track of the intermediate keys.
+    */
+   private class MigratingSink<KIn, VIn, KOut, VOut> implements CombinedBatchSink<KOut, VOut> {
+      private final MapCombineCommand<KIn, VIn, KOut, VOut> mcc;
+      private final Set<KOut> intermediateKeys = Collections.synchronizedSet(new HashSet<KOut>());
+
+      MigratingSink(MapCombineCommand<KIn, VIn, KOut, VOut> mcc) {
+         this.mcc = mcc;
+      }
+
+      @Override
+      public void accept(Map<KOut, List<VOut>> combinedValues) {
+         intermediateKeys.addAll(migrateIntermediateKeysAndValues(mcc, combinedValues));
+      }
+
+      Set<KOut> getIntermediateKeys() {
+         return intermediateKeys;
+      }
+   }
+
+   /**
+    * Adds each batch to a shuffle buffer, which is migrated once the map phase is over.
+    */
+   private static class ShuffleBufferSink<KOut, VOut> implements CombinedBatchSink<KOut, VOut> {
+      private final ShuffleBuffer<KOut, VOut> buffer;
+
+      ShuffleBufferSink(ShuffleBuffer<KOut, VOut> buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public void accept(Map<KOut, List<VOut>> combinedValues) {
+         buffer.add(combinedValues);
+      }
+   }
+
    public class IntermediateKeyFilter<T> implements AdvancedCacheLoader.KeyFilter<IntermediateCompositeKey<T>> {
 
       private final String taskId;
@@ -537,13 +751,25 @@ public boolean shouldLoadKey(IntermediateCompositeKey<T> key) {
     */
    private static class DefaultCollector<KOut, VOut> implements CollectableCollector<KOut, VOut> {
 
-      private final boolean atomicEmit;
-      private Map<KOut, List<VOut>> store;
+      private static final int MAX_STRIPES = 256;
+
+      private final Stripe<KOut, VOut>[] stripes;
+      private final int stripeMask;
       private final AtomicInteger emitCount;
 
+      /**
+       * @param atomicEmit whether values are emitted concurrently, by the threads traversing the data container in
+       *                   parallel: values are then collected in stripes locked independently, so that the threads
+       *                   don't contend on a single lock
+       */
+      @SuppressWarnings("unchecked")
       public DefaultCollector(int size, boolean atomicEmit) {
-         this.atomicEmit = atomicEmit;
-         store = CollectionFactory.makeConcurrentMap(size);
+         int stripeCount = atomicEmit ? stripeCount() : 1;
+         stripes = new Stripe[stripeCount];
+         for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<KOut, VOut>(Math.max(16, size / stripeCount));
+         }
+         stripeMask = stripeCount - 1;
          emitCount = new AtomicInteger();
       }
 
@@ -553,39 +779,65 @@ public DefaultCollector(boolean atomicEmit) {
 
       @Override
       public void emit(KOut key, VOut value) {
-         if (atomicEmit) {
-            synchronized (this) {
-               emitHelper(key, value);
+         Stripe<KOut, VOut> stripe = stripes[stripeIndex(key)];
+         synchronized (stripe) {
+            List<VOut> list = stripe.values.get(key);
+            if (list == null) {
+               list = new LinkedList<VOut>();
+               stripe.values.put(key, list);
             }
-         } else {
-            emitHelper(key, value);
+            list.add(value);
          }
-      }
-
-      protected void emitHelper(KOut key, VOut value) {
-         List<VOut> list = store.get(key);
-         if (list == null) {
-            list = new LinkedList<VOut>();
-            store.put(key, list);
-         }
-         list.add(value);
          emitCount.incrementAndGet();
       }
 
       @Override
       public Map<KOut, List<VOut>> removeCollectedValues() {
-         HashMap<KOut, List<VOut>> values;
-         synchronized (this) {
-            values = new HashMap<KOut, List<VOut>>(store);
-            store.clear();
-            emitCount.set(0);
+         HashMap<KOut, List<VOut>> values = new HashMap<KOut, List<VOut>>();
+         int removed = 0;
+         for (Stripe<KOut, VOut> stripe : stripes) {
+            synchronized (stripe) {
+               for (List<VOut> list : stripe.values.values()) {
+                  removed += list.size();
+               }
+               values.putAll(stripe.values);
+               stripe.values.clear();
+            }
          }
+         emitCount.addAndGet(-removed);
          return values;
       }
 
       public int size() {
          return emitCount.get();
       }
+
+      private int stripeIndex(KOut key) {
+         if (key == null) {
+            return 0;
+         }
+         int h = key.hashCode();
+         h ^= (h >>> 20) ^ (h >>> 12);
+         h ^= (h >>> 7) ^ (h >>> 4);
+         return h & stripeMask;
+      }
+
+      private static int stripeCount() {
+         int target = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 4);
+         int count = 1;
+         while (count < target) {
+            count <<= 1;
+         }
+         return count;
+      }
+
+      private static class Stripe<K, V> {
+         final Map<K, List<V>> values;
+
+         Stripe(int size) {
+            values = new HashMap<K, List<V>>(size);
+         }
+      }
    }
 
    private interface CollectableCollector<K,V> extends Collector<K, V>{
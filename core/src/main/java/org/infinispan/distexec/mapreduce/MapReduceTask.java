@@ -20,6 +20,7 @@
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
@@ -50,6 +51,7 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.security.AuthorizationManager;
 import org.infinispan.security.AuthorizationPermission;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -161,6 +163,13 @@
    protected String customIntermediateCacheName;
    protected String intermediateCacheConfigurationName = DEFAULT_TMP_CACHE_CONFIGURATION_NAME;
    private int maxCollectorSize = 1024;
+   private long shuffleMemoryBudget = -1;
+   protected final TimeService timeService;
+   private volatile long mapPhaseNanos;
+   private volatile long reducePhaseNanos;
+   private final AtomicLong shuffleNanos = new AtomicLong();
+   private final AtomicLong shuffledBytes = new AtomicLong();
+   private final AtomicLong spilledBytes = new AtomicLong();
 
    /**
     * Create a new MapReduceTask given a master cache node. All distributed task executions will be
@@ -228,6 +237,7 @@ public MapReduceTask(Cache<KIn, VIn> masterCacheNode, boolean distributeReducePh
       this.useIntermediateSharedCache = useIntermediateSharedCache;
       this.cancellableTasks = Collections.synchronizedList(new ArrayList<CancellableTaskPart>());
       this.clusteringDependentLogic = componentRegistry.getComponent(ClusteringDependentLogic.class);
+      this.timeService = componentRegistry.getComponent(TimeService.class);
       this.isLocalOnly = SecurityActions.getCacheRpcManager(cache) == null;
       this.rpcOptionsBuilder = isLocalOnly ? null : new RpcOptionsBuilder(SecurityActions.getCacheRpcManager(cache).getDefaultRpcOptions(true));
    }
@@ -417,6 +427,81 @@ public void setMaxCollectorSize(int size) {
       maxCollectorSize = size;
    }
 
+   /**
+    * Shuffles the intermediate key/values of this task in a streaming fashion.
+    * <p>
+    * By default, each node migrates the combined intermediate key/values to the intermediate cache
+    * as its map phase progresses, waiting for every key to be stored, or returns all of them at
+    * once to this node if the reduce phase isn't distributed. With a streaming shuffle, each node
+    * buffers the combined batches of intermediate key/values instead, whose size is bounded by the
+    * {@link #setMaxCollectorSize(int) max collector size}. Marshalled batches are kept in memory up
+    * to the given budget and spilled to local disk beyond it. Once its map phase is complete, a node
+    * streams the batches to the intermediate cache one at a time, with a bounded number of
+    * outstanding puts, or merges them into the key/values returned to this node.
+    * <p>
+    * Bytes shuffled and spilled are reported by {@link #getShuffledBytes()} and
+    * {@link #getSpilledBytes()} once the task is executed.
+    *
+    * @param memoryBudget
+    *           the number of bytes of marshalled intermediate key/values each node keeps in memory,
+    *           0 to always spill them to disk
+    * @return this MapReduceTask itself
+    * @since 7.0
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> usingStreamingShuffle(long memoryBudget) {
+      if (memoryBudget < 0)
+         throw new IllegalArgumentException("Invalid memory budget " + memoryBudget);
+      this.shuffleMemoryBudget = memoryBudget;
+      return this;
+   }
+
+   /**
+    * @return the time the last execution of this task spent in its map phase, combine and
+    *         migration of intermediate key/values included
+    * @since 7.0
+    */
+   public long getMapPhaseTime(TimeUnit unit) {
+      return unit.convert(mapPhaseNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * @return the time the last execution of this task spent in its reduce phase, whether it's
+    *         distributed or not
+    * @since 7.0
+    */
+   public long getReducePhaseTime(TimeUnit unit) {
+      return unit.convert(reducePhaseNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * @return the time the nodes spent shuffling the intermediate key/values of the last execution
+    *         of this task once their map phase was complete, summed across nodes. Only recorded
+    *         with a {@link #usingStreamingShuffle(long) streaming shuffle}.
+    * @since 7.0
+    */
+   public long getShuffleTime(TimeUnit unit) {
+      return unit.convert(shuffleNanos.get(), TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * @return the marshalled size of the intermediate key/values shuffled by the last execution of
+    *         this task, summed across nodes. Only recorded with a
+    *         {@link #usingStreamingShuffle(long) streaming shuffle}.
+    * @since 7.0
+    */
+   public long getShuffledBytes() {
+      return shuffledBytes.get();
+   }
+
+   /**
+    * @return the part of {@link #getShuffledBytes()} that was spilled to disk because it exceeded
+    *         the memory budget
+    * @since 7.0
+    */
+   public long getSpilledBytes() {
+      return spilledBytes.get();
+   }
+
    /**
     * Executes this task across Infinispan cluster nodes.
     *
@@ -475,6 +560,7 @@ protected Map<KOut, VOut> executeHelper(String resultCache) throws NullPointerEx
       if (reducer == null)
          throw new NullPointerException("A valid reference of Reducer is not set " + reducer);
 
+      resetStatistics();
       Map<KOut,VOut> result = null;
       if(!isLocalOnly && distributeReducePhase()){
          boolean useCompositeKeys = useIntermediateSharedCache();
@@ -488,10 +574,14 @@ protected Map<KOut, VOut> executeHelper(String resultCache) throws NullPointerEx
 
          try {
             // map
+            long start = timeService.time();
             Set<KOut> allMapPhasesResponses = executeMapPhase(useCompositeKeys);
+            mapPhaseNanos = timeService.timeDuration(start, TimeUnit.NANOSECONDS);
 
             // reduce
+            start = timeService.time();
             result = executeReducePhase(resultCache, allMapPhasesResponses, useCompositeKeys);
+            reducePhaseNanos = timeService.timeDuration(start, TimeUnit.NANOSECONDS);
          }
          catch (Exception cause){
             throw new CacheException(cause);
@@ -523,6 +613,20 @@ protected String getIntermediateCacheName() {
       return customIntermediateCacheName;
    }
 
+   private void resetStatistics() {
+      mapPhaseNanos = 0;
+      reducePhaseNanos = 0;
+      shuffleNanos.set(0);
+      shuffledBytes.set(0);
+      spilledBytes.set(0);
+   }
+
+   private void recordShuffle(ShuffleResult result) {
+      shuffleNanos.addAndGet(result.getShuffleNanos());
+      shuffledBytes.addAndGet(result.getShuffledBytes());
+      spilledBytes.addAndGet(result.getSpilledBytes());
+   }
+
    protected boolean distributeReducePhase(){
       return distributeReducePhase;
    }
@@ -633,6 +737,7 @@ protected void executeMapPhaseWithLocalReduction(Map<KOut, VOut> reducedResult)
       Map<KOut, List<VOut>> mapPhasesResult = new HashMap<KOut, List<VOut>>();
       List<MapTaskPart<Map<KOut, List<VOut>>>> futures = new ArrayList<MapTaskPart<Map<KOut, List<VOut>>>>();
       Address localAddress = clusteringDependentLogic.getAddress();
+      long start = timeService.time();
       if (inputTaskKeysEmpty()) {
          List<Address> targets;
          if (isLocalOnly) {
@@ -689,6 +794,8 @@ protected void executeMapPhaseWithLocalReduction(Map<KOut, VOut> reducedResult)
       } finally {
          cancellableTasks.clear();
       }
+      mapPhaseNanos = timeService.timeDuration(start, TimeUnit.NANOSECONDS);
+      start = timeService.time();
 
       // hook into lifecycle
       MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService
@@ -702,6 +809,7 @@ protected void executeMapPhaseWithLocalReduction(Map<KOut, VOut> reducedResult)
          }
       } finally {
          taskLifecycleService.onPostExecute(reducer);
+         reducePhaseNanos = timeService.timeDuration(start, TimeUnit.NANOSECONDS);
       }
    }
 
@@ -792,6 +900,7 @@ private MapCombineCommand<KIn, VIn, KOut, VOut> buildMapCombineCommand(
       c.setEmitCompositeIntermediateKeys(emitCompositeIntermediateKeys);
       c.setIntermediateCacheName(intermediateCacheName);
       c.setMaxCollectorSize(maxCollectorSize);
+      c.setShuffleMemoryBudget(shuffleMemoryBudget);
       return c;
    }
 
@@ -1082,7 +1191,7 @@ private V retrieveResult(Object response) throws ExecutionException {
          assert mapResult.size() == 1;
          for (Entry<Address, Response> e : mapResult.entrySet()) {
             if (e.getValue() instanceof SuccessfulResponse) {
-               return (V) ((SuccessfulResponse) e.getValue()).getResponseValue();
+               return (V) unwrap(((SuccessfulResponse) e.getValue()).getResponseValue());
             }
          }
          throw new ExecutionException(new IllegalStateException("Invalid response " + response));
@@ -1094,6 +1203,13 @@ public V get(long timeout, TimeUnit unit) throws InterruptedException, Execution
          return retrieveResult(f.get(timeout, unit));
       }
 
+      /**
+       * Extracts the result of this part from the value of its successful response.
+       */
+      protected Object unwrap(Object responseValue) {
+         return responseValue;
+      }
+
       @Override
       public void notifyDone(V result) {
       }
@@ -1125,7 +1241,17 @@ public MapTaskPart(Address executionTarget, MapCombineCommand<KIn, VIn, KOut, VO
       public void execute() {
          if (locallyExecuted()) {
             Callable<Map<Address, ? extends Response>> callable;
-            if (distributedReduce) {
+            if (mcc.isStreamingShuffle()) {
+               callable = new Callable<Map<Address, ? extends Response>>() {
+
+                  @Override
+                  public Map<Address, ? extends Response> call() throws Exception {
+                     ShuffleResult result = invokeMapCombineWithStreamingShuffleLocally();
+                     return Collections.singletonMap(getAddress(),
+                              SuccessfulResponse.create(result));
+                  }
+               };
+            } else if (distributedReduce) {
                callable = new Callable<Map<Address, ? extends Response>>() {
 
                   @Override
@@ -1176,6 +1302,28 @@ private Map<KOut, List<VOut>> invokeMapCombineLocallyForLocalReduction() throws
          }
       }
 
+      private ShuffleResult invokeMapCombineWithStreamingShuffleLocally() throws InterruptedException {
+         log.debugf("Invoking %s locally", mcc);
+         try {
+            cancellationService.register(Thread.currentThread(), mcc.getUUID());
+            mcc.init(mapReduceManager);
+            return mapReduceManager.mapAndCombineWithStreamingShuffle(mcc);
+         } finally {
+            cancellationService.unregister(mcc.getUUID());
+            log.debugf("Invoked %s locally", mcc);
+         }
+      }
+
+      @Override
+      protected Object unwrap(Object responseValue) {
+         if (responseValue instanceof ShuffleResult) {
+            ShuffleResult result = (ShuffleResult) responseValue;
+            recordShuffle(result);
+            return result.getValue();
+         }
+         return responseValue;
+      }
+
       private Set<KOut> invokeMapCombineLocally() throws InterruptedException {
          log.debugf("Invoking %s locally", mcc);
          try {
@@ -0,0 +1,159 @@
+package org.infinispan.distexec.mapreduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.commons.util.Util;
+
+/**
+ * Buffers the combined intermediate key/values of a map/combine phase before they're shuffled to the reducers.
+ * <p>
+ * Batches are kept marshalled, so that their size is known: as long as the marshalled batches fit in the memory
+ * budget they're kept in memory, the following ones are spilled to a temporary file. Batches are then polled in the
+ * order they were added in, in-memory ones first.
+ * <p>
+ * Batches can be added concurrently, but are polled by a single thread once they've all been added.
+ *
+ * @since 7.0
+ */
+final class ShuffleBuffer<K, V> {
+
+   private final StreamingMarshaller marshaller;
+   private final long memoryBudget;
+   private final String taskId;
+   private final LinkedList<byte[]> inMemory = new LinkedList<byte[]>();
+   private long inMemoryBytes;
+   private long shuffledBytes;
+   private long spilledBytes;
+   private File spillFile;
+   private DataOutputStream spillOutput;
+   private DataInputStream spillInput;
+   private int spilledBatches;
+
+   ShuffleBuffer(StreamingMarshaller marshaller, long memoryBudget, String taskId) {
+      this.marshaller = marshaller;
+      this.memoryBudget = memoryBudget;
+      this.taskId = taskId;
+   }
+
+   /**
+    * Adds a batch of combined key/values, spilling it to disk if it doesn't fit in the memory budget.
+    */
+   void add(Map<K, List<V>> batch) throws CacheException {
+      if (batch.isEmpty())
+         return;
+
+      byte[] bytes;
+      try {
+         bytes = marshaller.objectToByteBuffer(batch);
+      } catch (Exception e) {
+         throw new CacheException("Could not marshall intermediate key/values of M/R task " + taskId, e);
+      }
+      synchronized (this) {
+         shuffledBytes += bytes.length;
+         if (inMemoryBytes + bytes.length <= memoryBudget) {
+            inMemory.add(bytes);
+            inMemoryBytes += bytes.length;
+         } else {
+            spill(bytes);
+         }
+      }
+   }
+
+   /**
+    * Removes the next batch from the buffer.
+    *
+    * @return the next batch, or null if all the batches have been polled
+    */
+   @SuppressWarnings("unchecked")
+   synchronized Map<K, List<V>> poll() throws CacheException {
+      byte[] bytes = inMemory.poll();
+      if (bytes != null) {
+         inMemoryBytes -= bytes.length;
+      } else if (spilledBatches > 0) {
+         bytes = readSpilled();
+      } else {
+         return null;
+      }
+      try {
+         return (Map<K, List<V>>) marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new CacheException("Could not unmarshall intermediate key/values of M/R task " + taskId, e);
+      }
+   }
+
+   /**
+    * @return the marshalled size of all the batches added
+    */
+   synchronized long getShuffledBytes() {
+      return shuffledBytes;
+   }
+
+   /**
+    * @return the marshalled size of the batches spilled to disk
+    */
+   synchronized long getSpilledBytes() {
+      return spilledBytes;
+   }
+
+   /**
+    * Discards the remaining batches and deletes the spill file, if any.
+    */
+   synchronized void close() {
+      inMemory.clear();
+      inMemoryBytes = 0;
+      spilledBatches = 0;
+      Util.close(spillOutput);
+      Util.close(spillInput);
+      spillOutput = null;
+      spillInput = null;
+      if (spillFile != null && !spillFile.delete())
+         spillFile.deleteOnExit();
+      spillFile = null;
+   }
+
+   private void spill(byte[] bytes) {
+      try {
+         if (spillOutput == null) {
+            if (spillInput != null)
+               throw new IllegalStateException("Cannot add batches to the shuffle buffer of M/R task " + taskId
+                     + " once spilled batches are being polled");
+            spillFile = File.createTempFile("mapreduce-" + taskId + "-", ".spill");
+            spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+         }
+         spillOutput.writeInt(bytes.length);
+         spillOutput.write(bytes);
+         spilledBatches++;
+         spilledBytes += bytes.length;
+      } catch (IOException e) {
+         throw new CacheException("Could not spill intermediate key/values of M/R task " + taskId + " to disk", e);
+      }
+   }
+
+   private byte[] readSpilled() {
+      try {
+         if (spillInput == null) {
+            spillOutput.close();
+            spillOutput = null;
+            spillInput = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+         }
+         byte[] bytes = new byte[spillInput.readInt()];
+         spillInput.readFully(bytes);
+         spilledBatches--;
+         return bytes;
+      } catch (IOException e) {
+         throw new CacheException("Could not read spilled intermediate key/values of M/R task " + taskId, e);
+      }
+   }
+}
@@ -0,0 +1,56 @@
+package org.infinispan.distexec.mapreduce;
+
+import java.io.Serializable;
+
+/**
+ * Result of a map/combine phase executed with a streaming shuffle: wraps the intermediate keys, or the combined
+ * key/values to reduce locally, along with the shuffle metrics of the node that executed it.
+ * <p>
+ *
+ * This is an internal class, not intended to be used by clients.
+ *
+ * @see MapReduceTask#usingStreamingShuffle(long)
+ * @since 7.0
+ */
+public final class ShuffleResult implements Serializable {
+
+   /** The serialVersionUID */
+   private static final long serialVersionUID = -6404357658409651834L;
+
+   private final Object value;
+   private final long shuffleNanos;
+   private final long shuffledBytes;
+   private final long spilledBytes;
+
+   public ShuffleResult(Object value, long shuffleNanos, long shuffledBytes, long spilledBytes) {
+      this.value = value;
+      this.shuffleNanos = shuffleNanos;
+      this.shuffledBytes = shuffledBytes;
+      this.spilledBytes = spilledBytes;
+   }
+
+   /**
+    * @return the set of intermediate keys if the reduce phase is distributed, the map of combined key/values otherwise
+    */
+   public Object getValue() {
+      return value;
+   }
+
+   public long getShuffleNanos() {
+      return shuffleNanos;
+   }
+
+   public long getShuffledBytes() {
+      return shuffledBytes;
+   }
+
+   public long getSpilledBytes() {
+      return spilledBytes;
+   }
+
+   @Override
+   public String toString() {
+      return "ShuffleResult [shuffleNanos=" + shuffleNanos + ", shuffledBytes=" + shuffledBytes
+            + ", spilledBytes=" + spilledBytes + "]";
+   }
+}
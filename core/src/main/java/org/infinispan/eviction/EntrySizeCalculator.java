@@ -0,0 +1,22 @@
+package org.infinispan.eviction;
+
+/**
+ * Estimates the amount of memory used by a cache entry. Used when eviction is bounded by memory rather than by the
+ * number of entries, see {@link org.infinispan.configuration.cache.EvictionConfigurationBuilder#maxMemory(long)}.
+ * <p/>
+ * Implementations are invoked while holding internal locks of the data container, so they should be fast and must not
+ * access the cache.
+ *
+ * @since 7.0
+ */
+public interface EntrySizeCalculator<K, V> {
+
+   /**
+    * Estimates the size of an entry.
+    *
+    * @param key the key of the entry
+    * @param value the value of the entry
+    * @return the estimated size of the entry, in bytes
+    */
+   long calculateSize(K key, V value);
+}
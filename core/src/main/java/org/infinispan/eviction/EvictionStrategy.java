@@ -16,7 +16,11 @@ public enum EvictionStrategy {
    @Deprecated
    FIFO, 
    LRU, 
-   LIRS;
+   LIRS,
+   /*
+    * Window TinyLFU: LRU admission window in front of a segmented LRU main space, guarded by a frequency sketch
+    */
+   TINY_LFU;
 
    public boolean isEnabled() {
       return this != NONE;
@@ -0,0 +1,34 @@
+package org.infinispan.eviction.impl;
+
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.eviction.EntrySizeCalculator;
+
+import java.io.IOException;
+
+/**
+ * {@link EntrySizeCalculator} which estimates the size of an entry as the combined length of its marshalled key and
+ * value. This is the default calculator for memory based eviction.
+ *
+ * @since 7.0
+ */
+public class MarshalledEntrySizeCalculator implements EntrySizeCalculator<Object, Object> {
+
+   private final StreamingMarshaller marshaller;
+
+   public MarshalledEntrySizeCalculator(StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
+   @Override
+   public long calculateSize(Object key, Object value) {
+      try {
+         return marshaller.objectToBuffer(key).getLength() + marshaller.objectToBuffer(value).getLength();
+      } catch (IOException e) {
+         throw new CacheException("Unable to estimate the size of entry with key " + key, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException(e);
+      }
+   }
+}
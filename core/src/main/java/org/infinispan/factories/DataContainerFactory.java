@@ -5,6 +5,9 @@
 import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.SegmentedDataContainer;
+import org.infinispan.container.offheap.OffHeapDataContainer;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -25,6 +28,12 @@ public class DataContainerFactory extends AbstractNamedCacheComponentFactory imp
    public <T> T construct(Class<T> componentType) {
       if (configuration.dataContainer().dataContainer() != null) {
          return (T) configuration.dataContainer().dataContainer();
+      } else if (configuration.dataContainer().offHeap()) {
+         return (T) new OffHeapDataContainer(configuration.locking().concurrencyLevel());
+      } else if (configuration.dataContainer().segmented()) {
+         return (T) new SegmentedDataContainer(configuration.locking().concurrencyLevel(),
+               configuration.dataContainer().keyEquivalence(), configuration.clustering().hash().hash(),
+               configuration.clustering().hash().numSegments());
       } else {
          EvictionStrategy st = configuration.eviction().strategy();
          int level = configuration.locking().concurrencyLevel();
@@ -38,6 +47,14 @@ public <T> T construct(Class<T> componentType) {
             case LRU:
             case FIFO:
             case LIRS:
+            case TINY_LFU:
+               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
+               if (configuration.eviction().isMemoryBounded()) {
+                  EntrySizeCalculator sizeCalculator = configuration.eviction().sizeCalculator();
+                  return (T) DefaultDataContainer.memoryBoundedDataContainer(
+                        level, configuration.eviction().maxMemory(), sizeCalculator, policy, keyEquivalence);
+               }
+
                int maxEntries = configuration.eviction().maxEntries();
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
@@ -45,8 +62,6 @@ public <T> T construct(Class<T> componentType) {
                          level, keyEquivalence);
                }
 
-               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
-
                return (T) DefaultDataContainer.boundedDataContainer(
                   level, maxEntries, st, policy, keyEquivalence);
             default:
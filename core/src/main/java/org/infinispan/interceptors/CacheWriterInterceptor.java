@@ -27,6 +27,7 @@
 import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.jmx.annotations.MeasurementType;
 import org.infinispan.persistence.manager.PersistenceManager;
+import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.metadata.EmbeddedMetadata;
 import org.infinispan.metadata.Metadata;
@@ -39,6 +40,8 @@
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
@@ -189,11 +192,13 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       if (!isStoreEnabled(command) || ctx.isInTxScope()) return returnValue;
 
       Map<Object, Object> map = command.getMap();
+      List<Object> keys = new ArrayList<Object>(map.size());
       for (Object key : map.keySet()) {
          if (isProperWriter(ctx, command, key)) {
-            storeEntry(ctx, key, command);
+            keys.add(key);
          }
       }
+      storeEntries(ctx, keys, command);
       if (getStatisticsEnabled()) cacheStores.getAndAdd(map.size());
       return returnValue;
    }
@@ -213,6 +218,7 @@ protected final void store(TxInvocationContext ctx) throws Throwable {
             cacheCommand.acceptVisitor(ctx, modsBuilder);
          }
       }
+      modsBuilder.flush();
       if (getStatisticsEnabled() && modsBuilder.putCount > 0) {
          cacheStores.getAndAdd(modsBuilder.putCount);
       }
@@ -237,10 +243,18 @@ protected boolean isProperWriter(InvocationContext ctx, FlagAffectedCommand comm
       return true;
    }
 
+   /**
+    * Applies the modifications of a transaction to the stores. Consecutive writes, and consecutive removals, are
+    * buffered and sent to the stores as a single batch, so {@link #flush()} must be invoked after visiting the last
+    * modification.
+    */
    public class Updater extends AbstractVisitor {
 
       protected final boolean generateStatistics;
       int putCount;
+      private List<MarshalledEntry> writes = new ArrayList<MarshalledEntry>();
+      private boolean writesSkipSharedStores;
+      private List<Object> removes = new ArrayList<Object>();
 
       public Updater(boolean generateStatistics) {
          this.generateStatistics = generateStatistics;
@@ -266,7 +280,7 @@ public Object visitApplyDeltaCommand(InvocationContext ctx, ApplyDeltaCommand co
                ice = entryFactory.create(entry);
             }
             MarshalledEntryImpl marshalledEntry = new MarshalledEntryImpl(ice.getKey(), ice.getValue(), internalMetadata(ice), marshaller);
-            persistenceManager.writeToAllStores(marshalledEntry, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
+            addWrite(marshalledEntry, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
          }
          return null;
       }
@@ -288,13 +302,14 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
          Object key = command.getKey();
          if (isProperWriter(ctx, command, key)) {
-            persistenceManager.deleteFromAllStores(key, false);
+            addRemove(key);
          }
          return null;
       }
 
       @Override
       public Object visitClearCommand(InvocationContext ctx, ClearCommand command) throws Throwable {
+         flush();
          persistenceManager.clearAllStores(ctx.isOriginLocal());
          return null;
       }
@@ -304,10 +319,37 @@ protected Object visitSingleStore(InvocationContext ctx, FlagAffectedCommand com
             if (generateStatistics) putCount++;
             InternalCacheValue sv = getStoredValue(key, ctx);
             MarshalledEntryImpl me = new MarshalledEntryImpl(key, sv.getValue(), internalMetadata(sv), marshaller);
-            persistenceManager.writeToAllStores(me, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
+            addWrite(me, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
          }
          return null;
       }
+
+      private void addWrite(MarshalledEntry marshalledEntry, boolean skipSharedStores) {
+         if (!removes.isEmpty() || (!writes.isEmpty() && writesSkipSharedStores != skipSharedStores))
+            flush();
+         writesSkipSharedStores = skipSharedStores;
+         writes.add(marshalledEntry);
+      }
+
+      private void addRemove(Object key) {
+         if (!writes.isEmpty())
+            flush();
+         removes.add(key);
+      }
+
+      /**
+       * Sends the buffered writes or removals to the stores.
+       */
+      public void flush() {
+         if (!writes.isEmpty()) {
+            persistenceManager.writeBatchToAllStores(writes, writesSkipSharedStores);
+            writes = new ArrayList<MarshalledEntry>();
+         }
+         if (!removes.isEmpty()) {
+            persistenceManager.deleteBatchFromAllStores(removes, false);
+            removes = new ArrayList<Object>();
+         }
+      }
    }
 
    @Override
@@ -335,6 +377,28 @@ void storeEntry(InvocationContext ctx, Object key, FlagAffectedCommand command)
       if (getLog().isTraceEnabled()) getLog().tracef("Stored entry %s under key %s", sv, key);
    }
 
+   /**
+    * Writes the entries of the given keys to the stores with a single batch per store, or two if only some of the keys
+    * must skip the shared stores.
+    */
+   void storeEntries(InvocationContext ctx, Collection<Object> keys, FlagAffectedCommand command) {
+      List<MarshalledEntry> entries = new ArrayList<MarshalledEntry>(keys.size());
+      List<MarshalledEntry> nonSharedEntries = new ArrayList<MarshalledEntry>();
+      for (Object key : keys) {
+         InternalCacheValue sv = getStoredValue(key, ctx);
+         MarshalledEntry me = new MarshalledEntryImpl(key, sv.getValue(), internalMetadata(sv), marshaller);
+         if (skipSharedStores(ctx, key, command))
+            nonSharedEntries.add(me);
+         else
+            entries.add(me);
+      }
+      if (!entries.isEmpty())
+         persistenceManager.writeBatchToAllStores(entries, false);
+      if (!nonSharedEntries.isEmpty())
+         persistenceManager.writeBatchToAllStores(nonSharedEntries, true);
+      if (getLog().isTraceEnabled()) getLog().tracef("Stored entries under keys %s", keys);
+   }
+
    protected boolean skipSharedStores(InvocationContext ctx, Object key, FlagAffectedCommand command) {
       return !ctx.isOriginLocal() || command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE);
    }
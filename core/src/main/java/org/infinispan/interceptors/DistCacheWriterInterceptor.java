@@ -16,6 +16,8 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -82,7 +84,7 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       if (!isStoreEnabled(command) || ctx.isInTxScope()) return returnValue;
 
       Map<Object, Object> map = command.getMap();
-      int count = 0;
+      List<Object> keys = new ArrayList<Object>(map.size());
       for (Object key : map.keySet()) {
          // In non-tx mode, a node may receive the same forwarded PutMapCommand many times - but each time
          // it must write only the keys locked on the primary owner that forwarded the command
@@ -90,11 +92,11 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
             continue;
 
          if (isProperWriter(ctx, command, key)) {
-            storeEntry(ctx, key, command);
-            count++;
+            keys.add(key);
          }
       }
-      if (getStatisticsEnabled()) cacheStores.getAndAdd(count);
+      storeEntries(ctx, keys, command);
+      if (getStatisticsEnabled()) cacheStores.getAndAdd(keys.size());
       return returnValue;
    }
 
@@ -0,0 +1,17 @@
+package org.infinispan.notifications;
+
+/**
+ * Creates {@link KeyValueFilter}s for listeners that are added remotely, e.g. by Hot Rod clients, which can only
+ * refer to a filter by the name its factory was registered with, along with some parameters.
+ *
+ * @since 7.0
+ */
+public interface KeyValueFilterFactory {
+
+   /**
+    * @param params the parameters supplied along with the listener, in the form they were sent by the client (e.g.
+    *               marshalled byte arrays for Hot Rod). Never null, but may be empty.
+    * @return the filter to register the listener with. If the listener is clustered, it must be marshallable.
+    */
+   <K, V> KeyValueFilter<K, V> getKeyValueFilter(Object[] params);
+}
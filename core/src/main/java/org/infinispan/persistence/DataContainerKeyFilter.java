@@ -0,0 +1,27 @@
+package org.infinispan.persistence;
+
+import org.infinispan.container.DataContainer;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+
+/**
+ * Rejects the keys that are currently in a data container, so that iterating over a store after the container only
+ * processes the entries that aren't in memory.
+ * <p>
+ * The container is checked when each key is loaded, so unlike a snapshot of its key set this filter doesn't hold
+ * on to any of the keys.
+ *
+ * @since 7.0
+ */
+public class DataContainerKeyFilter implements AdvancedCacheLoader.KeyFilter<Object> {
+
+   private final DataContainer dataContainer;
+
+   public DataContainerKeyFilter(DataContainer dataContainer) {
+      this.dataContainer = dataContainer;
+   }
+
+   @Override
+   public boolean shouldLoadKey(Object key) {
+      return !dataContainer.containsKey(key);
+   }
+}
@@ -7,6 +7,8 @@
 import org.infinispan.metadata.InternalMetadata;
 import org.infinispan.metadata.impl.InternalMetadataImpl;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.persistence.spi.BatchCacheWriter;
+import org.infinispan.persistence.spi.CacheWriter;
 import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -76,4 +78,30 @@ public static InternalMetadata internalMetadata(InternalCacheEntry ice) {
    public static InternalMetadata internalMetadata(InternalCacheValue icv) {
       return icv.getMetadata() == null ? null : new InternalMetadataImpl(icv.getMetadata(), icv.getCreated(), icv.getLastUsed());
    }
+
+   /**
+    * Writes all the entries with a single {@link BatchCacheWriter#writeBatch(Iterable)} call if the writer supports it,
+    * or one by one otherwise.
+    */
+   public static void writeBatch(CacheWriter writer, Iterable<MarshalledEntry> entries) {
+      if (writer instanceof BatchCacheWriter) {
+         ((BatchCacheWriter) writer).writeBatch(entries);
+      } else {
+         for (MarshalledEntry entry : entries)
+            writer.write(entry);
+      }
+   }
+
+   /**
+    * Deletes all the keys with a single {@link BatchCacheWriter#deleteBatch(Iterable)} call if the writer supports it,
+    * or one by one otherwise.
+    */
+   public static void deleteBatch(CacheWriter writer, Iterable<Object> keys) {
+      if (writer instanceof BatchCacheWriter) {
+         ((BatchCacheWriter) writer).deleteBatch(keys);
+      } else {
+         for (Object key : keys)
+            writer.delete(key);
+      }
+   }
 }
@@ -0,0 +1,36 @@
+package org.infinispan.persistence;
+
+import java.util.BitSet;
+
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.remoting.transport.Address;
+
+/**
+ * Accepts the keys of the segments a node is the primary owner of in a given consistent hash.
+ * <p>
+ * Unlike {@link PrimaryOwnerFilter}, the primary owned segments are resolved once, so all the keys are filtered
+ * against the same topology and each key only costs a segment lookup.
+ *
+ * @since 7.0
+ */
+public class PrimaryOwnedSegmentsFilter implements AdvancedCacheLoader.KeyFilter {
+
+   private final ConsistentHash consistentHash;
+   private final BitSet segments;
+
+   public PrimaryOwnedSegmentsFilter(ConsistentHash consistentHash, Address owner) {
+      this.consistentHash = consistentHash;
+      int numSegments = consistentHash.getNumSegments();
+      this.segments = new BitSet(numSegments);
+      for (int segment = 0; segment < numSegments; segment++) {
+         if (owner.equals(consistentHash.locatePrimaryOwnerForSegment(segment)))
+            segments.set(segment);
+      }
+   }
+
+   @Override
+   public boolean shouldLoadKey(Object key) {
+      return segments.get(consistentHash.getSegment(key));
+   }
+}
@@ -5,6 +5,7 @@
 import org.infinispan.Cache;
 import org.infinispan.configuration.cache.AsyncStoreConfiguration;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.spi.PersistenceException;
 import org.infinispan.persistence.modifications.Modification;
 import org.infinispan.persistence.modifications.Remove;
@@ -147,19 +148,42 @@ public boolean delete(Object key) {
       return true;
    }
 
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> entries) {
+      List<Modification> mods = new ArrayList<Modification>();
+      for (MarshalledEntry entry : entries)
+         mods.add(new Store(entry.getKey(), entry));
+      put(mods);
+   }
+
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      List<Modification> mods = new ArrayList<Modification>();
+      for (Object key : keys)
+         mods.add(new Remove(key));
+      put(mods);
+   }
+
    protected void applyModificationsSync(List<Modification> mods) throws PersistenceException {
+      // the modifications of a state are for distinct keys, so they can be applied in any order
+      List<MarshalledEntry> stores = new ArrayList<MarshalledEntry>(mods.size());
+      List<Object> removes = new ArrayList<Object>();
       for (Modification m : mods) {
          switch (m.getType()) {
             case STORE:
-               actual.write(((Store) m).getStoredValue());
+               stores.add(((Store) m).getStoredValue());
                break;
             case REMOVE:
-               actual.delete(((Remove) m).getKey());
+               removes.add(((Remove) m).getKey());
                break;
             default:
                throw new IllegalArgumentException("Unknown modification type " + m.getType());
          }
       }
+      if (!stores.isEmpty())
+         PersistenceUtil.writeBatch(actual, stores);
+      if (!removes.isEmpty())
+         PersistenceUtil.deleteBatch(actual, removes);
    }
 
 
@@ -180,6 +204,22 @@ private void put(Modification mod, int count) {
       }
    }
 
+   private void put(List<Modification> mods) {
+      if (mods.isEmpty())
+         return;
+      stateLock.writeLock(mods.size());
+      try {
+         if (log.isTraceEnabled())
+            log.tracef("Queue modifications: %s", mods);
+
+         State s = state.get();
+         for (Modification mod : mods)
+            s.put(mod);
+      } finally {
+         stateLock.writeUnlock();
+      }
+   }
+
    public AtomicReference<State> getState() {
       return state;
    }
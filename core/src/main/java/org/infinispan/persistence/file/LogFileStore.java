@@ -0,0 +1,821 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.configuration.ConfiguredBy;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.io.ByteBufferFactory;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.configuration.cache.LogFileStoreConfiguration;
+import org.infinispan.executors.ExecutorAllCompletionService;
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.persistence.PersistenceUtil;
+import org.infinispan.persistence.TaskContextImpl;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.InitializationContext;
+import org.infinispan.persistence.spi.PersistenceException;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A filesystem-based implementation of a {@link org.infinispan.persistence.spi.CacheLoader} which only ever appends to
+ * its files. Entries, as well as tombstones for removed keys, are appended to log segments in
+ * <tt>&lt;location&gt;/&lt;cache name&gt;/</tt>, so all writes are sequential. Like the {@link SingleFileStore}, keys
+ * and file positions are kept in memory and the index is rebuilt by replaying the segments on startup.
+ * <p/>
+ * Once a segment reaches the configured maximum size a new one is started. Updates and removals leave dead records
+ * behind, and a background compactor rewrites any segment whose ratio of live data falls below the configured
+ * threshold: its live entries are appended to the current segment and the old segment is deleted. This keeps the
+ * size of the files proportional to the amount of live data, instead of fragmenting a single file.
+ * <p/>
+ * The removal of a key, either a tombstone or an expired record, only needs to be kept while an older segment still
+ * holds a record of the key that it hides. The store tracks the segments holding such records, so tombstones count as
+ * live data until these segments have been compacted, and are dropped afterwards.
+ * <p/>
+ * This class is fully thread safe. Writes are serialized, as they all append to the same segment, while loads
+ * proceed concurrently.
+ *
+ * @since 7.0
+ */
+@ConfiguredBy(LogFileStoreConfiguration.class)
+public class LogFileStore implements AdvancedLoadWriteStore {
+   private static final Log log = LogFactory.getLog(LogFileStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final String SEGMENT_SUFFIX = ".log";
+   private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+   private static final int TOMBSTONE = -1;
+   private static final long[] NO_SEGMENTS = new long[0];
+
+   private LogFileStoreConfiguration configuration;
+
+   protected InitializationContext ctx;
+
+   private File directory;
+   private ConcurrentMap<Object, LogEntry> entries;
+   // The removals that hide records of older segments, which must be carried forward by the compactor.
+   // Guarded by the appendLock.
+   private Map<Object, LogEntry> tombstones;
+   private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<Long, LogSegment>();
+   private volatile LogSegment active;
+   private long nextSegmentId;
+   // Serializes appends and index updates, so that the order of the records in the log is the order of the updates
+   private final Lock appendLock = new ReentrantLock();
+   // Prevents the compactor from deleting a segment while it is being read
+   private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+   private ExecutorService compactor;
+   private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+   private volatile boolean stopped;
+
+   @Override
+   public void init(InitializationContext ctx) {
+      this.ctx = ctx;
+      this.configuration = ctx.getConfiguration();
+   }
+
+   @Override
+   public void start() {
+      try {
+         String location = configuration.location();
+         if (location == null || location.trim().length() == 0)
+            location = "Infinispan-LogFileStore";
+
+         final String cacheName = ctx.getCache().getName();
+         directory = new File(location, cacheName);
+         if (!directory.mkdirs() && !directory.exists()) {
+            throw log.directoryCannotBeCreated(directory.getAbsolutePath());
+         }
+
+         Equivalence<Object> keyEq = ctx.getCache().getCacheConfiguration().dataContainer().keyEquivalence();
+         entries = CollectionFactory.makeConcurrentMap(keyEq, AnyEquivalence.<LogEntry>getInstance());
+         tombstones = CollectionFactory.makeMap(keyEq, AnyEquivalence.<LogEntry>getInstance());
+         stopped = false;
+
+         // replay the existing segments in the order they were written
+         List<Long> ids = existingSegmentIds();
+         for (int i = 0; i < ids.size(); i++) {
+            long id = ids.get(i);
+            LogSegment segment = openSegment(id);
+            segments.put(id, segment);
+            replay(segment, i == ids.size() - 1);
+            nextSegmentId = id + 1;
+         }
+         if (segments.isEmpty())
+            roll();
+         else
+            active = segments.lastEntry().getValue();
+
+         compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+               Thread t = new Thread(r, "LogFileStoreCompactor-" + cacheName);
+               t.setDaemon(true);
+               return t;
+            }
+         });
+         scheduleCompaction();
+      } catch (PersistenceException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   @Override
+   public void stop() {
+      try {
+         if (compactor != null) {
+            stopped = true;
+            compactor.shutdown();
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+            compactor = null;
+         }
+         if (active != null) {
+            log.tracef("Stopping store %s, size = %d, log size = %d", ctx.getCache().getName(), entries.size(), getLogSize());
+            for (LogSegment segment : segments.values())
+               segment.channel.close();
+            segments.clear();
+            entries = null;
+            tombstones = null;
+            active = null;
+            nextSegmentId = 0;
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   private List<Long> existingSegmentIds() {
+      String[] names = directory.list(new FilenameFilter() {
+         @Override
+         public boolean accept(File dir, String name) {
+            return name.endsWith(SEGMENT_SUFFIX);
+         }
+      });
+      List<Long> ids = new ArrayList<Long>();
+      if (names != null) {
+         for (String name : names) {
+            try {
+               ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+               log.debugf("Ignoring unknown file %s in %s", name, directory);
+            }
+         }
+      }
+      Collections.sort(ids);
+      return ids;
+   }
+
+   private LogSegment openSegment(long id) throws IOException {
+      File file = new File(directory, id + SEGMENT_SUFFIX);
+      return new LogSegment(id, file, new RandomAccessFile(file, "rw").getChannel());
+   }
+
+   /**
+    * Rebuilds the in-memory index from the records of a segment.
+    * <p/>
+    * The last segment was being appended to when the store stopped, so after a crash it may end with a torn record,
+    * whose header can be partially written or zero filled. Such a tail is discarded, whereas an invalid header in any
+    * other segment is reported as a corruption.
+    */
+   private void replay(LogSegment segment, boolean last) throws Exception {
+      long now = System.currentTimeMillis();
+      long fileSize = segment.channel.size();
+      long pos = 0;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (pos + HEADER_SIZE <= fileSize) {
+         header.clear();
+         readFully(segment.channel, header, pos);
+         header.flip();
+         int recordSize = header.getInt();
+         int keyLen = header.getInt();
+         int dataLen = header.getInt();
+         int metadataLen = header.getInt();
+         long expiryTime = header.getLong();
+
+         // sanity check
+         if (keyLen <= 0 || recordSize < HEADER_SIZE + keyLen + Math.max(dataLen, 0) + metadataLen) {
+            if (!last)
+               throw log.errorReadingFileStore(segment.file.getPath(), pos);
+            // the header of the last record was torn
+            break;
+         }
+         // the record was only partially written
+         if (pos + recordSize > fileSize)
+            break;
+
+         ByteBuffer keyBuf = ByteBuffer.allocate(keyLen);
+         readFully(segment.channel, keyBuf, pos + HEADER_SIZE);
+         Object key = ctx.getMarshaller().objectFromByteBuffer(keyBuf.array(), 0, keyLen);
+
+         LogEntry record = new LogEntry(segment, pos, recordSize, keyLen, dataLen, metadataLen, expiryTime);
+         if (dataLen == TOMBSTONE || isExpired(expiryTime, now)) {
+            indexRemoval(key, record);
+         } else {
+            index(key, record);
+         }
+         pos += recordSize;
+      }
+      if (pos < fileSize) {
+         log.debugf("Discarding %d bytes of incomplete records at the end of %s", fileSize - pos, segment.file);
+         segment.channel.truncate(pos);
+      }
+      segment.size = pos;
+   }
+
+   /**
+    * Starts a new segment, to which all further records are appended.
+    * <p/>
+    * Note: Caller must hold the {@code appendLock}, unless starting.
+    */
+   private void roll() throws IOException {
+      LogSegment previous = active;
+      LogSegment segment = openSegment(nextSegmentId++);
+      segments.put(segment.id, segment);
+      active = segment;
+      if (trace) log.tracef("Started log segment %s", segment.file);
+      if (previous != null && needsCompaction(previous))
+         scheduleCompaction();
+   }
+
+   /**
+    * Appends a record to the active segment, starting a new one if the record does not fit.
+    * <p/>
+    * Note: Caller must hold the {@code appendLock}.
+    *
+    * @return the entry describing the location of the record
+    */
+   private LogEntry append(ByteBuffer record, int keyLen, int dataLen, int metadataLen, long expiryTime) throws IOException {
+      int recordSize = record.remaining();
+      if (active.size > 0 && active.size + recordSize > configuration.maxSegmentSize())
+         roll();
+      LogSegment segment = active;
+      long offset = segment.size;
+      writeFully(segment.channel, record, offset);
+      segment.size += recordSize;
+      return new LogEntry(segment, offset, recordSize, keyLen, dataLen, metadataLen, expiryTime);
+   }
+
+   /**
+    * Updates the index with the new location of a key, accounting for the live data in the segments.
+    * <p/>
+    * Note: Caller must hold the {@code appendLock}.
+    */
+   private void index(Object key, LogEntry entry) {
+      LogEntry tombstone = tombstones.remove(key);
+      LogEntry old = entries.put(key, entry);
+      entry.hiddenSegments = hiddenSegments(old, tombstone, entry.segment);
+      entry.segment.liveBytes += entry.size;
+      release(old);
+      release(tombstone);
+   }
+
+   /**
+    * Removes a key from the index. The record that removed it, a tombstone or an expired record, is kept as live data
+    * as long as it hides records of the key in older segments.
+    * <p/>
+    * Note: Caller must hold the {@code appendLock}.
+    */
+   private void indexRemoval(Object key, LogEntry removal) {
+      LogEntry tombstone = tombstones.remove(key);
+      LogEntry old = entries.remove(key);
+      // an expired record that is purged is its own removal
+      removal.hiddenSegments = hiddenSegments(old == removal ? null : old, old == removal ? old : tombstone,
+                                              removal.segment);
+      if (removal.hiddenSegments.length > 0) {
+         tombstones.put(key, removal);
+         removal.segment.liveBytes += removal.size;
+      }
+      release(old);
+      release(tombstone);
+   }
+
+   /**
+    * @return the ids of the segments holding records of the key that a new record of the given segment hides
+    */
+   private static long[] hiddenSegments(LogEntry live, LogEntry tombstone, LogSegment segment) {
+      long[] hidden = NO_SEGMENTS;
+      if (live != null) {
+         hidden = live.hiddenSegments;
+         if (live.segment != segment)
+            hidden = withSegment(hidden, live.segment.id);
+      } else if (tombstone != null) {
+         // the removal itself doesn't need to be hidden, only the records it hides
+         hidden = tombstone.hiddenSegments;
+      }
+      return hidden;
+   }
+
+   private static long[] withSegment(long[] segmentIds, long id) {
+      for (long segmentId : segmentIds) {
+         if (segmentId == id)
+            return segmentIds;
+      }
+      long[] result = Arrays.copyOf(segmentIds, segmentIds.length + 1);
+      result[segmentIds.length] = id;
+      return result;
+   }
+
+   private static long[] withoutSegment(long[] segmentIds, long id) {
+      for (int i = 0; i < segmentIds.length; i++) {
+         if (segmentIds[i] == id) {
+            long[] result = new long[segmentIds.length - 1];
+            System.arraycopy(segmentIds, 0, result, 0, i);
+            System.arraycopy(segmentIds, i + 1, result, i, result.length - i);
+            return result;
+         }
+      }
+      return segmentIds;
+   }
+
+   /**
+    * Note: Caller must hold the {@code appendLock}.
+    */
+   private void release(LogEntry old) {
+      if (old != null) {
+         old.segment.liveBytes -= old.size;
+         if (old.segment != active && needsCompaction(old.segment))
+            scheduleCompaction();
+      }
+   }
+
+   private ByteBuffer tombstone(byte[] key, int offset, int length) {
+      ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + length);
+      buf.putInt(HEADER_SIZE + length);
+      buf.putInt(length);
+      buf.putInt(TOMBSTONE);
+      buf.putInt(0);
+      buf.putLong(-1);
+      buf.put(key, offset, length);
+      buf.flip();
+      return buf;
+   }
+
+   @Override
+   public boolean contains(Object key) {
+      LogEntry le = entries.get(key);
+      return le != null && !le.isExpired(System.currentTimeMillis());
+   }
+
+   @Override
+   public void write(MarshalledEntry marshalledEntry) {
+      try {
+         org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
+         org.infinispan.commons.io.ByteBuffer data = marshalledEntry.getValueBytes();
+         org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+
+         int metadataLength = metadata == null ? 0 : metadata.getLength();
+         long expiryTime = metadata != null ? marshalledEntry.getMetadata().expiryTime() : -1;
+         ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + key.getLength() + data.getLength() + metadataLength);
+         buf.putInt(buf.capacity());
+         buf.putInt(key.getLength());
+         buf.putInt(data.getLength());
+         buf.putInt(metadataLength);
+         buf.putLong(expiryTime);
+         buf.put(key.getBuf(), key.getOffset(), key.getLength());
+         buf.put(data.getBuf(), data.getOffset(), data.getLength());
+         if (metadata != null)
+            buf.put(metadata.getBuf(), metadata.getOffset(), metadata.getLength());
+         buf.flip();
+
+         appendLock.lock();
+         try {
+            LogEntry le = append(buf, key.getLength(), data.getLength(), metadataLength, expiryTime);
+            index(marshalledEntry.getKey(), le);
+            if (trace) log.tracef("Wrote entry %s at %s", marshalledEntry.getKey(), le);
+         } finally {
+            appendLock.unlock();
+         }
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   @Override
+   public boolean delete(Object key) {
+      if (!entries.containsKey(key))
+         return false;
+      try {
+         byte[] keyBytes = ctx.getMarshaller().objectToByteBuffer(key);
+         ByteBuffer buf = tombstone(keyBytes, 0, keyBytes.length);
+         appendLock.lock();
+         try {
+            if (!entries.containsKey(key))
+               return false;
+            // the tombstone prevents older records of the key from being replayed on startup
+            indexRemoval(key, append(buf, keyBytes.length, TOMBSTONE, 0, -1));
+            return true;
+         } finally {
+            appendLock.unlock();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new PersistenceException(e);
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   @Override
+   public void clear() {
+      appendLock.lock();
+      try {
+         segmentLock.writeLock().lock();
+         try {
+            entries.clear();
+            tombstones.clear();
+            for (LogSegment segment : segments.values())
+               deleteSegment(segment);
+            segments.clear();
+            active = null;
+            roll();
+         } finally {
+            segmentLock.writeLock().unlock();
+         }
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   public MarshalledEntry load(Object key) {
+      return _load(key, true, true);
+   }
+
+   private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadata) {
+      for (;;) {
+         LogEntry le = entries.get(key);
+         if (le == null || le.isExpired(System.currentTimeMillis()))
+            return null;
+
+         byte[] data = new byte[le.keyLen + (loadValue ? le.dataLen : 0) + (loadMetadata ? le.metadataLen : 0)];
+         segmentLock.readLock().lock();
+         try {
+            // the entry was moved by the compactor after the lookup
+            if (le.segment.deleted)
+               continue;
+            readFully(le.segment.channel, ByteBuffer.wrap(data), le.offset + HEADER_SIZE);
+         } catch (IOException e) {
+            throw new PersistenceException(e);
+         } finally {
+            segmentLock.readLock().unlock();
+         }
+
+         if (trace) log.tracef("Read entry %s at %s", key, le);
+         ByteBufferFactory factory = ctx.getByteBufferFactory();
+         org.infinispan.commons.io.ByteBuffer keyBb = factory.newByteBuffer(data, 0, le.keyLen);
+         org.infinispan.commons.io.ByteBuffer valueBb = null;
+         org.infinispan.commons.io.ByteBuffer metadataBb = null;
+         if (loadValue) {
+            valueBb = factory.newByteBuffer(data, le.keyLen, le.dataLen);
+            if (loadMetadata && le.metadataLen > 0)
+               metadataBb = factory.newByteBuffer(data, le.keyLen + le.dataLen, le.metadataLen);
+         }
+         return ctx.getMarshalledEntryFactory().newMarshalledEntry(keyBb, valueBb, metadataBb);
+      }
+   }
+
+   @Override
+   public void process(KeyFilter filter, final CacheLoaderTask task, Executor executor, final boolean fetchValue, final boolean fetchMetadata) {
+      filter = PersistenceUtil.notNull(filter);
+      Set<Object> keysToLoad = new HashSet<Object>(entries.size());
+      for (Object k : entries.keySet()) {
+         if (filter.shouldLoadKey(k))
+            keysToLoad.add(k);
+      }
+
+      ExecutorAllCompletionService eacs = new ExecutorAllCompletionService(executor);
+
+      final TaskContextImpl taskContext = new TaskContextImpl();
+      for (final Object key : keysToLoad) {
+         if (taskContext.isStopped())
+            break;
+
+         eacs.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               try {
+                  final MarshalledEntry marshalledEntry = _load(key, fetchValue, fetchMetadata);
+                  if (marshalledEntry != null) {
+                     task.processEntry(marshalledEntry, taskContext);
+                  }
+                  return null;
+               } catch (Exception e) {
+                  log.errorExecutingParallelStoreTask(e);
+                  throw e;
+               }
+            }
+         });
+      }
+      eacs.waitUntilAllCompleted();
+      if (eacs.isExceptionThrown()) {
+         throw new PersistenceException("Execution exception!", eacs.getFirstException());
+      }
+   }
+
+   @Override
+   public void purge(Executor threadPool, final PurgeListener task) {
+      threadPool.execute(new Runnable() {
+         @Override
+         public void run() {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Object, LogEntry> entry : entries.entrySet()) {
+               if (!entry.getValue().isExpired(now))
+                  continue;
+
+               // no tombstone needed, replaying the expired record removes the key
+               boolean purged;
+               appendLock.lock();
+               try {
+                  purged = entries.get(entry.getKey()) == entry.getValue();
+                  if (purged)
+                     indexRemoval(entry.getKey(), entry.getValue());
+               } finally {
+                  appendLock.unlock();
+               }
+               if (purged && task != null)
+                  task.entryPurged(entry.getKey());
+            }
+         }
+      });
+   }
+
+   @Override
+   public int size() {
+      return entries.size();
+   }
+
+   private boolean needsCompaction(LogSegment segment) {
+      return segment.size > 0 && segment.liveBytes < configuration.compactionThreshold() * segment.size;
+   }
+
+   private void scheduleCompaction() {
+      if (compactor != null && !stopped && compactionScheduled.compareAndSet(false, true)) {
+         compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+               compactionScheduled.set(false);
+               compact();
+            }
+         });
+      }
+   }
+
+   /**
+    * Rewrites the segments that no longer hold enough live data, oldest first.
+    */
+   void compact() {
+      for (LogSegment segment : segments.values()) {
+         if (stopped)
+            return;
+         boolean candidate;
+         appendLock.lock();
+         try {
+            candidate = segment != active && !segment.deleted && needsCompaction(segment);
+         } finally {
+            appendLock.unlock();
+         }
+         if (candidate) {
+            try {
+               compact(segment);
+            } catch (Exception e) {
+               log.errorCompactingLogFileStore(segment.file.getPath(), e);
+            }
+         }
+      }
+   }
+
+   private void compact(LogSegment segment) throws Exception {
+      if (trace) log.tracef("Compacting %s, %d live bytes out of %d", segment.file, segment.liveBytes, segment.size);
+      // the keys of the records that disappear with the segment
+      List<Object> keys = new ArrayList<Object>();
+      long pos = 0;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      // the segment is not appended to anymore, so it can be read without holding the append lock
+      while (pos < segment.size && !stopped) {
+         ByteBuffer record;
+         segmentLock.readLock().lock();
+         try {
+            if (segment.deleted)
+               return;
+            header.clear();
+            readFully(segment.channel, header, pos);
+            header.flip();
+            record = ByteBuffer.allocate(header.getInt(0));
+            readFully(segment.channel, record, pos);
+            record.flip();
+         } finally {
+            segmentLock.readLock().unlock();
+         }
+         int recordSize = record.getInt(0);
+         int keyLen = record.getInt(4);
+         int dataLen = record.getInt(8);
+         int metadataLen = record.getInt(12);
+         long expiryTime = record.getLong(16);
+         Object key = ctx.getMarshaller().objectFromByteBuffer(record.array(), HEADER_SIZE, keyLen);
+         keys.add(key);
+
+         appendLock.lock();
+         try {
+            if (segment.deleted)
+               return;
+            LogEntry current = entries.get(key);
+            LogEntry tombstone = tombstones.get(key);
+            if (current != null && current.segment == segment && current.offset == pos) {
+               // still live, move it to the end of the log
+               index(key, append(record, keyLen, dataLen, metadataLen, expiryTime));
+            } else if (tombstone != null && tombstone.segment == segment && tombstone.offset == pos) {
+               // still hides records of older segments
+               indexRemoval(key, append(tombstone(record.array(), HEADER_SIZE, keyLen), keyLen, TOMBSTONE, 0, -1));
+            }
+         } finally {
+            appendLock.unlock();
+         }
+         pos += recordSize;
+      }
+      if (stopped)
+         return;
+
+      segmentLock.writeLock().lock();
+      try {
+         if (segment.deleted)
+            return;
+         segments.remove(segment.id);
+         deleteSegment(segment);
+      } finally {
+         segmentLock.writeLock().unlock();
+      }
+
+      // the records of the segment are gone, so the removals that only hid them aren't needed anymore
+      appendLock.lock();
+      try {
+         for (Object key : keys) {
+            LogEntry current = entries.get(key);
+            if (current != null)
+               current.hiddenSegments = withoutSegment(current.hiddenSegments, segment.id);
+            LogEntry tombstone = tombstones.get(key);
+            if (tombstone != null) {
+               tombstone.hiddenSegments = withoutSegment(tombstone.hiddenSegments, segment.id);
+               if (tombstone.hiddenSegments.length == 0) {
+                  tombstones.remove(key);
+                  release(tombstone);
+               }
+            }
+         }
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   /**
+    * Note: Caller must hold the {@code segmentLock} in exclusive mode.
+    */
+   private void deleteSegment(LogSegment segment) throws IOException {
+      segment.deleted = true;
+      segment.channel.close();
+      if (!segment.file.delete())
+         log.debugf("Unable to delete log segment %s", segment.file);
+      if (trace) log.tracef("Deleted log segment %s", segment.file);
+   }
+
+   private static boolean isExpired(long expiryTime, long now) {
+      return expiryTime > 0 && expiryTime < now;
+   }
+
+   private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+      while (buf.hasRemaining()) {
+         int read = channel.read(buf, position);
+         if (read < 0)
+            throw new IOException("Unexpected end of file at " + position);
+         position += read;
+      }
+   }
+
+   private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+      while (buf.hasRemaining()) {
+         position += channel.write(buf, position);
+      }
+   }
+
+   int getSegmentCount() {
+      return segments.size();
+   }
+
+   long getLogSize() {
+      long size = 0;
+      for (LogSegment segment : segments.values())
+         size += segment.size;
+      return size;
+   }
+
+   public LogFileStoreConfiguration getConfiguration() {
+      return configuration;
+   }
+
+   /**
+    * A log file. Records are only ever appended to the active segment, and the others are immutable until deleted.
+    */
+   private static final class LogSegment {
+      final long id;
+      final File file;
+      final FileChannel channel;
+
+      /**
+       * Number of bytes written. Guarded by the {@code appendLock}.
+       */
+      long size;
+
+      /**
+       * Number of bytes of the records that the index points to, including the removals that still hide records of
+       * older segments. Guarded by the {@code appendLock}.
+       */
+      long liveBytes;
+
+      volatile boolean deleted;
+
+      LogSegment(long id, File file, FileChannel channel) {
+         this.id = id;
+         this.file = file;
+         this.channel = channel;
+      }
+   }
+
+   /**
+    * The location of the latest record of a key, or of the removal of a key.
+    * <p/>
+    * The format of a record on disk is as follows:
+    * <ul>
+    * <li>4 bytes: {@link #size}</li>
+    * <li>4 bytes: {@link #keyLen}</li>
+    * <li>4 bytes: {@link #dataLen}, -1 if the record is a tombstone</li>
+    * <li>4 bytes: {@link #metadataLen}</li>
+    * <li>8 bytes: {@link #expiryTime}</li>
+    * <li>{@link #keyLen} bytes: serialized key</li>
+    * <li>{@link #dataLen} bytes: serialized data</li>
+    * <li>{@link #metadataLen} bytes: serialized metadata</li>
+    * </ul>
+    */
+   private static final class LogEntry {
+      final LogSegment segment;
+      final long offset;
+      final int size;
+      final int keyLen;
+      final int dataLen;
+      final int metadataLen;
+      final long expiryTime;
+
+      /**
+       * Ids of the older segments holding records of the key that this record hides. Guarded by the {@code appendLock}.
+       */
+      long[] hiddenSegments = NO_SEGMENTS;
+
+      LogEntry(LogSegment segment, long offset, int size, int keyLen, int dataLen, int metadataLen, long expiryTime) {
+         this.segment = segment;
+         this.offset = offset;
+         this.size = size;
+         this.keyLen = keyLen;
+         this.dataLen = dataLen;
+         this.metadataLen = metadataLen;
+         this.expiryTime = expiryTime;
+      }
+
+      boolean isExpired(long now) {
+         return LogFileStore.isExpired(expiryTime, now);
+      }
+
+      @Override
+      public String toString() {
+         return "LogEntry@" + segment.id + ":" + offset + "{size=" + size + '}';
+      }
+   }
+}
@@ -0,0 +1,493 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.persistence.file.SingleFileStore.FileEntry;
+import org.infinispan.persistence.spi.PersistenceException;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The index of a {@link SingleFileStore} configured with a
+ * {@link org.infinispan.configuration.cache.SingleFileStoreConfiguration#mappedIndex() mapped index}.
+ * <p/>
+ * Instead of the key objects and {@link FileEntry} instances, the index keeps an open addressing (linear probing)
+ * hash table in a memory-mapped file <tt>&lt;location&gt;/&lt;cache name&gt;.idx</tt>, whose slots hold the hash of
+ * the marshalled key and the position, lengths and expiration time of the entry in the data file:
+ * <pre>
+ *    offset (8) | key hash (8) | size (4) | key length (4) | data length (4) | metadata length (4) | expiry time (8)
+ * </pre>
+ * An offset of {@code 0} marks an empty slot and an offset of {@code -1} a removed one. Since only hashes are kept,
+ * keys are compared by reading their marshalled form back from the data file, so two keys are considered equal only
+ * if they marshall to the same bytes. Iterating over the keys also requires reading and unmarshalling them.
+ * <p/>
+ * When the index is {@link #close(long, Collection) closed}, the free list of the store is appended to the table and
+ * the index is flagged as clean, together with the size of the data file. On the next start the index is reused only
+ * if both still match, otherwise the store has to rebuild it by scanning the data file.
+ * <p/>
+ * This class is not thread safe, the store accesses it through a synchronized map.
+ *
+ * @since 7.0
+ */
+final class MappedKeyIndex extends AbstractMap<Object, FileEntry> {
+   private static final Log log = LogFactory.getLog(MappedKeyIndex.class);
+
+   private static final int MAGIC = 0x46434931; // "FCI1"
+   private static final int OPEN = 0;
+   private static final int CLOSED = 1;
+
+   // header fields
+   private static final int STATE_POS = 4;
+   private static final int CAPACITY_POS = 8;
+   private static final int SIZE_POS = 16;
+   private static final int USED_POS = 24;
+   private static final int DATA_SIZE_POS = 32;
+   private static final int FREE_COUNT_POS = 40;
+   private static final int HEADER_SIZE = 64;
+
+   // slot fields
+   private static final int OFFSET = 0;
+   private static final int HASH = 8;
+   private static final int SIZE = 16;
+   private static final int KEY_LEN = 20;
+   private static final int DATA_LEN = 24;
+   private static final int METADATA_LEN = 28;
+   private static final int EXPIRY_TIME = 32;
+   private static final int SLOT_SIZE = 40;
+
+   private static final long EMPTY = 0;
+   private static final long REMOVED = -1;
+
+   private static final int FREE_ENTRY_SIZE = 12;
+   private static final int REGION_BITS = 24;
+   private static final int REGION_MASK = (1 << REGION_BITS) - 1;
+   private static final long MIN_CAPACITY = 1024;
+   private static final float MAX_LOAD_FACTOR = 0.7f;
+   private static final int HASH_SEED = 9001;
+
+   private final File file;
+   private final FileChannel data;
+   private final StreamingMarshaller marshaller;
+
+   private FileChannel channel;
+   private MappedByteBuffer[] regions;
+   private long capacity;
+   private long mask;
+   // number of live slots
+   private long size;
+   // number of live and removed slots
+   private long used;
+
+   private Set<Map.Entry<Object, FileEntry>> entrySet;
+
+   MappedKeyIndex(File file, FileChannel data, StreamingMarshaller marshaller) {
+      this.file = file;
+      this.data = data;
+      this.marshaller = marshaller;
+   }
+
+   /**
+    * Opens the index file, reusing its content if it was closed cleanly while the data file had the given size.
+    *
+    * @param dataSize the current size of the data file
+    * @param freeList collection the free entries recorded in the index are added to, if it is reused
+    * @return {@code true} if the index was reused, {@code false} if it is empty and has to be rebuilt
+    */
+   boolean open(long dataSize, Collection<FileEntry> freeList) throws IOException {
+      channel = new RandomAccessFile(file, "rw").getChannel();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() == HEADER_SIZE && header.getInt(0) == MAGIC && header.getInt(STATE_POS) == CLOSED
+            && header.getLong(DATA_SIZE_POS) == dataSize) {
+         long tableCapacity = header.getLong(CAPACITY_POS);
+         long freeCount = header.getLong(FREE_COUNT_POS);
+         long tableEnd = HEADER_SIZE + tableCapacity * SLOT_SIZE;
+         if (tableCapacity >= MIN_CAPACITY && Long.bitCount(tableCapacity) == 1
+               && channel.size() == tableEnd + freeCount * FREE_ENTRY_SIZE) {
+            readFreeList(tableEnd, freeCount, freeList);
+            channel.truncate(tableEnd);
+            map(tableCapacity);
+            size = header.getLong(SIZE_POS);
+            used = header.getLong(USED_POS);
+            writeHeader(OPEN, -1, 0);
+            log.tracef("Reusing index %s with %d entries", file, size);
+            return true;
+         }
+      }
+      log.tracef("Index %s was not closed cleanly, it needs to be rebuilt", file);
+      reset(MIN_CAPACITY);
+      return false;
+   }
+
+   /**
+    * Records the free list, flags the index as clean and closes it.
+    */
+   void close(long dataSize, Collection<FileEntry> freeList) throws IOException {
+      try {
+         for (MappedByteBuffer region : regions)
+            region.force();
+         long tableEnd = HEADER_SIZE + capacity * SLOT_SIZE;
+         ByteBuffer buf = ByteBuffer.allocate(FREE_ENTRY_SIZE * freeList.size());
+         for (FileEntry fe : freeList) {
+            buf.putLong(fe.offset);
+            buf.putInt(fe.size);
+         }
+         buf.flip();
+         channel.write(buf, tableEnd);
+         channel.force(false);
+         writeHeader(CLOSED, dataSize, freeList.size());
+      } finally {
+         channel.close();
+         channel = null;
+         regions = null;
+      }
+   }
+
+   @Override
+   public FileEntry get(Object key) {
+      byte[] keyBytes = marshall(key);
+      long slot = find(keyBytes, hash(keyBytes));
+      return slot < 0 ? null : entryAt(slot);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      byte[] keyBytes = marshall(key);
+      return find(keyBytes, hash(keyBytes)) >= 0;
+   }
+
+   @Override
+   public FileEntry put(Object key, FileEntry fe) {
+      byte[] keyBytes = marshall(key);
+      long hash = hash(keyBytes);
+      long firstRemoved = -1;
+      for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+         long offset = getLong(slot, OFFSET);
+         if (offset == EMPTY) {
+            if (firstRemoved < 0) {
+               used++;
+               firstRemoved = slot;
+            }
+            size++;
+            writeSlot(firstRemoved, hash, fe);
+            if (used > capacity * MAX_LOAD_FACTOR)
+               rehash();
+            return null;
+         } else if (offset == REMOVED) {
+            if (firstRemoved < 0)
+               firstRemoved = slot;
+         } else if (getLong(slot, HASH) == hash && keyEquals(slot, keyBytes)) {
+            FileEntry previous = entryAt(slot);
+            writeSlot(slot, hash, fe);
+            return previous;
+         }
+      }
+   }
+
+   @Override
+   public FileEntry remove(Object key) {
+      byte[] keyBytes = marshall(key);
+      long slot = find(keyBytes, hash(keyBytes));
+      if (slot < 0)
+         return null;
+      FileEntry previous = entryAt(slot);
+      removeAt(slot);
+      return previous;
+   }
+
+   @Override
+   public int size() {
+      return (int) Math.min(size, Integer.MAX_VALUE);
+   }
+
+   @Override
+   public void clear() {
+      try {
+         reset(MIN_CAPACITY);
+      } catch (IOException e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   @Override
+   public Set<Map.Entry<Object, FileEntry>> entrySet() {
+      if (entrySet == null) {
+         entrySet = new AbstractSet<Map.Entry<Object, FileEntry>>() {
+            @Override
+            public Iterator<Map.Entry<Object, FileEntry>> iterator() {
+               return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+               return MappedKeyIndex.this.size();
+            }
+
+            @Override
+            public void clear() {
+               MappedKeyIndex.this.clear();
+            }
+         };
+      }
+      return entrySet;
+   }
+
+   long capacity() {
+      return capacity;
+   }
+
+   private long find(byte[] keyBytes, long hash) {
+      for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+         long offset = getLong(slot, OFFSET);
+         if (offset == EMPTY)
+            return -1;
+         if (offset != REMOVED && getLong(slot, HASH) == hash && keyEquals(slot, keyBytes))
+            return slot;
+      }
+   }
+
+   private void removeAt(long slot) {
+      putLong(slot, OFFSET, REMOVED);
+      size--;
+   }
+
+   private boolean keyEquals(long slot, byte[] keyBytes) {
+      int keyLen = getInt(slot, KEY_LEN);
+      return keyLen == keyBytes.length && Arrays.equals(keyBytes, readKey(getLong(slot, OFFSET), keyLen));
+   }
+
+   private byte[] readKey(long offset, int keyLen) {
+      byte[] keyBytes = new byte[keyLen];
+      try {
+         data.read(ByteBuffer.wrap(keyBytes), offset + SingleFileStore.KEY_POS);
+      } catch (IOException e) {
+         throw new PersistenceException(e);
+      }
+      return keyBytes;
+   }
+
+   private FileEntry entryAt(long slot) {
+      return new FileEntry(getLong(slot, OFFSET), getInt(slot, SIZE), getInt(slot, KEY_LEN), getInt(slot, DATA_LEN),
+                           getInt(slot, METADATA_LEN), getLong(slot, EXPIRY_TIME));
+   }
+
+   private void writeSlot(long slot, long hash, FileEntry fe) {
+      putLong(slot, HASH, hash);
+      putInt(slot, SIZE, fe.size);
+      putInt(slot, KEY_LEN, fe.keyLen);
+      putInt(slot, DATA_LEN, fe.dataLen);
+      putInt(slot, METADATA_LEN, fe.metadataLen);
+      putLong(slot, EXPIRY_TIME, fe.expiryTime);
+      // the offset marks the slot as used, so it is written last
+      putLong(slot, OFFSET, fe.offset);
+   }
+
+   /**
+    * Moves the live slots to a table sized for twice the current number of entries, which also drops the removed
+    * slots. The new table is built in a temporary file which then replaces the index file.
+    */
+   private void rehash() {
+      long newCapacity = capacity;
+      while (size * 2 > newCapacity * MAX_LOAD_FACTOR)
+         newCapacity <<= 1;
+      log.tracef("Resizing index %s from %d to %d slots", file, capacity, newCapacity);
+
+      File tmp = new File(file.getPath() + ".tmp");
+      MappedKeyIndex resized = new MappedKeyIndex(tmp, data, marshaller);
+      try {
+         resized.channel = new RandomAccessFile(tmp, "rw").getChannel();
+         resized.reset(newCapacity);
+         for (long slot = 0; slot < capacity; slot++) {
+            long offset = getLong(slot, OFFSET);
+            if (offset != EMPTY && offset != REMOVED)
+               resized.insert(getLong(slot, HASH), entryAt(slot));
+         }
+         channel.close();
+         if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+            throw new IOException("Unable to rename " + tmp + " to " + file);
+      } catch (IOException e) {
+         throw new PersistenceException(e);
+      }
+      channel = resized.channel;
+      regions = resized.regions;
+      capacity = resized.capacity;
+      mask = resized.mask;
+      size = resized.size;
+      used = resized.used;
+   }
+
+   /**
+    * Adds an entry whose key is known not to be in the table yet, which doesn't contain any removed slots.
+    */
+   private void insert(long hash, FileEntry fe) {
+      long slot = hash & mask;
+      while (getLong(slot, OFFSET) != EMPTY)
+         slot = (slot + 1) & mask;
+      writeSlot(slot, hash, fe);
+      size++;
+      used++;
+   }
+
+   private void reset(long newCapacity) throws IOException {
+      regions = null;
+      channel.truncate(0);
+      map(newCapacity);
+      size = 0;
+      used = 0;
+      writeHeader(OPEN, -1, 0);
+   }
+
+   private void map(long newCapacity) throws IOException {
+      long regionCount = ((newCapacity - 1) >>> REGION_BITS) + 1;
+      MappedByteBuffer[] newRegions = new MappedByteBuffer[(int) regionCount];
+      for (int i = 0; i < newRegions.length; i++) {
+         long slots = Math.min(newCapacity - ((long) i << REGION_BITS), 1L << REGION_BITS);
+         long position = HEADER_SIZE + ((long) i << REGION_BITS) * SLOT_SIZE;
+         newRegions[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, slots * SLOT_SIZE);
+      }
+      regions = newRegions;
+      capacity = newCapacity;
+      mask = newCapacity - 1;
+   }
+
+   private void writeHeader(int state, long dataSize, int freeCount) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(0, MAGIC);
+      header.putInt(STATE_POS, state);
+      header.putLong(CAPACITY_POS, capacity);
+      header.putLong(SIZE_POS, size);
+      header.putLong(USED_POS, used);
+      header.putLong(DATA_SIZE_POS, dataSize);
+      header.putLong(FREE_COUNT_POS, freeCount);
+      channel.write(header, 0);
+      channel.force(false);
+   }
+
+   private void readFreeList(long position, long count, Collection<FileEntry> freeList) throws IOException {
+      ByteBuffer buf = ByteBuffer.allocate((int) (count * FREE_ENTRY_SIZE));
+      channel.read(buf, position);
+      buf.flip();
+      for (long i = 0; i < count; i++) {
+         freeList.add(new FileEntry(buf.getLong(), buf.getInt()));
+      }
+   }
+
+   private byte[] marshall(Object key) {
+      try {
+         return marshaller.objectToByteBuffer(key);
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   private Object unmarshall(byte[] keyBytes) {
+      try {
+         return marshaller.objectFromByteBuffer(keyBytes);
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+   }
+
+   private static long hash(byte[] keyBytes) {
+      return MurmurHash3.MurmurHash3_x64_64(keyBytes, HASH_SEED);
+   }
+
+   private long getLong(long slot, int field) {
+      return regions[(int) (slot >>> REGION_BITS)].getLong(position(slot, field));
+   }
+
+   private int getInt(long slot, int field) {
+      return regions[(int) (slot >>> REGION_BITS)].getInt(position(slot, field));
+   }
+
+   private void putLong(long slot, int field, long value) {
+      regions[(int) (slot >>> REGION_BITS)].putLong(position(slot, field), value);
+   }
+
+   private void putInt(long slot, int field, int value) {
+      regions[(int) (slot >>> REGION_BITS)].putInt(position(slot, field), value);
+   }
+
+   private static int position(long slot, int field) {
+      return (int) (slot & REGION_MASK) * SLOT_SIZE + field;
+   }
+
+   /**
+    * Iterates over the live slots, unmarshalling the keys lazily. Removing an entry only flags its slot as removed, so
+    * the iteration isn't affected by it.
+    */
+   private class EntryIterator implements Iterator<Map.Entry<Object, FileEntry>> {
+      private long next = -1;
+      private long current = -1;
+
+      EntryIterator() {
+         advance();
+      }
+
+      private void advance() {
+         for (next++; next < capacity; next++) {
+            long offset = getLong(next, OFFSET);
+            if (offset != EMPTY && offset != REMOVED)
+               return;
+         }
+      }
+
+      @Override
+      public boolean hasNext() {
+         return next < capacity;
+      }
+
+      @Override
+      public Map.Entry<Object, FileEntry> next() {
+         if (!hasNext())
+            throw new NoSuchElementException();
+         current = next;
+         advance();
+         final FileEntry fe = entryAt(current);
+         return new Map.Entry<Object, FileEntry>() {
+            private Object key;
+
+            @Override
+            public Object getKey() {
+               if (key == null)
+                  key = unmarshall(readKey(fe.offset, fe.keyLen));
+               return key;
+            }
+
+            @Override
+            public FileEntry getValue() {
+               return fe;
+            }
+
+            @Override
+            public FileEntry setValue(FileEntry value) {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public void remove() {
+         if (current < 0)
+            throw new IllegalStateException();
+         removeAt(current);
+         current = -1;
+      }
+   }
+}
@@ -6,6 +6,8 @@
 import org.infinispan.commons.equivalence.EquivalentLinkedHashMap;
 import org.infinispan.commons.io.ByteBufferFactory;
 import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.Histogram;
+import org.infinispan.configuration.cache.FsyncMode;
 import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
 import org.infinispan.executors.ExecutorAllCompletionService;
 import org.infinispan.marshall.core.MarshalledEntry;
@@ -13,6 +15,7 @@
 import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.TaskContextImpl;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.util.KeyValuePair;
 import org.infinispan.util.logging.Log;
@@ -35,6 +38,8 @@
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -59,6 +64,20 @@
  * data loss, and data can be recomputed or re-queried from the original data
  * source.
  * <p/>
+ * Alternatively, the store can be configured with a
+ * {@link SingleFileStoreConfiguration#mappedIndex() mapped index}, which
+ * keeps the index in a memory-mapped hash table stored in
+ * <tt>&lt;location&gt;/&lt;cache name&gt;.idx</tt> instead of the heap (see
+ * {@link MappedKeyIndex}). The mapped index survives restarts, so the data
+ * file only needs to be scanned if the store was not stopped cleanly.
+ * <p/>
+ * By default, writes are left to the operating system to flush to disk. With
+ * {@link SingleFileStoreConfiguration#fsyncMode() fsync mode}
+ * {@link FsyncMode#PER_WRITE}, every write forces the file to disk before
+ * returning, and with {@link FsyncMode#GROUP_COMMIT} concurrent writes are
+ * coalesced so that a single force covers all the writes issued within the
+ * configured interval or batch size.
+ * <p/>
  * This class is fully thread safe, yet allows for concurrent load / store
  * of individual cache entries.
  *
@@ -67,14 +86,14 @@
  * @since 6.0
  */
 @ConfiguredBy(SingleFileStoreConfiguration.class)
-public class SingleFileStore implements AdvancedLoadWriteStore {
+public class SingleFileStore implements AdvancedLoadWriteStore, BatchCacheWriter {
    private static final Log log = LogFactory.getLog(SingleFileStore.class);
    private static final boolean trace = log.isTraceEnabled();
 
    private static final byte[] MAGIC = new byte[]{'F', 'C', 'S', '1'};
    private static final byte[] ZERO_INT = {0, 0, 0, 0};
    private static final int KEYLEN_POS = 4;
-   private static final int KEY_POS = 4 + 4 + 4 + 4 + 8;
+   static final int KEY_POS = 4 + 4 + 4 + 4 + 8;
 
    private SingleFileStoreConfiguration configuration;
 
@@ -82,11 +101,23 @@ public class SingleFileStore implements AdvancedLoadWriteStore {
 
    private FileChannel channel;
    private Map<Object, FileEntry> entries;
+   private MappedKeyIndex mappedIndex;
    private SortedSet<FileEntry> freeList;
    private long filePos = MAGIC.length;
    private File file;
    // Prevent clear() from truncating the file after a write() allocated the entry but before it wrote the data
    private ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+   // Prevent allocate() from reusing, and clear() from truncating, file entries that are being read
+   private final Readers readers = new Readers();
+
+   // Group commit state, guarded by syncLock: writes are numbered, and a write is durable once syncedSeq reaches it
+   private final Object syncLock = new Object();
+   private long writeSeq;
+   private long syncedSeq;
+   private boolean syncing;
+   // Time taken by each fsync, in microseconds, and the number of writes each fsync made durable
+   private final Histogram fsyncLatencies = new Histogram();
+   private final Histogram fsyncBatchSizes = new Histogram();
 
    @Override
    public void init(InitializationContext ctx) {
@@ -112,14 +143,24 @@ public void start() {
          channel = new RandomAccessFile(file, "rw").getChannel();
 
          // initialize data structures
-         entries = newEntryMap();
          freeList = Collections.synchronizedSortedSet(new TreeSet<FileEntry>());
+         boolean indexValid = false;
+         if (configuration.mappedIndex()) {
+            mappedIndex = new MappedKeyIndex(new File(location, ctx.getCache().getName() + ".idx"), channel, ctx.getMarshaller());
+            indexValid = mappedIndex.open(channel.size(), freeList);
+            entries = Collections.synchronizedMap(mappedIndex);
+         } else {
+            entries = newEntryMap();
+         }
 
          // check file format and read persistent state if enabled for the cache
          byte[] header = new byte[MAGIC.length];
-         if (channel.read(ByteBuffer.wrap(header), 0) == MAGIC.length && Arrays.equals(MAGIC, header))
-            rebuildIndex();
-         else
+         if (channel.read(ByteBuffer.wrap(header), 0) == MAGIC.length && Arrays.equals(MAGIC, header)) {
+            if (indexValid)
+               filePos = channel.size();
+            else
+               rebuildIndex();
+         } else
             clear(); // otherwise (unknown file format or no preload) just reset the file
       } catch (Exception e) {
          throw new PersistenceException(e);
@@ -147,6 +188,10 @@ public void stop() {
             log.tracef("Stopping store %s, size = %d, file size = %d", ctx.getCache().getName(), entries.size(), channel.size());
 
             // reset state
+            if (mappedIndex != null) {
+               mappedIndex.close(channel.size(), freeList);
+               mappedIndex = null;
+            }
             channel.close();
             channel = null;
             entries = null;
@@ -224,36 +269,79 @@ public boolean contains(Object key) {
     */
    private FileEntry allocate(int len) {
       synchronized (freeList) {
-         // lookup a free entry of sufficient size
-         SortedSet<FileEntry> candidates = freeList.tailSet(new FileEntry(0, len));
-         for (Iterator<FileEntry> it = candidates.iterator(); it.hasNext(); ) {
-            FileEntry free = it.next();
-            // ignore entries that are still in use by concurrent readers
-            if (free.isLocked())
-               continue;
-
-            // There's no race condition risk between locking the entry on
-            // loading and checking whether it's locked (or store allocation),
-            // because for the entry to be lockable, it needs to be in the
-            // entries collection, in which case it's not in the free list.
-            // The only way an entry can be found in the free list is if it's
-            // been removed, and to remove it, lock on "entries" needs to be
-            // acquired, which is also a pre-requisite for loading data.
-
-            // found one, remove from freeList
-            it.remove();
-            if (trace) log.tracef("Found free entry at %d:%d, %d free entries remaining", free.offset, free.size, freeList.size());
+         FileEntry free = allocateFree(len);
+         if (free != null)
             return free;
-         }
 
          // no appropriate free section available, append at end of file
-         FileEntry fe = new FileEntry(filePos, len);
-         filePos += len;
-         if (trace) log.tracef("New entry allocated at %d:%d, %d free entries, file size is %d", fe.offset, fe.size, freeList.size(), filePos);
-         return fe;
+         return allocateAtEnd(len);
+      }
+   }
+
+   /**
+    * Allocates the requested space for several entries. The entries that don't fit in the free list are allocated
+    * contiguously at the end of the file, in order, so they can be written with a single write.
+    *
+    * @return the file position of the first entry appended at the end of the file
+    */
+   private long allocateBatch(int[] lens, FileEntry[] allocated) {
+      synchronized (freeList) {
+         for (int i = 0; i < lens.length; i++) {
+            allocated[i] = allocateFree(lens[i]);
+         }
+         long appendOffset = filePos;
+         for (int i = 0; i < lens.length; i++) {
+            if (allocated[i] == null)
+               allocated[i] = allocateAtEnd(lens[i]);
+         }
+         return appendOffset;
       }
    }
 
+   /**
+    * Looks up a free entry of sufficient size.
+    * <p/>
+    * Note: Caller must hold the {@code freeList} monitor.
+    *
+    * @return the free entry, removed from the free list, or {@code null} if there isn't one
+    */
+   private FileEntry allocateFree(int len) {
+      // lookup a free entry of sufficient size
+      SortedSet<FileEntry> candidates = freeList.tailSet(new FileEntry(0, len));
+      for (Iterator<FileEntry> it = candidates.iterator(); it.hasNext(); ) {
+         FileEntry free = it.next();
+         // ignore entries that are still in use by concurrent readers
+         if (readers.isLocked(free.offset))
+            continue;
+
+         // There's no race condition risk between locking the entry on
+         // loading and checking whether it's locked (or store allocation),
+         // because for the entry to be lockable, it needs to be in the
+         // entries collection, in which case it's not in the free list.
+         // The only way an entry can be found in the free list is if it's
+         // been removed, and to remove it, lock on "entries" needs to be
+         // acquired, which is also a pre-requisite for loading data.
+
+         // found one, remove from freeList
+         it.remove();
+         if (trace) log.tracef("Found free entry at %d:%d, %d free entries remaining", free.offset, free.size, freeList.size());
+         return free;
+      }
+      return null;
+   }
+
+   /**
+    * Appends a new entry at the end of the file.
+    * <p/>
+    * Note: Caller must hold the {@code freeList} monitor.
+    */
+   private FileEntry allocateAtEnd(int len) {
+      FileEntry fe = new FileEntry(filePos, len);
+      filePos += len;
+      if (trace) log.tracef("New entry allocated at %d:%d, %d free entries, file size is %d", fe.offset, fe.size, freeList.size(), filePos);
+      return fe;
+   }
+
    /**
     * Frees the space of the specified file entry (for reuse by allocate).
     * <p/>
@@ -276,30 +364,17 @@ private void free(FileEntry fe) throws IOException {
    public void write(MarshalledEntry marshalledEntry) {
       try {
          // serialize cache value
-         org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
-         org.infinispan.commons.io.ByteBuffer data = marshalledEntry.getValueBytes();
-         org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+         int len = entryLength(marshalledEntry);
 
          // allocate file entry and store in cache file
-         int metadataLength = metadata == null ? 0 : metadata.getLength();
-         int len = KEY_POS + key.getLength() + data.getLength() + metadataLength;
          FileEntry fe = null;
          resizeLock.readLock().lock();
          try {
             fe = allocate(len);
-            long expiryTime = metadata != null ? marshalledEntry.getMetadata().expiryTime() : -1;
-            fe = new FileEntry(fe, key.getLength(), data.getLength(), metadataLength, expiryTime);
+            fe = newFileEntry(fe, marshalledEntry);
 
             ByteBuffer buf = ByteBuffer.allocate(len);
-            buf.putInt(fe.size);
-            buf.putInt(fe.keyLen);
-            buf.putInt(fe.dataLen);
-            buf.putInt(fe.metadataLen);
-            buf.putLong(fe.expiryTime);
-            buf.put(key.getBuf(), key.getOffset(), key.getLength());
-            buf.put(data.getBuf(), data.getOffset(), data.getLength());
-            if (metadata != null)
-               buf.put(metadata.getBuf(), metadata.getOffset(), metadata.getLength());
+            putEntry(buf, fe, marshalledEntry);
             buf.flip();
             channel.write(buf, fe.offset);
             if (trace) log.tracef("Wrote entry %s at %d:%d", marshalledEntry.getKey(), fe.offset, len);
@@ -321,6 +396,134 @@ public void write(MarshalledEntry marshalledEntry) {
       } catch (Exception e) {
          throw new PersistenceException(e);
       }
+      sync();
+   }
+
+   /**
+    * Writes all the entries while holding the {@code resizeLock} once. The entries that are appended at the end of the
+    * file, which are all of them unless there is free space to reuse, are written with a single write.
+    */
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> marshalledEntries) {
+      List<MarshalledEntry> batch = new ArrayList<MarshalledEntry>();
+      for (MarshalledEntry marshalledEntry : marshalledEntries)
+         batch.add(marshalledEntry);
+      if (batch.isEmpty())
+         return;
+
+      try {
+         int[] lens = new int[batch.size()];
+         for (int i = 0; i < lens.length; i++) {
+            lens[i] = entryLength(batch.get(i));
+         }
+
+         List<FileEntry> toFree = new ArrayList<FileEntry>();
+         resizeLock.readLock().lock();
+         try {
+            FileEntry[] allocated = new FileEntry[lens.length];
+            long appendOffset = allocateBatch(lens, allocated);
+
+            // entries reusing free space are written one by one, the rest are appended with a single write
+            int appendLen = 0;
+            for (int i = 0; i < allocated.length; i++) {
+               if (allocated[i].offset >= appendOffset)
+                  appendLen += lens[i];
+            }
+            ByteBuffer appendBuf = ByteBuffer.allocate(appendLen);
+            for (int i = 0; i < allocated.length; i++) {
+               MarshalledEntry marshalledEntry = batch.get(i);
+               FileEntry fe = newFileEntry(allocated[i], marshalledEntry);
+               allocated[i] = fe;
+               if (fe.offset >= appendOffset) {
+                  appendBuf.position((int) (fe.offset - appendOffset));
+                  putEntry(appendBuf, fe, marshalledEntry);
+               } else {
+                  ByteBuffer buf = ByteBuffer.allocate(lens[i]);
+                  putEntry(buf, fe, marshalledEntry);
+                  buf.flip();
+                  channel.write(buf, fe.offset);
+               }
+            }
+            appendBuf.clear();
+            if (appendBuf.hasRemaining())
+               channel.write(appendBuf, appendOffset);
+            if (trace) log.tracef("Wrote batch of %d entries, %d bytes appended at %d", lens.length, appendBuf.capacity(), appendOffset);
+
+            // add the new entries to in-memory index
+            for (int i = 0; i < allocated.length; i++) {
+               FileEntry fe = entries.put(batch.get(i).getKey(), allocated[i]);
+               if (fe == null)
+                  fe = evict();
+               if (fe != null)
+                  toFree.add(fe);
+            }
+         } finally {
+            // in case we replaced or evicted entries, add to freeList
+            try {
+               for (FileEntry fe : toFree)
+                  free(fe);
+            } finally {
+               resizeLock.readLock().unlock();
+            }
+         }
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      }
+      sync();
+   }
+
+   /**
+    * Removes all the keys while holding the {@code resizeLock} once.
+    */
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      boolean removed = false;
+      resizeLock.readLock().lock();
+      try {
+         for (Object key : keys) {
+            FileEntry fe = entries.remove(key);
+            free(fe);
+            removed |= fe != null;
+         }
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      } finally {
+         resizeLock.readLock().unlock();
+      }
+      if (removed)
+         sync();
+   }
+
+   private static int entryLength(MarshalledEntry marshalledEntry) {
+      org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+      return KEY_POS + marshalledEntry.getKeyBytes().getLength() + marshalledEntry.getValueBytes().getLength()
+            + (metadata == null ? 0 : metadata.getLength());
+   }
+
+   private static FileEntry newFileEntry(FileEntry allocated, MarshalledEntry marshalledEntry) {
+      org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+      long expiryTime = metadata != null ? marshalledEntry.getMetadata().expiryTime() : -1;
+      return new FileEntry(allocated, marshalledEntry.getKeyBytes().getLength(),
+                           marshalledEntry.getValueBytes().getLength(), metadata == null ? 0 : metadata.getLength(),
+                           expiryTime);
+   }
+
+   /**
+    * Serializes an entry in the file format at the current position of the buffer.
+    */
+   private static void putEntry(ByteBuffer buf, FileEntry fe, MarshalledEntry marshalledEntry) {
+      org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
+      org.infinispan.commons.io.ByteBuffer data = marshalledEntry.getValueBytes();
+      org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+      buf.putInt(fe.size);
+      buf.putInt(fe.keyLen);
+      buf.putInt(fe.dataLen);
+      buf.putInt(fe.metadataLen);
+      buf.putLong(fe.expiryTime);
+      buf.put(key.getBuf(), key.getOffset(), key.getLength());
+      buf.put(data.getBuf(), data.getOffset(), data.getLength());
+      if (metadata != null)
+         buf.put(metadata.getBuf(), metadata.getOffset(), metadata.getLength());
    }
 
    /**
@@ -349,10 +552,7 @@ public void clear() {
          synchronized (entries) {
             synchronized (freeList) {
                // wait until all readers are done reading file entries
-               for (FileEntry fe : entries.values())
-                  fe.waitUnlocked();
-               for (FileEntry fe : freeList)
-                  fe.waitUnlocked();
+               readers.waitUnlocked();
 
                // clear in-memory state
                entries.clear();
@@ -363,6 +563,8 @@ public void clear() {
                channel.truncate(0);
                channel.write(ByteBuffer.wrap(MAGIC), 0);
                filePos = MAGIC.length;
+               if (configuration.fsyncMode() != FsyncMode.DEFAULT)
+                  force(1);
             }
          }
       } catch (Exception e) {
@@ -374,16 +576,20 @@ public void clear() {
 
    @Override
    public boolean delete(Object key) {
+      FileEntry fe;
       resizeLock.readLock().lock();
       try {
-         FileEntry fe = entries.remove(key);
+         fe = entries.remove(key);
          free(fe);
-         return fe != null;
       } catch (Exception e) {
          throw new PersistenceException(e);
       } finally {
          resizeLock.readLock().unlock();
       }
+      if (fe == null)
+         return false;
+      sync();
+      return true;
    }
 
    @Override
@@ -408,7 +614,7 @@ private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadat
                entries.remove(key);
             } else {
                // lock entry for reading before releasing entries monitor
-               fe.lock();
+               readers.lock(fe.offset);
             }
          }
 
@@ -436,7 +642,7 @@ private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadat
       } finally {
          // No need to keep the lock for deserialization.
          // FileEntry is immutable, so its members can't be changed by another thread.
-         fe.unlock();
+         readers.unlock(fe.offset);
       }
 
       if (trace) log.tracef("Read entry %s at %d:%d", key, fe.offset, fe.actualSize());
@@ -551,6 +757,107 @@ long getFileSize() {
       return filePos;
    }
 
+   /**
+    * Makes the data written so far durable, according to the configured {@link FsyncMode}.
+    */
+   private void sync() {
+      switch (configuration.fsyncMode()) {
+         case PER_WRITE:
+            force(1);
+            break;
+         case GROUP_COMMIT:
+            groupCommit();
+            break;
+         default:
+            break;
+      }
+   }
+
+   /**
+    * Waits until the calling thread's write is covered by a force. The first writer that finds no force in progress
+    * becomes the leader: it waits for {@code fsyncInterval} milliseconds, or until {@code fsyncMaxBatchSize} writes
+    * are pending, then forces the file once on behalf of all the writes issued so far. If the force fails, one of the
+    * waiting writers takes over as leader.
+    */
+   private void groupCommit() {
+      long seq;
+      long batchEnd;
+      long batchStart;
+      synchronized (syncLock) {
+         seq = ++writeSeq;
+         if (writeSeq - syncedSeq >= configuration.fsyncMaxBatchSize())
+            syncLock.notifyAll();
+         boolean interrupted = false;
+         try {
+            while (syncing && syncedSeq < seq) {
+               try {
+                  syncLock.wait();
+               } catch (InterruptedException e) {
+                  interrupted = true;
+               }
+            }
+            if (syncedSeq >= seq)
+               return;
+
+            // become the leader, and give concurrent writers a chance to join the batch
+            syncing = true;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.fsyncInterval());
+            long remaining;
+            while (writeSeq - syncedSeq < configuration.fsyncMaxBatchSize()
+                  && (remaining = deadline - System.nanoTime()) > 0) {
+               try {
+                  TimeUnit.NANOSECONDS.timedWait(syncLock, remaining);
+               } catch (InterruptedException e) {
+                  interrupted = true;
+               }
+            }
+            batchStart = syncedSeq;
+            batchEnd = writeSeq;
+         } finally {
+            if (interrupted)
+               Thread.currentThread().interrupt();
+         }
+      }
+
+      boolean forced = false;
+      try {
+         force((int) (batchEnd - batchStart));
+         forced = true;
+      } finally {
+         synchronized (syncLock) {
+            if (forced)
+               syncedSeq = Math.max(syncedSeq, batchEnd);
+            syncing = false;
+            syncLock.notifyAll();
+         }
+      }
+   }
+
+   private void force(int batchSize) {
+      long start = System.nanoTime();
+      try {
+         channel.force(false);
+      } catch (IOException e) {
+         throw new PersistenceException(e);
+      }
+      fsyncLatencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      fsyncBatchSizes.record(batchSize);
+   }
+
+   /**
+    * @return the time taken by each fsync, in microseconds
+    */
+   public Histogram getFsyncLatencies() {
+      return fsyncLatencies;
+   }
+
+   /**
+    * @return the number of writes made durable by each fsync
+    */
+   public Histogram getFsyncBatchSizes() {
+      return fsyncBatchSizes;
+   }
+
    public SingleFileStoreConfiguration getConfiguration() {
       return configuration;
    }
@@ -570,41 +877,36 @@ public SingleFileStoreConfiguration getConfiguration() {
     * <li>{@link #metadataLen} bytes: serialized key</li>
     * </ul>
     */
-   private static class FileEntry implements Comparable<FileEntry> {
+   static class FileEntry implements Comparable<FileEntry> {
       /**
        * File offset of this block.
        */
-      private final long offset;
+      final long offset;
 
       /**
        * Total size of this block.
        */
-      private final int size;
+      final int size;
 
       /**
        * Size of serialized key.
        */
-      private final int keyLen;
+      final int keyLen;
 
       /**
        * Size of serialized data.
        */
-      private final int dataLen;
+      final int dataLen;
 
       /**
        * Size of serialized metadata.
        */
-      private final int metadataLen;
+      final int metadataLen;
 
       /**
        * Time stamp when the entry will expire (i.e. will be collected by purge).
        */
-      private final long expiryTime;
-
-      /**
-       * Number of current readers.
-       */
-      private transient int readers = 0;
+      final long expiryTime;
 
       public FileEntry(long offset, int size) {
          this(offset, size, 0, 0, 0, -1);
@@ -623,30 +925,6 @@ public FileEntry(FileEntry fe, int keyLen, int dataLen, int metadataLen, long ex
          this(fe.offset, fe.size, keyLen, dataLen, metadataLen, expiryTime);
       }
 
-      public synchronized boolean isLocked() {
-         return readers > 0;
-      }
-
-      public synchronized void lock() {
-         readers++;
-      }
-
-      public synchronized void unlock() {
-         readers--;
-         if (readers == 0)
-            notifyAll();
-      }
-
-      public synchronized void waitUnlocked() {
-         while (readers > 0) {
-            try {
-               wait();
-            } catch (InterruptedException e) {
-               Thread.currentThread().interrupt();
-            }
-         }
-      }
-
       public boolean isExpired(long now) {
          return expiryTime > 0 && expiryTime < now;
       }
@@ -692,4 +970,50 @@ public String toString() {
                '}';
       }
    }
+
+   /**
+    * Counts the readers of file entries, by file offset.
+    * <p/>
+    * The counts are striped, so an entry may be reported as locked while a different entry is being read. This only
+    * delays the reuse of the entry's space, but allows {@link FileEntry} instances to be created on demand, as done by
+    * the {@link MappedKeyIndex}.
+    */
+   private static class Readers {
+      private static final int STRIPES = 1024;
+
+      private final AtomicIntegerArray counts = new AtomicIntegerArray(STRIPES);
+
+      public boolean isLocked(long offset) {
+         return counts.get(stripe(offset)) > 0;
+      }
+
+      public void lock(long offset) {
+         counts.incrementAndGet(stripe(offset));
+      }
+
+      public void unlock(long offset) {
+         if (counts.decrementAndGet(stripe(offset)) == 0) {
+            synchronized (this) {
+               notifyAll();
+            }
+         }
+      }
+
+      public synchronized void waitUnlocked() {
+         for (int i = 0; i < STRIPES; i++) {
+            while (counts.get(i) > 0) {
+               try {
+                  wait();
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+         }
+      }
+
+      private static int stripe(long offset) {
+         long h = offset * 0x9E3779B97F4A7C15L;
+         return (int) (h >>> 54);
+      }
+   }
 }
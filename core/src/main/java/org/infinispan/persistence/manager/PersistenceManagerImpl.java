@@ -27,6 +27,7 @@
 import org.infinispan.metadata.impl.InternalMetadataImpl;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.persistence.InitializationContextImpl;
+import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.async.AdvancedAsyncCacheLoader;
 import org.infinispan.persistence.async.AdvancedAsyncCacheWriter;
 import org.infinispan.persistence.async.AsyncCacheLoader;
@@ -473,6 +474,34 @@ public void writeToAllStores(MarshalledEntry marshalledEntry, boolean skipShared
       }
    }
 
+   @Override
+   public void writeBatchToAllStores(Iterable<MarshalledEntry> marshalledEntries, boolean skipSharedStores) {
+      storesMutex.readLock().lock();
+      try {
+         for (CacheWriter w : writers) {
+            if (skipSharedStores && configMap.get(w).shared())
+               continue;
+            PersistenceUtil.writeBatch(w, marshalledEntries);
+         }
+      } finally {
+         storesMutex.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void deleteBatchFromAllStores(Iterable<Object> keys, boolean skipSharedStores) {
+      storesMutex.readLock().lock();
+      try {
+         for (CacheWriter w : writers) {
+            if (skipSharedStores && configMap.get(w).shared())
+               continue;
+            PersistenceUtil.deleteBatch(w, keys);
+         }
+      } finally {
+         storesMutex.readLock().unlock();
+      }
+   }
+
    @Override
    public AdvancedCacheLoader getStateTransferProvider() {
       storesMutex.readLock().lock();
@@ -0,0 +1,33 @@
+package org.infinispan.persistence.spi;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.marshall.core.MarshalledEntry;
+
+/**
+ * Optional interface for {@link CacheWriter}s that can persist or remove several entries more efficiently than by
+ * invoking {@link CacheWriter#write(MarshalledEntry)} or {@link CacheWriter#delete(Object)} for each of them, e.g. by
+ * using a single round trip to the external storage.
+ * <p/>
+ * Writers that don't implement this interface are handled by {@link org.infinispan.persistence.PersistenceUtil#writeBatch(CacheWriter,
+ * Iterable)} and {@link org.infinispan.persistence.PersistenceUtil#deleteBatch(CacheWriter, Iterable)}, which write or
+ * delete the entries one by one.
+ *
+ * @since 7.0
+ */
+@ThreadSafe
+public interface BatchCacheWriter {
+
+   /**
+    * Persists all the given entries to the storage.
+    *
+    * @throws PersistenceException in case of an error, e.g. communicating with the external storage
+    */
+   void writeBatch(Iterable<MarshalledEntry> entries);
+
+   /**
+    * Removes all the given keys from the storage, ignoring the keys that are not present.
+    *
+    * @throws PersistenceException in case of an error, e.g. communicating with the external storage
+    */
+   void deleteBatch(Iterable<Object> keys);
+}
@@ -1,5 +1,7 @@
 package org.infinispan.persistence.support;
 
+import org.infinispan.persistence.PersistenceUtil;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.CacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.marshall.core.MarshalledEntry;
@@ -8,7 +10,7 @@
  * @author Mircea Markus
  * @since 6.0
  */
-public abstract class DelegatingCacheWriter implements CacheWriter {
+public abstract class DelegatingCacheWriter implements CacheWriter, BatchCacheWriter {
 
    protected final CacheWriter actual;
    protected InitializationContext ctx;
@@ -48,6 +50,16 @@ public boolean delete(Object key) {
       return actual.delete(key);
    }
 
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> entries) {
+      PersistenceUtil.writeBatch(actual, entries);
+   }
+
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      PersistenceUtil.deleteBatch(actual, keys);
+   }
+
    public CacheWriter undelegate() {
       CacheWriter cl = this;
       do {
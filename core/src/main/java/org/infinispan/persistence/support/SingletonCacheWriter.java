@@ -122,6 +122,18 @@ public boolean delete(Object key) {
       return active && super.delete(key);
    }
 
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> entries) {
+      if (active)
+         super.writeBatch(entries);
+   }
+
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      if (active)
+         super.deleteBatch(keys);
+   }
+
    protected Callable<?> createPushStateTask() {
       return new Callable<Object>() {
          @Override
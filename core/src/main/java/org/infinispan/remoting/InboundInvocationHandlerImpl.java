@@ -39,6 +39,7 @@
 import org.infinispan.util.logging.LogFactory;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sets the cache interceptor chain on an RPCCommand before calling it to perform
@@ -159,7 +160,9 @@ public void run() {
          // Always wait for the first topology (i.e. for the join to finish)
          final int commandTopologyId = Math.max(extractCommandTopologyId(cmd), 0);
 
-         if (!preserveOrder && cmd.canBlock()) {
+         if (!preserveOrder && cmd instanceof MultipleRpcCommand && ((MultipleRpcCommand) cmd).isReturnResponses()) {
+            handleBundle((MultipleRpcCommand) cmd, cr, response);
+         } else if (!preserveOrder && cmd.canBlock()) {
             remoteCommandsExecutor.execute(new BlockingRunnable() {
                @Override
                public boolean isReady() {
@@ -210,7 +213,47 @@ public void run() {
       }
    }
 
-   private int extractCommandTopologyId(CacheRpcCommand cmd) {
+   /**
+    * Executes the commands of a bundle concurrently, each one once the transaction data of its topology has been
+    * received, and replies when all of them are done. The commands were sent by different threads, so a command
+    * waiting for a lock mustn't hold up the others.
+    */
+   private void handleBundle(final MultipleRpcCommand bundle, final ComponentRegistry cr,
+                             final org.jgroups.blocks.Response response) {
+      final StateTransferLock stateTransferLock = cr.getStateTransferLock();
+      final StateTransferManager stm = cr.getStateTransferManager();
+      ReplicableCommand[] commands = bundle.getCommands();
+      final Response[] responses = new Response[commands.length];
+      final AtomicInteger remaining = new AtomicInteger(commands.length);
+      for (int i = 0; i < commands.length; i++) {
+         final int index = i;
+         final int commandTopologyId = Math.max(extractCommandTopologyId(commands[i]), 0);
+         remoteCommandsExecutor.execute(new BlockingRunnable() {
+            @Override
+            public boolean isReady() {
+               return stateTransferLock.transactionDataReceived(commandTopologyId);
+            }
+
+            @Override
+            public void run() {
+               if (0 < commandTopologyId && commandTopologyId < stm.getFirstTopologyAsMember()) {
+                  if (trace) log.tracef("Ignoring bundled command sent before the local node was a member " +
+                        "(command topology id is %d)", commandTopologyId);
+               } else {
+                  responses[index] = bundle.performCommand(index);
+               }
+               // the last command to complete sends the responses of all of them
+               if (remaining.decrementAndGet() == 0) {
+                  Response resp = cr.getResponseGenerator().getResponse(bundle, responses);
+                  reply(response, resp);
+                  afterResponseSent(bundle, resp);
+               }
+            }
+         });
+      }
+   }
+
+   private int extractCommandTopologyId(ReplicableCommand cmd) {
       int commandTopologyId = -1;
       if (cmd instanceof SingleRpcCommand) {
          ReplicableCommand innerCmd = ((SingleRpcCommand) cmd).getCommand();
@@ -7,7 +7,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -17,6 +19,8 @@
 import org.infinispan.commands.TopologyAffectedCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
 import org.infinispan.commons.CacheException;
+import org.infinispan.commons.util.concurrent.FutureListener;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.commons.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.factories.annotations.ComponentName;
@@ -206,24 +210,10 @@ public final void invokeRemotelyInFuture(final Collection<Address> recipients, f
    public void invokeRemotelyInFuture(final Collection<Address> recipients, final ReplicableCommand rpc,
                                       final boolean usePriorityQueue, final NotifyingNotifiableFuture<Object> future,
                                       final long timeout, final boolean ignoreLeavers) {
-      if (trace) log.tracef("%s invoking in future call %s to recipient list %s", t.getAddress(), rpc, recipients);
       final ResponseMode responseMode = ignoreLeavers ? ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS : ResponseMode.SYNCHRONOUS;
-      Callable<Object> c = new Callable<Object>() {
-         @Override
-         public Object call() throws Exception {
-            Object result = null;
-            try {
-               result = invokeRemotely(recipients, rpc, true, usePriorityQueue, timeout, responseMode);
-               future.notifyDone(result);
-               return result;
-            } catch (RuntimeException e) {
-               future.notifyException(e);
-               throw e;
-            }
-         }
-      };
-      // NotifyingNotifiableFuture must be internally synchronized
-      future.setFuture(asyncExecutor.submit(c));
+      RpcOptions options = getRpcOptionsBuilder(responseMode, !usePriorityQueue)
+            .timeout(timeout, TimeUnit.MILLISECONDS).build();
+      invokeRemotelyInFuture(recipients, rpc, options, future);
    }
 
    @Override
@@ -242,19 +232,7 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
       if (!configuration.clustering().cacheMode().isClustered())
          throw new IllegalStateException("Trying to invoke a remote command but the cache is not clustered");
 
-      // Set the topology id of the command, in case we don't have it yet
-      if (rpc instanceof TopologyAffectedCommand) {
-         TopologyAffectedCommand topologyAffectedCommand = (TopologyAffectedCommand) rpc;
-         if (topologyAffectedCommand.getTopologyId() == -1) {
-            int currentTopologyId = stateTransferManager.getCacheTopology().getTopologyId();
-            if (trace) log.tracef("Topology id missing on command %s, setting it to %d", rpc, currentTopologyId);
-            topologyAffectedCommand.setTopologyId(currentTopologyId);
-         }
-      }
-
-      if (!(rpc instanceof CacheRpcCommand)) {
-         rpc = cf.buildSingleRpcCommand(rpc);
-      }
+      rpc = prepareCommand(rpc);
 
       long startTimeNanos = 0;
       if (statisticsEnabled) startTimeNanos = timeService.time();
@@ -299,11 +277,34 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
       }
    }
 
+   /**
+    * Sets the topology id of the command, in case it doesn't have it yet, and wraps it into a {@link CacheRpcCommand}
+    * if needed.
+    */
+   private ReplicableCommand prepareCommand(ReplicableCommand rpc) {
+      if (rpc instanceof TopologyAffectedCommand) {
+         TopologyAffectedCommand topologyAffectedCommand = (TopologyAffectedCommand) rpc;
+         if (topologyAffectedCommand.getTopologyId() == -1) {
+            int currentTopologyId = stateTransferManager.getCacheTopology().getTopologyId();
+            if (trace) log.tracef("Topology id missing on command %s, setting it to %d", rpc, currentTopologyId);
+            topologyAffectedCommand.setTopologyId(currentTopologyId);
+         }
+      }
+
+      if (!(rpc instanceof CacheRpcCommand)) {
+         rpc = cf.buildSingleRpcCommand(rpc);
+      }
+      return rpc;
+   }
+
    @Override
    public void invokeRemotelyInFuture(final Collection<Address> recipients, final ReplicableCommand rpc,
                                       final RpcOptions options, final NotifyingNotifiableFuture<Object> future) {
       if (trace) log.tracef("%s invoking in future call %s to recipient list %s with options %s", t.getAddress(),
                             rpc, recipients, options);
+      if (invokeRemotelyNonBlocking(recipients, rpc, options, future)) {
+         return;
+      }
       Callable<Object> c = new Callable<Object>() {
          @Override
          public Object call() throws Exception {
@@ -321,6 +322,56 @@ public Object call() throws Exception {
       future.setFuture(asyncExecutor.submit(c));
    }
 
+   /**
+    * Invokes the command without parking a thread until the responses are received, if the transport supports it.
+    *
+    * @return false if the transport can't invoke this command without blocking, in which case it hasn't been invoked
+    */
+   @SuppressWarnings("unchecked")
+   private boolean invokeRemotelyNonBlocking(Collection<Address> recipients, ReplicableCommand rpc,
+                                             RpcOptions options, final NotifyingNotifiableFuture<Object> future) {
+      if (!options.skipReplicationQueue() && useReplicationQueue(options.responseMode().isSynchronous())
+            || !configuration.clustering().cacheMode().isClustered()) {
+         return false;
+      }
+
+      rpc = prepareCommand(rpc);
+      final ReplicableCommand command = rpc;
+      final long startTimeNanos = statisticsEnabled ? timeService.time() : 0;
+      NotifyingFuture<Map<Address, Response>> responses = t.invokeRemotelyNonBlocking(recipients, rpc,
+            options.responseMode(), options.timeUnit().toMillis(options.timeout()), !options.fifoOrder(),
+            options.responseFilter(), options.totalOrder(), configuration.clustering().cacheMode().isDistributed());
+      if (responses == null) {
+         return false;
+      }
+
+      future.setFuture((Future<Object>) (Future<?>) responses);
+      responses.attachListener(new FutureListener<Map<Address, Response>>() {
+         @Override
+         public void futureDone(Future<Map<Address, Response>> f) {
+            try {
+               Map<Address, Response> result = f.get();
+               if (statisticsEnabled) replicationCount.incrementAndGet();
+               if (trace) log.tracef("Response(s) to %s is %s", command, result);
+               future.notifyDone(result);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               future.notifyException(e);
+            } catch (ExecutionException e) {
+               log.trace("replication exception: ", e.getCause());
+               if (statisticsEnabled) replicationFailures.incrementAndGet();
+               future.notifyException(e.getCause() instanceof CacheException ? e.getCause() :
+                                            new CacheException(e.getCause()));
+            } finally {
+               if (statisticsEnabled) {
+                  totalReplicationTime.getAndAdd(timeService.timeDuration(startTimeNanos, TimeUnit.MILLISECONDS));
+               }
+            }
+         }
+      });
+      return true;
+   }
+
    @Override
    public Transport getTransport() {
       return t;
@@ -1,6 +1,7 @@
 package org.infinispan.remoting.transport;
 
 import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.rpc.ResponseFilter;
 import org.infinispan.remoting.rpc.ResponseMode;
@@ -31,6 +32,17 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
       return actual.invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter, totalOrder, anycast);
    }
 
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyNonBlocking(Collection<Address> recipients,
+                                                                            ReplicableCommand rpcCommand,
+                                                                            ResponseMode mode, long timeout,
+                                                                            boolean usePriorityQueue,
+                                                                            ResponseFilter responseFilter,
+                                                                            boolean totalOrder, boolean anycast) {
+      // all the calls go through invokeRemotely, so that subclasses can intercept them
+      return null;
+   }
+
    @Override
    public BackupResponse backupRemotely(Collection<XSiteBackup> backups, XSiteReplicateCommand rpcCommand) throws Exception {
       return actual.backupRemotely(backups, rpcCommand);
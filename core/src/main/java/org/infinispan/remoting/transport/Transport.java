@@ -1,6 +1,7 @@
 package org.infinispan.remoting.transport;
 
 import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.factories.scopes.Scope;
@@ -50,6 +51,22 @@ Map<Address, Response> invokeRemotely(Collection<Address> recipients, Replicable
                                  boolean usePriorityQueue, ResponseFilter responseFilter, boolean totalOrder,
                                  boolean anycast) throws Exception;
 
+   /**
+    * Same as {@link #invokeRemotely(java.util.Collection, org.infinispan.commands.ReplicableCommand, ResponseMode,
+    * long, boolean, ResponseFilter, boolean, boolean)}, except that the calling thread doesn't wait for the
+    * responses: the returned future is completed when they are received, by the thread receiving them.
+    * <p/>
+    * Transports may only support this for some invocations, or not at all.
+    *
+    * @return the future responses, or null if the transport can't invoke this call without blocking, in which case
+    *         the call hasn't been invoked
+    */
+   NotifyingFuture<Map<Address, Response>> invokeRemotelyNonBlocking(Collection<Address> recipients,
+                                                                     ReplicableCommand rpcCommand, ResponseMode mode,
+                                                                     long timeout, boolean usePriorityQueue,
+                                                                     ResponseFilter responseFilter, boolean totalOrder,
+                                                                     boolean anycast);
+
 
    BackupResponse backupRemotely(Collection<XSiteBackup> backups, XSiteReplicateCommand rpcCommand) throws Exception;
 
@@ -2,6 +2,7 @@
 
 import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
+import org.infinispan.commands.remote.SingleRpcCommand;
 import org.infinispan.configuration.parsing.XmlConfigHelper;
 import org.infinispan.configuration.global.TransportConfiguration;
 import org.infinispan.factories.GlobalComponentRegistry;
@@ -15,6 +16,7 @@
 import org.infinispan.commons.util.InfinispanCollections;
 import org.infinispan.commons.util.TypedProperties;
 import org.infinispan.commons.util.Util;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
 import org.infinispan.notifications.cachemanagerlistener.CacheManagerNotifier;
 import org.infinispan.remoting.InboundInvocationHandler;
 import org.infinispan.remoting.responses.Response;
@@ -80,6 +82,16 @@
  * <li><tt>channelLookup</tt> - Fully qualified class name of a
  * {@link org.infinispan.remoting.transport.jgroups.JGroupsChannelLookup} instance</li>
  * </ul>
+ * Synchronous commands sent concurrently to the same cache on the same node can also be bundled into a single
+ * message, by setting the following properties:
+ * <ul>
+ * <li><tt>rpcBundling</tt> - whether commands are bundled, false by default</li>
+ * <li><tt>rpcBundlingMaxSize</tt> - the maximum number of commands in a bundle, 64 by default</li>
+ * <li><tt>rpcBundlingMaxInFlight</tt> - the number of bundles sent to the same cache on the same node without
+ * waiting for their responses, after which commands are queued until a bundle completes, 4 by default</li>
+ * </ul>
+ * Bundled commands are executed in order by the recipient, so a command waiting for a lock delays the commands
+ * bundled after it: bundling pays off when many threads send short commands to few nodes.
  * These are normally passed in as Properties in
  * {@link org.infinispan.configuration.global.TransportConfigurationBuilder#withProperties(java.util.Properties)} or
  * in the Infinispan XML configuration file.
@@ -93,6 +105,9 @@ public class JGroupsTransport extends AbstractTransport implements MembershipLis
    public static final String CONFIGURATION_XML = "configurationXml";
    public static final String CONFIGURATION_FILE = "configurationFile";
    public static final String CHANNEL_LOOKUP = "channelLookup";
+   public static final String RPC_BUNDLING = "rpcBundling";
+   public static final String RPC_BUNDLING_MAX_SIZE = "rpcBundlingMaxSize";
+   public static final String RPC_BUNDLING_MAX_IN_FLIGHT = "rpcBundlingMaxInFlight";
    protected static final String DEFAULT_JGROUPS_CONFIGURATION_FILE = "jgroups-udp.xml";
 
    static final Log log = LogFactory.getLog(JGroupsTransport.class);
@@ -100,6 +115,7 @@ public class JGroupsTransport extends AbstractTransport implements MembershipLis
 
    protected boolean connectChannel = true, disconnectChannel = true, closeChannel = true;
    private CommandAwareRpcDispatcher dispatcher;
+   private RpcBundler bundler;
    protected TypedProperties props;
    protected InboundInvocationHandler inboundInvocationHandler;
    protected StreamingMarshaller marshaller;
@@ -256,6 +272,10 @@ public void stop() {
          log.problemClosingChannel(toLog, clusterName);
       }
 
+      if (bundler != null) {
+         bundler.stop();
+      }
+
       if (dispatcher != null) {
          log.stoppingRpcDispatcher(clusterName);
          dispatcher.stop();
@@ -277,6 +297,7 @@ public void stop() {
       coordinator = null;
       isCoordinator = false;
       dispatcher = null;
+      bundler = null;
    }
 
    protected void initChannel() {
@@ -332,6 +353,10 @@ private void initChannelAndRPCDispatcher() throws CacheException {
       dispatcher.setRequestMarshaller(adapter);
       dispatcher.setResponseMarshaller(adapter);
       dispatcher.start();
+      if (props != null && props.getBooleanProperty(RPC_BUNDLING, false)) {
+         bundler = new RpcBundler(dispatcher, this, asyncExecutor, props.getIntProperty(RPC_BUNDLING_MAX_SIZE, 64),
+                                  props.getIntProperty(RPC_BUNDLING_MAX_IN_FLIGHT, 4));
+      }
    }
 
    // This is per CM, so the CL in use should be the CM CL
@@ -477,6 +502,10 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
 
       if (trace)
          log.tracef("dests=%s, command=%s, mode=%s, timeout=%s", recipients, rpcCommand, mode, timeout);
+      org.jgroups.Address bundledRecipient = bundledRecipient(recipients, rpcCommand, mode, responseFilter, totalOrder);
+      if (bundledRecipient != null) {
+         return bundler.invoke(bundledRecipient, (SingleRpcCommand) rpcCommand, timeout).getResponses();
+      }
       Address self = getAddress();
       boolean ignoreLeavers = mode == ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS || mode == ResponseMode.WAIT_FOR_VALID_RESPONSE;
       if (mode.isSynchronous() && recipients != null && !getMembers().containsAll(recipients)) {
@@ -558,6 +587,50 @@ usePriorityQueue, toJGroupsFilter(responseFilter),
       return responses;
    }
 
+   /**
+    * Only synchronous commands that are bundled are invoked without blocking.
+    */
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyNonBlocking(Collection<Address> recipients,
+                                                                            ReplicableCommand rpcCommand,
+                                                                            ResponseMode mode, long timeout,
+                                                                            boolean usePriorityQueue,
+                                                                            ResponseFilter responseFilter,
+                                                                            boolean totalOrder, boolean anycast) {
+      org.jgroups.Address bundledRecipient = bundledRecipient(recipients, rpcCommand, mode, responseFilter, totalOrder);
+      if (bundledRecipient == null) {
+         return null;
+      }
+      if (trace)
+         log.tracef("dests=%s, command=%s, mode=%s, timeout=%s", recipients, rpcCommand, mode, timeout);
+      return bundler.invoke(bundledRecipient, (SingleRpcCommand) rpcCommand, timeout);
+   }
+
+   /**
+    * @return the single recipient of a command that can be bundled, or null if the command isn't bundled
+    */
+   private org.jgroups.Address bundledRecipient(Collection<Address> recipients, ReplicableCommand rpcCommand,
+                                                ResponseMode mode, ResponseFilter responseFilter, boolean totalOrder) {
+      RpcBundler bundler = this.bundler;
+      if (bundler == null || mode != ResponseMode.SYNCHRONOUS || responseFilter != null || totalOrder
+            || !RpcBundler.canBundle(rpcCommand))
+         return null;
+
+      Address self = getAddress();
+      Address recipient = null;
+      for (Address a : recipients == null ? getMembers() : recipients) {
+         if (a.equals(self))
+            continue;
+         if (recipient != null)
+            return null;
+         recipient = a;
+      }
+      // let invokeRemotely deal with the recipients that aren't members
+      if (recipient == null || !getMembers().contains(recipient))
+         return null;
+      return toJGroupsAddress(recipient);
+   }
+
    @Override
    public BackupResponse backupRemotely(Collection<XSiteBackup> backups, XSiteReplicateCommand rpcCommand) throws Exception {
       log.tracef("About to send to backups %s, command %s", backups, rpcCommand);
@@ -0,0 +1,375 @@
+package org.infinispan.remoting.transport.jgroups;
+
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commands.remote.MultipleRpcCommand;
+import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.concurrent.FutureListener;
+import org.infinispan.commons.util.concurrent.NotifyingFuture;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.jgroups.SuspectedException;
+import org.jgroups.blocks.RequestOptions;
+import org.jgroups.blocks.ResponseMode;
+import org.jgroups.util.Buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.infinispan.remoting.transport.jgroups.JGroupsTransport.fromJGroupsAddress;
+
+/**
+ * Coalesces the synchronous commands that concurrent threads send to the same cache on the same node into a single
+ * {@link MultipleRpcCommand}, and hands each command its own response back.
+ * <p/>
+ * There is no timer involved: a command is sent right away if fewer than the maximum number of bundles are in
+ * flight to its destination, otherwise it's queued and sent along with the other queued commands as soon as a
+ * bundle in flight completes. Bundles are only as large as the concurrency of the callers, and don't delay
+ * commands when the load is low.
+ * <p/>
+ * Calls don't block: the commands' futures are completed by the thread delivering the bundle's response. The
+ * recipient executes the commands of a bundle concurrently, so a command waiting for a lock doesn't delay the other
+ * commands of its bundle.
+ *
+ * @since 7.0
+ */
+final class RpcBundler {
+
+   private static final Log log = LogFactory.getLog(RpcBundler.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private final CommandAwareRpcDispatcher dispatcher;
+   private final JGroupsTransport transport;
+   private final ExecutorService asyncExecutor;
+   private final int maxBundleSize;
+   private final int maxBundlesInFlight;
+   private final ConcurrentMap<Destination, BundleQueue> queues = CollectionFactory.makeConcurrentMap();
+
+   RpcBundler(CommandAwareRpcDispatcher dispatcher, JGroupsTransport transport, ExecutorService asyncExecutor,
+              int maxBundleSize, int maxBundlesInFlight) {
+      this.dispatcher = dispatcher;
+      this.transport = transport;
+      this.asyncExecutor = asyncExecutor;
+      this.maxBundleSize = maxBundleSize;
+      this.maxBundlesInFlight = maxBundlesInFlight;
+   }
+
+   /**
+    * Only the commands wrapped in a {@link SingleRpcCommand} are bundled. Transaction boundary and lock control
+    * commands are sent as they are, so they are never bundled and keep their ordering guarantees.
+    *
+    * @return whether the command can be bundled with the other commands sent to the same cache
+    */
+   static boolean canBundle(ReplicableCommand command) {
+      return command instanceof SingleRpcCommand && !CommandAwareRpcDispatcher.isRsvpCommand(command)
+            && !CommandAwareRpcDispatcher.isRsvpCommand(((SingleRpcCommand) command).getCommand());
+   }
+
+   /**
+    * Sends a command, in a bundle if other commands are sent to the same cache on the same node concurrently.
+    *
+    * @return the future response, as returned by {@link JGroupsTransport#invokeRemotely}
+    */
+   BundledCall invoke(org.jgroups.Address destination, SingleRpcCommand command, long timeout) {
+      Destination key = new Destination(destination, command.getCacheName());
+      BundleQueue queue = queues.get(key);
+      if (queue == null) {
+         BundleQueue newQueue = new BundleQueue(key);
+         queue = queues.putIfAbsent(key, newQueue);
+         if (queue == null)
+            queue = newQueue;
+      }
+      BundledCall call = new BundledCall(fromJGroupsAddress(destination), command, timeout);
+      queue.pending.add(call);
+      queue.flush();
+      return call;
+   }
+
+   /**
+    * Fails the calls still queued, once the transport is stopped.
+    */
+   void stop() {
+      for (BundleQueue queue : queues.values()) {
+         BundledCall call;
+         while ((call = queue.pending.poll()) != null) {
+            call.completeExceptionally(new CacheException("The transport has been stopped"));
+         }
+      }
+      queues.clear();
+   }
+
+   private static final class Destination {
+      final org.jgroups.Address address;
+      final String cacheName;
+
+      Destination(org.jgroups.Address address, String cacheName) {
+         this.address = address;
+         this.cacheName = cacheName;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (!(o instanceof Destination)) return false;
+         Destination that = (Destination) o;
+         return address.equals(that.address) && cacheName.equals(that.cacheName);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * address.hashCode() + cacheName.hashCode();
+      }
+
+      @Override
+      public String toString() {
+         return cacheName + "@" + address;
+      }
+   }
+
+   private final class BundleQueue {
+      final Destination destination;
+      final Queue<BundledCall> pending = new ConcurrentLinkedQueue<BundledCall>();
+      final AtomicInteger inFlight = new AtomicInteger();
+
+      BundleQueue(Destination destination) {
+         this.destination = destination;
+      }
+
+      /**
+       * Sends the pending calls, unless the maximum number of bundles are already in flight: a completing bundle then
+       * sends them. Calls are queued before the bundles in flight are counted, and bundles release their slot before
+       * checking the queue, so a call is always picked up by one or the other.
+       */
+      void flush() {
+         while (true) {
+            int bundles = inFlight.get();
+            if (bundles >= maxBundlesInFlight)
+               return;
+            if (!inFlight.compareAndSet(bundles, bundles + 1))
+               continue;
+
+            List<BundledCall> bundle = new ArrayList<BundledCall>();
+            BundledCall call;
+            while (bundle.size() < maxBundleSize && (call = pending.poll()) != null) {
+               bundle.add(call);
+            }
+            if (!bundle.isEmpty()) {
+               send(bundle);
+               return;
+            }
+            inFlight.decrementAndGet();
+            if (pending.isEmpty())
+               return;
+         }
+      }
+
+      private void send(final List<BundledCall> bundle) {
+         long timeout = 0;
+         List<ReplicableCommand> commands = new ArrayList<ReplicableCommand>(bundle.size());
+         for (BundledCall call : bundle) {
+            commands.add(call.command.getCommand());
+            timeout = Math.max(timeout, call.timeout);
+         }
+         try {
+            ReplicableCommand command = bundle.size() == 1 ? bundle.get(0).command :
+                  new MultipleRpcCommand(commands, destination.cacheName, true);
+            if (trace) log.tracef("Sending %d bundled commands to %s", bundle.size(), destination);
+            Buffer buf = CommandAwareRpcDispatcher.marshallCall(dispatcher.getMarshaller(), command);
+            org.jgroups.util.NotifyingFuture<Object> future = dispatcher.sendMessageWithFuture(
+                  CommandAwareRpcDispatcher.constructMessage(buf, destination.address, true, ResponseMode.GET_ALL,
+                                                             false, false),
+                  new RequestOptions(ResponseMode.GET_ALL, timeout));
+            future.setListener(new org.jgroups.util.FutureListener<Object>() {
+               @Override
+               public void futureDone(Future<Object> future) {
+                  bundleDone(bundle, future);
+               }
+            });
+         } catch (Throwable t) {
+            for (BundledCall call : bundle) {
+               call.completeExceptionally(t);
+            }
+            bundleSlotReleased();
+         }
+      }
+
+      private void bundleDone(List<BundledCall> bundle, Future<Object> future) {
+         try {
+            Object response = future.get();
+            if (bundle.size() == 1) {
+               bundle.get(0).complete(response);
+            } else if (response instanceof SuccessfulResponse
+                  && ((SuccessfulResponse) response).getResponseValue() instanceof Response[]) {
+               Response[] responses = (Response[]) ((SuccessfulResponse) response).getResponseValue();
+               for (int i = 0; i < bundle.size(); i++) {
+                  bundle.get(i).complete(responses[i]);
+               }
+            } else {
+               // the bundle as a whole was rejected, e.g. because the cache isn't running on the destination
+               for (BundledCall call : bundle) {
+                  call.complete(response);
+               }
+            }
+         } catch (Throwable t) {
+            Throwable cause = t instanceof ExecutionException && t.getCause() != null ? t.getCause() : t;
+            Exception e;
+            if (cause instanceof SuspectedException) {
+               e = new SuspectException("Node " + destination.address + " was suspected", cause);
+            } else if (cause instanceof org.jgroups.TimeoutException) {
+               e = new TimeoutException("Node " + destination.address + " timed out", cause);
+            } else if (cause instanceof InterruptedException) {
+               Thread.currentThread().interrupt();
+               e = (InterruptedException) cause;
+            } else {
+               e = cause instanceof Exception ? (Exception) cause : new CacheException(cause);
+            }
+            for (BundledCall call : bundle) {
+               call.completeExceptionally(e);
+            }
+         } finally {
+            bundleSlotReleased();
+         }
+      }
+
+      private void bundleSlotReleased() {
+         inFlight.decrementAndGet();
+         if (!pending.isEmpty()) {
+            // don't send from the thread delivering the responses, it could block on flow control
+            asyncExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  flush();
+               }
+            });
+         }
+      }
+   }
+
+   /**
+    * The future response of a command sent in a bundle.
+    */
+   final class BundledCall implements NotifyingFuture<Map<Address, Response>> {
+      final Address destination;
+      final SingleRpcCommand command;
+      final long timeout;
+      private final CountDownLatch done = new CountDownLatch(1);
+      private final List<FutureListener<Map<Address, Response>>> listeners =
+            new CopyOnWriteArrayList<FutureListener<Map<Address, Response>>>();
+      private volatile Map<Address, Response> responses;
+      private volatile Throwable exception;
+
+      BundledCall(Address destination, SingleRpcCommand command, long timeout) {
+         this.destination = destination;
+         this.command = command;
+         this.timeout = timeout;
+      }
+
+      void complete(Object response) {
+         try {
+            transport.checkResponse(response, destination);
+            responses = Collections.singletonMap(destination, (Response) response);
+         } catch (Throwable t) {
+            exception = t;
+         }
+         fireListeners();
+      }
+
+      void completeExceptionally(Throwable t) {
+         exception = t;
+         fireListeners();
+      }
+
+      private synchronized void fireListeners() {
+         if (done.getCount() == 0)
+            return;
+         done.countDown();
+         for (FutureListener<Map<Address, Response>> listener : listeners) {
+            listener.futureDone(this);
+         }
+      }
+
+      @Override
+      public NotifyingFuture<Map<Address, Response>> attachListener(FutureListener<Map<Address, Response>> listener) {
+         synchronized (this) {
+            if (done.getCount() != 0) {
+               listeners.add(listener);
+               return this;
+            }
+         }
+         listener.futureDone(this);
+         return this;
+      }
+
+      /**
+       * Waits for the response, for at most the timeout of the command.
+       */
+      Map<Address, Response> getResponses() throws Exception {
+         if (!done.await(timeout, TimeUnit.MILLISECONDS))
+            throw new TimeoutException("Node " + destination + " timed out");
+         return get0();
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         return false;
+      }
+
+      @Override
+      public boolean isCancelled() {
+         return false;
+      }
+
+      @Override
+      public boolean isDone() {
+         return done.getCount() == 0;
+      }
+
+      @Override
+      public Map<Address, Response> get() throws InterruptedException, ExecutionException {
+         done.await();
+         try {
+            return get0();
+         } catch (Exception e) {
+            throw new ExecutionException(e);
+         }
+      }
+
+      @Override
+      public Map<Address, Response> get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+         if (!done.await(timeout, unit))
+            throw new java.util.concurrent.TimeoutException();
+         try {
+            return get0();
+         } catch (Exception e) {
+            throw new ExecutionException(e);
+         }
+      }
+
+      private Map<Address, Response> get0() throws Exception {
+         Throwable t = exception;
+         if (t == null)
+            return responses;
+         if (t instanceof Exception)
+            throw (Exception) t;
+         throw new CacheException(t);
+      }
+   }
+}
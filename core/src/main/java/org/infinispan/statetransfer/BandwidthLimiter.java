@@ -0,0 +1,62 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.util.TimeService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which a node sends state, for all the outbound transfers of a cache. Bytes are granted at the
+ * configured rate, and up to one second worth of unused bytes can be accumulated, so short pauses of the senders don't
+ * reduce the throughput. A sender asking for more bytes than available is put to sleep until the bytes it asked for
+ * have been granted.
+ *
+ * @since 7.0
+ */
+final class BandwidthLimiter {
+
+   private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+   private final long bytesPerSecond;
+
+   private final TimeService timeService;
+
+   /**
+    * The bytes that can be sent without waiting. This is negative if some senders are waiting.
+    */
+   private long availableBytes;
+
+   private long lastGrantNanos;
+
+   BandwidthLimiter(long bytesPerSecond, TimeService timeService) {
+      if (bytesPerSecond <= 0) {
+         throw new IllegalArgumentException("bytesPerSecond must be greater than 0");
+      }
+      this.bytesPerSecond = bytesPerSecond;
+      this.timeService = timeService;
+      this.availableBytes = bytesPerSecond;
+      this.lastGrantNanos = timeService.time();
+   }
+
+   /**
+    * Blocks until {@code bytes} bytes can be sent without exceeding the rate.
+    */
+   void acquire(long bytes) throws InterruptedException {
+      long waitNanos;
+      synchronized (this) {
+         long now = timeService.time();
+         long elapsedNanos = Math.max(now - lastGrantNanos, 0);
+         // only count the whole bytes granted so far, the remainder is granted with the next call
+         long grantedBytes = (long) (elapsedNanos * (double) bytesPerSecond / NANOS_PER_SECOND);
+         lastGrantNanos += (long) (grantedBytes * (double) NANOS_PER_SECOND / bytesPerSecond);
+         availableBytes = Math.min(availableBytes + grantedBytes, bytesPerSecond) - bytes;
+         waitNanos = availableBytes < 0 ? (long) (-availableBytes * (double) NANOS_PER_SECOND / bytesPerSecond) : 0;
+      }
+      if (waitNanos > 0) {
+         TimeUnit.NANOSECONDS.sleep(waitNanos);
+      }
+   }
+
+   long getBytesPerSecond() {
+      return bytesPerSecond;
+   }
+}
@@ -130,6 +130,14 @@ public final boolean isTracking(Flag trackFlag) {
       return false;
    }
 
+   /**
+    * @return {@code true} if the key was committed, by a normal operation or by a state transfer, since the tracking
+    *         started, {@code false} otherwise.
+    */
+   public final boolean isTracked(Object key) {
+      return tracker.containsKey(key);
+   }
+
    /**
     * @return {@code true} if no keys are tracked, {@code false} otherwise.
     */
@@ -0,0 +1,78 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.commons.marshall.BufferSizePredictor;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.marshall.core.MarshalledValue;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * Estimates the number of bytes a cache entry takes once marshalled, without marshalling every entry. The size of
+ * byte arrays, strings and marshalled values is known, while the size of the other objects is predicted per type by
+ * the marshaller, the prediction being corrected by actually marshalling one object every {@link #SAMPLING_INTERVAL}
+ * objects. An instance is meant to be used by a single thread.
+ *
+ * @since 7.0
+ */
+final class EntrySizeEstimator {
+
+   private static final Log log = LogFactory.getLog(EntrySizeEstimator.class);
+
+   /**
+    * An approximation of the bytes taken by the metadata and the headers of each entry.
+    */
+   static final int ENTRY_OVERHEAD = 32;
+
+   static final int SAMPLING_INTERVAL = 64;
+
+   private static final int DEFAULT_OBJECT_SIZE = 512;
+
+   private final StreamingMarshaller marshaller;
+
+   private int objectCount;
+
+   /**
+    * @param marshaller the marshaller predicting the size of the objects, or null if they are assumed to take {@link
+    *                   #DEFAULT_OBJECT_SIZE} bytes
+    */
+   EntrySizeEstimator(StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
+   long estimateSize(InternalCacheEntry entry) {
+      return ENTRY_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+   }
+
+   private long estimateSize(Object o) {
+      if (o == null) {
+         return 1;
+      }
+      if (o instanceof byte[]) {
+         return ((byte[]) o).length;
+      }
+      if (o instanceof String) {
+         return ((String) o).length();
+      }
+      if (o instanceof MarshalledValue) {
+         return ((MarshalledValue) o).getRaw().size();
+      }
+      if (marshaller == null) {
+         return DEFAULT_OBJECT_SIZE;
+      }
+
+      BufferSizePredictor predictor = marshaller.getBufferSizePredictor(o);
+      if (objectCount++ % SAMPLING_INTERVAL == 0) {
+         try {
+            int size = marshaller.objectToBuffer(o).getLength();
+            predictor.recordSize(size);
+            return size;
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         } catch (Exception e) {
+            log.tracef(e, "Could not marshall %s to estimate its size", o);
+         }
+      }
+      return predictor.nextSize(o);
+   }
+}
@@ -6,6 +6,7 @@
 import org.infinispan.commons.util.InfinispanCollections;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.persistence.CollectionKeyFilter;
@@ -18,20 +19,33 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.jgroups.SuspectException;
 import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Outbound state transfer task. Pushes data segments to another cluster member on request. Instances of
  * OutboundTransferTask are created and managed by StateTransferManagerImpl. There should be at most
  * one such task per destination at any time.
+ * <p/>
+ * The entries are sent in chunks bounded both by a number of entries and by an estimated number of bytes. Up to
+ * {@code maxInFlightChunks} chunks can be sent before the destination acknowledges having applied them, each
+ * acknowledgement allowing one more chunk to be sent, and the rate of all the outbound transfers can be limited by a
+ * {@link BandwidthLimiter}. The chunks are sent by the executor running the task; when the window is full, the task
+ * waits for the oldest chunk, sending it itself if no thread of the executor picked it up yet, so the transfers never
+ * starve each other of threads.
+ * <p/>
+ * If the destination sent the digests of the segments it already holds, the task first digests its own entries of
+ * these segments and only sends the entries of the buckets whose digests differ, see {@link SegmentDigester}.
  *
  * @author anistor@redhat.com
  * @since 5.2
@@ -82,10 +96,73 @@ public class OutboundTransferTask implements Runnable {
 
    private InternalEntryFactory entryFactory;
 
+   private final long stateTransferChunkSizeBytes;
+
+   /**
+    * The estimated size of the entries accumulated in entriesBySegment.
+    */
+   private long accumulatedBytes;
+
+   private final int maxInFlightChunks;
+
+   /**
+    * The chunks sent and not acknowledged yet, oldest first. Only accessed by the thread running the task.
+    */
+   private final Deque<FutureTask<Void>> inFlightChunks = new ArrayDeque<FutureTask<Void>>();
+
+   private final BandwidthLimiter bandwidthLimiter;
+
+   /**
+    * The executor running this task, also used to send the chunks when more than one chunk can be in flight.
+    */
+   private ExecutorService executorService;
+
+   private final EntrySizeEstimator sizeEstimator;
+
+   private final TimeService timeService;
+
+   private final Map<Integer, SegmentProgress> progressBySegment = CollectionFactory.makeConcurrentMap();
+
+   private volatile long startTime;
+
+   private volatile long bytesSent;
+
+   /**
+    * The digests of the buckets of each segment computed by the destination, or null if all the entries are sent.
+    */
+   private final Map<Integer, long[]> destinationDigests;
+
+   /**
+    * Digests the entries of the segments sent as a delta, or null if all the entries are sent.
+    */
+   private final SegmentDigester digester;
+
+   /**
+    * The buckets whose entries are sent, for each segment sent as a delta. Only accessed by the thread running the task.
+    */
+   private final Map<Integer, BitSet> bucketsBySegment = new HashMap<Integer, BitSet>();
+
+   /**
+    * The number of entries not sent because the destination already holds them.
+    */
+   private long entriesSkipped;
+
+   /**
+    * @param stateTransferChunkSizeBytes the estimated size of the entries sent in a chunk, Long.MAX_VALUE if it is
+    *                                    not limited
+    * @param maxInFlightChunks           the number of chunks that can be sent without waiting for them to be applied
+    * @param bandwidthLimiter            limits the rate of all the outbound transfers, or null if it is not limited
+    * @param destinationDigests          the digests of the segments computed by the destination, or null to send all
+    *                                    the entries
+    * @param digester                    digests the local entries of the segments, null if destinationDigests is null
+    */
    public OutboundTransferTask(Address destination, Set<Integer> segments, int stateTransferChunkSize,
                                int topologyId, ConsistentHash readCh, StateProviderImpl stateProvider, DataContainer dataContainer,
                                PersistenceManager persistenceManager, RpcManager rpcManager,
-                               CommandsFactory commandsFactory, InternalEntryFactory ef, long timeout, String cacheName) {
+                               CommandsFactory commandsFactory, InternalEntryFactory ef, long timeout, String cacheName,
+                               long stateTransferChunkSizeBytes, int maxInFlightChunks, BandwidthLimiter bandwidthLimiter,
+                               EntrySizeEstimator sizeEstimator, TimeService timeService,
+                               Map<Integer, long[]> destinationDigests, SegmentDigester digester) {
       if (segments == null || segments.isEmpty()) {
          throw new IllegalArgumentException("Segments must not be null or empty");
       }
@@ -95,6 +172,15 @@ public OutboundTransferTask(Address destination, Set<Integer> segments, int stat
       if (stateTransferChunkSize <= 0) {
          throw new IllegalArgumentException("stateTransferChunkSize must be greater than 0");
       }
+      if (stateTransferChunkSizeBytes <= 0) {
+         throw new IllegalArgumentException("stateTransferChunkSizeBytes must be greater than 0");
+      }
+      if (maxInFlightChunks <= 0) {
+         throw new IllegalArgumentException("maxInFlightChunks must be greater than 0");
+      }
+      if (destinationDigests != null && digester == null) {
+         throw new IllegalArgumentException("A digester is required to send the differences with the destination digests");
+      }
       this.stateProvider = stateProvider;
       this.destination = destination;
       this.segments.addAll(segments);
@@ -108,6 +194,16 @@ public OutboundTransferTask(Address destination, Set<Integer> segments, int stat
       this.commandsFactory = commandsFactory;
       this.timeout = timeout;
       this.cacheName = cacheName;
+      this.stateTransferChunkSizeBytes = stateTransferChunkSizeBytes;
+      this.maxInFlightChunks = maxInFlightChunks;
+      this.bandwidthLimiter = bandwidthLimiter;
+      this.sizeEstimator = sizeEstimator;
+      this.timeService = timeService;
+      this.destinationDigests = destinationDigests;
+      this.digester = digester;
+      for (int segmentId : segments) {
+         progressBySegment.put(segmentId, new SegmentProgress());
+      }
       //the rpc options does not change in runtime. re-use the same instance
       this.rpcOptions = rpcManager.getRpcOptionsBuilder(ResponseMode.SYNCHRONOUS)
             .timeout(timeout, TimeUnit.MILLISECONDS).build();
@@ -117,6 +213,7 @@ public void execute(ExecutorService executorService) {
       if (runnableFuture != null) {
          throw new IllegalStateException("This task was already submitted");
       }
+      this.executorService = executorService;
       runnableFuture = new FutureTask<Void>(this, null) {
          @Override
          protected void done() {
@@ -136,13 +233,33 @@ public Set<Integer> getSegments() {
 
    //todo [anistor] check thread interrupt status in loops to implement faster cancellation
    public void run() {
+      startTime = timeService.time();
       try {
+         if (destinationDigests != null) {
+            findBucketsToSend();
+         }
+
          // send data container entries
-         for (InternalCacheEntry ice : dataContainer) {
-            Object key = ice.getKey();  //todo [anistor] should we check for expired entries?
-            int segmentId = readCh.getSegment(key);
-            if (segments.contains(segmentId)) {
-               sendEntry(ice, segmentId);
+         if (dataContainer instanceof SegmentedDataContainer) {
+            // only the entries of the requested segments need to be visited
+            SegmentedDataContainer<Object, Object> segmentedContainer = (SegmentedDataContainer<Object, Object>) dataContainer;
+            for (int segmentId : segments) {
+               if (trace) {
+                  log.tracef("Sending the %d entries of segment %d of cache %s to node %s", segmentedContainer.size(segmentId), segmentId, cacheName, destination);
+               }
+               Iterator<InternalCacheEntry<Object, Object>> it = segmentedContainer.iterator(segmentId);
+               // stop if the segment gets cancelled meanwhile
+               while (it.hasNext() && segments.contains(segmentId)) {
+                  sendEntry(it.next(), segmentId);
+               }
+            }
+         } else {
+            for (InternalCacheEntry ice : dataContainer) {
+               Object key = ice.getKey();  //todo [anistor] should we check for expired entries?
+               int segmentId = readCh.getSegment(key);
+               if (segments.contains(segmentId)) {
+                  sendEntry(ice, segmentId);
+               }
             }
          }
 
@@ -172,22 +289,56 @@ public void processEntry(MarshalledEntry me, AdvancedCacheLoader.TaskContext tas
 
          // send the last chunk of all segments
          sendEntries(true);
+         if (entriesSkipped > 0) {
+            stateProvider.onEntriesSkipped(entriesSkipped);
+         }
       } catch (Throwable t) {
          // ignore eventual exceptions caused by cancellation (have InterruptedException as the root cause)
          if (!runnableFuture.isCancelled()) {
             log.failedOutBoundTransferExecution(t);
          }
       }
+      // don't send the chunks still queued if the transfer failed or was cancelled
+      for (FutureTask<Void> chunk : inFlightChunks) {
+         chunk.cancel(false);
+      }
+      inFlightChunks.clear();
       if (trace) {
          log.tracef("Outbound transfer of segments %s of cache %s to node %s is complete", segments, cacheName, destination);
       }
    }
 
-   private void sendEntry(InternalCacheEntry ice, int segmentId) {
+   /**
+    * Digests the local entries of the segments the destination sent digests for, and keeps the buckets that differ.
+    */
+   private void findBucketsToSend() {
+      digester.addAll(dataContainer, persistenceManager.getStateTransferProvider(), timeService.wallClockTime());
+      for (int segmentId : segments) {
+         long[] segmentDigests = destinationDigests.get(segmentId);
+         if (segmentDigests != null) {
+            BitSet buckets = digester.differingBuckets(segmentId, segmentDigests);
+            bucketsBySegment.put(segmentId, buckets);
+            if (trace) {
+               log.tracef("%d of the %d buckets of segment %d of cache %s differ on node %s", buckets.cardinality(),
+                          SegmentDigester.BUCKETS_PER_SEGMENT, segmentId, cacheName, destination);
+            }
+         }
+      }
+   }
+
+   private void sendEntry(InternalCacheEntry ice, int segmentId) throws InterruptedException {
+      BitSet buckets = bucketsBySegment.get(segmentId);
+      if (buckets != null && !buckets.get(digester.bucket(ice.getKey()))) {
+         // the destination already holds the same entries for this bucket
+         entriesSkipped++;
+         return;
+      }
+
       // send if we have a full chunk
-      if (accumulatedEntries >= stateTransferChunkSize) {
+      if (accumulatedEntries >= stateTransferChunkSize || accumulatedBytes >= stateTransferChunkSizeBytes) {
          sendEntries(false);
          accumulatedEntries = 0;
+         accumulatedBytes = 0;
       }
 
       List<InternalCacheEntry> entries = entriesBySegment.get(segmentId);
@@ -197,14 +348,28 @@ private void sendEntry(InternalCacheEntry ice, int segmentId) {
       }
       entries.add(ice);
       accumulatedEntries++;
+
+      long size = sizeEstimator.estimateSize(ice);
+      accumulatedBytes += size;
+      SegmentProgress progress = progressBySegment.get(segmentId);
+      if (progress != null) {
+         progress.pendingBytes += size;
+      }
    }
 
-   private void sendEntries(boolean isLast) {
+   private void sendEntries(boolean isLast) throws InterruptedException {
       List<StateChunk> chunks = new ArrayList<StateChunk>();
+      int chunkEntries = 0;
       for (Map.Entry<Integer, List<InternalCacheEntry>> e : entriesBySegment.entrySet()) {
          List<InternalCacheEntry> entries = e.getValue();
          if (!entries.isEmpty() || isLast) {
-            chunks.add(new StateChunk(e.getKey(), new ArrayList<InternalCacheEntry>(entries), isLast));
+            chunks.add(new StateChunk(e.getKey(), new ArrayList<InternalCacheEntry>(entries), isLast,
+                                      isLast ? bucketsBySegment.get(e.getKey()) : null));
+            chunkEntries += entries.size();
+            SegmentProgress progress = progressBySegment.get(e.getKey());
+            if (progress != null) {
+               progress.onSent(entries.size(), isLast);
+            }
             entries.clear();
          }
       }
@@ -213,7 +378,12 @@ private void sendEntries(boolean isLast) {
          for (int segmentId : segments) {
             List<InternalCacheEntry> entries = entriesBySegment.get(segmentId);
             if (entries == null) {
-               chunks.add(new StateChunk(segmentId, InfinispanCollections.<InternalCacheEntry>emptyList(), true));
+               chunks.add(new StateChunk(segmentId, InfinispanCollections.<InternalCacheEntry>emptyList(), true,
+                                         bucketsBySegment.get(segmentId)));
+               SegmentProgress progress = progressBySegment.get(segmentId);
+               if (progress != null) {
+                  progress.onSent(0, true);
+               }
             }
          }
       }
@@ -227,19 +397,92 @@ private void sendEntries(boolean isLast) {
             }
          }
 
-         StateResponseCommand cmd = commandsFactory.buildStateResponseCommand(rpcManager.getAddress(), topologyId, chunks);
-         // send synchronously, in order. it is important that the last chunk is received last in order to correctly detect completion of the stream of chunks
-         try {
-            rpcManager.invokeRemotely(Collections.singleton(destination), cmd, rpcOptions);
-         } catch (SuspectException e) {
-            log.errorf(e, "Node %s left cache %s: %s", destination, cacheName, e.getMessage());
-            cancel();
-         } catch (Exception e) {
-            log.errorf(e, "Failed to send entries to node %s : %s", destination, e.getMessage());
+         if (bandwidthLimiter != null) {
+            bandwidthLimiter.acquire(accumulatedBytes);
+         }
+         stateProvider.onChunkSent(chunkEntries, accumulatedBytes);
+         bytesSent += accumulatedBytes;
+
+         final StateResponseCommand cmd = commandsFactory.buildStateResponseCommand(rpcManager.getAddress(), topologyId, chunks);
+         if (maxInFlightChunks == 1) {
+            // send synchronously, in order. it is important that the last chunk is received last in order to correctly detect completion of the stream of chunks
+            invokeStateResponse(cmd);
+         } else if (isLast) {
+            // the last chunk must be received last, wait until all the previous chunks have been applied
+            while (!inFlightChunks.isEmpty()) {
+               awaitChunk(inFlightChunks.poll());
+            }
+            invokeStateResponse(cmd);
+         } else {
+            // the chunks before the last one can be applied in any order, they hold different keys
+            if (inFlightChunks.size() == maxInFlightChunks) {
+               awaitChunk(inFlightChunks.poll());
+            }
+            FutureTask<Void> chunk = new FutureTask<Void>(new Runnable() {
+               @Override
+               public void run() {
+                  invokeStateResponse(cmd);
+               }
+            }, null);
+            inFlightChunks.add(chunk);
+            try {
+               executorService.execute(chunk);
+            } catch (RejectedExecutionException e) {
+               chunk.run();
+            }
          }
       }
    }
 
+   /**
+    * Waits until the destination acknowledged the chunk. The chunk is sent by the current thread if no thread of the
+    * executor started sending it yet, otherwise running it again has no effect.
+    */
+   private void awaitChunk(FutureTask<Void> chunk) throws InterruptedException {
+      chunk.run();
+      try {
+         chunk.get();
+      } catch (ExecutionException e) {
+         // invokeStateResponse already logs the failures
+         log.tracef(e.getCause(), "Failed to send a chunk of cache %s to node %s", cacheName, destination);
+      }
+   }
+
+   private void invokeStateResponse(StateResponseCommand cmd) {
+      try {
+         rpcManager.invokeRemotely(Collections.singleton(destination), cmd, rpcOptions);
+      } catch (SuspectException e) {
+         log.errorf(e, "Node %s left cache %s: %s", destination, cacheName, e.getMessage());
+         cancel();
+      } catch (Exception e) {
+         log.errorf(e, "Failed to send entries to node %s : %s", destination, e.getMessage());
+      }
+   }
+
+   /**
+    * @return the estimated number of bytes sent per second since the task started
+    */
+   long getThroughput() {
+      long start = startTime;
+      if (start == 0) {
+         return 0;
+      }
+      long elapsedMillis = timeService.timeDuration(start, TimeUnit.MILLISECONDS);
+      return elapsedMillis > 0 ? bytesSent * 1000 / elapsedMillis : 0;
+   }
+
+   void appendProgress(StringBuilder sb) {
+      sb.append("Transfer to ").append(destination).append(" (topology ").append(topologyId).append(", ")
+            .append(getThroughput()).append(" bytes/s):\n");
+      for (Map.Entry<Integer, SegmentProgress> e : new TreeMap<Integer, SegmentProgress>(progressBySegment).entrySet()) {
+         SegmentProgress progress = e.getValue();
+         sb.append("  segment ").append(e.getKey()).append(": ").append(progress.entriesSent).append(" entries, ")
+               .append(progress.bytesSent).append(" bytes sent, ")
+               .append(progress.completed ? "completed" : segments.contains(e.getKey()) ? "in progress" : "cancelled")
+               .append('\n');
+      }
+   }
+
    /**
     * Cancel some of the segments. If all segments get cancelled then the whole task will be cancelled.
     *
@@ -277,8 +520,37 @@ public String toString() {
             ", destination=" + destination +
             ", segments=" + segments +
             ", stateTransferChunkSize=" + stateTransferChunkSize +
+            ", stateTransferChunkSizeBytes=" + stateTransferChunkSizeBytes +
+            ", maxInFlightChunks=" + maxInFlightChunks +
+            ", delta=" + (destinationDigests != null) +
             ", timeout=" + timeout +
             ", cacheName='" + cacheName + '\'' +
             '}';
    }
+
+   /**
+    * The entries and bytes of a segment sent so far. Only updated by the thread running the task.
+    */
+   private static final class SegmentProgress {
+
+      /**
+       * The estimated size of the entries of the segment waiting to be sent.
+       */
+      long pendingBytes;
+
+      volatile long entriesSent;
+
+      volatile long bytesSent;
+
+      volatile boolean completed;
+
+      void onSent(int entries, boolean isLast) {
+         entriesSent += entries;
+         bytesSent += pendingBytes;
+         pendingBytes = 0;
+         if (isLast) {
+            completed = true;
+         }
+      }
+   }
 }
@@ -0,0 +1,222 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.persistence.CollectionKeyFilter;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
+import org.infinispan.util.concurrent.WithinThreadExecutor;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes a digest of the entries of a set of segments, so that two nodes can find out which parts of these segments
+ * differ without exchanging the entries themselves.
+ * <p/>
+ * The keys of each segment are spread over {@link #BUCKETS_PER_SEGMENT} buckets, and the digest of a bucket is the sum
+ * of the hashes of its entries. The digest of a bucket therefore doesn't depend on the order in which its entries are
+ * visited, and two nodes holding the same entries compute the same digests, provided the hash codes of the keys, as
+ * defined by the configured equivalence, are consistent across nodes.
+ * <p/>
+ * The hash of an entry covers its key, its lifespan and either its version, which is unique to each write of a key,
+ * or, if the entry isn't versioned, the marshalled form of its value. The hash code of the value is not enough: many
+ * values don't override {@link Object#hashCode()}, and two different values may have the same hash code. A segment
+ * holding a value that can't be marshalled can't be digested, and all its buckets are considered different, so the
+ * whole segment is transferred.
+ *
+ * @since 7.0
+ */
+final class SegmentDigester {
+
+   private static final Log log = LogFactory.getLog(SegmentDigester.class);
+
+   static final int BUCKETS_PER_SEGMENT = 1024;
+
+   /**
+    * The digests of a segment that couldn't be digested, matching no other digests.
+    */
+   private static final long[] UNDIGESTED = new long[0];
+
+   private final ConsistentHash ch;
+
+   private final Equivalence<Object> keyEquivalence;
+
+   private final StreamingMarshaller marshaller;
+
+   private final Map<Integer, long[]> digests = new HashMap<Integer, long[]>();
+
+   private int entryCount;
+
+   /**
+    * @param marshaller the marshaller of the values of the entries that aren't versioned, or null if only versioned
+    *                   entries can be digested
+    */
+   SegmentDigester(ConsistentHash ch, Set<Integer> segments, Equivalence<Object> keyEquivalence,
+                   StreamingMarshaller marshaller) {
+      this.ch = ch;
+      this.keyEquivalence = keyEquivalence;
+      this.marshaller = marshaller;
+      for (int segmentId : segments) {
+         digests.put(segmentId, new long[BUCKETS_PER_SEGMENT]);
+      }
+   }
+
+   /**
+    * Adds the entries of the data container, and those of the cache store that are not in the data container. Expired
+    * entries are ignored.
+    *
+    * @param stProvider the cache store holding the state of the node, or null if there is none
+    */
+   void addAll(DataContainer<Object, Object> dataContainer, AdvancedCacheLoader stProvider, final long now) {
+      if (dataContainer instanceof SegmentedDataContainer) {
+         // only the entries of the digested segments need to be visited
+         SegmentedDataContainer<Object, Object> segmentedContainer = (SegmentedDataContainer<Object, Object>) dataContainer;
+         for (int segmentId : digests.keySet()) {
+            for (Iterator<InternalCacheEntry<Object, Object>> it = segmentedContainer.iterator(segmentId); it.hasNext(); ) {
+               addIfNotExpired(it.next(), now);
+            }
+         }
+      } else {
+         for (InternalCacheEntry ice : dataContainer) {
+            addIfNotExpired(ice, now);
+         }
+      }
+      if (stProvider != null) {
+         try {
+            CollectionKeyFilter filter = new CollectionKeyFilter(new ReadOnlyDataContainerBackedKeySet(dataContainer));
+            stProvider.process(filter, new AdvancedCacheLoader.CacheLoaderTask() {
+               @Override
+               public void processEntry(MarshalledEntry me, AdvancedCacheLoader.TaskContext taskContext) {
+                  if (me.getMetadata() == null || !me.getMetadata().isExpired(now)) {
+                     add(me.getKey(), me.getValue(), me.getMetadata());
+                  }
+               }
+            }, new WithinThreadExecutor(), true, true);
+         } catch (CacheException e) {
+            log.failedLoadingKeysFromCacheStore(e);
+         }
+      }
+   }
+
+   private void addIfNotExpired(InternalCacheEntry ice, long now) {
+      if (!ice.isExpired(now)) {
+         add(ice.getKey(), ice.getValue(), ice.getMetadata());
+      }
+   }
+
+   void add(Object key, Object value, Metadata metadata) {
+      int segmentId = ch.getSegment(key);
+      long[] segmentDigests = digests.get(segmentId);
+      if (segmentDigests != null && segmentDigests != UNDIGESTED) {
+         try {
+            segmentDigests[bucket(keyEquivalence, key)] += entryHash(key, value, metadata);
+            entryCount++;
+         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+               Thread.currentThread().interrupt();
+            }
+            log.debugf(e, "Cannot digest the value of key %s, segment %d will be transferred whole", key, segmentId);
+            digests.put(segmentId, UNDIGESTED);
+         }
+      }
+   }
+
+   /**
+    * @return the digests of the buckets of each segment, empty for the segments that couldn't be digested
+    */
+   Map<Integer, long[]> getDigests() {
+      return digests;
+   }
+
+   /**
+    * @return the number of entries added to the digests
+    */
+   int getEntryCount() {
+      return entryCount;
+   }
+
+   /**
+    * @return the buckets of the segment whose digests differ from {@code otherDigests}, or all of them if
+    *         {@code otherDigests} is null
+    */
+   BitSet differingBuckets(int segmentId, long[] otherDigests) {
+      BitSet buckets = new BitSet(BUCKETS_PER_SEGMENT);
+      long[] segmentDigests = digests.get(segmentId);
+      if (otherDigests == null || segmentDigests == null || otherDigests.length != BUCKETS_PER_SEGMENT
+            || segmentDigests.length != BUCKETS_PER_SEGMENT) {
+         buckets.set(0, BUCKETS_PER_SEGMENT);
+      } else {
+         for (int i = 0; i < BUCKETS_PER_SEGMENT; i++) {
+            if (segmentDigests[i] != otherDigests[i]) {
+               buckets.set(i);
+            }
+         }
+      }
+      return buckets;
+   }
+
+   /**
+    * @return the bucket of the key, within its segment
+    */
+   int bucket(Object key) {
+      return bucket(keyEquivalence, key);
+   }
+
+   /**
+    * @return the bucket of the key, within its segment
+    */
+   static int bucket(Equivalence<Object> keyEquivalence, Object key) {
+      return (int) (mix(keyEquivalence.hashCode(key)) >>> 32) & (BUCKETS_PER_SEGMENT - 1);
+   }
+
+   private long entryHash(Object key, Object value, Metadata metadata) throws Exception {
+      long hash = mix(keyEquivalence.hashCode(key));
+      EntryVersion version = metadata != null ? metadata.version() : null;
+      if (version != null) {
+         hash = mix(hash ^ version.hashCode());
+      } else {
+         hash = mix(hash ^ valueHash(value));
+      }
+      if (metadata != null) {
+         hash = mix(hash ^ metadata.lifespan());
+      }
+      return hash;
+   }
+
+   private long valueHash(Object value) throws Exception {
+      if (value == null) {
+         return 0;
+      }
+      if (marshaller == null) {
+         throw new CacheException("No marshaller to digest values that aren't versioned");
+      }
+      return MurmurHash3.MurmurHash3_x64_64(marshaller.objectToByteBuffer(value), 9001);
+   }
+
+   /**
+    * The finalization mix of MurmurHash3, spreading the bits of the input over the whole hash.
+    */
+   private static long mix(long k) {
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+   }
+}
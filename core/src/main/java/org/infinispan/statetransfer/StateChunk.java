@@ -7,6 +7,7 @@
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
@@ -35,10 +36,22 @@ public class StateChunk {
     */
    private final boolean isLastChunk;
 
+   /**
+    * Only set on the last chunk of a segment transferred as a delta: the buckets of the segment whose entries were all
+    * sent, the other buckets being already identical on the receiver. Null if the whole segment was sent.
+    */
+   private final BitSet transferredBuckets;
+
    public StateChunk(int segmentId, Collection<InternalCacheEntry> cacheEntries, boolean isLastChunk) {
+      this(segmentId, cacheEntries, isLastChunk, null);
+   }
+
+   public StateChunk(int segmentId, Collection<InternalCacheEntry> cacheEntries, boolean isLastChunk,
+                     BitSet transferredBuckets) {
       this.segmentId = segmentId;
       this.cacheEntries = cacheEntries;
       this.isLastChunk = isLastChunk;
+      this.transferredBuckets = transferredBuckets;
    }
 
    public int getSegmentId() {
@@ -53,12 +66,17 @@ public boolean isLastChunk() {
       return isLastChunk;
    }
 
+   public BitSet getTransferredBuckets() {
+      return transferredBuckets;
+   }
+
    @Override
    public String toString() {
       return "StateChunk{" +
             "segmentId=" + segmentId +
             ", cacheEntries=" + cacheEntries +
             ", isLastChunk=" + isLastChunk +
+            ", transferredBuckets=" + transferredBuckets +
             '}';
    }
 
@@ -79,6 +97,7 @@ public void writeObject(ObjectOutput output, StateChunk object) throws IOExcepti
          output.writeInt(object.segmentId);
          output.writeObject(object.cacheEntries);
          output.writeBoolean(object.isLastChunk);
+         output.writeObject(object.transferredBuckets);
       }
 
       @Override
@@ -87,7 +106,8 @@ public StateChunk readObject(ObjectInput input) throws IOException, ClassNotFoun
          int segmentId = input.readInt();
          Collection<InternalCacheEntry> cacheEntries = (Collection<InternalCacheEntry>) input.readObject();
          boolean isLastChunk = input.readBoolean();
-         return new StateChunk(segmentId, cacheEntries, isLastChunk);
+         BitSet transferredBuckets = (BitSet) input.readObject();
+         return new StateChunk(segmentId, cacheEntries, isLastChunk, transferredBuckets);
       }
    }
 }
@@ -7,9 +7,12 @@
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commons.CacheException;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.marshall.StreamingMarshaller;
 import org.infinispan.commons.util.InfinispanCollections;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -43,8 +46,10 @@
 import org.infinispan.transaction.xa.CacheTransaction;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.concurrent.BlockingTaskAwareExecutorService;
 import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -59,6 +64,7 @@
 
 import static org.infinispan.context.Flag.*;
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * {@link StateConsumer} implementation.
@@ -95,6 +101,9 @@ public class StateConsumerImpl implements StateConsumer {
    private boolean isInvalidationMode;
    private boolean isTotalOrder;
    private boolean isL1OnRehash;
+   private boolean isDeltaTransfer;
+   private TimeService timeService;
+   private StreamingMarshaller marshaller;
    private volatile KeyInvalidationListener keyInvalidationListener; //for test purpose only!
    private CommitManager commitManager;
 
@@ -200,6 +209,17 @@ public void init(Cache cache,
       isL1OnRehash = configuration.clustering().l1().onRehash();
 
       timeout = configuration.clustering().stateTransfer().timeout();
+      isDeltaTransfer = configuration.clustering().stateTransfer().deltaTransfer();
+   }
+
+   @Inject
+   public void injectTimeService(TimeService timeService) {
+      this.timeService = timeService;
+   }
+
+   @Inject
+   public void injectMarshaller(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
    }
 
    public boolean hasActiveTransfers() {
@@ -444,6 +464,10 @@ public void applyState(Address sender, int topologyId, Collection<StateChunk> st
             if (stateChunk.getCacheEntries() != null) {
                doApplyState(sender, stateChunk.getSegmentId(), stateChunk.getCacheEntries());
             }
+            if (stateChunk.isLastChunk() && stateChunk.getTransferredBuckets() != null) {
+               // all the entries of the segment we didn't have were received
+               removeStaleEntries(stateChunk.getSegmentId(), stateChunk.getTransferredBuckets());
+            }
 
             inboundTransfer.onStateReceived(stateChunk.getSegmentId(), stateChunk.isLastChunk());
          } else {
@@ -514,6 +538,89 @@ private void doApplyState(Address sender, int segmentId, Collection<InternalCach
       log.debugf("Finished applying state for segment %d of cache %s", segmentId, cacheName);
    }
 
+   /**
+    * Digests the entries this node already holds for the given segments, so that the source only sends the entries
+    * that differ.
+    *
+    * @return the digests of the buckets of each segment, or null if the source must send all the entries
+    */
+   Map<Integer, long[]> digestSegments(Set<Integer> segments) {
+      if (!isDeltaTransfer) {
+         return null;
+      }
+      SegmentDigester digester = new SegmentDigester(cacheTopology.getWriteConsistentHash(), segments,
+            configuration.dataContainer().keyEquivalence(), marshaller);
+      digester.addAll(dataContainer, persistenceManager.getStateTransferProvider(), timeService.wallClockTime());
+      if (trace) {
+         log.tracef("Digested %d entries of segments %s of cache %s", digester.getEntryCount(), segments, cacheName);
+      }
+      return digester.getEntryCount() > 0 ? digester.getDigests() : null;
+   }
+
+   /**
+    * Removes the entries of the given buckets of a segment received as a delta that were not received, because they no
+    * longer exist on the source. The entries received or written since the rebalance started are kept.
+    */
+   private void removeStaleEntries(final int segmentId, final BitSet transferredBuckets) {
+      if (!commitManager.isTracking(PUT_FOR_STATE_TRANSFER)) {
+         // the rebalance ended, we can no longer tell which entries were received
+         return;
+      }
+      final Equivalence<Object> keyEquivalence = configuration.dataContainer().keyEquivalence();
+      final ConcurrentHashSet<Object> keysToRemove = new ConcurrentHashSet<Object>();
+      if (dataContainer instanceof SegmentedDataContainer) {
+         SegmentedDataContainer<Object, Object> segmentedContainer = (SegmentedDataContainer<Object, Object>) dataContainer;
+         for (Iterator<InternalCacheEntry<Object, Object>> it = segmentedContainer.iterator(segmentId); it.hasNext(); ) {
+            Object key = it.next().getKey();
+            if (isStale(key, transferredBuckets, keyEquivalence)) {
+               keysToRemove.add(key);
+            }
+         }
+      } else {
+         for (InternalCacheEntry ice : dataContainer) {
+            Object key = ice.getKey();
+            if (getSegment(key) == segmentId && isStale(key, transferredBuckets, keyEquivalence)) {
+               keysToRemove.add(key);
+            }
+         }
+      }
+
+      AdvancedCacheLoader stProvider = persistenceManager.getStateTransferProvider();
+      if (stProvider != null) {
+         try {
+            CollectionKeyFilter filter = new CollectionKeyFilter(new ReadOnlyDataContainerBackedKeySet(dataContainer));
+            stProvider.process(filter, new AdvancedCacheLoader.CacheLoaderTask() {
+               @Override
+               public void processEntry(MarshalledEntry marshalledEntry, AdvancedCacheLoader.TaskContext taskContext) {
+                  Object key = marshalledEntry.getKey();
+                  if (getSegment(key) == segmentId && isStale(key, transferredBuckets, keyEquivalence)) {
+                     keysToRemove.add(key);
+                  }
+               }
+            }, new WithinThreadExecutor(), false, false);
+         } catch (CacheException e) {
+            log.failedLoadingKeysFromCacheStore(e);
+         }
+      }
+
+      log.debugf("Removing %d entries of segment %d of cache %s that no longer exist on the other owners", keysToRemove.size(), segmentId, cacheName);
+      if (!keysToRemove.isEmpty()) {
+         try {
+            InvalidateCommand invalidateCmd = commandsFactory.buildInvalidateCommand(EnumSet.of(CACHE_MODE_LOCAL, SKIP_LOCKING), keysToRemove.toArray());
+            InvocationContext ctx = icf.createNonTxInvocationContext();
+            interceptorChain.invoke(ctx, invalidateCmd);
+            if (trace) log.tracef("Invalidated keys: %s", keysToRemove);
+         } catch (CacheException e) {
+            log.failedToInvalidateKeys(e);
+         }
+      }
+   }
+
+   private boolean isStale(Object key, BitSet transferredBuckets, Equivalence<Object> keyEquivalence) {
+      // a key committed since the rebalance started was either received or written by a user operation
+      return transferredBuckets.get(SegmentDigester.bucket(keyEquivalence, key)) && !commitManager.isTracked(key);
+   }
+
    private void applyTransactions(Address sender, Collection<TransactionInfo> transactions, int topologyId) {
       log.debugf("Applying %d transactions for cache %s transferred from node %s", transactions.size(), cacheName, sender);
       if (isTransactional) {
@@ -843,27 +950,41 @@ private void invalidateSegments(final Set<Integer> newSegments, final Set<Intege
       final ConcurrentHashSet<Object> keysToRemove = new ConcurrentHashSet<Object>();
 
       // gather all keys from data container that belong to the segments that are being removed/moved to L1
-      for (InternalCacheEntry ice : dataContainer) {
-         Object key = ice.getKey();
-         int keySegment = getSegment(key);
-         if (segmentsToL1.contains(keySegment)) {
-            keysToL1.add(key);
-         } else if (!newSegments.contains(keySegment)) {
-            keysToRemove.add(key);
-         }
-
-         // If l1 on rehash is enabled we need to add the requestors for the previous owner who is now not an owner if
-         // we are an owner
-         if (isL1OnRehash) {
-            List<Address> owners = newCH.locateOwnersForSegment(keySegment);
-            if (owners.contains(rpcManager.getAddress())) {
-               log.tracef("L1 on rehash is enabled - checking if previous owners for key %s need to be added to requestors",
-                          key);
-               for (Address address : prevCH.locateOwnersForSegment(keySegment)) {
-                  if (!owners.contains(address)) {
-                     log.tracef("Adding previous owner %s to L1 requestors for key %s as it is no longer an owner",
-                                address, key);
-                     l1Manager.addRequestor(key, address);
+      if (!isL1OnRehash && dataContainer instanceof SegmentedDataContainer) {
+         // only the entries of the segments no longer owned need to be visited
+         SegmentedDataContainer<Object, Object> segmentedContainer = (SegmentedDataContainer<Object, Object>) dataContainer;
+         for (int segment = 0; segment < segmentedContainer.getNumSegments(); segment++) {
+            if (newSegments.contains(segment)) {
+               continue;
+            }
+            Set<Object> keys = segmentsToL1.contains(segment) ? keysToL1 : keysToRemove;
+            for (Iterator<InternalCacheEntry<Object, Object>> it = segmentedContainer.iterator(segment); it.hasNext(); ) {
+               keys.add(it.next().getKey());
+            }
+         }
+      } else {
+         for (InternalCacheEntry ice : dataContainer) {
+            Object key = ice.getKey();
+            int keySegment = getSegment(key);
+            if (segmentsToL1.contains(keySegment)) {
+               keysToL1.add(key);
+            } else if (!newSegments.contains(keySegment)) {
+               keysToRemove.add(key);
+            }
+
+            // If l1 on rehash is enabled we need to add the requestors for the previous owner who is now not an owner if
+            // we are an owner
+            if (isL1OnRehash) {
+               List<Address> owners = newCH.locateOwnersForSegment(keySegment);
+               if (owners.contains(rpcManager.getAddress())) {
+                  log.tracef("L1 on rehash is enabled - checking if previous owners for key %s need to be added to requestors",
+                             key);
+                  for (Address address : prevCH.locateOwnersForSegment(keySegment)) {
+                     if (!owners.contains(address)) {
+                        log.tracef("Adding previous owner %s to L1 requestors for key %s as it is no longer an owner",
+                                   address, key);
+                        l1Manager.addRequestor(key, address);
+                     }
                   }
                }
             }
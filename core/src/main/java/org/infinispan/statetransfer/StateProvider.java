@@ -8,6 +8,7 @@
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -53,6 +54,19 @@ public interface StateProvider {
     */
    void startOutboundTransfer(Address destination, int topologyId, Set<Integer> segments) throws InterruptedException;
 
+   /**
+    * Start to send the cache entries that belong to the given set of segments and that the requester doesn't already
+    * hold. The entries of the buckets of a segment whose digests match {@code segmentDigests} are not sent.
+    *
+    * @param destination    the address of the requester
+    * @param topologyId
+    * @param segments
+    * @param segmentDigests the digests of the buckets of the segments computed by the requester, or null to send all
+    *                       the entries of the segments
+    */
+   void startOutboundTransfer(Address destination, int topologyId, Set<Integer> segments,
+                              Map<Integer, long[]> segmentDigests) throws InterruptedException;
+
    /**
     * Cancel sending of cache entries that belong to the given set of segments. This is invoked in response to a
     * StateRequestCommand of type StateRequestCommand.Type.CANCEL_STATE_TRANSFER.
@@ -3,6 +3,7 @@
 import org.infinispan.Cache;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.commons.marshall.StreamingMarshaller;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.InternalEntryFactory;
@@ -12,6 +13,12 @@
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.DataType;
+import org.infinispan.jmx.annotations.DisplayType;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.jmx.annotations.MeasurementType;
 import org.infinispan.notifications.cachelistener.cluster.ClusterCacheNotifier;
 import org.infinispan.notifications.cachelistener.cluster.ClusterListenerReplicateCallable;
 import org.infinispan.persistence.manager.PersistenceManager;
@@ -25,6 +32,7 @@
 import org.infinispan.transaction.impl.LocalTransaction;
 import org.infinispan.transaction.impl.TransactionTable;
 import org.infinispan.transaction.xa.CacheTransaction;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -32,8 +40,10 @@
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * {@link StateProvider} implementation.
@@ -42,6 +52,7 @@
  * @since 5.2
  */
 @Listener
+@MBean(objectName = "StateProvider", description = "Component that sends state to the other nodes")
 public class StateProviderImpl implements StateProvider {
 
    private static final Log log = LogFactory.getLog(StateProviderImpl.class);
@@ -60,9 +71,24 @@ public class StateProviderImpl implements StateProvider {
    private InternalEntryFactory entryFactory;
    private long timeout;
    private int chunkSize;
+   private long chunkSizeBytes;
+   private int maxInFlightChunks;
+   private long maxBytesPerSecond;
+   private StreamingMarshaller marshaller;
+   private TimeService timeService;
 
    private StateConsumer stateConsumer;
 
+   /**
+    * Limits the rate at which all the outbound transfers send state, or null if the rate is not limited.
+    */
+   private volatile BandwidthLimiter bandwidthLimiter;
+
+   private final AtomicLong entriesSent = new AtomicLong();
+   private final AtomicLong bytesSent = new AtomicLong();
+   private final AtomicLong chunksSent = new AtomicLong();
+   private final AtomicLong entriesSkipped = new AtomicLong();
+
    /**
     * A map that keeps track of current outbound state transfers by destination address. There could be multiple transfers
     * flowing to the same destination (but for different segments) so the values are lists.
@@ -102,6 +128,19 @@ public void init(Cache cache,
       // ignore chunk sizes <= 0
       int chunkSize = configuration.clustering().stateTransfer().chunkSize();
       this.chunkSize = chunkSize > 0 ? chunkSize : Integer.MAX_VALUE;
+
+      // ignore byte sizes <= 0
+      long chunkSizeBytes = configuration.clustering().stateTransfer().chunkSizeBytes();
+      this.chunkSizeBytes = chunkSizeBytes > 0 ? chunkSizeBytes : Long.MAX_VALUE;
+      this.maxInFlightChunks = configuration.clustering().stateTransfer().maxInFlightChunks();
+      this.maxBytesPerSecond = configuration.clustering().stateTransfer().maxBytesPerSecond();
+   }
+
+   @Inject
+   public void injectFlowControlDependencies(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller,
+                                             TimeService timeService) {
+      this.marshaller = marshaller;
+      this.timeService = timeService;
    }
 
    public boolean isStateTransferInProgress() {
@@ -142,6 +181,9 @@ public void onTopologyUpdate(CacheTopology cacheTopology, boolean isRebalance) {
    @Override
    public void start() {
       clusterCacheNotifier.addListener(this);
+      if (maxBytesPerSecond > 0) {
+         bandwidthLimiter = new BandwidthLimiter(maxBytesPerSecond, timeService);
+      }
    }
 
    @Stop(priority = 20)
@@ -275,16 +317,25 @@ private void collectTransactionsToTransfer(Address destination,
    @Override
    public void startOutboundTransfer(Address destination, int requestTopologyId, Set<Integer> segments)
          throws InterruptedException {
+      startOutboundTransfer(destination, requestTopologyId, segments, null);
+   }
+
+   @Override
+   public void startOutboundTransfer(Address destination, int requestTopologyId, Set<Integer> segments,
+                                     Map<Integer, long[]> segmentDigests) throws InterruptedException {
       if (trace) {
-         log.tracef("Starting outbound transfer of segments %s to node %s with topology id %d for cache %s", segments,
-               destination, requestTopologyId, cacheName);
+         log.tracef("Starting %s outbound transfer of segments %s to node %s with topology id %d for cache %s",
+               segmentDigests != null ? "delta" : "full", segments, destination, requestTopologyId, cacheName);
       }
 
       final CacheTopology cacheTopology = getCacheTopology(requestTopologyId, destination, false);
 
       // the destination node must already have an InboundTransferTask waiting for these segments
       OutboundTransferTask outboundTransfer = new OutboundTransferTask(destination, segments, chunkSize, cacheTopology.getTopologyId(),
-            cacheTopology.getReadConsistentHash(), this, dataContainer, persistenceManager, rpcManager, commandsFactory, entryFactory, timeout, cacheName);
+            cacheTopology.getReadConsistentHash(), this, dataContainer, persistenceManager, rpcManager, commandsFactory, entryFactory, timeout, cacheName,
+            chunkSizeBytes, maxInFlightChunks, bandwidthLimiter, new EntrySizeEstimator(marshaller), timeService,
+            segmentDigests, segmentDigests != null ? new SegmentDigester(cacheTopology.getReadConsistentHash(), segmentDigests.keySet(),
+            configuration.dataContainer().keyEquivalence(), marshaller) : null);
       addTransfer(outboundTransfer);
       outboundTransfer.execute(executorService);
    }
@@ -341,4 +392,87 @@ void onTaskCompletion(OutboundTransferTask transferTask) {
 
       removeTransfer(transferTask);
    }
+
+   void onChunkSent(int entries, long bytes) {
+      entriesSent.addAndGet(entries);
+      bytesSent.addAndGet(bytes);
+      chunksSent.incrementAndGet();
+   }
+
+   void onEntriesSkipped(long entries) {
+      entriesSkipped.addAndGet(entries);
+   }
+
+   @ManagedAttribute(description = "Number of cache entries sent to other nodes by state transfer", displayName = "Number of entries sent", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getEntriesSent() {
+      return entriesSent.get();
+   }
+
+   @ManagedAttribute(description = "Estimated number of bytes sent to other nodes by state transfer", displayName = "Number of bytes sent", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getBytesSent() {
+      return bytesSent.get();
+   }
+
+   @ManagedAttribute(description = "Number of state chunks sent to other nodes", displayName = "Number of chunks sent", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getChunksSent() {
+      return chunksSent.get();
+   }
+
+   @ManagedAttribute(description = "Number of cache entries not sent to other nodes by state transfer because they already held them", displayName = "Number of entries skipped", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getEntriesSkipped() {
+      return entriesSkipped.get();
+   }
+
+   @ManagedAttribute(description = "Number of outbound state transfers in progress", displayName = "Number of outbound transfers", displayType = DisplayType.SUMMARY)
+   public int getOutboundTransferCount() {
+      int count = 0;
+      synchronized (transfersByDestination) {
+         for (List<OutboundTransferTask> transfers : transfersByDestination.values()) {
+            count += transfers.size();
+         }
+      }
+      return count;
+   }
+
+   @ManagedAttribute(description = "Estimated number of bytes per second sent by the outbound state transfers in progress", displayName = "Outbound state transfer throughput", displayType = DisplayType.SUMMARY)
+   public long getOutboundThroughput() {
+      long throughput = 0;
+      for (OutboundTransferTask transfer : getOutboundTransfers()) {
+         throughput += transfer.getThroughput();
+      }
+      return throughput;
+   }
+
+   @ManagedAttribute(description = "The maximum number of bytes per second sent by state transfer, or -1 if the rate is not limited", displayName = "State transfer bandwidth limit", dataType = DataType.TRAIT)
+   public long getMaxBytesPerSecond() {
+      BandwidthLimiter limiter = bandwidthLimiter;
+      return limiter != null ? limiter.getBytesPerSecond() : -1;
+   }
+
+   @ManagedOperation(description = "Shows the progress of each segment of the outbound state transfers in progress", displayName = "Show outbound state transfer progress")
+   public String showOutboundTransferProgress() {
+      StringBuilder sb = new StringBuilder();
+      for (OutboundTransferTask transfer : getOutboundTransfers()) {
+         transfer.appendProgress(sb);
+      }
+      return sb.toString();
+   }
+
+   @ManagedOperation(description = "Resets statistics gathered by this component", displayName = "Reset statistics")
+   public void resetStatistics() {
+      entriesSent.set(0);
+      bytesSent.set(0);
+      chunksSent.set(0);
+      entriesSkipped.set(0);
+   }
+
+   private List<OutboundTransferTask> getOutboundTransfers() {
+      List<OutboundTransferTask> transfers = new ArrayList<OutboundTransferTask>();
+      synchronized (transfersByDestination) {
+         for (List<OutboundTransferTask> destinationTransfers : transfersByDestination.values()) {
+            transfers.addAll(destinationTransfers);
+         }
+      }
+      return transfers;
+   }
 }
@@ -7,6 +7,7 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,6 +35,12 @@ public enum Type {
 
    private Set<Integer> segments;
 
+   /**
+    * The digests of the buckets of each segment, as computed by the requester from the entries it already holds, or
+    * null if the requester needs the whole segments.
+    */
+   private Map<Integer, long[]> segmentDigests;
+
    private StateProvider stateProvider;
 
    private StateRequestCommand() {
@@ -52,6 +59,12 @@ public StateRequestCommand(String cacheName, Type type, Address origin, int topo
       this.segments = segments;
    }
 
+   public StateRequestCommand(String cacheName, Type type, Address origin, int topologyId, Set<Integer> segments,
+                              Map<Integer, long[]> segmentDigests) {
+      this(cacheName, type, origin, topologyId, segments);
+      this.segmentDigests = segmentDigests;
+   }
+
    public void init(StateProvider stateProvider) {
       this.stateProvider = stateProvider;
    }
@@ -66,7 +79,7 @@ public Object perform(InvocationContext ctx) throws Throwable {
                return stateProvider.getTransactionsForSegments(getOrigin(), topologyId, segments);
 
             case START_STATE_TRANSFER:
-               stateProvider.startOutboundTransfer(getOrigin(), topologyId, segments);
+               stateProvider.startOutboundTransfer(getOrigin(), topologyId, segments, segmentDigests);
                // return a non-null value to ensure it will reach back to originator wrapped in a SuccessfulResponse (a null would not be sent back)
                return true;
 
@@ -107,6 +120,10 @@ public Set<Integer> getSegments() {
       return segments;
    }
 
+   public Map<Integer, long[]> getSegmentDigests() {
+      return segmentDigests;
+   }
+
    @Override
    public byte getCommandId() {
       return COMMAND_ID;
@@ -114,7 +131,7 @@ public byte getCommandId() {
 
    @Override
    public Object[] getParameters() {
-      return new Object[]{(byte) type.ordinal(), getOrigin(), topologyId, segments};
+      return new Object[]{(byte) type.ordinal(), getOrigin(), topologyId, segments, segmentDigests};
    }
 
    @Override
@@ -124,7 +141,8 @@ public void setParameters(int commandId, Object[] parameters) {
       type = Type.values()[(Byte) parameters[i++]];
       setOrigin((Address) parameters[i++]);
       topologyId = (Integer) parameters[i++];
-      segments = (Set<Integer>) parameters[i];
+      segments = (Set<Integer>) parameters[i++];
+      segmentDigests = (Map<Integer, long[]>) parameters[i];
    }
 
    @Override
@@ -135,6 +153,7 @@ public String toString() {
             ", type=" + type +
             ", topologyId=" + topologyId +
             ", segments=" + segments +
+            ", delta=" + (segmentDigests != null) +
             '}';
    }
 }
@@ -15,6 +15,7 @@
 import org.infinispan.commons.util.concurrent.ParallelIterableMap;
 import org.infinispan.commons.util.concurrent.jdk8backported.ForkJoinPool;
 import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.executors.ExecutorAllCompletionService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -128,6 +129,11 @@
     */
    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
 
+   /**
+    * The initial capacity of each segment when eviction is bounded by memory. Tables grow as needed from there.
+    */
+   static final int MEMORY_BOUNDED_SEGMENT_CAPACITY = 16;
+
    /**
     * The maximum capacity, used if a higher value is implicitly
     * specified by either of the constructors with arguments.  MUST
@@ -179,6 +185,21 @@
    private transient final Equivalence<? super V> valueEquivalence;
    private transient final EvictionListener<? super K, ? super V> evictionListener;
    private final int evictCap;
+
+   /**
+    * Estimates the memory used by each entry when eviction is bounded by memory, null otherwise
+    */
+   private transient final EntrySizeCalculator<? super K, ? super V> sizeCalculator;
+
+   /**
+    * Maximum estimated memory, in bytes, of the entries in each segment when eviction is bounded by memory
+    */
+   private final long evictMemoryCap;
+
+   /**
+    * Popularity of the keys across all the segments when using the {@link Eviction#TINY_LFU} policy, null otherwise
+    */
+   private transient final FrequencySketch frequencySketch;
    
    private final ExecutorService executor;
 
@@ -230,6 +251,10 @@ final Segment<K,V> segmentFor(int hash) {
       final int hash;
       volatile V value;
       final HashEntry<K, V> next;
+      /**
+       * Estimated size of the entry when eviction is bounded by memory. Only accessed while holding the segment lock.
+       */
+      long size;
 
       HashEntry(K key, int hash, HashEntry<K, V> next, V value) {
          this.key = key;
@@ -269,6 +294,10 @@ private enum Recency {
       HIR_RESIDENT, LIR_RESIDENT, HIR_NONRESIDENT
    }
 
+   private enum Region {
+      WINDOW, PROBATION, PROTECTED, NONE
+   }
+
    public enum Eviction {
       NONE {
          @Override
@@ -279,7 +308,12 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
       LRU {
          @Override
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
-            return new LRU<K, V>(s,capacity,lf,capacity*10,lf);
+            if (s.isMemoryBounded()) {
+               // bounded by memory, so the number of entries to expect is unknown
+               return new LRU<K, V>(s, Integer.MAX_VALUE, MEMORY_BOUNDED_SEGMENT_CAPACITY, lf,
+                                    EvictionPolicy.MAX_BATCH_SIZE, lf);
+            }
+            return new LRU<K, V>(s,capacity,capacity,lf,capacity*10,lf);
          }
       },
       LIRS {
@@ -287,6 +321,12 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
             return new LIRS<K,V>(s,capacity,capacity*10,lf);
          }
+      },
+      TINY_LFU {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new TinyLFU<K, V>(s, s.map.frequencySketch, capacity, capacity * 10, lf);
+         }
       };
 
       abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf);
@@ -371,6 +411,17 @@ public void onEntryRemoved(Object key) {
        */
       void onEntryRemove(HashEntry<K, V> e);
 
+      /**
+       * Invoked to notify EvictionPolicy implementation that an entry in Segment has been
+       * replaced by a copy, because an entry preceding it in its bucket has been removed.
+       *
+       * @param original
+       *            the entry that is not in Segment anymore
+       * @param copy
+       *            the copy of the entry, now in Segment
+       */
+      void onEntryCopied(HashEntry<K, V> original, HashEntry<K, V> copy);
+
       /**
        * Invoked to notify EvictionPolicy implementation that all Segment entries have been
        * cleared.
@@ -422,6 +473,11 @@ public void onEntryRemove(HashEntry<K, V> e) {
          // Do nothing.
       }
 
+      @Override
+      public void onEntryCopied(HashEntry<K, V> original, HashEntry<K, V> copy) {
+         // Do nothing.
+      }
+
       @Override
       public boolean thresholdExpired() {
          return false;
@@ -450,9 +506,10 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       private final float batchQueueSizeThreshold;
       private final Set<HashEntry<K, V>> evicted;
       private final AtomicInteger accessQueueSize = new AtomicInteger(0);
+      private boolean trimming;
 
-      public LRU(final Segment<K,V> s, int capacity, float lf, int maxBatchSize, float batchThresholdFactor) {
-         super(capacity, lf, IterationOrder.ACCESS_ORDER, new Equivalence<HashEntry<K, V>>() {
+      public LRU(final Segment<K,V> s, int capacity, int initialCapacity, float lf, int maxBatchSize, float batchThresholdFactor) {
+         super(initialCapacity, lf, IterationOrder.ACCESS_ORDER, new Equivalence<HashEntry<K, V>>() {
             @Override
             public int hashCode(Object obj) {
                if (obj instanceof HashEntry<?, ?>) {
@@ -501,6 +558,7 @@ public Set<HashEntry<K, V>> execute() {
          for (HashEntry<K, V> e : accessQueue) {
             put(e, e.value);
          }
+         trimToMemoryCapacity();
          evictedCopy.addAll(evicted);
          accessQueue.clear();
          accessQueueSize.set(0);
@@ -511,6 +569,7 @@ public Set<HashEntry<K, V>> execute() {
       @Override
       public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          put(e, e.value);
+         trimToMemoryCapacity();
          if (!evicted.isEmpty()) {
             Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
             evictedCopy.addAll(evicted);
@@ -536,7 +595,7 @@ public boolean onEntryHit(HashEntry<K, V> e) {
        */
       @Override
       public boolean thresholdExpired() {
-         return accessQueueSize.get() >= maxBatchQueueSize;
+         return accessQueueSize.get() >= maxBatchQueueSize || segment.isAboveMemoryCapacity();
       }
 
       @Override
@@ -548,6 +607,13 @@ public void onEntryRemove(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public void onEntryCopied(HashEntry<K, V> original, HashEntry<K, V> copy) {
+         // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
+         onEntryRemove(original);
+         onEntryMiss(copy);
+      }
+
       @Override
       public void clear() {
          super.clear();
@@ -564,6 +630,30 @@ protected boolean isAboveThreshold(){
          return size() > trimDownSize;
       }
 
+      /**
+       * When eviction is bounded by memory, evicts least recently used entries until the segment fits in its memory
+       * capacity again. A single entry larger than the capacity is never evicted by this method.
+       */
+      private void trimToMemoryCapacity() {
+         // removing from the segment can clone entries and notify misses, which would call back into this method
+         if (trimming || !segment.isAboveMemoryCapacity()) {
+            return;
+         }
+         trimming = true;
+         try {
+            List<HashEntry<K, V>> trimmed = new ArrayList<HashEntry<K, V>>();
+            while (segment.isAboveMemoryCapacity() && size() > 1) {
+               HashEntry<K, V> eldest = keySet().iterator().next();
+               remove(eldest);
+               segment.remove(eldest.key, eldest.hash, null, true);
+               trimmed.add(eldest);
+            }
+            evicted.addAll(trimmed);
+         } finally {
+            trimming = false;
+         }
+      }
+
       @Override
       protected boolean removeEldestEntry(Map.Entry<HashEntry<K,V>,V> eldest) {
          boolean aboveThreshold = isAboveThreshold();
@@ -1144,6 +1234,13 @@ public void onEntryRemove(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public void onEntryCopied(HashEntry<K, V> original, HashEntry<K, V> copy) {
+         // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
+         onEntryRemove(original);
+         onEntryMiss(copy);
+      }
+
       @Override
       public void clear() {
          accessQueue.clear();
@@ -1186,6 +1283,310 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
    }
 
+   /**
+    * Entry of a segment evicted by the {@link TinyLFU} policy, linked to the queue of the region it belongs to.
+    */
+   private static final class TinyLFUHashEntry<K, V> extends HashEntry<K, V> {
+
+      /** The previous entry in the queue of the region */
+      private TinyLFUHashEntry<K, V> previousInQueue;
+
+      /** The next entry in the queue of the region */
+      private TinyLFUHashEntry<K, V> nextInQueue;
+
+      /** The region the entry belongs to, or NONE if it is not tracked anymore */
+      private Region region = Region.NONE;
+
+      TinyLFUHashEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         super(key, hash, next, value);
+      }
+
+      static <K, V> TinyLFUHashEntry<K, V> newHeader() {
+         TinyLFUHashEntry<K, V> header = new TinyLFUHashEntry<K, V>(null, 0, null, null);
+         header.previousInQueue = header;
+         header.nextInQueue = header;
+         return header;
+      }
+   }
+
+   /**
+    * Window TinyLFU eviction policy, as described in "TinyLFU: A Highly Efficient Cache Admission Policy" by Gil
+    * Einziger, Roy Friedman and Ben Manes.
+    * <p/>
+    * New entries are first stored in a small LRU admission window. Entries leaving the window become candidates for
+    * the main space, which is a segmented LRU split into probation and protected regions: a candidate is only admitted
+    * if it is estimated to be more popular than the entry the main space would evict, otherwise the candidate itself
+    * is evicted. Popularity is estimated by a {@link FrequencySketch} shared by all the segments of the map, so that
+    * even a recency-biased window cannot let a scan flush frequently used entries out of the cache.
+    */
+   static final class TinyLFU<K, V> implements EvictionPolicy<K, V> {
+
+      /** The percentage of the segment dedicated to the admission window. */
+      private static final float WINDOW_PERCENTAGE = 0.01f;
+
+      /** The percentage of the main space dedicated to protected entries. */
+      private static final float PROTECTED_PERCENTAGE = 0.8f;
+
+      /** The owning segment */
+      private final Segment<K, V> segment;
+
+      /** The popularity of the keys, shared by all the segments */
+      private final FrequencySketch sketch;
+
+      /**
+       * The accessQueue for reducing lock contention
+       * See "BP-Wrapper: a system framework making any replacement algorithms
+       * (almost) lock contention free"
+       */
+      private final ConcurrentLinkedQueue<TinyLFUHashEntry<K, V>> accessQueue;
+      private final AtomicInteger accessQueueSize = new AtomicInteger(0);
+      private final int maxBatchQueueSize;
+      private final float batchQueueSizeThreshold;
+
+      /** The queues of the regions, each ordered from the least to the most recently used entry */
+      private final TinyLFUHashEntry<K, V> windowHeader = TinyLFUHashEntry.newHeader();
+      private final TinyLFUHashEntry<K, V> probationHeader = TinyLFUHashEntry.newHeader();
+      private final TinyLFUHashEntry<K, V> protectedHeader = TinyLFUHashEntry.newHeader();
+
+      private final int maximumSize;
+      private final int maximumWindowSize;
+      private final int maximumProtectedSize;
+
+      private int windowSize;
+      private int probationSize;
+      private int protectedSize;
+
+      /** The entries evicted since the last time they were handed over to the segment */
+      private final Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+
+      public TinyLFU(Segment<K, V> s, FrequencySketch sketch, int capacity, int maxBatchSize,
+                     float batchThresholdFactor) {
+         this.segment = s;
+         this.sketch = sketch;
+         this.maximumSize = capacity;
+         this.maximumWindowSize = Math.max(1, (int) (WINDOW_PERCENTAGE * capacity));
+         this.maximumProtectedSize = (int) (PROTECTED_PERCENTAGE * (capacity - maximumWindowSize));
+         this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
+         this.batchQueueSizeThreshold = batchThresholdFactor * this.maxBatchQueueSize;
+         this.accessQueue = new ConcurrentLinkedQueue<TinyLFUHashEntry<K, V>>();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         try {
+            for (TinyLFUHashEntry<K, V> e : accessQueue) {
+               if (e.region != Region.NONE) {
+                  hit(e);
+               }
+            }
+         } finally {
+            accessQueue.clear();
+            accessQueueSize.set(0);
+         }
+         return evicted;
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> en) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         sketch.increment(e.hash);
+         link(e, Region.WINDOW);
+
+         // entries leaving the window become candidates for the main space
+         TinyLFUHashEntry<K, V> candidate = null;
+         while (windowSize > maximumWindowSize) {
+            candidate = windowHeader.nextInQueue;
+            unlink(candidate);
+            link(candidate, Region.PROBATION);
+         }
+
+         while (windowSize + probationSize + protectedSize > maximumSize) {
+            TinyLFUHashEntry<K, V> victim = first(probationHeader);
+            if (victim == null) {
+               victim = first(protectedHeader);
+            }
+            if (victim == null) {
+               victim = first(windowHeader);
+            }
+            if (candidate != null && candidate != victim && candidate.region == Region.PROBATION
+                  && sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+               // the candidate is not more popular than the entry it would replace, so it is not admitted
+               victim = candidate;
+            }
+            candidate = null;
+            unlink(victim);
+            evicted.add(victim);
+            segment.remove(victim.key, victim.hash, null, true);
+         }
+         if (evicted.isEmpty()) {
+            return InfinispanCollections.emptySet();
+         }
+         Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>(evicted);
+         evicted.clear();
+         return evictedCopy;
+      }
+
+      private void hit(TinyLFUHashEntry<K, V> e) {
+         switch (e.region) {
+            case WINDOW:
+               unlink(e);
+               link(e, Region.WINDOW);
+               break;
+            case PROBATION:
+               unlink(e);
+               link(e, Region.PROTECTED);
+               if (protectedSize > maximumProtectedSize) {
+                  // demote the least recently used protected entry
+                  TinyLFUHashEntry<K, V> demoted = protectedHeader.nextInQueue;
+                  unlink(demoted);
+                  link(demoted, Region.PROBATION);
+               }
+               break;
+            case PROTECTED:
+               unlink(e);
+               link(e, Region.PROTECTED);
+               break;
+            default:
+               break;
+         }
+      }
+
+      /**
+       * Appends the entry to the most recently used end of the queue of the given region.
+       */
+      private void link(TinyLFUHashEntry<K, V> e, Region region) {
+         TinyLFUHashEntry<K, V> header;
+         switch (region) {
+            case WINDOW:
+               header = windowHeader;
+               windowSize++;
+               break;
+            case PROBATION:
+               header = probationHeader;
+               probationSize++;
+               break;
+            case PROTECTED:
+               header = protectedHeader;
+               protectedSize++;
+               break;
+            default:
+               throw new IllegalArgumentException("Cannot link an entry to region " + region);
+         }
+         TinyLFUHashEntry<K, V> last = header.previousInQueue;
+         e.previousInQueue = last;
+         e.nextInQueue = header;
+         last.nextInQueue = e;
+         header.previousInQueue = e;
+         e.region = region;
+      }
+
+      private void unlink(TinyLFUHashEntry<K, V> e) {
+         switch (e.region) {
+            case WINDOW:
+               windowSize--;
+               break;
+            case PROBATION:
+               probationSize--;
+               break;
+            case PROTECTED:
+               protectedSize--;
+               break;
+            default:
+               return;
+         }
+         e.previousInQueue.nextInQueue = e.nextInQueue;
+         e.nextInQueue.previousInQueue = e.previousInQueue;
+         e.previousInQueue = null;
+         e.nextInQueue = null;
+         e.region = Region.NONE;
+      }
+
+      /**
+       * Returns the least recently used entry of a queue, or null if the queue is empty.
+       */
+      private TinyLFUHashEntry<K, V> first(TinyLFUHashEntry<K, V> header) {
+         TinyLFUHashEntry<K, V> first = header.nextInQueue;
+         return first == header ? null : first;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         sketch.increment(e.hash);
+         accessQueue.add((TinyLFUHashEntry<K, V>) e);
+         int sz = accessQueueSize.incrementAndGet();
+         return sz >= batchQueueSizeThreshold;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return accessQueueSize.get() >= maxBatchQueueSize;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         unlink((TinyLFUHashEntry<K, V>) e);
+         // we could have multiple instances of e in accessQueue; remove them all
+         while (accessQueue.remove(e)) {
+            accessQueueSize.decrementAndGet();
+         }
+      }
+
+      @Override
+      public void onEntryCopied(HashEntry<K, V> original, HashEntry<K, V> copy) {
+         // the copy is the same entry for the policy: it takes the place of the original in its queue
+         TinyLFUHashEntry<K, V> o = (TinyLFUHashEntry<K, V>) original;
+         TinyLFUHashEntry<K, V> c = (TinyLFUHashEntry<K, V>) copy;
+         if (o.region != Region.NONE) {
+            c.region = o.region;
+            c.previousInQueue = o.previousInQueue;
+            c.nextInQueue = o.nextInQueue;
+            o.previousInQueue.nextInQueue = c;
+            o.nextInQueue.previousInQueue = c;
+            o.previousInQueue = null;
+            o.nextInQueue = null;
+            o.region = Region.NONE;
+         }
+         // the pending accesses to the original are not replayed, since it is not tracked anymore
+         while (accessQueue.remove(original)) {
+            accessQueueSize.decrementAndGet();
+         }
+      }
+
+      @Override
+      public void clear() {
+         clearQueue(windowHeader);
+         clearQueue(probationHeader);
+         clearQueue(protectedHeader);
+         windowSize = 0;
+         probationSize = 0;
+         protectedSize = 0;
+         accessQueue.clear();
+         accessQueueSize.set(0);
+      }
+
+      private void clearQueue(TinyLFUHashEntry<K, V> header) {
+         header.previousInQueue = header;
+         header.nextInQueue = header;
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.TINY_LFU;
+      }
+
+      @Override
+      public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         return new TinyLFUHashEntry<K, V>(key, hash, next, value);
+      }
+   }
+
    /**
     * Segments are specialized versions of hash tables.  This
     * subclasses from ReentrantLock opportunistically, just to
@@ -1270,6 +1671,12 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
 
       transient final BoundedConcurrentHashMap map;
 
+      /**
+       * The estimated memory used by the entries in this segment, when eviction is bounded by memory.
+       * Only modified while holding the lock.
+       */
+      transient volatile long memoryUsed;
+
       Segment(int cap, float lf, Eviction es, BoundedConcurrentHashMap map) {
          this.map = map;
          loadFactor = lf;
@@ -1286,6 +1693,37 @@ EvictionListener<K, V> getEvictionListener() {
          return map.evictionListener;
       }
 
+      boolean isMemoryBounded() {
+         return map.sizeCalculator != null;
+      }
+
+      boolean isAboveMemoryCapacity() {
+         return isMemoryBounded() && memoryUsed > map.evictMemoryCap;
+      }
+
+      /**
+       * Recalculates the estimated size of an entry after its value changed.
+       * Call only while holding lock.
+       */
+      @SuppressWarnings("unchecked")
+      void updateSize(HashEntry<K, V> e, V value) {
+         if (isMemoryBounded()) {
+            long size = ((EntrySizeCalculator<K, V>) map.sizeCalculator).calculateSize(e.key, value);
+            memoryUsed += size - e.size;
+            e.size = size;
+         }
+      }
+
+      /**
+       * Creates a copy of an existing entry, preserving its estimated size.
+       * Call only while holding lock.
+       */
+      HashEntry<K, V> copyEntry(HashEntry<K, V> e, HashEntry<K, V> next) {
+         HashEntry<K, V> copy = eviction.createNewEntry(e.key, e.hash, next, e.value);
+         copy.size = e.size;
+         return copy;
+      }
+
       /**
        * Sets table to new HashEntry array.
        * Call only while holding lock or in constructor.
@@ -1351,6 +1789,20 @@ V get(Object key, int hash) {
          return null;
       }
 
+      V peek(Object key, int hash) {
+         if (count != 0) { // read-volatile
+            HashEntry<K, V> e = getFirst(hash);
+            while (e != null) {
+               if (e.hash == hash && map.keyEquivalence.equals(key, e.key)) {
+                  V v = e.value;
+                  return v != null ? v : readValueUnderLock(e); // recheck
+               }
+               e = e.next;
+            }
+         }
+         return null;
+      }
+
       boolean containsKey(Object key, int hash) {
          if (count != 0) { // read-volatile
             HashEntry<K,V> e = getFirst(hash);
@@ -1396,7 +1848,8 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
             if (e != null && map.valueEquivalence.equals(oldValue, e.value)) {
                replaced = true;
                e.value = newValue;
-               if (eviction.onEntryHit(e)) {
+               updateSize(e, newValue);
+               if (eviction.onEntryHit(e) || isAboveMemoryCapacity()) {
                   evicted = attemptEviction(true);
                }
             }
@@ -1420,7 +1873,8 @@ V replace(K key, int hash, V newValue) {
             if (e != null) {
                oldValue = e.value;
                e.value = newValue;
-               if (eviction.onEntryHit(e)) {
+               updateSize(e, newValue);
+               if (eviction.onEntryHit(e) || isAboveMemoryCapacity()) {
                   evicted = attemptEviction(true);
                }
             }
@@ -1436,7 +1890,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
          Set<HashEntry<K, V>> evicted = null;
          try {
             int c = count;
-            if (c++ > threshold && eviction.strategy() == Eviction.NONE) {
+            if (c++ > threshold && (eviction.strategy() == Eviction.NONE || isMemoryBounded())) {
                rehash();
             }
             HashEntry<K, V>[] tab = table;
@@ -1452,7 +1906,11 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                oldValue = e.value;
                if (!onlyIfAbsent) {
                   e.value = value;
+                  updateSize(e, value);
                   eviction.onEntryHit(e);
+                  if (isAboveMemoryCapacity()) {
+                     evicted = attemptEviction(true);
+                  }
                }
             } else {
                oldValue = null;
@@ -1467,6 +1925,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                   }
                   // add a new entry
                   tab[index] = eviction.createNewEntry(key, hash, first, value);
+                  updateSize(tab[index], value);
                   // notify a miss
                   Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(tab[index]);
                   if (!newlyEvicted.isEmpty()) {
@@ -1544,7 +2003,7 @@ void rehash() {
                   for (HashEntry<K,V> p = e; p != lastRun; p = p.next) {
                      int k = p.hash & sizeMask;
                      HashEntry<K,V> n = newTable[k];
-                     newTable[k] = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     newTable[k] = copyEntry(p, n);
                   }
                }
             }
@@ -1585,15 +2044,13 @@ V remove(Object key, int hash, Object value, boolean isEvict) {
 
                   // e was removed
                   eviction.onEntryRemove(e);
+                  memoryUsed -= e.size;
 
                   HashEntry<K, V> newFirst = e.next;
                   for (HashEntry<K, V> p = first; p != e; p = p.next) {
-                     // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
-                     // allow p to be GC-ed
-                     eviction.onEntryRemove(p);
-                     newFirst = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
-                     // and notify eviction algorithm about new hash entries
-                     eviction.onEntryMiss(newFirst);
+                     newFirst = copyEntry(p, newFirst);
+                     // allow p to be GC-ed and let the eviction algorithm track its copy instead
+                     eviction.onEntryCopied(p, newFirst);
                   }
 
                   tab[index] = newFirst;
@@ -1630,6 +2087,7 @@ void clear() {
                }
                ++modCount;
                eviction.clear();
+               memoryUsed = 0;
                count = 0; // write-volatile
             } finally {
                unlock();
@@ -1712,19 +2170,60 @@ private void notifyEvictionListener(Set<HashEntry<K, V>> evicted) {
    public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
          Eviction evictionStrategy, EvictionListener<? super K, ? super V> evictionListener,
          Equivalence<? super K> keyEquivalence, Equivalence<? super V> valueEquivalence) {
+      this(capacity, -1, concurrencyLevel, evictionStrategy, null, evictionListener, keyEquivalence, valueEquivalence);
+   }
+
+   /**
+    * Creates a new, empty map bounded by the estimated memory used by its entries rather than by their number. Entries
+    * are evicted in LRU order once the memory estimated by the given calculator exceeds the maximum.
+    *
+    * @param maxMemory
+    *            is the upper bound, in bytes, of the estimated memory used by the elements in this map
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param sizeCalculator
+    *            estimates the memory used by each element
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @throws IllegalArgumentException
+    *             if the maximum memory is not positive or the concurrencyLevel is nonpositive.
+    */
+   public BoundedConcurrentHashMap(long maxMemory, int concurrencyLevel,
+         EntrySizeCalculator<? super K, ? super V> sizeCalculator, EvictionListener<? super K, ? super V> evictionListener,
+         Equivalence<? super K> keyEquivalence, Equivalence<? super V> valueEquivalence) {
+      this(DEFAULT_MAXIMUM_CAPACITY, maxMemory, concurrencyLevel, Eviction.LRU, sizeCalculator, evictionListener,
+           keyEquivalence, valueEquivalence);
+   }
+
+   private BoundedConcurrentHashMap(int capacity, long maxMemory, int concurrencyLevel,
+         Eviction evictionStrategy, EntrySizeCalculator<? super K, ? super V> sizeCalculator,
+         EvictionListener<? super K, ? super V> evictionListener,
+         Equivalence<? super K> keyEquivalence, Equivalence<? super V> valueEquivalence) {
       this.keyEquivalence = keyEquivalence;
       this.valueEquivalence = valueEquivalence;
+      this.sizeCalculator = sizeCalculator;
 
       if (capacity < 0 || concurrencyLevel <= 0) {
          throw new IllegalArgumentException();
       }
 
-      concurrencyLevel = Math.min(capacity / 2, concurrencyLevel); // concurrencyLevel cannot be > capacity/2
-      concurrencyLevel = Math.max(concurrencyLevel, 1); // concurrencyLevel cannot be less than 1
+      if (sizeCalculator != null) {
+         if (maxMemory <= 0) {
+            throw new IllegalArgumentException("Maximum memory has to be positive");
+         }
+      } else {
+         concurrencyLevel = Math.min(capacity / 2, concurrencyLevel); // concurrencyLevel cannot be > capacity/2
+         concurrencyLevel = Math.max(concurrencyLevel, 1); // concurrencyLevel cannot be less than 1
 
-      // minimum two elements per segment
-      if (capacity < concurrencyLevel * 2 && capacity != 1) {
-         throw new IllegalArgumentException("Maximum capacity has to be at least twice the concurrencyLevel");
+         // minimum two elements per segment
+         if (capacity < concurrencyLevel * 2 && capacity != 1) {
+            throw new IllegalArgumentException("Maximum capacity has to be at least twice the concurrencyLevel");
+         }
       }
 
       if (evictionStrategy == null || evictionListener == null) {
@@ -1759,7 +2258,17 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
          cap <<= 1;
       }
 
-      this.evictCap = c;
+      if (sizeCalculator != null) {
+         // the number of entries is not bounded, only their estimated memory
+         this.evictCap = Integer.MAX_VALUE;
+         this.evictMemoryCap = Math.max(maxMemory / ssize, 1);
+      } else {
+         this.evictCap = c;
+         this.evictMemoryCap = -1;
+      }
+
+      // the sketch is shared by all the segments, so that admission decisions use the global access history
+      this.frequencySketch = evictionStrategy == Eviction.TINY_LFU ? new FrequencySketch(capacity) : null;
 
       for (int i = 0; i < this.segments.length; ++i) {
          this.segments[i] = new Segment<K, V>(cap, DEFAULT_LOAD_FACTOR, evictionStrategy, this);
@@ -1930,6 +2439,23 @@ public int size() {
       }
    }
 
+   /**
+    * Returns the estimated memory, in bytes, used by the mappings in this map when it is bounded by memory. The value
+    * is computed without locking, so it might not reflect concurrent modifications.
+    *
+    * @return the estimated memory used by the mappings in this map, or -1 if the map is not bounded by memory
+    */
+   public long memoryUsed() {
+      if (sizeCalculator == null) {
+         return -1;
+      }
+      long sum = 0;
+      for (Segment<K, V> segment : segments) {
+         sum += segment.memoryUsed;
+      }
+      return sum;
+   }
+
    /**
     * Returns the value to which the specified key is mapped,
     * or {@code null} if this map contains no mapping for the key.
@@ -1947,6 +2473,17 @@ public V get(Object key) {
       return segmentFor(hash).get(key, hash);
    }
 
+   /**
+    * Returns the value to which the specified key is mapped, like {@link #get(Object)}, but without recording the
+    * access with the eviction policy, so the entry's eviction order doesn't change.
+    *
+    * @throws NullPointerException if the specified key is null
+    */
+   public V peek(Object key) {
+      int hash = hash(keyEquivalence.hashCode(key));
+      return segmentFor(hash).peek(key, hash);
+   }
+
    /**
     * Tests if the specified object is a key in this table.
     *
@@ -0,0 +1,109 @@
+package org.infinispan.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe count-min sketch estimating the popularity of keys within a time window, as used by the
+ * {@link BoundedConcurrentHashMap.Eviction#TINY_LFU} admission policy.
+ * <p/>
+ * Each key is mapped to four 4-bit counters, each one stored in a different {@code long} of the table, so the
+ * estimated frequency of a key saturates at 15. Once the number of recorded increments reaches the sample size, all
+ * the counters are halved so that the sketch keeps adapting to changes of the access pattern.
+ * <p/>
+ * See "TinyLFU: A Highly Efficient Cache Admission Policy" by Gil Einziger, Roy Friedman and Ben Manes.
+ *
+ * @since 7.0
+ */
+final class FrequencySketch {
+
+   private static final long[] SEEDS = {
+         0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+   /** Clears the upper bit of every 4-bit counter after they are shifted right by one. */
+   private static final long RESET_MASK = 0x7777777777777777L;
+
+   private static final long COUNTER_MASK = 0xfL;
+
+   private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+   private final AtomicLongArray table;
+   private final int tableMask;
+   private final int sampleSize;
+   private final AtomicInteger size = new AtomicInteger();
+
+   /**
+    * @param maximumSize the maximum number of entries of the cache whose accesses are recorded
+    */
+   FrequencySketch(int maximumSize) {
+      int max = Math.max(maximumSize, 1);
+      int tableSize = 1;
+      while (tableSize < max && tableSize < MAXIMUM_TABLE_SIZE) {
+         tableSize <<= 1;
+      }
+      this.table = new AtomicLongArray(tableSize);
+      this.tableMask = tableSize - 1;
+      this.sampleSize = max > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : 10 * max;
+   }
+
+   /**
+    * Returns the estimated number of occurrences of the given hash, up to 15.
+    */
+   int frequency(int hash) {
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+         int offset = (start + i) << 2;
+         int count = (int) ((table.get(indexOf(hash, i)) >>> offset) & COUNTER_MASK);
+         frequency = Math.min(frequency, count);
+      }
+      return frequency;
+   }
+
+   /**
+    * Records an occurrence of the given hash, halving all the counters if the sample size has been reached.
+    */
+   void increment(int hash) {
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+         added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      // only a single thread observes the sample size being reached
+      if (added && size.incrementAndGet() == sampleSize) {
+         reset();
+      }
+   }
+
+   private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = COUNTER_MASK << offset;
+      for (;;) {
+         long current = table.get(index);
+         if ((current & mask) == mask) {
+            return false;
+         }
+         if (table.compareAndSet(index, current, current + (1L << offset))) {
+            return true;
+         }
+      }
+   }
+
+   private int indexOf(int hash, int depth) {
+      long h = (hash + SEEDS[depth]) * SEEDS[depth];
+      h += h >>> 32;
+      return (int) h & tableMask;
+   }
+
+   private void reset() {
+      for (int i = 0; i < table.length(); i++) {
+         for (;;) {
+            long current = table.get(i);
+            if (table.compareAndSet(i, current, (current >>> 1) & RESET_MASK)) {
+               break;
+            }
+         }
+      }
+      size.addAndGet(-(sampleSize >>> 1));
+   }
+}
@@ -1106,4 +1106,12 @@ void asyncStoreShutdownTimeoutTooHigh(long configuredAsyncStopTimeout,
 
    @Message(value = "Unable to acquire lock after %s for key %s and requestor %s. Lock is held by %s, while request came from %s", id = 299)
    TimeoutException unableToAcquireLock(String timeout, Object key, Object requestor, Object owner, Address origin);
+
+   @LogMessage(level = ERROR)
+   @Message(value = "Error compacting log file store segment %s", id = 300)
+   void errorCompactingLogFileStore(String path, @Cause Throwable cause);
+
+   @LogMessage(level = WARN)
+   @Message(value = "X-Site state transfer to '%s' did not complete for segments %s. Pushing the state again only sends these segments.", id = 301)
+   void xsiteStateTransferIncomplete(String site, String segments);
 }
@@ -0,0 +1,468 @@
+package org.infinispan.xsite;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.tx.PrepareCommand;
+import org.infinispan.commands.write.ClearCommand;
+import org.infinispan.commands.write.DataWriteCommand;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.PutMapCommand;
+import org.infinispan.commands.write.RemoveCommand;
+import org.infinispan.commands.write.ReplaceCommand;
+import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.equivalence.EquivalentLinkedHashMap;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.configuration.cache.BackupConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.container.versioning.InequalVersionComparisonResult;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.remoting.transport.BackupResponse;
+import org.infinispan.remoting.transport.Transport;
+import org.infinispan.transaction.xa.TransactionFactory;
+import org.infinispan.util.TimeService;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Replicates the writes to an asynchronous backup site in batches.
+ * <p/>
+ * The writes are queued per key, a write replacing the one already queued for the same key unless its version is
+ * older (the versions are only compared when both writes have one). Since the write a conditional write depends on may
+ * have been replaced, the conditional writes are queued as the unconditional writes of their outcome. A single thread takes up to {@code batchSize}
+ * writes from the queue, waiting at most {@code flushInterval} milliseconds for the batch to fill up, and sends them to
+ * the site in a one phase prepare, waiting for the site to acknowledge it before sending the next batch. A batch that
+ * could not be delivered is retried until the site is taken offline.
+ * <p/>
+ * If a backlog is configured, the writes that don't fit in memory, or made while the site is offline, are appended to
+ * it and sent, in order, before the writes queued in memory when the site is back online. Otherwise, a write that
+ * doesn't fit in memory evicts the oldest write queued, so that the writers are never blocked by a slow site.
+ *
+ * @since 7.0
+ */
+final class AsyncBackupQueue implements Runnable {
+
+   private static final Log log = LogFactory.getLog(AsyncBackupQueue.class);
+   private static final boolean trace = log.isTraceEnabled();
+   private static final long MAX_RETRY_DELAY = 10000;
+
+   private final String cacheName;
+   private final String site;
+   private final XSiteAsyncQueueConfiguration config;
+   private final long replicationTimeout;
+   private final Transport transport;
+   private final CommandsFactory commandsFactory;
+   private final TransactionFactory transactionFactory;
+   private final OfflineStatus offlineStatus;
+   private final TimeService timeService;
+   private final BackupBacklog backlog;
+
+   private final ReentrantLock lock = new ReentrantLock();
+   private final Condition batchReady = lock.newCondition();
+   //guarded by lock
+   private final EquivalentLinkedHashMap<Object, QueuedWrite> pending;
+
+   //only accessed by the sender thread
+   private List<WriteCommand> inFlight;
+   private long retryDelay;
+   private volatile int inFlightSize;
+   private volatile long inFlightBacklogPosition = -1;
+   private volatile long inFlightTimestamp = -1;
+
+   private volatile boolean running;
+   private Thread sender;
+
+   private final AtomicLong writesCoalesced = new AtomicLong();
+   private final AtomicLong writesDropped = new AtomicLong();
+
+   AsyncBackupQueue(String cacheName, BackupConfiguration backupConfiguration, Equivalence<Object> keyEquivalence,
+                    Transport transport, CommandsFactory commandsFactory, TransactionFactory transactionFactory,
+                    OfflineStatus offlineStatus, TimeService timeService, StreamingMarshaller marshaller) {
+      this.cacheName = cacheName;
+      this.site = backupConfiguration.site();
+      this.config = backupConfiguration.asyncQueue();
+      this.replicationTimeout = backupConfiguration.replicationTimeout();
+      this.transport = transport;
+      this.commandsFactory = commandsFactory;
+      this.transactionFactory = transactionFactory;
+      this.offlineStatus = offlineStatus;
+      this.timeService = timeService;
+      this.pending = new EquivalentLinkedHashMap<Object, QueuedWrite>(
+            Math.min(config.maxQueueSize(), 1024), 0.75f, EquivalentLinkedHashMap.IterationOrder.INSERT_ORDER,
+            keyEquivalence, AnyEquivalence.getInstance());
+      this.backlog = config.backlogLocation() == null ? null :
+            new BackupBacklog(new File(config.backlogLocation(), cacheName + "-" + site + ".backlog"),
+                              config.maxBacklogSize(), marshaller);
+   }
+
+   void start() throws Exception {
+      if (backlog != null) {
+         backlog.open();
+         if (!backlog.isEmpty()) {
+            log.debugf("Resuming the replication of %s writes to site %s from the backlog", backlog.size(), site);
+         }
+      }
+      running = true;
+      sender = new Thread(this, "XSiteAsyncQueue-" + cacheName + "-" + site);
+      sender.setDaemon(true);
+      sender.start();
+   }
+
+   void stop() throws Exception {
+      running = false;
+      if (sender != null) {
+         sender.interrupt();
+         sender.join(replicationTimeout);
+      }
+      lock.lock();
+      try {
+         if (backlog != null) {
+            //keep what was not delivered for the next start, the batch taken from memory being older than the
+            //writes that overflowed to the backlog since
+            if (inFlight != null && inFlightBacklogPosition < 0) {
+               backlog.prepend(inFlight, inFlightTimestamp);
+               clearInFlight();
+            }
+            for (QueuedWrite write : pending.values()) {
+               if (!backlog.append(write.command, write.timestamp)) {
+                  break;
+               }
+            }
+            backlog.close();
+         } else if (!pending.isEmpty()) {
+            log.debugf("Discarding %s writes not replicated to site %s", pending.size(), site);
+         }
+         pending.clear();
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Queues the modifications to be sent to the site. Never blocks: if the queue is full and there is no backlog, the
+    * oldest writes queued are dropped.
+    */
+   void enqueue(Collection<WriteCommand> modifications) throws Exception {
+      long now = timeService.wallClockTime();
+      lock.lock();
+      try {
+         if (backlog == null && offlineStatus.isOffline()) {
+            if (trace) log.tracef("The site '%s' is offline, not backing up information to it", site);
+            return;
+         }
+         for (WriteCommand command : modifications) {
+            if (command instanceof PutMapCommand) {
+               PutMapCommand putMap = (PutMapCommand) command;
+               for (Map.Entry<Object, Object> entry : putMap.getMap().entrySet()) {
+                  add(commandsFactory.buildPutKeyValueCommand(entry.getKey(), entry.getValue(), putMap.getMetadata(),
+                                                              putMap.getFlags()), now);
+               }
+            } else {
+               add(unconditional(command), now);
+            }
+         }
+         if (pending.size() >= config.batchSize()) {
+            batchReady.signal();
+         }
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * @return the number of writes waiting to be sent, in memory and in the backlog.
+    */
+   long getQueueDepth() {
+      lock.lock();
+      try {
+         //a batch read from the backlog stays in it until acknowledged
+         int inMemory = inFlightBacklogPosition < 0 ? inFlightSize : 0;
+         return inMemory + pending.size() + (backlog == null ? 0 : backlog.size());
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * @return the time, in milliseconds, the oldest write not yet acknowledged by the site is waiting for, or 0 if
+    *         there is none.
+    */
+   long getReplicationLag() {
+      long oldest = inFlightTimestamp;
+      if (oldest < 0) {
+         lock.lock();
+         try {
+            if (backlog != null) {
+               oldest = backlog.oldestTimestamp();
+            }
+            if (oldest < 0 && !pending.isEmpty()) {
+               oldest = pending.values().iterator().next().timestamp;
+            }
+         } catch (Exception e) {
+            log.debugf(e, "Unable to read the backlog of site %s", site);
+         } finally {
+            lock.unlock();
+         }
+      }
+      return oldest < 0 ? 0 : Math.max(0, timeService.wallClockTime() - oldest);
+   }
+
+   long getWritesCoalesced() {
+      return writesCoalesced.get();
+   }
+
+   long getWritesDropped() {
+      return writesDropped.get();
+   }
+
+   @Override
+   public void run() {
+      while (running) {
+         try {
+            if (inFlight == null && !nextBatch()) {
+               continue;
+            }
+            if (offlineStatus.isOffline()) {
+               Thread.sleep(config.flushInterval());
+               continue;
+            }
+            if (send(inFlight)) {
+               acknowledge();
+            } else {
+               Thread.sleep(retryDelay);
+               retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+         } catch (Throwable t) {
+            if (running) {
+               log.warnXsiteBackupFailed(cacheName, site, t);
+               //don't spin on a batch that can't be sent
+               dropInFlight();
+            }
+         }
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "AsyncBackupQueue{" +
+            "cacheName='" + cacheName + '\'' +
+            ", site='" + site + '\'' +
+            '}';
+   }
+
+   private void add(WriteCommand command, long now) throws Exception {
+      if (command instanceof ClearCommand) {
+         //the writes queued before the clear don't need to reach the site
+         writesCoalesced.addAndGet(pending.size());
+         pending.clear();
+      }
+      if (backlog != null && (!backlog.isEmpty() || offlineStatus.isOffline())) {
+         //keep the order: once a write is in the backlog, all the following ones go there too, and the writes made
+         //while the site is offline don't need to wait in memory
+         moveToBacklog();
+         appendToBacklog(command, now);
+         return;
+      }
+      Object key = command instanceof DataWriteCommand ? ((DataWriteCommand) command).getKey() : new Object();
+      QueuedWrite queued = pending.get(key);
+      if (queued != null) {
+         writesCoalesced.incrementAndGet();
+         if (!isOlder(command, queued.command)) {
+            pending.put(key, new QueuedWrite(command, queued.timestamp));
+         }
+         return;
+      }
+      if (pending.size() >= config.maxQueueSize()) {
+         if (backlog != null) {
+            moveToBacklog();
+            appendToBacklog(command, now);
+            return;
+         }
+         Iterator<QueuedWrite> oldest = pending.values().iterator();
+         QueuedWrite dropped = oldest.next();
+         oldest.remove();
+         if (trace) log.tracef("The queue of site %s is full, dropping %s", site, dropped.command);
+         if (writesDropped.getAndIncrement() == 0) {
+            log.warnXsiteBackupFailed(cacheName, site, "The asynchronous replication queue is full, dropping the oldest writes");
+         }
+         batchReady.signal();
+      }
+      pending.put(key, new QueuedWrite(command, now));
+   }
+
+   /**
+    * Moves the writes queued in memory to the backlog, the backlog being sent before them.
+    */
+   private void moveToBacklog() throws Exception {
+      for (QueuedWrite write : pending.values()) {
+         appendToBacklog(write.command, write.timestamp);
+      }
+      pending.clear();
+   }
+
+   /**
+    * Only the successful writes are queued, so a conditional write is replaced by the write of its outcome, the same
+    * way the non transactional writes are backed up synchronously.
+    */
+   private WriteCommand unconditional(WriteCommand command) {
+      if (command instanceof ReplaceCommand) {
+         ReplaceCommand replace = (ReplaceCommand) command;
+         return commandsFactory.buildPutKeyValueCommand(replace.getKey(), replace.getNewValue(), replace.getMetadata(),
+                                                        replace.getFlags());
+      } else if (command instanceof PutKeyValueCommand && command.isConditional()) {
+         PutKeyValueCommand put = (PutKeyValueCommand) command;
+         return commandsFactory.buildPutKeyValueCommand(put.getKey(), put.getValue(), put.getMetadata(), put.getFlags());
+      } else if (command instanceof RemoveCommand && command.isConditional()) {
+         return commandsFactory.buildRemoveCommand(((RemoveCommand) command).getKey(), null, command.getFlags());
+      }
+      return command;
+   }
+
+   private void appendToBacklog(WriteCommand command, long now) throws Exception {
+      if (backlog.append(command, now)) {
+         return;
+      }
+      writesDropped.addAndGet(backlog.size() + 1);
+      backlog.discard();
+      log.warnXsiteBackupFailed(cacheName, site, "The backlog is full and was discarded, the state must be pushed to the site again");
+   }
+
+   private boolean isOlder(WriteCommand command, WriteCommand queued) {
+      EntryVersion version = version(command);
+      EntryVersion queuedVersion = version(queued);
+      return version != null && queuedVersion != null &&
+            version.compareTo(queuedVersion) == InequalVersionComparisonResult.BEFORE;
+   }
+
+   private static EntryVersion version(WriteCommand command) {
+      Metadata metadata = command.getMetadata();
+      return metadata == null ? null : metadata.version();
+   }
+
+   /**
+    * Takes the next batch to send, the backlog first.
+    *
+    * @return {@code false} if there is nothing to send.
+    */
+   private boolean nextBatch() throws Exception {
+      lock.lock();
+      try {
+         long remaining = TimeUnit.MILLISECONDS.toNanos(config.flushInterval());
+         while (running && pending.size() < config.batchSize() && (backlog == null || backlog.isEmpty()) &&
+               remaining > 0) {
+            remaining = batchReady.awaitNanos(remaining);
+         }
+         retryDelay = config.flushInterval();
+         if (backlog != null && !backlog.isEmpty()) {
+            List<BackupBacklog.Record> records = backlog.read(config.batchSize());
+            inFlight = new ArrayList<WriteCommand>(records.size());
+            for (BackupBacklog.Record record : records) {
+               inFlight.add(record.command);
+            }
+            inFlightSize = inFlight.size();
+            inFlightTimestamp = records.get(0).timestamp;
+            inFlightBacklogPosition = records.get(records.size() - 1).end;
+            return true;
+         }
+         if (pending.isEmpty()) {
+            return false;
+         }
+         inFlight = new ArrayList<WriteCommand>(Math.min(pending.size(), config.batchSize()));
+         inFlightTimestamp = pending.values().iterator().next().timestamp;
+         for (Iterator<QueuedWrite> it = pending.values().iterator(); it.hasNext() && inFlight.size() < config.batchSize(); ) {
+            inFlight.add(it.next().command);
+            it.remove();
+         }
+         inFlightSize = inFlight.size();
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * @return {@code false} if the batch could not be delivered and must be sent again.
+    */
+   private boolean send(List<WriteCommand> batch) throws Exception {
+      PrepareCommand prepare = commandsFactory.buildPrepareCommand(
+            transactionFactory.newGlobalTransaction(transport.getAddress(), false), batch, true);
+      BackupResponse response = transport.backupRemotely(
+            Collections.singletonList(new XSiteBackup(site, true, replicationTimeout)),
+            commandsFactory.buildSingleXSiteRpcCommand(prepare));
+      response.waitForBackupToFinish();
+      if (response.getCommunicationErrors().contains(site)) {
+         if (offlineStatus.isEnabled()) {
+            offlineStatus.updateOnCommunicationFailure(response.getSendTimeMillis());
+         }
+         if (trace) log.tracef("Unable to send %s writes to site %s, retrying in %s ms", batch.size(), site, retryDelay);
+         return false;
+      }
+      Throwable failure = response.getFailedBackups().get(site);
+      if (failure != null) {
+         //the site received the batch but failed to apply it, sending it again won't help
+         log.warnXsiteBackupFailed(cacheName, site, failure);
+      }
+      if (offlineStatus.isEnabled() && !offlineStatus.isOffline()) {
+         offlineStatus.reset();
+      }
+      return true;
+   }
+
+   private void acknowledge() throws Exception {
+      if (inFlightBacklogPosition >= 0) {
+         lock.lock();
+         try {
+            backlog.acknowledge(inFlightBacklogPosition, inFlight.size());
+         } finally {
+            lock.unlock();
+         }
+      }
+      clearInFlight();
+   }
+
+   private void dropInFlight() {
+      if (inFlight == null) {
+         return;
+      }
+      writesDropped.addAndGet(inFlight.size());
+      try {
+         acknowledge();
+      } catch (Exception e) {
+         log.debugf(e, "Unable to drop a batch from the backlog of site %s", site);
+         clearInFlight();
+      }
+   }
+
+   private void clearInFlight() {
+      inFlight = null;
+      inFlightSize = 0;
+      inFlightBacklogPosition = -1;
+      inFlightTimestamp = -1;
+   }
+
+   private static final class QueuedWrite {
+      final WriteCommand command;
+      final long timestamp;
+
+      private QueuedWrite(WriteCommand command, long timestamp) {
+         this.command = command;
+         this.timestamp = timestamp;
+      }
+   }
+}
@@ -0,0 +1,250 @@
+package org.infinispan.xsite;
+
+import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only file holding the writes that could not be kept in memory by an {@link AsyncBackupQueue}.
+ * <p/>
+ * The file starts with a header holding the position of the first record not yet acknowledged by the backup site,
+ * followed by the records, each one made of the time the write was queued, the length of the marshalled command and
+ * the marshalled command. The file is truncated once all its records were acknowledged. Since the read position is
+ * persisted, the records not acknowledged before a restart are sent again afterwards.
+ * <p/>
+ * Not thread safe, the queue guards the access to it.
+ *
+ * @since 7.0
+ */
+final class BackupBacklog {
+
+   private static final int HEADER_SIZE = 8;
+   private static final int RECORD_HEADER_SIZE = 12;
+
+   private final File file;
+   private final long maxSize;
+   private final StreamingMarshaller marshaller;
+   private RandomAccessFile raf;
+   private FileChannel channel;
+   private long readPosition;
+   private long writePosition;
+   private int records;
+
+   BackupBacklog(File file, long maxSize, StreamingMarshaller marshaller) {
+      this.file = file;
+      this.maxSize = maxSize;
+      this.marshaller = marshaller;
+   }
+
+   void open() throws IOException {
+      File dir = file.getParentFile();
+      if (dir != null && !dir.exists() && !dir.mkdirs()) {
+         throw new IOException("Unable to create the backlog directory " + dir);
+      }
+      raf = new RandomAccessFile(file, "rw");
+      channel = raf.getChannel();
+      writePosition = channel.size();
+      if (writePosition < HEADER_SIZE) {
+         truncate();
+         return;
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      readFully(header, 0);
+      readPosition = header.getLong(0);
+      //count the records left from a previous run, dropping a partially written one
+      long position = readPosition;
+      ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      while (position + RECORD_HEADER_SIZE <= writePosition) {
+         recordHeader.clear();
+         readFully(recordHeader, position);
+         long end = position + RECORD_HEADER_SIZE + recordHeader.getInt(8);
+         if (end > writePosition) {
+            break;
+         }
+         position = end;
+         records++;
+      }
+      if (position != writePosition) {
+         channel.truncate(position);
+         writePosition = position;
+      }
+   }
+
+   /**
+    * @return {@code false} if the record doesn't fit in the backlog.
+    */
+   boolean append(WriteCommand command, long timestamp) throws IOException, InterruptedException {
+      ByteBuffer buffer = record(command, timestamp);
+      if (writePosition + buffer.remaining() > maxSize) {
+         return false;
+      }
+      while (buffer.hasRemaining()) {
+         writePosition += channel.write(buffer, writePosition);
+      }
+      records++;
+      return true;
+   }
+
+   /**
+    * Inserts the writes before the records not acknowledged yet, e.g. the writes taken from memory that were not
+    * delivered while the writes that followed them overflowed to the backlog. The file is rewritten, so this is only
+    * meant to be used when the queue stops.
+    */
+   void prepend(List<WriteCommand> commands, long timestamp) throws IOException, InterruptedException {
+      File tmp = new File(file.getPath() + ".tmp");
+      RandomAccessFile tmpRaf = new RandomAccessFile(tmp, "rw");
+      try {
+         FileChannel tmpChannel = tmpRaf.getChannel();
+         tmpChannel.truncate(0);
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         header.putLong(0, HEADER_SIZE);
+         tmpChannel.position(0);
+         while (header.hasRemaining()) {
+            tmpChannel.write(header);
+         }
+         for (WriteCommand command : commands) {
+            ByteBuffer buffer = record(command, timestamp);
+            while (buffer.hasRemaining()) {
+               tmpChannel.write(buffer);
+            }
+         }
+         long copied = 0;
+         while (readPosition + copied < writePosition) {
+            copied += channel.transferTo(readPosition + copied, writePosition - readPosition - copied, tmpChannel);
+         }
+         tmpChannel.force(true);
+      } finally {
+         tmpRaf.close();
+      }
+      raf.close();
+      if (!tmp.renameTo(file)) {
+         //some platforms don't replace an existing file
+         if (!file.delete() || !tmp.renameTo(file)) {
+            throw new IOException("Unable to replace the backlog file " + file + " with " + tmp);
+         }
+      }
+      records = 0;
+      open();
+   }
+
+   /**
+    * Reads up to {@code maxRecords} records, starting with the oldest one not acknowledged.
+    */
+   List<Record> read(int maxRecords) throws IOException, ClassNotFoundException {
+      if (records == 0) {
+         return Collections.emptyList();
+      }
+      List<Record> result = new ArrayList<Record>(Math.min(records, maxRecords));
+      long position = readPosition;
+      ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      while (result.size() < maxRecords && position < writePosition) {
+         recordHeader.clear();
+         readFully(recordHeader, position);
+         ByteBuffer bytes = ByteBuffer.allocate(recordHeader.getInt(8));
+         readFully(bytes, position + RECORD_HEADER_SIZE);
+         position += RECORD_HEADER_SIZE + bytes.capacity();
+         WriteCommand command = (WriteCommand) marshaller.objectFromByteBuffer(bytes.array());
+         result.add(new Record(command, recordHeader.getLong(0), position));
+      }
+      return result;
+   }
+
+   /**
+    * Marks the records before {@code position} as sent.
+    */
+   void acknowledge(long position, int count) throws IOException {
+      records -= count;
+      if (records <= 0 || position >= writePosition) {
+         truncate();
+         return;
+      }
+      readPosition = position;
+      writeHeader();
+   }
+
+   /**
+    * Drops all the records.
+    */
+   void discard() throws IOException {
+      truncate();
+   }
+
+   boolean isEmpty() {
+      return records == 0;
+   }
+
+   int size() {
+      return records;
+   }
+
+   /**
+    * @return the time the oldest record not acknowledged was queued, or -1 if the backlog is empty.
+    */
+   long oldestTimestamp() throws IOException {
+      if (records == 0) {
+         return -1;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(8);
+      readFully(buffer, readPosition);
+      return buffer.getLong(0);
+   }
+
+   void close() throws IOException {
+      if (channel != null) {
+         channel.force(true);
+         raf.close();
+         channel = null;
+      }
+   }
+
+   private ByteBuffer record(WriteCommand command, long timestamp) throws IOException, InterruptedException {
+      byte[] bytes = marshaller.objectToByteBuffer(command);
+      ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+      buffer.putLong(timestamp).putInt(bytes.length).put(bytes).flip();
+      return buffer;
+   }
+
+   private void truncate() throws IOException {
+      channel.truncate(HEADER_SIZE);
+      readPosition = HEADER_SIZE;
+      writePosition = HEADER_SIZE;
+      records = 0;
+      writeHeader();
+   }
+
+   private void writeHeader() throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putLong(0, readPosition);
+      while (header.hasRemaining()) {
+         channel.write(header, header.position());
+      }
+   }
+
+   private void readFully(ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+         if (channel.read(buffer, position + buffer.position()) < 0) {
+            throw new IOException("Unexpected end of backlog file " + file);
+         }
+      }
+   }
+
+   static final class Record {
+      final WriteCommand command;
+      final long timestamp;
+      final long end;
+
+      private Record(WriteCommand command, long timestamp, long end) {
+         this.command = command;
+         this.timestamp = timestamp;
+         this.end = end;
+      }
+   }
+}
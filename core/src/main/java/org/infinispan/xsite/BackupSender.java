@@ -47,6 +47,18 @@ public interface BackupSender {
     */
    Map<String, Boolean> status();
 
+   /**
+    * Returns the number of writes waiting to be replicated to the given site, or -1 if the writes to the site are not
+    * replicated through an asynchronous queue.
+    */
+   long getQueueDepth(String siteName);
+
+   /**
+    * Returns the time, in milliseconds, the oldest write not yet replicated to the given site is waiting for, or -1 if
+    * the writes to the site are not replicated through an asynchronous queue.
+    */
+   long getReplicationLag(String siteName);
+
    public enum BringSiteOnlineResponse {
       NO_SUCH_SITE,
       ALREADY_ONLINE,
@@ -13,6 +13,7 @@
 import org.infinispan.commands.write.RemoveCommand;
 import org.infinispan.commands.write.ReplaceCommand;
 import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.commons.marshall.StreamingMarshaller;
 import org.infinispan.commons.util.CollectionFactory;
 import org.infinispan.commons.util.Util;
 import org.infinispan.configuration.cache.BackupConfiguration;
@@ -22,13 +23,16 @@
 import org.infinispan.configuration.global.GlobalConfiguration;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.impl.TxInvocationContext;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
 import org.infinispan.remoting.transport.AggregateBackupResponse;
 import org.infinispan.remoting.transport.BackupResponse;
 import org.infinispan.remoting.transport.Transport;
 import org.infinispan.transaction.impl.LocalTransaction;
 import org.infinispan.transaction.impl.TransactionTable;
+import org.infinispan.transaction.xa.TransactionFactory;
 import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -45,6 +49,8 @@
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
 /**
  * @author Mircea Markus
  * @since 5.2
@@ -60,8 +66,11 @@ public class BackupSenderImpl implements BackupSender {
    private TransactionTable txTable;
    private TimeService timeService;
    private CommandsFactory commandsFactory;
+   private TransactionFactory transactionFactory;
+   private StreamingMarshaller marshaller;
    private final Map<String, CustomFailurePolicy> siteFailurePolicy = new HashMap<String, CustomFailurePolicy>();
    private final ConcurrentMap<String, OfflineStatus> offlineStatus = CollectionFactory.makeConcurrentMap();
+   private final Map<String, AsyncBackupQueue> asyncQueues = new HashMap<String, AsyncBackupQueue>();
 
 
    private final String localSiteName;
@@ -76,17 +85,20 @@ public BackupSenderImpl(String localSiteName) {
 
    @Inject
    public void init(Cache cache, Transport transport, TransactionTable txTable, GlobalConfiguration gc,
-                    TimeService timeService, CommandsFactory commandsFactory) {
+                    TimeService timeService, CommandsFactory commandsFactory, TransactionFactory transactionFactory,
+                    @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
       this.cache = cache;
       this.transport = transport;
       this.txTable = txTable;
       this.globalConfig = gc;
       this.timeService = timeService;
       this.commandsFactory = commandsFactory;
+      this.transactionFactory = transactionFactory;
+      this.marshaller = marshaller;
    }
 
    @Start
-   public void start() {
+   public void start() throws Exception {
       this.config = cache.getCacheConfiguration();
       this.cacheName = cache.getName();
       for (BackupConfiguration bc : config.sites().enabledBackups()) {
@@ -100,7 +112,22 @@ public void start() {
          }
          OfflineStatus offline = new OfflineStatus(bc.takeOffline(), timeService);
          offlineStatus.put(bc.site(), offline);
+         if (bc.asyncQueue().enabled() && !bc.site().equals(localSiteName)) {
+            AsyncBackupQueue queue = new AsyncBackupQueue(cacheName, bc, config.dataContainer().keyEquivalence(),
+                                                          transport, commandsFactory, transactionFactory, offline,
+                                                          timeService, marshaller);
+            queue.start();
+            asyncQueues.put(bc.site(), queue);
+         }
+      }
+   }
+
+   @Stop
+   public void stop() throws Exception {
+      for (AsyncBackupQueue queue : asyncQueues.values()) {
+         queue.stop();
       }
+      asyncQueues.clear();
    }
 
    @Override
@@ -113,6 +140,9 @@ public BackupResponse backupPrepare(PrepareCommand command) throws Exception {
                                                                    command.isOnePhaseCommit());
       //if we run a 2PC then filter out 1PC prepare backup calls as they will happen during the local commit phase.
       BackupFilter filter = !prepare.isOnePhaseCommit() ? BackupFilter.KEEP_2PC_ONLY : BackupFilter.KEEP_ALL;
+      if (filter == BackupFilter.KEEP_ALL) {
+         enqueue(modifications);
+      }
       List<XSiteBackup> backups = calculateBackupInfo(filter);
       return backupCommand(prepare, backups);
    }
@@ -149,6 +179,7 @@ private void updateOfflineSites(BackupResponse backupResponse) {
 
    @Override
    public BackupResponse backupWrite(WriteCommand command) throws Exception {
+      enqueue(Collections.singletonList(command));
       List<XSiteBackup> xSiteBackups = calculateBackupInfo(BackupFilter.KEEP_ALL);
       return backupCommand(command, xSiteBackups);
    }
@@ -192,6 +223,12 @@ public TakeSiteOfflineResponse takeSiteOffline(String siteName) {
       }
    }
 
+   private void enqueue(List<WriteCommand> modifications) throws Exception {
+      for (AsyncBackupQueue queue : asyncQueues.values()) {
+         queue.enqueue(modifications);
+      }
+   }
+
    private BackupResponse backupCommand(VisitableCommand command, List<XSiteBackup> xSiteBackups) throws Exception {
       return transport.backupRemotely(xSiteBackups, commandsFactory.buildSingleXSiteRpcCommand(command));
    }
@@ -202,6 +239,7 @@ private BackupResponse sendTo1PCBackups(CommitCommand command) throws Exception
       if (modifications.isEmpty()) {
          return EMPTY_RESPONSE;
       }
+      enqueue(modifications);
       List<XSiteBackup> backups = calculateBackupInfo(BackupFilter.KEEP_1PC_ONLY);
       PrepareCommand prepare = commandsFactory.buildPrepareCommand(command.getGlobalTransaction(),
                                                                    modifications, true);
@@ -249,6 +287,11 @@ private List<XSiteBackup> calculateBackupInfo(BackupFilter backupFilter) {
                continue;
          }
 
+         if (asyncQueues.containsKey(bc.site())) {
+            //replicated through the queue
+            continue;
+         }
+
          if (isOffline(bc.site())) {
             log.tracef("The site '%s' is offline, not backing up information to it", bc.site());
             continue;
@@ -371,6 +414,18 @@ public OfflineStatus getOfflineStatus(String site) {
       return offlineStatus.get(site);
    }
 
+   @Override
+   public long getQueueDepth(String site) {
+      AsyncBackupQueue queue = asyncQueues.get(site);
+      return queue == null ? -1 : queue.getQueueDepth();
+   }
+
+   @Override
+   public long getReplicationLag(String site) {
+      AsyncBackupQueue queue = asyncQueues.get(site);
+      return queue == null ? -1 : queue.getReplicationLag();
+   }
+
    @Override
    public Map<String, Boolean> status() {
       Map<String, Boolean> result = new HashMap<String, Boolean>(offlineStatus.size());
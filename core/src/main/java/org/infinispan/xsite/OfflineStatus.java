@@ -31,6 +31,7 @@ public class OfflineStatus {
    private long firstFailureTime;
    private int failureCount;
    private volatile boolean forceOffline = false;
+   private long timesBroughtOnline;
 
    public OfflineStatus(TakeOfflineConfiguration takeOfflineConfiguration, TimeService timeService) {
       this.takeOffline = takeOfflineConfiguration;
@@ -107,7 +108,18 @@ public void amend(TakeOfflineConfiguration takeOffline) {
       reset();
    }
 
-   public void reset() {
+   /**
+    * @return the number of times the site was brought back online. The writes made while a site is offline are not
+    *         backed up, so a change of this number tells that the site may have missed some writes.
+    */
+   public synchronized long getTimesBroughtOnline() {
+      return timesBroughtOnline;
+   }
+
+   public synchronized void reset() {
+      if (isOffline()) {
+         timesBroughtOnline++;
+      }
       recordingOfflineStatus = false;
       failureCount = 0;
       forceOffline = false;
@@ -18,7 +18,8 @@ public enum AdminOperation {
       STATUS,
       TAKE_OFFLINE,
       BRING_ONLINE,
-      AMEND_TAKE_OFFLINE;
+      AMEND_TAKE_OFFLINE,
+      ASYNC_QUEUE_STATUS;
    }
 
    public enum Status {
@@ -75,6 +76,9 @@ public Object perform(InvocationContext ctx) throws Throwable {
             backupSender.getOfflineStatus(siteName).amend(afterFailures, minTimeToWait);
             return null;
          }
+         case ASYNC_QUEUE_STATUS: {
+            return new long[]{backupSender.getQueueDepth(siteName), backupSender.getReplicationLag(siteName)};
+         }
          default: {
             throw new IllegalStateException("Unhandled admin operation " + adminOperation);
          }
@@ -245,6 +245,84 @@ public final List<String> getRunningStateTransfer() {
       return stateTransferManager.getRunningStateTransfers();
    }
 
+   @ManagedOperation(displayName = "Push state progress",
+                     description = "Shows the progress of the last state push to the remote site: the entries sent " +
+                           "by all the nodes, the throughput and the estimated time to complete.",
+                     name = "PushStateProgress")
+   public final String getPushStateProgress(@Parameter(description = "The destination site name", name = "SiteName") String siteName) {
+      long[] progress;
+      try {
+         progress = stateTransferManager.getStatePushProgress(siteName);
+      } catch (Throwable throwable) {
+         log.debugf(throwable, "Unable to get the progress of the state push to '%s'.", siteName);
+         return String.format("Unable to get the progress of the state push to '%s'. %s", siteName,
+                              throwable.getLocalizedMessage());
+      }
+      if (progress == null) {
+         return String.format("No state pushed to '%s'.", siteName);
+      }
+      long sent = progress[0];
+      long estimated = progress[1];
+      long elapsedMillis = progress[2];
+      boolean running = progress[3] > 0;
+      double throughput = elapsedMillis == 0 ? 0 : sent * 1000.0 / elapsedMillis;
+      StringBuilder result = new StringBuilder();
+      result.append(running ? "RUNNING" : "FINISHED")
+            .append(", sent=").append(sent).append(" entries")
+            .append(", estimated=").append(estimated).append(" entries")
+            .append(", elapsed=").append(elapsedMillis).append(" ms")
+            .append(", throughput=").append(String.format("%.1f", throughput)).append(" entries/s");
+      if (running) {
+         result.append(", ETA=");
+         if (throughput > 0) {
+            result.append((long) (Math.max(0, estimated - sent) * 1000 / throughput)).append(" ms");
+         } else {
+            result.append("unknown");
+         }
+      }
+      return result.toString();
+   }
+
+   @ManagedOperation(displayName = "Asynchronous queue depth",
+                     description = "Returns the number of writes waiting to be replicated to the given site, in all " +
+                           "the nodes in the cluster.",
+                     name = "asyncQueueDepth")
+   public final String asyncQueueDepth(@Parameter(name = "site", description = "The name of the backup site") String site) {
+      return asyncQueueStatus(site, 0);
+   }
+
+   @ManagedOperation(displayName = "Replication lag",
+                     description = "Returns the time, in milliseconds, the oldest write not yet replicated to the " +
+                           "given site is waiting for, in all the nodes in the cluster.",
+                     name = "replicationLag")
+   public final String replicationLag(@Parameter(name = "site", description = "The name of the backup site") String site) {
+      return asyncQueueStatus(site, 1);
+   }
+
+   /**
+    * @param index 0 for the queue depth, summed over all the nodes, 1 for the replication lag, the maximum of all the
+    *              nodes.
+    */
+   private String asyncQueueStatus(String site, int index) {
+      if (backupSender.getOfflineStatus(site) == null)
+         return incorrectSiteName(site);
+      long result = index == 0 ? backupSender.getQueueDepth(site) : backupSender.getReplicationLag(site);
+      if (result < 0)
+         return "The writes to site " + site + " are not replicated through an asynchronous queue";
+
+      XSiteAdminCommand command = new XSiteAdminCommand(cache.getName(), site, XSiteAdminCommand.AdminOperation.ASYNC_QUEUE_STATUS, null, null);
+      Map<Address, Response> responses = invokeRemotely(command);
+      List<Address> failed = checkForErrors(responses);
+      if (!failed.isEmpty()) {
+         return rpcError(failed, "Could not query nodes ");
+      }
+      for (Response response : responses.values()) {
+         long value = ((long[]) ((SuccessfulResponse) response).getResponseValue())[index];
+         result = index == 0 ? result + value : Math.max(result, value);
+      }
+      return String.valueOf(result);
+   }
+
    private List<Address> checkForErrors(Map<Address, Response> responses) {
       List<Address> failed = new ArrayList<Address>(responses.size());
       for (Map.Entry<Address, Response> e : responses.entrySet()) {
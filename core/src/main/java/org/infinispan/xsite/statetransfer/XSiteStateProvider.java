@@ -36,4 +36,12 @@ public interface XSiteStateProvider {
     * @return a site name collection with the sites in which this cache is sending state.
     */
    public Collection<String> getCurrentStateSending();
+
+   /**
+    * @param siteName the remote site name.
+    * @return the progress of the last state transfer to the remote site, as the number of entries sent, the estimated
+    *         number of entries to send (not counting the entries only in the persistence), the elapsed time in
+    *         milliseconds and 1 if it is still running, 0 otherwise. {@code null} if no state transfer was started.
+    */
+   public long[] getStateTransferProgress(String siteName);
 }
@@ -6,8 +6,11 @@
 import org.infinispan.commons.util.CollectionFactory;
 import org.infinispan.configuration.cache.BackupConfiguration;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.XSiteStateTransferConfiguration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.interceptors.locking.ClusteringDependentLogic;
@@ -18,24 +21,34 @@
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.BackupResponse;
+import org.infinispan.statetransfer.StateTransferManager;
 import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.infinispan.xsite.BackupSender;
+import org.infinispan.xsite.OfflineStatus;
 import org.infinispan.xsite.XSiteBackup;
 import org.infinispan.xsite.XSiteReplicateCommand;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
 import static org.infinispan.persistence.spi.AdvancedCacheLoader.*;
@@ -43,6 +56,15 @@
 
 /**
  * It contains the logic to send state to another site.
+ * <p/>
+ * The segments of which this node is the primary owner are pushed by {@link XSiteStateTransferConfiguration#parallelism()}
+ * threads, each one keeping up to {@link XSiteStateTransferConfiguration#maxInFlightChunks()} chunks sent but not yet
+ * acknowledged. A chunk not acknowledged is sent again a few times, and the segments of its entries are considered
+ * failed if it still isn't. The next state transfer to the same site only sends the segments which failed, unless the
+ * site was offline in between, in which case it may have missed writes to the segments already sent.
+ * <p/>
+ * Only a {@link SegmentedDataContainer} can be split by segment, so with the other data containers the entries in
+ * memory are sent by a single thread, only the iteration of the cache store running in parallel with it.
  *
  * @author Pedro Ruivo
  * @since 7.0
@@ -50,12 +72,19 @@
 public class XSiteStateProviderImpl implements XSiteStateProvider {
 
    private static final int DEFAULT_CHUNK_SIZE = 1024;
+   private static final int MAX_RETRIES = 3;
+   private static final int ALL_SEGMENTS = -1;
+   private static final int PERSISTENCE = -2;
    private static final ExecutorService EXECUTOR_SERVICE = new WithinThreadExecutor();
    private static final Log log = LogFactory.getLog(XSiteStateProviderImpl.class);
    private static final boolean trace = log.isTraceEnabled();
    private static final boolean debug = log.isDebugEnabled();
 
    private final ConcurrentMap<String, StateProviderRunnable> runningStateTransfer;
+   //the last state transfer to each site, kept after it finishes for the progress report
+   private final ConcurrentMap<String, StateProviderRunnable> lastStateTransfer;
+   //the segments already sent to each site by a state transfer which did not complete
+   private final ConcurrentMap<String, CompletedSegments> completedSegments;
 
    private DataContainer<Object, Object> dataContainer;
    private PersistenceManager persistenceManager;
@@ -65,16 +94,23 @@ public class XSiteStateProviderImpl implements XSiteStateProvider {
    private ExecutorService executorService;
    private Configuration configuration;
    private XSiteStateTransferManager stateTransferManager;
+   private StateTransferManager localStateTransferManager;
+   private TimeService timeService;
+   private BackupSender backupSender;
 
    public XSiteStateProviderImpl() {
       runningStateTransfer = CollectionFactory.makeConcurrentMap();
+      lastStateTransfer = CollectionFactory.makeConcurrentMap();
+      completedSegments = CollectionFactory.makeConcurrentMap();
    }
 
    @Inject
    public void inject(DataContainer dataContainer, PersistenceManager persistenceManager, RpcManager rpcManager,
                       ClusteringDependentLogic clusteringDependentLogic, CommandsFactory commandsFactory,
                       @ComponentName(value = ASYNC_TRANSPORT_EXECUTOR) ExecutorService executorService,
-                      Configuration configuration, XSiteStateTransferManager stateTransferManager) {
+                      Configuration configuration, XSiteStateTransferManager stateTransferManager,
+                      StateTransferManager localStateTransferManager, TimeService timeService,
+                      BackupSender backupSender) {
       this.dataContainer = dataContainer;
       this.persistenceManager = persistenceManager;
       this.clusteringDependentLogic = clusteringDependentLogic;
@@ -83,32 +119,32 @@ public void inject(DataContainer dataContainer, PersistenceManager persistenceMa
       this.executorService = executorService;
       this.configuration = configuration;
       this.stateTransferManager = stateTransferManager;
+      this.localStateTransferManager = localStateTransferManager;
+      this.timeService = timeService;
+      this.backupSender = backupSender;
    }
 
    @Override
    public void startStateTransfer(String siteName, Address origin) {
-      int chunkSize = 0;
-      long timeout = 0;
-      boolean found = false;
+      XSiteStateTransferConfiguration stateTransferConfiguration = null;
       for (BackupConfiguration backupConfiguration : configuration.sites().allBackups()) {
          if (backupConfiguration.site().equals(siteName)) {
-            chunkSize = backupConfiguration.stateTransfer().chunkSize();
-            timeout = backupConfiguration.stateTransfer().timeout();
-            found = true;
+            stateTransferConfiguration = backupConfiguration.stateTransfer();
             break;
          }
       }
 
-      if (!found) {
+      if (stateTransferConfiguration == null) {
          throw new CacheException("Unable to start X-Site State Transfer! Backup configuration not found for " +
                                         siteName + "!");
       }
-      StateProviderRunnable runnable = new StateProviderRunnable(siteName, chunkSize, timeout, origin);
+      StateProviderRunnable runnable = new StateProviderRunnable(siteName, stateTransferConfiguration, origin);
       if (runningStateTransfer.putIfAbsent(siteName, runnable) == null) {
          if (debug) {
             log.debugf("Starting state transfer to site '%s'", siteName);
          }
-         executorService.execute(runnable);
+         lastStateTransfer.put(siteName, runnable);
+         runnable.start();
       } else if (debug) {
          log.debugf("Do not start state transfer to site '%s'. It has already started!", siteName);
       }
@@ -120,6 +156,7 @@ public void cancelStateTransfer(String siteName) {
       if (runnable != null) {
          runnable.canceled.set(true);
       }
+      completedSegments.remove(siteName);
    }
 
    @Override
@@ -127,6 +164,12 @@ public Collection<String> getCurrentStateSending() {
       return new ArrayList<String>(runningStateTransfer.keySet());
    }
 
+   @Override
+   public long[] getStateTransferProgress(String siteName) {
+      StateProviderRunnable runnable = lastStateTransfer.get(siteName);
+      return runnable == null ? null : runnable.progress();
+   }
+
    private void notifyStateTransferEnd(final String siteName, final Address origin) {
       runningStateTransfer.remove(siteName);
       if (rpcManager.getAddress().equals(origin)) {
@@ -147,26 +190,31 @@ public Void call() throws Exception {
       }
    }
 
+   /**
+    * @return the number of times the site was brought back online, or -1 if it is offline
+    */
+   private long siteOnlineGeneration(String siteName) {
+      OfflineStatus offlineStatus = backupSender.getOfflineStatus(siteName);
+      if (offlineStatus == null) {
+         return 0;
+      }
+      return offlineStatus.isOffline() ? -1 : offlineStatus.getTimesBroughtOnline();
+   }
+
    private boolean shouldSendKey(Object key) {
       return clusteringDependentLogic.localNodeIsPrimaryOwner(key);
    }
 
-   private void sendFromSharedBuffer(XSiteBackup xSiteBackup, List<XSiteState> sharedBuffer,
-                                     Collection<BackupResponse> responses) throws Exception {
-      if (sharedBuffer.size() == 0) {
-         return;
-      }
-      XSiteState[] privateBuffer = sharedBuffer.toArray(new XSiteState[sharedBuffer.size()]);
-
+   private BackupResponse send(XSiteBackup xSiteBackup, XSiteState[] chunk) throws Exception {
       if (debug) {
-         log.debugf("Sending chunk to site '%s'. Chunk has %s keys.", xSiteBackup.getSiteName(), privateBuffer.length);
+         log.debugf("Sending chunk to site '%s'. Chunk has %s keys.", xSiteBackup.getSiteName(), chunk.length);
       } else if (trace) {
          log.debugf("Sending chunk to site '%s'. Chunk contains %s", xSiteBackup.getSiteName(),
-                    Arrays.toString(privateBuffer));
+                    Arrays.toString(chunk));
       }
 
-      XSiteStatePushCommand command = commandsFactory.buildXSiteStatePushCommand(privateBuffer);
-      responses.add(invokeRemotelyInRemoteSite(command, xSiteBackup));
+      XSiteStatePushCommand command = commandsFactory.buildXSiteStatePushCommand(chunk);
+      return invokeRemotelyInRemoteSite(command, xSiteBackup);
    }
 
    private BackupResponse invokeRemotelyInRemoteSite(XSiteReplicateCommand command, XSiteBackup xSiteBackup) throws Exception {
@@ -177,160 +225,380 @@ private class StateProviderRunnable implements Runnable {
 
       private final XSiteBackup xSiteBackup;
       private final int chunkSize;
+      private final int parallelism;
+      private final int maxInFlightChunks;
       private final Address origin;
       private final AtomicBoolean canceled;
-
-      private StateProviderRunnable(String siteName, int chunkSize, long timeout, Address origin) {
-         this.chunkSize = chunkSize;
+      private final ConsistentHash consistentHash;
+      //the online generation of the site when the state transfer started
+      private final long onlineGeneration;
+      //the segments to send, the only segment of a non clustered cache being 0
+      private final BitSet segments;
+      private final BitSet failedSegments;
+      private final Queue<Integer> units;
+      private final AtomicInteger runningWorkers;
+      private final AtomicLong entriesSent;
+      private final long estimatedEntries;
+      private final long startTime;
+      private volatile long endTime = -1;
+
+      private StateProviderRunnable(String siteName, XSiteStateTransferConfiguration stateTransferConfiguration,
+                                    Address origin) {
+         this.chunkSize = stateTransferConfiguration.chunkSize();
+         this.parallelism = stateTransferConfiguration.parallelism();
+         this.maxInFlightChunks = stateTransferConfiguration.maxInFlightChunks();
          this.origin = origin;
-         this.xSiteBackup = new XSiteBackup(siteName, true, timeout);
+         this.xSiteBackup = new XSiteBackup(siteName, true, stateTransferConfiguration.timeout());
          this.canceled = new AtomicBoolean(false);
+         this.consistentHash = localStateTransferManager == null ? null :
+               localStateTransferManager.getCacheTopology().getWriteConsistentHash();
+         this.segments = primarySegments();
+         this.onlineGeneration = siteOnlineGeneration(siteName);
+         CompletedSegments completed = completedSegments.get(siteName);
+         if (completed != null && completed.onlineGeneration >= 0 && completed.onlineGeneration == onlineGeneration) {
+            segments.andNot(completed.segments);
+            if (debug) {
+               log.debugf("[X-Site State Transfer - %s] resuming, segments %s were already sent", siteName,
+                          completed.segments);
+            }
+         } else if (completed != null) {
+            //the writes made while the site was offline were not backed up, the segments must be sent again
+            completedSegments.remove(siteName);
+            if (debug) {
+               log.debugf("[X-Site State Transfer - %s] the site was offline since the last state transfer, " +
+                                "sending all the segments", siteName);
+            }
+         }
+         this.failedSegments = new BitSet();
+         this.units = new ConcurrentLinkedQueue<Integer>();
+         this.runningWorkers = new AtomicInteger();
+         this.entriesSent = new AtomicLong();
+         this.estimatedEntries = estimateEntries();
+         this.startTime = timeService.time();
+      }
+
+      private void start() {
+         if (isSegmented()) {
+            for (int segment = segments.nextSetBit(0); segment >= 0; segment = segments.nextSetBit(segment + 1)) {
+               units.add(segment);
+            }
+         } else {
+            units.add(ALL_SEGMENTS);
+         }
+         if (persistenceManager.getStateTransferProvider() != null) {
+            units.add(PERSISTENCE);
+         }
+         int workers = Math.max(1, Math.min(parallelism, units.size()));
+         runningWorkers.set(workers);
+         for (int i = 0; i < workers; i++) {
+            executorService.execute(this);
+         }
       }
 
       @Override
       public void run() {
+         ChunkSender sender = new ChunkSender();
          try {
-            final List<XSiteState> chunk = new ArrayList<XSiteState>(chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : chunkSize);
-            final Queue<BackupResponse> backupResponseQueue = new LinkedList<BackupResponse>();
-
-            if (debug) {
-               log.debugf("[X-Site State Transfer - %s] start DataContainer iteration", xSiteBackup.getSiteName());
+            Integer unit;
+            while (!canceled.get() && (unit = units.poll()) != null) {
+               if (unit == PERSISTENCE) {
+                  pushPersistence(sender);
+               } else if (unit == ALL_SEGMENTS) {
+                  pushDataContainer(dataContainer.iterator(), sender);
+               } else {
+                  @SuppressWarnings("unchecked")
+                  SegmentedDataContainer<Object, Object> segmentedDataContainer =
+                        (SegmentedDataContainer<Object, Object>) dataContainer;
+                  pushDataContainer(segmentedDataContainer.iterator(unit), sender);
+               }
+               sender.flush();
             }
+         } catch (Throwable t) {
+            log.unableToSendXSiteState(xSiteBackup.getSiteName(), t);
+            sender.failAll();
+         } finally {
+            if (runningWorkers.decrementAndGet() == 0) {
+               finish();
+            }
+         }
+      }
 
-            for (InternalCacheEntry ice : dataContainer) {
-               if (canceled.get()) {
-                  return;
-               }
-               if (chunkSize > 0 && chunk.size() == chunkSize) {
-                  try {
-                     sendFromSharedBuffer(xSiteBackup, chunk, backupResponseQueue);
-                  } catch (Exception e) {
-                     log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
-                     return;
-                  }
-                  chunk.clear();
-               }
-               if (shouldSendKey(ice.getKey())) {
-                  chunk.add(XSiteState.fromDataContainer(ice));
+      private long[] progress() {
+         long end = endTime;
+         long elapsed = end >= 0 ? timeService.timeDuration(startTime, end, TimeUnit.MILLISECONDS) :
+               timeService.timeDuration(startTime, TimeUnit.MILLISECONDS);
+         return new long[]{entriesSent.get(), estimatedEntries, elapsed, end >= 0 ? 0 : 1};
+      }
+
+      private void pushDataContainer(Iterator<InternalCacheEntry<Object, Object>> iterator, ChunkSender sender)
+            throws Exception {
+         if (debug) {
+            log.debugf("[X-Site State Transfer - %s] start DataContainer iteration", xSiteBackup.getSiteName());
+         }
+         while (iterator.hasNext() && !canceled.get()) {
+            InternalCacheEntry<Object, Object> ice = iterator.next();
+            if (shouldSendKey(ice.getKey())) {
+               int segment = segmentOf(ice.getKey());
+               if (segments.get(segment)) {
+                  sender.add(XSiteState.fromDataContainer(ice), segment);
                }
             }
+         }
+         if (debug) {
+            log.debugf("[X-Site State Transfer - %s] finish DataContainer iteration", xSiteBackup.getSiteName());
+         }
+      }
+
+      private void pushPersistence(ChunkSender sender) {
+         @SuppressWarnings("unchecked")
+         AdvancedCacheLoader<Object, Object> stProvider = persistenceManager.getStateTransferProvider();
+         if (debug) {
+            log.debugf("[X-Site State Transfer - %s] start Persistence iteration", xSiteBackup.getSiteName());
+         }
+         KeyFilter<Object> filter = new CacheLoaderFilter(new ReadOnlyDataContainerBackedKeySet(dataContainer));
+         try {
+            stProvider.process(filter, new StateTransferCacheLoaderTask(sender), EXECUTOR_SERVICE, true, true);
+         } catch (CacheException e) {
+            log.failedLoadingKeysFromCacheStore(e);
+            markFailed(segments);
+         }
+         if (debug) {
+            log.debugf("[X-Site State Transfer - %s] finish Persistence iteration", xSiteBackup.getSiteName());
+         }
+      }
 
+      private void finish() {
+         endTime = timeService.time();
+         try {
             if (canceled.get()) {
                return;
             }
-            if (chunk.size() > 0) {
-               try {
-                  sendFromSharedBuffer(xSiteBackup, chunk, backupResponseQueue);
-               } catch (Exception e) {
-                  log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
-                  return;
+            String siteName = xSiteBackup.getSiteName();
+            BitSet failed;
+            synchronized (failedSegments) {
+               failed = (BitSet) failedSegments.clone();
+            }
+            if (failed.isEmpty() || onlineGeneration < 0 || onlineGeneration != siteOnlineGeneration(siteName)) {
+               //nothing to resume, or the site was offline meanwhile and may have missed writes to the sent segments
+               completedSegments.remove(siteName);
+               if (!failed.isEmpty()) {
+                  log.xsiteStateTransferIncomplete(siteName, failed.toString());
                }
+               return;
             }
+            BitSet completed = (BitSet) segments.clone();
+            completed.andNot(failed);
+            CompletedSegments previouslyCompleted = completedSegments.get(siteName);
+            if (previouslyCompleted != null) {
+               completed.or(previouslyCompleted.segments);
+            }
+            completedSegments.put(siteName, new CompletedSegments(completed, onlineGeneration));
+            log.xsiteStateTransferIncomplete(siteName, failed.toString());
+         } finally {
+            notifyStateTransferEnd(xSiteBackup.getSiteName(), origin);
+         }
+      }
 
-            if (debug) {
-               log.debugf("[X-Site State Transfer - %s] finish DataContainer iteration", xSiteBackup.getSiteName());
+      private BitSet primarySegments() {
+         BitSet primarySegments = new BitSet();
+         if (consistentHash == null) {
+            primarySegments.set(0);
+            return primarySegments;
+         }
+         Address self = rpcManager.getAddress();
+         for (int segment = 0; segment < consistentHash.getNumSegments(); segment++) {
+            if (self.equals(consistentHash.locatePrimaryOwnerForSegment(segment))) {
+               primarySegments.set(segment);
             }
+         }
+         return primarySegments;
+      }
 
-            @SuppressWarnings("unchecked")
-            AdvancedCacheLoader<Object, Object> stProvider = persistenceManager.getStateTransferProvider();
-            if (stProvider != null) {
-               if (debug) {
-                  log.debugf("[X-Site State Transfer - %s] start Persistence iteration", xSiteBackup.getSiteName());
-               }
-               KeyFilter<Object> filter = new CacheLoaderFilter(new ReadOnlyDataContainerBackedKeySet(dataContainer));
-               StateTransferCacheLoaderTask task = new StateTransferCacheLoaderTask(xSiteBackup, chunk, chunkSize,
-                                                                                    backupResponseQueue, canceled);
-               try {
-                  stProvider.process(filter, task, EXECUTOR_SERVICE, true, true);
-                  if (canceled.get()) {
-                     return;
-                  }
-                  task.sendRemainingState();
-               } catch (CacheException e) {
-                  log.failedLoadingKeysFromCacheStore(e);
-               } catch (Exception e) {
-                  log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
-               }
-               if (debug) {
-                  log.debugf("[X-Site State Transfer - %s] finish Persistence iteration", xSiteBackup.getSiteName());
-               }
-            } else if (debug) {
-               log.debugf("[X-Site State Transfer - %s] skip Persistence iteration", xSiteBackup.getSiteName());
+      private boolean isSegmented() {
+         return consistentHash != null && dataContainer instanceof SegmentedDataContainer &&
+               ((SegmentedDataContainer) dataContainer).getNumSegments() == consistentHash.getNumSegments();
+      }
+
+      /**
+       * @return the number of entries to send, not counting the entries only in the store.
+       */
+      private long estimateEntries() {
+         if (isSegmented()) {
+            SegmentedDataContainer segmentedDataContainer = (SegmentedDataContainer) dataContainer;
+            long entries = 0;
+            for (int segment = segments.nextSetBit(0); segment >= 0; segment = segments.nextSetBit(segment + 1)) {
+               entries += segmentedDataContainer.size(segment);
+            }
+            return entries;
+         }
+         int numSegments = consistentHash == null ? 1 : consistentHash.getNumSegments();
+         return (long) dataContainer.size() * segments.cardinality() / numSegments;
+      }
+
+      private int segmentOf(Object key) {
+         return consistentHash == null ? 0 : consistentHash.getSegment(key);
+      }
+
+      private void markFailed(BitSet chunkSegments) {
+         synchronized (failedSegments) {
+            failedSegments.or(chunkSegments);
+         }
+      }
+
+      /**
+       * Builds the chunks and sends them, keeping up to {@code maxInFlightChunks} chunks not acknowledged. Used by a
+       * single thread.
+       */
+      private class ChunkSender {
+
+         private final List<XSiteState> chunk = new ArrayList<XSiteState>(chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : chunkSize);
+         private BitSet chunkSegments = new BitSet();
+         private final Queue<InFlightChunk> inFlight = new LinkedList<InFlightChunk>();
+
+         void add(XSiteState state, int segment) throws Exception {
+            if (chunkSize > 0 && chunk.size() == chunkSize) {
+               sendChunk();
+            }
+            chunk.add(state);
+            chunkSegments.set(segment);
+         }
+
+         /**
+          * Sends the last chunk and waits for all the chunks to be acknowledged.
+          */
+         void flush() throws Exception {
+            if (!chunk.isEmpty()) {
+               sendChunk();
+            }
+            InFlightChunk inFlightChunk;
+            while ((inFlightChunk = inFlight.poll()) != null) {
+               waitForAck(inFlightChunk);
+            }
+         }
+
+         void failAll() {
+            chunk.clear();
+            markFailed(chunkSegments);
+            for (InFlightChunk inFlightChunk : inFlight) {
+               markFailed(inFlightChunk.segments);
+            }
+            inFlight.clear();
+         }
+
+         private void sendChunk() throws Exception {
+            while (inFlight.size() >= maxInFlightChunks) {
+               waitForAck(inFlight.poll());
+            }
+            InFlightChunk inFlightChunk = new InFlightChunk(chunk.toArray(new XSiteState[chunk.size()]), chunkSegments);
+            chunk.clear();
+            chunkSegments = new BitSet();
+            try {
+               inFlightChunk.response = send(xSiteBackup, inFlightChunk.states);
+            } catch (Exception e) {
+               log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
             }
+            inFlight.add(inFlightChunk);
+         }
 
-            BackupResponse response = backupResponseQueue.poll();
-            while (response != null) {
+         private void waitForAck(InFlightChunk inFlightChunk) throws Exception {
+            for (int attempt = 0; ; attempt++) {
                if (canceled.get()) {
                   return;
                }
+               if (inFlightChunk.response != null && isAcknowledged(inFlightChunk.response)) {
+                  entriesSent.addAndGet(inFlightChunk.states.length);
+                  return;
+               }
+               if (attempt == MAX_RETRIES) {
+                  markFailed(inFlightChunk.segments);
+                  return;
+               }
+               if (debug) {
+                  log.debugf("[X-Site State Transfer - %s] sending again a chunk of %s keys",
+                             xSiteBackup.getSiteName(), inFlightChunk.states.length);
+               }
                try {
-                  response.waitForBackupToFinish();
+                  inFlightChunk.response = send(xSiteBackup, inFlightChunk.states);
                } catch (Exception e) {
-                  log.unableToWaitForXSiteStateAcks(xSiteBackup.getSiteName(), e);
-                  return;
+                  log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
+                  inFlightChunk.response = null;
                }
-               response = backupResponseQueue.poll();
             }
-         } finally {
-            notifyStateTransferEnd(xSiteBackup.getSiteName(), origin);
+         }
+
+         private boolean isAcknowledged(BackupResponse response) {
+            try {
+               response.waitForBackupToFinish();
+            } catch (Exception e) {
+               log.unableToWaitForXSiteStateAcks(xSiteBackup.getSiteName(), e);
+               return false;
+            }
+            if (!response.getFailedBackups().isEmpty()) {
+               log.unableToSendXSiteState(xSiteBackup.getSiteName(),
+                                          response.getFailedBackups().values().iterator().next());
+               return false;
+            }
+            return response.getCommunicationErrors().isEmpty();
          }
       }
 
-   }
+      private class CacheLoaderFilter extends CollectionKeyFilter {
 
-   private class CacheLoaderFilter extends CollectionKeyFilter {
+         public CacheLoaderFilter(Collection rejectedKeys) {
+            super(rejectedKeys);
+         }
 
-      public CacheLoaderFilter(Collection rejectedKeys) {
-         super(rejectedKeys);
+         @Override
+         public boolean shouldLoadKey(Object key) {
+            return shouldSendKey(key) && segments.get(segmentOf(key)) && super.shouldLoadKey(key);
+         }
       }
 
-      @Override
-      public boolean shouldLoadKey(Object key) {
-         return shouldSendKey(key) && super.shouldLoadKey(key);
-      }
-   }
+      private class StateTransferCacheLoaderTask implements CacheLoaderTask<Object, Object> {
 
-   private class StateTransferCacheLoaderTask implements CacheLoaderTask<Object, Object> {
+         private final ChunkSender sender;
 
-      private final List<XSiteState> chunk;
-      private final XSiteBackup xSiteBackup;
-      private final Collection<BackupResponse> responses;
-      private final AtomicBoolean canceled;
-      private final int chunkSize;
-
-      private StateTransferCacheLoaderTask(XSiteBackup xSiteBackup, List<XSiteState> chunk, int chunkSize,
-                                           Collection<BackupResponse> responses, AtomicBoolean canceled) {
-         this.xSiteBackup = xSiteBackup;
-         this.chunk = chunk;
-         this.chunkSize = chunkSize;
-         this.responses = responses;
-         this.canceled = canceled;
-      }
-
-      @Override
-      public void processEntry(MarshalledEntry<Object, Object> marshalledEntry, TaskContext taskContext)
-            throws InterruptedException {
-         if (canceled.get()) {
-            taskContext.stop();
-            return;
+         private StateTransferCacheLoaderTask(ChunkSender sender) {
+            this.sender = sender;
          }
-         if (chunkSize > 0 && chunk.size() == chunkSize) {
+
+         @Override
+         public void processEntry(MarshalledEntry<Object, Object> marshalledEntry, TaskContext taskContext)
+               throws InterruptedException {
+            if (canceled.get()) {
+               taskContext.stop();
+               return;
+            }
             try {
-               sendFromSharedBuffer(xSiteBackup, chunk, responses);
+               sender.add(XSiteState.fromCacheLoader(marshalledEntry), segmentOf(marshalledEntry.getKey()));
             } catch (Exception e) {
                log.unableToSendXSiteState(xSiteBackup.getSiteName(), e);
                taskContext.stop();
+               markFailed(segments);
             }
-            chunk.clear();
          }
+      }
+   }
 
-         chunk.add(XSiteState.fromCacheLoader(marshalledEntry));
+   private static class InFlightChunk {
+      private final XSiteState[] states;
+      private final BitSet segments;
+      private BackupResponse response;
+
+      private InFlightChunk(XSiteState[] states, BitSet segments) {
+         this.states = states;
+         this.segments = segments;
       }
+   }
 
-      public void sendRemainingState() throws Exception {
-         if (chunk.size() > 0) {
-            sendFromSharedBuffer(xSiteBackup, chunk, responses);
-         }
+   private static final class CompletedSegments {
+      private final BitSet segments;
+      //the online generation of the site when the segments were sent
+      private final long onlineGeneration;
+
+      private CompletedSegments(BitSet segments, long onlineGeneration) {
+         this.segments = segments;
+         this.onlineGeneration = onlineGeneration;
       }
    }
 }
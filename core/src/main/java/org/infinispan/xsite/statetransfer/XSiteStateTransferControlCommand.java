@@ -65,6 +65,8 @@ public Object perform(InvocationContext ctx) throws Throwable {
          case CANCEL_SEND:
             provider.cancelStateTransfer(siteName);
             break;
+         case STATUS_SEND:
+            return provider.getStateTransferProgress(siteName);
       }
       return null;
    }
@@ -91,7 +93,7 @@ public void setParameters(int commandId, Object[] parameters) {
 
    @Override
    public boolean isReturnValueExpected() {
-      return false;
+      return control == StateTransferControl.STATUS_SEND;
    }
 
    public static enum StateTransferControl {
@@ -99,6 +101,7 @@ public static enum StateTransferControl {
       START_RECEIVE,
       FINISH_SEND,
       FINISH_RECEIVE,
-      CANCEL_SEND
+      CANCEL_SEND,
+      STATUS_SEND
    }
 }
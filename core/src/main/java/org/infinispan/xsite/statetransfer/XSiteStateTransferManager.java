@@ -34,4 +34,14 @@ public interface XSiteStateTransferManager {
     */
    public List<String> getRunningStateTransfers();
 
+   /**
+    * It collects the progress of the last state transfer to the remote site from all the nodes of the local site.
+    *
+    * @param siteName the remote site name
+    * @return the number of entries sent, the estimated number of entries to send, the elapsed time in milliseconds and
+    *         the number of nodes still sending state, or {@code null} if no node started a state transfer to the site.
+    * @throws Exception If some node is not able to report its progress.
+    */
+   public long[] getStatePushProgress(String siteName) throws Exception;
+
 }
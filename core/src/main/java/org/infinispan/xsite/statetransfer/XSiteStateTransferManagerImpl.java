@@ -14,6 +14,7 @@
 import org.infinispan.remoting.responses.ExceptionResponse;
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.responses.ResponseGenerator;
+import org.infinispan.remoting.responses.SuccessfulResponse;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.BackupResponse;
@@ -105,6 +106,32 @@ public List<String> getRunningStateTransfers() {
       return siteCollector.isEmpty() ? Collections.<String>emptyList() : new ArrayList<String>(siteCollector.keySet());
    }
 
+   @Override
+   public long[] getStatePushProgress(String siteName) throws Exception {
+      XSiteStateTransferControlCommand command = commandsFactory.buildXSiteStateTransferControlCommand(
+            StateTransferControl.STATUS_SEND, siteName);
+      long[] result = null;
+      for (Map.Entry<Address, Response> entry : invokeRemotelyInLocalSite(command).entrySet()) {
+         if (entry.getValue() instanceof ExceptionResponse) {
+            throw ((ExceptionResponse) entry.getValue()).getException();
+         } else if (!(entry.getValue() instanceof SuccessfulResponse)) {
+            continue;
+         }
+         long[] progress = (long[]) ((SuccessfulResponse) entry.getValue()).getResponseValue();
+         if (progress == null) {
+            continue;
+         }
+         if (result == null) {
+            result = new long[4];
+         }
+         result[0] += progress[0];
+         result[1] += progress[1];
+         result[2] = Math.max(result[2], progress[2]);
+         result[3] += progress[3];
+      }
+      return result;
+   }
+
    private void handleFailure(XSiteBackup xSiteBackup) {
       try {
          controlStateTransferOnLocalSite(StateTransferControl.CANCEL_SEND, xSiteBackup.getSiteName());
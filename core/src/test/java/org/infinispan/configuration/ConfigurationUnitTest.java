@@ -365,4 +365,32 @@ public void call() {
       });
    }
 
+   @Test(expectedExceptions = CacheConfigurationException.class,
+         expectedExceptionsMessageRegExp = "Eviction is not supported when storing entries off-heap")
+   public void testOffHeapWithEviction() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.dataContainer().offHeap(true);
+      builder.eviction().maxEntries(100);
+      builder.build();
+   }
+
+   @Test(expectedExceptions = CacheConfigurationException.class,
+         expectedExceptionsMessageRegExp = "Eviction is not supported when partitioning the data container by segment")
+   public void testSegmentedDataContainerWithEviction() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.clustering().cacheMode(CacheMode.DIST_SYNC);
+      builder.dataContainer().segmented(true);
+      builder.eviction().maxMemory(1024 * 1024);
+      builder.build();
+   }
+
+   @Test(expectedExceptions = CacheConfigurationException.class,
+         expectedExceptionsMessageRegExp = "Only distributed caches can partition their data container by segment")
+   public void testSegmentedDataContainerInReplicatedCache() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.clustering().cacheMode(CacheMode.REPL_SYNC);
+      builder.dataContainer().segmented(true);
+      builder.build();
+   }
+
 }
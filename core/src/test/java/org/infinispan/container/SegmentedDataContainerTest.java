@@ -0,0 +1,110 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.commons.util.Util;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.group.GroupManager;
+import org.infinispan.eviction.ActivationManager;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.SegmentedDataContainerTest")
+public class SegmentedDataContainerTest extends SimpleDataContainerTest {
+
+   private static final int NUM_SEGMENTS = 20;
+
+   @Override
+   protected DataContainer createContainer() {
+      return createContainer(null);
+   }
+
+   private SegmentedDataContainer<Object, String> createContainer(GroupManager groupManager) {
+      SegmentedDataContainer<Object, String> dc = new SegmentedDataContainer<Object, String>(16, AnyEquivalence.getInstance(),
+                                                                                             new MurmurHash3(), NUM_SEGMENTS);
+      InternalEntryFactoryImpl internalEntryFactory = new InternalEntryFactoryImpl();
+      internalEntryFactory.injectTimeService(TIME_SERVICE);
+      ActivationManager activationManager = mock(ActivationManager.class);
+      doNothing().when(activationManager).activate(Mockito.anyObject());
+      dc.initialize(null, internalEntryFactory, activationManager, TIME_SERVICE, groupManager);
+      return dc;
+   }
+
+   public void testSegmentMatchesConsistentHash() {
+      SegmentedDataContainer<Object, String> sdc = (SegmentedDataContainer<Object, String>) dc;
+      MurmurHash3 hash = new MurmurHash3();
+      int segmentSize = Util.getSegmentSize(NUM_SEGMENTS);
+      for (int i = 0; i < 100; i++) {
+         String key = "k" + i;
+         assertEquals((hash.hash(key) & Integer.MAX_VALUE) / segmentSize, sdc.getSegment(key));
+      }
+   }
+
+   public void testGroupedKeysBelongToTheSegmentOfTheirGroup() {
+      GroupManager groupManager = mock(GroupManager.class);
+      when(groupManager.getGroup(Mockito.anyObject())).thenAnswer(new Answer<String>() {
+         @Override
+         public String answer(InvocationOnMock invocation) {
+            String key = (String) invocation.getArguments()[0];
+            return key.startsWith("g:") ? "group" : null;
+         }
+      });
+      SegmentedDataContainer<Object, String> sdc = createContainer(groupManager);
+      MurmurHash3 hash = new MurmurHash3();
+      int segmentSize = Util.getSegmentSize(NUM_SEGMENTS);
+      int groupSegment = (hash.hash("group") & Integer.MAX_VALUE) / segmentSize;
+      for (int i = 0; i < 100; i++) {
+         String grouped = "g:k" + i;
+         String ungrouped = "k" + i;
+         assertEquals(groupSegment, sdc.getSegment(grouped));
+         assertEquals((hash.hash(ungrouped) & Integer.MAX_VALUE) / segmentSize, sdc.getSegment(ungrouped));
+         sdc.put(grouped, "v" + i, new EmbeddedMetadata.Builder().build());
+      }
+      assertEquals(100, sdc.size(groupSegment));
+   }
+
+   public void testSegmentIteration() {
+      SegmentedDataContainer<Object, String> sdc = (SegmentedDataContainer<Object, String>) dc;
+      for (int i = 0; i < 100; i++) {
+         dc.put("k" + i, "v" + i, new EmbeddedMetadata.Builder().build());
+      }
+
+      Set<Object> keys = new HashSet<Object>();
+      int total = 0;
+      for (int segment = 0; segment < sdc.getNumSegments(); segment++) {
+         int count = 0;
+         for (Iterator<InternalCacheEntry<Object, String>> it = sdc.iterator(segment); it.hasNext(); ) {
+            InternalCacheEntry<Object, String> entry = it.next();
+            assertEquals(segment, sdc.getSegment(entry.getKey()));
+            assertTrue(keys.add(entry.getKey()));
+            count++;
+         }
+         assertEquals(sdc.size(segment), count);
+         total += count;
+      }
+      assertEquals(100, total);
+      assertEquals(100, dc.size());
+
+      for (int i = 0; i < 50; i++) {
+         dc.remove("k" + i);
+      }
+      total = 0;
+      for (int segment = 0; segment < sdc.getNumSegments(); segment++) {
+         total += sdc.size(segment);
+      }
+      assertEquals(50, total);
+   }
+}
@@ -1,6 +1,10 @@
 package org.infinispan.container;
 
 import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.PassivationManager;
 import org.infinispan.metadata.EmbeddedMetadata;
 import org.infinispan.commons.equivalence.AnyEquivalence;
 import org.infinispan.container.entries.ImmortalCacheEntry;
@@ -9,6 +13,7 @@
 import org.infinispan.container.entries.TransientCacheEntry;
 import org.infinispan.container.entries.TransientMortalCacheEntry;
 import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.test.TestingUtil;
 import org.infinispan.util.CoreImmutables;
 import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
@@ -23,6 +28,7 @@
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 
 @Test(groups = "unit", testName = "container.SimpleDataContainerTest")
 public class SimpleDataContainerTest extends AbstractInfinispanTest {
@@ -83,6 +89,78 @@ public void testExpiredData() throws InterruptedException {
       assert dc.size() == 0;
    }
    
+   public void testPurgeRemovesOnlyExpiredEntries() throws InterruptedException {
+      for (int i = 0; i < 10; i++) {
+         dc.put("expired" + i, "v", new EmbeddedMetadata.Builder().lifespan(0, TimeUnit.MINUTES).build());
+         dc.put("mortal" + i, "v", new EmbeddedMetadata.Builder().lifespan(100, TimeUnit.MINUTES).build());
+         dc.put("immortal" + i, "v", new EmbeddedMetadata.Builder().build());
+      }
+      Thread.sleep(10);
+      dc.purgeExpired();
+      assertEquals(20, dc.size());
+      assertEquals(10, indexedKeys(dc));
+      if (dc instanceof DefaultDataContainer) {
+         DefaultDataContainer<Object, String> container = (DefaultDataContainer<Object, String>) dc;
+         assertEquals(10, container.getLastPurgeRemovedEntries());
+         assertEquals(10, container.getPurgedEntries());
+      }
+
+      dc.purgeExpired();
+      assertEquals(20, dc.size());
+      if (dc instanceof DefaultDataContainer) {
+         DefaultDataContainer<Object, String> container = (DefaultDataContainer<Object, String>) dc;
+         assertEquals(0, container.getLastPurgeRemovedEntries());
+         assertEquals(10, container.getPurgedEntries());
+      }
+   }
+
+   public void testExpirationIndexFollowsTheEntries() {
+      for (int i = 1; i <= 5; i++) {
+         dc.put("k", "v", new EmbeddedMetadata.Builder().lifespan(i, TimeUnit.MINUTES).build());
+      }
+      dc.put("k2", "v", new EmbeddedMetadata.Builder().maxIdle(1, TimeUnit.MINUTES).build());
+      assertEquals(2, indexedKeys(dc));
+
+      // made immortal
+      dc.put("k", "v", new EmbeddedMetadata.Builder().build());
+      assertEquals(1, indexedKeys(dc));
+
+      dc.remove("k2");
+      assertEquals(0, indexedKeys(dc));
+   }
+
+   public void testEvictedKeysAreRemovedFromTheExpirationIndex() {
+      DefaultDataContainer<Object, String> bounded = (DefaultDataContainer<Object, String>) DefaultDataContainer.<Object, String>boundedDataContainer(
+            1, 16, EvictionStrategy.LRU, EvictionThreadPolicy.DEFAULT, AnyEquivalence.getInstance());
+      InternalEntryFactoryImpl internalEntryFactory = new InternalEntryFactoryImpl();
+      internalEntryFactory.injectTimeService(TIME_SERVICE);
+      bounded.initialize(mock(EvictionManager.class), mock(PassivationManager.class), internalEntryFactory,
+                         mock(ActivationManager.class), null, TIME_SERVICE);
+      for (int i = 0; i < 100; i++) {
+         bounded.put("k" + i, "v", new EmbeddedMetadata.Builder().lifespan(100, TimeUnit.MINUTES).build());
+      }
+      assertTrue(bounded.size() < 100);
+      assertEquals(bounded.size(), indexedKeys(bounded));
+   }
+
+   private static int indexedKeys(DataContainer<?, ?> container) {
+      return ((ExpirationIndex<?>) TestingUtil.extractField(container, "expirationIndex")).size();
+   }
+
+   public void testPurgeKeepsTouchedEntries() throws InterruptedException {
+      dc.put("k", "v", new EmbeddedMetadata.Builder().maxIdle(300, TimeUnit.MILLISECONDS).build());
+      Thread.sleep(200);
+      assert dc.get("k") != null;
+      Thread.sleep(200);
+      // past the expiration time the entry was indexed with, but it has been used since
+      dc.purgeExpired();
+      assertEquals(1, dc.size());
+
+      Thread.sleep(400);
+      dc.purgeExpired();
+      assertEquals(0, dc.size());
+   }
+
    public void testResetOfCreationTime() throws Exception {
       long now = System.currentTimeMillis();
       dc.put("k", "v", new EmbeddedMetadata.Builder().lifespan(1000, TimeUnit.SECONDS).build());
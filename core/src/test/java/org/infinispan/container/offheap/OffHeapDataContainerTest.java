@@ -0,0 +1,109 @@
+package org.infinispan.container.offheap;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "functional", testName = "container.offheap.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder cfg = new ConfigurationBuilder();
+      cfg.dataContainer().offHeap(true);
+      return TestCacheManagerFactory.createCacheManager(cfg);
+   }
+
+   private OffHeapDataContainer<Object, Object> container() {
+      DataContainer dc = TestingUtil.extractComponent(cache, DataContainer.class);
+      assertTrue(dc instanceof OffHeapDataContainer);
+      return (OffHeapDataContainer<Object, Object>) dc;
+   }
+
+   public void testPutGetRemove() {
+      OffHeapDataContainer<Object, Object> dc = container();
+      cache.put("k1", "v1");
+      cache.put("k2", "v2");
+      assertEquals("v1", cache.get("k1"));
+      assertEquals(2, dc.size());
+      assertTrue(dc.offHeapSize() > 0);
+
+      cache.put("k1", "v1-updated");
+      assertEquals("v1-updated", cache.get("k1"));
+      assertEquals(2, dc.size());
+
+      assertEquals("v2", cache.remove("k2"));
+      assertNull(cache.get("k2"));
+      assertEquals(1, dc.size());
+
+      cache.clear();
+      assertEquals(0, dc.size());
+      assertEquals(0, dc.offHeapSize());
+   }
+
+   public void testManyEntries() {
+      OffHeapDataContainer<Object, Object> dc = container();
+      for (int i = 0; i < 5000; i++)
+         cache.put(i, "value" + i);
+      assertEquals(5000, dc.size());
+      for (int i = 0; i < 5000; i++)
+         assertEquals("value" + i, cache.get(i));
+
+      Set<Object> keys = new HashSet<Object>();
+      for (InternalCacheEntry<Object, Object> ice : dc)
+         assertTrue(keys.add(ice.getKey()));
+      assertEquals(5000, keys.size());
+      assertEquals(5000, dc.keySet().size());
+   }
+
+   public void testExpiration() throws InterruptedException {
+      OffHeapDataContainer<Object, Object> dc = container();
+      cache.put("mortal", "v", 50, TimeUnit.MILLISECONDS);
+      cache.put("immortal", "v");
+      assertTrue(dc.containsKey("mortal"));
+      Thread.sleep(100);
+      dc.purgeExpired();
+      assertFalse(dc.containsKey("mortal"));
+      assertTrue(dc.containsKey("immortal"));
+      assertEquals(1, dc.size());
+   }
+
+   public void testTransientEntryIsTouched() throws InterruptedException {
+      OffHeapDataContainer<Object, Object> dc = container();
+      cache.put("k", "v", -1, TimeUnit.MILLISECONDS, 10, TimeUnit.MINUTES);
+      long lastUsed = dc.peek("k").getLastUsed();
+      Thread.sleep(100);
+      dc.get("k");
+      assertTrue(dc.peek("k").getLastUsed() > lastUsed);
+   }
+
+   public void testCompute() {
+      OffHeapDataContainer<Object, Object> dc = container();
+      cache.put("k", "v");
+      dc.compute("k", new DataContainer.ComputeAction<Object, Object>() {
+         @Override
+         public InternalCacheEntry<Object, Object> compute(Object key, InternalCacheEntry<Object, Object> oldEntry,
+                                                           InternalEntryFactory factory) {
+            assertEquals("v", oldEntry.getValue());
+            return null;
+         }
+      });
+      assertNull(dc.peek("k"));
+      assertEquals(0, dc.size());
+   }
+}
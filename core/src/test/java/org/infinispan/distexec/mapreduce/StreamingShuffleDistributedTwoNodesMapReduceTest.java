@@ -0,0 +1,46 @@
+package org.infinispan.distexec.mapreduce;
+
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * StreamingShuffleDistributedTwoNodesMapReduceTest tests Map/Reduce functionality using two
+ * Infinispan nodes, distributed reduce and a streaming shuffle keeping part of the intermediate
+ * key/values in memory
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "distexec.mapreduce.StreamingShuffleDistributedTwoNodesMapReduceTest")
+public class StreamingShuffleDistributedTwoNodesMapReduceTest extends BaseWordCountMapReduceTest {
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(getCacheMode(), true);
+      builder.clustering().stateTransfer().chunkSize(2);
+      createClusteredCaches(2, cacheName(), builder);
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   @Override
+   protected MapReduceTask<String, String, String, Integer> createMapReduceTask(Cache c) {
+      MapReduceTask<String, String, String, Integer> task = new MapReduceTask<String, String, String, Integer>(c, true, false);
+      task.setMaxCollectorSize(4);
+      return task.usingStreamingShuffle(512);
+   }
+
+   public void testShuffleStatistics() throws Exception {
+      MapReduceTask<String, String, String, Integer> task = invokeMapReduce(null);
+      verifyResults(task.execute());
+
+      assertTrue(task.getShuffledBytes() > 0);
+      assertTrue(task.getSpilledBytes() < task.getShuffledBytes());
+      assertTrue(task.getShuffleTime(TimeUnit.NANOSECONDS) > 0);
+      assertTrue(task.getMapPhaseTime(TimeUnit.NANOSECONDS) > 0);
+      assertTrue(task.getReducePhaseTime(TimeUnit.NANOSECONDS) > 0);
+   }
+}
@@ -0,0 +1,44 @@
+package org.infinispan.distexec.mapreduce;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * StreamingShuffleTwoNodesMapReduceTest tests Map/Reduce functionality using two Infinispan nodes,
+ * local reduce and a streaming shuffle spilling every intermediate key/value batch to disk
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "distexec.mapreduce.StreamingShuffleTwoNodesMapReduceTest")
+public class StreamingShuffleTwoNodesMapReduceTest extends BaseWordCountMapReduceTest {
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(getCacheMode(), true);
+      createClusteredCaches(2, cacheName(), builder);
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   @Override
+   protected MapReduceTask<String, String, String, Integer> createMapReduceTask(Cache c) {
+      MapReduceTask<String, String, String, Integer> task = new MapReduceTask<String, String, String, Integer>(c);
+      task.setMaxCollectorSize(2);
+      return task.usingStreamingShuffle(0);
+   }
+
+   public void testShuffleStatistics() throws Exception {
+      MapReduceTask<String, String, String, Integer> task = invokeMapReduce(null);
+      verifyResults(task.execute());
+
+      assertTrue(task.getShuffledBytes() > 0);
+      assertEquals(task.getShuffledBytes(), task.getSpilledBytes());
+      assertTrue(task.getMapPhaseTime(TimeUnit.NANOSECONDS) > 0);
+      assertTrue(task.getReducePhaseTime(TimeUnit.NANOSECONDS) > 0);
+   }
+}
@@ -0,0 +1,69 @@
+package org.infinispan.eviction.impl;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.eviction.EntrySizeCalculator;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests eviction bounded by the estimated memory used by entries rather than by their number.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "eviction.impl.MemoryBasedEvictionFunctionalTest")
+public class MemoryBasedEvictionFunctionalTest extends SingleCacheManagerTest {
+
+   private static final long MAX_MEMORY = 1000;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder cfg = new ConfigurationBuilder();
+      cfg.eviction().maxMemory(MAX_MEMORY).sizeCalculator(new ValueLengthCalculator())
+            .locking().concurrencyLevel(1);
+      return TestCacheManagerFactory.createCacheManager(cfg);
+   }
+
+   private DefaultDataContainer<?, ?> dataContainer() {
+      return (DefaultDataContainer<?, ?>) TestingUtil.extractComponent(cache, DataContainer.class);
+   }
+
+   public void testEvictsByMemory() {
+      for (int i = 0; i < 10; i++)
+         cache.put(i, new byte[100]);
+      assertEquals(10, cache.size());
+      assertEquals(1000, dataContainer().getMemoryUsed());
+
+      cache.put(10, new byte[300]);
+      assertTrue(dataContainer().getMemoryUsed() <= MAX_MEMORY);
+      assertEquals(8, cache.size());
+      // least recently used entries go first
+      assertNull(cache.get(0));
+      assertNotNull(cache.get(10));
+   }
+
+   public void testUpdateAdjustsMemory() {
+      cache.put("k", new byte[100]);
+      assertEquals(100, dataContainer().getMemoryUsed());
+      cache.put("k", new byte[200]);
+      assertEquals(200, dataContainer().getMemoryUsed());
+      cache.remove("k");
+      assertEquals(0, dataContainer().getMemoryUsed());
+   }
+
+   public static class ValueLengthCalculator implements EntrySizeCalculator<Object, Object> {
+      @Override
+      public long calculateSize(Object key, Object value) {
+         return ((byte[]) value).length;
+      }
+   }
+}
@@ -31,8 +31,10 @@
 import org.testng.annotations.Test;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static java.util.Collections.emptySet;
@@ -335,6 +337,30 @@ public void testStoreAndRemove() throws PersistenceException {
       assert expected.isEmpty();
    }
 
+   public void testWriteAndDeleteBatch() throws PersistenceException {
+      cl.write(new MarshalledEntryImpl("k0", wrap("k0", "old"), null, getMarshaller()));
+      List<MarshalledEntry> entries = new ArrayList<MarshalledEntry>();
+      for (int i = 0; i < 10; i++) {
+         entries.add(new MarshalledEntryImpl("k" + i, wrap("k" + i, "v" + i), null, getMarshaller()));
+      }
+      PersistenceUtil.writeBatch(cl, entries);
+      assertEquals(10, cl.size());
+      for (int i = 0; i < 10; i++) {
+         assertEquals("v" + i, unwrap(cl.load("k" + i).getValue()));
+      }
+
+      List<Object> keys = new ArrayList<Object>();
+      for (int i = 0; i < 10; i += 2) {
+         keys.add("k" + i);
+      }
+      keys.add("missing");
+      PersistenceUtil.deleteBatch(cl, keys);
+      assertEquals(5, cl.size());
+      for (int i = 0; i < 10; i++) {
+         assertEquals(i % 2 != 0, cl.contains("k" + i));
+      }
+   }
+
    public void testPurgeExpired() throws Exception {
       // Increased lifespan and idle timeouts to accommodate slower cache stores
       long lifespan = 6000;
@@ -0,0 +1,112 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.configuration.cache.FsyncMode;
+import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
+import org.infinispan.configuration.cache.SingleFileStoreConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.BaseStoreTest;
+import org.infinispan.persistence.DummyInitializationContext;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.infinispan.test.TestingUtil.recursiveFileRemove;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Low level single-file cache store tests, with group commit enabled.
+ *
+ * @since 7.0
+ */
+@Test(groups = "unit", testName = "persistence.file.GroupCommitSingleFileStoreTest")
+public class GroupCommitSingleFileStoreTest extends BaseStoreTest {
+
+   private static final int THREADS = 8;
+   private static final int WRITES_PER_THREAD = 50;
+
+   SingleFileStore store;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this.getClass());
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      recursiveFileRemove(tmpDirectory);
+   }
+
+   @Override
+   protected AdvancedLoadWriteStore createStore() throws Exception {
+      clearTempDir();
+      store = new SingleFileStore();
+      SingleFileStoreConfiguration fileStoreConfiguration = TestCacheManagerFactory
+            .getDefaultCacheConfiguration(false)
+            .persistence()
+               .addStore(SingleFileStoreConfigurationBuilder.class)
+                  .location(this.tmpDirectory)
+                  .fsyncMode(FsyncMode.GROUP_COMMIT)
+                  .fsyncInterval(5)
+                  .fsyncMaxBatchSize(THREADS)
+                  .create();
+      store.init(new DummyInitializationContext(fileStoreConfiguration, getCache(), getMarshaller(), new ByteBufferFactoryImpl(),
+                                                new MarshalledEntryFactoryImpl(getMarshaller())));
+      store.start();
+      return store;
+   }
+
+   public void testConcurrentWritesShareFsync() throws Exception {
+      store.getFsyncLatencies().reset();
+      store.getFsyncBatchSizes().reset();
+
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                     String key = "k" + thread + "-" + i;
+                     store.write(new MarshalledEntryImpl(key, wrap(key, "v" + i), null, getMarshaller()));
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures)
+            future.get();
+      } finally {
+         executor.shutdownNow();
+      }
+
+      int writes = THREADS * WRITES_PER_THREAD;
+      assertEquals(writes, store.size());
+      long fsyncs = store.getFsyncBatchSizes().getCount();
+      assertTrue("Expected fewer fsyncs than writes, but got " + fsyncs, fsyncs > 0 && fsyncs < writes);
+      assertEquals(writes, store.getFsyncBatchSizes().getTotal());
+      assertEquals(fsyncs, store.getFsyncLatencies().getCount());
+      assertTrue(store.getFsyncBatchSizes().getMax() > 1);
+   }
+
+   public void testDeleteOfMissingKeyDoesNotSync() throws Exception {
+      store.getFsyncBatchSizes().reset();
+      store.delete("missing");
+      assertEquals(0, store.getFsyncBatchSizes().getCount());
+   }
+}
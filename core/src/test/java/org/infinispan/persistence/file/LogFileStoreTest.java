@@ -0,0 +1,187 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.configuration.cache.LogFileStoreConfiguration;
+import org.infinispan.configuration.cache.LogFileStoreConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.BaseStoreTest;
+import org.infinispan.persistence.DummyInitializationContext;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.infinispan.test.TestingUtil.recursiveFileRemove;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Low level log structured file cache store tests.
+ *
+ * @since 7.0
+ */
+@Test(groups = "unit", testName = "persistence.file.LogFileStoreTest")
+public class LogFileStoreTest extends BaseStoreTest {
+
+   private static final long MAX_SEGMENT_SIZE = 4096;
+
+   LogFileStore store;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this.getClass());
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      recursiveFileRemove(tmpDirectory);
+   }
+
+   @Override
+   protected AdvancedLoadWriteStore createStore() throws Exception {
+      clearTempDir();
+      store = newStore();
+      store.start();
+      return store;
+   }
+
+   private LogFileStore newStore() {
+      LogFileStore logFileStore = new LogFileStore();
+      LogFileStoreConfiguration configuration = TestCacheManagerFactory
+            .getDefaultCacheConfiguration(false)
+            .persistence()
+               .addStore(LogFileStoreConfigurationBuilder.class)
+                  .location(this.tmpDirectory)
+                  .maxSegmentSize(MAX_SEGMENT_SIZE)
+                  .create();
+      logFileStore.init(new DummyInitializationContext(configuration, getCache(), getMarshaller(), new ByteBufferFactoryImpl(),
+                                                       new MarshalledEntryFactoryImpl(getMarshaller())));
+      return logFileStore;
+   }
+
+   public void testCompactionBoundsLogSize() throws Exception {
+      for (int i = 0; i < 2000; i++) {
+         store.write(new MarshalledEntryImpl("k" + (i % 10), wrap("k", "value" + i), null, getMarshaller()));
+      }
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return store.getSegmentCount() <= 3;
+         }
+      });
+      assertTrue(store.getLogSize() <= 3 * MAX_SEGMENT_SIZE);
+      assertEquals(10, store.size());
+      for (int i = 0; i < 10; i++)
+         assertEquals("value" + (1990 + i), unwrap(store.load("k" + i).getValue()));
+   }
+
+   public void testRestartReplaysLog() throws Exception {
+      for (int i = 0; i < 500; i++) {
+         store.write(new MarshalledEntryImpl("k" + i, wrap("k" + i, "v" + i), null, getMarshaller()));
+      }
+      for (int i = 0; i < 500; i += 2) {
+         assertTrue(store.delete("k" + i));
+      }
+      store.compact();
+      store.stop();
+
+      store = newStore();
+      cl = store;
+      store.start();
+      assertEquals(250, store.size());
+      for (int i = 0; i < 500; i++) {
+         if (i % 2 == 0) {
+            assertFalse(store.contains("k" + i));
+            assertNull(store.load("k" + i));
+         } else {
+            assertEquals("v" + i, unwrap(store.load("k" + i).getValue()));
+         }
+      }
+   }
+
+   public void testTombstonesAreDroppedOnceTheyHideNothing() throws Exception {
+      for (int i = 0; i < 500; i++) {
+         store.write(new MarshalledEntryImpl("k" + i, wrap("k" + i, "v" + i), null, getMarshaller()));
+      }
+      for (int i = 0; i < 500; i++) {
+         assertTrue(store.delete("k" + i));
+      }
+      // once the segments holding the values are compacted, the segments of the tombstones only hold dead data
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return store.getSegmentCount() <= 2;
+         }
+      });
+      assertTrue(store.getLogSize() <= 2 * MAX_SEGMENT_SIZE);
+
+      store.stop();
+      store = newStore();
+      cl = store;
+      store.start();
+      assertEquals(0, store.size());
+      for (int i = 0; i < 500; i++)
+         assertNull(store.load("k" + i));
+   }
+
+   public void testTornHeaderAtEndOfLogIsDiscarded() throws Exception {
+      for (int i = 0; i < 10; i++) {
+         store.write(new MarshalledEntryImpl("k" + i, wrap("k" + i, "v" + i), null, getMarshaller()));
+      }
+      store.stop();
+
+      // simulate a crash while appending: the header of the last record is zero filled
+      File lastSegment = lastSegmentFile();
+      long sizeBeforeCrash = lastSegment.length();
+      RandomAccessFile raf = new RandomAccessFile(lastSegment, "rw");
+      try {
+         raf.seek(sizeBeforeCrash);
+         raf.write(new byte[24]);
+      } finally {
+         raf.close();
+      }
+
+      store = newStore();
+      cl = store;
+      store.start();
+      assertEquals(sizeBeforeCrash, lastSegment.length());
+      assertEquals(10, store.size());
+      for (int i = 0; i < 10; i++)
+         assertEquals("v" + i, unwrap(store.load("k" + i).getValue()));
+
+      // the log can be appended to and replayed again
+      store.write(new MarshalledEntryImpl("k10", wrap("k10", "v10"), null, getMarshaller()));
+      store.stop();
+      store = newStore();
+      cl = store;
+      store.start();
+      assertEquals(11, store.size());
+      assertEquals("v10", unwrap(store.load("k10").getValue()));
+   }
+
+   private File lastSegmentFile() {
+      File[] files = new File(tmpDirectory, getCache().getName()).listFiles();
+      File last = null;
+      long lastId = -1;
+      for (File file : files) {
+         String name = file.getName();
+         if (name.endsWith(".log")) {
+            long id = Long.parseLong(name.substring(0, name.length() - 4));
+            if (id > lastId) {
+               lastId = id;
+               last = file;
+            }
+         }
+      }
+      return last;
+   }
+}
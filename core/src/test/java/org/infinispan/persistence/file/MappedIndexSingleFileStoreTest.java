@@ -0,0 +1,121 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
+import org.infinispan.configuration.cache.SingleFileStoreConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.BaseStoreTest;
+import org.infinispan.persistence.DummyInitializationContext;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.infinispan.test.TestingUtil.recursiveFileRemove;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Low level single-file cache store tests, with the index kept in a memory-mapped file.
+ *
+ * @since 7.0
+ */
+@Test(groups = "unit", testName = "persistence.file.MappedIndexSingleFileStoreTest")
+public class MappedIndexSingleFileStoreTest extends BaseStoreTest {
+
+   SingleFileStore store;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this.getClass());
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      recursiveFileRemove(tmpDirectory);
+   }
+
+   @Override
+   protected AdvancedLoadWriteStore createStore() throws Exception {
+      clearTempDir();
+      store = newStore();
+      store.start();
+      return store;
+   }
+
+   private SingleFileStore newStore() {
+      SingleFileStore singleFileStore = new SingleFileStore();
+      SingleFileStoreConfiguration fileStoreConfiguration = TestCacheManagerFactory
+            .getDefaultCacheConfiguration(false)
+            .persistence()
+               .addStore(SingleFileStoreConfigurationBuilder.class)
+                  .location(this.tmpDirectory)
+                  .mappedIndex(true)
+                  .create();
+      singleFileStore.init(new DummyInitializationContext(fileStoreConfiguration, getCache(), getMarshaller(), new ByteBufferFactoryImpl(),
+                                                          new MarshalledEntryFactoryImpl(getMarshaller())));
+      return singleFileStore;
+   }
+
+   private void restart(boolean dropIndex) {
+      store.stop();
+      if (dropIndex)
+         assertTrue(new File(tmpDirectory, getCache().getName() + ".idx").delete());
+      store = newStore();
+      cl = store;
+      store.start();
+   }
+
+   private void writeEntries() throws Exception {
+      // enough entries to resize the index a few times
+      for (int i = 0; i < 5000; i++) {
+         store.write(new MarshalledEntryImpl("k" + i, wrap("k" + i, "v" + i), null, getMarshaller()));
+      }
+      for (int i = 0; i < 5000; i += 2) {
+         assertTrue(store.delete("k" + i));
+      }
+   }
+
+   private void assertEntries() throws Exception {
+      assertEquals(2500, store.size());
+      for (int i = 0; i < 5000; i++) {
+         if (i % 2 == 0) {
+            assertFalse(store.contains("k" + i));
+            assertNull(store.load("k" + i));
+         } else {
+            assertEquals("v" + i, unwrap(store.load("k" + i).getValue()));
+         }
+      }
+   }
+
+   public void testRestartReusesIndex() throws Exception {
+      writeEntries();
+      int freeEntries = store.getFreeList().size();
+      long fileSize = store.getFileSize();
+      restart(false);
+      assertEntries();
+      assertEquals(freeEntries, store.getFreeList().size());
+      assertEquals(fileSize, store.getFileSize());
+
+      // the space of the deleted entries is reused
+      store.write(new MarshalledEntryImpl("k0", wrap("k0", "v0"), null, getMarshaller()));
+      assertEquals(fileSize, store.getFileSize());
+      assertEquals(freeEntries - 1, store.getFreeList().size());
+   }
+
+   public void testRestartRebuildsMissingIndex() throws Exception {
+      writeEntries();
+      int freeEntries = store.getFreeList().size();
+      restart(true);
+      assertEntries();
+      assertEquals(freeEntries, store.getFreeList().size());
+   }
+}
@@ -0,0 +1,113 @@
+package org.infinispan.remoting.jgroups;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that commands bundled by the transport get their own responses back.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "remoting.jgroups.RpcBundlingTest")
+public class RpcBundlingTest extends MultipleCacheManagersTest {
+
+   private static final int THREADS = 10;
+   private static final int KEYS_PER_THREAD = 50;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2);
+      for (int i = 0; i < 2; i++) {
+         GlobalConfigurationBuilder globalBuilder = GlobalConfigurationBuilder.defaultClusteredBuilder();
+         // a single bundle in flight, so that concurrent commands are queued and bundled
+         globalBuilder.transport()
+               .addProperty(JGroupsTransport.RPC_BUNDLING, "true")
+               .addProperty(JGroupsTransport.RPC_BUNDLING_MAX_IN_FLIGHT, "1")
+               .addProperty(JGroupsTransport.RPC_BUNDLING_MAX_SIZE, "8");
+         addClusterEnabledCacheManager(globalBuilder, builder);
+      }
+      waitForClusterToForm();
+   }
+
+   public void testConcurrentWrites() throws Exception {
+      final Cache<String, String> cache = cache(0);
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+         final int thread = t;
+         futures.add(fork(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               for (int k = 0; k < KEYS_PER_THREAD; k++) {
+                  cache.put(key("write", thread, k), value(thread, k));
+               }
+               return null;
+            }
+         }));
+      }
+      for (Future<Void> future : futures) {
+         future.get();
+      }
+
+      for (int t = 0; t < THREADS; t++) {
+         for (int k = 0; k < KEYS_PER_THREAD; k++) {
+            assertEquals(value(t, k), cache(0).get(key("write", t, k)));
+            assertEquals(value(t, k), cache(1).get(key("write", t, k)));
+         }
+      }
+   }
+
+   public void testConcurrentReturnValues() throws Exception {
+      for (int t = 0; t < THREADS; t++) {
+         for (int k = 0; k < KEYS_PER_THREAD; k++) {
+            cache(1).put(key("conditional", t, k), value(t, k));
+         }
+      }
+
+      final Cache<String, String> cache = cache(0);
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+         final int thread = t;
+         futures.add(fork(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               for (int k = 0; k < KEYS_PER_THREAD; k++) {
+                  // each command must get the previous value of its own key back
+                  assertEquals(value(thread, k), cache.putIfAbsent(key("conditional", thread, k), "other"));
+                  assertEquals(value(thread, k), cache.replace(key("conditional", thread, k), "replaced"));
+               }
+               return null;
+            }
+         }));
+      }
+      for (Future<Void> future : futures) {
+         future.get();
+      }
+
+      for (int t = 0; t < THREADS; t++) {
+         for (int k = 0; k < KEYS_PER_THREAD; k++) {
+            assertEquals("replaced", cache(1).get(key("conditional", t, k)));
+         }
+      }
+   }
+
+   private static String key(String prefix, int thread, int k) {
+      return prefix + "-" + thread + "-" + k;
+   }
+
+   private static String value(int thread, int k) {
+      return "v-" + thread + "-" + k;
+   }
+}
@@ -0,0 +1,92 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.persistence.dummy.DummyInMemoryStoreConfigurationBuilder;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests that a node restarting with a persistent store only receives the entries that changed while it was down, and
+ * removes the entries that were removed meanwhile.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "statetransfer.DeltaStateTransferTest")
+public class DeltaStateTransferTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_KEYS = 1000;
+   private static final int NUM_CHANGED_KEYS = 10;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      addClusterEnabledCacheManager(createConfiguration(0));
+      addClusterEnabledCacheManager(createConfiguration(1));
+      waitForClusterToForm();
+   }
+
+   private ConfigurationBuilder createConfiguration(int id) {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2).stateTransfer().deltaTransfer(true);
+      DummyInMemoryStoreConfigurationBuilder store = new DummyInMemoryStoreConfigurationBuilder(builder.persistence());
+      store.storeName(DeltaStateTransferTest.class.getSimpleName() + id);
+      store.fetchPersistentState(true).shared(false).preload(true);
+      builder.persistence().addStore(store);
+      return builder;
+   }
+
+   public void testRejoinerOnlyReceivesChangedEntries() {
+      Cache<Object, Object> c0 = cache(0);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         c0.put("k" + i, "v" + i);
+      }
+
+      TestingUtil.killCacheManagers(manager(1));
+      cacheManagers.remove(1);
+
+      for (int i = 0; i < NUM_CHANGED_KEYS; i++) {
+         c0.put("k" + i, "updated" + i);
+         c0.remove("k" + (NUM_KEYS - 1 - i));
+         c0.put("new" + i, "v" + i);
+      }
+
+      StateProviderImpl stateProvider = (StateProviderImpl) TestingUtil.extractComponent(c0, StateProvider.class);
+      stateProvider.resetStatistics();
+
+      addClusterEnabledCacheManager(createConfiguration(1));
+      waitForClusterToForm();
+
+      Cache<Object, Object> c1 = cache(1);
+      for (int i = 0; i < NUM_CHANGED_KEYS; i++) {
+         assertEquals(c1.getAdvancedCache().getDataContainer().get("k" + i).getValue(), "updated" + i);
+         assertFalse(c1.getAdvancedCache().getDataContainer().containsKey("k" + (NUM_KEYS - 1 - i)));
+         assertEquals(c1.getAdvancedCache().getDataContainer().get("new" + i).getValue(), "v" + i);
+      }
+      assertEquals(c1.getAdvancedCache().getDataContainer().size(), NUM_KEYS);
+
+      // only the buckets holding the changed keys were sent
+      assertTrue(stateProvider.getEntriesSent() < NUM_KEYS / 10, "Sent " + stateProvider.getEntriesSent() + " entries");
+      assertTrue(stateProvider.getEntriesSkipped() > NUM_KEYS / 2, "Skipped " + stateProvider.getEntriesSkipped() + " entries");
+   }
+
+   public void testValuesWithTheSameHashCodeDiffer() {
+      // "Aa" and "BB" have the same hash code
+      cache(0).put("collision", "Aa");
+
+      TestingUtil.killCacheManagers(manager(1));
+      cacheManagers.remove(1);
+
+      cache(0).put("collision", "BB");
+
+      addClusterEnabledCacheManager(createConfiguration(1));
+      waitForClusterToForm();
+
+      assertEquals(cache(1).getAdvancedCache().getDataContainer().get("collision").getValue(), "BB");
+   }
+}
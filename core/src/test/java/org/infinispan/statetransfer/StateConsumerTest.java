@@ -158,6 +158,12 @@ public StateRequestCommand answer(InvocationOnMock invocation) {
             return new StateRequestCommand("cache1", (StateRequestCommand.Type) invocation.getArguments()[0], (Address) invocation.getArguments()[1], (Integer) invocation.getArguments()[2], (Set) invocation.getArguments()[3]);
          }
       });
+      when(commandsFactory.buildStateRequestCommand(any(StateRequestCommand.Type.class), any(Address.class), anyInt(), any(Set.class), any(Map.class))).thenAnswer(new Answer<StateRequestCommand>() {
+         @Override
+         public StateRequestCommand answer(InvocationOnMock invocation) {
+            return new StateRequestCommand("cache1", (StateRequestCommand.Type) invocation.getArguments()[0], (Address) invocation.getArguments()[1], (Integer) invocation.getArguments()[2], (Set) invocation.getArguments()[3], (Map) invocation.getArguments()[4]);
+         }
+      });
 
       when(transport.getViewId()).thenReturn(1);
       when(rpcManager.getAddress()).thenReturn(addresses[0]);
@@ -0,0 +1,66 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests that the rate at which state is sent to a joiner stays close to the configured maximum, with several chunks
+ * in flight at the same time.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "statetransfer.StateTransferBandwidthLimitTest")
+public class StateTransferBandwidthLimitTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_KEYS = 512;
+   private static final int VALUE_SIZE = 1024;
+   private static final long MAX_BYTES_PER_SECOND = 128 * 1024;
+
+   private ConfigurationBuilder builder;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2)
+            .stateTransfer().chunkSizeBytes(8 * 1024).maxInFlightChunks(4).maxBytesPerSecond(MAX_BYTES_PER_SECOND);
+      createCluster(builder, 1);
+      waitForClusterToForm();
+   }
+
+   public void testThroughputStaysNearTheLimit() {
+      Cache<Object, Object> c0 = cache(0);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         c0.put("k" + i, new byte[VALUE_SIZE]);
+      }
+
+      long start = TIME_SERVICE.time();
+      addClusterEnabledCacheManager(builder);
+      waitForClusterToForm();
+      long elapsedMillis = TIME_SERVICE.timeDuration(start, TimeUnit.MILLISECONDS);
+
+      assertEquals(TestingUtil.extractComponent(cache(1), DataContainer.class).size(), NUM_KEYS);
+      StateProviderImpl stateProvider = (StateProviderImpl) TestingUtil.extractComponent(c0, StateProvider.class);
+      long bytesSent = stateProvider.getBytesSent();
+      assertTrue(bytesSent >= NUM_KEYS * VALUE_SIZE);
+
+      // up to one second worth of bytes is sent without waiting, the rest at the configured rate
+      long throttledBytes = bytesSent - MAX_BYTES_PER_SECOND;
+      long minMillis = throttledBytes * 1000 / MAX_BYTES_PER_SECOND;
+      assertTrue(elapsedMillis >= minMillis * 9 / 10,
+                 "Sent " + bytesSent + " bytes in " + elapsedMillis + " ms, faster than the limit allows");
+      // the joiner also needs some time to join, but the transfer itself must not be much slower than the limit
+      long throughput = throttledBytes * 1000 / Math.max(elapsedMillis, 1);
+      assertTrue(throughput >= MAX_BYTES_PER_SECOND / 2,
+                 "Sent " + bytesSent + " bytes in " + elapsedMillis + " ms, far below the limit");
+   }
+}
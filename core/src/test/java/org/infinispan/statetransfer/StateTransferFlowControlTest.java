@@ -0,0 +1,73 @@
+package org.infinispan.statetransfer;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests that state is transferred in chunks bounded by their size in bytes, several chunks being in flight at the same
+ * time, and at a limited rate.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "statetransfer.StateTransferFlowControlTest")
+public class StateTransferFlowControlTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_KEYS = 200;
+   private static final int VALUE_SIZE = 1024;
+   private static final int CHUNK_SIZE_BYTES = 8 * 1024;
+
+   private ConfigurationBuilder builder;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2)
+            .stateTransfer().chunkSizeBytes(CHUNK_SIZE_BYTES).maxInFlightChunks(4).maxBytesPerSecond(1024 * 1024);
+      createCluster(builder, 1);
+      waitForClusterToForm();
+   }
+
+   public void testJoinerReceivesAllEntries() {
+      Cache<Object, Object> c0 = cache(0);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         c0.put("k" + i, value(i));
+      }
+
+      addClusterEnabledCacheManager(builder);
+      waitForClusterToForm();
+
+      DataContainer dc1 = TestingUtil.extractComponent(cache(1), DataContainer.class);
+      assertEquals(dc1.size(), NUM_KEYS);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         InternalCacheEntry ice = dc1.get("k" + i);
+         assertNotNull(ice, "Missing key k" + i);
+         assertTrue(Arrays.equals((byte[]) ice.getValue(), value(i)));
+      }
+
+      StateProviderImpl stateProvider = (StateProviderImpl) TestingUtil.extractComponent(c0, StateProvider.class);
+      assertEquals(stateProvider.getEntriesSent(), NUM_KEYS);
+      assertTrue(stateProvider.getBytesSent() >= NUM_KEYS * VALUE_SIZE);
+      // the entry count limit is much higher, so the chunks can only have been split by their size
+      assertTrue(stateProvider.getChunksSent() >= NUM_KEYS * VALUE_SIZE / CHUNK_SIZE_BYTES,
+                 "Only " + stateProvider.getChunksSent() + " chunks sent");
+      assertEquals(stateProvider.getMaxBytesPerSecond(), 1024 * 1024);
+   }
+
+   private byte[] value(int i) {
+      byte[] value = new byte[VALUE_SIZE];
+      Arrays.fill(value, (byte) i);
+      return value;
+   }
+}
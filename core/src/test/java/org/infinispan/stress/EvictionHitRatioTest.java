@@ -0,0 +1,87 @@
+package org.infinispan.stress;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays an access trace against the bounded map with each eviction policy and reports the hit ratios.
+ * <p/>
+ * The trace is read from the file named by the {@code trace} system property, one key per line. Without it, a
+ * synthetic trace is generated, mixing accesses to a skewed set of popular keys with large scans of keys that are
+ * accessed only once.
+ *
+ * @since 7.0
+ */
+@Test(testName = "stress.EvictionHitRatioTest", groups = "stress", description = "Disabled by default, designed to be run manually.")
+public class EvictionHitRatioTest {
+
+   static final int CAPACITY = Integer.getInteger("size", 10000);
+   static final int CONCURRENCY = Integer.getInteger("concurrency", 32);
+   static final String TRACE = System.getProperty("trace");
+
+   private static final Random RANDOM = new Random(12345);
+
+   public void testHitRatio() throws IOException {
+      List<String> trace = TRACE != null ? readTrace(TRACE) : syntheticTrace(CAPACITY);
+      System.out.printf("Replaying %d accesses with capacity %d, concurrency level %d\n",
+                        trace.size(), CAPACITY, CONCURRENCY);
+      for (Eviction eviction : new Eviction[]{Eviction.LRU, Eviction.LIRS, Eviction.TINY_LFU}) {
+         System.out.printf("%-8s hit ratio %.2f%%\n", eviction, 100 * hitRatio(eviction, trace));
+      }
+   }
+
+   private double hitRatio(Eviction eviction, List<String> trace) {
+      BoundedConcurrentHashMap<String, String> map = new BoundedConcurrentHashMap<String, String>(
+            CAPACITY, CONCURRENCY, eviction, AnyEquivalence.STRING, AnyEquivalence.STRING);
+      long hits = 0;
+      for (String key : trace) {
+         if (map.get(key) != null) {
+            hits++;
+         } else {
+            map.put(key, key);
+         }
+      }
+      return (double) hits / trace.size();
+   }
+
+   private List<String> readTrace(String fileName) throws IOException {
+      List<String> trace = new ArrayList<String>();
+      BufferedReader reader = new BufferedReader(new FileReader(fileName));
+      try {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty())
+               trace.add(line);
+         }
+      } finally {
+         reader.close();
+      }
+      return trace;
+   }
+
+   private List<String> syntheticTrace(int capacity) {
+      List<String> trace = new ArrayList<String>();
+      int popularKeys = capacity * 2;
+      int scanKey = 0;
+      for (int round = 0; round < 20; round++) {
+         for (int i = 0; i < capacity * 5; i++) {
+            // approximately Zipfian popularity, so that a few keys receive most of the accesses
+            trace.add("key" + (int) Math.pow(popularKeys, RANDOM.nextDouble()));
+         }
+         for (int i = 0; i < capacity * 2; i++) {
+            trace.add("scan" + scanKey++);
+         }
+      }
+      return trace;
+   }
+}
@@ -0,0 +1,138 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the frequency sketch and the admission decisions of the W-TinyLFU eviction policy.
+ *
+ * @since 7.0
+ */
+@Test(groups = "unit", testName = "util.concurrent.TinyLFUTest")
+public class TinyLFUTest {
+
+   public void testSketchCountsOccurrences() {
+      FrequencySketch sketch = new FrequencySketch(512);
+      for (int i = 0; i < 5; i++)
+         sketch.increment(42);
+      assertEquals(5, sketch.frequency(42));
+      assertEquals(0, sketch.frequency(43));
+   }
+
+   public void testSketchSaturates() {
+      FrequencySketch sketch = new FrequencySketch(512);
+      for (int i = 0; i < 100; i++)
+         sketch.increment(42);
+      assertEquals(15, sketch.frequency(42));
+   }
+
+   public void testSketchAges() {
+      FrequencySketch sketch = new FrequencySketch(16);
+      for (int i = 0; i < 8; i++)
+         sketch.increment(42);
+      // reaching the sample size halves every counter
+      for (int i = 0; i < 1000; i++)
+         sketch.increment(i + 1000);
+      assertTrue(sketch.frequency(42) < 8);
+   }
+
+   public void testScanDoesNotFlushPopularEntries() {
+      int capacity = 100;
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(
+            capacity, 1, BoundedConcurrentHashMap.Eviction.TINY_LFU,
+            AnyEquivalence.INT, AnyEquivalence.INT);
+      for (int i = 0; i < 50; i++) {
+         map.put(i, i);
+         for (int j = 0; j < 5; j++)
+            map.get(i);
+      }
+
+      // a scan of keys accessed only once
+      for (int i = 1000; i < 2000; i++)
+         map.put(i, i);
+
+      assertTrue(map.size() <= capacity);
+      for (int i = 0; i < 50; i++)
+         assertNotNull("Popular key " + i + " was evicted", map.get(i));
+   }
+
+   public void testEvictionOfCollidingKeysNotifiesListener() {
+      int capacity = 10;
+      final Set<CollidingKey> evicted = new HashSet<CollidingKey>();
+      BoundedConcurrentHashMap.EvictionListener<CollidingKey, Integer> listener =
+            new BoundedConcurrentHashMap.EvictionListener<CollidingKey, Integer>() {
+               @Override
+               public void onEntryEviction(Map<CollidingKey, Integer> entries) {
+                  for (CollidingKey key : entries.keySet())
+                     assertTrue("Key " + key + " evicted twice", evicted.add(key));
+               }
+
+               @Override
+               public void onEntryChosenForEviction(Integer value) {
+               }
+
+               @Override
+               public void onEntryActivated(Object key) {
+               }
+
+               @Override
+               public void onEntryRemoved(Object key) {
+               }
+            };
+      BoundedConcurrentHashMap<CollidingKey, Integer> map = new BoundedConcurrentHashMap<CollidingKey, Integer>(
+            capacity, 1, BoundedConcurrentHashMap.Eviction.TINY_LFU, listener,
+            AnyEquivalence.<CollidingKey>getInstance(), AnyEquivalence.INT);
+
+      int numKeys = 200;
+      for (int i = 0; i < numKeys; i++) {
+         map.put(new CollidingKey(i), i);
+         // make some keys popular, so that the victims are spread over the bucket
+         if (i % 3 == 0)
+            map.get(new CollidingKey(i));
+      }
+
+      assertTrue(map.size() <= capacity);
+      // every key is either still in the map or was handed to the listener
+      for (int i = 0; i < numKeys; i++) {
+         CollidingKey key = new CollidingKey(i);
+         if (map.containsKey(key))
+            assertFalse("Key " + key + " evicted but still present", evicted.contains(key));
+         else
+            assertTrue("Key " + key + " evicted without notifying the listener", evicted.contains(key));
+      }
+      assertEquals(numKeys, map.size() + evicted.size());
+   }
+
+   private static final class CollidingKey {
+      private final int id;
+
+      CollidingKey(int id) {
+         this.id = id;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+      }
+
+      @Override
+      public int hashCode() {
+         // all the keys end up in the same bucket
+         return 42;
+      }
+
+      @Override
+      public String toString() {
+         return "CollidingKey{" + id + "}";
+      }
+   }
+}
@@ -254,6 +254,12 @@ public StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type sub
       return actual.buildStateRequestCommand(subtype, sender, viewId, segments);
    }
 
+   @Override
+   public StateRequestCommand buildStateRequestCommand(StateRequestCommand.Type subtype, Address sender, int viewId, Set<Integer> segments,
+                                                       Map<Integer, long[]> segmentDigests) {
+      return actual.buildStateRequestCommand(subtype, sender, viewId, segments, segmentDigests);
+   }
+
    @Override
    public StateResponseCommand buildStateResponseCommand(Address sender, int viewId, Collection<StateChunk> stateChunks) {
       return actual.buildStateResponseCommand(sender, viewId, stateChunks);
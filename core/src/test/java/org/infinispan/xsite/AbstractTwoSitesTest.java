@@ -6,6 +6,7 @@
 import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder;
 import org.infinispan.configuration.global.GlobalConfigurationBuilder;
 import org.infinispan.manager.CacheContainer;
 
@@ -22,6 +23,9 @@ public abstract class AbstractTwoSitesTest extends AbstractXSiteTest {
    protected BackupConfiguration.BackupStrategy lonBackupStrategy = BackupConfiguration.BackupStrategy.SYNC;
    protected String lonCustomFailurePolicyClass = null;
    protected boolean use2Pc = false;
+   protected boolean lonAsyncQueue = false;
+   protected int lonStateTransferParallelism = XSiteStateTransferConfigurationBuilder.DEFAULT_PARALLELISM;
+   protected int lonStateTransferMaxInFlightChunks = XSiteStateTransferConfigurationBuilder.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
 
    /**
     * If true, the caches from one site will backup to a cache having the same name remotely (mirror)
@@ -42,7 +46,10 @@ protected void createSites() {
             .strategy(lonBackupStrategy)
             .failurePolicyClass(lonCustomFailurePolicyClass)
             .useTwoPhaseCommit(use2Pc)
-            .sites().addInUseBackupSite("NYC");
+            .asyncQueue().enabled(lonAsyncQueue)
+            .backup().stateTransfer()
+            .parallelism(lonStateTransferParallelism).maxInFlightChunks(lonStateTransferMaxInFlightChunks)
+            .backup().sites().addInUseBackupSite("NYC");
 
       GlobalConfigurationBuilder nycGc = GlobalConfigurationBuilder.defaultClusteredBuilder();
       nycGc
@@ -0,0 +1,50 @@
+package org.infinispan.xsite;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.configuration.cache.BackupConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
+import org.infinispan.remoting.transport.Transport;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.transaction.xa.TransactionFactory;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests that a full asynchronous queue without a backlog drops the oldest writes instead of blocking the writers.
+ *
+ * @since 7.0
+ */
+@Test(groups = "unit", testName = "xsite.AsyncBackupQueueTest")
+public class AsyncBackupQueueTest extends AbstractInfinispanTest {
+
+   private static final int MAX_QUEUE_SIZE = 10;
+
+   public void testFullQueueDropsTheOldestWrites() throws Exception {
+      BackupConfiguration backupConfiguration = mock(BackupConfiguration.class);
+      when(backupConfiguration.site()).thenReturn("NYC");
+      when(backupConfiguration.replicationTimeout()).thenReturn(60000L);
+      when(backupConfiguration.asyncQueue()).thenReturn(
+            new XSiteAsyncQueueConfiguration(true, 100, 1000, MAX_QUEUE_SIZE, null, 0));
+      // the sender isn't started, so nothing is taken from the queue
+      AsyncBackupQueue queue = new AsyncBackupQueue("test", backupConfiguration, AnyEquivalence.getInstance(),
+                                                    mock(Transport.class), mock(CommandsFactory.class),
+                                                    mock(TransactionFactory.class), mock(OfflineStatus.class),
+                                                    TIME_SERVICE, null);
+
+      for (int i = 0; i < 2 * MAX_QUEUE_SIZE; i++) {
+         queue.enqueue(Collections.<WriteCommand>singletonList(
+               new PutKeyValueCommand("k" + i, "v" + i, false, null, null, null, AnyEquivalence.getInstance())));
+      }
+
+      assertEquals(MAX_QUEUE_SIZE, queue.getQueueDepth());
+      assertEquals(MAX_QUEUE_SIZE, queue.getWritesDropped());
+   }
+}
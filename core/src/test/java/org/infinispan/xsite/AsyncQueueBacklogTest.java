@@ -0,0 +1,104 @@
+package org.infinispan.xsite;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.BackupConfiguration;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.infinispan.test.TestingUtil.extractComponent;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests that the writes that overflowed the asynchronous queue into its backlog survive a restart and reach the
+ * backup site afterwards.
+ *
+ * @since 7.0
+ */
+@Test(groups = "xsite", testName = "xsite.AsyncQueueBacklogTest")
+public class AsyncQueueBacklogTest extends AbstractTwoSitesTest {
+
+   private static final String CACHE_NAME = "backlogged";
+   private static final int MAX_QUEUE_SIZE = 10;
+   private static final int NUM_KEYS = 50;
+
+   private final String backlogLocation = TestingUtil.tmpDirectory(getClass());
+
+   public AsyncQueueBacklogTest() {
+      super.lonBackupStrategy = BackupConfiguration.BackupStrategy.ASYNC;
+      super.lonAsyncQueue = true;
+   }
+
+   @Override
+   protected ConfigurationBuilder getNycActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+   }
+
+   @Override
+   protected ConfigurationBuilder getLonActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+   }
+
+   @Override
+   protected void createSites() {
+      super.createSites();
+      TestingUtil.recursiveFileRemove(backlogLocation);
+
+      ConfigurationBuilder backupBuilder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      backupBuilder.sites().backupFor().remoteSite("LON").remoteCache(CACHE_NAME);
+      startCache("NYC", CACHE_NAME + "Backup", backupBuilder);
+
+      //the backlog is a file per cache and site, so the cache only runs on one node of LON
+      ConfigurationBuilder builder = getLonActiveConfig();
+      builder.sites().addBackup()
+            .site("NYC")
+            .strategy(BackupConfiguration.BackupStrategy.ASYNC)
+            .asyncQueue().enabled(true).maxQueueSize(MAX_QUEUE_SIZE).backlogLocation(backlogLocation)
+            .backup().sites().addInUseBackupSite("NYC");
+      lonManager().defineConfiguration(CACHE_NAME, builder.build());
+      lonManager().getCache(CACHE_NAME);
+   }
+
+   @AfterClass(alwaysRun = true)
+   protected void removeBacklog() {
+      TestingUtil.recursiveFileRemove(backlogLocation);
+   }
+
+   public void testBacklogIsSentAfterRestart() {
+      Cache<Object, Object> cache = lonManager().getCache(CACHE_NAME);
+      assertEquals(XSiteAdminOperations.SUCCESS, adminOperations(cache).takeSiteOffline("NYC"));
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache.put("k" + i, "v" + i);
+      }
+      //the writes that don't fit in the queue went to the backlog
+      assertEquals(String.valueOf(NUM_KEYS), adminOperations(cache).asyncQueueDepth("NYC"));
+
+      //the writes still in memory are added to the backlog when the cache stops
+      cache.stop();
+      cache.start();
+
+      //the site is back online after the restart
+      final XSiteAdminOperations operations = adminOperations(cache);
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "0".equals(operations.asyncQueueDepth("NYC"));
+         }
+      });
+      Cache<Object, Object> backup = cache("NYC", CACHE_NAME + "Backup", 0);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         assertEquals("v" + i, backup.get("k" + i));
+      }
+   }
+
+   private EmbeddedCacheManager lonManager() {
+      return site("LON").cacheManagers.get(0);
+   }
+
+   private XSiteAdminOperations adminOperations(Cache<Object, Object> cache) {
+      return extractComponent(cache, XSiteAdminOperations.class);
+   }
+}
@@ -0,0 +1,115 @@
+package org.infinispan.xsite;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.BackupConfiguration;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.infinispan.test.TestingUtil.extractComponent;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests the replication to an asynchronous backup site through the asynchronous queue.
+ *
+ * @since 7.0
+ */
+@Test(groups = "xsite", testName = "xsite.NonTxAsyncQueueBackupTest")
+public class NonTxAsyncQueueBackupTest extends AbstractTwoSitesTest {
+
+   private static final int NUM_KEYS = 100;
+
+   public NonTxAsyncQueueBackupTest() {
+      super.lonBackupStrategy = BackupConfiguration.BackupStrategy.ASYNC;
+      super.lonAsyncQueue = true;
+   }
+
+   @Override
+   protected ConfigurationBuilder getNycActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+   }
+
+   @Override
+   protected ConfigurationBuilder getLonActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+   }
+
+   public void testWritesReachTheBackup() {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache("LON", i % 2).put("k" + i, "v" + i);
+      }
+      Map<Object, Object> map = new HashMap<Object, Object>();
+      for (int i = 0; i < NUM_KEYS; i++) {
+         map.put("m" + i, "v" + i);
+      }
+      cache("LON", 0).putAll(map);
+      for (int i = 0; i < 10; i++) {
+         cache("LON", 1).remove("k" + i);
+      }
+      assertQueueDrained();
+
+      for (int i = 0; i < 10; i++) {
+         assertNull(backup("LON").get("k" + i));
+      }
+      for (int i = 10; i < NUM_KEYS; i++) {
+         assertEquals("v" + i, backup("LON").get("k" + i));
+         assertEquals("v" + i, backup("LON").get("m" + i));
+      }
+   }
+
+   public void testLastWriteWins() {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache("LON", 0).put("key", "v" + i);
+      }
+      assertQueueDrained();
+      assertEquals("v" + (NUM_KEYS - 1), backup("LON").get("key"));
+   }
+
+   public void testConditionalWrites() {
+      Cache<Object, Object> cache = cache("LON", 0);
+      //the conditional writes may be coalesced with the writes they depend on
+      cache.putIfAbsent("replaced", "v0");
+      cache.replace("replaced", "v0", "v1");
+      cache.put("removed", "v0");
+      cache.remove("removed", "v0");
+      cache.putIfAbsent("absent", "v0");
+      cache.replace("unconditionallyReplaced", "v0");
+      cache.put("unconditionallyReplaced", "v0");
+      cache.replace("unconditionallyReplaced", "v1");
+      assertQueueDrained();
+
+      assertEquals("v1", backup("LON").get("replaced"));
+      assertNull(backup("LON").get("removed"));
+      assertEquals("v0", backup("LON").get("absent"));
+      assertEquals("v1", backup("LON").get("unconditionallyReplaced"));
+   }
+
+   public void testClear() {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache("LON", 0).put("c" + i, "v" + i);
+      }
+      //the writes are queued by the primary owner of each key, and the queues are not ordered with one another
+      assertQueueDrained();
+      assertEquals("v0", backup("LON").get("c0"));
+      cache("LON", 0).clear();
+      cache("LON", 0).put("afterClear", "v");
+      assertQueueDrained();
+      assertNull(backup("LON").get("c0"));
+      assertEquals("v", backup("LON").get("afterClear"));
+   }
+
+   private void assertQueueDrained() {
+      final XSiteAdminOperations operations = extractComponent(cache("LON", 0), XSiteAdminOperations.class);
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "0".equals(operations.asyncQueueDepth("NYC"));
+         }
+      });
+      assertEquals("0", operations.replicationLag("NYC"));
+   }
+}
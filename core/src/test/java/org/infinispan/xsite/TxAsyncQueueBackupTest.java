@@ -0,0 +1,24 @@
+package org.infinispan.xsite;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the replication of transactions to an asynchronous backup site through the asynchronous queue.
+ *
+ * @since 7.0
+ */
+@Test(groups = "xsite", testName = "xsite.TxAsyncQueueBackupTest")
+public class TxAsyncQueueBackupTest extends NonTxAsyncQueueBackupTest {
+
+   @Override
+   protected ConfigurationBuilder getNycActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, true);
+   }
+
+   @Override
+   protected ConfigurationBuilder getLonActiveConfig() {
+      return getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, true);
+   }
+}
@@ -4,12 +4,14 @@
 import org.infinispan.configuration.cache.BackupFailurePolicy;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.TakeOfflineConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
 import org.infinispan.configuration.cache.XSiteStateTransferConfiguration;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.SingleCacheManagerTest;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.testng.annotations.Test;
 
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.*;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.*;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNull;
@@ -25,7 +27,11 @@ public class XSiteFileParsing2Test extends SingleCacheManagerTest {
    public static final String FILE_NAME = "configs/xsite/xsite-test2.xml";
    private static final TakeOfflineConfiguration DEFAULT_TAKE_OFFLINE = new TakeOfflineConfiguration(0, 0);
    private static final XSiteStateTransferConfiguration DEFAULT_STATE_TRANSFER =
-         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT);
+         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT, DEFAULT_PARALLELISM,
+                                             DEFAULT_MAX_IN_FLIGHT_CHUNKS);
+   private static final XSiteAsyncQueueConfiguration DEFAULT_ASYNC_QUEUE =
+         new XSiteAsyncQueueConfiguration(false, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_QUEUE_SIZE, null,
+                                          DEFAULT_MAX_BACKLOG_SIZE);
 
    @Override
    protected EmbeddedCacheManager createCacheManager() throws Exception {
@@ -50,7 +56,7 @@ public void testNoBackupFor() {
 
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                                         12003, BackupFailurePolicy.WARN, null, false,
-                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
       assertNull(dcc.sites().backupFor().remoteSite());
       assertNull(dcc.sites().backupFor().remoteCache());
    }
@@ -63,13 +69,13 @@ public void testNoBackupFor2() {
    private void testDefault(Configuration dcc) {
       BackupConfiguration nyc = new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                         12003l, BackupFailurePolicy.IGNORE, null, false,
-                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true);
+                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true);
       BackupConfiguration sfo = new BackupConfiguration("SFO", BackupConfiguration.BackupStrategy.ASYNC,
                                                         10000l, BackupFailurePolicy.WARN, null, false,
-                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true);
+                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true);
       BackupConfiguration lon = new BackupConfiguration("LON", BackupConfiguration.BackupStrategy.SYNC,
                                                         10000l, BackupFailurePolicy.WARN, null, false,
-                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, false);
+                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, false);
       assertTrue(dcc.sites().allBackups().contains(nyc));
       assertTrue(dcc.sites().allBackups().contains(sfo));
       assertTrue(dcc.sites().allBackups().contains(lon));
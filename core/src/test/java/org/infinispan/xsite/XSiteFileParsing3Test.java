@@ -4,13 +4,20 @@
 import org.infinispan.configuration.cache.BackupFailurePolicy;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.TakeOfflineConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
 import org.infinispan.configuration.cache.XSiteStateTransferConfiguration;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.SingleCacheManagerTest;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.testng.annotations.Test;
 
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_BATCH_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_FLUSH_INTERVAL;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_BACKLOG_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_QUEUE_SIZE;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_CHUNK_SIZE;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_PARALLELISM;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_TIMEOUT;
 import static org.testng.AssertJUnit.*;
 
@@ -22,7 +29,11 @@
 public class XSiteFileParsing3Test extends SingleCacheManagerTest {
    public static final String FILE_NAME = "configs/xsite/xsite-offline-test.xml";
    private static final XSiteStateTransferConfiguration DEFAULT_STATE_TRANSFER =
-         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT);
+         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT, DEFAULT_PARALLELISM,
+                                             DEFAULT_MAX_IN_FLIGHT_CHUNKS);
+   private static final XSiteAsyncQueueConfiguration DEFAULT_ASYNC_QUEUE =
+         new XSiteAsyncQueueConfiguration(false, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_QUEUE_SIZE, null,
+                                          DEFAULT_MAX_BACKLOG_SIZE);
 
    @Override
    protected EmbeddedCacheManager createCacheManager() throws Exception {
@@ -47,7 +58,7 @@ public void testNoTakeOffline() {
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                                         12003, BackupFailurePolicy.WARN, null, false,
                                                                         new TakeOfflineConfiguration(0, 0),
-                                                                        DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
       assertNull(dcc.sites().backupFor().remoteSite());
       assertNull(dcc.sites().backupFor().remoteCache());
    }
@@ -57,7 +68,7 @@ public void testTakeOfflineDifferentConfig() {
       TakeOfflineConfiguration toc = new TakeOfflineConfiguration(321, 3765);
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                                         12003l, BackupFailurePolicy.IGNORE, null, false, toc,
-                                                                        DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
 
    }
 
@@ -65,7 +76,7 @@ private void testDefault(Configuration dcc) {
       TakeOfflineConfiguration toc = new TakeOfflineConfiguration(123, 5673);
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                                         12003l, BackupFailurePolicy.IGNORE, null, false, toc,
-                                                                        DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
       assertEquals("someCache", dcc.sites().backupFor().remoteCache());
       assertEquals("SFO", dcc.sites().backupFor().remoteSite());
    }
@@ -5,6 +5,7 @@
 import org.infinispan.configuration.cache.BackupForConfiguration;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.TakeOfflineConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
 import org.infinispan.configuration.cache.XSiteStateTransferConfiguration;
 import org.infinispan.configuration.global.GlobalConfiguration;
 import org.infinispan.manager.EmbeddedCacheManager;
@@ -12,7 +13,13 @@
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.testng.annotations.Test;
 
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_BATCH_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_FLUSH_INTERVAL;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_BACKLOG_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_QUEUE_SIZE;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_CHUNK_SIZE;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_PARALLELISM;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_TIMEOUT;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
@@ -27,7 +34,11 @@ public class XSiteFileParsingTest extends SingleCacheManagerTest {
    public static final String FILE_NAME = "configs/xsite/xsite-test.xml";
    private static final TakeOfflineConfiguration DEFAULT_TAKE_OFFLINE = new TakeOfflineConfiguration(0, 0);
    private static final XSiteStateTransferConfiguration DEFAULT_STATE_TRANSFER =
-         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT);
+         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT, DEFAULT_PARALLELISM,
+                                             DEFAULT_MAX_IN_FLIGHT_CHUNKS);
+   private static final XSiteAsyncQueueConfiguration DEFAULT_ASYNC_QUEUE =
+         new XSiteAsyncQueueConfiguration(false, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_QUEUE_SIZE, null,
+                                          DEFAULT_MAX_BACKLOG_SIZE);
 
    @Override
    protected EmbeddedCacheManager createCacheManager() throws Exception {
@@ -72,7 +83,7 @@ public void testCustomBackupPolicy() {
                                                                            160000, BackupFailurePolicy.CUSTOM,
                                                                            CountingCustomFailurePolicy.class.getName(),
                                                                            false, DEFAULT_TAKE_OFFLINE ,
-                                                                           DEFAULT_STATE_TRANSFER, true)));
+                                                                           DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
       assertEquals(dcc.sites().backupFor().remoteCache(), null);
    }
 
@@ -80,9 +91,9 @@ private void testDefault(Configuration dcc) {
       assertEquals(dcc.sites().allBackups().size(), 2);
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC,
                                                                         12003l, BackupFailurePolicy.IGNORE, null, false,
-                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
       assertTrue(dcc.sites().allBackups().contains(new BackupConfiguration("SFO", BackupConfiguration.BackupStrategy.ASYNC,
                                                                         10000l, BackupFailurePolicy.WARN, null, false,
-                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true)));
+                                                                        DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true)));
    }
 }
@@ -5,6 +5,7 @@
 import org.infinispan.configuration.cache.BackupFailurePolicy;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.TakeOfflineConfiguration;
+import org.infinispan.configuration.cache.XSiteAsyncQueueConfiguration;
 import org.infinispan.configuration.cache.XSiteStateTransferConfiguration;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.SingleCacheManagerTest;
@@ -14,7 +15,13 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_BATCH_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_FLUSH_INTERVAL;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_BACKLOG_SIZE;
+import static org.infinispan.configuration.cache.XSiteAsyncQueueConfigurationBuilder.DEFAULT_MAX_QUEUE_SIZE;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_CHUNK_SIZE;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_PARALLELISM;
 import static org.infinispan.configuration.cache.XSiteStateTransferConfigurationBuilder.DEFAULT_TIMEOUT;
 import static org.infinispan.test.TestingUtil.INFINISPAN_END_TAG;
 import static org.infinispan.test.TestingUtil.INFINISPAN_START_TAG;
@@ -31,7 +38,11 @@ public class XSiteStateTransferFileParsing extends SingleCacheManagerTest {
 
    private static final TakeOfflineConfiguration DEFAULT_TAKE_OFFLINE = new TakeOfflineConfiguration(0, 0);
    private static final XSiteStateTransferConfiguration DEFAULT_STATE_TRANSFER =
-         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT);
+         new XSiteStateTransferConfiguration(DEFAULT_CHUNK_SIZE, DEFAULT_TIMEOUT, DEFAULT_PARALLELISM,
+                                             DEFAULT_MAX_IN_FLIGHT_CHUNKS);
+   private static final XSiteAsyncQueueConfiguration DEFAULT_ASYNC_QUEUE =
+         new XSiteAsyncQueueConfiguration(false, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_QUEUE_SIZE, null,
+                                          DEFAULT_MAX_BACKLOG_SIZE);
 
    private static final String FILE_NAME = "configs/xsite/xsite-state-transfer-test.xml";
    private static final String XML_FORMAT = INFINISPAN_START_TAG +
@@ -120,14 +131,15 @@ private void testDefault(Configuration dcc) {
    }
 
    private static BackupConfiguration create(int chunkSize, long timeout) {
-      XSiteStateTransferConfiguration stateTransferConfiguration = new XSiteStateTransferConfiguration(chunkSize, timeout);
+      XSiteStateTransferConfiguration stateTransferConfiguration =
+            new XSiteStateTransferConfiguration(chunkSize, timeout, DEFAULT_PARALLELISM, DEFAULT_MAX_IN_FLIGHT_CHUNKS);
       return new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC, 12003, BackupFailurePolicy.WARN,
-                                     null, false, DEFAULT_TAKE_OFFLINE, stateTransferConfiguration, true);
+                                     null, false, DEFAULT_TAKE_OFFLINE, stateTransferConfiguration, DEFAULT_ASYNC_QUEUE, true);
    }
 
    private static BackupConfiguration createDefault() {
       return new BackupConfiguration("NYC", BackupConfiguration.BackupStrategy.SYNC, 12003, BackupFailurePolicy.WARN,
-                                     null, false, DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, true);
+                                     null, false, DEFAULT_TAKE_OFFLINE, DEFAULT_STATE_TRANSFER, DEFAULT_ASYNC_QUEUE, true);
    }
 
 }
@@ -56,6 +56,29 @@ public void testFailureBasedOnly() throws Throwable {
       test(offlineStatus);
    }
 
+   public void testTimesBroughtOnline() {
+      OfflineStatus offlineStatus = new OfflineStatus(new TakeOfflineConfiguration(2, 0), TIME_SERVICE);
+      assertEquals(0L, offlineStatus.getTimesBroughtOnline());
+
+      //resetting the failures of a site still online doesn't count
+      offlineStatus.updateOnCommunicationFailure(now());
+      offlineStatus.reset();
+      assertEquals(0L, offlineStatus.getTimesBroughtOnline());
+
+      assert offlineStatus.forceOffline();
+      assert offlineStatus.bringOnline();
+      assertEquals(1L, offlineStatus.getTimesBroughtOnline());
+      assert !offlineStatus.bringOnline();
+      assertEquals(1L, offlineStatus.getTimesBroughtOnline());
+
+      offlineStatus.updateOnCommunicationFailure(now());
+      offlineStatus.updateOnCommunicationFailure(now());
+      assert offlineStatus.isOffline();
+      offlineStatus.amend(new TakeOfflineConfiguration(5, 0));
+      assert !offlineStatus.isOffline();
+      assertEquals(2L, offlineStatus.getTimesBroughtOnline());
+   }
+
    private void test(OfflineStatus offlineStatus) throws InterruptedException {
       for (int i = 0; i < 9; i++) {
          offlineStatus.updateOnCommunicationFailure(now());
@@ -0,0 +1,59 @@
+package org.infinispan.xsite.statetransfer;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.xsite.XSiteAdminOperations;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.test.TestingUtil.extractComponent;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the cross-site state transfer pushed by several threads per node, each one with several chunks in flight,
+ * using a segmented data container.
+ *
+ * @since 7.0
+ */
+@Test(groups = "xsite", testName = "xsite.statetransfer.DistSyncNonTxParallelStateTransferTest")
+public class DistSyncNonTxParallelStateTransferTest extends DistSyncNonTxStateTransferTest {
+
+   public DistSyncNonTxParallelStateTransferTest() {
+      super();
+      lonStateTransferParallelism = 4;
+      lonStateTransferMaxInFlightChunks = 2;
+   }
+
+   @Override
+   protected ConfigurationBuilder getLonActiveConfig() {
+      ConfigurationBuilder builder = super.getLonActiveConfig();
+      builder.dataContainer().segmented(true);
+      return builder;
+   }
+
+   public void testPushStateProgress() {
+      final XSiteAdminOperations operations = extractComponent(cache(LON, 0), XSiteAdminOperations.class);
+      assertEquals(XSiteAdminOperations.SUCCESS, operations.takeSiteOffline(NYC));
+
+      final int amountOfData = 1000;
+      for (int i = 0; i < amountOfData; ++i) {
+         cache(LON, 0).put("key_" + i, "value");
+      }
+
+      assertEquals(XSiteAdminOperations.SUCCESS, operations.pushState(NYC));
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return operations.getRunningStateTransfer().isEmpty();
+         }
+      }, TimeUnit.SECONDS.toMillis(30));
+
+      String progress = operations.getPushStateProgress(NYC);
+      assertTrue(progress, progress.startsWith("FINISHED"));
+      assertTrue(progress, progress.contains("sent=" + amountOfData + " entries"));
+      for (int i = 0; i < amountOfData; ++i) {
+         assertEquals("value", cache(NYC, 0).get("key_" + i));
+      }
+   }
+}
@@ -33,4 +33,9 @@ public void cancelStateTransfer(String siteName) {
    public Collection<String> getCurrentStateSending() {
       return xSiteStateProvider.getCurrentStateSending();
    }
+
+   @Override
+   public long[] getStateTransferProgress(String siteName) {
+      return xSiteStateProvider.getStateTransferProgress(siteName);
+   }
 }
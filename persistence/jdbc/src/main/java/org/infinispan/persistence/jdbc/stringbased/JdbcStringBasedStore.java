@@ -15,6 +15,7 @@
 import org.infinispan.persistence.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.persistence.keymappers.UnsupportedKeyTypeException;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.util.KeyValuePair;
 import org.infinispan.util.logging.LogFactory;
@@ -25,6 +26,9 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -68,7 +72,7 @@
  * @see org.infinispan.persistence.keymappers.DefaultTwoWayKey2StringMapper
  */
 @ConfiguredBy(JdbcStringBasedStoreConfiguration.class)
-public class JdbcStringBasedStore implements AdvancedLoadWriteStore {
+public class JdbcStringBasedStore implements AdvancedLoadWriteStore, BatchCacheWriter {
 
    private static final Log log = LogFactory.getLog(JdbcStringBasedStore.class, Log.class);
 
@@ -180,6 +184,84 @@ public void write(MarshalledEntry entry) {
       }
    }
 
+   /**
+    * Writes the entries using two JDBC batches on the same connection: the rows of the keys that are already stored are
+    * updated first, then the remaining rows are inserted.
+    */
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> marshalledEntries) {
+      // only the last entry of a key is written, as inserting a key twice would fail
+      Map<String, MarshalledEntry> entries = new LinkedHashMap<String, MarshalledEntry>();
+      for (MarshalledEntry entry : marshalledEntries)
+         entries.put(key2Str(entry.getKey()), entry);
+      if (entries.isEmpty())
+         return;
+
+      Connection connection = null;
+      PreparedStatement ps = null;
+      try {
+         connection = connectionFactory.getConnection();
+         String sql = tableManipulation.getUpdateRowSql();
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql '%s' on %d keys", sql, entries.size());
+         }
+         ps = connection.prepareStatement(sql);
+         for (Map.Entry<String, MarshalledEntry> e : entries.entrySet()) {
+            updateStatement(e.getValue(), e.getKey(), ps);
+            ps.addBatch();
+         }
+         int[] updateCounts = ps.executeBatch();
+         JdbcUtil.safeClose(ps);
+         ps = null;
+
+         sql = tableManipulation.getInsertRowSql();
+         int inserts = 0;
+         int i = 0;
+         for (Map.Entry<String, MarshalledEntry> e : entries.entrySet()) {
+            int updateCount = updateCounts[i++];
+            if (updateCount == 0 || (updateCount == Statement.SUCCESS_NO_INFO && !rowExists(connection, e.getKey()))) {
+               if (ps == null) {
+                  if (log.isTraceEnabled()) {
+                     log.tracef("Running sql '%s'", sql);
+                  }
+                  ps = connection.prepareStatement(sql);
+               }
+               updateStatement(e.getValue(), e.getKey(), ps);
+               ps.addBatch();
+               inserts++;
+            }
+         }
+         if (inserts > 0) {
+            ps.executeBatch();
+         }
+      } catch (SQLException ex) {
+         log.sqlFailureStoringKeys(ex);
+         throw new PersistenceException(String.format("Error while storing string keys to database; keys: '%s'", entries.keySet()), ex);
+      } catch (InterruptedException e) {
+         if (log.isTraceEnabled()) {
+            log.trace("Interrupted while marshalling to store");
+         }
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
+   private boolean rowExists(Connection connection, String keyStr) throws SQLException {
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         ps = connection.prepareStatement(tableManipulation.getSelectIdRowSql());
+         ps.setString(1, keyStr);
+         rs = ps.executeQuery();
+         return rs.next();
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+      }
+   }
+
    @Override
    public MarshalledEntry load(Object key) {
       String lockingKey = key2Str(key);
@@ -238,6 +320,35 @@ public boolean delete(Object key) {
       }
    }
 
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      Connection connection = null;
+      PreparedStatement ps = null;
+      try {
+         String sql = tableManipulation.getDeleteRowSql();
+         connection = connectionFactory.getConnection();
+         ps = connection.prepareStatement(sql);
+         int count = 0;
+         for (Object key : keys) {
+            ps.setString(1, key2Str(key));
+            ps.addBatch();
+            count++;
+         }
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql '%s' on %d keys", sql, count);
+         }
+         if (count > 0) {
+            ps.executeBatch();
+         }
+      } catch (SQLException ex) {
+         log.sqlFailureRemovingKeys(ex);
+         throw new PersistenceException("Error while removing string keys from database", ex);
+      } finally {
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
    @Override
    public void clear() throws PersistenceException {
       Connection conn = null;
@@ -12,6 +12,7 @@
 import org.infinispan.persistence.leveldb.configuration.LevelDBStoreConfiguration;
 import org.infinispan.persistence.leveldb.logging.Log;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.util.logging.LogFactory;
 import org.iq80.leveldb.CompressionType;
@@ -21,6 +22,7 @@
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.WriteBatch;
 
 import java.io.File;
 import java.io.IOException;
@@ -35,7 +37,7 @@
 import java.util.concurrent.LinkedBlockingQueue;
 
 @ConfiguredBy(LevelDBStoreConfiguration.class)
-public class LevelDBStore implements AdvancedLoadWriteStore {
+public class LevelDBStore implements AdvancedLoadWriteStore, BatchCacheWriter {
    private static final Log log = LogFactory.getLog(LevelDBStore.class, Log.class);
 
    private static final String JNI_DB_FACTORY_CLASS_NAME = "org.fusesource.leveldbjni.JniDBFactory";
@@ -333,6 +335,52 @@ public void write(MarshalledEntry me)  {
       }
    }
 
+   @Override
+   public void writeBatch(Iterable<MarshalledEntry> marshalledEntries) {
+      WriteBatch batch = db.createWriteBatch();
+      try {
+         List<MarshalledEntry> expiring = new ArrayList<MarshalledEntry>();
+         for (MarshalledEntry me : marshalledEntries) {
+            batch.put(marshall(me.getKey()), marshall(me));
+            InternalMetadata meta = me.getMetadata();
+            if (meta != null && meta.expiryTime() > -1) {
+               expiring.add(me);
+            }
+         }
+         db.write(batch);
+         for (MarshalledEntry me : expiring) {
+            addNewExpiry(me);
+         }
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      } finally {
+         closeBatch(batch);
+      }
+   }
+
+   @Override
+   public void deleteBatch(Iterable<Object> keys) {
+      WriteBatch batch = db.createWriteBatch();
+      try {
+         for (Object key : keys) {
+            batch.delete(marshall(key));
+         }
+         db.write(batch);
+      } catch (Exception e) {
+         throw new PersistenceException(e);
+      } finally {
+         closeBatch(batch);
+      }
+   }
+
+   private void closeBatch(WriteBatch batch) {
+      try {
+         batch.close();
+      } catch (IOException e) {
+         log.debug("Unable to close the write batch", e);
+      }
+   }
+
    @Override
    public MarshalledEntry load(Object key)  {
       try {
@@ -0,0 +1,175 @@
+package org.infinispan.query.dsl.impl;
+
+import java.io.Serializable;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A dot separated path to an attribute of an entity, resolved by reflection against the getters, or else the fields,
+ * of the objects along the path. Collections and arrays along the path are traversed, so a path can resolve to
+ * several values, e.g. {@code addresses.postCode} for a user having several addresses.
+ * <p/>
+ * Instances are thread safe, the accessors are looked up once per class.
+ *
+ * @since 7.0
+ */
+public final class AttributePath implements Serializable {
+
+   private static final long serialVersionUID = -2178412957386146093L;
+
+   private final String path;
+
+   private final String[] names;
+
+   private transient volatile ConcurrentMap<Class<?>, AccessibleObject>[] accessors;
+
+   public AttributePath(String path) {
+      if (path == null || path.isEmpty()) {
+         throw new IllegalArgumentException("path cannot be null or empty");
+      }
+      this.path = path;
+      this.names = path.split("\\.");
+   }
+
+   public String getPath() {
+      return path;
+   }
+
+   /**
+    * Resolves the path to all of its non-null values, traversing the collections and arrays found along the path,
+    * including at its end.
+    *
+    * @return the values, possibly an empty list
+    */
+   public List<Object> getValues(Object instance) {
+      List<Object> values = new ArrayList<Object>();
+      collectValues(instance, 0, values);
+      return values;
+   }
+
+   /**
+    * Resolves the path to a single value, as used for projections and sorting. The value at the end of the path is
+    * returned as is, collections included, unless there are collections along the path: the values are then
+    * returned as by {@link #getValues(Object)}.
+    */
+   public Object getValue(Object instance) {
+      Object value = instance;
+      for (int i = 0; i < names.length && value != null; i++) {
+         if (i > 0 && isMultiValued(value)) {
+            List<Object> values = new ArrayList<Object>();
+            collectValues(value, i, values);
+            return values;
+         }
+         value = read(value, i);
+      }
+      return value;
+   }
+
+   private void collectValues(Object value, int depth, List<Object> values) {
+      if (value == null) {
+         return;
+      }
+      if (value instanceof Collection) {
+         for (Object element : (Collection<?>) value) {
+            collectValues(element, depth, values);
+         }
+      } else if (value.getClass().isArray()) {
+         int length = Array.getLength(value);
+         for (int i = 0; i < length; i++) {
+            collectValues(Array.get(value, i), depth, values);
+         }
+      } else if (depth == names.length) {
+         values.add(value);
+      } else {
+         collectValues(read(value, depth), depth + 1, values);
+      }
+   }
+
+   private static boolean isMultiValued(Object value) {
+      return value instanceof Collection || value.getClass().isArray();
+   }
+
+   private Object read(Object instance, int depth) {
+      AccessibleObject accessor = getAccessor(instance.getClass(), depth);
+      try {
+         if (accessor instanceof Method) {
+            return ((Method) accessor).invoke(instance);
+         }
+         return ((Field) accessor).get(instance);
+      } catch (IllegalAccessException e) {
+         throw new IllegalStateException("Cannot read attribute '" + names[depth] + "' of " + instance.getClass().getName(), e);
+      } catch (InvocationTargetException e) {
+         throw new IllegalStateException("Cannot read attribute '" + names[depth] + "' of " + instance.getClass().getName(), e.getCause());
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private AccessibleObject getAccessor(Class<?> type, int depth) {
+      ConcurrentMap<Class<?>, AccessibleObject>[] accessors = this.accessors;
+      if (accessors == null) {
+         // a race is harmless, the accessors are just looked up again
+         accessors = new ConcurrentMap[names.length];
+         for (int i = 0; i < names.length; i++) {
+            accessors[i] = new ConcurrentHashMap<Class<?>, AccessibleObject>();
+         }
+         this.accessors = accessors;
+      }
+      AccessibleObject accessor = accessors[depth].get(type);
+      if (accessor == null) {
+         accessor = findAccessor(type, names[depth]);
+         accessors[depth].put(type, accessor);
+      }
+      return accessor;
+   }
+
+   private AccessibleObject findAccessor(Class<?> type, String name) {
+      String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      for (String getter : new String[]{"get" + suffix, "is" + suffix}) {
+         try {
+            Method method = type.getMethod(getter);
+            if (method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+               method.setAccessible(true);
+               return method;
+            }
+         } catch (NoSuchMethodException e) {
+            // try the next getter, then the fields
+         }
+      }
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+         try {
+            Field field = c.getDeclaredField(name);
+            if (!Modifier.isStatic(field.getModifiers())) {
+               field.setAccessible(true);
+               return field;
+            }
+         } catch (NoSuchFieldException e) {
+            // try the superclass
+         }
+      }
+      throw new IllegalArgumentException("No attribute '" + name + "' found in type " + type.getName() + " for path '" + path + "'");
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      return this == o || o instanceof AttributePath && path.equals(((AttributePath) o).path);
+   }
+
+   @Override
+   public int hashCode() {
+      return path.hashCode();
+   }
+
+   @Override
+   public String toString() {
+      return path;
+   }
+}
@@ -0,0 +1,424 @@
+package org.infinispan.query.dsl.impl;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A query condition compiled to a predicate that is evaluated directly against the entities, without an index. See
+ * {@link FilterPredicateGenerator}.
+ * <p/>
+ * Predicates are serializable, so they can be evaluated on the nodes owning the entities. An attribute condition is
+ * satisfied if any of the values its attribute path resolves to satisfies it, so conditions on collections, or on
+ * the attributes of the elements of a collection, behave as they do with the indexed queries.
+ *
+ * @since 7.0
+ */
+public abstract class FilterPredicate implements Serializable {
+
+   private static final long serialVersionUID = 6245738106264893751L;
+
+   /**
+    * @return whether the entity matches the condition
+    */
+   public abstract boolean matches(Object instance);
+
+   /**
+    * Compares two attribute values. Numbers are compared by value regardless of their type, other values have to be
+    * {@link Comparable} and of compatible types.
+    *
+    * @throws ClassCastException if the values cannot be compared
+    */
+   @SuppressWarnings("unchecked")
+   public static int compare(Object value1, Object value2) {
+      if (value1 instanceof Number && value2 instanceof Number) {
+         Number n1 = (Number) value1;
+         Number n2 = (Number) value2;
+         if (isIntegral(n1) && isIntegral(n2)) {
+            long l1 = n1.longValue();
+            long l2 = n2.longValue();
+            return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+         }
+         return Double.compare(n1.doubleValue(), n2.doubleValue());
+      }
+      return ((Comparable<Object>) value1).compareTo(value2);
+   }
+
+   private static boolean isIntegral(Number n) {
+      return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte
+            || n instanceof BigInteger && ((BigInteger) n).bitLength() < 64;
+   }
+
+   static boolean valuesEqual(Object value1, Object value2) {
+      if (value1 instanceof Number && value2 instanceof Number && !(value1 instanceof BigDecimal && value2 instanceof BigDecimal)) {
+         return compare(value1, value2) == 0;
+      }
+      return value1.equals(value2);
+   }
+
+   static final FilterPredicate MATCH_ALL = new FilterPredicate() {
+
+      private static final long serialVersionUID = -1532470217453685211L;
+
+      @Override
+      public boolean matches(Object instance) {
+         return true;
+      }
+
+      private Object readResolve() {
+         return MATCH_ALL;
+      }
+
+      @Override
+      public String toString() {
+         return "TRUE";
+      }
+   };
+
+   static final class And extends FilterPredicate {
+
+      private static final long serialVersionUID = -6052741523604212357L;
+
+      private final FilterPredicate first;
+
+      private final FilterPredicate second;
+
+      And(FilterPredicate first, FilterPredicate second) {
+         this.first = first;
+         this.second = second;
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         return first.matches(instance) && second.matches(instance);
+      }
+
+      @Override
+      public String toString() {
+         return "(" + first + ") AND (" + second + ")";
+      }
+   }
+
+   static final class Or extends FilterPredicate {
+
+      private static final long serialVersionUID = 4618937260521472890L;
+
+      private final FilterPredicate first;
+
+      private final FilterPredicate second;
+
+      Or(FilterPredicate first, FilterPredicate second) {
+         this.first = first;
+         this.second = second;
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         return first.matches(instance) || second.matches(instance);
+      }
+
+      @Override
+      public String toString() {
+         return "(" + first + ") OR (" + second + ")";
+      }
+   }
+
+   static final class Not extends FilterPredicate {
+
+      private static final long serialVersionUID = -8790536147926370215L;
+
+      private final FilterPredicate predicate;
+
+      Not(FilterPredicate predicate) {
+         this.predicate = predicate;
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         return !predicate.matches(instance);
+      }
+
+      @Override
+      public String toString() {
+         return "NOT (" + predicate + ")";
+      }
+   }
+
+   /**
+    * A condition on the values of an attribute, satisfied if any of the values satisfies it.
+    */
+   abstract static class AttributePredicate extends FilterPredicate {
+
+      private static final long serialVersionUID = 3871290574013286129L;
+
+      protected final AttributePath attributePath;
+
+      AttributePredicate(AttributePath attributePath) {
+         this.attributePath = attributePath;
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         for (Object value : attributePath.getValues(instance)) {
+            if (matchesValue(value)) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      abstract boolean matchesValue(Object value);
+   }
+
+   static final class Eq extends AttributePredicate {
+
+      private static final long serialVersionUID = -4426082393542174931L;
+
+      private final Object argument;
+
+      Eq(AttributePath attributePath, Object argument) {
+         super(attributePath);
+         this.argument = argument;
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         return valuesEqual(value, argument);
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " = " + argument;
+      }
+   }
+
+   /**
+    * Compares the values against the argument, accepting the values whose comparison result is accepted.
+    */
+   static final class Comparison extends AttributePredicate {
+
+      private static final long serialVersionUID = 5017388471928370653L;
+
+      private final Object argument;
+
+      private final boolean acceptLess;
+
+      private final boolean acceptEqual;
+
+      private final boolean acceptGreater;
+
+      Comparison(AttributePath attributePath, Object argument, boolean acceptLess, boolean acceptEqual, boolean acceptGreater) {
+         super(attributePath);
+         this.argument = argument;
+         this.acceptLess = acceptLess;
+         this.acceptEqual = acceptEqual;
+         this.acceptGreater = acceptGreater;
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         int result;
+         try {
+            result = compare(value, argument);
+         } catch (ClassCastException e) {
+            return false;
+         }
+         return result < 0 ? acceptLess : (result == 0 ? acceptEqual : acceptGreater);
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " " + (acceptLess ? "<" : (acceptGreater ? ">" : "")) + (acceptEqual ? "=" : "") + " " + argument;
+      }
+   }
+
+   static final class Between extends AttributePredicate {
+
+      private static final long serialVersionUID = -3051487795127453962L;
+
+      private final Object from;
+
+      private final Object to;
+
+      private final boolean includeLower;
+
+      private final boolean includeUpper;
+
+      Between(AttributePath attributePath, Object from, Object to, boolean includeLower, boolean includeUpper) {
+         super(attributePath);
+         this.from = from;
+         this.to = to;
+         this.includeLower = includeLower;
+         this.includeUpper = includeUpper;
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         try {
+            int lower = compare(value, from);
+            if (lower < 0 || lower == 0 && !includeLower) {
+               return false;
+            }
+            int upper = compare(value, to);
+            return upper < 0 || upper == 0 && includeUpper;
+         } catch (ClassCastException e) {
+            return false;
+         }
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " BETWEEN " + (includeLower ? '[' : '(') + from + ", " + to + (includeUpper ? ']' : ')');
+      }
+   }
+
+   static final class Like extends AttributePredicate {
+
+      private static final long serialVersionUID = 7730154926801374492L;
+
+      private final String likePattern;
+
+      private final Pattern pattern;
+
+      Like(AttributePath attributePath, String likePattern) {
+         super(attributePath);
+         this.likePattern = likePattern;
+         this.pattern = Pattern.compile(toRegex(likePattern), Pattern.DOTALL);
+      }
+
+      /**
+       * Translates a JPA LIKE pattern, where '%' matches any sequence of characters and '_' any single character, to
+       * a regular expression.
+       */
+      private static String toRegex(String likePattern) {
+         StringBuilder regex = new StringBuilder();
+         StringBuilder literal = new StringBuilder();
+         for (int i = 0; i < likePattern.length(); i++) {
+            char c = likePattern.charAt(i);
+            if (c == '%' || c == '_') {
+               if (literal.length() > 0) {
+                  regex.append(Pattern.quote(literal.toString()));
+                  literal.setLength(0);
+               }
+               regex.append(c == '%' ? ".*" : ".");
+            } else {
+               literal.append(c);
+            }
+         }
+         if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+         }
+         return regex.toString();
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         return value instanceof String && pattern.matcher((String) value).matches();
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " LIKE '" + likePattern + "'";
+      }
+   }
+
+   static final class In extends AttributePredicate {
+
+      private static final long serialVersionUID = -1917648306952436402L;
+
+      private final Object[] arguments;
+
+      In(AttributePath attributePath, Object[] arguments) {
+         super(attributePath);
+         this.arguments = arguments;
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         for (Object argument : arguments) {
+            if (argument != null && valuesEqual(value, argument)) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " IN " + Arrays.toString(arguments);
+      }
+   }
+
+   /**
+    * Satisfied if each of the arguments is equal to one of the values.
+    */
+   static final class ContainsAll extends AttributePredicate {
+
+      private static final long serialVersionUID = 2980154310428695372L;
+
+      private final Object[] arguments;
+
+      ContainsAll(AttributePath attributePath, Object[] arguments) {
+         super(attributePath);
+         this.arguments = arguments;
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         List<Object> values = attributePath.getValues(instance);
+         for (Object argument : arguments) {
+            if (!contains(values, argument)) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      private static boolean contains(Collection<Object> values, Object argument) {
+         for (Object value : values) {
+            if (valuesEqual(value, argument)) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " CONTAINS ALL " + Arrays.toString(arguments);
+      }
+   }
+
+   static final class IsNull extends AttributePredicate {
+
+      private static final long serialVersionUID = -7364490156378510234L;
+
+      IsNull(AttributePath attributePath) {
+         super(attributePath);
+      }
+
+      @Override
+      public boolean matches(Object instance) {
+         return attributePath.getValues(instance).isEmpty();
+      }
+
+      @Override
+      boolean matchesValue(Object value) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public String toString() {
+         return attributePath + " IS NULL";
+      }
+   }
+}
@@ -0,0 +1,128 @@
+package org.infinispan.query.dsl.impl;
+
+import org.infinispan.query.dsl.Query;
+
+import java.util.Collection;
+
+/**
+ * Compiles the condition created with the builder to a {@link FilterPredicate} that is evaluated directly against the
+ * entities, so that queries can be executed on caches that are not indexed.
+ *
+ * @since 7.0
+ */
+public class FilterPredicateGenerator implements Visitor<FilterPredicate> {
+
+   public FilterPredicateGenerator() {
+   }
+
+   @Override
+   public <T extends Query> FilterPredicate visit(BaseQueryBuilder<T> baseQueryBuilder) {
+      if (baseQueryBuilder.getFilterCondition() == null) {
+         return FilterPredicate.MATCH_ALL;
+      }
+      return baseQueryBuilder.getFilterCondition().getRoot().accept(this);
+   }
+
+   @Override
+   public FilterPredicate visit(AndCondition booleanCondition) {
+      return new FilterPredicate.And(booleanCondition.getFirstCondition().accept(this),
+                                     booleanCondition.getSecondCondition().accept(this));
+   }
+
+   @Override
+   public FilterPredicate visit(OrCondition booleanCondition) {
+      return new FilterPredicate.Or(booleanCondition.getFirstCondition().accept(this),
+                                    booleanCondition.getSecondCondition().accept(this));
+   }
+
+   @Override
+   public FilterPredicate visit(NotCondition notCondition) {
+      return new FilterPredicate.Not(notCondition.getFirstCondition().accept(this));
+   }
+
+   @Override
+   public FilterPredicate visit(AttributeCondition attributeCondition) {
+      if (attributeCondition.getAttributePath() == null || attributeCondition.getOperatorAndArgument() == null) {
+         throw new IllegalStateException("Incomplete sentence. Missing attribute path or operator.");
+      }
+
+      FilterPredicate predicate = attributeCondition.getOperatorAndArgument().accept(this);
+      return attributeCondition.isNegated() ? new FilterPredicate.Not(predicate) : predicate;
+   }
+
+   @Override
+   public FilterPredicate visit(EqOperator operator) {
+      return new FilterPredicate.Eq(attributePath(operator), operator.getArgument());
+   }
+
+   @Override
+   public FilterPredicate visit(GtOperator operator) {
+      return new FilterPredicate.Comparison(attributePath(operator), operator.getArgument(), false, false, true);
+   }
+
+   @Override
+   public FilterPredicate visit(GteOperator operator) {
+      return new FilterPredicate.Comparison(attributePath(operator), operator.getArgument(), false, true, true);
+   }
+
+   @Override
+   public FilterPredicate visit(LtOperator operator) {
+      return new FilterPredicate.Comparison(attributePath(operator), operator.getArgument(), true, false, false);
+   }
+
+   @Override
+   public FilterPredicate visit(LteOperator operator) {
+      return new FilterPredicate.Comparison(attributePath(operator), operator.getArgument(), true, true, false);
+   }
+
+   @Override
+   public FilterPredicate visit(BetweenOperator operator) {
+      ValueRange range = operator.getArgument();
+      return new FilterPredicate.Between(attributePath(operator), range.getFrom(), range.getTo(),
+                                         range.isIncludeLower(), range.isIncludeUpper());
+   }
+
+   @Override
+   public FilterPredicate visit(LikeOperator operator) {
+      return new FilterPredicate.Like(attributePath(operator), operator.getArgument());
+   }
+
+   @Override
+   public FilterPredicate visit(IsNullOperator operator) {
+      return new FilterPredicate.IsNull(attributePath(operator));
+   }
+
+   @Override
+   public FilterPredicate visit(InOperator operator) {
+      return new FilterPredicate.In(attributePath(operator), toArray(operator.getArgument()));
+   }
+
+   @Override
+   public FilterPredicate visit(ContainsOperator operator) {
+      return new FilterPredicate.Eq(attributePath(operator), operator.getArgument());
+   }
+
+   @Override
+   public FilterPredicate visit(ContainsAllOperator operator) {
+      return new FilterPredicate.ContainsAll(attributePath(operator), toArray(operator.getArgument()));
+   }
+
+   @Override
+   public FilterPredicate visit(ContainsAnyOperator operator) {
+      return new FilterPredicate.In(attributePath(operator), toArray(operator.getArgument()));
+   }
+
+   private AttributePath attributePath(OperatorAndArgument operator) {
+      return new AttributePath(operator.getAttributeCondition().getAttributePath());
+   }
+
+   private Object[] toArray(Object argument) {
+      if (argument instanceof Collection) {
+         return ((Collection) argument).toArray();
+      } else if (argument instanceof Object[]) {
+         return (Object[]) argument;
+      } else {
+         throw new IllegalArgumentException("Expecting a Collection or an array of Object");
+      }
+   }
+}
@@ -2,6 +2,9 @@
 
 import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.QueryFactory;
+import org.infinispan.query.dsl.embedded.impl.EmbeddedFilterQueryFactory;
 import org.infinispan.query.impl.SearchManagerImpl;
 import org.infinispan.security.AuthorizationManager;
 import org.infinispan.security.AuthorizationPermission;
@@ -21,6 +24,21 @@ public static SearchManager getSearchManager(Cache<?, ?> cache) {
       return new SearchManagerImpl(cache.getAdvancedCache());
    }
 
+   /**
+    * Experimental! Obtains a factory for DSL-based queries that are executed by evaluating their conditions against
+    * the entries stored in the cache, rather than by searching an index. The cache doesn't need to be indexed, which
+    * suits entities updated too often to be worth indexing, but each query traverses all the entries.
+    *
+    * @return a factory capable of building non-indexed queries for the given cache
+    */
+   public static QueryFactory<Query> getFilterQueryFactory(Cache<?, ?> cache) {
+      if (cache == null || cache.getAdvancedCache() == null) {
+         throw new IllegalArgumentException("cache parameter shall not be null");
+      }
+      ensureAccessPermissions(cache.getAdvancedCache());
+      return new EmbeddedFilterQueryFactory(cache.getAdvancedCache());
+   }
+
    private static void ensureAccessPermissions(final AdvancedCache<?, ?> cache) {
       AuthorizationManager authorizationManager = SecurityActions.getCacheAuthorizationManager(cache);
       if (authorizationManager != null) {
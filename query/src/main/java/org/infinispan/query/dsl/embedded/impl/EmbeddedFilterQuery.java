@@ -0,0 +1,111 @@
+package org.infinispan.query.dsl.embedded.impl;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.commons.CacheException;
+import org.infinispan.distexec.DefaultExecutorService;
+import org.infinispan.distexec.DistributedExecutorService;
+import org.infinispan.query.dsl.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A query executed by evaluating its condition against the entities stored in the cache, rather than by searching an
+ * index. On a distributed cache each node evaluates the condition against the entries it's the primary owner of, and
+ * returns only the matching projections, which are then sorted and paged locally.
+ *
+ * @since 7.0
+ */
+class EmbeddedFilterQuery implements Query {
+
+   private final AdvancedCache<?, ?> cache;
+
+   private final FilterQueryCallable callable;
+
+   private final long startOffset;
+
+   private final int maxResults;
+
+   private List<Object> results = null;
+
+   private int resultSize;
+
+   public EmbeddedFilterQuery(AdvancedCache<?, ?> cache, FilterQueryCallable callable, long startOffset, int maxResults) {
+      this.cache = cache;
+      this.callable = callable;
+      this.startOffset = startOffset;
+      this.maxResults = maxResults;
+   }
+
+   private synchronized void execute() {
+      if (results != null) {
+         return;
+      }
+
+      List<FilterQueryResult> nodeResults = new ArrayList<FilterQueryResult>();
+      DistributedExecutorService executor = new DefaultExecutorService(cache);
+      try {
+         List<Future<FilterQueryResult>> futures;
+         if (cache.getCacheConfiguration().clustering().cacheMode().isDistributed()) {
+            futures = executor.submitEverywhere(callable);
+         } else {
+            // all the entries are available locally
+            futures = Collections.singletonList(executor.submit(callable));
+         }
+         for (Future<FilterQueryResult> future : futures) {
+            nodeResults.add(future.get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while executing query " + callable, e);
+      } catch (ExecutionException e) {
+         throw new CacheException("Failed to execute query " + callable, e.getCause());
+      } finally {
+         executor.shutdown();
+      }
+
+      int matchCount = 0;
+      List<Object[]> rows = new ArrayList<Object[]>();
+      for (FilterQueryResult nodeResult : nodeResults) {
+         matchCount += nodeResult.getMatchCount();
+         rows.addAll(nodeResult.getRows());
+      }
+      if (callable.getComparator() != null) {
+         Collections.sort(rows, callable.getComparator());
+      }
+
+      int from = (int) Math.min(Math.max(startOffset, 0), rows.size());
+      int to = maxResults >= 0 ? Math.min(from + maxResults, rows.size()) : rows.size();
+      List<Object> page = new ArrayList<Object>(to - from);
+      for (Object[] row : rows.subList(from, to)) {
+         page.add(row[0]);
+      }
+      resultSize = matchCount;
+      results = page;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <T> List<T> list() {
+      execute();
+      return (List<T>) results;
+   }
+
+   @Override
+   public int getResultSize() {
+      execute();
+      return resultSize;
+   }
+
+   @Override
+   public String toString() {
+      return "EmbeddedFilterQuery{" +
+            "callable=" + callable +
+            ", startOffset=" + startOffset +
+            ", maxResults=" + maxResults +
+            '}';
+   }
+}
@@ -0,0 +1,65 @@
+package org.infinispan.query.dsl.embedded.impl;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.SortOrder;
+import org.infinispan.query.dsl.impl.AttributePath;
+import org.infinispan.query.dsl.impl.BaseQueryBuilder;
+import org.infinispan.query.dsl.impl.FilterPredicate;
+import org.infinispan.query.dsl.impl.FilterPredicateGenerator;
+import org.infinispan.query.dsl.impl.SortCriteria;
+import org.infinispan.query.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * @since 7.0
+ */
+class EmbeddedFilterQueryBuilder extends BaseQueryBuilder<Query> {
+
+   private static final Log log = LogFactory.getLog(EmbeddedFilterQueryBuilder.class, Log.class);
+
+   private final AdvancedCache<?, ?> cache;
+
+   public EmbeddedFilterQueryBuilder(AdvancedCache<?, ?> cache, Class rootType) {
+      super(rootType);
+      this.cache = cache;
+   }
+
+   @Override
+   public Query build() {
+      FilterPredicate predicate = accept(new FilterPredicateGenerator());
+      if (log.isTraceEnabled()) {
+         log.tracef("Filter predicate : %s", predicate);
+      }
+
+      AttributePath[] projectionPaths = null;
+      if (projection != null && projection.length != 0) {
+         projectionPaths = new AttributePath[projection.length];
+         for (int i = 0; i < projection.length; i++) {
+            projectionPaths[i] = new AttributePath(projection[i]);
+         }
+      }
+
+      FilterQueryCallable.RowComparator comparator = null;
+      if (sortCriteria != null && !sortCriteria.isEmpty()) {
+         AttributePath[] sortPaths = new AttributePath[sortCriteria.size()];
+         boolean[] descending = new boolean[sortCriteria.size()];
+         int i = 0;
+         for (SortCriteria sc : sortCriteria) {
+            sortPaths[i] = new AttributePath(sc.getAttributePath());
+            descending[i++] = sc.getSortOrder() == SortOrder.DESC;
+         }
+         comparator = new FilterQueryCallable.RowComparator(sortPaths, descending);
+      }
+
+      // each node only needs to return the rows that can be part of the requested page
+      int maxRows = -1;
+      if (maxResults >= 0) {
+         long rows = Math.max(startOffset, 0) + maxResults;
+         maxRows = rows > Integer.MAX_VALUE ? -1 : (int) rows;
+      }
+
+      FilterQueryCallable callable = new FilterQueryCallable(rootType, predicate, projectionPaths, comparator, maxRows);
+      return new EmbeddedFilterQuery(cache, callable, startOffset, maxResults);
+   }
+}
@@ -0,0 +1,26 @@
+package org.infinispan.query.dsl.embedded.impl;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.QueryBuilder;
+import org.infinispan.query.dsl.impl.BaseQueryFactory;
+
+/**
+ * Builds queries that are executed by filtering the entities stored in the cache, so the cache doesn't need to be
+ * indexed.
+ *
+ * @since 7.0
+ */
+public final class EmbeddedFilterQueryFactory extends BaseQueryFactory<Query> {
+
+   private final AdvancedCache<?, ?> cache;
+
+   public EmbeddedFilterQueryFactory(AdvancedCache<?, ?> cache) {
+      this.cache = cache;
+   }
+
+   @Override
+   public QueryBuilder<Query> from(Class type) {
+      return new EmbeddedFilterQueryBuilder(cache, type);
+   }
+}
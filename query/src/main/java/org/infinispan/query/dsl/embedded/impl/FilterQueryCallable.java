@@ -0,0 +1,206 @@
+package org.infinispan.query.dsl.embedded.impl;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.commons.util.concurrent.ParallelIterableMap;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distexec.DistributedCallable;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.marshall.core.MarshalledValue;
+import org.infinispan.persistence.CompositeFilter;
+import org.infinispan.persistence.DataContainerKeyFilter;
+import org.infinispan.persistence.PrimaryOwnedSegmentsFilter;
+import org.infinispan.persistence.manager.PersistenceManager;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.query.dsl.impl.AttributePath;
+import org.infinispan.query.dsl.impl.FilterPredicate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates a filter query on the entries a node is the primary owner of, in memory and in the cache stores. The
+ * data container is traversed in parallel, and only the projections of the matching entities, or the entities if
+ * there is no projection, are returned.
+ *
+ * @since 7.0
+ */
+final class FilterQueryCallable implements DistributedCallable<Object, Object, FilterQueryResult>, Serializable {
+
+   private static final long serialVersionUID = -4197023585603712285L;
+
+   private final Class<?> rootType;
+
+   private final FilterPredicate predicate;
+
+   private final AttributePath[] projection;
+
+   private final RowComparator comparator;
+
+   private final int maxRows;
+
+   private transient AdvancedCache<Object, Object> cache;
+
+   /**
+    * @param projection the projected attributes, or null to return the entities
+    * @param comparator the sort order of the rows, or null if the query is not sorted
+    * @param maxRows    the maximum number of rows to return, or -1 for all of them
+    */
+   FilterQueryCallable(Class<?> rootType, FilterPredicate predicate, AttributePath[] projection,
+                       RowComparator comparator, int maxRows) {
+      this.rootType = rootType;
+      this.predicate = predicate;
+      this.projection = projection;
+      this.comparator = comparator;
+      this.maxRows = maxRows;
+   }
+
+   RowComparator getComparator() {
+      return comparator;
+   }
+
+   @Override
+   public void setEnvironment(Cache<Object, Object> cache, Set<Object> inputKeys) {
+      this.cache = cache.getAdvancedCache();
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public FilterQueryResult call() throws Exception {
+      final Queue<Object[]> rows = new ConcurrentLinkedQueue<Object[]>();
+      final AtomicInteger matchCount = new AtomicInteger();
+      final long now = cache.getComponentRegistry().getTimeService().wallClockTime();
+      AdvancedCacheLoader.KeyFilter<Object> ownerFilter = primaryOwnerFilter();
+      PersistenceManager persistenceManager = cache.getComponentRegistry().getComponent(PersistenceManager.class);
+      int numStores = persistenceManager == null ? 0 : persistenceManager.getStores(AdvancedCacheLoader.class).size();
+
+      DataContainer dataContainer = cache.getDataContainer();
+      dataContainer.executeTask(ownerFilter, new ParallelIterableMap.KeyValueAction<Object, InternalCacheEntry>() {
+         @Override
+         public void apply(Object key, InternalCacheEntry entry) {
+            if (entry.isExpired(now)) {
+               return;
+            }
+            filter(entry.getValue(), rows, matchCount);
+         }
+      });
+
+      if (numStores > 0) {
+         // the entries in memory were matched already, and an entry in several stores must only be matched once
+         final Set<Object> visitedKeys = numStores > 1 ?
+               Collections.newSetFromMap(CollectionFactory.<Object, Boolean>makeConcurrentMap()) : null;
+         AdvancedCacheLoader.KeyFilter keyFilter = new CompositeFilter(ownerFilter, new DataContainerKeyFilter(dataContainer));
+         persistenceManager.processOnAllStores(keyFilter, new AdvancedCacheLoader.CacheLoaderTask() {
+            @Override
+            public void processEntry(MarshalledEntry marshalledEntry, AdvancedCacheLoader.TaskContext taskContext) {
+               if (visitedKeys == null || visitedKeys.add(marshalledEntry.getKey())) {
+                  filter(marshalledEntry.getValue(), rows, matchCount);
+               }
+            }
+         }, true, false);
+      }
+
+      List<Object[]> result = new ArrayList<Object[]>(rows);
+      if (maxRows >= 0 && result.size() > maxRows) {
+         // the rows beyond the first maxRows can't be part of the page, no need to return them
+         if (comparator != null) {
+            Collections.sort(result, comparator);
+         }
+         result = new ArrayList<Object[]>(result.subList(0, maxRows));
+      }
+      return new FilterQueryResult(matchCount.get(), result);
+   }
+
+   private void filter(Object value, Queue<Object[]> rows, AtomicInteger matchCount) {
+      if (value instanceof MarshalledValue) {
+         value = ((MarshalledValue) value).get();
+      }
+      if (!rootType.isInstance(value) || !predicate.matches(value)) {
+         return;
+      }
+      matchCount.incrementAndGet();
+
+      int sortKeys = comparator != null ? comparator.sortPaths.length : 0;
+      Object[] row = new Object[1 + sortKeys];
+      if (projection != null) {
+         Object[] projected = new Object[projection.length];
+         for (int i = 0; i < projection.length; i++) {
+            projected[i] = projection[i].getValue(value);
+         }
+         row[0] = projected;
+      } else {
+         row[0] = value;
+      }
+      for (int i = 0; i < sortKeys; i++) {
+         row[1 + i] = comparator.sortPaths[i].getValue(value);
+      }
+      rows.add(row);
+   }
+
+   /**
+    * @return a filter accepting the keys the local node is the primary owner of, so that each entity is matched by
+    *         a single node, or all the keys if the query is only executed by this node, which is the case unless the
+    *         cache is distributed
+    */
+   @SuppressWarnings("unchecked")
+   private AdvancedCacheLoader.KeyFilter<Object> primaryOwnerFilter() {
+      DistributionManager dm = cache.getDistributionManager();
+      // replicated caches have a distribution manager too, but the query is only sent to one node
+      if (dm == null || !cache.getCacheConfiguration().clustering().cacheMode().isDistributed()) {
+         return AdvancedCacheLoader.KeyFilter.LOAD_ALL_FILTER;
+      }
+      return new PrimaryOwnedSegmentsFilter(dm.getConsistentHash(), cache.getRpcManager().getAddress());
+   }
+
+   @Override
+   public String toString() {
+      return "FilterQueryCallable{rootType=" + rootType.getName() + ", predicate=" + predicate + ", maxRows=" + maxRows + '}';
+   }
+
+   /**
+    * Orders the rows by the values of the sort attributes they hold, null values first.
+    */
+   static final class RowComparator implements Comparator<Object[]>, Serializable {
+
+      private static final long serialVersionUID = 8451632067301829457L;
+
+      final AttributePath[] sortPaths;
+
+      private final boolean[] descending;
+
+      RowComparator(AttributePath[] sortPaths, boolean[] descending) {
+         this.sortPaths = sortPaths;
+         this.descending = descending;
+      }
+
+      @Override
+      public int compare(Object[] row1, Object[] row2) {
+         for (int i = 0; i < sortPaths.length; i++) {
+            Object value1 = row1[1 + i];
+            Object value2 = row2[1 + i];
+            int result;
+            if (value1 == null) {
+               result = value2 == null ? 0 : -1;
+            } else if (value2 == null) {
+               result = 1;
+            } else {
+               result = FilterPredicate.compare(value1, value2);
+            }
+            if (result != 0) {
+               return descending[i] ? -result : result;
+            }
+         }
+         return 0;
+      }
+   }
+}
@@ -0,0 +1,41 @@
+package org.infinispan.query.dsl.embedded.impl;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The matches of a filter query on a node: the matching rows, at most as many as the query can return, and the total
+ * number of matching entities.
+ *
+ * @since 7.0
+ */
+final class FilterQueryResult implements Serializable {
+
+   private static final long serialVersionUID = 3302916478591057024L;
+
+   private final int matchCount;
+
+   private final List<Object[]> rows;
+
+   FilterQueryResult(int matchCount, List<Object[]> rows) {
+      this.matchCount = matchCount;
+      this.rows = rows;
+   }
+
+   int getMatchCount() {
+      return matchCount;
+   }
+
+   /**
+    * @return the rows, each of them holding the entity or its projection followed by the values of the sort
+    *         attributes
+    */
+   List<Object[]> getRows() {
+      return rows;
+   }
+
+   @Override
+   public String toString() {
+      return "FilterQueryResult{matchCount=" + matchCount + ", rows=" + rows.size() + '}';
+   }
+}
@@ -0,0 +1,251 @@
+package org.infinispan.query.dsl.embedded;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.query.Search;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.QueryFactory;
+import org.infinispan.query.dsl.SortOrder;
+import org.infinispan.query.dsl.embedded.sample_domain_model.Address;
+import org.infinispan.query.dsl.embedded.sample_domain_model.Transaction;
+import org.infinispan.query.dsl.embedded.sample_domain_model.User;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the query DSL on a distributed cache that is not indexed, the queries being executed by filtering the
+ * entries on their owners.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "query.dsl.embedded.NonIndexedQueryDslConditionsTest")
+@CleanupAfterMethod
+public class NonIndexedQueryDslConditionsTest extends MultipleCacheManagersTest {
+
+   protected final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+
+   Cache cache1, cache2;
+
+   public NonIndexedQueryDslConditionsTest() {
+      DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
+   }
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder cacheCfg = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      cacheCfg.clustering().hash().numOwners(1);
+      createClusteredCaches(2, cacheCfg);
+      cache1 = cache(0);
+      cache2 = cache(1);
+   }
+
+   @BeforeMethod(alwaysRun = true)
+   protected void populateCache() throws Exception {
+      User user1 = new User();
+      user1.setId(1);
+      user1.setName("John");
+      user1.setSurname("Doe");
+      user1.setGender(User.Gender.MALE);
+      user1.setAge(22);
+      user1.setAccountIds(new HashSet<Integer>(Arrays.asList(1, 2)));
+
+      Address address1 = new Address();
+      address1.setStreet("Main Street");
+      address1.setPostCode("X1234");
+      user1.setAddresses(Collections.singletonList(address1));
+
+      User user2 = new User();
+      user2.setId(2);
+      user2.setName("Spider");
+      user2.setSurname("Man");
+      user2.setGender(User.Gender.MALE);
+      user2.setAccountIds(Collections.singleton(3));
+
+      Address address2 = new Address();
+      address2.setStreet("Old Street");
+      address2.setPostCode("Y12");
+      Address address3 = new Address();
+      address3.setStreet("Bond Street");
+      address3.setPostCode("ZZ");
+      user2.setAddresses(Arrays.asList(address2, address3));
+
+      User user3 = new User();
+      user3.setId(3);
+      user3.setName("Spider");
+      user3.setSurname("Woman");
+      user3.setGender(User.Gender.FEMALE);
+      user3.setAccountIds(Collections.<Integer>emptySet());
+
+      cache1.put("user_" + user1.getId(), user1);
+      cache1.put("user_" + user2.getId(), user2);
+      cache2.put("user_" + user3.getId(), user3);
+
+      String[] descriptions = {"Birthday present", "Feb. rent payment", "Starbucks", "Hotel", "Last january", "Popcorn"};
+      int[] accountIds = {1, 1, 1, 2, 2, 2};
+      double[] amounts = {1800, 1500, 23, 45, 95, 5};
+      String[] dates = {"2012-09-07", "2013-01-05", "2013-01-09", "2013-02-27", "2013-01-31", "2013-01-01"};
+      for (int i = 0; i < descriptions.length; i++) {
+         Transaction transaction = new Transaction();
+         transaction.setId(i);
+         transaction.setDescription(descriptions[i]);
+         transaction.setAccountId(accountIds[i]);
+         transaction.setAmount(amounts[i]);
+         transaction.setDate(DATE_FORMAT.parse(dates[i]));
+         transaction.setDebit(i > 0);
+         (i % 2 == 0 ? cache1 : cache2).put("transaction_" + i, transaction);
+      }
+   }
+
+   public void testEq() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(User.class)
+            .having("name").eq("John")
+            .toBuilder().build();
+
+      List<User> list = q.list();
+      assertEquals(1, list.size());
+      assertEquals("Doe", list.get(0).getSurname());
+   }
+
+   public void testEqInNested() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache2);
+
+      // the second address of a user must match too
+      Query q = qf.from(User.class)
+            .having("addresses.postCode").eq("ZZ")
+            .toBuilder().build();
+
+      List<User> list = q.list();
+      assertEquals(1, list.size());
+      assertEquals(2, list.get(0).getId());
+   }
+
+   public void testNumericComparisons() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      // an int argument against a double attribute
+      Query q = qf.from(Transaction.class)
+            .having("amount").gt(1500)
+            .toBuilder().build();
+      assertEquals(1, q.list().size());
+
+      q = qf.from(Transaction.class)
+            .having("amount").gte(1500)
+            .toBuilder().build();
+      assertEquals(2, q.list().size());
+
+      q = qf.from(Transaction.class)
+            .having("amount").lt(45)
+            .toBuilder().build();
+      assertEquals(2, q.list().size());
+   }
+
+   public void testBetween() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(Transaction.class)
+            .having("date").between(DATE_FORMAT.parse("2013-01-01"), DATE_FORMAT.parse("2013-01-31")).includeUpper(false)
+            .toBuilder().build();
+
+      List<Transaction> list = q.list();
+      assertEquals(3, list.size());
+      for (Transaction t : list) {
+         assertTrue(t.getDate().compareTo(DATE_FORMAT.parse("2013-01-31")) < 0);
+         assertTrue(t.getDate().compareTo(DATE_FORMAT.parse("2013-01-01")) >= 0);
+      }
+   }
+
+   public void testLike() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(Transaction.class)
+            .having("description").like("%rent%")
+            .toBuilder().build();
+
+      List<Transaction> list = q.list();
+      assertEquals(1, list.size());
+      assertEquals(1500, list.get(0).getAmount(), 0);
+   }
+
+   public void testInAndContains() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(User.class)
+            .having("id").in(1, 3)
+            .toBuilder().build();
+      assertEquals(2, q.list().size());
+
+      q = qf.from(User.class)
+            .having("accountIds").contains(2)
+            .toBuilder().build();
+      List<User> list = q.list();
+      assertEquals(1, list.size());
+      assertEquals(1, list.get(0).getId());
+
+      q = qf.from(User.class)
+            .having("accountIds").containsAll(1, 2)
+            .toBuilder().build();
+      assertEquals(1, q.list().size());
+
+      q = qf.from(User.class)
+            .having("accountIds").containsAny(2, 3)
+            .toBuilder().build();
+      assertEquals(2, q.list().size());
+   }
+
+   public void testNotAndIsNull() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(User.class)
+            .not().having("name").eq("John")
+            .and().having("surname").eq("Man")
+            .toBuilder().build();
+      List<User> list = q.list();
+      assertEquals(1, list.size());
+      assertEquals(2, list.get(0).getId());
+
+      q = qf.from(User.class)
+            .having("addresses").isNull()
+            .toBuilder().build();
+      list = q.list();
+      assertEquals(1, list.size());
+      assertEquals(3, list.get(0).getId());
+   }
+
+   public void testProjectionSortingAndPaging() throws Exception {
+      QueryFactory qf = Search.getFilterQueryFactory(cache1);
+
+      Query q = qf.from(Transaction.class)
+            .setProjection("id", "description")
+            .orderBy("amount", SortOrder.DESC)
+            .having("debit").eq(true)
+            .toBuilder()
+            .startOffset(1)
+            .maxResults(2)
+            .build();
+
+      List<Object[]> list = q.list();
+      assertEquals(5, q.getResultSize());
+      assertEquals(2, list.size());
+      assertEquals(2, list.get(0).length);
+      assertEquals(4, list.get(0)[0]);
+      assertEquals("Last january", list.get(0)[1]);
+      assertEquals(3, list.get(1)[0]);
+      assertEquals("Hotel", list.get(1)[1]);
+   }
+}
@@ -0,0 +1,23 @@
+package org.infinispan.query.dsl.embedded;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies the query DSL on a replicated cache that is not indexed, the query being executed by filtering all the
+ * entries of a single node.
+ *
+ * @since 7.0
+ */
+@Test(groups = "functional", testName = "query.dsl.embedded.NonIndexedReplQueryDslConditionsTest")
+public class NonIndexedReplQueryDslConditionsTest extends NonIndexedQueryDslConditionsTest {
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder cacheCfg = getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false);
+      createClusteredCaches(2, cacheCfg);
+      cache1 = cache(0);
+      cache2 = cache(1);
+   }
+}
@@ -186,22 +186,9 @@ abstract class AbstractProtocolDecoder[K, V](transport: NettyTransport)
       createSuccessResponse(prev)
    }
 
-   protected def buildMetadata(): Metadata = {
-      val metadata = new EmbeddedMetadata.Builder
-      metadata.version(generateVersion(cache))
-      (params.lifespan, params.maxIdle) match {
-         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) =>
-            metadata.lifespan(defaultLifespanTime)
-                    .maxIdle(defaultMaxIdleTime)
-         case (_, EXPIRATION_DEFAULT) =>
-            metadata.lifespan(toMillis(params.lifespan))
-                    .maxIdle(defaultMaxIdleTime)
-         case (_, _) =>
-            metadata.lifespan(toMillis(params.lifespan))
-                    .maxIdle(toMillis(params.maxIdle))
-      }
-      metadata.build()
-   }
+   protected def buildMetadata(): Metadata =
+      AbstractProtocolDecoder.buildMetadata(generateVersion(cache), params.lifespan, params.maxIdle,
+         defaultLifespanTime, defaultMaxIdleTime)
 
    protected def getOptimizedCache(c: AdvancedCache[K, V]): AdvancedCache[K, V] = c
 
@@ -331,21 +318,8 @@ abstract class AbstractProtocolDecoder[K, V](transport: NettyTransport)
 
    protected def createServerException(e: Exception, b: ByteBuf): (Exception, Boolean)
 
-   protected def generateVersion(cache: Cache[K, V]): EntryVersion = {
-      val registry = cache.getAdvancedCache.getComponentRegistry
-      val cacheVersionGenerator = registry.getComponent(classOf[VersionGenerator])
-      if (cacheVersionGenerator == null) {
-         // It could be null, for example when not running in compatibility mode.
-         // The reason for that is that if no other component depends on the
-         // version generator, the factory does not get invoked.
-         val newVersionGenerator = new NumericVersionGenerator()
-                 .clustered(cache.getAdvancedCache.getRpcManager != null)
-         registry.registerComponent(newVersionGenerator, classOf[VersionGenerator])
-         newVersionGenerator.generateNew()
-      } else {
-         cacheVersionGenerator.generateNew()
-      }
-   }
+   protected def generateVersion(cache: Cache[K, V]): EntryVersion =
+      AbstractProtocolDecoder.generateVersion(cache)
 
    /**
     * Transforms lifespan pass as seconds into milliseconds
@@ -359,14 +333,7 @@ abstract class AbstractProtocolDecoder[K, V](transport: NettyTransport)
     * Otherwise it's just considered number of seconds from
     * now and it's returned in milliseconds unit.
     */
-   protected def toMillis(lifespan: Int): Long = {
-      if (lifespan > SecondsInAMonth) {
-         val unixTimeExpiry = TimeUnit.SECONDS.toMillis(lifespan) - System.currentTimeMillis
-         if (unixTimeExpiry < 0) 0 else unixTimeExpiry
-      } else {
-         TimeUnit.SECONDS.toMillis(lifespan)
-      }
-   }
+   protected def toMillis(lifespan: Int): Long = AbstractProtocolDecoder.toMillis(lifespan)
 
   def bind(ctx: ChannelHandlerContext, localAddress: SocketAddress, promise: ChannelPromise): Unit = ctx.bind(localAddress, promise)
 
@@ -399,9 +366,63 @@ abstract class AbstractProtocolDecoder[K, V](transport: NettyTransport)
   }
 }
 
-object AbstractProtocolDecoder extends Log {
+object AbstractProtocolDecoder extends Log with ServerConstants {
    private val SecondsInAMonth = 60 * 60 * 24 * 30
    private val DefaultTimeUnit = TimeUnit.MILLISECONDS
+
+   /**
+    * Generates a new version for an entry written to the given cache.
+    */
+   def generateVersion(cache: Cache[_, _]): EntryVersion = {
+      val registry = cache.getAdvancedCache.getComponentRegistry
+      val cacheVersionGenerator = registry.getComponent(classOf[VersionGenerator])
+      if (cacheVersionGenerator == null) {
+         // It could be null, for example when not running in compatibility mode.
+         // The reason for that is that if no other component depends on the
+         // version generator, the factory does not get invoked.
+         val newVersionGenerator = new NumericVersionGenerator()
+                 .clustered(cache.getAdvancedCache.getRpcManager != null)
+         registry.registerComponent(newVersionGenerator, classOf[VersionGenerator])
+         newVersionGenerator.generateNew()
+      } else {
+         cacheVersionGenerator.generateNew()
+      }
+   }
+
+   /**
+    * Builds the metadata of an entry from the lifespan and max idle sent by the client, in seconds, falling back on
+    * the given defaults, in milliseconds, where the client asked for them.
+    */
+   def buildMetadata(version: EntryVersion, lifespan: Int, maxIdle: Int,
+                     defaultLifespan: Long, defaultMaxIdle: Long): Metadata = {
+      val metadata = new EmbeddedMetadata.Builder
+      metadata.version(version)
+      (lifespan, maxIdle) match {
+         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) =>
+            metadata.lifespan(defaultLifespan)
+                    .maxIdle(defaultMaxIdle)
+         case (_, EXPIRATION_DEFAULT) =>
+            metadata.lifespan(toMillis(lifespan))
+                    .maxIdle(defaultMaxIdle)
+         case (_, _) =>
+            metadata.lifespan(toMillis(lifespan))
+                    .maxIdle(toMillis(maxIdle))
+      }
+      metadata.build()
+   }
+
+   /**
+    * Transforms lifespan pass as seconds into milliseconds, considering values bigger than the number of seconds in
+    * 30 days as unix time.
+    */
+   def toMillis(lifespan: Int): Long = {
+      if (lifespan > SecondsInAMonth) {
+         val unixTimeExpiry = TimeUnit.SECONDS.toMillis(lifespan) - System.currentTimeMillis
+         if (unixTimeExpiry < 0) 0 else unixTimeExpiry
+      } else {
+         TimeUnit.SECONDS.toMillis(lifespan)
+      }
+   }
 }
 
 class RequestHeader {
@@ -86,6 +86,7 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
             log.trace("About to respond to bulk get request")
             if (g.status == Success) {
                val cache: Cache = server.getCacheInstance(g.cacheName, cacheManager, false)
+               val compression = server.getValueCompression
                var iterator = asScalaIterator(cache.entrySet.iterator)
                if (g.count != 0) {
                   trace("About to write (max) %d messages to the client", g.count)
@@ -94,7 +95,7 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                for (entry <- iterator) {
                   buf.writeByte(1) // Not done
                   writeRangedBytes(entry.getKey, buf)
-                  writeRangedBytes(entry.getValue, buf)
+                  writeRangedBytes(compression.fromStorage(entry.getValue, g.compressedValues), buf)
                }
                buf.writeByte(0) // Done
             }
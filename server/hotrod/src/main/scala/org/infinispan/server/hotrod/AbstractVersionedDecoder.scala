@@ -1,10 +1,11 @@
 package org.infinispan.server.hotrod
 
 import org.infinispan.stats.Stats
-import org.infinispan.server.core.{QueryFacade, RequestParameters}
+import org.infinispan.server.core.RequestParameters
 import org.infinispan.server.core.transport.NettyTransport
 import org.infinispan.container.entries.CacheEntry
 import io.netty.buffer.ByteBuf
+import io.netty.channel.Channel
 
 /**
  * This class represents the work to be done by a decoder of a particular Hot Rod protocol version.
@@ -57,7 +58,7 @@ abstract class AbstractVersionedDecoder {
    /**
     * Handle a protocol specific key reading.
     */
-   def customReadKey(header: HotRodHeader, buffer: ByteBuf, cache: Cache, queryFacades: Seq[QueryFacade]): AnyRef
+   def customReadKey(header: HotRodHeader, buffer: ByteBuf, cache: Cache, server: HotRodServer, ch: Channel): AnyRef
 
    /**
     * Handle a protocol specific value reading.
@@ -67,7 +68,7 @@ abstract class AbstractVersionedDecoder {
    /**
     * Create a response for the stats command.
     */
-   def createStatsResponse(header: HotRodHeader, stats: Stats, t: NettyTransport): AnyRef
+   def createStatsResponse(header: HotRodHeader, stats: Stats, t: NettyTransport, server: HotRodServer): AnyRef
 
    /**
     * Create an error response based on the Throwable instance received.
@@ -0,0 +1,186 @@
+package org.infinispan.server.hotrod
+
+import logging.Log
+import OperationResponse._
+import OperationStatus._
+import io.netty.channel.{ChannelFuture, ChannelFutureListener, Channel}
+import org.infinispan.commons.marshall.Marshaller
+import org.infinispan.commons.marshall.jboss.GenericJBossMarshaller
+import org.infinispan.commons.util.{Util, CollectionFactory}
+import org.infinispan.notifications.{Converter, ConverterFactory, KeyValueFilter, KeyValueFilterFactory, Listener}
+import org.infinispan.notifications.cachelistener.annotation.{CacheEntryRemoved, CacheEntryModified, CacheEntryCreated}
+import org.infinispan.notifications.cachelistener.event.{CacheEntryRemovedEvent, CacheEntryModifiedEvent, CacheEntryCreatedEvent}
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Keeps the listeners added by Hot Rod clients. Each client listener is backed by an embedded listener on the cache,
+ * which pushes an event to the client, over the connection the listener was added on, whenever a key is created,
+ * modified or removed. Events are written with the message id of the request that added the listener, so that the
+ * client can route them to its listener.
+ *
+ * Listeners on clustered caches are clustered, so that the server the listener was added on pushes each event
+ * exactly once, whichever server owns the key.
+ *
+ * A client listener may name a key/value filter factory and a converter factory, registered with the server
+ * beforehand, along with parameters for them. Filters see the keys and values as stored, i.e. as marshalled by the
+ * clients. A converter turns each event into custom event data, which is pushed instead of the key: byte arrays are
+ * pushed as is, anything else is marshalled with the event marshaller first.
+ *
+ * A client listener is removed when the client asks for it, or when its connection is closed.
+ *
+ * @since 7.0
+ */
+class ClientListenerRegistry extends Log {
+
+   private val senders = CollectionFactory.makeConcurrentMap[String, ClientEventSender]()
+   private val filterFactories = CollectionFactory.makeConcurrentMap[String, KeyValueFilterFactory]()
+   private val converterFactories = CollectionFactory.makeConcurrentMap[String, ConverterFactory]()
+   @volatile private var eventMarshaller: Marshaller = new GenericJBossMarshaller
+
+   def addKeyValueFilterFactory(name: String, factory: KeyValueFilterFactory) {
+      filterFactories.put(name, factory)
+   }
+
+   def removeKeyValueFilterFactory(name: String) {
+      filterFactories.remove(name)
+   }
+
+   def addConverterFactory(name: String, factory: ConverterFactory) {
+      converterFactories.put(name, factory)
+   }
+
+   def removeConverterFactory(name: String) {
+      converterFactories.remove(name)
+   }
+
+   def setEventMarshaller(marshaller: Marshaller) {
+      eventMarshaller = marshaller
+   }
+
+   /**
+    * Returns the filter created by the named factory, or null if no name is given.
+    */
+   def createFilter(name: String, params: Array[Bytes]): KeyValueFilter[Bytes, Bytes] = {
+      if (name.isEmpty) return null
+      val factory = filterFactories.get(name)
+      if (factory == null) throw log.missingKeyValueFilterFactory(name)
+      factory.getKeyValueFilter[Bytes, Bytes](params.asInstanceOf[Array[AnyRef]])
+   }
+
+   /**
+    * Returns the converter created by the named factory, or null if no name is given.
+    */
+   def createConverter(name: String, params: Array[Bytes]): Converter[Bytes, Bytes, AnyRef] = {
+      if (name.isEmpty) return null
+      val factory = converterFactories.get(name)
+      if (factory == null) throw log.missingConverterFactory(name)
+      factory.getConverter[Bytes, Bytes, AnyRef](params.asInstanceOf[Array[AnyRef]])
+   }
+
+   /**
+    * Adds the listener and writes the response to the request that added it. Events raised before the response has
+    * been written are held back until then, so that the client always sees the response first.
+    */
+   def addClientListener(ch: Channel, h: HotRodHeader, listenerId: Bytes, cache: Cache,
+                         filter: KeyValueFilter[Bytes, Bytes], converter: Converter[Bytes, Bytes, AnyRef]) {
+      val id = Util.toHexString(listenerId)
+      val cacheMode = cache.getCacheConfiguration.clustering.cacheMode
+      val custom = converter != null
+      // The header is reused by the decoder for the next request, so the sender keeps copies of its fields
+      val sender =
+         if (cacheMode.isClustered && !cacheMode.isInvalidation)
+            new ClusteredClientEventSender(ch, h.version, h.messageId, h.cacheName, listenerId, cache, custom, eventMarshaller)
+         else
+            new ClientEventSender(ch, h.version, h.messageId, h.cacheName, listenerId, cache, custom, eventMarshaller)
+      if (filter == null && converter == null)
+         cache.addListener(sender)
+      else
+         cache.addListener(sender, filter, converter)
+      val previous = senders.put(id, sender)
+      if (previous != null)
+         previous.cache.removeListener(previous)
+
+      ch.writeAndFlush(new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+         AddClientListenerResponse, Success, h.topologyId))
+      sender.start()
+      ch.closeFuture.addListener(new ChannelFutureListener {
+         override def operationComplete(f: ChannelFuture) {
+            if (senders.remove(id, sender)) {
+               sender.cache.removeListener(sender)
+               if (isTraceEnabled) trace("Removed client listener %s as its connection was closed", id)
+            }
+         }
+      })
+      if (isTraceEnabled) trace("Added client listener %s to cache %s", id, h.cacheName)
+   }
+
+   /**
+    * Removes the listener, returning whether it existed.
+    */
+   def removeClientListener(listenerId: Bytes): Boolean = {
+      val sender = senders.remove(Util.toHexString(listenerId))
+      if (sender != null) {
+         sender.cache.removeListener(sender)
+         true
+      } else {
+         false
+      }
+   }
+
+   def activeListeners: Int = senders.size
+
+}
+
+/**
+ * Pushes the events of a client listener. If the listener has a converter, the values of the events it receives are
+ * the converted event data.
+ */
+@Listener
+private class ClientEventSender(ch: Channel, version: Byte, messageId: Long, cacheName: String,
+                                listenerId: Bytes, val cache: Cache, custom: Boolean, marshaller: Marshaller) {
+
+   private var started = false
+   private val held = new ArrayBuffer[ClientEventResponse]
+
+   @CacheEntryCreated
+   def onCacheEntryCreated(e: CacheEntryCreatedEvent[Bytes, AnyRef]) {
+      if (!e.isPre) send(OperationResponse.CacheEntryCreatedEvent, e.getKey, e.getValue)
+   }
+
+   @CacheEntryModified
+   def onCacheEntryModified(e: CacheEntryModifiedEvent[Bytes, AnyRef]) {
+      // Creations are notified as modifications too, and have already been sent
+      if (!e.isPre && !e.isCreated) send(OperationResponse.CacheEntryModifiedEvent, e.getKey, e.getValue)
+   }
+
+   @CacheEntryRemoved
+   def onCacheEntryRemoved(e: CacheEntryRemovedEvent[Bytes, AnyRef]) {
+      if (!e.isPre) send(OperationResponse.CacheEntryRemovedEvent, e.getKey, e.getValue)
+   }
+
+   def start(): Unit = synchronized {
+      started = true
+      held.foreach(ch.writeAndFlush(_))
+      held.clear()
+   }
+
+   private def send(operation: OperationResponse, key: Bytes, value: AnyRef) {
+      val data = if (custom) toEventData(value) else key
+      val event = new ClientEventResponse(version, messageId, cacheName, operation, listenerId, data, custom)
+      synchronized {
+         if (started) ch.writeAndFlush(event) else held += event
+      }
+   }
+
+   private def toEventData(converted: AnyRef): Bytes = converted match {
+      case null => Array.empty[Byte]
+      case bytes: Bytes => bytes
+      case _ => marshaller.objectToByteBuffer(converted)
+   }
+
+}
+
+@Listener(clustered = true)
+private class ClusteredClientEventSender(ch: Channel, version: Byte, messageId: Long, cacheName: String,
+                                         listenerId: Bytes, cache: Cache, custom: Boolean, marshaller: Marshaller)
+      extends ClientEventSender(ch, version, messageId, cacheName, listenerId, cache, custom, marshaller)
@@ -17,6 +17,7 @@ import transport.NettyTransport
 import org.infinispan.container.entries.{CacheEntry, InternalCacheEntry}
 import org.infinispan.container.versioning.NumericVersion
 import io.netty.buffer.ByteBuf
+import io.netty.channel.Channel
 
 /**
  * HotRod protocol decoder specific for specification version 1.0.
@@ -167,7 +168,7 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
       }
    }
 
-   override def customReadKey(h: HotRodHeader, buffer: ByteBuf, cache: Cache, queryFacades: Seq[QueryFacade]): AnyRef = {
+   override def customReadKey(h: HotRodHeader, buffer: ByteBuf, cache: Cache, server: HotRodServer, ch: Channel): AnyRef = {
       h.op match {
          case RemoveIfUnmodifiedRequest => {
             val k = readKey(buffer)
@@ -176,15 +177,16 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
             if (entry != null) {
                // Hacky, but CacheEntry has not been generified
                val prev = entry.getValue.asInstanceOf[Array[Byte]]
+               val responsePrev = server.getValueCompression.fromStorage(prev, h.hasCompressedValues)
                val streamVersion = new NumericVersion(params.streamVersion)
                if (entry.getMetadata.version() == streamVersion) {
                   val removed = cache.remove(k, prev)
                   if (removed)
-                     createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
+                     createResponse(h, RemoveIfUnmodifiedResponse, Success, responsePrev)
                   else
-                     createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                     createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, responsePrev)
                } else {
-                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, responsePrev)
                }
             } else {
                createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, null)
@@ -213,23 +215,23 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          }
          case GetWithMetadataRequest => {
             val k = readKey(buffer)
-            getKeyMetadata(h, k, cache)
+            getKeyMetadata(h, k, cache, server)
          }
          case QueryRequest => {
             val query = readRangedBytes(buffer)
-            val result = queryFacades.head.query(cache, query)
+            val result = server.getQueryFacades.head.query(cache, query)
             new QueryResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
                h.topologyId, result)
          }
       }
    }
 
-   def getKeyMetadata(h: HotRodHeader, k: Array[Byte], cache: Cache): GetWithMetadataResponse = {
+   def getKeyMetadata(h: HotRodHeader, k: Array[Byte], cache: Cache, server: HotRodServer): GetWithMetadataResponse = {
       val ce = cache.getAdvancedCache.getCacheEntry(k)
       if (ce != null) {
          val ice = ce.asInstanceOf[InternalCacheEntry[Array[Byte], Array[Byte]]]
          val entryVersion = ice.getMetadata.version().asInstanceOf[NumericVersion]
-         val v = ce.getValue.asInstanceOf[Array[Byte]]
+         val v = server.getValueCompression.fromStorage(ce.getValue.asInstanceOf[Array[Byte]], h.hasCompressedValues)
          val lifespan = if (ice.getLifespan < 0) -1 else (ice.getLifespan / 1000).toInt
          val maxIdle = if (ice.getMaxIdle < 0) -1 else (ice.getMaxIdle / 1000).toInt
          new GetWithMetadataResponse(h.version, h.messageId, h.cacheName,
@@ -244,7 +246,7 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
 
    override def customReadValue(header: HotRodHeader, buffer: ByteBuf, cache: Cache): AnyRef = null
 
-   override def createStatsResponse(h: HotRodHeader, cacheStats: Stats, t: NettyTransport): AnyRef = {
+   override def createStatsResponse(h: HotRodHeader, cacheStats: Stats, t: NettyTransport, server: HotRodServer): AnyRef = {
       val stats = mutable.Map.empty[String, String]
       stats += ("timeSinceStart" -> cacheStats.getTimeSinceStart.toString)
       stats += ("currentNumberOfEntries" -> cacheStats.getCurrentNumberOfEntries.toString)
@@ -323,7 +325,17 @@ object OperationResponse extends Enumeration {
    val GetWithMetadataResponse = Value(0x1C)
    val BulkGetKeysResponse = Value(0x1E)
    val QueryResponse = Value(0x20)
+   val GetAllResponse = Value(0x22)
+   val PutAllResponse = Value(0x24)
+   val AddClientListenerResponse = Value(0x26)
+   val RemoveClientListenerResponse = Value(0x28)
+   val IterationStartResponse = Value(0x32)
+   val IterationNextResponse = Value(0x34)
+   val IterationEndResponse = Value(0x36)
    val ErrorResponse = Value(0x50)
+   val CacheEntryCreatedEvent = Value(0x60)
+   val CacheEntryModifiedEvent = Value(0x61)
+   val CacheEntryRemovedEvent = Value(0x62)
 }
 
 object ProtocolFlag extends Enumeration {
@@ -332,4 +344,5 @@ object ProtocolFlag extends Enumeration {
    val ForceReturnPreviousValue = Value(0x01)
    val DefaultLifespan = Value(0x02)
    val DefaultMaxIdle = Value(0x04)
+   val CompressedValues = Value(0x08)
 }
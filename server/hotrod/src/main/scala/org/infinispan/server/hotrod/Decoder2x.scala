@@ -17,6 +17,7 @@ import transport.NettyTransport
 import org.infinispan.container.entries.{CacheEntry, InternalCacheEntry}
 import org.infinispan.container.versioning.NumericVersion
 import io.netty.buffer.ByteBuf
+import io.netty.channel.Channel
 import scala.annotation.switch
 
 /**
@@ -50,6 +51,13 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
          case 0x1B => (GetWithMetadataRequest, false)
          case 0x1D => (BulkGetKeysRequest, false)
          case 0x1F => (QueryRequest, false)
+         case 0x21 => (GetAllRequest, false)
+         case 0x23 => (PutAllRequest, false)
+         case 0x25 => (AddClientListenerRequest, false)
+         case 0x27 => (RemoveClientListenerRequest, false)
+         case 0x31 => (IterationStartRequest, false)
+         case 0x33 => (IterationNextRequest, false)
+         case 0x35 => (IterationEndRequest, false)
          case _ => throw new HotRodUnknownOperationException(
             "Unknown operation: " + streamOp, version, messageId)
       }
@@ -165,7 +173,7 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
       }
    }
 
-   override def customReadKey(h: HotRodHeader, buffer: ByteBuf, cache: Cache, queryFacades: Seq[QueryFacade]): AnyRef = {
+   override def customReadKey(h: HotRodHeader, buffer: ByteBuf, cache: Cache, server: HotRodServer, ch: Channel): AnyRef = {
       h.op match {
          case RemoveIfUnmodifiedRequest => {
             val k = readKey(buffer)
@@ -174,15 +182,16 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
             if (entry != null) {
                // Hacky, but CacheEntry has not been generified
                val prev = entry.getValue.asInstanceOf[Array[Byte]]
+               val responsePrev = server.getValueCompression.fromStorage(prev, h.hasCompressedValues)
                val streamVersion = new NumericVersion(params.streamVersion)
                if (entry.getMetadata.version() == streamVersion) {
                   val removed = cache.remove(k, prev)
                   if (removed)
-                     createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
+                     createResponse(h, RemoveIfUnmodifiedResponse, Success, responsePrev)
                   else
-                     createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                     createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, responsePrev)
                } else {
-                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, responsePrev)
                }
             } else {
                createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, null)
@@ -201,7 +210,7 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
             val count = readUnsignedInt(buffer)
             if (isTrace) trace("About to create bulk response, count = %d", count)
             new BulkGetResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
-               BulkGetResponse, Success, h.topologyId, count)
+               BulkGetResponse, Success, h.topologyId, count, h.hasCompressedValues)
          }
          case BulkGetKeysRequest => {
             val scope = readUnsignedInt(buffer)
@@ -211,23 +220,108 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
          }
          case GetWithMetadataRequest => {
             val k = readKey(buffer)
-            getKeyMetadata(h, k, cache)
+            getKeyMetadata(h, k, cache, server)
          }
          case QueryRequest => {
             val query = readRangedBytes(buffer)
-            val result = queryFacades.head.query(cache, query)
+            val result = server.getQueryFacades.head.query(cache, query)
             new QueryResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
                h.topologyId, result)
          }
+         case GetAllRequest => {
+            val count = readUnsignedInt(buffer)
+            val keys = for (i <- 0 until count) yield readKey(buffer)
+            if (isTrace) trace("About to get %d keys", count)
+            val compression = server.getValueCompression
+            val entries = keys.flatMap { k =>
+               val v = cache.get(k)
+               if (v == null) None else Some((k, compression.fromStorage(v, h.hasCompressedValues)))
+            }
+            new GetAllResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+               GetAllResponse, Success, h.topologyId, entries)
+         }
+         case PutAllRequest => {
+            val lifespan = readLifespanOrMaxIdle(buffer, hasFlag(h, ProtocolFlag.DefaultLifespan))
+            val maxIdle = readLifespanOrMaxIdle(buffer, hasFlag(h, ProtocolFlag.DefaultMaxIdle))
+            val count = readUnsignedInt(buffer)
+            val compression = server.getValueCompression
+            val entries = for (i <- 0 until count)
+               yield (readKey(buffer), compression.toStorage(readRangedBytes(buffer), h.hasCompressedValues))
+            if (isTrace) trace("About to put %d entries", count)
+            // The whole request has been read, so the entries can be stored now
+            val optimizedCache = cache.withFlags(IGNORE_RETURN_VALUES)
+            val expiration = cache.getCacheConfiguration.expiration()
+            for ((k, v) <- entries) {
+               val metadata = AbstractProtocolDecoder.buildMetadata(AbstractProtocolDecoder.generateVersion(cache),
+                  lifespan, maxIdle, expiration.lifespan(), expiration.maxIdle())
+               optimizedCache.put(k, v, metadata)
+            }
+            new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+               PutAllResponse, Success, h.topologyId)
+         }
+         case IterationStartRequest => {
+            val segmentCount = readUnsignedInt(buffer)
+            val segments = for (i <- 0 until segmentCount) yield readUnsignedInt(buffer)
+            val batchSize = readUnsignedInt(buffer)
+            val iterationId = server.getIterationManager.start(h.cacheName, cache,
+               if (segments.isEmpty) None else Some(segments.toSet), batchSize)
+            if (isTrace) trace("Started iteration %s over %d segments, batch size = %d", iterationId, segmentCount, batchSize)
+            new IterationStartResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+               IterationStartResponse, Success, h.topologyId, iterationId)
+         }
+         case IterationNextRequest => {
+            val iterationId = readString(buffer)
+            server.getIterationManager.next(h.cacheName, iterationId) match {
+               case Some(entries) =>
+                  val compression = server.getValueCompression
+                  val responseEntries = entries.map { case (k, v) => (k, compression.fromStorage(v, h.hasCompressedValues)) }
+                  new IterationNextResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                     IterationNextResponse, Success, h.topologyId, responseEntries)
+               case None =>
+                  new IterationNextResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                     IterationNextResponse, KeyDoesNotExist, h.topologyId, Seq.empty)
+            }
+         }
+         case IterationEndRequest => {
+            val iterationId = readString(buffer)
+            val status = if (server.getIterationManager.end(iterationId)) Success else KeyDoesNotExist
+            new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+               IterationEndResponse, status, h.topologyId)
+         }
+         case AddClientListenerRequest => {
+            val listenerId = readRangedBytes(buffer)
+            val filterName = readString(buffer)
+            val filterParams = readListenerParams(buffer)
+            val converterName = readString(buffer)
+            val converterParams = readListenerParams(buffer)
+            val registry = server.getClientListenerRegistry
+            // Unknown factories fail the request before the listener is added
+            val filter = registry.createFilter(filterName, filterParams)
+            val converter = registry.createConverter(converterName, converterParams)
+            // The registry writes the response itself, so that it precedes the listener's first event
+            registry.addClientListener(ch, h, listenerId, cache, filter, converter)
+            null
+         }
+         case RemoveClientListenerRequest => {
+            val listenerId = readRangedBytes(buffer)
+            val status = if (server.getClientListenerRegistry.removeClientListener(listenerId)) Success else KeyDoesNotExist
+            new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+               RemoveClientListenerResponse, status, h.topologyId)
+         }
       }
    }
 
-   def getKeyMetadata(h: HotRodHeader, k: Array[Byte], cache: Cache): GetWithMetadataResponse = {
+   private def readListenerParams(buffer: ByteBuf): Array[Bytes] = {
+      val count = readUnsignedInt(buffer)
+      Array.fill(count)(readRangedBytes(buffer))
+   }
+
+   def getKeyMetadata(h: HotRodHeader, k: Array[Byte], cache: Cache, server: HotRodServer): GetWithMetadataResponse = {
       val ce = cache.getCacheEntry(k)
       if (ce != null) {
          val ice = ce.asInstanceOf[InternalCacheEntry[Array[Byte], Array[Byte]]]
          val entryVersion = ice.getMetadata.version().asInstanceOf[NumericVersion]
-         val v = ce.getValue.asInstanceOf[Array[Byte]]
+         val v = server.getValueCompression.fromStorage(ce.getValue.asInstanceOf[Array[Byte]], h.hasCompressedValues)
          val lifespan = if (ice.getLifespan < 0) -1 else (ice.getLifespan / 1000).toInt
          val maxIdle = if (ice.getMaxIdle < 0) -1 else (ice.getMaxIdle / 1000).toInt
          new GetWithMetadataResponse(h.version, h.messageId, h.cacheName,
@@ -242,7 +336,7 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
 
    override def customReadValue(header: HotRodHeader, buffer: ByteBuf, cache: Cache): AnyRef = null
 
-   override def createStatsResponse(h: HotRodHeader, cacheStats: Stats, t: NettyTransport): AnyRef = {
+   override def createStatsResponse(h: HotRodHeader, cacheStats: Stats, t: NettyTransport, server: HotRodServer): AnyRef = {
       val stats = mutable.Map.empty[String, String]
       stats += ("timeSinceStart" -> cacheStats.getTimeSinceStart.toString)
       stats += ("currentNumberOfEntries" -> cacheStats.getCurrentNumberOfEntries.toString)
@@ -255,6 +349,11 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
       stats += ("removeMisses" -> cacheStats.getRemoveMisses.toString)
       stats += ("totalBytesRead" -> t.getTotalBytesRead)
       stats += ("totalBytesWritten" -> t.getTotalBytesWritten)
+      val compression = server.getValueCompression
+      stats += ("compressedStores" -> compression.getCompressedStores.toString)
+      stats += ("compressionRatio" -> compression.getCompressionRatio.toString)
+      stats += ("decompressions" -> compression.getDecompressions.toString)
+      stats += ("decompressionTime" -> compression.getDecompressionNanos.toString)
       new StatsResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
          immutable.Map[String, String]() ++ stats, h.topologyId)
    }
@@ -298,6 +397,13 @@ object Decoder2x extends AbstractVersionedDecoder with ServerConstants with Log
          case BulkGetRequest => BulkGetResponse
          case GetWithMetadataRequest => GetWithMetadataResponse
          case BulkGetKeysRequest => BulkGetKeysResponse
+         case GetAllRequest => GetAllResponse
+         case PutAllRequest => PutAllResponse
+         case AddClientListenerRequest => AddClientListenerResponse
+         case RemoveClientListenerRequest => RemoveClientListenerResponse
+         case IterationStartRequest => IterationStartResponse
+         case IterationNextRequest => IterationNextResponse
+         case IterationEndRequest => IterationEndResponse
       }
    }
 
@@ -185,6 +185,7 @@ object Encoder2x extends AbstractVersionedEncoder with Constants with Log {
             log.trace("About to respond to bulk get request")
             if (g.status == Success) {
                val cache: Cache = server.getCacheInstance(g.cacheName, cacheManager, false)
+               val compression = server.getValueCompression
                var iterator = asScalaIterator(cache.entrySet.iterator)
                if (g.count != 0) {
                   trace("About to write (max) %d messages to the client", g.count)
@@ -193,7 +194,7 @@ object Encoder2x extends AbstractVersionedEncoder with Constants with Log {
                for (entry <- iterator) {
                   buf.writeByte(1) // Not done
                   writeRangedBytes(entry.getKey, buf)
-                  writeRangedBytes(entry.getValue, buf)
+                  writeRangedBytes(compression.fromStorage(entry.getValue, g.compressedValues), buf)
                }
                buf.writeByte(0) // Done
             }
@@ -209,6 +210,28 @@ object Encoder2x extends AbstractVersionedEncoder with Constants with Log {
                }
                buf.writeByte(0) // Done
             }
+         case g: GetAllResponse =>
+            if (g.status == Success) {
+               writeUnsignedInt(g.entries.size, buf)
+               for ((key, value) <- g.entries) {
+                  writeRangedBytes(key, buf)
+                  writeRangedBytes(value, buf)
+               }
+            }
+         case i: IterationStartResponse =>
+            writeString(i.iterationId, buf)
+         case i: IterationNextResponse =>
+            if (i.status == Success) {
+               writeUnsignedInt(i.entries.size, buf)
+               for ((key, value) <- i.entries) {
+                  writeRangedBytes(key, buf)
+                  writeRangedBytes(value, buf)
+               }
+            }
+         case e: ClientEventResponse =>
+            writeRangedBytes(e.listenerId, buf)
+            buf.writeByte(if (e.isCustom) 1 else 0)
+            writeRangedBytes(e.data, buf)
          case g: GetResponse =>
             if (g.status == Success) writeRangedBytes(g.data.get, buf)
          case q: QueryResponse =>
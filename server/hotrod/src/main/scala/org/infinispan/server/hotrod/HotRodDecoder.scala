@@ -8,7 +8,7 @@ import org.infinispan.server.core.transport.ExtendedByteBuf._
 import java.nio.channels.ClosedChannelException
 import java.io.{IOException, StreamCorruptedException}
 import java.lang.StringBuilder
-import org.infinispan.container.entries.CacheEntry
+import org.infinispan.container.entries.{CacheEntry, InternalCacheEntry}
 import org.infinispan.server.hotrod.configuration.HotRodServerConfiguration
 import io.netty.buffer.ByteBuf
 import io.netty.channel.Channel
@@ -101,19 +101,40 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
       b.readBytes(rawValue)
    }
 
-   override def createValue(): Array[Byte] = rawValue
+   override def createValue(): Array[Byte] =
+      server.getValueCompression.toStorage(rawValue, header.hasCompressedValues)
 
    override def createSuccessResponse(prev: Array[Byte]): AnyRef =
-      header.decoder.createSuccessResponse(header, prev)
+      header.decoder.createSuccessResponse(header, toResponseValue(prev))
 
    override def createNotExecutedResponse(prev: Array[Byte]): AnyRef =
-      header.decoder.createNotExecutedResponse(header, prev)
+      header.decoder.createNotExecutedResponse(header, toResponseValue(prev))
 
    override def createNotExistResponse: AnyRef =
       header.decoder.createNotExistResponse(header)
 
    override def createGetResponse(k: Array[Byte], entry: CacheEntry[Array[Byte], Array[Byte]]): AnyRef =
-      header.decoder.createGetResponse(header, entry)
+      header.decoder.createGetResponse(header, toResponseEntry(entry))
+
+   private def toResponseValue(v: Array[Byte]): Array[Byte] =
+      server.getValueCompression.fromStorage(v, header.hasCompressedValues)
+
+   private def toResponseEntry(entry: CacheEntry[Array[Byte], Array[Byte]]): CacheEntry[Array[Byte], Array[Byte]] = {
+      if (entry == null) {
+         entry
+      } else {
+         val v = entry.getValue
+         val responseValue = toResponseValue(v)
+         if (responseValue eq v) {
+            entry
+         } else {
+            // Never touch the stored entry, which may be the one in the data container
+            val copy = entry.asInstanceOf[InternalCacheEntry[Array[Byte], Array[Byte]]].clone()
+            copy.setValue(responseValue)
+            copy
+         }
+      }
+   }
 
    override def createMultiGetResponse(pairs: Map[Array[Byte], CacheEntry[Array[Byte], Array[Byte]]]): AnyRef =
       null // Unsupported
@@ -122,13 +143,13 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
       writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
 
    override protected def customDecodeKey(ch: Channel, buffer: ByteBuf): AnyRef =
-      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache, server.getQueryFacades))
+      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache, server, ch))
 
    override protected def customDecodeValue(ch: Channel, buffer: ByteBuf): AnyRef =
       writeResponse(ch, header.decoder.customReadValue(header, buffer, cache))
 
    override def createStatsResponse: AnyRef =
-      header.decoder.createStatsResponse(header, cache.getStats, transport)
+      header.decoder.createStatsResponse(header, cache.getStats, transport, server)
 
    override def createErrorResponse(t: Throwable): AnyRef = {
       t match {
@@ -204,6 +225,13 @@ class HotRodHeader extends RequestHeader {
    var topologyId: Int = _
    var decoder: AbstractVersionedDecoder = _
 
+   /**
+    * Whether the values in the request and in its response are framed, and maybe compressed, by the client. Only
+    * version 2.0 clients may compress values.
+    */
+   def hasCompressedValues: Boolean =
+      (decoder eq Decoder2x) && (flag & ProtocolFlag.CompressedValues.id) == ProtocolFlag.CompressedValues.id
+
    override def toString = {
       new StringBuilder().append("HotRodHeader").append("{")
          .append("op=").append(op)
@@ -18,4 +18,11 @@ object HotRodOperation extends Enumeration(20) {
    val GetWithMetadataRequest = Value
    val BulkGetKeysRequest = Value
    val QueryRequest = Value
+   val GetAllRequest = Value
+   val PutAllRequest = Value
+   val IterationStartRequest = Value
+   val IterationNextRequest = Value
+   val IterationEndRequest = Value
+   val AddClientListenerRequest = Value
+   val RemoveClientListenerRequest = Value
 }
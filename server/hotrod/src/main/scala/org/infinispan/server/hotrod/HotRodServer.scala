@@ -14,6 +14,8 @@ import org.infinispan.upgrade.RollingUpgradeManager
 import org.infinispan.server.hotrod.configuration.HotRodServerConfiguration
 import java.util.ServiceLoader
 import org.infinispan.util.concurrent.IsolationLevel
+import org.infinispan.notifications.{ConverterFactory, KeyValueFilterFactory}
+import org.infinispan.commons.marshall.Marshaller
 
 /**
  * Hot Rod server, in charge of defining its encoder/decoder and, if clustered, update the topology information
@@ -35,11 +37,50 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
    private var addressCache: AddressCache = _
    private val knownCaches = CollectionFactory.makeConcurrentMap[String, Cache](4, 0.9f, 16)
    private var queryFacades: Seq[QueryFacade] = _
+   private val iterationManager = new IterationManager
+   private val clientListenerRegistry = new ClientListenerRegistry
+   private var valueCompression: ValueCompression = _
 
    def getAddress: ServerAddress = address
 
    def getQueryFacades: Seq[QueryFacade] = queryFacades
 
+   def getIterationManager: IterationManager = iterationManager
+
+   def getClientListenerRegistry: ClientListenerRegistry = clientListenerRegistry
+
+   def getValueCompression: ValueCompression = valueCompression
+
+   /**
+    * Registers a factory of filters that client listeners can refer to by name.
+    */
+   def addKeyValueFilterFactory(name: String, factory: KeyValueFilterFactory) {
+      clientListenerRegistry.addKeyValueFilterFactory(name, factory)
+   }
+
+   def removeKeyValueFilterFactory(name: String) {
+      clientListenerRegistry.removeKeyValueFilterFactory(name)
+   }
+
+   /**
+    * Registers a factory of converters that client listeners can refer to by name.
+    */
+   def addConverterFactory(name: String, factory: ConverterFactory) {
+      clientListenerRegistry.addConverterFactory(name, factory)
+   }
+
+   def removeConverterFactory(name: String) {
+      clientListenerRegistry.removeConverterFactory(name)
+   }
+
+   /**
+    * Sets the marshaller of the converted event data that isn't already a byte array. It must be compatible with the
+    * marshaller of the clients. Defaults to the generic JBoss Marshalling based marshaller.
+    */
+   def setEventMarshaller(marshaller: Marshaller) {
+      clientListenerRegistry.setEventMarshaller(marshaller)
+   }
+
    override def getEncoder = new HotRodEncoder(getCacheManager, this)
 
    override def getDecoder : HotRodDecoder =
@@ -47,6 +88,7 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
 
    override def startInternal(configuration: HotRodServerConfiguration, cacheManager: EmbeddedCacheManager) {
       this.configuration = configuration
+      valueCompression = new ValueCompression(configuration.storeCompressedValues)
 
       // 1. Start default cache and the endpoint before adding self to
       // topology in order to avoid topology updates being used before
@@ -0,0 +1,102 @@
+package org.infinispan.server.hotrod
+
+import logging.Log
+import java.util.{Iterator => JavaIterator, Map => JavaMap, UUID}
+import java.util.concurrent.TimeUnit
+import org.infinispan.commons.util.CollectionFactory
+import org.infinispan.distribution.DistributionManager
+import scala.collection.JavaConversions._
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Keeps the server side cursors of the iterations started by Hot Rod clients. An iteration walks lazily over the
+ * entries held in memory by this server, optionally restricted to some segments, and hands them out in batches of
+ * the size requested by the client. Neither the server nor the client ever hold more than one batch, whatever the
+ * size of the cache.
+ *
+ * An iteration is removed once exhausted or ended by the client. Iterations abandoned by their client are removed
+ * after being idle for [[org.infinispan.server.hotrod.IterationManager.IdleTimeout]].
+ *
+ * Entries written or moved between servers while iterating may or may not be returned.
+ *
+ * @since 7.0
+ */
+class IterationManager extends Log {
+   import IterationManager._
+
+   private val iterations = CollectionFactory.makeConcurrentMap[String, IterationState]()
+
+   /**
+    * Starts an iteration over the entries of the cache, restricted to the given segments if the cache is
+    * distributed, and returns its id.
+    */
+   def start(cacheName: String, cache: Cache, segments: Option[Set[Int]], batchSize: Int): String = {
+      removeIdleIterations()
+      val dm = cache.getDistributionManager
+      val filter = if (dm == null) None else segments
+      val id = UUID.randomUUID.toString
+      iterations.put(id, new IterationState(cacheName, cache.entrySet.iterator, dm, filter, math.max(batchSize, 1)))
+      id
+   }
+
+   /**
+    * Returns the next batch of the iteration, or None if there is no such iteration for this cache. An empty batch
+    * means that the iteration is exhausted, and it's removed.
+    */
+   def next(cacheName: String, iterationId: String): Option[Seq[(Bytes, Bytes)]] = {
+      val state = iterations.get(iterationId)
+      if (state == null || state.cacheName != cacheName) {
+         None
+      } else {
+         val batch = state.nextBatch()
+         if (batch.isEmpty) {
+            iterations.remove(iterationId)
+            if (isTraceEnabled) trace("Iteration %s is exhausted", iterationId)
+         }
+         Some(batch)
+      }
+   }
+
+   /**
+    * Removes the iteration, returning whether it existed.
+    */
+   def end(iterationId: String): Boolean = iterations.remove(iterationId) != null
+
+   def activeIterations: Int = iterations.size
+
+   private def removeIdleIterations() {
+      val now = System.nanoTime
+      for ((id, state) <- iterations if now - state.lastAccess > IdleTimeout) {
+         if (iterations.remove(id, state) && isTraceEnabled)
+            trace("Removed iteration %s after being idle for too long", id)
+      }
+   }
+
+}
+
+object IterationManager {
+   val IdleTimeout = TimeUnit.MINUTES.toNanos(5)
+}
+
+private class IterationState(val cacheName: String, iterator: JavaIterator[JavaMap.Entry[Bytes, Bytes]],
+                             dm: DistributionManager, segments: Option[Set[Int]], batchSize: Int) {
+
+   @volatile var lastAccess = System.nanoTime
+
+   def nextBatch(): Seq[(Bytes, Bytes)] = synchronized {
+      lastAccess = System.nanoTime
+      val batch = new ArrayBuffer[(Bytes, Bytes)](batchSize)
+      while (batch.size < batchSize && iterator.hasNext) {
+         val entry = iterator.next
+         if (isInSegments(entry.getKey))
+            batch += ((entry.getKey, entry.getValue))
+      }
+      batch
+   }
+
+   private def isInSegments(key: Bytes): Boolean = segments match {
+      case Some(s) => s.contains(dm.getReadConsistentHash.getSegment(key))
+      case None => true
+   }
+
+}
@@ -60,7 +60,7 @@ class GetResponse(override val version: Byte, override val messageId: Long, over
 }
 class BulkGetResponse(override val version: Byte, override val messageId: Long, override val cacheName: String, override val clientIntel: Short,
                   override val operation: OperationResponse, override val status: OperationStatus,
-                  override val topologyId: Int, val count: Int)
+                  override val topologyId: Int, val count: Int, val compressedValues: Boolean = false)
       extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
    override def toString = {
       new StringBuilder().append("BulkGetResponse").append("{")
@@ -168,6 +168,77 @@ class QueryResponse(override val version: Byte, override val messageId: Long, ov
    }
 }
 
+class GetAllResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                     override val clientIntel: Short, override val operation: OperationResponse,
+                     override val status: OperationStatus, override val topologyId: Int,
+                     val entries: Seq[(Array[Byte], Array[Byte])])
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("GetAllResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", entries=").append(entries.size)
+         .append("}").toString
+   }
+}
+
+class IterationStartResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                             override val clientIntel: Short, override val operation: OperationResponse,
+                             override val status: OperationStatus, override val topologyId: Int,
+                             val iterationId: String)
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("IterationStartResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", iterationId=").append(iterationId)
+         .append("}").toString
+   }
+}
+
+class IterationNextResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                            override val clientIntel: Short, override val operation: OperationResponse,
+                            override val status: OperationStatus, override val topologyId: Int,
+                            val entries: Seq[(Array[Byte], Array[Byte])])
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("IterationNextResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", entries=").append(entries.size)
+         .append("}").toString
+   }
+}
+
+/**
+ * An event pushed to a client listener. Events are written with the message id of the request that added the
+ * listener, and never carry topology updates.
+ */
+/**
+ * An event pushed to a client listener. It carries either the key of the entry, or, if the listener was added with a
+ * converter, the converted event data instead.
+ */
+class ClientEventResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                          override val operation: OperationResponse, val listenerId: Array[Byte], val data: Array[Byte],
+                          val isCustom: Boolean)
+      extends Response(version, messageId, cacheName, Constants.INTELLIGENCE_BASIC, operation, Success, 0) {
+   override def toString = {
+      new StringBuilder().append("ClientEventResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", listenerId=").append(Util.printArray(listenerId, false))
+         .append(if (isCustom) ", eventData=" else ", key=").append(Util.printArray(data, true))
+         .append("}").toString
+   }
+}
+
 abstract class AbstractTopologyResponse(val topologyId: Int, val serverEndpointsMap : Map[Address, ServerAddress])
 
 abstract class AbstractHashDistAwareResponse(override val topologyId: Int,
@@ -0,0 +1,85 @@
+package org.infinispan.server.hotrod
+
+import java.util.concurrent.atomic.AtomicLong
+import org.infinispan.commons.io.CompressedValues
+
+/**
+ * Converts values between the form clients send and receive them in, and the form they are stored in.
+ *
+ * Clients that compress values flag their requests, and both the values in those requests and the values in the
+ * responses to them are framed by [[org.infinispan.commons.io.CompressedValues]], compressed or not. Other clients
+ * send and receive values as marshalled.
+ *
+ * If the server stores compressed values, values sent framed are stored as is, and the values sent by other clients
+ * are framed raw, so that every stored value is framed. Stored values are then decompressed only for the clients
+ * that don't compress values. Otherwise, values sent framed are decompressed before being stored, and stored values
+ * are framed raw for the clients that compress values.
+ *
+ * @since 7.0
+ */
+class ValueCompression(storeCompressed: Boolean) {
+
+   private val framedStores = new AtomicLong
+   private val compressedStores = new AtomicLong
+   private val uncompressedBytes = new AtomicLong
+   private val framedBytes = new AtomicLong
+   private val decompressions = new AtomicLong
+   private val decompressionNanos = new AtomicLong
+
+   /**
+    * Returns the value to store, given the value a client sent.
+    */
+   def toStorage(value: Bytes, framed: Boolean): Bytes = {
+      if (framed) {
+         recordFramedStore(value)
+         if (storeCompressed) value else unframe(value)
+      } else {
+         if (storeCompressed) CompressedValues.frame(value) else value
+      }
+   }
+
+   /**
+    * Returns the value to send to a client, given the stored value, which may be null.
+    */
+   def fromStorage(value: Bytes, framed: Boolean): Bytes = {
+      if (value == null || storeCompressed == framed) value
+      else if (framed) CompressedValues.frame(value)
+      else unframe(value)
+   }
+
+   def getFramedStores: Long = framedStores.get
+
+   def getCompressedStores: Long = compressedStores.get
+
+   /**
+    * The ratio between the size of the values sent framed once uncompressed and their size as sent, i.e. how much
+    * smaller compression made them.
+    */
+   def getCompressionRatio: Double = {
+      val framed = framedBytes.get
+      if (framed == 0) 1.0 else uncompressedBytes.get.toDouble / framed
+   }
+
+   def getDecompressions: Long = decompressions.get
+
+   def getDecompressionNanos: Long = decompressionNanos.get
+
+   private def recordFramedStore(value: Bytes) {
+      framedStores.incrementAndGet()
+      if (CompressedValues.isCompressed(value)) compressedStores.incrementAndGet()
+      uncompressedBytes.addAndGet(CompressedValues.uncompressedLength(value))
+      framedBytes.addAndGet(value.length)
+   }
+
+   private def unframe(value: Bytes): Bytes = {
+      if (!CompressedValues.isCompressed(value)) {
+         CompressedValues.unframe(value)
+      } else {
+         val start = System.nanoTime
+         val uncompressed = CompressedValues.unframe(value)
+         decompressionNanos.addAndGet(System.nanoTime - start)
+         decompressions.incrementAndGet()
+         uncompressed
+      }
+   }
+}
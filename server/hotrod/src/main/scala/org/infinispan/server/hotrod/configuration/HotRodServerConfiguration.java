@@ -14,9 +14,10 @@ public class HotRodServerConfiguration extends ProtocolServerConfiguration {
    private final long topologyReplTimeout;
    private final boolean topologyAwaitInitialTransfer;
    private final boolean topologyStateTransfer;
+   private final boolean storeCompressedValues;
 
    HotRodServerConfiguration(String defaultCacheName, String proxyHost, int proxyPort, long topologyLockTimeout, long topologyReplTimeout, boolean topologyAwaitInitialTransfer, boolean topologyStateTransfer,
-         String name, String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, SslConfiguration ssl, boolean tcpNoDelay, int workerThreads) {
+         boolean storeCompressedValues, String name, String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, SslConfiguration ssl, boolean tcpNoDelay, int workerThreads) {
       super(defaultCacheName, name, host, port, idleTimeout, recvBufSize, sendBufSize, ssl, tcpNoDelay, workerThreads);
       this.proxyHost = proxyHost;
       this.proxyPort = proxyPort;
@@ -25,6 +26,7 @@ public class HotRodServerConfiguration extends ProtocolServerConfiguration {
       this.topologyReplTimeout = topologyReplTimeout;
       this.topologyStateTransfer = topologyStateTransfer;
       this.topologyAwaitInitialTransfer = topologyAwaitInitialTransfer;
+      this.storeCompressedValues = storeCompressedValues;
    }
 
    public String proxyHost() {
@@ -55,12 +57,17 @@ public boolean topologyStateTransfer() {
       return topologyStateTransfer;
    }
 
+   public boolean storeCompressedValues() {
+      return storeCompressedValues;
+   }
+
    @Override
    public String toString() {
       return "HotRodServerConfiguration [proxyHost=" + proxyHost
             + ", proxyPort=" + proxyPort + ", topologyCacheName=" + topologyCacheName + ", topologyLockTimeout="
             + topologyLockTimeout + ", topologyReplTimeout=" + topologyReplTimeout + ", topologyAwaitInitialTransfer="
-            + topologyAwaitInitialTransfer + ", topologyStateTransfer=" + topologyStateTransfer + ", "
+            + topologyAwaitInitialTransfer + ", topologyStateTransfer=" + topologyStateTransfer
+            + ", storeCompressedValues=" + storeCompressedValues + ", "
             + super.toString() + "]";
    }
 }
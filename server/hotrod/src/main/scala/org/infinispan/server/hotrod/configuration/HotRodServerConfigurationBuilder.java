@@ -20,6 +20,7 @@ public class HotRodServerConfigurationBuilder extends ProtocolServerConfiguratio
    private long topologyReplTimeout = 10000L;
    private boolean topologyAwaitInitialTransfer = true;
    private boolean topologyStateTransfer = true;
+   private boolean storeCompressedValues = false;
 
    public HotRodServerConfigurationBuilder() {
       super(11222);
@@ -79,9 +80,19 @@ public HotRodServerConfigurationBuilder topologyStateTransfer(boolean topologySt
       return this;
    }
 
+   /**
+    * Configures whether values that clients send compressed are stored as sent, rather than decompressed first. Values
+    * are then decompressed only for the clients that don't send compressed values themselves, and values stored by
+    * other clients are framed too, so the caches should only be accessed through Hot Rod. Defaults to false
+    */
+   public HotRodServerConfigurationBuilder storeCompressedValues(boolean storeCompressedValues) {
+      this.storeCompressedValues = storeCompressedValues;
+      return this;
+   }
+
    @Override
    public HotRodServerConfiguration create() {
-      return new HotRodServerConfiguration(defaultCacheName, proxyHost, proxyPort, topologyLockTimeout, topologyReplTimeout, topologyAwaitInitialTransfer, topologyStateTransfer, name, host, port, idleTimeout,
+      return new HotRodServerConfiguration(defaultCacheName, proxyHost, proxyPort, topologyLockTimeout, topologyReplTimeout, topologyAwaitInitialTransfer, topologyStateTransfer, storeCompressedValues, name, host, port, idleTimeout,
             recvBufSize, sendBufSize, ssl.create(), tcpNoDelay, workerThreads);
    }
 
@@ -94,6 +105,7 @@ public HotRodServerConfigurationBuilder read(HotRodServerConfiguration template)
       this.topologyReplTimeout = template.topologyReplTimeout();
       this.topologyAwaitInitialTransfer = template.topologyAwaitInitialTransfer();
       this.topologyStateTransfer = template.topologyStateTransfer();
+      this.storeCompressedValues = template.storeCompressedValues();
       return this;
    }
 
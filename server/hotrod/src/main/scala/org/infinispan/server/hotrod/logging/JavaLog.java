@@ -1,6 +1,7 @@
 package org.infinispan.server.hotrod.logging;
 
 import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.commons.CacheException;
 import org.infinispan.util.concurrent.IsolationLevel;
 import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.LogMessage;
@@ -37,4 +38,10 @@ public interface JavaLog extends org.infinispan.util.logging.Log {
    @Message(value = "Isolation level must be READ_COMMITTED or lower: '%s'", id = 6004)
    CacheConfigurationException invalidIsolationLevel(IsolationLevel isolationLevel);
 
+   @Message(value = "No key/value filter factory named '%s' has been registered with the server", id = 6005)
+   CacheException missingKeyValueFilterFactory(String name);
+
+   @Message(value = "No converter factory named '%s' has been registered with the server", id = 6006)
+   CacheException missingConverterFactory(String name);
+
 }